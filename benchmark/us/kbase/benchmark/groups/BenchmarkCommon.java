@@ -0,0 +1,250 @@
+package us.kbase.benchmark.groups;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.mongodb.MongoClient;
+import com.mongodb.client.MongoDatabase;
+
+import us.kbase.common.test.controllers.mongo.MongoController;
+import us.kbase.groups.core.CreateAndModTimes;
+import us.kbase.groups.core.Group;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupUser;
+import us.kbase.groups.core.Token;
+import us.kbase.groups.core.UserHandler;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
+import us.kbase.groups.core.notifications.Notifications;
+import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.core.resource.ResourceAccess;
+import us.kbase.groups.core.resource.ResourceAdministrativeID;
+import us.kbase.groups.core.resource.ResourceDescriptor;
+import us.kbase.groups.core.resource.ResourceHandler;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceInformationSet;
+import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.test.groups.TestCommon;
+
+/** Fixtures shared between the benchmarks. The MongoDB benchmarks use the same
+ * configuration file as the tests - see test.cfg.example.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class BenchmarkCommon {
+
+	public static final UserName OWNER;
+	public static final ResourceType WORKSPACE;
+	public static final ResourceType CATALOG;
+	static {
+		try {
+			OWNER = new UserName("owner");
+			WORKSPACE = new ResourceType("workspace");
+			CATALOG = new ResourceType("catalogmethod");
+		} catch (Exception e) {
+			throw new RuntimeException("Fix yer benchmarks newb", e);
+		}
+	}
+
+	/** Build a group with the given number of members in addition to the owner, and
+	 * the given number of workspace and catalog resources each. Every fifth member is an
+	 * administrator.
+	 */
+	public static Group buildGroup(final String id, final int members, final int resources)
+			throws Exception {
+		final Instant now = Instant.ofEpochMilli(1500000000000L);
+		final Group.Builder b = Group.getBuilder(
+				new GroupID(id), new GroupName("Benchmark group " + id),
+				GroupUser.getBuilder(OWNER, now).build(),
+				new CreateAndModTimes(now))
+				.withCustomField(new NumberedCustomField("description"),
+						"A group used for benchmarking. Very exciting stuff.")
+				.withCustomField(new NumberedCustomField("logourl"), "https://example.com/l.png");
+		for (int i = 0; i < members; i++) {
+			final GroupUser u = GroupUser.getBuilder(new UserName("user" + i), now)
+					.withCustomField(new NumberedCustomField("title"), "Member " + i)
+					.withNullableLastVisit(now.plusSeconds(i))
+					.build();
+			if (i % 5 == 0) {
+				b.withAdministrator(u);
+			} else {
+				b.withMember(u);
+			}
+		}
+		for (int i = 0; i < resources; i++) {
+			b.withResource(WORKSPACE, new ResourceDescriptor(new ResourceID("" + (i + 1))),
+					now.plusSeconds(i));
+			b.withResource(CATALOG, new ResourceDescriptor(
+					new ResourceAdministrativeID("mod" + i),
+					new ResourceID("mod" + i + ".meth")),
+					now.plusSeconds(i));
+		}
+		return b.build();
+	}
+
+	/** Build the resource information for a group's resources of a single type, as would be
+	 * returned by a resource handler.
+	 */
+	public static ResourceInformationSet buildResourceInfo(
+			final UserName user,
+			final Collection<ResourceID> resources)
+			throws Exception {
+		final ResourceInformationSet.Builder b = ResourceInformationSet.getBuilder(user);
+		for (final ResourceID r: resources) {
+			b.withResourceField(r, "name", "resource " + r.getName())
+					.withResourceField(r, "public", true)
+					.withResourceField(r, "moddate", 1500000000000L)
+					.withResourceField(r, "narrname", "My narrative " + r.getName());
+		}
+		return b.build();
+	}
+
+	/** A mongod instance running in a temporary directory, plus a client and database. */
+	public static class Mongo {
+
+		public final MongoController controller;
+		public final MongoClient client;
+		public final MongoDatabase db;
+
+		public Mongo(final String dbName) throws Exception {
+			TestCommon.stfuLoggers();
+			controller = new MongoController(TestCommon.getMongoExe().toString(),
+					TestCommon.getTempDir(),
+					TestCommon.useWiredTigerEngine());
+			client = new MongoClient("localhost:" + controller.getServerPort());
+			db = client.getDatabase(dbName);
+		}
+
+		public void destroy() throws Exception {
+			client.close();
+			controller.destroy(TestCommon.isDeleteTempFiles());
+		}
+	}
+
+	/** A resource handler that returns canned information after a fixed delay, simulating
+	 * the latency of a remote resource service.
+	 */
+	public static class LatencyResourceHandler implements ResourceHandler {
+
+		private final Duration latency;
+
+		public LatencyResourceHandler(final Duration latency) {
+			this.latency = latency;
+		}
+
+		private void sleep() {
+			if (latency.isZero()) {
+				return;
+			}
+			try {
+				Thread.sleep(latency.toMillis());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		public ResourceDescriptor getDescriptor(final ResourceID resource) {
+			sleep();
+			return new ResourceDescriptor(resource);
+		}
+
+		@Override
+		public boolean isAdministrator(final ResourceID resource, final UserName user) {
+			sleep();
+			return false;
+		}
+
+		@Override
+		public boolean isPublic(final ResourceID resource) {
+			sleep();
+			return true;
+		}
+
+		@Override
+		public Set<UserName> getAdministrators(final ResourceID resource) {
+			sleep();
+			return Collections.emptySet();
+		}
+
+		@Override
+		public Set<ResourceAdministrativeID> getAdministratedResources(final UserName user) {
+			sleep();
+			return Collections.emptySet();
+		}
+
+		@Override
+		public ResourceInformationSet getResourceInformation(
+				final UserName user,
+				final Set<ResourceID> resources,
+				final ResourceAccess access) {
+			sleep();
+			try {
+				return buildResourceInfo(user, resources);
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		@Override
+		public void setReadPermission(final ResourceID resource, final UserName user) {
+			sleep();
+		}
+	}
+
+	/** A user handler that treats every token as the given user's token. */
+	public static class StaticUserHandler implements UserHandler {
+
+		private final UserName user;
+
+		public StaticUserHandler(final UserName user) {
+			this.user = user;
+		}
+
+		@Override
+		public UserName getUser(final Token token) {
+			return user;
+		}
+
+		@Override
+		public boolean isValidUser(final UserName userName) {
+			return true;
+		}
+
+		@Override
+		public Map<UserName, Boolean> areValidUsers(final Collection<UserName> userNames) {
+			return userNames.stream().distinct().collect(Collectors.toMap(u -> u, u -> true));
+		}
+	}
+
+	/** A notifier that does nothing. */
+	public static class NoopNotifications implements Notifications {
+
+		@Override
+		public void notify(final Collection<UserName> targets, final GroupRequest request) {}
+
+		@Override
+		public void cancel(final Collection<RequestID> requestIDs) {}
+
+		@Override
+		public void deny(final Collection<UserName> targets, final GroupRequest request) {}
+
+		@Override
+		public void accept(final Collection<UserName> targets, final GroupRequest request) {}
+
+		@Override
+		public void addResource(
+				final UserName user,
+				final Set<UserName> targets,
+				final GroupID groupID,
+				final ResourceType type,
+				final ResourceID resource) {}
+	}
+}
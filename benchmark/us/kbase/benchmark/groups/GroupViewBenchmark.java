@@ -0,0 +1,80 @@
+package us.kbase.benchmark.groups;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import us.kbase.groups.core.Group;
+import us.kbase.groups.core.GroupView;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.resource.ResourceDescriptor;
+import us.kbase.groups.core.resource.ResourceInformationSet;
+import us.kbase.groups.service.api.APICommon;
+
+/** Benchmarks for building a standard {@link GroupView} for a group member and serializing
+ * it to the API JSON structure. Neither benchmark touches the storage system.
+ * @author gaprice@lbl.gov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class GroupViewBenchmark {
+
+	@Param({"10", "1000"})
+	public int members;
+
+	@Param({"10", "1000"})
+	public int resources;
+
+	private UserName user;
+	private Group group;
+	private ResourceInformationSet wsInfo;
+	private ResourceInformationSet catInfo;
+	private GroupView view;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		user = new UserName("user1");
+		group = BenchmarkCommon.buildGroup("bench", members, resources);
+		wsInfo = BenchmarkCommon.buildResourceInfo(user,
+				group.getResources(BenchmarkCommon.WORKSPACE).stream()
+						.map(ResourceDescriptor::getResourceID).collect(Collectors.toSet()));
+		catInfo = BenchmarkCommon.buildResourceInfo(user,
+				group.getResources(BenchmarkCommon.CATALOG).stream()
+						.map(ResourceDescriptor::getResourceID).collect(Collectors.toSet()));
+		view = buildView();
+	}
+
+	@Benchmark
+	public GroupView buildView() {
+		return GroupView.getBuilder(group, user)
+				.withStandardView(true)
+				.withResource(BenchmarkCommon.WORKSPACE, wsInfo)
+				.withResource(BenchmarkCommon.CATALOG, catInfo)
+				.withPublicFieldDeterminer(f -> true)
+				.withPublicUserFieldDeterminer(f -> true)
+				.build();
+	}
+
+	@Benchmark
+	public Map<String, Object> toGroupJSON() {
+		return APICommon.toGroupJSON(view);
+	}
+}
@@ -0,0 +1,116 @@
+package us.kbase.benchmark.groups;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableMap;
+
+import us.kbase.benchmark.groups.BenchmarkCommon.LatencyResourceHandler;
+import us.kbase.benchmark.groups.BenchmarkCommon.Mongo;
+import us.kbase.benchmark.groups.BenchmarkCommon.NoopNotifications;
+import us.kbase.benchmark.groups.BenchmarkCommon.StaticUserHandler;
+import us.kbase.groups.core.GetGroupsParams;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.GroupView;
+import us.kbase.groups.core.Groups;
+import us.kbase.groups.core.Token;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.fieldvalidation.FieldValidators;
+import us.kbase.groups.core.resource.ResourceHandler;
+import us.kbase.groups.storage.mongo.MongoGroupsStorage;
+
+/** Benchmarks for the {@link Groups} class against a MongoDB instance, with resource handlers
+ * that simulate the latency of the remote resource services.
+ * @author gaprice@lbl.gov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class GroupsBenchmark {
+
+	/** The latency of each resource handler call. */
+	@Param({"0", "10", "100"})
+	public int handlerLatencyMS;
+
+	/** The number of groups in the database, each with 10 members and 10 resources of each
+	 * type.
+	 */
+	@Param({"1000"})
+	public int groupCount;
+
+	/** The number of groups to return from the group listing. */
+	@Param({"100"})
+	public int listLimit;
+
+	private Mongo mongo;
+	private ExecutorService resourceExecutor;
+	private Groups groups;
+	private Token token;
+	private GroupID groupID;
+	private GetGroupsParams listParams;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		mongo = new Mongo("benchmark_groups");
+		final MongoGroupsStorage storage = new MongoGroupsStorage(mongo.db,
+				Arrays.asList(BenchmarkCommon.WORKSPACE, BenchmarkCommon.CATALOG));
+		for (int i = 0; i < groupCount; i++) {
+			storage.createGroup(BenchmarkCommon.buildGroup("bench" + i, 10, 10));
+		}
+		final ResourceHandler handler = new LatencyResourceHandler(
+				Duration.ofMillis(handlerLatencyMS));
+		resourceExecutor = Executors.newCachedThreadPool();
+		groups = new Groups(
+				storage,
+				new StaticUserHandler(new UserName("user1")),
+				ImmutableMap.of(
+						BenchmarkCommon.WORKSPACE, handler,
+						BenchmarkCommon.CATALOG, handler),
+				FieldValidators.getBuilder(5000).build(),
+				new NoopNotifications(),
+				resourceExecutor,
+				Duration.ofMinutes(1),
+				listLimit);
+		token = new Token("fake");
+		groupID = new GroupID("bench0");
+		listParams = GetGroupsParams.getBuilder().withNullableLimit(listLimit).build();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		resourceExecutor.shutdownNow();
+		mongo.destroy();
+	}
+
+	@Benchmark
+	public GroupView getGroup() throws Exception {
+		return groups.getGroup(token, groupID);
+	}
+
+	@Benchmark
+	public List<GroupView> getGroups() throws Exception {
+		return groups.getGroups(token, listParams);
+	}
+}
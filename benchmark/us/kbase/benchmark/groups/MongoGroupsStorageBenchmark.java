@@ -0,0 +1,102 @@
+package us.kbase.benchmark.groups;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mongodb.client.MongoDatabase;
+
+import us.kbase.benchmark.groups.BenchmarkCommon.Mongo;
+import us.kbase.groups.core.Group;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.storage.mongo.MongoGroupsStorage;
+
+/** Benchmarks for converting group documents to {@link Group}s in the MongoDB storage system,
+ * with and without the round trips to the database. Member details are stored separately from
+ * the group document, so decoding a group alone, decoding a group including fetching the
+ * member details, and fetching the group entirely are benchmarked separately.
+ * @author gaprice@lbl.gov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MongoGroupsStorageBenchmark {
+
+	@Param({"10", "1000"})
+	public int members;
+
+	@Param({"10", "1000"})
+	public int resources;
+
+	private Mongo mongo;
+	private GroupID groupID;
+	private MongoGroupsStorage storage;
+	private Document groupDoc;
+	private Map<String, Document> memberDetails;
+	private Method toGroup;
+	private Method toGroups;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		mongo = new Mongo("benchmark_mongogroupsstorage");
+		storage = new MongoGroupsStorage(mongo.db,
+				Arrays.asList(BenchmarkCommon.WORKSPACE, BenchmarkCommon.CATALOG));
+		groupID = new GroupID("bench");
+		storage.createGroup(BenchmarkCommon.buildGroup(groupID.getName(), members, resources));
+		groupDoc = mongo.db.getCollection("groups").find(new Document("id", groupID.getName()))
+				.first();
+		memberDetails = new HashMap<>();
+		for (final Document d: mongo.db.getCollection("group_members")
+				.find(new Document("gid", groupID.getName()))) {
+			memberDetails.put(d.getString("user"), d);
+		}
+		toGroup = MongoGroupsStorage.class.getDeclaredMethod(
+				"toGroup", Document.class, Map.class);
+		toGroup.setAccessible(true);
+		toGroups = MongoGroupsStorage.class.getDeclaredMethod(
+				"toGroups", MongoDatabase.class, List.class);
+		toGroups.setAccessible(true);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		mongo.destroy();
+	}
+
+	@Benchmark
+	public Group decodeGroup() throws Exception {
+		return (Group) toGroup.invoke(storage, groupDoc, memberDetails);
+	}
+	
+	@Benchmark
+	public Object fetchMemberDetailsAndDecodeGroup() throws Exception {
+		return toGroups.invoke(storage, mongo.db, Arrays.asList(groupDoc));
+	}
+
+	@Benchmark
+	public Group getGroup() throws Exception {
+		return storage.getGroup(groupID);
+	}
+}
@@ -1,18 +1,33 @@
 package us.kbase.groups.build;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static us.kbase.groups.metrics.MetricsProxy.instrument;
 
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
 import java.net.URISyntaxException;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoClientOptions;
 import com.mongodb.MongoCredential;
 import com.mongodb.MongoException;
+import com.mongodb.ReadPreference;
 import com.mongodb.ServerAddress;
 import com.mongodb.client.MongoDatabase;
 
@@ -21,8 +36,12 @@ import us.kbase.catalog.CatalogClient;
 import us.kbase.common.service.UnauthorizedException;
 import us.kbase.groups.cataloghandler.SDKClientCatalogHandler;
 import us.kbase.groups.config.GroupsConfig;
+import us.kbase.groups.config.GroupsConfig.GroupCacheMode;
 import us.kbase.groups.config.GroupsConfigurationException;
 import us.kbase.groups.core.Groups;
+import us.kbase.groups.core.LastVisitBuffer;
+import us.kbase.groups.core.RequestTargetRefresher;
+import us.kbase.groups.core.ServiceAdministrators;
 import us.kbase.groups.core.UserHandler;
 import us.kbase.groups.core.exceptions.AuthenticationException;
 import us.kbase.groups.core.exceptions.IllegalParameterException;
@@ -36,11 +55,17 @@ import us.kbase.groups.core.fieldvalidation.FieldValidatorFactory;
 import us.kbase.groups.core.fieldvalidation.FieldValidators;
 import us.kbase.groups.core.notifications.Notifications;
 import us.kbase.groups.core.notifications.NotificationsFactory;
+import us.kbase.groups.core.resource.CachingResourceHandler;
 import us.kbase.groups.core.resource.ResourceHandler;
 import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.metrics.MetricsRegistry;
+import us.kbase.groups.notifications.NotificationDispatcher;
+import us.kbase.groups.notifications.OutboxNotifier;
+import us.kbase.groups.storage.CachingGroupsStorage;
 import us.kbase.groups.storage.GroupsStorage;
 import us.kbase.groups.storage.exceptions.StorageInitException;
 import us.kbase.groups.storage.mongo.MongoGroupsStorage;
+import us.kbase.groups.userhandler.CachingUserHandler;
 import us.kbase.groups.userhandler.KBaseUserHandler;
 import us.kbase.groups.util.Util;
 import us.kbase.groups.workspacehandler.SDKClientWorkspaceHandler;
@@ -70,7 +95,16 @@ public class GroupsBuilder {
 	
 	private final MongoClient mc;
 	private final Groups groups;
+	private final MongoGroupsStorage mongoStorage;
 	private final GroupsStorage storage;
+	private final SDKClientCatalogHandler catalogHandler;
+	private final NotificationDispatcher dispatcher;
+	private final RequestTargetRefresher targetRefresher;
+	private final LastVisitBuffer visitBuffer;
+	private final MetricsRegistry metrics = new MetricsRegistry();
+	private final ServiceAdministrators admins;
+	private final ExecutorService apiExecutor;
+	private final ExecutorService resourceExecutor;
 	
 	/** Build a groups instance.
 	 * @param cfg the configuration to build to.
@@ -82,8 +116,26 @@ public class GroupsBuilder {
 			throws StorageInitException, GroupsConfigurationException {
 		checkNotNull(cfg, "cfg");
 		mc = buildMongo(cfg);
-		storage = buildStorage(cfg, mc);
-		groups = buildGroups(cfg, storage);
+		mongoStorage = buildMongoStorage(cfg, mc);
+		storage = buildStorage(cfg, mongoStorage);
+		dispatcher = new NotificationDispatcher(storage, getNotifier(cfg));
+		final UserHandler uh = buildUserHandler(cfg);
+		admins = new ServiceAdministrators(uh, cfg.getAdminUsers());
+		catalogHandler = buildCatalogHandler(cfg);
+		final Map<ResourceType, ResourceHandler> handlers = buildResourceHandlers(
+				cfg, catalogHandler);
+		visitBuffer = new LastVisitBuffer(storage, cfg.getVisitBufferSize());
+		resourceExecutor = buildResourceExecutor(cfg);
+		groups = buildGroups(cfg, storage, uh, handlers, visitBuffer, resourceExecutor);
+		targetRefresher = new RequestTargetRefresher(storage, handlers);
+		apiExecutor = buildAPIExecutor(cfg);
+		dispatcher.start();
+		if (cfg.getRequestTargetRefreshSec() > 0) {
+			targetRefresher.start(Duration.ofSeconds(cfg.getRequestTargetRefreshSec()));
+		}
+		if (cfg.getVisitBufferFlushSec() > 0) {
+			visitBuffer.start(Duration.ofSeconds(cfg.getVisitBufferFlushSec()));
+		}
 	}
 	
 	/** Build a groups instance with a previously existing MongoDB client. MongoDB
@@ -100,21 +152,60 @@ public class GroupsBuilder {
 		checkNotNull(cfg, "cfg");
 		checkNotNull(mc, "mc");
 		this.mc = mc;
-		storage = buildStorage(cfg, mc);
-		groups = buildGroups(cfg, storage);
+		mongoStorage = buildMongoStorage(cfg, mc);
+		storage = buildStorage(cfg, mongoStorage);
+		dispatcher = new NotificationDispatcher(storage, getNotifier(cfg));
+		final UserHandler uh = buildUserHandler(cfg);
+		admins = new ServiceAdministrators(uh, cfg.getAdminUsers());
+		catalogHandler = buildCatalogHandler(cfg);
+		final Map<ResourceType, ResourceHandler> handlers = buildResourceHandlers(
+				cfg, catalogHandler);
+		visitBuffer = new LastVisitBuffer(storage, cfg.getVisitBufferSize());
+		resourceExecutor = buildResourceExecutor(cfg);
+		groups = buildGroups(cfg, storage, uh, handlers, visitBuffer, resourceExecutor);
+		targetRefresher = new RequestTargetRefresher(storage, handlers);
+		apiExecutor = buildAPIExecutor(cfg);
+		dispatcher.start();
+		if (cfg.getRequestTargetRefreshSec() > 0) {
+			targetRefresher.start(Duration.ofSeconds(cfg.getRequestTargetRefreshSec()));
+		}
+		if (cfg.getVisitBufferFlushSec() > 0) {
+			visitBuffer.start(Duration.ofSeconds(cfg.getVisitBufferFlushSec()));
+		}
 	}
 	
 	private MongoClient buildMongo(final GroupsConfig c) throws StorageInitException {
-		//TODO ZLATER MONGO handle shards & replica sets
+		final List<ServerAddress> seeds = Arrays.stream(c.getMongoHost().split(","))
+				.map(h -> h.trim())
+				.filter(h -> !h.isEmpty())
+				.map(h -> new ServerAddress(h))
+				.collect(Collectors.toList());
+		final MongoClientOptions.Builder opts = MongoClientOptions.builder()
+				.minConnectionsPerHost(c.getMongoPoolMinSize())
+				.connectionsPerHost(c.getMongoPoolMaxSize())
+				.maxWaitTime(c.getMongoWaitQueueTimeoutMS())
+				.connectTimeout(c.getMongoConnectTimeoutMS())
+				.socketTimeout(c.getMongoSocketTimeoutMS());
+		if (c.getMongoReplicaSet().isPresent()) {
+			opts.requiredReplicaSetName(c.getMongoReplicaSet().get());
+		}
+		// a single address without a replica set means connect directly to that server,
+		// otherwise the client discovers the cluster from the seed list
+		final boolean direct = seeds.size() == 1 && !c.getMongoReplicaSet().isPresent();
 		try {
 			if (c.getMongoUser().isPresent()) {
 				final MongoCredential creds = MongoCredential.createCredential(
 						c.getMongoUser().get(), c.getMongoDatabase(), c.getMongoPwd().get());
 				// unclear if and when it's safe to clear the password
-				return new MongoClient(new ServerAddress(c.getMongoHost()), creds,
-						MongoClientOptions.builder().build());
+				if (direct) {
+					return new MongoClient(seeds.get(0), creds, opts.build());
+				}
+				return new MongoClient(seeds, creds, opts.build());
 			} else {
-				return new MongoClient(new ServerAddress(c.getMongoHost()));
+				if (direct) {
+					return new MongoClient(seeds.get(0), opts.build());
+				}
+				return new MongoClient(seeds, opts.build());
 			}
 		} catch (MongoException e) {
 			LoggerFactory.getLogger(getClass()).error(
@@ -123,30 +214,105 @@ public class GroupsBuilder {
 		}
 	}
 	
-	private Groups buildGroups(final GroupsConfig c, final GroupsStorage storage)
-			throws StorageInitException, GroupsConfigurationException {
-		final UserHandler uh;
+	private ExecutorService buildAPIExecutor(final GroupsConfig c) {
+		// API calls mostly wait on the database and other services, which is what virtual
+		// threads are for. They're only available in Java 21+, so look them up reflectively.
+		try {
+			return (ExecutorService) Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (NoSuchMethodException e) {
+			// fall back to a thread pool below
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			LoggerFactory.getLogger(getClass()).error(
+					"Failed to create virtual thread executor: " + e.getMessage(), e);
+		}
+		return Executors.newFixedThreadPool(c.getAPIThreads(), new ThreadFactoryBuilder()
+				.setDaemon(true)
+				.setNameFormat("api-%d")
+				.build());
+	}
+	
+	private UserHandler buildUserHandler(final GroupsConfig c)
+			throws GroupsConfigurationException {
 		// these handler creation methods may need changes if we want to allow alternate
 		// implementations. YAGNI for now.
 		try {
-			uh = new KBaseUserHandler(
-					c.getAuthURL(), c.getWorkspaceAdminToken(), c.isAllowInsecureURLs());
+			// instrument under the cache so only calls to the auth service are recorded
+			final CachingUserHandler cache = new CachingUserHandler(
+					instrument(UserHandler.class, new KBaseUserHandler(
+							c.getAuthURL(), c.getWorkspaceAdminToken(), c.isAllowInsecureURLs()),
+							"auth", metrics),
+					c.getTokenCacheSize(),
+					Duration.ofSeconds(c.getTokenCacheTTLSec()),
+					Duration.ofSeconds(c.getTokenCacheInvalidTTLSec()));
+			metrics.registerCache("token", cache::getHitCount, cache::getMissCount);
+			return cache;
 		} catch (IOException | URISyntaxException | AuthenticationException e) {
 			//TODO CODE check for a bad login and note the workspace token failed or throw a better error from the handler
 			throw new GroupsConfigurationException(
 					"Failed to create KBase user handler for auth service: " + e.getMessage(), e);
 		}
-		
+	}
+	
+	private Map<ResourceType, ResourceHandler> buildResourceHandlers(
+			final GroupsConfig c,
+			final SDKClientCatalogHandler catalogHandler)
+			throws GroupsConfigurationException {
+		return ImmutableMap.of(
+				RESOURCE_TYPE_WORKSPACE, cacheAdministratedResources(c, getWorkspaceHandler(c)),
+				RESOURCE_TYPE_CATALOG_METHOD, cacheAdministratedResources(c, instrument(
+						ResourceHandler.class, catalogHandler, "catalog", metrics)));
+	}
+	
+	private Groups buildGroups(
+			final GroupsConfig c,
+			final GroupsStorage storage,
+			final UserHandler uh,
+			final Map<ResourceType, ResourceHandler> handlers,
+			final LastVisitBuffer visitBuffer,
+			final ExecutorService resourceExecutor)
+			throws StorageInitException, GroupsConfigurationException {
 		return new Groups(
 				storage,
 				uh,
-				ImmutableMap.of(
-						RESOURCE_TYPE_WORKSPACE, getWorkspaceHandler(c),
-						RESOURCE_TYPE_CATALOG_METHOD, getCatalogHandler(c)),
+				handlers,
 				getValidators(c),
-				getNotifier(c));
+				// the dispatcher delivers the notifications to the configured notifier
+				new OutboxNotifier(storage),
+				resourceExecutor,
+				Duration.ofSeconds(c.getResourceHandlerTimeoutSec()),
+				c.getMaxListLimit(),
+				c.getRequestTargetRefreshSec() > 0,
+				c.getVisitBufferFlushSec() > 0 ? Optional.of(visitBuffer) : Optional.empty());
+	}
+
+	private ExecutorService buildResourceExecutor(final GroupsConfig c) {
+		// don't queue tasks. If all the threads are busy, the API thread calls the handler
+		// itself rather than waiting in a queue behind other requests, which would count
+		// against the request's resource timeout.
+		return new ThreadPoolExecutor(
+				c.getResourceHandlerThreads(),
+				c.getResourceHandlerThreads(),
+				0L, TimeUnit.MILLISECONDS,
+				new SynchronousQueue<>(),
+				new ThreadFactoryBuilder()
+						.setDaemon(true)
+						.setNameFormat("resource-handler-%d")
+						.build(),
+				new ThreadPoolExecutor.CallerRunsPolicy());
 	}
 
+	private ResourceHandler cacheAdministratedResources(
+			final GroupsConfig c,
+			final ResourceHandler handler) {
+		if (c.getResourceAdminCacheTTLSec() < 1) {
+			return handler;
+		}
+		// the handler is instrumented under the cache so only calls to the service are recorded
+		return new CachingResourceHandler(handler, c.getResourceAdminCacheSize(),
+				Duration.ofSeconds(c.getResourceAdminCacheTTLSec()));
+	}
+	
 	private ResourceHandler getWorkspaceHandler(final GroupsConfig c)
 			throws GroupsConfigurationException {
 		try {
@@ -154,19 +320,32 @@ public class GroupsBuilder {
 					c.getWorkspaceURL(),
 					new AuthToken(c.getWorkspaceAdminToken().getToken(), "<fake>"));
 			client.setIsInsecureHttpConnectionAllowed(c.isAllowInsecureURLs());
-			return new SDKClientWorkspaceHandler(client);
+			// cancelling a task doesn't interrupt a blocked HTTP call, so time out the call
+			client.setConnectionReadTimeOut(getResourceHandlerTimeoutMS(c));
+			return instrument(ResourceHandler.class, new SDKClientWorkspaceHandler(client),
+					"workspace", metrics);
 		} catch (IOException | UnauthorizedException | ResourceHandlerException e) {
 			throw new GroupsConfigurationException(
 					"Failed to create workspace handler: " + e.getMessage(), e);
 		}
 	}
 
-	private ResourceHandler getCatalogHandler(final GroupsConfig c)
+	private int getResourceHandlerTimeoutMS(final GroupsConfig c) {
+		return (int) Math.min(Integer.MAX_VALUE, c.getResourceHandlerTimeoutSec() * 1000L);
+	}
+
+	private SDKClientCatalogHandler buildCatalogHandler(final GroupsConfig c)
 			throws GroupsConfigurationException {
 		try {
 			final CatalogClient client = new CatalogClient(c.getCatalogURL());
 			client.setIsInsecureHttpConnectionAllowed(c.isAllowInsecureURLs());
-			return new SDKClientCatalogHandler(client);
+			client.setConnectionReadTimeOut(getResourceHandlerTimeoutMS(c));
+			final SDKClientCatalogHandler handler = new SDKClientCatalogHandler(client);
+			if (c.getCatalogSnapshotRefreshSec() > 0) {
+				handler.startSnapshotRefresh(
+						Duration.ofSeconds(c.getCatalogSnapshotRefreshSec()));
+			}
+			return handler;
 		} catch (ResourceHandlerException e) {
 			throw new GroupsConfigurationException(
 					"Failed to create catalog handler: " + e.getMessage(), e);
@@ -178,7 +357,8 @@ public class GroupsBuilder {
 		final NotificationsFactory fac = Util.loadClassWithInterface(
 				c.getNotifierFactory(), NotificationsFactory.class);
 		try {
-			return fac.getNotifier(c.getNotifierParameters());
+			return instrument(Notifications.class, fac.getNotifier(c.getNotifierParameters()),
+					"notifications", metrics);
 		} catch (IllegalParameterException | MissingParameterException e) {
 			throw new GroupsConfigurationException(
 					"Error building notifier: " + e.getMessage(), e);
@@ -218,7 +398,7 @@ public class GroupsBuilder {
 		}
 	}
 
-	private GroupsStorage buildStorage(
+	private MongoGroupsStorage buildMongoStorage(
 			final GroupsConfig c,
 			final MongoClient mc)
 			throws StorageInitException {
@@ -232,8 +412,48 @@ public class GroupsBuilder {
 					e.getMessage(), e);
 		}
 		//TODO TEST authenticate to db, write actual test with authentication
+		// only public fields are included in the public search index
+		final Set<CustomField> publicFields = c.getFieldConfigurations().stream()
+				.filter(f -> f.getFieldConfiguration().isPublicField())
+				.map(f -> f.getField())
+				.collect(Collectors.toSet());
 		return new MongoGroupsStorage(
-				db, Arrays.asList(RESOURCE_TYPE_WORKSPACE, RESOURCE_TYPE_CATALOG_METHOD));
+				db, Arrays.asList(RESOURCE_TYPE_WORKSPACE, RESOURCE_TYPE_CATALOG_METHOD),
+				publicFields,
+				ReadPreference.valueOf(c.getMongoListReadPreference().getValue()));
+	}
+	
+	private GroupsStorage buildStorage(
+			final GroupsConfig c,
+			final MongoGroupsStorage storage)
+			throws StorageInitException {
+		// instrument under the cache so only calls to the database are recorded
+		final GroupsStorage timed = instrument(GroupsStorage.class, storage, "mongo", metrics);
+		// cancel the notifications for expired requests via the outbox, which must happen
+		// before the agent starts so that no expirations are missed
+		final OutboxNotifier expirationNotifier = new OutboxNotifier(timed);
+		storage.addExpirationListener(ids -> expirationNotifier.cancel(ids));
+		storage.startExpirationAgent();
+		if (c.getRequestArchiveDays() > 0) {
+			storage.startArchivalAgent(Duration.ofDays(c.getRequestArchiveDays()));
+		}
+		if (GroupCacheMode.TTL.equals(c.getGroupCacheMode())) {
+			final CachingGroupsStorage cache = new CachingGroupsStorage(timed,
+					c.getGroupCacheSize(), Duration.ofSeconds(c.getGroupCacheTTLSec()));
+			// other service instances may write to the DB, so listen for their changes.
+			// If change streams aren't available the TTL is all we've got.
+			storage.addChangeListener(cache);
+			storage.startChangeStream();
+			metrics.registerCache("group", cache::getHitCount, cache::getMissCount);
+			return cache;
+		} else if (GroupCacheMode.SINGLE_NODE.equals(c.getGroupCacheMode())) {
+			final CachingGroupsStorage cache = new CachingGroupsStorage(
+					timed, c.getGroupCacheSize());
+			metrics.registerCache("group", cache::getHitCount, cache::getMissCount);
+			return cache;
+		} else {
+			return timed;
+		}
 	}
 	
 	/** Get the mongo client associated with the groups instance.
@@ -250,10 +470,78 @@ public class GroupsBuilder {
 		return groups;
 	}
 	
+	/** Get the dispatcher that delivers notifications from the notification outbox to the
+	 * configured notifier.
+	 * @return the notification dispatcher.
+	 */
+	public NotificationDispatcher getNotificationDispatcher() {
+		return dispatcher;
+	}
+	
+	/** Get the refresher that updates the users targeted by open invitations to resources.
+	 * The refresher is running if the request target refresh interval in the configuration is
+	 * greater than 0.
+	 * @return the request target refresher.
+	 */
+	public RequestTargetRefresher getRequestTargetRefresher() {
+		return targetRefresher;
+	}
+	
+	/** Get the buffer for users' last visit dates for groups. The buffer is only used, and is
+	 * only running, if the visit buffer flush interval in the configuration is greater than 0.
+	 * {@link #stop()} writes any buffered dates to the database.
+	 * @return the last visit buffer.
+	 */
+	public LastVisitBuffer getLastVisitBuffer() {
+		return visitBuffer;
+	}
+	
+	/** Get the registry that records the service metrics.
+	 * @return the metrics registry.
+	 */
+	public MetricsRegistry getMetricsRegistry() {
+		return metrics;
+	}
+	
+	/** Get the service administrators.
+	 * @return the service administrators.
+	 */
+	public ServiceAdministrators getServiceAdministrators() {
+		return admins;
+	}
+	
+	/** Get the executor that runs API calls so that the servlet container threads are not
+	 * held while the calls wait on the database and other services. The executor creates
+	 * a virtual thread per call if virtual threads are available, and otherwise is a thread
+	 * pool with the number of threads set in the configuration.
+	 * @return the API executor.
+	 */
+	public ExecutorService getAPIExecutor() {
+		return apiExecutor;
+	}
+	
 	/** Get the storage system for the groups instance.
 	 * @return the storage system.
 	 */
 	public GroupsStorage getStorage() {
 		return storage;
 	}
+	
+	/** Stop all the background agents started by the builder, releasing any leases they hold
+	 * so that the agents in another process can take over immediately, and write any buffered
+	 * last visit dates to the database. Also shuts down the threads that retrieve resource
+	 * information. Call this method before closing the MongoDB client.
+	 * Errors are logged. Calling this method multiple times in succession has no effect.
+	 */
+	public void stop() {
+		// write any buffered visits first so they're in the DB as soon as possible
+		visitBuffer.stop();
+		dispatcher.stop();
+		targetRefresher.stop();
+		mongoStorage.stopExpirationAgent();
+		mongoStorage.stopArchivalAgent();
+		mongoStorage.stopChangeStream();
+		catalogHandler.stopSnapshotRefresh();
+		resourceExecutor.shutdown();
+	}
 }
@@ -5,14 +5,22 @@ import static java.util.Objects.requireNonNull;
 import static us.kbase.groups.util.Util.checkNoNullsInCollection;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import org.slf4j.LoggerFactory;
+
 import us.kbase.catalog.BasicModuleInfo;
 import us.kbase.catalog.CatalogClient;
 import us.kbase.catalog.ListModuleParams;
@@ -35,12 +43,17 @@ import us.kbase.groups.core.resource.ResourceInformationSet.Builder;
 
 /** A handler implementation that uses a provided SDK workspace client to communicate with the 
  * catalog.
+ *
+ * The handler can optionally keep a snapshot of the module owners and methods in memory,
+ * which is refreshed periodically - see {@link #startSnapshotRefresh(Duration)}. When a
+ * snapshot is present, lookups are served from the snapshot. A module or method that is not
+ * in the snapshot is looked up in the catalog, as it may have been released since the snapshot
+ * was taken. Changes to module ownership are visible after the next refresh.
  * @author gaprice@lbl.gov
  *
  */
 public class SDKClientCatalogHandler implements ResourceHandler {
 	
-	// TODO CACHE may help to cache all or some of the results. YAGNI for now.
 	// TODO TEST integration tests, general. Not sure how painful it's gonna be to run the catalog in tests. Docker?
 	
 	/* may want to change behavior wrt disabled modules (see below). Currently disabled modules
@@ -50,6 +63,11 @@ public class SDKClientCatalogHandler implements ResourceHandler {
 	 */
 
 	private final CatalogClient client;
+	// null until the first snapshot is taken
+	private volatile CatalogSnapshot snapshot = null;
+	private final Object refreshLock = new Object();
+	private ScheduledExecutorService executor;
+	private boolean refreshRunning = false;
 
 	/** Create the handler.
 	 * @param client the catalog client to use to communicate with the catalog. No token is
@@ -81,6 +99,165 @@ public class SDKClientCatalogHandler implements ResourceHandler {
 		}
 	}
 	
+	/* An immutable index of the released modules in the catalog. */
+	private static class CatalogSnapshot {
+		
+		private final Map<String, List<String>> modToOwners;
+		private final Map<String, Set<String>> ownerToMods;
+		private final Map<String, Set<String>> modToMethods;
+		// used to avoid fetching the methods again if the release hasn't changed
+		private final Map<String, String> modToCommit;
+		
+		private CatalogSnapshot(
+				final Map<String, List<String>> modToOwners,
+				final Map<String, Set<String>> modToMethods,
+				final Map<String, String> modToCommit) {
+			this.modToOwners = Collections.unmodifiableMap(modToOwners);
+			this.modToMethods = Collections.unmodifiableMap(modToMethods);
+			this.modToCommit = Collections.unmodifiableMap(modToCommit);
+			final Map<String, Set<String>> ownerToMods = new HashMap<>();
+			for (final String mod: modToOwners.keySet()) {
+				for (final String owner: modToOwners.get(mod)) {
+					ownerToMods.computeIfAbsent(owner, k -> new HashSet<>()).add(mod);
+				}
+			}
+			this.ownerToMods = Collections.unmodifiableMap(ownerToMods);
+		}
+		
+		private boolean hasMethod(final ModMeth modmeth) {
+			final Set<String> methods = modToMethods.get(modmeth.mod);
+			return methods != null && methods.contains(modmeth.meth);
+		}
+		
+		private Set<String> getOwnedModules(final String owner) {
+			return ownerToMods.getOrDefault(owner, Collections.emptySet());
+		}
+	}
+	
+	/** Start refreshing the module snapshot in a background thread. The first refresh occurs
+	 * immediately. Until the first refresh completes, all lookups go to the catalog.
+	 * If a refresh fails, the error is logged and the previous snapshot is retained.
+	 * @param interval the interval between the end of one refresh and the start of the next.
+	 * @throws IllegalArgumentException if the snapshot is already being refreshed or the
+	 * interval is less than one second.
+	 */
+	public synchronized void startSnapshotRefresh(final Duration interval) {
+		checkNotNull(interval, "interval");
+		if (interval.getSeconds() < 1) {
+			throw new IllegalArgumentException("interval must be at least 1 second");
+		}
+		if (refreshRunning) {
+			throw new IllegalArgumentException("The snapshot is already being refreshed");
+		}
+		refreshRunning = true;
+		executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			final Thread t = new Thread(r, "catalog-snapshot");
+			t.setDaemon(true);
+			return t;
+		});
+		executor.scheduleWithFixedDelay(() -> {
+			try {
+				refreshSnapshot();
+			} catch (ResourceHandlerException | RuntimeException e) {
+				LoggerFactory.getLogger(getClass()).error(
+						"Error refreshing catalog snapshot: " + e.getMessage(), e);
+			}
+		}, 0, interval.getSeconds(), TimeUnit.SECONDS);
+	}
+	
+	/** Returns true if the snapshot is being refreshed in the background, false otherwise.
+	 * @return true if the snapshot is being refreshed.
+	 */
+	public synchronized boolean isSnapshotRefreshRunning() {
+		return refreshRunning;
+	}
+	
+	/** Stop refreshing the snapshot in the background. The current snapshot, if any, continues
+	 * to be used. Calling this method multiple times in succession has no effect.
+	 */
+	public synchronized void stopSnapshotRefresh() {
+		refreshRunning = false;
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+	
+	/** Take a new snapshot of the module owners and methods from the catalog. Only the methods
+	 * of modules with a new release since the last snapshot are fetched from the catalog.
+	 * @throws ResourceHandlerException if an error occurs contacting the catalog.
+	 */
+	public void refreshSnapshot() throws ResourceHandlerException {
+		// don't hold the instance lock while contacting the catalog
+		synchronized (refreshLock) {
+			refreshSnapshotLocked();
+		}
+	}
+	
+	private void refreshSnapshotLocked() throws ResourceHandlerException {
+		final List<BasicModuleInfo> mods;
+		try {
+			// only lists released modules
+			mods = client.listBasicModuleInfo(new ListModuleParams().withIncludeDisabled(1L));
+		} catch (IOException | JsonClientException e) {
+			throw wrapGeneralCatalogException(e);
+		}
+		final CatalogSnapshot old = snapshot;
+		final Map<String, List<String>> owners = new HashMap<>();
+		final Map<String, Set<String>> methods = new HashMap<>();
+		final Map<String, String> commits = new HashMap<>();
+		for (final BasicModuleInfo m: mods) {
+			final String name = m.getModuleName();
+			final String commit = m.getRelease() == null ? null :
+				m.getRelease().getGitCommitHash();
+			if (old != null && commit != null && commit.equals(old.modToCommit.get(name))) {
+				methods.put(name, old.modToMethods.get(name));
+			} else {
+				final Set<String> meths = getMethodsFromCatalog(name);
+				if (meths == null) {
+					continue; // unregistered or unreleased since the list call
+				}
+				methods.put(name, meths);
+			}
+			owners.put(name, m.getOwners() == null ? Collections.emptyList() :
+				Collections.unmodifiableList(new ArrayList<>(m.getOwners())));
+			if (commit != null) {
+				commits.put(name, commit);
+			}
+		}
+		snapshot = new CatalogSnapshot(owners, methods, commits);
+	}
+	
+	// returns null if the module is not registered or not released.
+	private Set<String> getMethodsFromCatalog(final String module)
+			throws ResourceHandlerException {
+		try {
+			final ModuleInfo mod = client.getModuleInfo(
+					new SelectOneModuleParams().withModuleName(module));
+			return mod.getRelease() == null ? null : getMethods(mod);
+		} catch (IOException e) {
+			throw wrapGeneralCatalogException(e);
+		} catch (JsonClientException e) {
+			if (e.getMessage().contains("module/repo is not registered")) {
+				return null;
+			} else {
+				throw wrapGeneralCatalogException(e);
+			}
+		}
+	}
+	
+	private Set<String> getMethods(final ModuleInfo mod) {
+		// wow this is some shit right here, the catalog spec is wrong
+		// https://github.com/kbase/catalog/issues/100
+		final Map<String, Object> addl = mod.getRelease().getAdditionalProperties();
+		@SuppressWarnings("unchecked")
+		final List<String> localMethods = (List<String>) addl.get("local_functions");
+		@SuppressWarnings("unchecked")
+		final List<String> narrMethods = (List<String>) addl.get("narrative_methods");
+		final Set<String> methods = new HashSet<>(localMethods);
+		methods.addAll(narrMethods);
+		return Collections.unmodifiableSet(methods);
+	}
+	
 	private ModMeth getModMeth(final ResourceID resource) throws IllegalResourceIDException {
 		final String[] split = resource.getName().split("\\.");
 		if (split.length != 2) {
@@ -114,6 +291,11 @@ public class SDKClientCatalogHandler implements ResourceHandler {
 	private List<String> getModuleOwners(final ResourceID module)
 			throws ResourceHandlerException, NoSuchResourceException, IllegalResourceIDException {
 		final ModMeth modmeth = getModMeth(module);
+		final CatalogSnapshot s = snapshot;
+		if (s != null && s.hasMethod(modmeth)) {
+			return s.modToOwners.get(modmeth.mod);
+		}
+		// the module or method may have been released since the snapshot was taken
 		final ModuleInfo mod;
 		try {
 			mod = client.getModuleInfo(new SelectOneModuleParams()
@@ -130,15 +312,7 @@ public class SDKClientCatalogHandler implements ResourceHandler {
 		if (mod.getRelease() == null) {
 			throw new NoSuchResourceException(module.getName());
 		}
-		// wow this is some shit right here, the catalog spec is wrong
-		// https://github.com/kbase/catalog/issues/100
-		final Map<String, Object> addl = mod.getRelease().getAdditionalProperties();
-		@SuppressWarnings("unchecked")
-		final List<String> localMethods = (List<String>) addl.get("local_functions");
-		@SuppressWarnings("unchecked")
-		final List<String> narrMethods = (List<String>) addl.get("narrative_methods");
-		
-		if (!localMethods.contains(modmeth.meth) && !narrMethods.contains(modmeth.meth)) {
+		if (!getMethods(mod).contains(modmeth.meth)) {
 			throw new NoSuchResourceException(module.getName());
 		}
 		return mod.getOwners();
@@ -148,6 +322,10 @@ public class SDKClientCatalogHandler implements ResourceHandler {
 	public Set<ResourceAdministrativeID> getAdministratedResources(final UserName user)
 			throws ResourceHandlerException {
 		checkNotNull(user, "user");
+		final CatalogSnapshot s = snapshot;
+		if (s != null) {
+			return toAdminIDs(s.getOwnedModules(user.getName()));
+		}
 		final List<BasicModuleInfo> mods;
 		try {
 			mods = client.listBasicModuleInfo(new ListModuleParams()
@@ -158,13 +336,18 @@ public class SDKClientCatalogHandler implements ResourceHandler {
 		} catch (IOException | JsonClientException e) {
 			throw wrapGeneralCatalogException(e);
 		}
+		return toAdminIDs(mods.stream().map(m -> m.getModuleName()).collect(Collectors.toSet()));
+	}
+	
+	private Set<ResourceAdministrativeID> toAdminIDs(final Set<String> modules)
+			throws ResourceHandlerException {
 		final Set<ResourceAdministrativeID> ret = new HashSet<>();
-		for (final BasicModuleInfo m: mods) {
+		for (final String m: modules) {
 			try {
-				ret.add(new ResourceAdministrativeID(m.getModuleName()));
+				ret.add(new ResourceAdministrativeID(m));
 			} catch (MissingParameterException | IllegalParameterException e) {
 				throw new ResourceHandlerException(
-						"Illegal module name returned from catalog: " + m.getModuleName());
+						"Illegal module name returned from catalog: " + m);
 			}
 		}
 		return ret;
@@ -8,12 +8,14 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.ini4j.Ini;
 import org.productivity.java.syslog4j.SyslogIF;
@@ -21,6 +23,7 @@ import org.productivity.java.syslog4j.SyslogIF;
 import com.google.common.base.Optional;
 
 import us.kbase.groups.core.Token;
+import us.kbase.groups.core.UserName;
 import us.kbase.groups.core.exceptions.IllegalParameterException;
 import us.kbase.groups.core.exceptions.MissingParameterException;
 import us.kbase.groups.core.fieldvalidation.CustomField;
@@ -54,6 +57,13 @@ public class GroupsConfig {
 	private static final String KEY_MONGO_DB = "mongo-db";
 	private static final String KEY_MONGO_USER = "mongo-user";
 	private static final String KEY_MONGO_PWD = "mongo-pwd";
+	private static final String KEY_MONGO_REPLICA_SET = "mongo-replica-set";
+	private static final String KEY_MONGO_READ_PREFERENCE = "mongo-list-read-preference";
+	private static final String KEY_MONGO_POOL_MIN_SIZE = "mongo-pool-min-size";
+	private static final String KEY_MONGO_POOL_MAX_SIZE = "mongo-pool-max-size";
+	private static final String KEY_MONGO_WAIT_QUEUE_TIMEOUT = "mongo-wait-queue-timeout-ms";
+	private static final String KEY_MONGO_CONNECT_TIMEOUT = "mongo-connect-timeout-ms";
+	private static final String KEY_MONGO_SOCKET_TIMEOUT = "mongo-socket-timeout-ms";
 	private static final String KEY_AUTH_URL = "auth-url";
 	private static final String KEY_WORKSPACE_URL = "workspace-url";
 	private static final String KEY_WORKSPACE_TOKEN = "workspace-admin-token";
@@ -62,6 +72,47 @@ public class GroupsConfig {
 	private static final String KEY_PREFIX_NOTIFIER_PARAMS = "notifier-param-";
 	private static final String KEY_IGNORE_IP_HEADERS = "dont-trust-x-ip-headers";
 	private static final String KEY_ALLOW_INSECURE_URLS = "allow-insecure-urls";
+	private static final String KEY_CATALOG_SNAPSHOT_REFRESH = "catalog-snapshot-refresh-sec";
+	private static final String KEY_API_THREADS = "api-threads";
+	private static final String KEY_RESOURCE_HANDLER_THREADS = "resource-handler-threads";
+	private static final String KEY_RESOURCE_HANDLER_TIMEOUT = "resource-handler-timeout-sec";
+	private static final String KEY_RESOURCE_ADMIN_CACHE_SIZE = "resource-admin-cache-size";
+	private static final String KEY_RESOURCE_ADMIN_CACHE_TTL = "resource-admin-cache-ttl-sec";
+	private static final String KEY_TOKEN_CACHE_SIZE = "token-cache-size";
+	private static final String KEY_TOKEN_CACHE_TTL = "token-cache-ttl-sec";
+	private static final String KEY_TOKEN_CACHE_INVALID_TTL = "token-cache-invalid-ttl-sec";
+	private static final String KEY_GROUP_CACHE_MODE = "group-cache-mode";
+	private static final String KEY_GROUP_CACHE_SIZE = "group-cache-size";
+	private static final String KEY_GROUP_CACHE_TTL = "group-cache-ttl-sec";
+	private static final String KEY_MAX_LIST_LIMIT = "max-list-limit";
+	private static final String KEY_REQUEST_ARCHIVE_DAYS = "request-archive-days";
+	private static final String KEY_REQUEST_TARGET_REFRESH = "request-target-refresh-sec";
+	private static final String KEY_VISIT_BUFFER_FLUSH = "visit-buffer-flush-sec";
+	private static final String KEY_VISIT_BUFFER_SIZE = "visit-buffer-size";
+	private static final String KEY_ADMIN_USERS = "admin-users";
+	
+	// the MongoDB driver defaults
+	private static final int DEFAULT_MONGO_POOL_MIN_SIZE = 0;
+	private static final int DEFAULT_MONGO_POOL_MAX_SIZE = 100;
+	private static final int DEFAULT_MONGO_WAIT_QUEUE_TIMEOUT_MS = 120000;
+	private static final int DEFAULT_MONGO_CONNECT_TIMEOUT_MS = 10000;
+	private static final int DEFAULT_MONGO_SOCKET_TIMEOUT_MS = 0;
+	private static final int DEFAULT_CATALOG_SNAPSHOT_REFRESH_SEC = 300;
+	private static final int DEFAULT_API_THREADS = 200;
+	private static final int DEFAULT_RESOURCE_HANDLER_THREADS = 20;
+	private static final int DEFAULT_RESOURCE_HANDLER_TIMEOUT_SEC = 60;
+	private static final int DEFAULT_RESOURCE_ADMIN_CACHE_SIZE = 1000;
+	private static final int DEFAULT_RESOURCE_ADMIN_CACHE_TTL_SEC = 30;
+	private static final int DEFAULT_TOKEN_CACHE_SIZE = 10000;
+	private static final int DEFAULT_TOKEN_CACHE_TTL_SEC = 300;
+	private static final int DEFAULT_TOKEN_CACHE_INVALID_TTL_SEC = 10;
+	private static final int DEFAULT_GROUP_CACHE_SIZE = 10000;
+	private static final int DEFAULT_GROUP_CACHE_TTL_SEC = 10;
+	private static final int DEFAULT_MAX_LIST_LIMIT = 1000;
+	private static final int DEFAULT_REQUEST_ARCHIVE_DAYS = 0;
+	private static final int DEFAULT_REQUEST_TARGET_REFRESH_SEC = 0;
+	private static final int DEFAULT_VISIT_BUFFER_FLUSH_SEC = 0;
+	private static final int DEFAULT_VISIT_BUFFER_SIZE = 10000;
 	
 	// field validators
 	private static final String KEY_PREFIX_FIELD = "field-";
@@ -77,10 +128,86 @@ public class GroupsConfig {
 	
 	public static final String TRUE = "true";
 	
+	/** The mode of the group cache.
+	 * @author gaprice@lbl.gov
+	 *
+	 */
+	public static enum GroupCacheMode {
+		
+		/** Groups are not cached. */
+		NONE		("none"),
+		
+		/** Groups are cached for a fixed time. Safe for multiple service instances sharing a
+		 * database, but groups may be stale for up to the cache time.
+		 */
+		TTL			("ttl"),
+		
+		/** Groups are cached until modified. Only safe when a single service instance
+		 * writes to the database.
+		 */
+		SINGLE_NODE	("single-node");
+		
+		private final String value;
+		
+		private GroupCacheMode(final String value) {
+			this.value = value;
+		}
+		
+		/** Get the value of the mode in the configuration file.
+		 * @return the configuration value.
+		 */
+		public String getValue() {
+			return value;
+		}
+	}
+	
+	/** The read preference for MongoDB reads that may tolerate slightly stale data.
+	 * @author gaprice@lbl.gov
+	 *
+	 */
+	public static enum MongoReadPreference {
+		
+		/** Read from the primary server only. */
+		PRIMARY				("primary"),
+		
+		/** Read from the primary server if available, otherwise from a secondary server. */
+		PRIMARY_PREFERRED	("primaryPreferred"),
+		
+		/** Read from secondary servers only. */
+		SECONDARY			("secondary"),
+		
+		/** Read from a secondary server if available, otherwise from the primary server. */
+		SECONDARY_PREFERRED	("secondaryPreferred"),
+		
+		/** Read from the server with the lowest network latency. */
+		NEAREST				("nearest");
+		
+		private final String value;
+		
+		private MongoReadPreference(final String value) {
+			this.value = value;
+		}
+		
+		/** Get the value of the read preference in the configuration file. The value is the
+		 * same as the MongoDB read preference mode name.
+		 * @return the configuration value.
+		 */
+		public String getValue() {
+			return value;
+		}
+	}
+	
 	private final String mongoHost;
 	private final String mongoDB;
 	private final Optional<String> mongoUser;
 	private final Optional<char[]> mongoPwd;
+	private final Optional<String> mongoReplicaSet;
+	private final MongoReadPreference mongoListReadPreference;
+	private final int mongoPoolMinSize;
+	private final int mongoPoolMaxSize;
+	private final int mongoWaitQueueTimeoutMS;
+	private final int mongoConnectTimeoutMS;
+	private final int mongoSocketTimeoutMS;
 	private final URL authURL;
 	private final URL workspaceURL;
 	private final Token workspaceAdminToken;
@@ -90,6 +217,24 @@ public class GroupsConfig {
 	private final SLF4JAutoLogger logger;
 	private final boolean ignoreIPHeaders;
 	private final boolean allowInsecureURLs;
+	private final int catalogSnapshotRefreshSec;
+	private final int apiThreads;
+	private final int resourceHandlerThreads;
+	private final int resourceHandlerTimeoutSec;
+	private final int resourceAdminCacheSize;
+	private final int resourceAdminCacheTTLSec;
+	private final int tokenCacheSize;
+	private final int tokenCacheTTLSec;
+	private final int tokenCacheInvalidTTLSec;
+	private final GroupCacheMode groupCacheMode;
+	private final int groupCacheSize;
+	private final int groupCacheTTLSec;
+	private final int maxListLimit;
+	private final int requestArchiveDays;
+	private final int requestTargetRefreshSec;
+	private final int visitBufferFlushSec;
+	private final int visitBufferSize;
+	private final Set<UserName> adminUsers;
 	private final Set<FieldValidatorConfiguration> fieldConfigs;
 	private final Set<FieldValidatorConfiguration> userFieldConfigs;
 
@@ -145,6 +290,33 @@ public class GroupsConfig {
 		catalogURL = getURL(KEY_CATALOG_URL, cfg);
 		notifierFactory = getString(KEY_NOTIFIER_FACTORY, cfg, true);
 		notifierParameters = getParams(KEY_PREFIX_NOTIFIER_PARAMS, cfg);
+		catalogSnapshotRefreshSec = getNonNegativeInt(
+				KEY_CATALOG_SNAPSHOT_REFRESH, cfg, DEFAULT_CATALOG_SNAPSHOT_REFRESH_SEC);
+		apiThreads = getPositiveInt(KEY_API_THREADS, cfg, DEFAULT_API_THREADS);
+		resourceHandlerThreads = getPositiveInt(
+				KEY_RESOURCE_HANDLER_THREADS, cfg, DEFAULT_RESOURCE_HANDLER_THREADS);
+		resourceHandlerTimeoutSec = getPositiveInt(
+				KEY_RESOURCE_HANDLER_TIMEOUT, cfg, DEFAULT_RESOURCE_HANDLER_TIMEOUT_SEC);
+		resourceAdminCacheSize = getPositiveInt(
+				KEY_RESOURCE_ADMIN_CACHE_SIZE, cfg, DEFAULT_RESOURCE_ADMIN_CACHE_SIZE);
+		resourceAdminCacheTTLSec = getNonNegativeInt(
+				KEY_RESOURCE_ADMIN_CACHE_TTL, cfg, DEFAULT_RESOURCE_ADMIN_CACHE_TTL_SEC);
+		tokenCacheSize = getPositiveInt(KEY_TOKEN_CACHE_SIZE, cfg, DEFAULT_TOKEN_CACHE_SIZE);
+		tokenCacheTTLSec = getPositiveInt(KEY_TOKEN_CACHE_TTL, cfg, DEFAULT_TOKEN_CACHE_TTL_SEC);
+		tokenCacheInvalidTTLSec = getPositiveInt(
+				KEY_TOKEN_CACHE_INVALID_TTL, cfg, DEFAULT_TOKEN_CACHE_INVALID_TTL_SEC);
+		groupCacheMode = getGroupCacheMode(cfg);
+		groupCacheSize = getPositiveInt(KEY_GROUP_CACHE_SIZE, cfg, DEFAULT_GROUP_CACHE_SIZE);
+		groupCacheTTLSec = getPositiveInt(KEY_GROUP_CACHE_TTL, cfg, DEFAULT_GROUP_CACHE_TTL_SEC);
+		maxListLimit = getPositiveInt(KEY_MAX_LIST_LIMIT, cfg, DEFAULT_MAX_LIST_LIMIT);
+		requestArchiveDays = getNonNegativeInt(
+				KEY_REQUEST_ARCHIVE_DAYS, cfg, DEFAULT_REQUEST_ARCHIVE_DAYS);
+		requestTargetRefreshSec = getNonNegativeInt(
+				KEY_REQUEST_TARGET_REFRESH, cfg, DEFAULT_REQUEST_TARGET_REFRESH_SEC);
+		visitBufferFlushSec = getNonNegativeInt(
+				KEY_VISIT_BUFFER_FLUSH, cfg, DEFAULT_VISIT_BUFFER_FLUSH_SEC);
+		visitBufferSize = getPositiveInt(KEY_VISIT_BUFFER_SIZE, cfg, DEFAULT_VISIT_BUFFER_SIZE);
+		adminUsers = getUserNames(KEY_ADMIN_USERS, cfg);
 		mongoHost = getString(KEY_MONGO_HOST, cfg, true);
 		mongoDB = getString(KEY_MONGO_DB, cfg, true);
 		mongoUser = Optional.fromNullable(getString(KEY_MONGO_USER, cfg));
@@ -159,6 +331,24 @@ public class GroupsConfig {
 		mongoPwd = mongop.isPresent() ?
 				Optional.of(mongop.get().toCharArray()) : Optional.absent();
 		mongop = null; //GC
+		mongoReplicaSet = Optional.fromNullable(getString(KEY_MONGO_REPLICA_SET, cfg));
+		mongoListReadPreference = getMongoReadPreference(cfg);
+		mongoPoolMinSize = getNonNegativeInt(
+				KEY_MONGO_POOL_MIN_SIZE, cfg, DEFAULT_MONGO_POOL_MIN_SIZE);
+		mongoPoolMaxSize = getPositiveInt(
+				KEY_MONGO_POOL_MAX_SIZE, cfg, DEFAULT_MONGO_POOL_MAX_SIZE);
+		if (mongoPoolMinSize > mongoPoolMaxSize) {
+			throw new GroupsConfigurationException(String.format(
+					"Parameter %s must be less than or equal to parameter %s in section %s " +
+					"of config file %s", KEY_MONGO_POOL_MIN_SIZE, KEY_MONGO_POOL_MAX_SIZE,
+					CFG_LOC, cfg.get(TEMP_KEY_CFG_FILE)));
+		}
+		mongoWaitQueueTimeoutMS = getNonNegativeInt(
+				KEY_MONGO_WAIT_QUEUE_TIMEOUT, cfg, DEFAULT_MONGO_WAIT_QUEUE_TIMEOUT_MS);
+		mongoConnectTimeoutMS = getNonNegativeInt(
+				KEY_MONGO_CONNECT_TIMEOUT, cfg, DEFAULT_MONGO_CONNECT_TIMEOUT_MS);
+		mongoSocketTimeoutMS = getNonNegativeInt(
+				KEY_MONGO_SOCKET_TIMEOUT, cfg, DEFAULT_MONGO_SOCKET_TIMEOUT_MS);
 		final Fields fields = getFields(cfg);
 		fieldConfigs = getFieldConfigs(cfg, fields.fields, KEY_PREFIX_FIELD);
 		userFieldConfigs = getFieldConfigs(cfg, fields.userFields, KEY_PREFIX_USER_FIELD);
@@ -315,6 +505,110 @@ public class GroupsConfig {
 		}
 	}
 	
+	// returns an empty set if the parameter is not present
+	private Set<UserName> getUserNames(final String paramName, final Map<String, String> cfg)
+			throws GroupsConfigurationException {
+		final String s = getString(paramName, cfg);
+		final Set<UserName> ret = new HashSet<>();
+		if (s == null) {
+			return ret;
+		}
+		for (final String name: s.split(",")) {
+			if (!name.trim().isEmpty()) {
+				try {
+					ret.add(new UserName(name.trim()));
+				} catch (MissingParameterException | IllegalParameterException e) {
+					throw new GroupsConfigurationException(String.format(
+							"Illegal user name %s in parameter %s in section %s of config " +
+							"file %s: %s",
+							name.trim(), paramName, CFG_LOC, cfg.get(TEMP_KEY_CFG_FILE),
+							e.getMessage()), e);
+				}
+			}
+		}
+		return ret;
+	}
+	
+	// returns the default value if the parameter is not present
+	private int getPositiveInt(
+			final String paramName,
+			final Map<String, String> config,
+			final int defaultValue)
+			throws GroupsConfigurationException {
+		return getInt(paramName, config, defaultValue, 1, "greater than 0");
+	}
+	
+	// returns the default value if the parameter is not present
+	private int getNonNegativeInt(
+			final String paramName,
+			final Map<String, String> config,
+			final int defaultValue)
+			throws GroupsConfigurationException {
+		return getInt(paramName, config, defaultValue, 0, "greater than or equal to 0");
+	}
+	
+	private int getInt(
+			final String paramName,
+			final Map<String, String> config,
+			final int defaultValue,
+			final int minimum,
+			final String requirement)
+			throws GroupsConfigurationException {
+		final String s = getString(paramName, config);
+		if (s == null) {
+			return defaultValue;
+		}
+		Integer i = null;
+		try {
+			i = Integer.parseInt(s);
+		} catch (NumberFormatException e) {
+			// handled below
+		}
+		if (i == null || i < minimum) {
+			throw new GroupsConfigurationException(String.format(
+					"Value %s of parameter %s in section %s of config " +
+					"file %s is not an integer %s",
+					s, paramName, CFG_LOC, config.get(TEMP_KEY_CFG_FILE), requirement));
+		}
+		return i;
+	}
+	
+	private MongoReadPreference getMongoReadPreference(final Map<String, String> cfg)
+			throws GroupsConfigurationException {
+		final String pref = getString(KEY_MONGO_READ_PREFERENCE, cfg);
+		if (pref == null) {
+			return MongoReadPreference.PRIMARY;
+		}
+		for (final MongoReadPreference p: MongoReadPreference.values()) {
+			if (p.getValue().equals(pref)) {
+				return p;
+			}
+		}
+		throw new GroupsConfigurationException(String.format(
+				"Value %s of parameter %s in section %s of config file %s is not one of %s",
+				pref, KEY_MONGO_READ_PREFERENCE, CFG_LOC, cfg.get(TEMP_KEY_CFG_FILE),
+				Arrays.stream(MongoReadPreference.values()).map(p -> p.getValue())
+						.collect(Collectors.joining(", "))));
+	}
+	
+	private GroupCacheMode getGroupCacheMode(final Map<String, String> cfg)
+			throws GroupsConfigurationException {
+		final String mode = getString(KEY_GROUP_CACHE_MODE, cfg);
+		if (mode == null) {
+			return GroupCacheMode.NONE;
+		}
+		for (final GroupCacheMode m: GroupCacheMode.values()) {
+			if (m.getValue().equals(mode)) {
+				return m;
+			}
+		}
+		throw new GroupsConfigurationException(String.format(
+				"Value %s of parameter %s in section %s of config file %s is not one of %s",
+				mode, KEY_GROUP_CACHE_MODE, CFG_LOC, cfg.get(TEMP_KEY_CFG_FILE),
+				Arrays.stream(GroupCacheMode.values()).map(m -> m.getValue())
+						.collect(Collectors.joining(", "))));
+	}
+	
 	private URL getURL(final String key, final Map<String, String> cfg)
 			throws GroupsConfigurationException {
 		final String url = getString(key, cfg, true);
@@ -371,6 +665,16 @@ public class GroupsConfig {
 		public String getCallID() {
 			return null;
 		}
+		
+		@Override
+		public String getCallMethod() {
+			return null;
+		}
+		
+		@Override
+		public String getCallIPAddress() {
+			return null;
+		}
 	}
 	
 	// this is just too much of a pain to test, and testing manually is trivial.
@@ -410,9 +714,20 @@ public class GroupsConfig {
 		public String getCallID() {
 			return JsonServerSyslog.getCurrentRpcInfo().getId();
 		}
+		
+		@Override
+		public String getCallMethod() {
+			return JsonServerSyslog.getCurrentRpcInfo().getMethod();
+		}
+		
+		@Override
+		public String getCallIPAddress() {
+			return JsonServerSyslog.getCurrentRpcInfo().getIp();
+		}
 	}
 	
-	/** Get the MongoDB host, including the port if any.
+	/** Get the MongoDB host, including the port if any. For a replica set or sharded cluster,
+	 * the host may be a comma separated list of seed hosts.
 	 * @return the host.
 	 */
 	public String getMongoHost() {
@@ -440,6 +755,58 @@ public class GroupsConfig {
 		return mongoPwd;
 	}
 	
+	/** Get the name of the MongoDB replica set, if any. If provided, the client only connects
+	 * to members of the replica set.
+	 * @return the replica set name.
+	 */
+	public Optional<String> getMongoReplicaSet() {
+		return mongoReplicaSet;
+	}
+	
+	/** Get the read preference for group and request listings and group searches. All other
+	 * reads and all writes use the primary MongoDB server.
+	 * @return the read preference.
+	 */
+	public MongoReadPreference getMongoListReadPreference() {
+		return mongoListReadPreference;
+	}
+	
+	/** Get the minimum number of connections in the MongoDB connection pool for each server.
+	 * @return the minimum pool size.
+	 */
+	public int getMongoPoolMinSize() {
+		return mongoPoolMinSize;
+	}
+	
+	/** Get the maximum number of connections in the MongoDB connection pool for each server.
+	 * @return the maximum pool size.
+	 */
+	public int getMongoPoolMaxSize() {
+		return mongoPoolMaxSize;
+	}
+	
+	/** Get the maximum time, in milliseconds, to wait for a connection from the MongoDB
+	 * connection pool. 0 means do not wait.
+	 * @return the wait queue timeout in milliseconds.
+	 */
+	public int getMongoWaitQueueTimeoutMS() {
+		return mongoWaitQueueTimeoutMS;
+	}
+	
+	/** Get the MongoDB connection timeout in milliseconds. 0 means no timeout.
+	 * @return the connection timeout in milliseconds.
+	 */
+	public int getMongoConnectTimeoutMS() {
+		return mongoConnectTimeoutMS;
+	}
+	
+	/** Get the MongoDB socket read timeout in milliseconds. 0 means no timeout.
+	 * @return the socket timeout in milliseconds.
+	 */
+	public int getMongoSocketTimeoutMS() {
+		return mongoSocketTimeoutMS;
+	}
+	
 	/** Get the root url of the KBase authentication service.
 	 * @return the url.
 	 */
@@ -505,6 +872,147 @@ public class GroupsConfig {
 		return ignoreIPHeaders;
 	}
 	
+	/** Get the interval, in seconds, between refreshes of the in memory snapshot of the catalog
+	 * module owners and methods. 0 means no snapshot is kept and the catalog is contacted
+	 * for every lookup.
+	 * @return the refresh interval in seconds.
+	 */
+	public int getCatalogSnapshotRefreshSec() {
+		return catalogSnapshotRefreshSec;
+	}
+	
+	/** Get the maximum number of threads that run API calls. Not used when virtual threads
+	 * are available, in which case each API call runs in its own virtual thread.
+	 * @return the number of threads.
+	 */
+	public int getAPIThreads() {
+		return apiThreads;
+	}
+	
+	/** Get the maximum number of threads to use when retrieving information from the resource
+	 * handlers.
+	 * @return the number of threads.
+	 */
+	public int getResourceHandlerThreads() {
+		return resourceHandlerThreads;
+	}
+	
+	/** Get the maximum time, in seconds, to wait for a resource handler to return
+	 * information about a group's resources.
+	 * @return the timeout in seconds.
+	 */
+	public int getResourceHandlerTimeoutSec() {
+		return resourceHandlerTimeoutSec;
+	}
+	
+	/** Get the maximum number of users for which to cache the set of resources each user
+	 * administrates, per resource type.
+	 * @return the cache size.
+	 */
+	public int getResourceAdminCacheSize() {
+		return resourceAdminCacheSize;
+	}
+	
+	/** Get the time, in seconds, to cache the set of resources a user administrates. 0 means
+	 * the sets are not cached.
+	 * @return the time to live in seconds.
+	 */
+	public int getResourceAdminCacheTTLSec() {
+		return resourceAdminCacheTTLSec;
+	}
+	
+	/** Get the maximum number of tokens to hold in the token cache.
+	 * @return the cache size.
+	 */
+	public int getTokenCacheSize() {
+		return tokenCacheSize;
+	}
+	
+	/** Get the time, in seconds, that a valid token is held in the token cache.
+	 * @return the time to live in seconds.
+	 */
+	public int getTokenCacheTTLSec() {
+		return tokenCacheTTLSec;
+	}
+	
+	/** Get the time, in seconds, that an invalid token is held in the token cache.
+	 * @return the time to live in seconds.
+	 */
+	public int getTokenCacheInvalidTTLSec() {
+		return tokenCacheInvalidTTLSec;
+	}
+	
+	/** Get the mode of the group cache.
+	 * @return the cache mode.
+	 */
+	public GroupCacheMode getGroupCacheMode() {
+		return groupCacheMode;
+	}
+	
+	/** Get the maximum number of groups to hold in the group cache.
+	 * @return the cache size.
+	 */
+	public int getGroupCacheSize() {
+		return groupCacheSize;
+	}
+	
+	/** Get the time, in seconds, that a group is held in the group cache when the cache mode
+	 * is {@link GroupCacheMode#TTL}.
+	 * @return the time to live in seconds.
+	 */
+	public int getGroupCacheTTLSec() {
+		return groupCacheTTLSec;
+	}
+	
+	/** Get the maximum number of items a user may request in a single group or request listing.
+	 * @return the maximum list limit.
+	 */
+	public int getMaxListLimit() {
+		return maxListLimit;
+	}
+	
+	/** Get the number of days after a request is closed that it is moved to the request
+	 * archive. 0 means requests are never archived.
+	 * @return the number of days before closed requests are archived.
+	 */
+	public int getRequestArchiveDays() {
+		return requestArchiveDays;
+	}
+	
+	/** Get the interval between refreshes of the users targeted by open invitations to
+	 * resources. If greater than 0, the requests targeting a user are found from the targets
+	 * recorded on the requests rather than from the resources the user administrates. 0 means
+	 * the recorded targets are not used.
+	 * @return the request target refresh interval in seconds.
+	 */
+	public int getRequestTargetRefreshSec() {
+		return requestTargetRefreshSec;
+	}
+	
+	/** Get the maximum time, in seconds, that users' last visit dates for groups are buffered
+	 * in memory before they are written to the database. 0 means the dates are not buffered.
+	 * @return the visit buffer flush interval in seconds.
+	 */
+	public int getVisitBufferFlushSec() {
+		return visitBufferFlushSec;
+	}
+	
+	/** Get the maximum number of group members for which last visit dates are buffered.
+	 * The buffer is written to the database when full.
+	 * @return the visit buffer size.
+	 */
+	public int getVisitBufferSize() {
+		return visitBufferSize;
+	}
+	
+	/** Get the users that are administrators of the service. Administrators can access
+	 * administration endpoints such as the service metrics.
+	 * @return the administrators.
+	 */
+	public Set<UserName> getAdminUsers() {
+		return Collections.unmodifiableSet(adminUsers);
+	}
+	
 	/** Get the configurations for the field validators.
 	 * @return the configurations.
 	 */
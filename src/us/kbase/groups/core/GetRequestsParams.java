@@ -7,6 +7,7 @@ import java.util.Optional;
 
 import us.kbase.groups.core.request.GroupRequest;
 import us.kbase.groups.core.request.GroupRequestStatusType;
+import us.kbase.groups.core.request.RequestID;
 import us.kbase.groups.core.resource.ResourceID;
 import us.kbase.groups.core.resource.ResourceType;
 
@@ -19,20 +20,26 @@ public class GetRequestsParams {
 	private final boolean includeClosed;
 	private final boolean sortAscending;
 	private final Optional<Instant> excludeUpTo;
+	private final Optional<RequestID> excludeUpToID;
 	private final Optional<ResourceType> resourceType;
 	private final Optional<ResourceID> resourceID;
+	private final Optional<Integer> limit;
 	
 	private GetRequestsParams(
 			final boolean includeClosed,
 			final boolean sortAscending,
 			final Optional<Instant> excludeUpTo,
+			final Optional<RequestID> excludeUpToID,
 			final Optional<ResourceType> resourceType,
-			final Optional<ResourceID> resourceID) {
+			final Optional<ResourceID> resourceID,
+			final Optional<Integer> limit) {
 		this.includeClosed = includeClosed;
 		this.sortAscending = sortAscending;
 		this.excludeUpTo = excludeUpTo;
+		this.excludeUpToID = excludeUpToID;
 		this.resourceType = resourceType;
 		this.resourceID = resourceID;
+		this.limit = limit;
 	}
 
 	/** Get whether closed requests should be included in the list. Any request with a status type
@@ -59,6 +66,17 @@ public class GetRequestsParams {
 		return excludeUpTo;
 	}
 	
+	/** Get a request ID that, in combination with {@link #getExcludeUpTo()}, determines where
+	 * a list of requests should begin. Requests are sorted by modification date and then
+	 * request ID, and so if present, requests modified at exactly the exclusion date are
+	 * included if their ID is strictly greater than this ID for ascending sorts, and vice
+	 * versa for descending sorts. If present, {@link #getExcludeUpTo()} is always present.
+	 * @return the exclusion request ID.
+	 */
+	public Optional<RequestID> getExcludeUpToID() {
+		return excludeUpToID;
+	}
+	
 	/** Get the resource type that must limit the list of requests. If the type is present,
 	 * {@link #getResourceID()} will always return a resource ID. The combination of the two
 	 * must limit the list of requests.
@@ -76,13 +94,23 @@ public class GetRequestsParams {
 	public Optional<ResourceID> getResourceID() {
 		return resourceID;
 	}
+	
+	/** Get the maximum number of requests to return. If absent, the storage system default
+	 * applies.
+	 * @return the limit.
+	 */
+	public Optional<Integer> getLimit() {
+		return limit;
+	}
 
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + ((excludeUpTo == null) ? 0 : excludeUpTo.hashCode());
+		result = prime * result + ((excludeUpToID == null) ? 0 : excludeUpToID.hashCode());
 		result = prime * result + (includeClosed ? 1231 : 1237);
+		result = prime * result + ((limit == null) ? 0 : limit.hashCode());
 		result = prime * result + ((resourceID == null) ? 0 : resourceID.hashCode());
 		result = prime * result + ((resourceType == null) ? 0 : resourceType.hashCode());
 		result = prime * result + (sortAscending ? 1231 : 1237);
@@ -108,9 +136,23 @@ public class GetRequestsParams {
 		} else if (!excludeUpTo.equals(other.excludeUpTo)) {
 			return false;
 		}
+		if (excludeUpToID == null) {
+			if (other.excludeUpToID != null) {
+				return false;
+			}
+		} else if (!excludeUpToID.equals(other.excludeUpToID)) {
+			return false;
+		}
 		if (includeClosed != other.includeClosed) {
 			return false;
 		}
+		if (limit == null) {
+			if (other.limit != null) {
+				return false;
+			}
+		} else if (!limit.equals(other.limit)) {
+			return false;
+		}
 		if (resourceID == null) {
 			if (other.resourceID != null) {
 				return false;
@@ -147,8 +189,10 @@ public class GetRequestsParams {
 		private boolean includeClosed = false;
 		private boolean sortAscending = true;
 		private Optional<Instant> excludeUpTo = Optional.empty();
+		private Optional<RequestID> excludeUpToID = Optional.empty();
 		private Optional<ResourceType> resourceType = Optional.empty();
 		private Optional<ResourceID> resourceID = Optional.empty();
+		private Optional<Integer> limit = Optional.empty();
 		
 		private Builder() {}
 		
@@ -185,11 +229,29 @@ public class GetRequestsParams {
 		 * ascending, the request list should begin at a date strictly later than this date, and
 		 * vice versa for descending sorts.
 		 * If null, no date is set.
+		 * Removes any previously set exclusion request ID.
 		 * @param excludeUpTo the exclusion date.
 		 * @return this builder.
 		 */
 		public Builder withNullableExcludeUpTo(final Instant excludeUpTo) {
 			this.excludeUpTo = Optional.ofNullable(excludeUpTo);
+			this.excludeUpToID = Optional.empty();
+			return this;
+		}
+		
+		/** Set the full sort key of a request that determines where a list of requests should
+		 * begin. Requests are sorted by modification date and then request ID. If the sort is
+		 * ascending, the request list should begin at the first request that sorts strictly
+		 * after the key, and vice versa for descending sorts. Unlike
+		 * {@link #withNullableExcludeUpTo(Instant)}, requests modified at the same time as the
+		 * request with the key are neither skipped nor repeated.
+		 * @param excludeUpTo the modification date of the request.
+		 * @param excludeUpToID the ID of the request.
+		 * @return this builder.
+		 */
+		public Builder withExcludeUpTo(final Instant excludeUpTo, final RequestID excludeUpToID) {
+			this.excludeUpTo = Optional.of(requireNonNull(excludeUpTo, "excludeUpTo"));
+			this.excludeUpToID = Optional.of(requireNonNull(excludeUpToID, "excludeUpToID"));
 			return this;
 		}
 		
@@ -205,12 +267,25 @@ public class GetRequestsParams {
 			return this;
 		}
 		
+		/** Set the maximum number of requests to return.
+		 * If null, any previously set limit is removed and the storage system default applies.
+		 * @param limit the limit, which must be greater than 0.
+		 * @return this builder.
+		 */
+		public Builder withNullableLimit(final Integer limit) {
+			if (limit != null && limit < 1) {
+				throw new IllegalArgumentException("limit must be > 0");
+			}
+			this.limit = Optional.ofNullable(limit);
+			return this;
+		}
+		
 		/** Build the {@link GetRequestsParams}.
 		 * @return the parameters.
 		 */
 		public GetRequestsParams build() {
 			return new GetRequestsParams(includeClosed, sortAscending, excludeUpTo,
-					resourceType, resourceID);
+					excludeUpToID, resourceType, resourceID, limit);
 		}
 	}
 }
@@ -0,0 +1,349 @@
+package us.kbase.groups.core;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import us.kbase.groups.core.Group.Role;
+import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
+import us.kbase.groups.core.resource.ResourceType;
+
+/** A summary of a {@link Group} from the point of view of a particular user, containing only
+ * the information required for a minimal {@link GroupView}. Member lists and resources are
+ * reduced to counts, and only the user's own membership information is included.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class GroupSummary {
+
+	private final GroupID groupID;
+	private final GroupName groupName;
+	private final UserName owner;
+	private final boolean isPrivate;
+	private final CreateAndModTimes times;
+	private final Map<NumberedCustomField, String> customFields;
+	private final int memberCount;
+	private final Map<ResourceType, Integer> resourceCounts;
+	private final Role role;
+	private final Optional<Instant> lastVisit;
+
+	private GroupSummary(
+			final GroupID groupID,
+			final GroupName groupName,
+			final UserName owner,
+			final boolean isPrivate,
+			final CreateAndModTimes times,
+			final Map<NumberedCustomField, String> customFields,
+			final int memberCount,
+			final Map<ResourceType, Integer> resourceCounts,
+			final Role role,
+			final Optional<Instant> lastVisit) {
+		this.groupID = groupID;
+		this.groupName = groupName;
+		this.owner = owner;
+		this.isPrivate = isPrivate;
+		this.times = times;
+		this.customFields = Collections.unmodifiableMap(customFields);
+		this.memberCount = memberCount;
+		this.resourceCounts = Collections.unmodifiableMap(resourceCounts);
+		this.role = role;
+		this.lastVisit = lastVisit;
+	}
+
+	/** Get the group ID.
+	 * @return the ID.
+	 */
+	public GroupID getGroupID() {
+		return groupID;
+	}
+
+	/** Get the group name.
+	 * @return the name.
+	 */
+	public GroupName getGroupName() {
+		return groupName;
+	}
+
+	/** Get the owner of the group.
+	 * @return the owner.
+	 */
+	public UserName getOwner() {
+		return owner;
+	}
+
+	/** Get whether the group is private.
+	 * @return true if the group is private.
+	 */
+	public boolean isPrivate() {
+		return isPrivate;
+	}
+
+	/** Get the creation date of the group.
+	 * @return the creation date.
+	 */
+	public Instant getCreationDate() {
+		return times.getCreationTime();
+	}
+
+	/** Get the modification date of the group.
+	 * @return the modification date.
+	 */
+	public Instant getModificationDate() {
+		return times.getModificationTime();
+	}
+
+	/** Get the custom fields included in the summary. This may be a subset of the group's
+	 * custom fields.
+	 * @return the custom fields.
+	 */
+	public Map<NumberedCustomField, String> getCustomFields() {
+		return customFields;
+	}
+
+	/** Get the number of members in the group, including the owner and administrators.
+	 * @return the member count.
+	 */
+	public int getMemberCount() {
+		return memberCount;
+	}
+
+	/** Get the count of each resource type contained in the group.
+	 * @return the resource counts per type.
+	 */
+	public Map<ResourceType, Integer> getResourceCounts() {
+		return resourceCounts;
+	}
+
+	/** Get the role within the group of the user for whom the summary was constructed.
+	 * @return the user's role.
+	 */
+	public Role getRole() {
+		return role;
+	}
+
+	/** Get the date the user for whom the summary was constructed last visited the group.
+	 * Always {@link Optional#empty()} if the user is not a member of the group.
+	 * @return the last visit date.
+	 */
+	public Optional<Instant> getLastVisit() {
+		return lastVisit;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((customFields == null) ? 0 : customFields.hashCode());
+		result = prime * result + ((groupID == null) ? 0 : groupID.hashCode());
+		result = prime * result + ((groupName == null) ? 0 : groupName.hashCode());
+		result = prime * result + (isPrivate ? 1231 : 1237);
+		result = prime * result + ((lastVisit == null) ? 0 : lastVisit.hashCode());
+		result = prime * result + memberCount;
+		result = prime * result + ((owner == null) ? 0 : owner.hashCode());
+		result = prime * result + ((resourceCounts == null) ? 0 : resourceCounts.hashCode());
+		result = prime * result + ((role == null) ? 0 : role.hashCode());
+		result = prime * result + ((times == null) ? 0 : times.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		GroupSummary other = (GroupSummary) obj;
+		if (customFields == null) {
+			if (other.customFields != null) {
+				return false;
+			}
+		} else if (!customFields.equals(other.customFields)) {
+			return false;
+		}
+		if (groupID == null) {
+			if (other.groupID != null) {
+				return false;
+			}
+		} else if (!groupID.equals(other.groupID)) {
+			return false;
+		}
+		if (groupName == null) {
+			if (other.groupName != null) {
+				return false;
+			}
+		} else if (!groupName.equals(other.groupName)) {
+			return false;
+		}
+		if (isPrivate != other.isPrivate) {
+			return false;
+		}
+		if (lastVisit == null) {
+			if (other.lastVisit != null) {
+				return false;
+			}
+		} else if (!lastVisit.equals(other.lastVisit)) {
+			return false;
+		}
+		if (memberCount != other.memberCount) {
+			return false;
+		}
+		if (owner == null) {
+			if (other.owner != null) {
+				return false;
+			}
+		} else if (!owner.equals(other.owner)) {
+			return false;
+		}
+		if (resourceCounts == null) {
+			if (other.resourceCounts != null) {
+				return false;
+			}
+		} else if (!resourceCounts.equals(other.resourceCounts)) {
+			return false;
+		}
+		if (role != other.role) {
+			return false;
+		}
+		if (times == null) {
+			if (other.times != null) {
+				return false;
+			}
+		} else if (!times.equals(other.times)) {
+			return false;
+		}
+		return true;
+	}
+
+	/** Get a builder for a {@link GroupSummary}.
+	 * @param groupID the ID of the group.
+	 * @param groupName the name of the group.
+	 * @param owner the owner of the group.
+	 * @param times the creation and modification times of the group.
+	 * @return a new builder.
+	 */
+	public static Builder getBuilder(
+			final GroupID groupID,
+			final GroupName groupName,
+			final UserName owner,
+			final CreateAndModTimes times) {
+		return new Builder(groupID, groupName, owner, times);
+	}
+
+	/** A builder for a {@link GroupSummary}.
+	 * @author gaprice@lbl.gov
+	 *
+	 */
+	public static class Builder {
+
+		private final GroupID groupID;
+		private final GroupName groupName;
+		private final UserName owner;
+		private final CreateAndModTimes times;
+		private boolean isPrivate = false;
+		private final Map<NumberedCustomField, String> customFields = new HashMap<>();
+		private int memberCount = 1;
+		private final Map<ResourceType, Integer> resourceCounts = new HashMap<>();
+		private Role role = Role.NONE;
+		private Optional<Instant> lastVisit = Optional.empty();
+
+		private Builder(
+				final GroupID groupID,
+				final GroupName groupName,
+				final UserName owner,
+				final CreateAndModTimes times) {
+			this.groupID = requireNonNull(groupID, "groupID");
+			this.groupName = requireNonNull(groupName, "groupName");
+			this.owner = requireNonNull(owner, "owner");
+			this.times = requireNonNull(times, "times");
+		}
+
+		/** Set whether the group is private. The default is false.
+		 * @param isPrivate true to set the group as private.
+		 * @return this builder.
+		 */
+		public Builder withIsPrivate(final boolean isPrivate) {
+			this.isPrivate = isPrivate;
+			return this;
+		}
+
+		/** Add a custom field to the summary.
+		 * @param field the field.
+		 * @param value the value.
+		 * @return this builder.
+		 */
+		public Builder withCustomField(final NumberedCustomField field, final String value) {
+			requireNonNull(field, "field");
+			requireNonNull(value, "value");
+			customFields.put(field, value);
+			return this;
+		}
+
+		/** Set the number of members in the group, including the owner. The default is 1.
+		 * @param memberCount the number of members.
+		 * @return this builder.
+		 */
+		public Builder withMemberCount(final int memberCount) {
+			if (memberCount < 1) {
+				throw new IllegalArgumentException("memberCount must be > 0");
+			}
+			this.memberCount = memberCount;
+			return this;
+		}
+
+		/** Set the number of resources of a particular type in the group. Types with a count of
+		 * 0 are ignored.
+		 * @param type the resource type.
+		 * @param count the number of resources of the type.
+		 * @return this builder.
+		 */
+		public Builder withResourceCount(final ResourceType type, final int count) {
+			requireNonNull(type, "type");
+			if (count < 0) {
+				throw new IllegalArgumentException("count must be >= 0");
+			}
+			if (count > 0) {
+				resourceCounts.put(type, count);
+			}
+			return this;
+		}
+
+		/** Set the role of the user for whom the summary is being constructed. The default is
+		 * {@link Role#NONE}.
+		 * @param role the user's role.
+		 * @return this builder.
+		 */
+		public Builder withRole(final Role role) {
+			this.role = requireNonNull(role, "role");
+			return this;
+		}
+
+		/** Set the date the user for whom the summary is being constructed last visited the
+		 * group. A null value removes any previously set date.
+		 * The date is discarded on build if the user's role is {@link Role#NONE}.
+		 * @param lastVisit the date of the last visit.
+		 * @return this builder.
+		 */
+		public Builder withNullableLastVisit(final Instant lastVisit) {
+			this.lastVisit = Optional.ofNullable(lastVisit);
+			return this;
+		}
+
+		/** Build the {@link GroupSummary}.
+		 * @return the summary.
+		 */
+		public GroupSummary build() {
+			return new GroupSummary(groupID, groupName, owner, isPrivate, times, customFields,
+					memberCount, resourceCounts, role,
+					role.equals(Role.NONE) ? Optional.empty() : lastVisit);
+		}
+	}
+}
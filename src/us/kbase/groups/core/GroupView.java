@@ -241,6 +241,43 @@ public class GroupView {
 		}
 	}
 	
+	private GroupView(
+			final GroupSummary summary,
+			final Function<NumberedCustomField, Boolean> isPublicField,
+			final Function<NumberedCustomField, Boolean> isMinimalViewField) {
+		// always a minimal view with no resource information.
+		this.isStandardView = false;
+		this.isOverridePrivateView = false;
+		this.role = summary.getRole();
+		this.isPrivate = summary.isPrivate();
+		this.groupID = summary.getGroupID();
+		this.resourceInfo = Collections.emptyMap();
+		this.resourceJoinDate = Collections.emptyMap();
+		this.members = Collections.emptySet();
+		this.admins = Collections.emptySet();
+		this.isPrivateMemberList = Optional.empty();
+		if (isPrivateView()) {
+			this.groupName = Optional.empty();
+			this.owner = Optional.empty();
+			this.creationDate = Optional.empty();
+			this.modificationDate = Optional.empty();
+			this.customFields = Collections.emptyMap();
+			this.memberCount = Optional.empty();
+			this.resourceCount = Collections.emptyMap();
+			this.lastVisit = Optional.empty();
+		} else {
+			this.groupName = Optional.of(summary.getGroupName());
+			this.owner = Optional.of(summary.getOwner());
+			this.creationDate = Optional.of(summary.getCreationDate());
+			this.modificationDate = Optional.of(summary.getModificationDate());
+			this.customFields = getCustomFields(
+					summary.getCustomFields(), isPublicField, isMinimalViewField);
+			this.memberCount = Optional.of(summary.getMemberCount());
+			this.resourceCount = summary.getResourceCounts();
+			this.lastVisit = summary.getLastVisit();
+		}
+	}
+	
 	// user fields are only visible in standard views.
 	private GroupUserView filterUserFields(
 			final GroupUser member,
@@ -625,6 +662,67 @@ public class GroupView {
 		return new Builder(group, user);
 	}
 	
+	/** Get a builder for a minimal {@link GroupView} constructed from a {@link GroupSummary}.
+	 * The view is equivalent to a minimal view built from the full group via
+	 * {@link #getBuilder(Group, UserName)} for the user associated with the summary, with no
+	 * resource information.
+	 * @param summary the group summary for the view.
+	 * @return a new builder.
+	 */
+	public static MinimalBuilder getMinimalBuilder(final GroupSummary summary) {
+		return new MinimalBuilder(summary);
+	}
+	
+	/** A builder for minimal {@link GroupView}s constructed from {@link GroupSummary}s.
+	 * @author gaprice@lbl.gov
+	 *
+	 */
+	public static class MinimalBuilder {
+		
+		private final GroupSummary summary;
+		private Function<NumberedCustomField, Boolean> isPublicField = f -> false;
+		private Function<NumberedCustomField, Boolean> isMinimalViewField = f -> false;
+		
+		private MinimalBuilder(final GroupSummary summary) {
+			this.summary = requireNonNull(summary, "summary");
+		}
+		
+		/** Add a function that will be used to determine which fields are public fields and
+		 * therefore viewable by all users, not just group members.
+		 * By default, no fields are considered to be public fields.
+		 * The function must not return null.
+		 * @param isPublic a function that determines whether a custom field is public (true)
+		 * or not (false).
+		 * @return this builder.
+		 */
+		public MinimalBuilder withPublicFieldDeterminer(
+				final Function<NumberedCustomField, Boolean> isPublic) {
+			this.isPublicField = requireNonNull(isPublic, "isPublic");
+			return this;
+		}
+		
+		/** Add a function that will be used to determine which fields are viewable in the
+		 * minimal view.
+		 * By default, no fields are viewable.
+		 * The function must not return null.
+		 * @param isMinimalView a function that determines whether a custom field is viewable
+		 * in a minimal view (true) or not (false).
+		 * @return this builder.
+		 */
+		public MinimalBuilder withMinimalViewFieldDeterminer(
+				final Function<NumberedCustomField, Boolean> isMinimalView) {
+			this.isMinimalViewField = requireNonNull(isMinimalView, "isMinimalView");
+			return this;
+		}
+		
+		/** Build a new {@link GroupView}.
+		 * @return the view.
+		 */
+		public GroupView build() {
+			return new GroupView(summary, isPublicField, isMinimalViewField);
+		}
+	}
+	
 	/** A builder for {@link GroupView}s.
 	 * @author gaprice@lbl.gov
 	 *
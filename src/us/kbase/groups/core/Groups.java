@@ -14,13 +14,23 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
+import com.google.common.util.concurrent.MoreExecutors;
+
 import us.kbase.groups.core.Group.Role;
 import us.kbase.groups.core.exceptions.AuthenticationException;
 import us.kbase.groups.core.exceptions.ClosedRequestException;
@@ -40,6 +50,7 @@ import us.kbase.groups.core.exceptions.ResourceExistsException;
 import us.kbase.groups.core.exceptions.ResourceHandlerException;
 import us.kbase.groups.core.exceptions.UnauthorizedException;
 import us.kbase.groups.core.exceptions.UserIsMemberException;
+import us.kbase.groups.core.fieldvalidation.CustomField;
 import us.kbase.groups.core.fieldvalidation.FieldValidatorException;
 import us.kbase.groups.core.fieldvalidation.FieldValidators;
 import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
@@ -74,6 +85,8 @@ public class Groups {
 	private static final int MAX_GROUP_NAMES_RETURNED = 1000;
 	private static final int MAX_GROUP_HAS_REQUESTS_COUNT = 100;
 	private static final int MAX_GROUP_LIST_COUNT = 100;
+	private static final int MAX_INVITE_COUNT = 1000;
+	private static final int DEFAULT_MAX_LIST_LIMIT = 1000;
 	private final GroupsStorage storage;
 	private final UserHandler userHandler;
 	private final Map<ResourceType, ResourceHandler> resourceHandlers;
@@ -81,8 +94,14 @@ public class Groups {
 	private final Notifications notifications;
 	private final UUIDGenerator uuidGen;
 	private final Clock clock;
+	private final ExecutorService resourceExecutor;
+	private final Duration resourceTimeout;
+	private final int maxListLimit;
+	private final boolean useStoredRequestTargets;
+	private final Optional<LastVisitBuffer> visitBuffer;
 	
-	/** Create a new {@link Groups} class.
+	/** Create a new {@link Groups} class. Resource information is retrieved from the resource
+	 * handlers in the calling thread, and the maximum list limit is 1000.
 	 * @param storage the storage system to be used by the class.
 	 * @param userHandler the user handler by which users shall be handled.
 	 * @param resourceHandlers the resource handlers for providing information about resources.
@@ -101,7 +120,115 @@ public class Groups {
 			final FieldValidators validators,
 			final Notifications notifications) {
 		this(storage, userHandler, resourceHandlers, validators, notifications,
-				new UUIDGenerator(), Clock.systemDefaultZone());
+				MoreExecutors.newDirectExecutorService(), Duration.ofDays(1),
+				DEFAULT_MAX_LIST_LIMIT);
+	}
+	
+	/** Create a new {@link Groups} class.
+	 * @param storage the storage system to be used by the class.
+	 * @param userHandler the user handler by which users shall be handled.
+	 * @param resourceHandlers the resource handlers for providing information about resources.
+	 * Note that changing the set of configured handlers for a storage instance may cause errors
+	 * and unexpected behavior, as handlers may be missing for data in the storage system or
+	 * handlers may be swapped, leading to inaccurate information being returned for the
+	 * stored data.
+	 * @param validators the validators for group custom fields.
+	 * @param notifications where notification should be sent.
+	 * @param resourceExecutor the executor with which resource information will be retrieved
+	 * from the resource handlers. Each resource type in a group is retrieved in a separate
+	 * task so that the handlers may run concurrently.
+	 * @param resourceTimeout the maximum time to wait for the resource handlers to return
+	 * information about the resources in a group.
+	 * @param maxListLimit the maximum limit a user may specify when listing groups or requests.
+	 */
+	public Groups(
+			final GroupsStorage storage,
+			final UserHandler userHandler,
+			final Map<ResourceType, ResourceHandler> resourceHandlers,
+			final FieldValidators validators,
+			final Notifications notifications,
+			final ExecutorService resourceExecutor,
+			final Duration resourceTimeout,
+			final int maxListLimit) {
+		this(storage, userHandler, resourceHandlers, validators, notifications,
+				resourceExecutor, resourceTimeout, maxListLimit, false);
+	}
+	
+	/** Create a new {@link Groups} class.
+	 * @param storage the storage system to be used by the class.
+	 * @param userHandler the user handler by which users shall be handled.
+	 * @param resourceHandlers the resource handlers for providing information about resources.
+	 * Note that changing the set of configured handlers for a storage instance may cause errors
+	 * and unexpected behavior, as handlers may be missing for data in the storage system or
+	 * handlers may be swapped, leading to inaccurate information being returned for the
+	 * stored data.
+	 * @param validators the validators for group custom fields.
+	 * @param notifications where notification should be sent.
+	 * @param resourceExecutor the executor with which resource information will be retrieved
+	 * from the resource handlers. Each resource type in a group is retrieved in a separate
+	 * task so that the handlers may run concurrently.
+	 * @param resourceTimeout the maximum time to wait for the resource handlers to return
+	 * information about the resources in a group.
+	 * @param maxListLimit the maximum limit a user may specify when listing groups or requests.
+	 * @param useStoredRequestTargets true to find the requests targeting a user from the
+	 * targets recorded on the requests in the storage system rather than fetching the resources
+	 * the user administrates from the resource handlers. The recorded targets of invitations to
+	 * resources are not updated when the resource administrators change - see
+	 * {@link RequestTargetRefresher}.
+	 */
+	public Groups(
+			final GroupsStorage storage,
+			final UserHandler userHandler,
+			final Map<ResourceType, ResourceHandler> resourceHandlers,
+			final FieldValidators validators,
+			final Notifications notifications,
+			final ExecutorService resourceExecutor,
+			final Duration resourceTimeout,
+			final int maxListLimit,
+			final boolean useStoredRequestTargets) {
+		this(storage, userHandler, resourceHandlers, validators, notifications,
+				resourceExecutor, resourceTimeout, maxListLimit, useStoredRequestTargets,
+				Optional.empty());
+	}
+	
+	/** Create a new {@link Groups} class.
+	 * @param storage the storage system to be used by the class.
+	 * @param userHandler the user handler by which users shall be handled.
+	 * @param resourceHandlers the resource handlers for providing information about resources.
+	 * Note that changing the set of configured handlers for a storage instance may cause errors
+	 * and unexpected behavior, as handlers may be missing for data in the storage system or
+	 * handlers may be swapped, leading to inaccurate information being returned for the
+	 * stored data.
+	 * @param validators the validators for group custom fields.
+	 * @param notifications where notification should be sent.
+	 * @param resourceExecutor the executor with which resource information will be retrieved
+	 * from the resource handlers. Each resource type in a group is retrieved in a separate
+	 * task so that the handlers may run concurrently.
+	 * @param resourceTimeout the maximum time to wait for the resource handlers to return
+	 * information about the resources in a group.
+	 * @param maxListLimit the maximum limit a user may specify when listing groups or requests.
+	 * @param useStoredRequestTargets true to find the requests targeting a user from the
+	 * targets recorded on the requests in the storage system rather than fetching the resources
+	 * the user administrates from the resource handlers. The recorded targets of invitations to
+	 * resources are not updated when the resource administrators change - see
+	 * {@link RequestTargetRefresher}.
+	 * @param visitBuffer an optional buffer for users' last visit dates. If absent, visits are
+	 * written directly to the storage system.
+	 */
+	public Groups(
+			final GroupsStorage storage,
+			final UserHandler userHandler,
+			final Map<ResourceType, ResourceHandler> resourceHandlers,
+			final FieldValidators validators,
+			final Notifications notifications,
+			final ExecutorService resourceExecutor,
+			final Duration resourceTimeout,
+			final int maxListLimit,
+			final boolean useStoredRequestTargets,
+			final Optional<LastVisitBuffer> visitBuffer) {
+		this(storage, userHandler, resourceHandlers, validators, notifications,
+				resourceExecutor, resourceTimeout, maxListLimit, useStoredRequestTargets,
+				visitBuffer, new UUIDGenerator(), Clock.systemDefaultZone());
 	}
 	
 	// for testing
@@ -113,11 +240,39 @@ public class Groups {
 			final Notifications notifications,
 			final UUIDGenerator uuidGen,
 			final Clock clock) {
+		this(storage, userHandler, resourceHandlers, validators, notifications,
+				MoreExecutors.newDirectExecutorService(), Duration.ofDays(1),
+				DEFAULT_MAX_LIST_LIMIT, false, Optional.empty(), uuidGen, clock);
+	}
+	
+	// for testing
+	private Groups(
+			final GroupsStorage storage,
+			final UserHandler userHandler,
+			final Map<ResourceType, ResourceHandler> resourceHandlers,
+			final FieldValidators validators,
+			final Notifications notifications,
+			final ExecutorService resourceExecutor,
+			final Duration resourceTimeout,
+			final int maxListLimit,
+			final boolean useStoredRequestTargets,
+			final Optional<LastVisitBuffer> visitBuffer,
+			final UUIDGenerator uuidGen,
+			final Clock clock) {
 		checkNotNull(storage, "storage");
 		checkNotNull(userHandler, "userHandler");
 		checkNotNull(resourceHandlers, "resourceHandlers");
 		checkNotNull(validators, "validators");
 		checkNotNull(notifications, "notifications");
+		checkNotNull(resourceExecutor, "resourceExecutor");
+		checkNotNull(resourceTimeout, "resourceTimeout");
+		checkNotNull(visitBuffer, "visitBuffer");
+		if (resourceTimeout.isNegative() || resourceTimeout.isZero()) {
+			throw new IllegalArgumentException("resourceTimeout must be positive");
+		}
+		if (maxListLimit < 1) {
+			throw new IllegalArgumentException("maxListLimit must be > 0");
+		}
 		this.storage = storage;
 		this.userHandler = userHandler;
 		if (resourceHandlers.containsKey(USER_TYPE)) {
@@ -129,6 +284,11 @@ public class Groups {
 		this.notifications = notifications;
 		this.uuidGen = uuidGen;
 		this.clock = clock;
+		this.resourceExecutor = resourceExecutor;
+		this.resourceTimeout = resourceTimeout;
+		this.maxListLimit = maxListLimit;
+		this.useStoredRequestTargets = useStoredRequestTargets;
+		this.visitBuffer = visitBuffer;
 	}
 	
 	/** Create a new group.
@@ -318,7 +478,8 @@ public class Groups {
 		}
 	}
 	
-	/** Update the last visited date for a user and a group.
+	/** Update the last visited date for a user and a group. If a {@link LastVisitBuffer} is
+	 * configured, the date is written to the storage system when the buffer is flushed.
 	 * @param userToken the user's token.
 	 * @param groupID the ID of the group to update.
 	 * @throws InvalidTokenException if the token is invalid.
@@ -331,7 +492,19 @@ public class Groups {
 			throws InvalidTokenException, AuthenticationException, NoSuchGroupException,
 				NoSuchUserException, GroupsStorageException {
 		final UserName user = userHandler.getUser(requireNonNull(userToken, "userToken"));
-		storage.updateUser(requireNonNull(groupID, "groupID"), user, clock.instant());
+		requireNonNull(groupID, "groupID");
+		if (visitBuffer.isPresent()) {
+			// the buffer doesn't check membership, so check here to keep the same errors as
+			// an unbuffered update. Use the full group, which may be cached.
+			if (!storage.getGroup(groupID).isMember(user)) {
+				throw new NoSuchUserException(String.format(
+						"User %s is not a member of group %s",
+						user.getName(), groupID.getName()));
+			}
+			visitBuffer.get().add(groupID, user, clock.instant());
+		} else {
+			storage.updateUser(groupID, user, clock.instant());
+		}
 	}
 	
 	/** Get a view of a group.
@@ -353,11 +526,9 @@ public class Groups {
 				GroupsStorageException, ResourceHandlerException {
 		Group g = storage.getGroup(groupID);
 		final UserName user = getOptionalUser(userToken);
-		final Map<ResourceType, ResourceInformationSet> resources = new HashMap<>();
-		for (final ResourceType type: g.getResourceTypes()) {
-			final ResourceInformationSet resourceInfo = getResourceInfo(g, user, type);
-			resources.put(type, resourceInfo);
-			g = g.removeResources(type, resourceInfo.getNonexistentResources());
+		final Map<ResourceType, ResourceInformationSet> resources = getResourceInfo(g, user);
+		for (final ResourceType type: resources.keySet()) {
+			g = g.removeResources(type, resources.get(type).getNonexistentResources());
 		}
 		final GroupView.Builder b = startViewBuild(g, user)
 				// this seems odd. Maybe there's a better way to deal with this?
@@ -387,6 +558,64 @@ public class Groups {
 		return b;
 	}
 	
+	// runs the handlers for each resource type concurrently
+	private Map<ResourceType, ResourceInformationSet> getResourceInfo(
+			final Group g,
+			final UserName user)
+			throws ResourceHandlerException, NoSuchGroupException, GroupsStorageException {
+		final Map<ResourceType, Future<ResourceInformationSet>> futures = new HashMap<>();
+		for (final ResourceType type: g.getResourceTypes()) {
+			futures.put(type, resourceExecutor.submit(() -> getResourceInfo(g, user, type)));
+		}
+		final long deadline = System.nanoTime() + resourceTimeout.toNanos();
+		final Map<ResourceType, ResourceInformationSet> ret = new HashMap<>();
+		try {
+			for (final ResourceType type: futures.keySet()) {
+				ret.put(type, getResourceInfo(g, type, futures.get(type), deadline));
+			}
+		} finally {
+			// no-op for completed tasks
+			futures.values().stream().forEach(f -> f.cancel(true));
+		}
+		return ret;
+	}
+	
+	private ResourceInformationSet getResourceInfo(
+			final Group g,
+			final ResourceType type,
+			final Future<ResourceInformationSet> future,
+			final long deadlineNanos)
+			throws ResourceHandlerException, NoSuchGroupException, GroupsStorageException {
+		try {
+			return future.get(Math.max(0, deadlineNanos - System.nanoTime()),
+					TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			throw new ResourceHandlerException(String.format(
+					"Timed out retrieving %s information for group %s",
+					type.getName(), g.getGroupID().getName()), e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ResourceHandlerException(String.format(
+					"Interrupted while retrieving %s information for group %s",
+					type.getName(), g.getGroupID().getName()), e);
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof ResourceHandlerException) {
+				throw (ResourceHandlerException) cause;
+			} else if (cause instanceof NoSuchGroupException) {
+				throw (NoSuchGroupException) cause;
+			} else if (cause instanceof GroupsStorageException) {
+				throw (GroupsStorageException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			} else {
+				throw new RuntimeException("Unexpected exception: " + cause.getMessage(), cause);
+			}
+		}
+	}
+	
 	private ResourceInformationSet getResourceInfo(
 			final Group g,
 			final UserName user,
@@ -507,27 +736,25 @@ public class Groups {
 		}
 		final UserName user = userHandler.getUser(requireNonNull(userToken, "userToken"));
 		final Map<GroupID, Optional<Instant>> gToLastVisit = new HashMap<>();
-		for (final GroupID gid: groupIDs) {
-			// could make a bulk method that returns less info per group if necessary
-			// or even an isAdmin(Username, Set<GroupID>) method. YAGNI for now
-			final Group g = storage.getGroup(gid);
-			if (!g.isAdministrator(user)) {
+		for (final GroupSummary g: storage.getGroupSummaries(user, groupIDs)) {
+			if (!g.getRole().equals(Role.ADMIN) && !g.getRole().equals(Role.OWNER)) {
 				throw new UnauthorizedException(String.format(
-						"User %s may not administrate group %s", user.getName(), gid.getName()));
+						"User %s may not administrate group %s",
+						user.getName(), g.getGroupID().getName()));
 			}
-			gToLastVisit.put(gid, g.getMember(user).getLastVisit());
+			gToLastVisit.put(g.getGroupID(), g.getLastVisit());
 		}
+		final Map<GroupID, Instant> latest = storage.getLatestOpenRequestDates(groupIDs);
 		final Map<GroupID, GroupHasRequests> ret = new HashMap<>();
 		for (final GroupID gid: groupIDs) {
-			final Instant laterThan = gToLastVisit.get(gid).orElse(null);
 			final GroupHasRequests reqstate;
-			if (storage.groupHasRequest(gid, laterThan)) {
-				reqstate = GroupHasRequests.NEW;
-			} else if (laterThan != null) {
-				reqstate = storage.groupHasRequest(gid, null) ?
-						GroupHasRequests.OLD : GroupHasRequests.NONE;
-			} else {
+			if (!latest.containsKey(gid)) {
 				reqstate = GroupHasRequests.NONE;
+			} else if (gToLastVisit.get(gid).isPresent() &&
+					!latest.get(gid).isAfter(gToLastVisit.get(gid).get())) {
+				reqstate = GroupHasRequests.OLD;
+			} else {
+				reqstate = GroupHasRequests.NEW;
 			}
 			ret.put(gid, reqstate);
 		}
@@ -535,7 +762,7 @@ public class Groups {
 	}
 	
 	/** Get minimal views of the groups in the system.
-	 * At most 100 groups are returned.
+	 * At most 100 groups are returned unless a limit is specified in the parameters.
 	 * If the token is null, a resource is present in the parameters, and that resource is private,
 	 * no groups are returned.
 	 * @param userToken the user's token. If null, only public groups are returned.
@@ -549,12 +776,15 @@ public class Groups {
 	 * @throws NoSuchResourceTypeException if the specified resource type does not exist.
 	 * @throws IllegalResourceIDException if the specified resource id is illegal.
 	 * @throws NoSuchResourceException if the specified resource does not exist.
+	 * @throws IllegalParameterException if the limit is greater than the maximum list limit.
 	 */
 	public List<GroupView> getGroups(final Token userToken, final GetGroupsParams params)
 			throws GroupsStorageException, InvalidTokenException, AuthenticationException,
 				UnauthorizedException, NoSuchResourceException, IllegalResourceIDException,
-				NoSuchResourceTypeException, ResourceHandlerException {
+				NoSuchResourceTypeException, ResourceHandlerException,
+				IllegalParameterException {
 		checkNotNull(params, "params");
+		checkLimit(params.getLimit());
 		if (userToken == null && !params.getRole().equals(Role.NONE)) {
 			throw new UnauthorizedException("A token is required when filtering groups by role");
 		}
@@ -564,19 +794,85 @@ public class Groups {
 			resourceIsPublic = getHandler(params.getResourceType().get())
 					.isPublic(params.getResourceID().get());
 		}
-		return storage.getGroups(params, resourceIsPublic, user).stream()
-				.map(g -> toMinimalView(user, g)).collect(Collectors.toList());
+		return storage.getGroupSummaries(
+				params, resourceIsPublic, user, getMinimalViewFields()).stream()
+				.map(g -> toMinimalView(g))
+				.collect(Collectors.toList());
+	}
+	
+	// only fetch the custom fields that can appear in a minimal view
+	private Set<CustomField> getMinimalViewFields() {
+		return validators.getValidationTargetFields().stream()
+				.filter(f -> validators.getConfig(f).isMinimalViewField())
+				.collect(Collectors.toSet());
+	}
+	
+	private GroupView toMinimalView(final GroupSummary g) {
+		return GroupView.getMinimalBuilder(g)
+				.withMinimalViewFieldDeterminer(f -> isMinimalViewField(f))
+				.withPublicFieldDeterminer(f -> isPublicField(f))
+				.build();
+	}
+	
+	/** Search for groups via a text search against the group names and custom fields.
+	 * The groups are ordered by relevance and returned as minimal views. Only public custom
+	 * fields are searched for groups of which the user is not a member, and private groups are
+	 * only searched if the user is a member.
+	 * At most 100 groups are returned unless a limit is specified in the parameters.
+	 * @param userToken the user's token. If null, only public groups are searched.
+	 * @param params the search parameters.
+	 * @return the groups.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 * @throws InvalidTokenException if the token is invalid.
+	 * @throws AuthenticationException if authentication fails.
+	 * @throws IllegalParameterException if the limit is greater than the maximum list limit.
+	 */
+	public List<GroupView> searchGroups(final Token userToken, final SearchGroupsParams params)
+			throws GroupsStorageException, InvalidTokenException, AuthenticationException,
+				IllegalParameterException {
+		checkNotNull(params, "params");
+		checkLimit(params.getLimit());
+		final UserName user = getOptionalUser(userToken);
+		return storage.searchGroups(params, user, getMinimalViewFields()).stream()
+				.map(g -> toMinimalView(g))
+				.collect(Collectors.toList());
+	}
+	
+	/** Rebuild the search index entries for a group. This method does no authorization; the
+	 * caller must ensure the user is a service administrator.
+	 * @param groupID the ID of the group to reindex.
+	 * @throws NoSuchGroupException if there is no such group.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	public void reindexGroup(final GroupID groupID)
+			throws NoSuchGroupException, GroupsStorageException {
+		storage.reindexGroup(checkNotNull(groupID, "groupID"));
+	}
+	
+	/** Rebuild the search index entries for all groups. This method does no authorization; the
+	 * caller must ensure the user is a service administrator.
+	 * @return the number of groups reindexed.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	public long reindexGroups() throws GroupsStorageException {
+		return storage.reindexGroups();
+	}
+	
+	private boolean isMinimalViewField(final NumberedCustomField field) {
+		return validators.getConfigOrEmpty(field.getFieldRoot())
+				.map(c -> c.isMinimalViewField()).orElse(false);
+	}
+	
+	private boolean isPublicField(final NumberedCustomField field) {
+		return validators.getConfigOrEmpty(field.getFieldRoot())
+				.map(c -> c.isPublicField()).orElse(false);
 	}
 
 	private GroupView toMinimalView(final UserName user, final Group g) {
 		return GroupView.getBuilder(g, user)
 				// this seems odd. Maybe there's a better way to deal with this?
-				.withMinimalViewFieldDeterminer(
-						f -> validators.getConfigOrEmpty(f.getFieldRoot())
-								.map(c -> c.isMinimalViewField()).orElse(false))
-				.withPublicFieldDeterminer(
-						f -> validators.getConfigOrEmpty(f.getFieldRoot())
-								.map(c -> c.isPublicField()).orElse(false))
+				.withMinimalViewFieldDeterminer(f -> isMinimalViewField(f))
+				.withPublicFieldDeterminer(f -> isPublicField(f))
 				.build();
 	}
 	
@@ -677,6 +973,80 @@ public class Groups {
 				ResourceDescriptor.from(newMember), Arrays.asList(newMember));
 	}
 	
+	/** Invite multiple users to a group. The user must be a group administrator.
+	 * The user names are validated in a single call to the user handler and the invitations are
+	 * stored in a single call to the storage system.
+	 * Users that already have an open invitation to the group are skipped.
+	 * @param userToken the user's token.
+	 * @param groupID the ID of the group to which the invitations will apply.
+	 * @param newMembers the users to invite to the group.
+	 * @return the new requests, in the sort order of the user names.
+	 * @throws InvalidTokenException if the token is invalid.
+	 * @throws AuthenticationException if authentication fails.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 * @throws UnauthorizedException if the user is not a group administrator.
+	 * @throws UserIsMemberException if any of the users are already members of the group.
+	 * @throws NoSuchGroupException if there is no such group.
+	 * @throws NoSuchUserException if any of the user names are invalid.
+	 * @throws IllegalParameterException if no users or more than 1000 users are provided.
+	 */
+	public List<GroupRequest> inviteUsersToGroup(
+			final Token userToken,
+			final GroupID groupID,
+			final Collection<UserName> newMembers)
+			throws InvalidTokenException, AuthenticationException, UnauthorizedException,
+				UserIsMemberException, NoSuchGroupException, GroupsStorageException,
+				NoSuchUserException, IllegalParameterException {
+		checkNotNull(userToken, "userToken");
+		checkNotNull(groupID, "groupID");
+		checkNoNullsInCollection(newMembers, "newMembers");
+		final Set<UserName> members = new TreeSet<>(newMembers);
+		if (members.isEmpty()) {
+			throw new IllegalParameterException("No users provided");
+		}
+		if (members.size() > MAX_INVITE_COUNT) {
+			throw new IllegalParameterException(String.format(
+					"No more than %s users may be invited at once", MAX_INVITE_COUNT));
+		}
+		final UserName user = userHandler.getUser(userToken);
+		final Map<UserName, Boolean> valid = userHandler.areValidUsers(members);
+		final List<String> invalid = members.stream()
+				.filter(m -> !Boolean.TRUE.equals(valid.get(m)))
+				.map(m -> m.getName())
+				.collect(Collectors.toList());
+		if (!invalid.isEmpty()) {
+			throw new NoSuchUserException(String.join(", ", invalid));
+		}
+		final Group g = storage.getGroup(groupID);
+		if (!g.isAdministrator(user)) {
+			throw new UnauthorizedException(String.format("User %s may not administrate group %s",
+					user.getName(), groupID.getName()));
+		}
+		final List<String> existingMembers = members.stream().filter(m -> g.isMember(m))
+				.map(m -> m.getName())
+				.collect(Collectors.toList());
+		if (!existingMembers.isEmpty()) {
+			throw new UserIsMemberException(String.format(
+					"User(s) %s already member(s) of group %s", String.join(", ", existingMembers),
+					g.getGroupID().getName()));
+		}
+		final Map<UserName, GroupRequest> requests = new LinkedHashMap<>();
+		for (final UserName m: members) {
+			requests.put(m, createRequest(g, user, RequestType.INVITE, GroupRequest.USER_TYPE,
+					ResourceDescriptor.from(m)));
+		}
+		final Set<RequestID> existing = storage.storeRequests(new LinkedList<>(requests.values()));
+		final List<GroupRequest> ret = new LinkedList<>();
+		for (final UserName m: requests.keySet()) {
+			final GroupRequest r = requests.get(m);
+			if (!existing.contains(r.getID())) {
+				notifications.notify(Arrays.asList(m), r);
+				ret.add(r);
+			}
+		}
+		return ret;
+	}
+	
 	private GroupRequest createRequestStoreAndNotify(
 			final Group group,
 			final UserName creator,
@@ -685,17 +1055,31 @@ public class Groups {
 			final ResourceDescriptor resource,
 			final Collection<UserName> notifyTargets)
 			throws RequestExistsException, GroupsStorageException {
+		final GroupRequest request = createRequest(group, creator, type, resourceType, resource);
+		// invitations to users record their target when stored
+		if (RequestType.INVITE.equals(type) && !USER_TYPE.equals(resourceType)) {
+			storage.storeRequest(request, new HashSet<>(notifyTargets));
+		} else {
+			storage.storeRequest(request);
+		}
+		notifications.notify(notifyTargets, request);
+		return request;
+	}
+	
+	private GroupRequest createRequest(
+			final Group group,
+			final UserName creator,
+			final RequestType type,
+			final ResourceType resourceType,
+			final ResourceDescriptor resource) {
 		final Instant now = clock.instant();
-		final GroupRequest request = GroupRequest.getBuilder(
+		return GroupRequest.getBuilder(
 				new RequestID(uuidGen.randomUUID()), group.getGroupID(), creator,
 				CreateModAndExpireTimes.getBuilder(
 						now, now.plus(REQUEST_EXPIRE_TIME)).build())
 				.withType(type)
 				.withResource(resourceType, resource)
 				.build();
-		storage.storeRequest(request);
-		notifications.notify(notifyTargets, request);
-		return request;
 	}
 	
 	private final Set<GroupRequestUserAction> CREATOR_ACTIONS = new HashSet<>(Arrays.asList(
@@ -784,7 +1168,7 @@ public class Groups {
 	}
 	
 	/** Get requests that were created by the user.
-	 * At most 100 requests are returned.
+	 * At most 100 requests are returned unless a limit is specified in the parameters.
 	 * @param userToken the user's token.
 	 * @param params the parameters for getting the requests.
 	 * @return the requests.
@@ -792,21 +1176,25 @@ public class Groups {
 	 * @throws AuthenticationException if authentication fails.
 	 * @throws GroupsStorageException if an error occurs contacting the storage system.
 	 * @throws NoSuchResourceTypeException if the resource type does not exist.
+	 * @throws IllegalParameterException if the limit is greater than the maximum list limit.
 	 */
 	public List<GroupRequest> getRequestsForRequester(
 			final Token userToken,
 			final GetRequestsParams params)
 			throws InvalidTokenException, AuthenticationException, GroupsStorageException,
-					NoSuchResourceTypeException {
+					NoSuchResourceTypeException, IllegalParameterException {
 		checkNotNull(userToken, "userToken");
 		checkResourceRegisted(checkNotNull(params, "params"));
+		checkLimit(params.getLimit());
 		final UserName user = userHandler.getUser(userToken);
 		return storage.getRequestsByRequester(user, params);
 	}
 	
 	/** Get requests where the user is the target of the request, including requests
 	 * associated with resources the user administrates.
-	 * At most 100 requests are returned.
+	 * If this instance uses stored request targets and no resource is specified in the
+	 * parameters, invitations to resources are found from their recorded targets.
+	 * At most 100 requests are returned unless a limit is specified in the parameters.
 	 * @param userToken the user's token.
 	 * @param params the parameters for getting the requests.
 	 * @return the requests.
@@ -818,15 +1206,17 @@ public class Groups {
 	 * @throws IllegalResourceIDException if the resource ID is illegal.
 	 * @throws NoSuchResourceException if there is no such resource.
 	 * @throws UnauthorizedException if the user is not an administrator for the resource.
+	 * @throws IllegalParameterException if the limit is greater than the maximum list limit.
 	 */
 	public List<GroupRequest> getRequestsForTarget(
 			final Token userToken,
 			final GetRequestsParams params)
 			throws InvalidTokenException, AuthenticationException, GroupsStorageException,
 				ResourceHandlerException, NoSuchResourceTypeException, NoSuchResourceException,
-				IllegalResourceIDException, UnauthorizedException {
+				IllegalResourceIDException, UnauthorizedException, IllegalParameterException {
 		requireNonNull(userToken, "userToken");
 		requireNonNull(params, "params");
+		checkLimit(params.getLimit());
 		final UserName user = userHandler.getUser(userToken);
 		final List<GroupRequest> ret;
 		if (params.getResourceType().isPresent()) {
@@ -838,6 +1228,8 @@ public class Groups {
 						user.getName(), type.getName(), id.getName()));
 			}
 			ret = storage.getRequestsByTarget(params);
+		} else if (useStoredRequestTargets) {
+			ret = storage.getRequestsByTargetUser(user, params);
 		} else {
 			final Map<ResourceType, Set<ResourceAdministrativeID>> resources = new HashMap<>();
 			for (final ResourceType t: resourceHandlers.keySet()) {
@@ -853,7 +1245,7 @@ public class Groups {
 	}
 
 	/** Get requests where the group is the target of the request.
-	 * At most 100 requests are returned.
+	 * At most 100 requests are returned unless a limit is specified in the parameters.
 	 * @param userToken the user's token.
 	 * @param groupID the ID of the group for which requests will be returned.
 	 * @param params the parameters for getting the requests.
@@ -864,15 +1256,18 @@ public class Groups {
 	 * @throws UnauthorizedException if the user is not a group admin.
 	 * @throws NoSuchGroupException if the group does not exist.
 	 * @throws NoSuchResourceTypeException if the resource type does not exist.
+	 * @throws IllegalParameterException if the limit is greater than the maximum list limit.
 	 */
 	public List<GroupRequest> getRequestsForGroup(
 			final Token userToken,
 			final GroupID groupID,
 			final GetRequestsParams params)
 			throws UnauthorizedException, InvalidTokenException, AuthenticationException,
-				NoSuchGroupException, GroupsStorageException, NoSuchResourceTypeException {
+				NoSuchGroupException, GroupsStorageException, NoSuchResourceTypeException,
+				IllegalParameterException {
 		requireNonNull(groupID, "groupID");
 		checkResourceRegisted(requireNonNull(params, "params"));
+		checkLimit(params.getLimit());
 		final UserName user = userHandler.getUser(requireNonNull(userToken, "userToken"));
 		final Group g = storage.getGroup(groupID);
 		if (!g.isAdministrator(user)) {
@@ -889,9 +1284,16 @@ public class Groups {
 			getHandler(params.getResourceType().get());
 		}
 	}
+	
+	private void checkLimit(final Optional<Integer> limit) throws IllegalParameterException {
+		if (limit.isPresent() && limit.get() > maxListLimit) {
+			throw new IllegalParameterException(String.format(
+					"Limit %s is greater than the maximum of %s", limit.get(), maxListLimit));
+		}
+	}
 
 	/** Get requests where the user administrates groups that are the target of the request.
-	 * At most 100 requests are returned.
+	 * At most 100 requests are returned unless a limit is specified in the parameters.
 	 * @param userToken the user's token.
 	 * @param params the parameters for getting the requests.
 	 * @return the requests.
@@ -899,13 +1301,15 @@ public class Groups {
 	 * @throws AuthenticationException if authentication fails.
 	 * @throws GroupsStorageException if an error occurs contacting the storage system.
 	 * @throws NoSuchResourceTypeException if the resource type does not exist.
+	 * @throws IllegalParameterException if the limit is greater than the maximum list limit.
 	 */
 	public List<GroupRequest> getRequestsForGroups(
 			final Token userToken,
 			final GetRequestsParams params)
 			throws InvalidTokenException, AuthenticationException, GroupsStorageException,
-			NoSuchResourceTypeException {
+			NoSuchResourceTypeException, IllegalParameterException {
 		checkResourceRegisted(requireNonNull(params, "params"));
+		checkLimit(params.getLimit());
 		final UserName user = userHandler.getUser(requireNonNull(userToken, "userToken"));
 		final Set<GroupID> gids = storage.getAdministratedGroups(user);
 		return storage.getRequestsByGroups(gids, params);
@@ -946,7 +1350,7 @@ public class Groups {
 		}
 		ensureIsOpen(gr);
 		storage.closeRequest(requestID, GroupRequestStatus.canceled(), clock.instant());
-		notifications.cancel(requestID);
+		notifications.cancel(Arrays.asList(requestID));
 		return storage.getRequest(requestID);
 	}
 	
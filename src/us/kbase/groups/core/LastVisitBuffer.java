@@ -0,0 +1,230 @@
+package us.kbase.groups.core;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.LoggerFactory;
+
+import us.kbase.groups.storage.GroupsStorage;
+import us.kbase.groups.storage.exceptions.GroupsStorageException;
+
+/** A write behind buffer for group members' last visit dates.
+ *
+ * Users may visit the same group many times in quick succession, and each visit would otherwise
+ * be a separate write to the storage system. The buffer keeps only the latest visit date for
+ * each group member in memory and writes all the buffered dates to the storage system at once
+ * via {@link GroupsStorage#updateLastVisits(Map)}.
+ *
+ * The buffer is flushed when it is full, at the interval provided to {@link #start(Duration)},
+ * and when the buffer is stopped. Last visit dates read from the storage system may therefore
+ * be up to the flush interval behind, and dates still buffered when a process dies are lost.
+ * When the buffer is full and running, the flush thread is signalled to flush the buffer
+ * so that the member recording the visit doesn't wait for the write. Only if the buffer reaches
+ * twice its maximum size, for instance because flushes are failing, is the buffer flushed
+ * by the member's thread.
+ *
+ * The buffer does not check that the group exists or that the user is a member of the group.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class LastVisitBuffer {
+	
+	private final GroupsStorage storage;
+	private final int maxSize;
+	
+	// guards buffer and size
+	private final Object lock = new Object();
+	private Map<GroupID, Map<UserName, Instant>> buffer = new HashMap<>();
+	private int size = 0;
+	
+	// volatile so that add() can signal the flush thread without waiting for stop()
+	private volatile ScheduledExecutorService executor;
+	private volatile boolean running = false;
+	private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+	
+	/** Create the buffer. The buffer is not flushed periodically until
+	 * {@link #start(Duration)} is called.
+	 * @param storage the storage system to which the last visit dates will be written.
+	 * @param maxSize the maximum number of group members for which to buffer last visit dates.
+	 */
+	public LastVisitBuffer(final GroupsStorage storage, final int maxSize) {
+		this.storage = requireNonNull(storage, "storage");
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be > 0");
+		}
+		this.maxSize = maxSize;
+	}
+	
+	/** Record a visit to a group by a member. If the buffer is full, the flush thread is
+	 * signalled to flush the buffer. If the buffer is not running, or the buffer has reached
+	 * twice its maximum size, the buffer is flushed before the visit is recorded.
+	 * @param groupID the ID of the group the member visited.
+	 * @param member the member's user name.
+	 * @param lastVisited the date the member visited. If a later date is already buffered for
+	 * the member, the later date is kept.
+	 * @throws GroupsStorageException if the buffer is flushed before the visit is recorded and
+	 * an error occurs writing to the storage system. The visit is not recorded in this case.
+	 */
+	public void add(final GroupID groupID, final UserName member, final Instant lastVisited)
+			throws GroupsStorageException {
+		requireNonNull(groupID, "groupID");
+		requireNonNull(member, "member");
+		requireNonNull(lastVisited, "lastVisited");
+		final boolean full;
+		final boolean overfull;
+		synchronized (lock) {
+			final boolean isNew = !contains(groupID, member);
+			full = isNew && size >= maxSize;
+			overfull = isNew && size >= 2L * maxSize;
+		}
+		if (overfull || (full && !requestFlush())) {
+			flush();
+		}
+		synchronized (lock) {
+			put(groupID, member, lastVisited);
+		}
+	}
+	
+	// returns false if the flush thread isn't running
+	private boolean requestFlush() {
+		if (!flushRequested.compareAndSet(false, true)) {
+			return true; // a flush is already pending
+		}
+		final ScheduledExecutorService exe = executor;
+		if (running && exe != null) {
+			try {
+				exe.execute(() -> {
+					// allow further requests while this flush runs
+					flushRequested.set(false);
+					flushQuietly();
+				});
+				return true;
+			} catch (RejectedExecutionException e) {
+				// the buffer is stopping
+			}
+		}
+		flushRequested.set(false);
+		return false;
+	}
+	
+	// must hold the lock
+	private boolean contains(final GroupID groupID, final UserName member) {
+		return buffer.containsKey(groupID) && buffer.get(groupID).containsKey(member);
+	}
+	
+	// must hold the lock
+	private void put(final GroupID groupID, final UserName member, final Instant lastVisited) {
+		if (!contains(groupID, member)) {
+			size++;
+		}
+		buffer.computeIfAbsent(groupID, k -> new HashMap<>()).merge(
+				member, lastVisited, (a, b) -> a.isAfter(b) ? a : b);
+	}
+	
+	/** Get the number of group members for which last visit dates are buffered.
+	 * @return the number of buffered members.
+	 */
+	public int size() {
+		synchronized (lock) {
+			return size;
+		}
+	}
+	
+	/** Write all the buffered last visit dates to the storage system and clear the buffer.
+	 * If the write fails, the dates are returned to the buffer, unless a later date has been
+	 * buffered for the same member in the meantime.
+	 * @throws GroupsStorageException if an error occurs writing to the storage system.
+	 */
+	public void flush() throws GroupsStorageException {
+		final Map<GroupID, Map<UserName, Instant>> toWrite;
+		synchronized (lock) {
+			if (buffer.isEmpty()) {
+				return;
+			}
+			toWrite = buffer;
+			buffer = new HashMap<>();
+			size = 0;
+		}
+		try {
+			storage.updateLastVisits(toWrite);
+		} catch (GroupsStorageException | RuntimeException e) {
+			synchronized (lock) {
+				for (final GroupID g: toWrite.keySet()) {
+					for (final UserName u: toWrite.get(g).keySet()) {
+						put(g, u, toWrite.get(g).get(u));
+					}
+				}
+			}
+			throw e;
+		}
+	}
+	
+	/** Start flushing the buffer in a background thread.
+	 * @param interval the time between the end of one flush and the start of the next. This
+	 * is the maximum time a visit is buffered, unless flushes fail.
+	 * @throws IllegalArgumentException if the interval is less than one second or the
+	 * buffer is already running.
+	 */
+	public synchronized void start(final Duration interval) {
+		requireNonNull(interval, "interval");
+		if (interval.getSeconds() < 1) {
+			throw new IllegalArgumentException("interval must be at least 1 second");
+		}
+		if (running) {
+			throw new IllegalArgumentException("The buffer is already running");
+		}
+		running = true;
+		executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			final Thread t = new Thread(r, "last-visit-buffer");
+			t.setDaemon(true);
+			return t;
+		});
+		executor.scheduleWithFixedDelay(
+				() -> flushQuietly(), interval.getSeconds(), interval.getSeconds(),
+				TimeUnit.SECONDS);
+	}
+	
+	private void flushQuietly() {
+		try {
+			flush();
+		} catch (Throwable e) {
+			// usually a lost connection to the storage system. Try again next time.
+			LoggerFactory.getLogger(getClass()).error(
+					"Error writing last visit dates: " + e.getMessage(), e);
+		}
+	}
+	
+	/** Returns true if the buffer is being flushed periodically, false otherwise.
+	 * @return true if the buffer is running.
+	 */
+	public synchronized boolean isRunning() {
+		return running;
+	}
+	
+	/** Stops flushing the buffer periodically and flushes any remaining last visit dates.
+	 * Errors writing the dates are logged. Calling this method multiple times in succession has
+	 * no effect.
+	 */
+	public synchronized void stop() {
+		running = false;
+		if (executor != null) {
+			executor.shutdown();
+			try {
+				// don't race a flush in progress
+				executor.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		flushQuietly();
+	}
+}
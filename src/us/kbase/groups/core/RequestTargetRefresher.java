@@ -0,0 +1,217 @@
+package us.kbase.groups.core;
+
+import static java.util.Objects.requireNonNull;
+import static us.kbase.groups.core.request.GroupRequest.USER_TYPE;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.LoggerFactory;
+
+import us.kbase.groups.core.exceptions.IllegalParameterException;
+import us.kbase.groups.core.exceptions.IllegalResourceIDException;
+import us.kbase.groups.core.exceptions.MissingParameterException;
+import us.kbase.groups.core.exceptions.NoSuchRequestException;
+import us.kbase.groups.core.exceptions.NoSuchResourceException;
+import us.kbase.groups.core.exceptions.ResourceHandlerException;
+import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.core.resource.ResourceHandler;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.storage.GroupsStorage;
+import us.kbase.groups.storage.LeaderLease;
+import us.kbase.groups.storage.exceptions.GroupsStorageException;
+
+/** Updates the targets recorded in a storage system for open invitations, as used by
+ * {@link GroupsStorage#getRequestsByTargetUser(UserName, GetRequestsParams)}.
+ *
+ * The targets of an invitation to a resource are the administrators of the resource, which
+ * are recorded when the invitation is created but may change afterwards. The refresher
+ * periodically fetches the administrators of each resource with an open invitation from the
+ * resource handlers and records them as the invitation's targets. Invitations to users are
+ * also refreshed so that invitations created before targets were recorded are found.
+ *
+ * If multiple processes share the storage system, only the refresher holding the refresh
+ * {@link LeaderLease} refreshes targets in the background.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class RequestTargetRefresher {
+	
+	/** The maximum number of invitations fetched from the storage system at once. */
+	public static final int BATCH_SIZE = 500;
+	
+	private static final String REFRESH_LEASE = "requesttargetrefresh";
+	private static final int LEASE_TTL_MULTIPLE = 3;
+	
+	private final GroupsStorage storage;
+	private final Map<ResourceType, ResourceHandler> resourceHandlers;
+	
+	private ScheduledExecutorService executor;
+	private LeaderLease lease;
+	private boolean running = false;
+	
+	/** Create the refresher. The refresher does not refresh targets in the background until
+	 * {@link #start(Duration)} is called.
+	 * @param storage the storage system containing the invitations.
+	 * @param resourceHandlers the resource handlers that provide the administrators of
+	 * resources.
+	 */
+	public RequestTargetRefresher(
+			final GroupsStorage storage,
+			final Map<ResourceType, ResourceHandler> resourceHandlers) {
+		this.storage = requireNonNull(storage, "storage");
+		requireNonNull(resourceHandlers, "resourceHandlers");
+		this.resourceHandlers = Collections.unmodifiableMap(new HashMap<>(resourceHandlers));
+	}
+	
+	/** Start refreshing targets in a background thread, as long as this refresher holds
+	 * the refresh lease. The lease time to live is three times the interval.
+	 * @param interval the time between the end of one refresh and the start of the next.
+	 * @throws IllegalArgumentException if the interval is less than one second or the
+	 * refresher is already running.
+	 */
+	public synchronized void start(final Duration interval) {
+		requireNonNull(interval, "interval");
+		if (interval.getSeconds() < 1) {
+			throw new IllegalArgumentException("interval must be at least 1 second");
+		}
+		if (running) {
+			throw new IllegalArgumentException("The refresher is already running");
+		}
+		running = true;
+		lease = new LeaderLease(storage, REFRESH_LEASE,
+				Duration.ofSeconds(interval.getSeconds() * LEASE_TTL_MULTIPLE));
+		executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			final Thread t = new Thread(r, "request-target-refresher");
+			t.setDaemon(true);
+			return t;
+		});
+		executor.scheduleWithFixedDelay(
+				new RefreshAgent(lease), 0, interval.getSeconds(), TimeUnit.SECONDS);
+	}
+	
+	/** Returns true if the refresher is running, false otherwise.
+	 * @return true if the refresher is running.
+	 */
+	public synchronized boolean isRunning() {
+		return running;
+	}
+	
+	/** Stops the refresher and releases the refresh lease so that a refresher in another
+	 * process can take over immediately. Calling this method multiple times in succession has
+	 * no effect.
+	 */
+	public synchronized void stop() {
+		running = false;
+		if (executor != null) {
+			executor.shutdown();
+		}
+		if (lease != null) {
+			try {
+				lease.release();
+			} catch (GroupsStorageException e) {
+				// the lease will expire on its own
+				LoggerFactory.getLogger(getClass()).error(
+						"Error releasing request target refresh lease: " + e.getMessage(), e);
+			}
+		}
+	}
+	
+	private class RefreshAgent implements Runnable {
+		
+		private final LeaderLease lease;
+		
+		private RefreshAgent(final LeaderLease lease) {
+			this.lease = lease;
+		}
+		
+		@Override
+		public void run() {
+			try {
+				if (!lease.checkLeadership().isPresent()) {
+					return; // another process is refreshing targets
+				}
+				refresh();
+			} catch (Throwable e) {
+				// usually a lost connection to the storage system. Try again next time.
+				LoggerFactory.getLogger(getClass()).error(
+						"Error refreshing request targets: " + e.getMessage(), e);
+			}
+		}
+	}
+	
+	/** Refresh the targets of all the open invitations in the storage system.
+	 * Invitations whose targets cannot be determined, for example because the resource
+	 * handler fails, are logged and skipped. If a resource no longer exists, the invitation's
+	 * targets are removed. Invitations whose targets have not changed are not rewritten.
+	 * The administrators of each resource are fetched at most once per batch of invitations,
+	 * regardless of how many invitations in the batch target the resource.
+	 * @return the number of invitations whose targets changed.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	public int refresh() throws GroupsStorageException {
+		int count = 0;
+		Optional<RequestID> last = Optional.empty();
+		List<GroupRequest> batch;
+		do {
+			batch = storage.getOpenInvitations(last, BATCH_SIZE);
+			final Map<ResourceType, Map<ResourceID, Optional<Set<UserName>>>> batchTargets =
+					new HashMap<>();
+			for (final GroupRequest r: batch) {
+				last = Optional.of(r.getID());
+				final Optional<Set<UserName>> targets = batchTargets
+						.computeIfAbsent(r.getResourceType(), t -> new HashMap<>())
+						.computeIfAbsent(r.getResource().getResourceID(), i -> getTargets(r));
+				if (targets.isPresent()) {
+					try {
+						if (storage.setRequestTargets(r.getID(), targets.get())) {
+							count++;
+						}
+					} catch (NoSuchRequestException e) {
+						// the request was closed since it was fetched, so the targets
+						// don't matter
+					}
+				}
+			}
+		} while (batch.size() == BATCH_SIZE);
+		return count;
+	}
+	
+	private Optional<Set<UserName>> getTargets(final GroupRequest request) {
+		final String resource = request.getResource().getResourceID().getName();
+		try {
+			if (USER_TYPE.equals(request.getResourceType())) {
+				return Optional.of(new HashSet<>(Arrays.asList(new UserName(resource))));
+			}
+			final ResourceHandler h = resourceHandlers.get(request.getResourceType());
+			if (h == null) {
+				LoggerFactory.getLogger(getClass()).error(String.format(
+						"No handler for resource type %s in request %s",
+						request.getResourceType().getName(), request.getID().getID()));
+				return Optional.empty();
+			}
+			return Optional.of(h.getAdministrators(request.getResource().getResourceID()));
+		} catch (NoSuchResourceException e) {
+			// no one can accept the invitation
+			return Optional.of(Collections.emptySet());
+		} catch (MissingParameterException | IllegalParameterException |
+				IllegalResourceIDException | ResourceHandlerException e) {
+			LoggerFactory.getLogger(getClass()).error(String.format(
+					"Error getting targets for request %s: %s",
+					request.getID().getID(), e.getMessage()), e);
+			return Optional.empty();
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package us.kbase.groups.core;
+
+import static us.kbase.groups.util.Util.checkString;
+
+import java.util.Optional;
+
+import us.kbase.groups.core.exceptions.IllegalParameterException;
+import us.kbase.groups.core.exceptions.MissingParameterException;
+
+/** Parameters for a text search for groups.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class SearchGroupsParams {
+
+	/** The maximum length of a search query in Unicode code points. */
+	public static final int MAX_QUERY_LENGTH = 500;
+
+	private final String query;
+	private final Optional<Integer> limit;
+
+	private SearchGroupsParams(final String query, final Optional<Integer> limit) {
+		this.query = query;
+		this.limit = limit;
+	}
+
+	/** Get the text search query.
+	 * @return the query.
+	 */
+	public String getQuery() {
+		return query;
+	}
+
+	/** Get the maximum number of groups to return. If absent, the storage system default
+	 * applies.
+	 * @return the limit.
+	 */
+	public Optional<Integer> getLimit() {
+		return limit;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((limit == null) ? 0 : limit.hashCode());
+		result = prime * result + ((query == null) ? 0 : query.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		SearchGroupsParams other = (SearchGroupsParams) obj;
+		if (limit == null) {
+			if (other.limit != null) {
+				return false;
+			}
+		} else if (!limit.equals(other.limit)) {
+			return false;
+		}
+		if (query == null) {
+			if (other.query != null) {
+				return false;
+			}
+		} else if (!query.equals(other.query)) {
+			return false;
+		}
+		return true;
+	}
+
+	/** Get a builder for a {@link SearchGroupsParams}.
+	 * @param query the text search query. The query is {@link String#trim()}ed.
+	 * @return the builder.
+	 * @throws MissingParameterException if the query is null or whitespace only.
+	 * @throws IllegalParameterException if the query is longer than {@link #MAX_QUERY_LENGTH}.
+	 */
+	public static Builder getBuilder(final String query)
+			throws MissingParameterException, IllegalParameterException {
+		return new Builder(query);
+	}
+
+	/** A builder for a {@link SearchGroupsParams}.
+	 * @author gaprice@lbl.gov
+	 *
+	 */
+	public static class Builder {
+
+		private final String query;
+		private Optional<Integer> limit = Optional.empty();
+
+		private Builder(final String query)
+				throws MissingParameterException, IllegalParameterException {
+			this.query = checkString(query, "query", MAX_QUERY_LENGTH);
+		}
+
+		/** Set the maximum number of groups to return.
+		 * If null, any previously set limit is removed and the storage system default applies.
+		 * @param limit the limit, which must be greater than 0.
+		 * @return this builder.
+		 */
+		public Builder withNullableLimit(final Integer limit) {
+			if (limit != null && limit < 1) {
+				throw new IllegalArgumentException("limit must be > 0");
+			}
+			this.limit = Optional.ofNullable(limit);
+			return this;
+		}
+
+		/** Build the {@link SearchGroupsParams}.
+		 * @return the params.
+		 */
+		public SearchGroupsParams build() {
+			return new SearchGroupsParams(query, limit);
+		}
+	}
+}
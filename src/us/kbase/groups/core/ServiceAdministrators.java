@@ -0,0 +1,60 @@
+package us.kbase.groups.core;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static us.kbase.groups.util.Util.checkNoNullsInCollection;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import us.kbase.groups.core.exceptions.AuthenticationException;
+import us.kbase.groups.core.exceptions.InvalidTokenException;
+import us.kbase.groups.core.exceptions.UnauthorizedException;
+
+/** Determines whether a user is an administrator of the service, as opposed to an administrator
+ * of a group. Service administrators may access administration functions such as the
+ * service metrics.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class ServiceAdministrators {
+
+	private final UserHandler userHandler;
+	private final Set<UserName> admins;
+
+	/** Create the administrator checker.
+	 * @param userHandler the user handler with which users' tokens will be validated.
+	 * @param admins the service administrators.
+	 */
+	public ServiceAdministrators(final UserHandler userHandler, final Set<UserName> admins) {
+		checkNotNull(userHandler, "userHandler");
+		checkNoNullsInCollection(admins, "admins");
+		this.userHandler = userHandler;
+		this.admins = Collections.unmodifiableSet(new HashSet<>(admins));
+	}
+
+	/** Get the service administrators.
+	 * @return the administrators.
+	 */
+	public Set<UserName> getAdministrators() {
+		return admins;
+	}
+
+	/** Check that a user is a service administrator.
+	 * @param userToken the user's token.
+	 * @return the name of the administrator.
+	 * @throws InvalidTokenException if the token is invalid.
+	 * @throws AuthenticationException if authentication fails.
+	 * @throws UnauthorizedException if the user is not a service administrator.
+	 */
+	public UserName checkAdministrator(final Token userToken)
+			throws InvalidTokenException, AuthenticationException, UnauthorizedException {
+		checkNotNull(userToken, "userToken");
+		final UserName user = userHandler.getUser(userToken);
+		if (!admins.contains(user)) {
+			throw new UnauthorizedException(String.format(
+					"User %s is not a service administrator", user.getName()));
+		}
+		return user;
+	}
+}
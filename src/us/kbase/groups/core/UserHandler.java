@@ -1,5 +1,8 @@
 package us.kbase.groups.core;
 
+import java.util.Collection;
+import java.util.Map;
+
 import us.kbase.groups.core.exceptions.AuthenticationException;
 import us.kbase.groups.core.exceptions.InvalidTokenException;
 
@@ -23,4 +26,12 @@ public interface UserHandler {
 	 * @throws AuthenticationException if an error occurs checking the name.
 	 */
 	boolean isValidUser(UserName userName) throws AuthenticationException;
+	
+	/** Validate that a set of user names are legitimate, existing names.
+	 * @param userNames the user names.
+	 * @return a mapping of each user name to true if the user name is valid, false otherwise.
+	 * @throws AuthenticationException if an error occurs checking the names.
+	 */
+	Map<UserName, Boolean> areValidUsers(Collection<UserName> userNames)
+			throws AuthenticationException;
 }
@@ -16,7 +16,7 @@ public interface Notifications {
 	
 	void notify(Collection<UserName> targets, GroupRequest request);
 
-	void cancel(RequestID requestID);
+	void cancel(Collection<RequestID> requestIDs);
 
 	void deny(Collection<UserName> targets, GroupRequest request);
 
@@ -0,0 +1,405 @@
+package us.kbase.groups.core.notifications;
+
+import static java.util.Objects.requireNonNull;
+import static us.kbase.groups.util.Util.checkNoNullsInCollection;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceType;
+
+/** A notification that has been stored in an outbox for later delivery to a
+ * {@link Notifications} implementation. Each notification corresponds to a single call
+ * to one of the {@link Notifications} methods.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class OutboxNotification {
+
+	/** The type of the notification, corresponding to the {@link Notifications} method that
+	 * will be called to deliver the notification.
+	 * @author gaprice@lbl.gov
+	 *
+	 */
+	public static enum Type {
+		/** A call to {@link Notifications#notify(Collection, GroupRequest)}. */
+		NOTIFY,
+		/** A call to {@link Notifications#cancel(Collection)}. */
+		CANCEL,
+		/** A call to {@link Notifications#deny(Collection, GroupRequest)}. */
+		DENY,
+		/** A call to {@link Notifications#accept(Collection, GroupRequest)}. */
+		ACCEPT,
+		/** A call to
+		 * {@link Notifications#addResource(UserName, Set, GroupID, ResourceType, ResourceID)}.
+		 */
+		ADD_RESOURCE;
+	}
+
+	private final UUID id;
+	private final Type type;
+	private final Instant creationDate;
+	private final Set<UserName> targets;
+	private final Optional<RequestID> requestID;
+	private final Set<RequestID> cancelledRequestIDs;
+	private final Optional<UserName> user;
+	private final Optional<GroupID> groupID;
+	private final Optional<ResourceType> resourceType;
+	private final Optional<ResourceID> resourceID;
+	private final int attempts;
+
+	private OutboxNotification(
+			final UUID id,
+			final Type type,
+			final Instant creationDate,
+			final Set<UserName> targets,
+			final Optional<RequestID> requestID,
+			final Set<RequestID> cancelledRequestIDs,
+			final Optional<UserName> user,
+			final Optional<GroupID> groupID,
+			final Optional<ResourceType> resourceType,
+			final Optional<ResourceID> resourceID,
+			final int attempts) {
+		this.id = id;
+		this.type = type;
+		this.creationDate = creationDate;
+		this.targets = Collections.unmodifiableSet(targets);
+		this.requestID = requestID;
+		this.cancelledRequestIDs = Collections.unmodifiableSet(cancelledRequestIDs);
+		this.user = user;
+		this.groupID = groupID;
+		this.resourceType = resourceType;
+		this.resourceID = resourceID;
+		this.attempts = attempts;
+	}
+
+	/** Get the ID of the notification.
+	 * @return the ID.
+	 */
+	public UUID getID() {
+		return id;
+	}
+
+	/** Get the type of the notification.
+	 * @return the type.
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/** Get the date the notification was created.
+	 * @return the creation date.
+	 */
+	public Instant getCreationDate() {
+		return creationDate;
+	}
+
+	/** Get the users to be notified.
+	 * @return the targets of the notification.
+	 */
+	public Set<UserName> getTargets() {
+		return targets;
+	}
+
+	/** Get the ID of the request that is the subject of the notification. Always present unless
+	 * the type is {@link Type#CANCEL} or {@link Type#ADD_RESOURCE}.
+	 * @return the request ID.
+	 */
+	public Optional<RequestID> getRequestID() {
+		return requestID;
+	}
+
+	/** Get the IDs of the requests for which notifications are to be cancelled. Empty unless
+	 * the type is {@link Type#CANCEL}.
+	 * @return the request IDs.
+	 */
+	public Set<RequestID> getCancelledRequestIDs() {
+		return cancelledRequestIDs;
+	}
+
+	/** Get the user that added a resource to a group. Only present if the type is
+	 * {@link Type#ADD_RESOURCE}.
+	 * @return the user.
+	 */
+	public Optional<UserName> getUser() {
+		return user;
+	}
+
+	/** Get the ID of the group to which a resource was added. Only present if the type is
+	 * {@link Type#ADD_RESOURCE}.
+	 * @return the group ID.
+	 */
+	public Optional<GroupID> getGroupID() {
+		return groupID;
+	}
+
+	/** Get the type of the resource that was added to a group. Only present if the type is
+	 * {@link Type#ADD_RESOURCE}.
+	 * @return the resource type.
+	 */
+	public Optional<ResourceType> getResourceType() {
+		return resourceType;
+	}
+
+	/** Get the ID of the resource that was added to a group. Only present if the type is
+	 * {@link Type#ADD_RESOURCE}.
+	 * @return the resource ID.
+	 */
+	public Optional<ResourceID> getResourceID() {
+		return resourceID;
+	}
+
+	/** Get the number of failed attempts to deliver the notification.
+	 * @return the number of failed attempts.
+	 */
+	public int getAttempts() {
+		return attempts;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + attempts;
+		result = prime * result + ((cancelledRequestIDs == null) ? 0 :
+				cancelledRequestIDs.hashCode());
+		result = prime * result + ((creationDate == null) ? 0 : creationDate.hashCode());
+		result = prime * result + ((groupID == null) ? 0 : groupID.hashCode());
+		result = prime * result + ((id == null) ? 0 : id.hashCode());
+		result = prime * result + ((requestID == null) ? 0 : requestID.hashCode());
+		result = prime * result + ((resourceID == null) ? 0 : resourceID.hashCode());
+		result = prime * result + ((resourceType == null) ? 0 : resourceType.hashCode());
+		result = prime * result + ((targets == null) ? 0 : targets.hashCode());
+		result = prime * result + ((type == null) ? 0 : type.hashCode());
+		result = prime * result + ((user == null) ? 0 : user.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		OutboxNotification other = (OutboxNotification) obj;
+		if (attempts != other.attempts) {
+			return false;
+		}
+		if (cancelledRequestIDs == null) {
+			if (other.cancelledRequestIDs != null) {
+				return false;
+			}
+		} else if (!cancelledRequestIDs.equals(other.cancelledRequestIDs)) {
+			return false;
+		}
+		if (creationDate == null) {
+			if (other.creationDate != null) {
+				return false;
+			}
+		} else if (!creationDate.equals(other.creationDate)) {
+			return false;
+		}
+		if (groupID == null) {
+			if (other.groupID != null) {
+				return false;
+			}
+		} else if (!groupID.equals(other.groupID)) {
+			return false;
+		}
+		if (id == null) {
+			if (other.id != null) {
+				return false;
+			}
+		} else if (!id.equals(other.id)) {
+			return false;
+		}
+		if (requestID == null) {
+			if (other.requestID != null) {
+				return false;
+			}
+		} else if (!requestID.equals(other.requestID)) {
+			return false;
+		}
+		if (resourceID == null) {
+			if (other.resourceID != null) {
+				return false;
+			}
+		} else if (!resourceID.equals(other.resourceID)) {
+			return false;
+		}
+		if (resourceType == null) {
+			if (other.resourceType != null) {
+				return false;
+			}
+		} else if (!resourceType.equals(other.resourceType)) {
+			return false;
+		}
+		if (targets == null) {
+			if (other.targets != null) {
+				return false;
+			}
+		} else if (!targets.equals(other.targets)) {
+			return false;
+		}
+		if (type != other.type) {
+			return false;
+		}
+		if (user == null) {
+			if (other.user != null) {
+				return false;
+			}
+		} else if (!user.equals(other.user)) {
+			return false;
+		}
+		return true;
+	}
+
+	/** Get a builder for a notification about a request.
+	 * @param id the ID of the notification.
+	 * @param type the type of the notification. May not be {@link Type#CANCEL} or
+	 * {@link Type#ADD_RESOURCE}.
+	 * @param requestID the ID of the request.
+	 * @param creationDate the date the notification was created.
+	 * @return a new builder.
+	 */
+	public static Builder getRequestBuilder(
+			final UUID id,
+			final Type type,
+			final RequestID requestID,
+			final Instant creationDate) {
+		requireNonNull(type, "type");
+		if (Type.CANCEL.equals(type) || Type.ADD_RESOURCE.equals(type)) {
+			throw new IllegalArgumentException(
+					"Request notifications may not be of type " + type);
+		}
+		return new Builder(id, type, creationDate, requireNonNull(requestID, "requestID"),
+				Collections.emptySet(), null, null, null, null);
+	}
+
+	/** Get a builder for a notification cancelling the notifications for one or more requests.
+	 * All the requests are cancelled in a single call to the notifier.
+	 * @param id the ID of the notification.
+	 * @param requestIDs the IDs of the requests.
+	 * @param creationDate the date the notification was created.
+	 * @return a new builder.
+	 */
+	public static Builder getCancelBuilder(
+			final UUID id,
+			final Collection<RequestID> requestIDs,
+			final Instant creationDate) {
+		checkNoNullsInCollection(requestIDs, "requestIDs");
+		if (requestIDs.isEmpty()) {
+			throw new IllegalArgumentException("requestIDs may not be empty");
+		}
+		return new Builder(id, Type.CANCEL, creationDate, null, new HashSet<>(requestIDs),
+				null, null, null, null);
+	}
+
+	/** Get a builder for a notification about a resource that was added to a group.
+	 * @param id the ID of the notification.
+	 * @param user the user that added the resource.
+	 * @param groupID the ID of the group.
+	 * @param resourceType the type of the resource.
+	 * @param resourceID the ID of the resource.
+	 * @param creationDate the date the notification was created.
+	 * @return a new builder.
+	 */
+	public static Builder getAddResourceBuilder(
+			final UUID id,
+			final UserName user,
+			final GroupID groupID,
+			final ResourceType resourceType,
+			final ResourceID resourceID,
+			final Instant creationDate) {
+		return new Builder(id, Type.ADD_RESOURCE, creationDate, null, Collections.emptySet(),
+				requireNonNull(user, "user"),
+				requireNonNull(groupID, "groupID"),
+				requireNonNull(resourceType, "resourceType"),
+				requireNonNull(resourceID, "resourceID"));
+	}
+
+	/** A builder for a {@link OutboxNotification}.
+	 * @author gaprice@lbl.gov
+	 *
+	 */
+	public static class Builder {
+
+		private final UUID id;
+		private final Type type;
+		private final Instant creationDate;
+		private final Optional<RequestID> requestID;
+		private final Set<RequestID> cancelledRequestIDs;
+		private final Optional<UserName> user;
+		private final Optional<GroupID> groupID;
+		private final Optional<ResourceType> resourceType;
+		private final Optional<ResourceID> resourceID;
+		private final Set<UserName> targets = new HashSet<>();
+		private int attempts = 0;
+
+		private Builder(
+				final UUID id,
+				final Type type,
+				final Instant creationDate,
+				final RequestID requestID,
+				final Set<RequestID> cancelledRequestIDs,
+				final UserName user,
+				final GroupID groupID,
+				final ResourceType resourceType,
+				final ResourceID resourceID) {
+			this.id = requireNonNull(id, "id");
+			this.type = type;
+			this.creationDate = requireNonNull(creationDate, "creationDate");
+			this.requestID = Optional.ofNullable(requestID);
+			this.cancelledRequestIDs = cancelledRequestIDs;
+			this.user = Optional.ofNullable(user);
+			this.groupID = Optional.ofNullable(groupID);
+			this.resourceType = Optional.ofNullable(resourceType);
+			this.resourceID = Optional.ofNullable(resourceID);
+		}
+
+		/** Add users to be notified.
+		 * @param targets the users.
+		 * @return this builder.
+		 */
+		public Builder withTargets(final Collection<UserName> targets) {
+			checkNoNullsInCollection(targets, "targets");
+			this.targets.addAll(targets);
+			return this;
+		}
+
+		/** Set the number of failed attempts to deliver the notification. The default is 0.
+		 * @param attempts the number of failed attempts.
+		 * @return this builder.
+		 */
+		public Builder withAttempts(final int attempts) {
+			if (attempts < 0) {
+				throw new IllegalArgumentException("attempts must be >= 0");
+			}
+			this.attempts = attempts;
+			return this;
+		}
+
+		/** Build the {@link OutboxNotification}.
+		 * @return the notification.
+		 */
+		public OutboxNotification build() {
+			return new OutboxNotification(id, type, creationDate, targets, requestID,
+					cancelledRequestIDs, user, groupID, resourceType, resourceID, attempts);
+		}
+	}
+}
@@ -0,0 +1,188 @@
+package us.kbase.groups.core.resource;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.IllegalResourceIDException;
+import us.kbase.groups.core.exceptions.NoSuchResourceException;
+import us.kbase.groups.core.exceptions.ResourceHandlerException;
+
+/** A resource handler that caches the sets of resources each user administrates, as returned
+ * by {@link #getAdministratedResources(UserName)}, from another resource handler. These sets
+ * may be large and expensive to fetch - for example a user may administrate thousands of
+ * workspaces - and are needed every time a user lists the requests that target them.
+ *
+ * A user's cache entry is removed when:
+ * <ul>
+ * <li>{@link #setReadPermission(ResourceID, UserName)} is called for the user.</li>
+ * <li>{@link #isAdministrator(ResourceID, UserName)} returns a result for the user that
+ * disagrees with the cached set.</li>
+ * <li>the user is returned from {@link #getAdministrators(ResourceID)} for a resource that is
+ * not in the cached set, for example when adding a resource the user recently created to a
+ * group.</li>
+ * </ul>
+ * Otherwise, changes in resource administration are visible when the entry expires.
+ * A set fetched from the wrapped handler concurrently with the removal of any entry is not
+ * cached.
+ *
+ * All other methods are passed through to the wrapped handler.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class CachingResourceHandler implements ResourceHandler {
+	
+	private final ResourceHandler wrapped;
+	private final Cache<UserName, Set<ResourceAdministrativeID>> cache;
+	
+	// guards generation and puts into the cache
+	private final Object lock = new Object();
+	private long generation = 0;
+	
+	/** Create the handler.
+	 * @param wrapped the resource handler that provides the administrated resources on a cache
+	 * miss and handles all other methods.
+	 * @param maxSize the maximum number of users for which to cache administrated resources.
+	 * When full, the least recently used entries are evicted.
+	 * @param ttl the time a user's administrated resources are stored in the cache.
+	 */
+	public CachingResourceHandler(
+			final ResourceHandler wrapped,
+			final int maxSize,
+			final Duration ttl) {
+		this(wrapped, maxSize, ttl, Ticker.systemTicker());
+	}
+	
+	// for testing
+	private CachingResourceHandler(
+			final ResourceHandler wrapped,
+			final int maxSize,
+			final Duration ttl,
+			final Ticker ticker) {
+		checkNotNull(wrapped, "wrapped");
+		checkNotNull(ttl, "ttl");
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be > 0");
+		}
+		if (ttl.isZero() || ttl.isNegative()) {
+			throw new IllegalArgumentException("ttl must be positive");
+		}
+		this.wrapped = wrapped;
+		this.cache = CacheBuilder.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(ttl.toNanos(), TimeUnit.NANOSECONDS)
+				.ticker(ticker)
+				.build();
+	}
+	
+	/** Remove a user's administrated resources from the cache.
+	 * @param user the user.
+	 */
+	public void invalidate(final UserName user) {
+		checkNotNull(user, "user");
+		synchronized (lock) {
+			generation++;
+			cache.invalidate(user);
+		}
+	}
+	
+	// removes the user's entry if it disagrees with whether the user administrates the resource
+	private void reconcile(
+			final UserName user,
+			final ResourceAdministrativeID resource,
+			final boolean isAdmin) {
+		final Set<ResourceAdministrativeID> cached = cache.getIfPresent(user);
+		if (cached != null && cached.contains(resource) != isAdmin) {
+			invalidate(user);
+		}
+	}
+	
+	@Override
+	public ResourceDescriptor getDescriptor(final ResourceID resource)
+			throws IllegalResourceIDException, ResourceHandlerException, NoSuchResourceException {
+		return wrapped.getDescriptor(resource);
+	}
+	
+	@Override
+	public boolean isAdministrator(final ResourceID resource, final UserName user)
+			throws IllegalResourceIDException, ResourceHandlerException, NoSuchResourceException {
+		final boolean isAdmin = wrapped.isAdministrator(resource, user);
+		if (cache.getIfPresent(user) != null) {
+			reconcile(user, wrapped.getDescriptor(resource).getAdministrativeID(), isAdmin);
+		}
+		return isAdmin;
+	}
+	
+	@Override
+	public boolean isPublic(final ResourceID resource)
+			throws IllegalResourceIDException, ResourceHandlerException, NoSuchResourceException {
+		return wrapped.isPublic(resource);
+	}
+	
+	@Override
+	public Set<UserName> getAdministrators(final ResourceID resource)
+			throws IllegalResourceIDException, NoSuchResourceException, ResourceHandlerException {
+		final Set<UserName> admins = wrapped.getAdministrators(resource);
+		// avoid getting the descriptor if none of the admins are cached
+		if (admins.stream().anyMatch(u -> cache.getIfPresent(u) != null)) {
+			final ResourceAdministrativeID aid = wrapped.getDescriptor(resource)
+					.getAdministrativeID();
+			for (final UserName u: admins) {
+				reconcile(u, aid, true);
+			}
+		}
+		return admins;
+	}
+	
+	@Override
+	public Set<ResourceAdministrativeID> getAdministratedResources(final UserName user)
+			throws ResourceHandlerException {
+		checkNotNull(user, "user");
+		final Set<ResourceAdministrativeID> cached = cache.getIfPresent(user);
+		if (cached != null) {
+			return cached;
+		}
+		final long gen;
+		synchronized (lock) {
+			gen = generation;
+		}
+		final Set<ResourceAdministrativeID> res = Collections.unmodifiableSet(
+				new HashSet<>(wrapped.getAdministratedResources(user)));
+		synchronized (lock) {
+			if (gen == generation) {
+				cache.put(user, res);
+			}
+		}
+		return res;
+	}
+	
+	@Override
+	public ResourceInformationSet getResourceInformation(
+			final UserName user,
+			final Set<ResourceID> resources,
+			final ResourceAccess access)
+			throws IllegalResourceIDException, ResourceHandlerException {
+		return wrapped.getResourceInformation(user, resources, access);
+	}
+	
+	@Override
+	public void setReadPermission(final ResourceID resource, final UserName user)
+			throws IllegalResourceIDException, NoSuchResourceException, ResourceHandlerException {
+		try {
+			wrapped.setReadPermission(resource, user);
+		} finally {
+			if (user != null) {
+				invalidate(user);
+			}
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package us.kbase.groups.metrics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/** A latency histogram with fixed buckets. Safe for concurrent use.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class LatencyHistogram {
+
+	/** The upper bounds, in seconds, of the histogram buckets, excluding the final unbounded
+	 * bucket.
+	 */
+	public static final List<Double> BUCKETS = Collections.unmodifiableList(Arrays.asList(
+			0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1.0, 2.5, 5.0, 10.0));
+
+	private static final long[] BUCKETS_NS = BUCKETS.stream()
+			.mapToLong(b -> (long) (b * 1_000_000_000L)).toArray();
+
+	// the last adder is the unbounded bucket
+	private final LongAdder[] counts = new LongAdder[BUCKETS_NS.length + 1];
+	private final LongAdder sumNS = new LongAdder();
+
+	/** Create an empty histogram. */
+	public LatencyHistogram() {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = new LongAdder();
+		}
+	}
+
+	/** Record an observation.
+	 * @param durationNS the observed duration in nanoseconds. Negative durations are
+	 * treated as 0.
+	 */
+	public void observe(final long durationNS) {
+		final long d = Math.max(durationNS, 0);
+		int i = 0;
+		while (i < BUCKETS_NS.length && d > BUCKETS_NS[i]) {
+			i++;
+		}
+		counts[i].increment();
+		sumNS.add(d);
+	}
+
+	/** Get the cumulative counts for each bucket - e.g. the count for each bucket is the number
+	 * of observations less than or equal to the upper bound of the bucket. The list is one
+	 * longer than {@link #BUCKETS}, with the final entry being the count for the unbounded
+	 * bucket, and therefore the total count.
+	 * @return the cumulative counts.
+	 */
+	public List<Long> getCumulativeCounts() {
+		final Long[] ret = new Long[counts.length];
+		long total = 0;
+		for (int i = 0; i < counts.length; i++) {
+			total += counts[i].sum();
+			ret[i] = total;
+		}
+		return Arrays.asList(ret);
+	}
+
+	/** Get the sum of the observations in seconds.
+	 * @return the sum.
+	 */
+	public double getSumSeconds() {
+		return sumNS.sum() / 1_000_000_000.0;
+	}
+
+}
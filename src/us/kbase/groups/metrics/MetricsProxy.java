@@ -0,0 +1,81 @@
+package us.kbase.groups.metrics;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static us.kbase.groups.util.Util.exceptOnEmpty;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/** Wraps an implementation of an interface such that every call to the interface methods is
+ * timed and recorded in a {@link MetricsRegistry} as a dependency call, using the method name
+ * as the operation. Exceptions thrown by the implementation are counted and rethrown unchanged.
+ * Calls to the {@link Object} methods, e.g. {@link Object#toString()}, are passed through
+ * without being recorded.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class MetricsProxy {
+
+	private MetricsProxy() {}
+
+	/** Wrap an implementation of an interface.
+	 * @param <T> the type of the interface.
+	 * @param iface the interface class.
+	 * @param delegate the implementation of the interface to wrap.
+	 * @param dependency the name of the dependency, e.g. mongo or workspace.
+	 * @param registry the registry in which to record metrics.
+	 * @return the wrapped implementation.
+	 */
+	public static <T> T instrument(
+			final Class<T> iface,
+			final T delegate,
+			final String dependency,
+			final MetricsRegistry registry) {
+		checkNotNull(iface, "iface");
+		checkNotNull(delegate, "delegate");
+		exceptOnEmpty(dependency, "dependency");
+		checkNotNull(registry, "registry");
+		if (!iface.isInterface()) {
+			throw new IllegalArgumentException(iface.getName() + " is not an interface");
+		}
+		return iface.cast(Proxy.newProxyInstance(
+				iface.getClassLoader(),
+				new Class<?>[] {iface},
+				(proxy, method, args) -> invoke(delegate, dependency, registry, method, args)));
+	}
+
+	private static Object invoke(
+			final Object delegate,
+			final String dependency,
+			final MetricsRegistry registry,
+			final Method method,
+			final Object[] args)
+			throws Throwable {
+		if (method.getDeclaringClass().equals(Object.class)) {
+			return callDelegate(delegate, method, args);
+		}
+		final long start = System.nanoTime();
+		try {
+			return callDelegate(delegate, method, args);
+		} catch (Throwable t) {
+			registry.countDependencyError(dependency, method.getName(), t);
+			throw t;
+		} finally {
+			registry.observeDependencyCall(
+					dependency, method.getName(), System.nanoTime() - start);
+		}
+	}
+
+	private static Object callDelegate(
+			final Object delegate,
+			final Method method,
+			final Object[] args)
+			throws Throwable {
+		try {
+			return method.invoke(delegate, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+}
@@ -0,0 +1,235 @@
+package us.kbase.groups.metrics;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static us.kbase.groups.util.Util.exceptOnEmpty;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/** A registry of metrics for the service. Records the latency of the API endpoints and of the
+ * calls to the service's dependencies - e.g. the storage system and the authentication,
+ * workspace, and notification services - and the number of dependency calls that fail.
+ * Also reports the hit and miss counts of any registered caches.
+ *
+ * Safe for concurrent use.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class MetricsRegistry {
+
+	/** The name of the API request latency histogram. */
+	public static final String REQUEST_DURATION = "groups_http_request_duration_seconds";
+	/** The name of the dependency call latency histogram. */
+	public static final String DEPENDENCY_DURATION = "groups_dependency_call_duration_seconds";
+	/** The name of the dependency call error counter. */
+	public static final String DEPENDENCY_ERRORS = "groups_dependency_call_errors_total";
+	/** The name of the cache hit counter. */
+	public static final String CACHE_HITS = "groups_cache_hits_total";
+	/** The name of the cache miss counter. */
+	public static final String CACHE_MISSES = "groups_cache_misses_total";
+
+	/** The media type for the Prometheus text format. */
+	public static final String PROMETHEUS_MEDIA_TYPE = "text/plain; version=0.0.4";
+
+	private static final List<String> REQUEST_LABELS = Arrays.asList(
+			"method", "route", "status");
+	private static final List<String> DEPENDENCY_LABELS = Arrays.asList(
+			"dependency", "operation");
+	private static final List<String> ERROR_LABELS = Arrays.asList(
+			"dependency", "operation", "exception");
+	private static final List<String> CACHE_LABELS = Arrays.asList("cache");
+
+	// sorts label values for a stable output order
+	private static final Comparator<List<String>> LABEL_ORDER = (l1, l2) -> {
+		for (int i = 0; i < l1.size(); i++) {
+			final int c = l1.get(i).compareTo(l2.get(i));
+			if (c != 0) {
+				return c;
+			}
+		}
+		return 0;
+	};
+
+	// label values -> metric. Label values are always in the order of the label lists above.
+	private final Map<List<String>, LatencyHistogram> requests = new ConcurrentHashMap<>();
+	private final Map<List<String>, LatencyHistogram> dependencies = new ConcurrentHashMap<>();
+	private final Map<List<String>, LongAdder> errors = new ConcurrentHashMap<>();
+	private final Map<List<String>, LongSupplier> cacheHits = new ConcurrentHashMap<>();
+	private final Map<List<String>, LongSupplier> cacheMisses = new ConcurrentHashMap<>();
+
+	/** Record the latency of an API request.
+	 * @param method the HTTP method of the request.
+	 * @param route the route template of the request, e.g. /group/{groupid}, not the
+	 * actual path.
+	 * @param status the HTTP status code of the response.
+	 * @param durationNS the duration of the request in nanoseconds.
+	 */
+	public void observeRequest(
+			final String method,
+			final String route,
+			final int status,
+			final long durationNS) {
+		exceptOnEmpty(method, "method");
+		exceptOnEmpty(route, "route");
+		requests.computeIfAbsent(Arrays.asList(method, route, status + ""),
+				k -> new LatencyHistogram()).observe(durationNS);
+	}
+
+	/** Record the latency of a call to a dependency of the service.
+	 * @param dependency the name of the dependency, e.g. mongo or workspace.
+	 * @param operation the name of the operation.
+	 * @param durationNS the duration of the call in nanoseconds.
+	 */
+	public void observeDependencyCall(
+			final String dependency,
+			final String operation,
+			final long durationNS) {
+		exceptOnEmpty(dependency, "dependency");
+		exceptOnEmpty(operation, "operation");
+		dependencies.computeIfAbsent(Arrays.asList(dependency, operation),
+				k -> new LatencyHistogram()).observe(durationNS);
+	}
+
+	/** Count a call to a dependency that threw an exception. Note that some exceptions, like
+	 * a request for a group that does not exist, do not necessarily indicate a problem with
+	 * the dependency, and so the exception class is recorded with the count.
+	 * @param dependency the name of the dependency, e.g. mongo or workspace.
+	 * @param operation the name of the operation.
+	 * @param error the exception thrown by the dependency.
+	 */
+	public void countDependencyError(
+			final String dependency,
+			final String operation,
+			final Throwable error) {
+		exceptOnEmpty(dependency, "dependency");
+		exceptOnEmpty(operation, "operation");
+		checkNotNull(error, "error");
+		errors.computeIfAbsent(Arrays.asList(
+				dependency, operation, error.getClass().getSimpleName()),
+				k -> new LongAdder()).increment();
+	}
+
+	/** Register a cache so that its hit and miss counts are reported. The counts are read from
+	 * the suppliers whenever the metrics are retrieved. Registering a cache with the name of a
+	 * previously registered cache replaces the previous cache.
+	 * @param cache the name of the cache, e.g. token or group.
+	 * @param hits a supplier of the number of cache hits.
+	 * @param misses a supplier of the number of cache misses.
+	 */
+	public void registerCache(
+			final String cache,
+			final LongSupplier hits,
+			final LongSupplier misses) {
+		exceptOnEmpty(cache, "cache");
+		checkNotNull(hits, "hits");
+		checkNotNull(misses, "misses");
+		cacheHits.put(Arrays.asList(cache), hits);
+		cacheMisses.put(Arrays.asList(cache), misses);
+	}
+
+	/** Get the metrics in the Prometheus text exposition format, version 0.0.4.
+	 * @return the metrics.
+	 */
+	public String toPrometheusText() {
+		final StringBuilder sb = new StringBuilder();
+		writeHistograms(sb, REQUEST_DURATION, "Latency of API requests by route.",
+				REQUEST_LABELS, requests);
+		writeHistograms(sb, DEPENDENCY_DURATION,
+				"Latency of calls to the service's dependencies.",
+				DEPENDENCY_LABELS, dependencies);
+		writeHeader(sb, DEPENDENCY_ERRORS,
+				"Calls to the service's dependencies that threw an exception.", "counter");
+		final Map<List<String>, LongAdder> sortedErrors = new TreeMap<>(LABEL_ORDER);
+		sortedErrors.putAll(errors);
+		for (final Entry<List<String>, LongAdder> e: sortedErrors.entrySet()) {
+			sb.append(DEPENDENCY_ERRORS);
+			writeLabels(sb, ERROR_LABELS, e.getKey(), null);
+			sb.append(" ").append(e.getValue().sum()).append("\n");
+		}
+		writeCacheCounters(sb, CACHE_HITS, "Cache lookups that found the entry.", cacheHits);
+		writeCacheCounters(sb, CACHE_MISSES, "Cache lookups that did not find the entry.",
+				cacheMisses);
+		return sb.toString();
+	}
+
+	private void writeCacheCounters(
+			final StringBuilder sb,
+			final String name,
+			final String help,
+			final Map<List<String>, LongSupplier> counters) {
+		writeHeader(sb, name, help, "counter");
+		final Map<List<String>, LongSupplier> sorted = new TreeMap<>(LABEL_ORDER);
+		sorted.putAll(counters);
+		for (final Entry<List<String>, LongSupplier> e: sorted.entrySet()) {
+			sb.append(name);
+			writeLabels(sb, CACHE_LABELS, e.getKey(), null);
+			sb.append(" ").append(e.getValue().getAsLong()).append("\n");
+		}
+	}
+
+	private void writeHistograms(
+			final StringBuilder sb,
+			final String name,
+			final String help,
+			final List<String> labels,
+			final Map<List<String>, LatencyHistogram> histograms) {
+		writeHeader(sb, name, help, "histogram");
+		final Map<List<String>, LatencyHistogram> sorted = new TreeMap<>(LABEL_ORDER);
+		sorted.putAll(histograms);
+		for (final Entry<List<String>, LatencyHistogram> e: sorted.entrySet()) {
+			final List<Long> counts = e.getValue().getCumulativeCounts();
+			for (int i = 0; i < counts.size(); i++) {
+				final String le = i < LatencyHistogram.BUCKETS.size() ?
+						LatencyHistogram.BUCKETS.get(i).toString() : "+Inf";
+				sb.append(name).append("_bucket");
+				writeLabels(sb, labels, e.getKey(), le);
+				sb.append(" ").append(counts.get(i)).append("\n");
+			}
+			sb.append(name).append("_sum");
+			writeLabels(sb, labels, e.getKey(), null);
+			sb.append(" ").append(e.getValue().getSumSeconds()).append("\n");
+			sb.append(name).append("_count");
+			writeLabels(sb, labels, e.getKey(), null);
+			sb.append(" ").append(counts.get(counts.size() - 1)).append("\n");
+		}
+	}
+
+	private void writeHeader(
+			final StringBuilder sb,
+			final String name,
+			final String help,
+			final String type) {
+		sb.append("# HELP ").append(name).append(" ").append(help).append("\n");
+		sb.append("# TYPE ").append(name).append(" ").append(type).append("\n");
+	}
+
+	// le is the histogram bucket upper bound or null for no bucket label
+	private void writeLabels(
+			final StringBuilder sb,
+			final List<String> labels,
+			final List<String> values,
+			final String le) {
+		sb.append("{");
+		for (int i = 0; i < labels.size(); i++) {
+			if (i > 0) {
+				sb.append(",");
+			}
+			sb.append(labels.get(i)).append("=\"").append(escape(values.get(i))).append("\"");
+		}
+		if (le != null) {
+			sb.append(",le=\"").append(le).append("\"");
+		}
+		sb.append("}");
+	}
+
+	private static String escape(final String labelValue) {
+		return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+}
@@ -1,5 +1,6 @@
 package us.kbase.groups.notifications;
 
+import static us.kbase.groups.util.Util.checkNoNullsInCollection;
 import static us.kbase.groups.util.Util.checkString;
 
 import java.io.IOException;
@@ -188,16 +189,29 @@ public class DirectFeedsServiceNotifierFactory implements NotificationsFactory {
 
 			final Response res = req.post(Entity.json(post));
 			
-			System.out.println(res.readEntity(String.class));
+			checkResponse(res);
 			
 			//TODO FEEDS LOG log id (or just the entire package?)
-			
-			//TODO FEEDS retry on fail - circular queue? should probably submit these to a queue in the first place and return immediately. put in DB?
+		}
+		
+		// throwing an exception causes the notification dispatcher to retry the notification
+		private void checkResponse(final Response res) {
+			final String body = res.readEntity(String.class);
+			if (res.getStatus() < 200 || res.getStatus() > 299) {
+				throw new RuntimeException(String.format(
+						"Error contacting feeds service, status code %s: %s",
+						res.getStatus(), truncate(body)));
+			}
+			LoggerFactory.getLogger(getClass()).debug(
+					"Feeds service response: " + truncate(body));
 		}
 		
 		@Override
-		public void cancel(final RequestID requestID) {
-			
+		public void cancel(final Collection<RequestID> requestIDs) {
+			checkNoNullsInCollection(requestIDs, "requestIDs");
+			if (requestIDs.isEmpty()) {
+				return;
+			}
 			final URI target = UriBuilder.fromUri(url).path(PATH_EXPIRE).build();
 			
 			final WebTarget wt = CLI.target(target);
@@ -205,13 +219,11 @@ public class DirectFeedsServiceNotifierFactory implements NotificationsFactory {
 
 			final Response res = req.post(Entity.json(ImmutableMap.of(
 					"source", SOURCE,
-					"external_keys", Arrays.asList(requestID.getID()))));
+					"external_keys", requestIDs.stream().map(r -> r.getID())
+							.collect(Collectors.toList()))));
 			
-			// TODO FEEDS check for failure - see https://github.com/kbase/feeds#expire-a-notification-right-away
-			System.out.println(res.readEntity(String.class));
-			
-			//TODO FEEDS retry on fail - circular queue? should probably submit these to a queue in the first place and return immediately. put in DB?
-		
+			// see https://github.com/kbase/feeds#expire-a-notification-right-away
+			checkResponse(res);
 		}
 		
 		@Override
@@ -14,6 +14,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -48,17 +49,13 @@ public class KafkaFeedsNotifierFactory implements NotificationsFactory {
 	
 	/* Since this is expected to deal with low volumes (basically just adding users to groups
 	 * based on user input plus admins adding resources here and there), we do things
-	 * that slow down the send operation but improve reliability and user messaging:
+	 * that slow down the send operation but improve reliability:
 	 * 1) Require full write to replicates before Kafka returns
-	 * 2) Wait for the return and check it worked. If not, throw an exception *in the calling
-	 * thread*. Thus the user is notified if something goes wrong, and they can cancel
-	 * their request and try again if they want (this obviously doesn't work for accepting and
-	 * denying requests. If something goes wrong there, too bad).
-	 * 
-	 * If this turns out to be a bad plan, we may need to relax those requirements.
+	 * 2) Wait for the return and check it worked. If not, throw an exception.
 	 * 
-	 * To improve reliability further, we'd need persistent storage of unsent feeds messages -
-	 * maybe a flag on the request object?.
+	 * The notifier is called by the NotificationDispatcher from the notification outbox
+	 * rather than in the request thread, so the wait doesn't affect users, and an exception
+	 * causes the dispatcher to retry the notification later.
 	 */
 	
 	private static final String KAFKA = "Kafka";
@@ -199,12 +196,16 @@ public class KafkaFeedsNotifierFactory implements NotificationsFactory {
 		}
 
 		@Override
-		public void cancel(final RequestID requestID) {
+		public void cancel(final Collection<RequestID> requestIDs) {
+			checkNoNullsInCollection(requestIDs, "requestIDs");
+			if (requestIDs.isEmpty()) {
+				return;
+			}
 			post(ImmutableMap.of(
 					OP, OP_CANCEL,
 					SOURCE, GROUP_SOURCE,
-					"external_ids", Arrays.asList(
-							requireNonNull(requestID, "requestID").getID())));
+					"external_ids", requestIDs.stream().map(r -> r.getID())
+							.collect(Collectors.toList())));
 		}
 
 		@Override
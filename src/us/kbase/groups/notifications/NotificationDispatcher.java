@@ -0,0 +1,235 @@
+package us.kbase.groups.notifications;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.LoggerFactory;
+
+import us.kbase.groups.core.exceptions.NoSuchRequestException;
+import us.kbase.groups.core.notifications.Notifications;
+import us.kbase.groups.core.notifications.OutboxNotification;
+import us.kbase.groups.core.notifications.OutboxNotification.Type;
+import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.storage.GroupsStorage;
+import us.kbase.groups.storage.LeaderLease;
+import us.kbase.groups.storage.exceptions.GroupsStorageException;
+
+/** Delivers notifications stored in the storage system's notification outbox, usually by an
+ * {@link OutboxNotifier}, to a notifier.
+ *
+ * Notifications are claimed from the outbox in batches. Notifications that are delivered
+ * successfully are removed from the outbox, while notifications that fail are rescheduled
+ * with an exponential backoff. Notifications may be delivered more than once if a
+ * process dies mid delivery or a delivery takes longer than the claim time, and so
+ * the notifier must tolerate duplicates.
+ *
+ * Notifications are not necessarily delivered in the order they were stored, since a failed
+ * notification may be retried after later notifications are delivered. A request notification
+ * for a request that is no longer open is therefore discarded rather than delivered after the
+ * notification that closed the request.
+ *
+ * If multiple processes share the storage system, only the dispatcher holding the dispatch
+ * {@link LeaderLease} delivers notifications in the background. The other dispatchers take
+ * over within 30 seconds if the leader stops.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class NotificationDispatcher {
+
+	/** The maximum number of notifications claimed from the outbox at once. */
+	public static final int BATCH_SIZE = 10;
+
+	// how long a claimed batch is reserved for this dispatcher. Needs to be long enough to
+	// deliver a full batch even when the notification service is timing out.
+	private static final Duration CLAIM_TIME = Duration.ofMinutes(10);
+	private static final Duration MIN_BACKOFF = Duration.ofSeconds(10);
+	private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+	private static final long POLL_INTERVAL_MS = 1000;
+	private static final String DISPATCH_LEASE = "notificationdispatch";
+	private static final Duration LEASE_TTL = Duration.ofSeconds(30);
+	private static final long STOP_WAIT_SEC = 60;
+
+	private final GroupsStorage storage;
+	private final Notifications notifier;
+	private final Clock clock;
+
+	private ScheduledExecutorService executor;
+	private LeaderLease lease;
+	private boolean running = false;
+
+	/** Create the dispatcher. The dispatcher does not deliver notifications until
+	 * {@link #start()} is called.
+	 * @param storage the storage system containing the notification outbox.
+	 * @param notifier the notifier to which notifications will be delivered.
+	 */
+	public NotificationDispatcher(final GroupsStorage storage, final Notifications notifier) {
+		this(storage, notifier, Clock.systemDefaultZone());
+	}
+
+	// for testing
+	private NotificationDispatcher(
+			final GroupsStorage storage,
+			final Notifications notifier,
+			final Clock clock) {
+		this.storage = requireNonNull(storage, "storage");
+		this.notifier = requireNonNull(notifier, "notifier");
+		this.clock = clock;
+	}
+
+	/** Start delivering notifications in a background thread. The outbox is polled every
+	 * second and drained fully each time it is polled, as long as this dispatcher holds the
+	 * dispatch lease.
+	 * @throws IllegalArgumentException if the dispatcher is already running.
+	 */
+	public synchronized void start() {
+		if (running) {
+			throw new IllegalArgumentException("The dispatcher is already running");
+		}
+		running = true;
+		lease = new LeaderLease(storage, DISPATCH_LEASE, LEASE_TTL);
+		executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			final Thread t = new Thread(r, "notification-dispatcher");
+			t.setDaemon(true);
+			return t;
+		});
+		executor.scheduleWithFixedDelay(
+				new DispatchAgent(lease), 0, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+	}
+
+	/** Returns true if the dispatcher is running, false otherwise.
+	 * @return true if the dispatcher is running.
+	 */
+	public synchronized boolean isRunning() {
+		return running;
+	}
+
+	/** Stops the dispatcher and releases the dispatch lease so that a dispatcher in another
+	 * process can take over immediately. Waits up to one minute for any batch of notifications
+	 * in the process of being delivered to finish, so that the deliveries are recorded before
+	 * the storage system is closed. Calling this method multiple times in succession has no
+	 * effect.
+	 */
+	public void stop() {
+		final ScheduledExecutorService exe;
+		final LeaderLease l;
+		// don't hold the lock while waiting, as the agent checks isRunning() between batches
+		synchronized (this) {
+			running = false;
+			exe = executor;
+			l = lease;
+		}
+		if (exe != null) {
+			exe.shutdown();
+			try {
+				exe.awaitTermination(STOP_WAIT_SEC, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (l != null) {
+			try {
+				l.release();
+			} catch (GroupsStorageException e) {
+				// the lease will expire on its own
+				LoggerFactory.getLogger(getClass()).error(
+						"Error releasing dispatch lease: " + e.getMessage(), e);
+			}
+		}
+	}
+
+	private class DispatchAgent implements Runnable {
+
+		private final LeaderLease lease;
+
+		private DispatchAgent(final LeaderLease lease) {
+			this.lease = lease;
+		}
+
+		@Override
+		public void run() {
+			try {
+				if (!lease.checkLeadership().isPresent()) {
+					return; // another process is delivering notifications
+				}
+				while (isRunning() && dispatch() == BATCH_SIZE) {
+					// keep going, there are probably more notifications
+				}
+			} catch (Throwable e) {
+				// usually a lost connection to the storage system. Any claimed notifications
+				// will be retried when the claim expires.
+				LoggerFactory.getLogger(getClass()).error(
+						"Error dispatching notifications: " + e.getMessage(), e);
+			}
+		}
+	}
+
+	/** Claim and deliver a single batch of notifications. At most {@link #BATCH_SIZE}
+	 * notifications are delivered.
+	 * @return the number of notifications claimed from the outbox.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	public int dispatch() throws GroupsStorageException {
+		final Instant now = clock.instant();
+		final List<OutboxNotification> batch = storage.claimNotifications(
+				now, now.plus(CLAIM_TIME), BATCH_SIZE);
+		for (final OutboxNotification n: batch) {
+			try {
+				send(n);
+			} catch (NoSuchRequestException e) {
+				// nothing to be done, so drop the notification
+				LoggerFactory.getLogger(getClass()).error(String.format(
+						"Discarding notification %s: %s", n.getID(), e.getMessage()), e);
+			} catch (Exception e) {
+				final Duration backoff = getBackoff(n.getAttempts());
+				LoggerFactory.getLogger(getClass()).error(String.format(
+						"Failed delivering notification %s on attempt %s, retrying in %s " +
+						"seconds: %s",
+						n.getID(), n.getAttempts() + 1, backoff.getSeconds(), e.getMessage()),
+						e);
+				storage.retryNotification(n.getID(), clock.instant().plus(backoff));
+				continue;
+			}
+			storage.removeNotification(n.getID());
+		}
+		return batch.size();
+	}
+
+	private Duration getBackoff(final int attempts) {
+		// cap the exponent to prevent overflow
+		final Duration backoff = MIN_BACKOFF.multipliedBy(1L << Math.min(attempts, 20));
+		return backoff.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff;
+	}
+
+	private void send(final OutboxNotification n)
+			throws NoSuchRequestException, GroupsStorageException {
+		if (Type.ADD_RESOURCE.equals(n.getType())) {
+			notifier.addResource(n.getUser().get(), n.getTargets(), n.getGroupID().get(),
+					n.getResourceType().get(), n.getResourceID().get());
+		} else if (Type.CANCEL.equals(n.getType())) {
+			notifier.cancel(n.getCancelledRequestIDs());
+		} else {
+			final GroupRequest r = storage.getRequest(n.getRequestID().get());
+			if (Type.NOTIFY.equals(n.getType())) {
+				if (!r.isOpen()) {
+					// the request was closed while the notification waited for delivery
+					LoggerFactory.getLogger(getClass()).info(String.format(
+							"Discarding notification %s for closed request %s",
+							n.getID(), r.getID().getID()));
+					return;
+				}
+				notifier.notify(n.getTargets(), r);
+			} else if (Type.ACCEPT.equals(n.getType())) {
+				notifier.accept(n.getTargets(), r);
+			} else {
+				notifier.deny(n.getTargets(), r);
+			}
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package us.kbase.groups.notifications;
+
+import static java.util.Objects.requireNonNull;
+import static us.kbase.groups.util.Util.checkNoNullsInCollection;
+
+import java.time.Clock;
+import java.util.Collection;
+import java.util.Set;
+
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.UUIDGenerator;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.notifications.Notifications;
+import us.kbase.groups.core.notifications.OutboxNotification;
+import us.kbase.groups.core.notifications.OutboxNotification.Type;
+import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.storage.GroupsStorage;
+import us.kbase.groups.storage.exceptions.GroupsStorageException;
+
+/** A notifier that stores notifications in the storage system's notification outbox rather
+ * than sending them. A {@link NotificationDispatcher} is then responsible for delivering the
+ * notifications to the actual notifier.
+ *
+ * Storing a notification is fast and does not depend on the health of the notification
+ * service, and notifications are not lost if the notification service is unavailable.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class OutboxNotifier implements Notifications {
+
+	private final GroupsStorage storage;
+	private final UUIDGenerator uuidGen;
+	private final Clock clock;
+
+	/** Create the notifier.
+	 * @param storage the storage system containing the notification outbox.
+	 */
+	public OutboxNotifier(final GroupsStorage storage) {
+		this(storage, new UUIDGenerator(), Clock.systemDefaultZone());
+	}
+
+	// for testing
+	private OutboxNotifier(
+			final GroupsStorage storage,
+			final UUIDGenerator uuidGen,
+			final Clock clock) {
+		this.storage = requireNonNull(storage, "storage");
+		this.uuidGen = uuidGen;
+		this.clock = clock;
+	}
+
+	private void store(final OutboxNotification notification) {
+		try {
+			storage.storeNotification(notification);
+		} catch (GroupsStorageException e) {
+			throw new RuntimeException("Failed storing notification: " + e.getMessage(), e);
+		}
+	}
+
+	private void storeRequestNotification(
+			final Type type,
+			final Collection<UserName> targets,
+			final RequestID requestID) {
+		store(OutboxNotification.getRequestBuilder(
+				uuidGen.randomUUID(), type, requestID, clock.instant())
+				.withTargets(targets)
+				.build());
+	}
+
+	@Override
+	public void notify(final Collection<UserName> targets, final GroupRequest request) {
+		checkNoNullsInCollection(targets, "targets");
+		requireNonNull(request, "request");
+		storeRequestNotification(Type.NOTIFY, targets, request.getID());
+	}
+
+	@Override
+	public void cancel(final Collection<RequestID> requestIDs) {
+		checkNoNullsInCollection(requestIDs, "requestIDs");
+		if (requestIDs.isEmpty()) {
+			return;
+		}
+		// one notification for all the requests so they're delivered in a single call
+		store(OutboxNotification.getCancelBuilder(
+				uuidGen.randomUUID(), requestIDs, clock.instant())
+				.build());
+	}
+
+	@Override
+	public void deny(final Collection<UserName> targets, final GroupRequest request) {
+		checkNoNullsInCollection(targets, "targets");
+		requireNonNull(request, "request");
+		storeRequestNotification(Type.DENY, targets, request.getID());
+	}
+
+	@Override
+	public void accept(final Collection<UserName> targets, final GroupRequest request) {
+		checkNoNullsInCollection(targets, "targets");
+		requireNonNull(request, "request");
+		storeRequestNotification(Type.ACCEPT, targets, request.getID());
+	}
+
+	@Override
+	public void addResource(
+			final UserName user,
+			final Set<UserName> targets,
+			final GroupID groupID,
+			final ResourceType type,
+			final ResourceID resource) {
+		checkNoNullsInCollection(targets, "targets");
+		store(OutboxNotification.getAddResourceBuilder(
+				uuidGen.randomUUID(), user, groupID, type, resource, clock.instant())
+				.withTargets(targets)
+				.build());
+	}
+}
@@ -57,9 +57,11 @@ public class SLF4JNotifierFactory implements NotificationsFactory {
 		}
 	
 		@Override
-		public void cancel(final RequestID requestID) {
-			LoggerFactory.getLogger(getClass()).info(String.format(
-					"Canceled request %s", requestID.getID()));
+		public void cancel(final Collection<RequestID> requestIDs) {
+			for (final RequestID id: requestIDs) {
+				LoggerFactory.getLogger(getClass()).info(String.format(
+						"Canceled request %s", id.getID()));
+			}
 		}
 		
 		@Override
@@ -0,0 +1,98 @@
+package us.kbase.groups.service;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.glassfish.jersey.server.ManagedAsync;
+import org.glassfish.jersey.server.ManagedAsyncExecutor;
+import org.glassfish.jersey.spi.ExecutorServiceProvider;
+
+/** Provides the executor that runs API methods annotated with {@link ManagedAsync}, which
+ * frees the servlet container threads while the API methods wait on the database and external
+ * services.
+ *
+ * The call information (see {@link SLF4JAutoLogger}) for the call being handled in the
+ * thread submitting a task is set in the thread running the task, so that log messages and
+ * error responses from the task include the call ID.
+ * @author gaprice@lbl.gov
+ *
+ */
+@ManagedAsyncExecutor
+public class APIExecutorProvider implements ExecutorServiceProvider {
+	
+	private final ExecutorService executor;
+	
+	/** Create the provider.
+	 * @param executor the executor that will run the API methods. The executor is shut down
+	 * when the provider is disposed.
+	 * @param logger the service logger.
+	 */
+	public APIExecutorProvider(final ExecutorService executor, final SLF4JAutoLogger logger) {
+		checkNotNull(executor, "executor");
+		checkNotNull(logger, "logger");
+		this.executor = new CallInfoExecutor(executor, logger);
+	}
+	
+	@Override
+	public ExecutorService getExecutorService() {
+		return executor;
+	}
+	
+	@Override
+	public void dispose(final ExecutorService executorService) {
+		executorService.shutdown();
+	}
+	
+	private static class CallInfoExecutor extends AbstractExecutorService {
+		
+		private final ExecutorService executor;
+		private final SLF4JAutoLogger logger;
+		
+		private CallInfoExecutor(final ExecutorService executor, final SLF4JAutoLogger logger) {
+			this.executor = executor;
+			this.logger = logger;
+		}
+		
+		@Override
+		public void execute(final Runnable command) {
+			// called in the thread handling the call, so get the call info now
+			final String method = logger.getCallMethod();
+			final String id = logger.getCallID();
+			final String ip = logger.getCallIPAddress();
+			executor.execute(() -> {
+				logger.setCallInfo(method, id, ip);
+				command.run();
+			});
+		}
+		
+		@Override
+		public void shutdown() {
+			executor.shutdown();
+		}
+		
+		@Override
+		public List<Runnable> shutdownNow() {
+			return executor.shutdownNow();
+		}
+		
+		@Override
+		public boolean isShutdown() {
+			return executor.isShutdown();
+		}
+		
+		@Override
+		public boolean isTerminated() {
+			return executor.isTerminated();
+		}
+		
+		@Override
+		public boolean awaitTermination(final long timeout, final TimeUnit unit)
+				throws InterruptedException {
+			return executor.awaitTermination(timeout, unit);
+		}
+	}
+}
@@ -12,6 +12,8 @@ import us.kbase.groups.build.GroupsBuilder;
 import us.kbase.groups.config.GroupsConfig;
 import us.kbase.groups.config.GroupsConfigurationException;
 import us.kbase.groups.core.Groups;
+import us.kbase.groups.core.ServiceAdministrators;
+import us.kbase.groups.metrics.MetricsRegistry;
 import us.kbase.groups.service.exceptions.ExceptionHandler;
 import us.kbase.groups.storage.exceptions.StorageInitException;
 
@@ -21,6 +23,7 @@ public class GroupsService extends ResourceConfig {
 	//TODO JAVADOC
 	
 	private static MongoClient mc;
+	private static GroupsBuilder builder;
 	@SuppressWarnings("unused")
 	private final SLF4JAutoLogger logger; //keep a reference to prevent GC
 	
@@ -56,23 +59,33 @@ public class GroupsService extends ResourceConfig {
 			} else {
 				gb = new GroupsBuilder(c, mc);
 			}
+			builder = gb;
 		}
 		packages("us.kbase.groups.service.api");
 		register(JacksonFeature.class);
 		register(LoggingFilter.class);
+		register(MetricsFilter.class);
 		register(ExceptionHandler.class);
+		// runs the API methods annotated with @ManagedAsync
+		register(new APIExecutorProvider(gb.getAPIExecutor(), c.getLogger()));
 		final Groups g = gb.getGroups();
 		register(new AbstractBinder() {
 			@Override
 			protected void configure() {
 				bind(c).to(GroupsConfig.class);
 				bind(g).to(Groups.class);
+				bind(gb.getMetricsRegistry()).to(MetricsRegistry.class);
+				bind(gb.getServiceAdministrators()).to(ServiceAdministrators.class);
 				bind(c.getLogger()).to(SLF4JAutoLogger.class);
 			}
 		});
 	}
 	
 	static void shutdown() {
+		// stop the background agents before the connection closes
+		if (builder != null) {
+			builder.stop();
+		}
 		mc.close();
 	}
 }
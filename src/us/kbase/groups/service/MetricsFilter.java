@@ -0,0 +1,80 @@
+package us.kbase.groups.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.PreMatching;
+
+import org.glassfish.jersey.server.ExtendedUriInfo;
+import org.glassfish.jersey.uri.UriTemplate;
+
+import us.kbase.groups.metrics.MetricsRegistry;
+
+/** Records the latency of each request in a {@link MetricsRegistry}, keyed by the HTTP method,
+ * the route template matched by the request (e.g. /group/{groupid}), and the response status.
+ * Requests that do not match a route are recorded with the route UNMATCHED so that arbitrary
+ * paths cannot inflate the number of metrics.
+ * @author gaprice@lbl.gov
+ *
+ */
+@PreMatching
+public class MetricsFilter implements ContainerRequestFilter, ContainerResponseFilter {
+	
+	private static final String START = MetricsFilter.class.getName() + ".start";
+	private static final String UNMATCHED = "UNMATCHED";
+	
+	private final MetricsRegistry registry;
+	
+	/** Create the metrics filter. This is normally done by the Jersey framework.
+	 * @param registry the registry in which the request latencies will be recorded.
+	 */
+	@Inject
+	public MetricsFilter(final MetricsRegistry registry) {
+		this.registry = registry;
+	}
+	
+	@Override
+	public void filter(final ContainerRequestContext reqcon) throws IOException {
+		reqcon.setProperty(START, System.nanoTime());
+	}
+
+	@Override
+	public void filter(
+			final ContainerRequestContext reqcon,
+			final ContainerResponseContext rescon)
+			throws IOException {
+		final Object start = reqcon.getProperty(START);
+		if (start == null) {
+			return; // the request filter wasn't run, e.g. the request was aborted
+		}
+		registry.observeRequest(
+				reqcon.getMethod(),
+				getRoute(reqcon),
+				rescon.getStatus(),
+				System.nanoTime() - (Long) start);
+	}
+
+	private String getRoute(final ContainerRequestContext reqcon) {
+		if (!(reqcon.getUriInfo() instanceof ExtendedUriInfo)) {
+			return UNMATCHED;
+		}
+		// templates are in order from the most to the least specific
+		final List<UriTemplate> templates = new ArrayList<>(
+				((ExtendedUriInfo) reqcon.getUriInfo()).getMatchedTemplates());
+		if (templates.isEmpty()) {
+			return UNMATCHED;
+		}
+		Collections.reverse(templates);
+		final String route = templates.stream().map(t -> t.getTemplate())
+				.collect(Collectors.joining()).replaceAll("/+", "/");
+		return route.isEmpty() ? "/" : route;
+	}
+}
@@ -23,4 +23,14 @@ public interface SLF4JAutoLogger {
 	 * @return the call ID.
 	 */
 	public String getCallID();
+	
+	/** Get the method for the call being handled in this thread.
+	 * @return the method.
+	 */
+	public String getCallMethod();
+	
+	/** Get the client IP address for the call being handled in this thread.
+	 * @return the IP address.
+	 */
+	public String getCallIPAddress();
 }
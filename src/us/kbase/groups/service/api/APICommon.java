@@ -4,9 +4,11 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Objects.requireNonNull;
 import static us.kbase.groups.util.Util.isNullOrEmpty;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -18,14 +20,23 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+
 import us.kbase.groups.core.GetGroupsParams;
 import us.kbase.groups.core.GetRequestsParams;
 import us.kbase.groups.core.Group.Role;
 import us.kbase.groups.core.GroupID;
 import us.kbase.groups.core.GroupView;
 import us.kbase.groups.core.GroupView.GroupUserView;
+import us.kbase.groups.core.SearchGroupsParams;
 import us.kbase.groups.core.Token;
 import us.kbase.groups.core.UserName;
 import us.kbase.groups.core.exceptions.IllegalParameterException;
@@ -33,12 +44,15 @@ import us.kbase.groups.core.exceptions.MissingParameterException;
 import us.kbase.groups.core.exceptions.NoTokenProvidedException;
 import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
 import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.core.request.RequestID;
 import us.kbase.groups.core.resource.ResourceID;
 import us.kbase.groups.core.resource.ResourceInformationSet;
 import us.kbase.groups.core.resource.ResourceType;
 
 public class APICommon {
 	
+	private static final ObjectMapper MAPPER = new ObjectMapper().registerModule(new Jdk8Module());
+	
 	/** Transform a {@link GroupRequest} object into a Map/List structure suitable for
 	 * serializing to JSON.
 	 * @param request the request object.
@@ -71,6 +85,30 @@ public class APICommon {
 		return requests.stream().map(r -> toGroupRequestJSON(r)).collect(Collectors.toList());
 	}
 	
+	/** Create a {@link StreamingOutput} that writes a collection of items as newline delimited
+	 * JSON, with one JSON document per line. This only changes the response format - the items
+	 * are retrieved from the database in full before the output is written, and are not read
+	 * from the database cursor as they are written. The size of the collection is bounded by
+	 * the list limit.
+	 * @param items the items to write.
+	 * @param toJSON a function that converts an item to a JSONable structure.
+	 * @param <T> the type of the items.
+	 * @return the streaming output.
+	 */
+	public static <T> StreamingOutput toJSONLines(
+			final Collection<T> items,
+			final Function<T, Map<String, Object>> toJSON) {
+		checkNotNull(items, "items");
+		checkNotNull(toJSON, "toJSON");
+		return out -> {
+			for (final T item: items) {
+				out.write(MAPPER.writeValueAsBytes(toJSON.apply(item)));
+				out.write('\n');
+			}
+			out.flush();
+		};
+	}
+	
 	/** Convert a {@link GroupView} to a map based structure suitable for serializing to JSON.
 	 * @param group the group view.
 	 * @return JSONable data.
@@ -194,12 +232,21 @@ public class APICommon {
 	private static final Set<String> SORT_DIRECTION_OPTIONS = new HashSet<>(Arrays.asList(
 			SORT_ASCENDING, SORT_DESCENDING));
 	
+	private static final String NEXT_TOKEN_SEP = "\t";
+	private static final String NEXT_TOKEN_GROUPS = "g";
+	private static final String NEXT_TOKEN_REQUESTS = "r";
+	private static final String INVALID_NEXT_TOKEN = "Invalid next token";
+	
 	/** Get parameters for listing requests from a set of strings as may be presented in
 	 * query params.
 	 * @param excludeUpTo set where the list of requests starts by excluding requests modified
 	 * before or after this date, exclusive, depending on the sort direction.
 	 * The date must be in epoch milliseconds.
 	 * Null or whitespace only values are ignored.
+	 * @param next set where the list of requests starts via a token returned from
+	 * {@link #getRequestsNextToken(List, GetRequestsParams)}. The list starts immediately
+	 * after the last request of the previous page. At most one of excludeUpTo and next may
+	 * be provided. Null or whitespace only values are ignored.
 	 * @param includeClosed if not null or whitespace only, closed requests are included.
 	 * Otherwise they are excluded from the results.
 	 * @param sortDirection the direction of the sort - 'asc' for an ascending sort, and 'desc'
@@ -208,28 +255,68 @@ public class APICommon {
 	 * resource parameter must also be specified if this parameter is present.
 	 * @param resource the ID of the resource that will be used to filter the list. The
 	 * resourceType parameter must also be specified if this parameter is present.
+	 * @param limit the maximum number of requests to return. Must be an integer greater than 0.
+	 * Null or whitespace only values are ignored.
 	 * @param defaultSort if sortDirection is null or whitespace only, this value is used instead.
 	 * true sets an ascending sort, false sets a descending sort.
 	 * @return the get request parameters.
-	 * @throws IllegalParameterException if excludeUpTo is not a valid date or sortDirection
-	 * is not a valid options.
+	 * @throws IllegalParameterException if excludeUpTo is not a valid date, next is not a
+	 * valid token for the sort direction, both excludeUpTo and next are provided,
+	 * sortDirection is not a valid options, or limit is not a valid limit.
 	 */
 	public static GetRequestsParams getRequestsParams(
 			final String excludeUpTo,
+			final String next,
 			final String includeClosed,
 			final String sortDirection,
 			final String resourceType,
 			final String resource,
+			final String limit,
 			final boolean defaultSort)
 			throws IllegalParameterException {
+		checkOneExclusion(excludeUpTo, next, Fields.GET_REQUESTS_EXCLUDE_UP_TO,
+				Fields.GET_REQUESTS_NEXT);
 		final GetRequestsParams.Builder b = GetRequestsParams.getBuilder();
 		if (!isNullOrEmpty(excludeUpTo)) {
 			b.withNullableExcludeUpTo(epochMilliStringToInstant(excludeUpTo));
 		}
 		setResource(resourceType, resource, (t, r) -> b.withResource(t, r));
 		setSortDirection(sortDirection, defaultSort, s -> b.withNullableSortAscending(s));
-		
-		return b.withNullableIncludeClosed(includeClosed != null).build();
+		setLimit(limit, l -> b.withNullableLimit(l));
+		b.withNullableIncludeClosed(includeClosed != null);
+		if (!isNullOrEmpty(next)) {
+			final List<String> key = fromNextToken(
+					next, NEXT_TOKEN_REQUESTS, 2, b.build().isSortAscending());
+			try {
+				b.withExcludeUpTo(Instant.ofEpochMilli(Long.parseLong(key.get(0))),
+						new RequestID(key.get(1)));
+			} catch (NumberFormatException | MissingParameterException |
+					IllegalParameterException e) {
+				throw new IllegalParameterException(INVALID_NEXT_TOKEN);
+			}
+		}
+		return b.build();
+	}
+	
+	/** Get a token that starts a request listing immediately after the last request in a
+	 * page of requests. Pass the token to
+	 * {@link #getRequestsParams(String, String, String, String, String, String, String,
+	 * boolean)} along with the same parameters used to get the page.
+	 * @param requests the page of requests.
+	 * @param params the parameters used to get the page.
+	 * @return the token, or {@link Optional#empty()} if the page is empty.
+	 */
+	public static Optional<String> getRequestsNextToken(
+			final List<GroupRequest> requests,
+			final GetRequestsParams params) {
+		checkNotNull(requests, "requests");
+		checkNotNull(params, "params");
+		if (requests.isEmpty()) {
+			return Optional.empty();
+		}
+		final GroupRequest last = requests.get(requests.size() - 1);
+		return Optional.of(toNextToken(NEXT_TOKEN_REQUESTS, params.isSortAscending(),
+				last.getModificationDate().toEpochMilli() + "", last.getID().getID()));
 	}
 
 	/** Parse epoch milliseconds as a string into an {@link Instant}. Surrounding whitespace
@@ -255,6 +342,10 @@ public class APICommon {
 	 * @param excludeUpTo set where the list of groups starts by excluding groups where the
 	 * sort key is greater or less than this value, exclusive, depending on the sort direction.
 	 * Null or whitespace only values are ignored.
+	 * @param next set where the list of groups starts via a token returned from
+	 * {@link #getGroupsNextToken(List, GetGroupsParams)}. The list starts immediately after
+	 * the last group of the previous page. At most one of excludeUpTo and next may be
+	 * provided. Null or whitespace only values are ignored.
 	 * @param sortDirection the direction of the sort - 'asc' for an ascending sort, and 'desc'
 	 * for a descending sort.
 	 * @param role the minimum role the user must possess.
@@ -262,19 +353,27 @@ public class APICommon {
 	 * resource parameter must also be specified if this parameter is present.
 	 * @param resource the ID of the resource that will be used to filter the list. The
 	 * resourceType parameter must also be specified if this parameter is present.
+	 * @param limit the maximum number of groups to return. Must be an integer greater than 0.
+	 * Null or whitespace only values are ignored.
 	 * @param defaultSort if sortDirection is null or whitespace only, this value is used instead.
 	 * true sets an ascending sort, false sets a descending sort.
 	 * @return the get groups parameters.
-	 * @throws IllegalParameterException if sortDirection is not a valid options.
+	 * @throws IllegalParameterException if next is not a valid token for the sort direction,
+	 * both excludeUpTo and next are provided, sortDirection is not a valid options or limit
+	 * is not a valid limit.
 	 */
 	public static GetGroupsParams getGroupsParams(
 			final String excludeUpTo,
+			final String next,
 			final String sortDirection,
 			final String role,
 			final String resourceType,
 			final String resource,
+			final String limit,
 			final boolean defaultSort)
 			throws IllegalParameterException {
+		checkOneExclusion(excludeUpTo, next, Fields.GET_GROUPS_EXCLUDE_UP_TO,
+				Fields.GET_GROUPS_NEXT);
 		final GetGroupsParams.Builder b = GetGroupsParams.getBuilder()
 				.withNullableExcludeUpTo(excludeUpTo);
 		if (!isNullOrEmpty(role)) {
@@ -286,9 +385,139 @@ public class APICommon {
 		}
 		setResource(resourceType, resource, (t, r) -> b.withResource(t, r));
 		setSortDirection(sortDirection, defaultSort, s -> b.withNullableSortAscending(s));
+		setLimit(limit, l -> b.withNullableLimit(l));
+		if (!isNullOrEmpty(next)) {
+			final List<String> key = fromNextToken(
+					next, NEXT_TOKEN_GROUPS, 1, b.build().isSortAscending());
+			try {
+				b.withNullableExcludeUpTo(new GroupID(key.get(0)).getName());
+			} catch (MissingParameterException | IllegalParameterException e) {
+				throw new IllegalParameterException(INVALID_NEXT_TOKEN);
+			}
+		}
+		return b.build();
+	}
+	
+	/** Get a token that starts a group listing immediately after the last group in a
+	 * page of groups. Pass the token to
+	 * {@link #getGroupsParams(String, String, String, String, String, String, String,
+	 * boolean)} along with the same parameters used to get the page.
+	 * @param groups the page of groups.
+	 * @param params the parameters used to get the page.
+	 * @return the token, or {@link Optional#empty()} if the page is empty.
+	 */
+	public static Optional<String> getGroupsNextToken(
+			final List<GroupView> groups,
+			final GetGroupsParams params) {
+		checkNotNull(groups, "groups");
+		checkNotNull(params, "params");
+		if (groups.isEmpty()) {
+			return Optional.empty();
+		}
+		return Optional.of(toNextToken(NEXT_TOKEN_GROUPS, params.isSortAscending(),
+				groups.get(groups.size() - 1).getGroupID().getName()));
+	}
+	
+	/** Create a response for a page of a list of items. If present, the token for the next
+	 * page is returned in the {@link APIConstants#HEADER_NEXT_TOKEN} header.
+	 * @param entity the list of items, either as JSONable data or a {@link StreamingOutput}.
+	 * @param nextToken the token for the next page of items, if any.
+	 * @return the response.
+	 */
+	public static Response toListResponse(final Object entity, final Optional<String> nextToken) {
+		checkNotNull(entity, "entity");
+		checkNotNull(nextToken, "nextToken");
+		final ResponseBuilder b = Response.ok(entity);
+		if (nextToken.isPresent()) {
+			b.header(APIConstants.HEADER_NEXT_TOKEN, nextToken.get());
+		}
+		return b.build();
+	}
+	
+	private static void checkOneExclusion(
+			final String excludeUpTo,
+			final String next,
+			final String excludeUpToName,
+			final String nextName)
+			throws IllegalParameterException {
+		if (!isNullOrEmpty(excludeUpTo) && !isNullOrEmpty(next)) {
+			throw new IllegalParameterException(String.format(
+					"Only one of the %s and %s parameters may be provided",
+					excludeUpToName, nextName));
+		}
+	}
+	
+	// the token is the list type, the sort direction, and the sort key of the last item,
+	// separated by tabs, which cannot appear in any of the parts.
+	private static String toNextToken(
+			final String listType,
+			final boolean sortAscending,
+			final String... sortKey) {
+		final List<String> parts = new LinkedList<>(Arrays.asList(
+				listType, sortAscending ? SORT_ASCENDING : SORT_DESCENDING));
+		parts.addAll(Arrays.asList(sortKey));
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(
+				String.join(NEXT_TOKEN_SEP, parts).getBytes(StandardCharsets.UTF_8));
+	}
+	
+	// returns the sort key
+	private static List<String> fromNextToken(
+			final String token,
+			final String listType,
+			final int sortKeySize,
+			final boolean sortAscending)
+			throws IllegalParameterException {
+		final String[] parts;
+		try {
+			parts = new String(Base64.getUrlDecoder().decode(token.trim()),
+					StandardCharsets.UTF_8).split(NEXT_TOKEN_SEP, -1);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalParameterException(INVALID_NEXT_TOKEN);
+		}
+		if (parts.length != sortKeySize + 2 || !parts[0].equals(listType)) {
+			throw new IllegalParameterException(INVALID_NEXT_TOKEN);
+		}
+		if (!parts[1].equals(sortAscending ? SORT_ASCENDING : SORT_DESCENDING)) {
+			throw new IllegalParameterException(
+					"The next token does not match the sort direction");
+		}
+		return Arrays.asList(parts).subList(2, parts.length);
+	}
+	
+	/** Get parameters for a text search for groups.
+	 * @param query the text search query.
+	 * @param limit the maximum number of groups to return. Must be an integer greater than 0.
+	 * Null or whitespace only values are ignored.
+	 * @return the search parameters.
+	 * @throws MissingParameterException if the query is null or whitespace only.
+	 * @throws IllegalParameterException if the query is too long or limit is not a valid limit.
+	 */
+	public static SearchGroupsParams getSearchGroupsParams(
+			final String query,
+			final String limit)
+			throws MissingParameterException, IllegalParameterException {
+		final SearchGroupsParams.Builder b = SearchGroupsParams.getBuilder(query);
+		setLimit(limit, l -> b.withNullableLimit(l));
 		return b.build();
 	}
 	
+	private static void setLimit(final String limit, final Consumer<Integer> limitConsumer)
+			throws IllegalParameterException {
+		if (!isNullOrEmpty(limit)) {
+			final int l;
+			try {
+				l = Integer.parseInt(limit.trim());
+			} catch (NumberFormatException e) {
+				throw new IllegalParameterException("Invalid limit: " + limit.trim());
+			}
+			try {
+				limitConsumer.accept(l);
+			} catch (IllegalArgumentException e) {
+				throw new IllegalParameterException(e.getMessage(), e);
+			}
+		}
+	}
+	
 
 	private static void setResource(
 			final String resourceType,
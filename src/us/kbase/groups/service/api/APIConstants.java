@@ -8,5 +8,22 @@ public class APIConstants {
 
 	/** The header key for an authorization token. */
 	public static final String HEADER_TOKEN = "authorization";
+	
+	/** The header key for the token that retrieves the next page of a group or request
+	 * listing.
+	 */
+	public static final String HEADER_NEXT_TOKEN = "X-Next-Token";
+	
+	/** The media type for newline delimited JSON, where each line is a separate JSON document.
+	 * List endpoints that support this media type write each item in the list as it is
+	 * serialized rather than serializing the entire list before responding.
+	 */
+	public static final String MEDIA_TYPE_JSON_LINES = "application/x-ndjson";
+	
+	/** The media type for newline delimited JSON with a lower server side quality than JSON,
+	 * so that standard JSON is chosen if the client will accept either media type.
+	 * For use in {@link javax.ws.rs.Produces} annotations.
+	 */
+	public static final String MEDIA_TYPE_JSON_LINES_LOW_QS = MEDIA_TYPE_JSON_LINES + ";qs=0.5";
 
 }
@@ -0,0 +1,89 @@
+package us.kbase.groups.service.api;
+
+import static us.kbase.groups.service.api.APICommon.getToken;
+import static us.kbase.groups.service.api.APIConstants.HEADER_TOKEN;
+
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import com.google.common.collect.ImmutableMap;
+
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.Groups;
+import us.kbase.groups.core.ServiceAdministrators;
+import us.kbase.groups.core.exceptions.AuthenticationException;
+import us.kbase.groups.core.exceptions.IllegalParameterException;
+import us.kbase.groups.core.exceptions.InvalidTokenException;
+import us.kbase.groups.core.exceptions.MissingParameterException;
+import us.kbase.groups.core.exceptions.NoSuchGroupException;
+import us.kbase.groups.core.exceptions.NoTokenProvidedException;
+import us.kbase.groups.core.exceptions.UnauthorizedException;
+import us.kbase.groups.storage.exceptions.GroupsStorageException;
+
+/** Service administration endpoints. Only available to service administrators.
+ * @author gaprice@lbl.gov
+ *
+ */
+@Path(ServicePaths.ADMIN)
+public class AdminAPI {
+
+	private final Groups groups;
+	private final ServiceAdministrators admins;
+	
+	// normally instantiated by Jersey
+	@Inject
+	public AdminAPI(final Groups groups, final ServiceAdministrators admins) {
+		this.groups = groups;
+		this.admins = admins;
+	}
+	
+	/** Rebuild the search index for all groups.
+	 * @param token the token of a service administrator.
+	 * @return the number of groups reindexed.
+	 * @throws NoTokenProvidedException if no token was provided.
+	 * @throws InvalidTokenException if the token is invalid.
+	 * @throws AuthenticationException if authentication failed.
+	 * @throws UnauthorizedException if the user is not a service administrator.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	@PUT
+	@Path(ServicePaths.ADMIN_REINDEX)
+	@Produces(MediaType.APPLICATION_JSON)
+	public Map<String, Object> reindexGroups(@HeaderParam(HEADER_TOKEN) final String token)
+			throws NoTokenProvidedException, InvalidTokenException, AuthenticationException,
+				UnauthorizedException, GroupsStorageException {
+		admins.checkAdministrator(getToken(token, true));
+		return ImmutableMap.of(Fields.REINDEXED, groups.reindexGroups());
+	}
+	
+	/** Rebuild the search index for a group.
+	 * @param token the token of a service administrator.
+	 * @param groupID the ID of the group to reindex.
+	 * @throws NoTokenProvidedException if no token was provided.
+	 * @throws InvalidTokenException if the token is invalid.
+	 * @throws AuthenticationException if authentication failed.
+	 * @throws UnauthorizedException if the user is not a service administrator.
+	 * @throws MissingParameterException if the group ID is missing.
+	 * @throws IllegalParameterException if the group ID is illegal.
+	 * @throws NoSuchGroupException if there is no such group.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	@PUT
+	@Path(ServicePaths.ADMIN_REINDEX_GROUP)
+	public void reindexGroup(
+			@HeaderParam(HEADER_TOKEN) final String token,
+			@PathParam(Fields.GROUP_ID) final String groupID)
+			throws NoTokenProvidedException, InvalidTokenException, AuthenticationException,
+				UnauthorizedException, MissingParameterException, IllegalParameterException,
+				NoSuchGroupException, GroupsStorageException {
+		admins.checkAdministrator(getToken(token, true));
+		groups.reindexGroup(new GroupID(groupID));
+	}
+}
@@ -49,6 +49,8 @@ public class Fields {
 	public static final String GROUP_MEMBER_JOIN_DATE = "joined";
 	/** A member's last visit date. */
 	public static final String GROUP_MEMBER_VISIT_DATE = "lastvisit";
+	/** A list of users to invite to a group. */
+	public static final String GROUP_INVITE_USERS = "users";
 	
 	// resource fields
 	/** The resource type. */
@@ -108,6 +110,10 @@ public class Fields {
 	 * depending on the sort order.
 	 */
 	public static final String GET_GROUPS_EXCLUDE_UP_TO = "excludeupto";
+	/** Start the list immediately after the last group of the previous page, as given by the
+	 * token returned with the previous page.
+	 */
+	public static final String GET_GROUPS_NEXT = "next";
 	/** Set the sort order. */
 	public static final String GET_GROUPS_SORT_ORDER = "order";
 	/** Determine which groups to list. */
@@ -118,6 +124,20 @@ public class Fields {
 	public static final String GET_GROUPS_RESOURCE_TYPE = "resourcetype";
 	/** Set the resource ID with which to filter the list. */
 	public static final String GET_GROUPS_RESOURCE_ID = "resource";
+	/** Set the maximum number of groups to return. */
+	public static final String GET_GROUPS_LIMIT = "limit";
+	
+	/* ***********************
+	 * group search fields
+	 * ***********************
+	 */
+	
+	/** The text search query. */
+	public static final String SEARCH_GROUPS_QUERY = "q";
+	/** Set the maximum number of groups to return. */
+	public static final String SEARCH_GROUPS_LIMIT = "limit";
+	/** The number of groups reindexed. */
+	public static final String REINDEXED = "reindexed";
 	
 	
 	/* ***********************
@@ -129,6 +149,10 @@ public class Fields {
 	 * sort order.
 	 */
 	public static final String GET_REQUESTS_EXCLUDE_UP_TO = "excludeupto";
+	/** Start the list immediately after the last request of the previous page, as given by
+	 * the token returned with the previous page.
+	 */
+	public static final String GET_REQUESTS_NEXT = "next";
 	/** Include closed requests. */
 	public static final String GET_REQUESTS_INCLUDE_CLOSED = "closed";
 	/** Set the sort order. */
@@ -137,6 +161,8 @@ public class Fields {
 	public static final String GET_REQUESTS_RESOURCE_TYPE = "resourcetype";
 	/** Set the resource ID with which to filter the list. */
 	public static final String GET_REQUESTS_RESOURCE_ID = "resource";
+	/** Set the maximum number of requests to return. */
+	public static final String GET_REQUESTS_LIMIT = "limit";
 	
 	/* ***********************
 	 * other fields
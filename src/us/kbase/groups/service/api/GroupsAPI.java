@@ -1,14 +1,20 @@
 package us.kbase.groups.service.api;
 
 import static us.kbase.groups.service.api.APIConstants.HEADER_TOKEN;
+import static us.kbase.groups.service.api.APIConstants.MEDIA_TYPE_JSON_LINES_LOW_QS;
 import static us.kbase.groups.service.api.APICommon.getToken;
+import static us.kbase.groups.service.api.APICommon.getGroupsNextToken;
 import static us.kbase.groups.service.api.APICommon.getGroupsParams;
+import static us.kbase.groups.service.api.APICommon.getRequestsNextToken;
 import static us.kbase.groups.service.api.APICommon.getRequestsParams;
 import static us.kbase.groups.service.api.APICommon.toGroupJSON;
+import static us.kbase.groups.service.api.APICommon.toJSONLines;
+import static us.kbase.groups.service.api.APICommon.toListResponse;
 import static us.kbase.groups.util.Util.isNullOrEmpty;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -25,10 +31,15 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.glassfish.jersey.server.ManagedAsync;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableMap;
 
+import us.kbase.groups.core.GetGroupsParams;
+import us.kbase.groups.core.GetRequestsParams;
 import us.kbase.groups.core.GroupCreationParams;
 import us.kbase.groups.core.GroupID;
 import us.kbase.groups.core.GroupName;
@@ -79,28 +90,81 @@ public class GroupsAPI {
 	
 	@GET
 	@Produces(MediaType.APPLICATION_JSON)
-	public List<Map<String, Object>> getGroups(
+	@ManagedAsync
+	public Response getGroups(
+			@HeaderParam(HEADER_TOKEN) final String token,
+			@QueryParam(Fields.GET_GROUPS_EXCLUDE_UP_TO) final String excludeUpTo,
+			@QueryParam(Fields.GET_GROUPS_NEXT) final String next,
+			@QueryParam(Fields.GET_GROUPS_SORT_ORDER) final String order,
+			@QueryParam(Fields.GET_GROUPS_ROLE) final String role,
+			@QueryParam(Fields.GET_GROUPS_RESOURCE_TYPE) final String resType,
+			@QueryParam(Fields.GET_GROUPS_RESOURCE_ID) final String resource,
+			@QueryParam(Fields.GET_GROUPS_LIMIT) final String limit,
+			@QueryParam(Fields.GET_GROUPS_IDS) final String groupIDs)
+			throws GroupsStorageException, IllegalParameterException, NoTokenProvidedException,
+				InvalidTokenException, AuthenticationException, NoSuchGroupException,
+				UnauthorizedException, NoSuchResourceException, IllegalResourceIDException,
+				NoSuchResourceTypeException, ResourceHandlerException {
+		return getGroupViews(token, excludeUpTo, next, order, role, resType, resource, limit,
+				groupIDs, false);
+	}
+	
+	@GET
+	@Produces(MEDIA_TYPE_JSON_LINES_LOW_QS)
+	@ManagedAsync
+	public Response getGroupsAsJSONLines(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@QueryParam(Fields.GET_GROUPS_EXCLUDE_UP_TO) final String excludeUpTo,
+			@QueryParam(Fields.GET_GROUPS_NEXT) final String next,
 			@QueryParam(Fields.GET_GROUPS_SORT_ORDER) final String order,
 			@QueryParam(Fields.GET_GROUPS_ROLE) final String role,
 			@QueryParam(Fields.GET_GROUPS_RESOURCE_TYPE) final String resType,
 			@QueryParam(Fields.GET_GROUPS_RESOURCE_ID) final String resource,
+			@QueryParam(Fields.GET_GROUPS_LIMIT) final String limit,
 			@QueryParam(Fields.GET_GROUPS_IDS) final String groupIDs)
 			throws GroupsStorageException, IllegalParameterException, NoTokenProvidedException,
 				InvalidTokenException, AuthenticationException, NoSuchGroupException,
 				UnauthorizedException, NoSuchResourceException, IllegalResourceIDException,
 				NoSuchResourceTypeException, ResourceHandlerException {
+		return getGroupViews(token, excludeUpTo, next, order, role, resType, resource, limit,
+				groupIDs, true);
+	}
+	
+	private Response getGroupViews(
+			final String token,
+			final String excludeUpTo,
+			final String next,
+			final String order,
+			final String role,
+			final String resType,
+			final String resource,
+			final String limit,
+			final String groupIDs,
+			final boolean asJSONLines)
+			throws GroupsStorageException, IllegalParameterException, NoTokenProvidedException,
+				InvalidTokenException, AuthenticationException, NoSuchGroupException,
+				UnauthorizedException, NoSuchResourceException, IllegalResourceIDException,
+				NoSuchResourceTypeException, ResourceHandlerException {
 		final List<GroupID> gids = APICommon.toGroupIDs(groupIDs);
 		final Token t = getToken(token, false);
-		final List<GroupView> grps;
+		final List<GroupView> views;
+		final Optional<String> nextToken;
 		if (!gids.isEmpty()) {
-			grps = groups.getGroups(t, gids);
+			// the groups are listed explicitly, so there's no next page
+			views = groups.getGroups(t, gids);
+			nextToken = Optional.empty();
+		} else {
+			final GetGroupsParams params = getGroupsParams(
+					excludeUpTo, next, order, role, resType, resource, limit, true);
+			views = groups.getGroups(t, params);
+			nextToken = getGroupsNextToken(views, params);
+		}
+		if (asJSONLines) {
+			return toListResponse(toJSONLines(views, g -> toGroupJSON(g)), nextToken);
 		} else {
-			grps = groups.getGroups(t, getGroupsParams(
-					excludeUpTo, order, role, resType, resource, true));
+			return toListResponse(views.stream().map(g -> toGroupJSON(g))
+					.collect(Collectors.toList()), nextToken);
 		}
-		return grps.stream().map(g -> toGroupJSON(g)).collect(Collectors.toList());
 	}
 	
 	private static Map<NumberedCustomField, OptionalString> getCustomFieldsAndTypeCheck(
@@ -207,6 +271,7 @@ public class GroupsAPI {
 	@PUT
 	@Path(ServicePaths.GROUP_ID)
 	@Produces(MediaType.APPLICATION_JSON)
+	@ManagedAsync
 	public Map<String, Object> createGroup(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.GROUP_ID) final String groupID,
@@ -222,6 +287,7 @@ public class GroupsAPI {
 	@PUT
 	@Path(ServicePaths.GROUP_UPDATE)
 	@Produces(MediaType.APPLICATION_JSON)
+	@ManagedAsync
 	public void updateGroup(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.GROUP_ID) final String groupID,
@@ -237,6 +303,7 @@ public class GroupsAPI {
 	@GET
 	@Path(ServicePaths.GROUP_ID)
 	@Produces(MediaType.APPLICATION_JSON)
+	@ManagedAsync
 	public Map<String, Object> getGroup(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.GROUP_ID) final String groupID)
@@ -249,6 +316,7 @@ public class GroupsAPI {
 	@GET
 	@Path(ServicePaths.GROUP_EXISTS)
 	@Produces(MediaType.APPLICATION_JSON)
+	@ManagedAsync
 	public Map<String, Object> getGroupExists(
 			@PathParam(Fields.GROUP_ID) final String groupID)
 			throws MissingParameterException, IllegalParameterException, GroupsStorageException {
@@ -257,6 +325,7 @@ public class GroupsAPI {
 	
 	@PUT
 	@Path(ServicePaths.GROUP_VISIT)
+	@ManagedAsync
 	public void visitGroup(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.GROUP_ID) final String groupID)
@@ -269,6 +338,7 @@ public class GroupsAPI {
 	@POST
 	@Produces(MediaType.APPLICATION_JSON)
 	@Path(ServicePaths.GROUP_REQUEST_MEMBERSHIP)
+	@ManagedAsync
 	public Map<String, Object> requestGroupMembership(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.GROUP_ID) final String groupID)
@@ -282,6 +352,7 @@ public class GroupsAPI {
 	@POST
 	@Produces(MediaType.APPLICATION_JSON)
 	@Path(ServicePaths.GROUP_USER_ID)
+	@ManagedAsync
 	public Map<String, Object> inviteMember(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.GROUP_ID) final String groupID,
@@ -294,27 +365,113 @@ public class GroupsAPI {
 				getToken(token, true), new GroupID(groupID), new UserName(member)));
 	}
 	
+	public static class InviteUsersJSON extends IncomingJSON {
+		
+		@JsonProperty(Fields.GROUP_INVITE_USERS)
+		private Object users;
+
+		@SuppressWarnings("unused")
+		private InviteUsersJSON() {} // default constructor for Jackson
+		
+		// this constructor is for testing.
+		public InviteUsersJSON(final Object users) {
+			this.users = users;
+		}
+		
+		private List<UserName> getUsers()
+				throws MissingParameterException, IllegalParameterException {
+			// jackson errors are too ugly, so we do it ourselves
+			if (users == null) {
+				throw new MissingParameterException(Fields.GROUP_INVITE_USERS);
+			}
+			if (!(users instanceof List)) {
+				throw new IllegalParameterException(
+						"'" + Fields.GROUP_INVITE_USERS + "' field must be a list");
+			}
+			final List<UserName> ret = new LinkedList<>();
+			for (final Object u: (List<?>) users) {
+				if (u != null && !(u instanceof String)) {
+					throw new IllegalParameterException(String.format(
+							"Entry in '%s' field is not a string: %s",
+							Fields.GROUP_INVITE_USERS, u));
+				}
+				ret.add(new UserName((String) u));
+			}
+			return ret;
+		}
+	}
+	
+	@POST
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path(ServicePaths.GROUP_USER)
+	@ManagedAsync
+	public List<Map<String, Object>> inviteMembers(
+			@HeaderParam(HEADER_TOKEN) final String token,
+			@PathParam(Fields.GROUP_ID) final String groupID,
+			final InviteUsersJSON invite)
+			throws InvalidTokenException, NoSuchGroupException, NoSuchUserException,
+				AuthenticationException, UnauthorizedException, UserIsMemberException,
+				MissingParameterException, IllegalParameterException, GroupsStorageException {
+		checkIncomingJson(invite);
+		return APICommon.toGroupRequestJSON(groups.inviteUsersToGroup(
+				getToken(token, true), new GroupID(groupID), invite.getUsers()));
+	}
+	
 	@GET
 	@Produces(MediaType.APPLICATION_JSON)
 	@Path(ServicePaths.GROUP_REQUESTS)
-	public List<Map<String, Object>> getRequestsForGroup(
+	@ManagedAsync
+	public Response getRequestsForGroup(
+			@HeaderParam(HEADER_TOKEN) final String token,
+			@PathParam(Fields.GROUP_ID) final String groupID,
+			@QueryParam(Fields.GET_REQUESTS_EXCLUDE_UP_TO) final String excludeUpTo,
+			@QueryParam(Fields.GET_REQUESTS_NEXT) final String next,
+			@QueryParam(Fields.GET_REQUESTS_INCLUDE_CLOSED) final String closed,
+			@QueryParam(Fields.GET_REQUESTS_SORT_ORDER) final String order,
+			@QueryParam(Fields.GET_REQUESTS_RESOURCE_TYPE) final String resType,
+			@QueryParam(Fields.GET_REQUESTS_RESOURCE_ID) final String resource,
+			@QueryParam(Fields.GET_REQUESTS_LIMIT) final String limit)
+			throws InvalidTokenException, NoSuchGroupException, UnauthorizedException,
+				AuthenticationException, MissingParameterException, IllegalParameterException,
+				GroupsStorageException, NoSuchResourceTypeException {
+		final Token t = getToken(token, true);
+		final GroupID gid = new GroupID(groupID);
+		final GetRequestsParams params = getRequestsParams(
+				excludeUpTo, next, closed, order, resType, resource, limit, closed == null);
+		final List<GroupRequest> reqs = groups.getRequestsForGroup(t, gid, params);
+		return toListResponse(APICommon.toGroupRequestJSON(reqs),
+				getRequestsNextToken(reqs, params));
+	}
+	
+	@GET
+	@Produces(MEDIA_TYPE_JSON_LINES_LOW_QS)
+	@Path(ServicePaths.GROUP_REQUESTS)
+	@ManagedAsync
+	public Response getRequestsForGroupAsJSONLines(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.GROUP_ID) final String groupID,
 			@QueryParam(Fields.GET_REQUESTS_EXCLUDE_UP_TO) final String excludeUpTo,
+			@QueryParam(Fields.GET_REQUESTS_NEXT) final String next,
 			@QueryParam(Fields.GET_REQUESTS_INCLUDE_CLOSED) final String closed,
 			@QueryParam(Fields.GET_REQUESTS_SORT_ORDER) final String order,
 			@QueryParam(Fields.GET_REQUESTS_RESOURCE_TYPE) final String resType,
-			@QueryParam(Fields.GET_REQUESTS_RESOURCE_ID) final String resource)
+			@QueryParam(Fields.GET_REQUESTS_RESOURCE_ID) final String resource,
+			@QueryParam(Fields.GET_REQUESTS_LIMIT) final String limit)
 			throws InvalidTokenException, NoSuchGroupException, UnauthorizedException,
 				AuthenticationException, MissingParameterException, IllegalParameterException,
 				GroupsStorageException, NoSuchResourceTypeException {
-		return APICommon.toGroupRequestJSON(groups.getRequestsForGroup(
-				getToken(token, true), new GroupID(groupID),
-				getRequestsParams(excludeUpTo, closed, order, resType, resource, closed == null)));
+		final Token t = getToken(token, true);
+		final GroupID gid = new GroupID(groupID);
+		final GetRequestsParams params = getRequestsParams(
+				excludeUpTo, next, closed, order, resType, resource, limit, closed == null);
+		final List<GroupRequest> reqs = groups.getRequestsForGroup(t, gid, params);
+		return toListResponse(toJSONLines(reqs, r -> APICommon.toGroupRequestJSON(r)),
+				getRequestsNextToken(reqs, params));
 	}
 	
 	@DELETE
 	@Path(ServicePaths.GROUP_USER_ID)
+	@ManagedAsync
 	public void removeMember(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.GROUP_ID) final String groupID,
@@ -341,6 +498,7 @@ public class GroupsAPI {
 	
 	@PUT
 	@Path(ServicePaths.GROUP_USER_ID_UPDATE)
+	@ManagedAsync
 	public void updateUser(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.GROUP_ID) final String groupID,
@@ -362,6 +520,7 @@ public class GroupsAPI {
 	
 	@PUT
 	@Path(ServicePaths.GROUP_USER_ID_ADMIN)
+	@ManagedAsync
 	public void promoteMember(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.GROUP_ID) final String groupID,
@@ -375,6 +534,7 @@ public class GroupsAPI {
 	
 	@DELETE
 	@Path(ServicePaths.GROUP_USER_ID_ADMIN)
+	@ManagedAsync
 	public void demoteAdmin(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.GROUP_ID) final String groupID,
@@ -388,6 +548,7 @@ public class GroupsAPI {
 	@POST
 	@Path(ServicePaths.GROUP_RESOURCE_ID)
 	@Produces(MediaType.APPLICATION_JSON)
+	@ManagedAsync
 	public Map<String, Object> addResource(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.GROUP_ID) final String groupID,
@@ -408,6 +569,7 @@ public class GroupsAPI {
 	@DELETE
 	@Path(ServicePaths.GROUP_RESOURCE_ID)
 	@Produces(MediaType.APPLICATION_JSON)
+	@ManagedAsync
 	public void removeResource(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.GROUP_ID) final String groupID,
@@ -427,6 +589,7 @@ public class GroupsAPI {
 	@POST
 	@Path(ServicePaths.GROUP_RESOURCE_ID_PERMS)
 	@Produces(MediaType.APPLICATION_JSON)
+	@ManagedAsync
 	public void getPerms(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.GROUP_ID) final String groupID,
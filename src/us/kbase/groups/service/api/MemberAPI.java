@@ -14,6 +14,8 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 
+import org.glassfish.jersey.server.ManagedAsync;
+
 import com.google.common.collect.ImmutableMap;
 
 import us.kbase.groups.core.Groups;
@@ -38,6 +40,7 @@ public class MemberAPI {
 	
 	@GET
 	@Produces(MediaType.APPLICATION_JSON)
+	@ManagedAsync
 	public List<Map<String, String>> getMemberGroups(
 			@HeaderParam(HEADER_TOKEN) final String token)
 			throws GroupsStorageException, IllegalParameterException, NoTokenProvidedException,
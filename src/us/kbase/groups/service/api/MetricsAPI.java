@@ -0,0 +1,53 @@
+package us.kbase.groups.service.api;
+
+import static us.kbase.groups.service.api.APICommon.getToken;
+import static us.kbase.groups.service.api.APIConstants.HEADER_TOKEN;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+
+import us.kbase.groups.core.ServiceAdministrators;
+import us.kbase.groups.core.exceptions.AuthenticationException;
+import us.kbase.groups.core.exceptions.InvalidTokenException;
+import us.kbase.groups.core.exceptions.NoTokenProvidedException;
+import us.kbase.groups.core.exceptions.UnauthorizedException;
+import us.kbase.groups.metrics.MetricsRegistry;
+
+/** The service metrics endpoint. Returns request and dependency call latencies and dependency
+ * call error counts in the Prometheus text format. Only available to service administrators.
+ * @author gaprice@lbl.gov
+ *
+ */
+@Path(ServicePaths.METRICS)
+public class MetricsAPI {
+
+	private final MetricsRegistry registry;
+	private final ServiceAdministrators admins;
+	
+	// normally instantiated by Jersey
+	@Inject
+	public MetricsAPI(final MetricsRegistry registry, final ServiceAdministrators admins) {
+		this.registry = registry;
+		this.admins = admins;
+	}
+	
+	/** Get the service metrics.
+	 * @param token the token of a service administrator.
+	 * @return the metrics in the Prometheus text format.
+	 * @throws NoTokenProvidedException if no token was provided.
+	 * @throws InvalidTokenException if the token is invalid.
+	 * @throws AuthenticationException if authentication failed.
+	 * @throws UnauthorizedException if the user is not a service administrator.
+	 */
+	@GET
+	@Produces(MetricsRegistry.PROMETHEUS_MEDIA_TYPE)
+	public String getMetrics(@HeaderParam(HEADER_TOKEN) final String token)
+			throws NoTokenProvidedException, InvalidTokenException, AuthenticationException,
+				UnauthorizedException {
+		admins.checkAdministrator(getToken(token, true));
+		return registry.toPrometheusText();
+	}
+}
@@ -17,6 +17,8 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 
+import org.glassfish.jersey.server.ManagedAsync;
+
 import us.kbase.groups.core.GroupIDNameMembership;
 import us.kbase.groups.core.Groups;
 import us.kbase.groups.core.exceptions.AuthenticationException;
@@ -42,6 +44,7 @@ public class NamesAPI {
 	@GET
 	@Path(ServicePaths.NAMES_BULK)
 	@Produces(MediaType.APPLICATION_JSON)
+	@ManagedAsync
 	public List<Map<String, String>> getGroupNames(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.IDS) final String ids)
@@ -1,10 +1,14 @@
 package us.kbase.groups.service.api;
 
 import static us.kbase.groups.service.api.APIConstants.HEADER_TOKEN;
+import static us.kbase.groups.service.api.APIConstants.MEDIA_TYPE_JSON_LINES_LOW_QS;
+import static us.kbase.groups.service.api.APICommon.getRequestsNextToken;
 import static us.kbase.groups.service.api.APICommon.getToken;
 import static us.kbase.groups.service.api.APICommon.toGroupIDs;
 import static us.kbase.groups.service.api.APICommon.toGroupJSON;
 import static us.kbase.groups.service.api.APICommon.toGroupRequestJSON;
+import static us.kbase.groups.service.api.APICommon.toJSONLines;
+import static us.kbase.groups.service.api.APICommon.toListResponse;
 
 import java.util.HashMap;
 import java.util.List;
@@ -22,12 +26,17 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.glassfish.jersey.server.ManagedAsync;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableMap;
 
+import us.kbase.groups.core.GetRequestsParams;
 import us.kbase.groups.core.Groups;
+import us.kbase.groups.core.Token;
 import us.kbase.groups.core.exceptions.AuthenticationException;
 import us.kbase.groups.core.exceptions.ClosedRequestException;
 import us.kbase.groups.core.exceptions.IllegalParameterException;
@@ -43,6 +52,7 @@ import us.kbase.groups.core.exceptions.ResourceExistsException;
 import us.kbase.groups.core.exceptions.ResourceHandlerException;
 import us.kbase.groups.core.exceptions.UnauthorizedException;
 import us.kbase.groups.core.exceptions.UserIsMemberException;
+import us.kbase.groups.core.request.GroupRequest;
 import us.kbase.groups.core.request.GroupRequestWithActions;
 import us.kbase.groups.core.request.RequestID;
 import us.kbase.groups.core.resource.ResourceInformation;
@@ -64,6 +74,7 @@ public class RequestAPI {
 	@GET
 	@Path(ServicePaths.REQUEST_ID)
 	@Produces(MediaType.APPLICATION_JSON)
+	@ManagedAsync
 	public Map<String, Object> getRequest(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.REQUEST_ID) final String requestID)
@@ -81,6 +92,7 @@ public class RequestAPI {
 	@GET
 	@Path(ServicePaths.REQUEST_ID_GROUP)
 	@Produces(MediaType.APPLICATION_JSON)
+	@ManagedAsync
 	public Map<String, Object> getGroupForRequest(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.REQUEST_ID) final String requestID)
@@ -94,6 +106,7 @@ public class RequestAPI {
 	
 	@POST
 	@Path(ServicePaths.REQUEST_ID_PERMS)
+	@ManagedAsync
 	public void getPerms(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.REQUEST_ID) final String requestID)
@@ -107,6 +120,7 @@ public class RequestAPI {
 	@GET
 	@Path(ServicePaths.REQUEST_ID_RESOURCE)
 	@Produces(MediaType.APPLICATION_JSON)
+	@ManagedAsync
 	public Map<String, Object> getResourceInformation(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.REQUEST_ID) final String requestID)
@@ -129,59 +143,146 @@ public class RequestAPI {
 	@GET
 	@Path(ServicePaths.REQUEST_CREATED)
 	@Produces(MediaType.APPLICATION_JSON)
-	public List<Map<String, Object>> getCreatedRequests(
+	@ManagedAsync
+	public Response getCreatedRequests(
+			@HeaderParam(HEADER_TOKEN) final String token,
+			@QueryParam(Fields.GET_REQUESTS_EXCLUDE_UP_TO) final String excludeUpTo,
+			@QueryParam(Fields.GET_REQUESTS_NEXT) final String next,
+			@QueryParam(Fields.GET_REQUESTS_INCLUDE_CLOSED) final String closed,
+			@QueryParam(Fields.GET_REQUESTS_SORT_ORDER) final String order,
+			@QueryParam(Fields.GET_REQUESTS_RESOURCE_TYPE) final String resType,
+			@QueryParam(Fields.GET_REQUESTS_RESOURCE_ID) final String resource,
+			@QueryParam(Fields.GET_REQUESTS_LIMIT) final String limit)
+			throws InvalidTokenException, AuthenticationException, GroupsStorageException,
+			IllegalParameterException, NoSuchResourceTypeException {
+		final Token t = getToken(token, true);
+		final GetRequestsParams params = APICommon.getRequestsParams(
+				excludeUpTo, next, closed, order, resType, resource, limit, closed == null);
+		final List<GroupRequest> reqs = groups.getRequestsForRequester(t, params);
+		return toListResponse(toGroupRequestJSON(reqs), getRequestsNextToken(reqs, params));
+	}
+	
+	@GET
+	@Path(ServicePaths.REQUEST_CREATED)
+	@Produces(MEDIA_TYPE_JSON_LINES_LOW_QS)
+	@ManagedAsync
+	public Response getCreatedRequestsAsJSONLines(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@QueryParam(Fields.GET_REQUESTS_EXCLUDE_UP_TO) final String excludeUpTo,
+			@QueryParam(Fields.GET_REQUESTS_NEXT) final String next,
 			@QueryParam(Fields.GET_REQUESTS_INCLUDE_CLOSED) final String closed,
 			@QueryParam(Fields.GET_REQUESTS_SORT_ORDER) final String order,
 			@QueryParam(Fields.GET_REQUESTS_RESOURCE_TYPE) final String resType,
-			@QueryParam(Fields.GET_REQUESTS_RESOURCE_ID) final String resource)
+			@QueryParam(Fields.GET_REQUESTS_RESOURCE_ID) final String resource,
+			@QueryParam(Fields.GET_REQUESTS_LIMIT) final String limit)
 			throws InvalidTokenException, AuthenticationException, GroupsStorageException,
 			IllegalParameterException, NoSuchResourceTypeException {
-		return toGroupRequestJSON(groups.getRequestsForRequester(getToken(token, true),
-				APICommon.getRequestsParams(
-						excludeUpTo, closed, order, resType, resource, closed == null)));
+		final Token t = getToken(token, true);
+		final GetRequestsParams params = APICommon.getRequestsParams(
+				excludeUpTo, next, closed, order, resType, resource, limit, closed == null);
+		final List<GroupRequest> reqs = groups.getRequestsForRequester(t, params);
+		return toListResponse(toJSONLines(reqs, r -> toGroupRequestJSON(r)),
+				getRequestsNextToken(reqs, params));
 	}
 	
 	@GET
 	@Path(ServicePaths.REQUEST_TARGETED)
 	@Produces(MediaType.APPLICATION_JSON)
-	public List<Map<String, Object>> getTargetedRequests(
+	@ManagedAsync
+	public Response getTargetedRequests(
+			@HeaderParam(HEADER_TOKEN) final String token,
+			@QueryParam(Fields.GET_REQUESTS_EXCLUDE_UP_TO) final String excludeUpTo,
+			@QueryParam(Fields.GET_REQUESTS_NEXT) final String next,
+			@QueryParam(Fields.GET_REQUESTS_INCLUDE_CLOSED) final String closed,
+			@QueryParam(Fields.GET_REQUESTS_SORT_ORDER) final String order,
+			@QueryParam(Fields.GET_REQUESTS_RESOURCE_TYPE) final String resType,
+			@QueryParam(Fields.GET_REQUESTS_RESOURCE_ID) final String resource,
+			@QueryParam(Fields.GET_REQUESTS_LIMIT) final String limit)
+			throws InvalidTokenException, AuthenticationException, GroupsStorageException,
+				IllegalParameterException, ResourceHandlerException, NoSuchResourceTypeException,
+				NoSuchResourceException, IllegalResourceIDException, UnauthorizedException {
+		final Token t = getToken(token, true);
+		final GetRequestsParams params = APICommon.getRequestsParams(
+				excludeUpTo, next, closed, order, resType, resource, limit, closed == null);
+		final List<GroupRequest> reqs = groups.getRequestsForTarget(t, params);
+		return toListResponse(toGroupRequestJSON(reqs), getRequestsNextToken(reqs, params));
+	}
+	
+	@GET
+	@Path(ServicePaths.REQUEST_TARGETED)
+	@Produces(MEDIA_TYPE_JSON_LINES_LOW_QS)
+	@ManagedAsync
+	public Response getTargetedRequestsAsJSONLines(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@QueryParam(Fields.GET_REQUESTS_EXCLUDE_UP_TO) final String excludeUpTo,
+			@QueryParam(Fields.GET_REQUESTS_NEXT) final String next,
 			@QueryParam(Fields.GET_REQUESTS_INCLUDE_CLOSED) final String closed,
 			@QueryParam(Fields.GET_REQUESTS_SORT_ORDER) final String order,
 			@QueryParam(Fields.GET_REQUESTS_RESOURCE_TYPE) final String resType,
-			@QueryParam(Fields.GET_REQUESTS_RESOURCE_ID) final String resource)
+			@QueryParam(Fields.GET_REQUESTS_RESOURCE_ID) final String resource,
+			@QueryParam(Fields.GET_REQUESTS_LIMIT) final String limit)
 			throws InvalidTokenException, AuthenticationException, GroupsStorageException,
 				IllegalParameterException, ResourceHandlerException, NoSuchResourceTypeException,
 				NoSuchResourceException, IllegalResourceIDException, UnauthorizedException {
-		return toGroupRequestJSON(groups.getRequestsForTarget(getToken(token, true),
-				APICommon.getRequestsParams(
-						excludeUpTo, closed, order, resType, resource, closed == null)));
+		final Token t = getToken(token, true);
+		final GetRequestsParams params = APICommon.getRequestsParams(
+				excludeUpTo, next, closed, order, resType, resource, limit, closed == null);
+		final List<GroupRequest> reqs = groups.getRequestsForTarget(t, params);
+		return toListResponse(toJSONLines(reqs, r -> toGroupRequestJSON(r)),
+				getRequestsNextToken(reqs, params));
 	}
 	
 	@GET
 	@Path(ServicePaths.REQUEST_GROUPS)
 	@Produces(MediaType.APPLICATION_JSON)
-	public List<Map<String, Object>> getRequestsForAdministratedGroups(
+	@ManagedAsync
+	public Response getRequestsForAdministratedGroups(
+			@HeaderParam(HEADER_TOKEN) final String token,
+			@QueryParam(Fields.GET_REQUESTS_EXCLUDE_UP_TO) final String excludeUpTo,
+			@QueryParam(Fields.GET_REQUESTS_NEXT) final String next,
+			@QueryParam(Fields.GET_REQUESTS_INCLUDE_CLOSED) final String closed,
+			@QueryParam(Fields.GET_REQUESTS_SORT_ORDER) final String order,
+			@QueryParam(Fields.GET_REQUESTS_RESOURCE_TYPE) final String resType,
+			@QueryParam(Fields.GET_REQUESTS_RESOURCE_ID) final String resource,
+			@QueryParam(Fields.GET_REQUESTS_LIMIT) final String limit)
+			throws InvalidTokenException, NoTokenProvidedException, AuthenticationException,
+					IllegalParameterException, GroupsStorageException,
+					NoSuchResourceTypeException {
+		final Token t = getToken(token, true);
+		final GetRequestsParams params = APICommon.getRequestsParams(
+				excludeUpTo, next, closed, order, resType, resource, limit, closed == null);
+		final List<GroupRequest> reqs = groups.getRequestsForGroups(t, params);
+		return toListResponse(toGroupRequestJSON(reqs), getRequestsNextToken(reqs, params));
+	}
+	
+	@GET
+	@Path(ServicePaths.REQUEST_GROUPS)
+	@Produces(MEDIA_TYPE_JSON_LINES_LOW_QS)
+	@ManagedAsync
+	public Response getRequestsForAdministratedGroupsAsJSONLines(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@QueryParam(Fields.GET_REQUESTS_EXCLUDE_UP_TO) final String excludeUpTo,
+			@QueryParam(Fields.GET_REQUESTS_NEXT) final String next,
 			@QueryParam(Fields.GET_REQUESTS_INCLUDE_CLOSED) final String closed,
 			@QueryParam(Fields.GET_REQUESTS_SORT_ORDER) final String order,
 			@QueryParam(Fields.GET_REQUESTS_RESOURCE_TYPE) final String resType,
-			@QueryParam(Fields.GET_REQUESTS_RESOURCE_ID) final String resource)
+			@QueryParam(Fields.GET_REQUESTS_RESOURCE_ID) final String resource,
+			@QueryParam(Fields.GET_REQUESTS_LIMIT) final String limit)
 			throws InvalidTokenException, NoTokenProvidedException, AuthenticationException,
 					IllegalParameterException, GroupsStorageException,
 					NoSuchResourceTypeException {
-		return toGroupRequestJSON(groups.getRequestsForGroups(getToken(token, true),
-				APICommon.getRequestsParams(
-						excludeUpTo, closed, order, resType, resource, closed == null)));
+		final Token t = getToken(token, true);
+		final GetRequestsParams params = APICommon.getRequestsParams(
+				excludeUpTo, next, closed, order, resType, resource, limit, closed == null);
+		final List<GroupRequest> reqs = groups.getRequestsForGroups(t, params);
+		return toListResponse(toJSONLines(reqs, r -> toGroupRequestJSON(r)),
+				getRequestsNextToken(reqs, params));
 	}
 	
 	@PUT
 	@Path(ServicePaths.REQUEST_CANCEL)
 	@Produces(MediaType.APPLICATION_JSON)
+	@ManagedAsync
 	public Map<String, Object> cancelRequest(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.REQUEST_ID) final String requestID)
@@ -195,6 +296,7 @@ public class RequestAPI {
 	@PUT
 	@Path(ServicePaths.REQUEST_ACCEPT)
 	@Produces(MediaType.APPLICATION_JSON)
+	@ManagedAsync
 	public Map<String, Object> acceptRequest(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.REQUEST_ID) final String requestID)
@@ -221,6 +323,7 @@ public class RequestAPI {
 	@PUT
 	@Path(ServicePaths.REQUEST_DENY)
 	@Produces(MediaType.APPLICATION_JSON)
+	@ManagedAsync
 	public Map<String, Object> denyRequest(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.REQUEST_ID) final String requestID,
@@ -244,6 +347,7 @@ public class RequestAPI {
 	@GET
 	@Path(ServicePaths.REQUEST_NEW)
 	@Produces(MediaType.APPLICATION_JSON)
+	@ManagedAsync
 	public Map<String, Object> groupsHaveRequests(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.IDS) final String ids)
@@ -0,0 +1,74 @@
+package us.kbase.groups.service.api;
+
+import static us.kbase.groups.service.api.APICommon.getSearchGroupsParams;
+import static us.kbase.groups.service.api.APICommon.getToken;
+import static us.kbase.groups.service.api.APICommon.toGroupJSON;
+import static us.kbase.groups.service.api.APICommon.toJSONLines;
+import static us.kbase.groups.service.api.APIConstants.HEADER_TOKEN;
+import static us.kbase.groups.service.api.APIConstants.MEDIA_TYPE_JSON_LINES_LOW_QS;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.glassfish.jersey.server.ManagedAsync;
+
+import us.kbase.groups.core.Groups;
+import us.kbase.groups.core.exceptions.AuthenticationException;
+import us.kbase.groups.core.exceptions.IllegalParameterException;
+import us.kbase.groups.core.exceptions.InvalidTokenException;
+import us.kbase.groups.core.exceptions.MissingParameterException;
+import us.kbase.groups.core.exceptions.NoTokenProvidedException;
+import us.kbase.groups.storage.exceptions.GroupsStorageException;
+
+@Path(ServicePaths.SEARCH)
+public class SearchAPI {
+
+	// TODO JAVADOC / swagger
+	
+	private final Groups groups;
+	
+	// normally instantiated by Jersey
+	@Inject
+	public SearchAPI(final Groups groups) {
+		this.groups = groups;
+	}
+	
+	@GET
+	@Path(ServicePaths.SEARCH_GROUP)
+	@Produces(MediaType.APPLICATION_JSON)
+	@ManagedAsync
+	public List<Map<String, Object>> searchGroups(
+			@HeaderParam(HEADER_TOKEN) final String token,
+			@QueryParam(Fields.SEARCH_GROUPS_QUERY) final String query,
+			@QueryParam(Fields.SEARCH_GROUPS_LIMIT) final String limit)
+			throws GroupsStorageException, IllegalParameterException, MissingParameterException,
+				NoTokenProvidedException, InvalidTokenException, AuthenticationException {
+		return groups.searchGroups(getToken(token, false), getSearchGroupsParams(query, limit))
+				.stream().map(g -> toGroupJSON(g)).collect(Collectors.toList());
+	}
+	
+	@GET
+	@Path(ServicePaths.SEARCH_GROUP)
+	@Produces(MEDIA_TYPE_JSON_LINES_LOW_QS)
+	@ManagedAsync
+	public StreamingOutput searchGroupsAsJSONLines(
+			@HeaderParam(HEADER_TOKEN) final String token,
+			@QueryParam(Fields.SEARCH_GROUPS_QUERY) final String query,
+			@QueryParam(Fields.SEARCH_GROUPS_LIMIT) final String limit)
+			throws GroupsStorageException, IllegalParameterException, MissingParameterException,
+				NoTokenProvidedException, InvalidTokenException, AuthenticationException {
+		return toJSONLines(groups.searchGroups(
+				getToken(token, false), getSearchGroupsParams(query, limit)),
+				g -> toGroupJSON(g));
+	}
+}
@@ -37,9 +37,10 @@ public class ServicePaths {
 	public static final String GROUP_REQUEST_MEMBERSHIP = GROUP_ID + SEP + "requestmembership";
 	/** the location to get requests targeted at a group. */
 	public static final String GROUP_REQUESTS = GROUP_ID + SEP + "requests";
+	/** The location to invite multiple users to a group. */
+	public static final String GROUP_USER = GROUP_ID + SEP + "user";
 	/** The location to remove a user from a group. */
-	public static final String GROUP_USER_ID = GROUP_ID + SEP + "user" + SEP + "{" +
-			Fields.GROUP_MEMBER + "}";
+	public static final String GROUP_USER_ID = GROUP_USER + SEP + "{" + Fields.GROUP_MEMBER + "}";
 	/** The location to update a user. */
 	public static final String GROUP_USER_ID_UPDATE = GROUP_USER_ID + SEP + UPDATE;
 	/** The location to promote or demote an administrator. */
@@ -94,4 +95,25 @@ public class ServicePaths {
 	public static final String NAMES = SEP + "names";
 	/** The bulk names endpoint location. */
 	public static final String NAMES_BULK = SEP + "{" + Fields.IDS + "}";
+	
+	/* Search endpoints */
+	
+	/** The search endpoint location. */
+	public static final String SEARCH = SEP + "search";
+	/** The location to search for groups. */
+	public static final String SEARCH_GROUP = SEP + GROUP_STR;
+	
+	/* Admin endpoints */
+	
+	/** The admin endpoint location. */
+	public static final String ADMIN = SEP + "admin";
+	/** The location to reindex all groups for search. */
+	public static final String ADMIN_REINDEX = SEP + "search" + SEP + "reindex";
+	/** The location to reindex a group for search. */
+	public static final String ADMIN_REINDEX_GROUP = ADMIN_REINDEX + SEP + GROUP_ID;
+	
+	/* Metrics endpoints */
+	
+	/** The metrics endpoint location. */
+	public static final String METRICS = SEP + "metrics";
 }
@@ -0,0 +1,633 @@
+package us.kbase.groups.storage;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static us.kbase.groups.util.Util.checkNoNullsInCollection;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import us.kbase.groups.core.GetGroupsParams;
+import us.kbase.groups.core.GetRequestsParams;
+import us.kbase.groups.core.Group;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.GroupIDAndName;
+import us.kbase.groups.core.GroupIDNameMembership;
+import us.kbase.groups.core.GroupSummary;
+import us.kbase.groups.core.GroupUpdateParams;
+import us.kbase.groups.core.GroupUser;
+import us.kbase.groups.core.OptionalString;
+import us.kbase.groups.core.SearchGroupsParams;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.GroupExistsException;
+import us.kbase.groups.core.exceptions.NoSuchGroupException;
+import us.kbase.groups.core.exceptions.NoSuchRequestException;
+import us.kbase.groups.core.exceptions.NoSuchResourceException;
+import us.kbase.groups.core.exceptions.NoSuchUserException;
+import us.kbase.groups.core.exceptions.RequestExistsException;
+import us.kbase.groups.core.exceptions.ResourceExistsException;
+import us.kbase.groups.core.exceptions.UserIsMemberException;
+import us.kbase.groups.core.fieldvalidation.CustomField;
+import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
+import us.kbase.groups.core.notifications.OutboxNotification;
+import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.core.request.GroupRequestStatus;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.core.resource.ResourceAdministrativeID;
+import us.kbase.groups.core.resource.ResourceDescriptor;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.storage.exceptions.GroupsStorageException;
+
+/** A storage system that caches groups fetched by ID from another storage system.
+ *
+ * Groups retrieved via {@link #getGroup(GroupID)} and {@link #getGroups(Collection)} are
+ * cached. Every method that modifies a group invalidates the cache entry for that group,
+ * whether or not the modification succeeds. A group fetched from the wrapped storage system
+ * concurrently with an invalidation of that group is not cached, so a stale group is never
+ * cached as a result of a write through this instance.
+ *
+ * If this instance is the only writer to the wrapped storage system, the cache is always
+ * coherent and entries need not expire. If other writers exist, such as other service
+ * instances sharing the same database, a time to live must be set, and groups may be stale
+ * for up to that time. Registering the cache as a {@link StorageChangeListener} with a storage
+ * system that can report changes made by other writers shortens that window to the
+ * notification latency, with the time to live as a backstop.
+ *
+ * Request methods, and methods that do not fetch groups by ID, are passed through to the wrapped
+ * storage system.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class CachingGroupsStorage implements GroupsStorage, StorageChangeListener {
+
+	private final GroupsStorage storage;
+	private final Cache<GroupID, Group> cache;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	// guards the fields below and puts into the cache
+	private final Object lock = new Object();
+	// incremented on every invalidation
+	private long generation = 0;
+	// the generation of the last invalidation of all groups
+	private long allInvalidated = 0;
+	// the generation of the last invalidation of each group invalidated while a fetch was in
+	// flight. Cleared when no fetches are in flight so the map doesn't grow without bound.
+	private final Map<GroupID, Long> invalidated = new HashMap<>();
+	private int fetchesInFlight = 0;
+
+	/** Create a cache where entries expire after a fixed time. Use this constructor when
+	 * other processes may write to the wrapped storage system.
+	 * @param storage the wrapped storage system.
+	 * @param maxSize the maximum number of groups to cache. When full, the least recently used
+	 * groups are evicted.
+	 * @param ttl the time a group is stored in the cache.
+	 */
+	public CachingGroupsStorage(
+			final GroupsStorage storage,
+			final int maxSize,
+			final Duration ttl) {
+		this(storage, maxSize, Optional.of(checkNotNull(ttl, "ttl")), Ticker.systemTicker());
+	}
+
+	/** Create a cache where entries never expire, and are only removed when the group is
+	 * modified or the cache is full. Only use this constructor when all writes to the wrapped
+	 * storage system pass through this instance, e.g. for a single server deployment.
+	 * @param storage the wrapped storage system.
+	 * @param maxSize the maximum number of groups to cache. When full, the least recently used
+	 * groups are evicted.
+	 */
+	public CachingGroupsStorage(
+			final GroupsStorage storage,
+			final int maxSize) {
+		this(storage, maxSize, Optional.empty(), Ticker.systemTicker());
+	}
+
+	// for testing
+	private CachingGroupsStorage(
+			final GroupsStorage storage,
+			final int maxSize,
+			final Optional<Duration> ttl,
+			final Ticker ticker) {
+		checkNotNull(storage, "storage");
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be > 0");
+		}
+		this.storage = storage;
+		final CacheBuilder<Object, Object> b = CacheBuilder.newBuilder()
+				.maximumSize(maxSize)
+				.ticker(ticker);
+		if (ttl.isPresent()) {
+			if (ttl.get().isZero() || ttl.get().isNegative()) {
+				throw new IllegalArgumentException("ttl must be positive");
+			}
+			b.expireAfterWrite(ttl.get().toNanos(), TimeUnit.NANOSECONDS);
+		}
+		this.cache = b.build();
+	}
+
+	/** Remove a group from the cache.
+	 * @param groupID the ID of the group to remove.
+	 */
+	public void invalidate(final GroupID groupID) {
+		checkNotNull(groupID, "groupID");
+		synchronized (lock) {
+			generation++;
+			if (fetchesInFlight > 0) {
+				invalidated.put(groupID, generation);
+			}
+			cache.invalidate(groupID);
+		}
+	}
+
+	/** Remove all groups from the cache. */
+	public void invalidateAll() {
+		synchronized (lock) {
+			generation++;
+			allInvalidated = generation;
+			invalidated.clear();
+			cache.invalidateAll();
+		}
+	}
+
+	@Override
+	public void groupChanged(final GroupID groupID) {
+		invalidate(groupID);
+	}
+
+	@Override
+	public void requestChanged(final RequestID requestID) {
+		// requests are not cached
+	}
+
+	@Override
+	public void allChanged() {
+		invalidateAll();
+	}
+
+	/** Get the number of groups that were served from the cache.
+	 * @return the number of cache hits.
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/** Get the number of groups that were fetched from the wrapped storage system.
+	 * @return the number of cache misses.
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	// call endFetch() when the fetch completes, whether or not it succeeds
+	private long startFetch() {
+		synchronized (lock) {
+			fetchesInFlight++;
+			return generation;
+		}
+	}
+	
+	private void endFetch() {
+		synchronized (lock) {
+			fetchesInFlight--;
+			if (fetchesInFlight == 0) {
+				invalidated.clear();
+			}
+		}
+	}
+	
+	private void put(final long fetchGeneration, final Collection<Group> groups) {
+		synchronized (lock) {
+			// if a group was invalidated while fetching, the fetched group may be stale
+			if (allInvalidated > fetchGeneration) {
+				return;
+			}
+			for (final Group g: groups) {
+				if (invalidated.getOrDefault(g.getGroupID(), 0L) <= fetchGeneration) {
+					cache.put(g.getGroupID(), g);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void createGroup(final Group group)
+			throws GroupExistsException, GroupsStorageException {
+		checkNotNull(group, "group");
+		try {
+			storage.createGroup(group);
+		} finally {
+			invalidate(group.getGroupID());
+		}
+	}
+
+	@Override
+	public void updateGroup(final GroupUpdateParams update, final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException {
+		checkNotNull(update, "update");
+		try {
+			storage.updateGroup(update, modDate);
+		} finally {
+			invalidate(update.getGroupID());
+		}
+	}
+
+	@Override
+	public Group getGroup(final GroupID groupID)
+			throws GroupsStorageException, NoSuchGroupException {
+		checkNotNull(groupID, "groupID");
+		final Group g = cache.getIfPresent(groupID);
+		if (g != null) {
+			hits.incrementAndGet();
+			return g;
+		}
+		misses.incrementAndGet();
+		final long gen = startFetch();
+		try {
+			final Group fetched = storage.getGroup(groupID);
+			put(gen, Arrays.asList(fetched));
+			return fetched;
+		} finally {
+			endFetch();
+		}
+	}
+
+	@Override
+	public Set<Group> getGroups(final Collection<GroupID> groupIDs)
+			throws NoSuchGroupException, GroupsStorageException {
+		checkNoNullsInCollection(groupIDs, "groupIDs");
+		final Set<Group> ret = new HashSet<>();
+		final List<GroupID> uncached = new LinkedList<>();
+		for (final GroupID id: new HashSet<>(groupIDs)) {
+			final Group g = cache.getIfPresent(id);
+			if (g == null) {
+				uncached.add(id);
+			} else {
+				ret.add(g);
+			}
+		}
+		hits.addAndGet(ret.size());
+		if (!uncached.isEmpty()) {
+			misses.addAndGet(uncached.size());
+			final long gen = startFetch();
+			try {
+				final Set<Group> fetched = storage.getGroups(uncached);
+				put(gen, fetched);
+				ret.addAll(fetched);
+			} finally {
+				endFetch();
+			}
+		}
+		return ret;
+	}
+
+	@Override
+	public List<GroupIDNameMembership> getGroupNames(
+			final UserName user,
+			final Collection<GroupID> groupID)
+			throws GroupsStorageException, NoSuchGroupException {
+		return storage.getGroupNames(user, groupID);
+	}
+
+	@Override
+	public boolean getGroupExists(final GroupID groupID) throws GroupsStorageException {
+		return storage.getGroupExists(groupID);
+	}
+
+	@Override
+	public List<GroupIDAndName> getMemberGroups(final UserName user)
+			throws GroupsStorageException {
+		return storage.getMemberGroups(user);
+	}
+
+	@Override
+	public Set<GroupID> getAdministratedGroups(final UserName user)
+			throws GroupsStorageException {
+		return storage.getAdministratedGroups(user);
+	}
+
+	@Override
+	public List<Group> getGroups(
+			final GetGroupsParams params,
+			final boolean resourceIsPublic,
+			final UserName user)
+			throws GroupsStorageException {
+		return storage.getGroups(params, resourceIsPublic, user);
+	}
+
+	@Override
+	public List<GroupSummary> getGroupSummaries(
+			final GetGroupsParams params,
+			final boolean resourceIsPublic,
+			final UserName user,
+			final Set<CustomField> customFields)
+			throws GroupsStorageException {
+		return storage.getGroupSummaries(params, resourceIsPublic, user, customFields);
+	}
+
+	@Override
+	public List<GroupSummary> getGroupSummaries(
+			final UserName user,
+			final Collection<GroupID> groupIDs)
+			throws NoSuchGroupException, GroupsStorageException {
+		return storage.getGroupSummaries(user, groupIDs);
+	}
+
+	@Override
+	public List<GroupSummary> searchGroups(
+			final SearchGroupsParams params,
+			final UserName user,
+			final Set<CustomField> customFields)
+			throws GroupsStorageException {
+		return storage.searchGroups(params, user, customFields);
+	}
+
+	@Override
+	public void reindexGroup(final GroupID groupID)
+			throws NoSuchGroupException, GroupsStorageException {
+		// the group record isn't changed, so no need to invalidate
+		storage.reindexGroup(groupID);
+	}
+
+	@Override
+	public long reindexGroups() throws GroupsStorageException {
+		return storage.reindexGroups();
+	}
+
+	@Override
+	public void addMember(final GroupID groupID, final GroupUser member, final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException, UserIsMemberException {
+		checkNotNull(groupID, "groupID");
+		try {
+			storage.addMember(groupID, member, modDate);
+		} finally {
+			invalidate(groupID);
+		}
+	}
+
+	@Override
+	public void removeMember(final GroupID groupID, final UserName member, final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException, NoSuchUserException {
+		checkNotNull(groupID, "groupID");
+		try {
+			storage.removeMember(groupID, member, modDate);
+		} finally {
+			invalidate(groupID);
+		}
+	}
+
+	@Override
+	public void addAdmin(final GroupID groupID, final UserName admin, final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException, UserIsMemberException,
+				NoSuchUserException {
+		checkNotNull(groupID, "groupID");
+		try {
+			storage.addAdmin(groupID, admin, modDate);
+		} finally {
+			invalidate(groupID);
+		}
+	}
+
+	@Override
+	public void demoteAdmin(final GroupID groupID, final UserName member, final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException, NoSuchUserException {
+		checkNotNull(groupID, "groupID");
+		try {
+			storage.demoteAdmin(groupID, member, modDate);
+		} finally {
+			invalidate(groupID);
+		}
+	}
+
+	@Override
+	public void updateUser(
+			final GroupID groupID,
+			final UserName member,
+			final Map<NumberedCustomField, OptionalString> fields,
+			final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException, NoSuchUserException {
+		checkNotNull(groupID, "groupID");
+		try {
+			storage.updateUser(groupID, member, fields, modDate);
+		} finally {
+			invalidate(groupID);
+		}
+	}
+
+	@Override
+	public void updateUser(
+			final GroupID groupID,
+			final UserName member,
+			final Instant lastVisited)
+			throws NoSuchGroupException, GroupsStorageException, NoSuchUserException {
+		checkNotNull(groupID, "groupID");
+		try {
+			storage.updateUser(groupID, member, lastVisited);
+		} finally {
+			invalidate(groupID);
+		}
+	}
+	
+	@Override
+	public void updateLastVisits(final Map<GroupID, Map<UserName, Instant>> lastVisits)
+			throws GroupsStorageException {
+		checkNotNull(lastVisits, "lastVisits");
+		try {
+			storage.updateLastVisits(lastVisits);
+		} finally {
+			for (final GroupID id: lastVisits.keySet()) {
+				if (id != null) { // the wrapped storage system throws on nulls
+					invalidate(id);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void addResource(
+			final GroupID groupID,
+			final ResourceType type,
+			final ResourceDescriptor resource,
+			final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException, ResourceExistsException {
+		checkNotNull(groupID, "groupID");
+		try {
+			storage.addResource(groupID, type, resource, modDate);
+		} finally {
+			invalidate(groupID);
+		}
+	}
+
+	@Override
+	public void removeResource(
+			final GroupID groupID,
+			final ResourceType type,
+			final ResourceID resource,
+			final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException, NoSuchResourceException {
+		checkNotNull(groupID, "groupID");
+		try {
+			storage.removeResource(groupID, type, resource, modDate);
+		} finally {
+			invalidate(groupID);
+		}
+	}
+
+	@Override
+	public void storeRequest(final GroupRequest request)
+			throws RequestExistsException, GroupsStorageException {
+		storage.storeRequest(request);
+	}
+	
+	@Override
+	public void storeRequest(final GroupRequest request, final Set<UserName> targets)
+			throws RequestExistsException, GroupsStorageException {
+		storage.storeRequest(request, targets);
+	}
+
+	@Override
+	public Set<RequestID> storeRequests(final Collection<GroupRequest> requests)
+			throws GroupsStorageException {
+		return storage.storeRequests(requests);
+	}
+
+	@Override
+	public GroupRequest getRequest(final RequestID requestID)
+			throws NoSuchRequestException, GroupsStorageException {
+		return storage.getRequest(requestID);
+	}
+
+	@Override
+	public List<GroupRequest> getRequestsByRequester(
+			final UserName requester,
+			final GetRequestsParams params)
+			throws GroupsStorageException {
+		return storage.getRequestsByRequester(requester, params);
+	}
+
+	@Override
+	public List<GroupRequest> getRequestsByTarget(
+			final UserName target,
+			final Map<ResourceType, Set<ResourceAdministrativeID>> resources,
+			final GetRequestsParams params)
+			throws GroupsStorageException {
+		return storage.getRequestsByTarget(target, resources, params);
+	}
+
+	@Override
+	public List<GroupRequest> getRequestsByTarget(final GetRequestsParams params)
+			throws GroupsStorageException {
+		return storage.getRequestsByTarget(params);
+	}
+	
+	@Override
+	public boolean setRequestTargets(final RequestID requestID, final Set<UserName> targets)
+			throws NoSuchRequestException, GroupsStorageException {
+		return storage.setRequestTargets(requestID, targets);
+	}
+	
+	@Override
+	public List<GroupRequest> getRequestsByTargetUser(
+			final UserName target,
+			final GetRequestsParams params)
+			throws GroupsStorageException {
+		return storage.getRequestsByTargetUser(target, params);
+	}
+	
+	@Override
+	public List<GroupRequest> getOpenInvitations(
+			final Optional<RequestID> excludeUpTo,
+			final int limit)
+			throws GroupsStorageException {
+		return storage.getOpenInvitations(excludeUpTo, limit);
+	}
+
+	@Override
+	public List<GroupRequest> getRequestsByGroup(
+			final GroupID groupID,
+			final GetRequestsParams params)
+			throws GroupsStorageException {
+		return storage.getRequestsByGroup(groupID, params);
+	}
+
+	@Override
+	public List<GroupRequest> getRequestsByGroups(
+			final Set<GroupID> groupIDs,
+			final GetRequestsParams params)
+			throws GroupsStorageException {
+		return storage.getRequestsByGroups(groupIDs, params);
+	}
+
+	@Override
+	public Map<GroupID, Instant> getLatestOpenRequestDates(final Collection<GroupID> groupIDs)
+			throws GroupsStorageException {
+		return storage.getLatestOpenRequestDates(groupIDs);
+	}
+
+	@Override
+	public void closeRequest(
+			final RequestID requestID,
+			final GroupRequestStatus status,
+			final Instant modificationTime)
+			throws NoSuchRequestException, GroupsStorageException {
+		storage.closeRequest(requestID, status, modificationTime);
+	}
+
+	@Override
+	public void storeNotification(final OutboxNotification notification)
+			throws GroupsStorageException {
+		storage.storeNotification(notification);
+	}
+
+	@Override
+	public List<OutboxNotification> claimNotifications(
+			final Instant now,
+			final Instant claimExpiration,
+			final int limit)
+			throws GroupsStorageException {
+		return storage.claimNotifications(now, claimExpiration, limit);
+	}
+
+	@Override
+	public void removeNotification(final UUID id) throws GroupsStorageException {
+		storage.removeNotification(id);
+	}
+
+	@Override
+	public void retryNotification(final UUID id, final Instant nextAttempt)
+			throws GroupsStorageException {
+		storage.retryNotification(id, nextAttempt);
+	}
+
+	@Override
+	public Optional<Long> acquireLease(
+			final String leaseName,
+			final String holder,
+			final Instant now,
+			final Instant expiration)
+			throws GroupsStorageException {
+		return storage.acquireLease(leaseName, holder, now, expiration);
+	}
+
+	@Override
+	public void releaseLease(final String leaseName, final String holder)
+			throws GroupsStorageException {
+		storage.releaseLease(leaseName, holder);
+	}
+}
@@ -4,7 +4,9 @@ import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
 
 import us.kbase.groups.core.GetGroupsParams;
 import us.kbase.groups.core.GetRequestsParams;
@@ -12,10 +14,12 @@ import us.kbase.groups.core.Group;
 import us.kbase.groups.core.GroupID;
 import us.kbase.groups.core.GroupIDAndName;
 import us.kbase.groups.core.GroupIDNameMembership;
+import us.kbase.groups.core.GroupSummary;
 import us.kbase.groups.core.GroupUpdateParams;
 import us.kbase.groups.core.GroupUser;
 import us.kbase.groups.core.Groups;
 import us.kbase.groups.core.OptionalString;
+import us.kbase.groups.core.SearchGroupsParams;
 import us.kbase.groups.core.UserName;
 import us.kbase.groups.core.exceptions.GroupExistsException;
 import us.kbase.groups.core.exceptions.NoSuchGroupException;
@@ -25,7 +29,9 @@ import us.kbase.groups.core.exceptions.NoSuchUserException;
 import us.kbase.groups.core.exceptions.RequestExistsException;
 import us.kbase.groups.core.exceptions.ResourceExistsException;
 import us.kbase.groups.core.exceptions.UserIsMemberException;
+import us.kbase.groups.core.fieldvalidation.CustomField;
 import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
+import us.kbase.groups.core.notifications.OutboxNotification;
 import us.kbase.groups.core.request.GroupRequest;
 import us.kbase.groups.core.request.GroupRequestStatus;
 import us.kbase.groups.core.request.GroupRequestStatusType;
@@ -114,7 +120,7 @@ public interface GroupsStorage {
 	Set<GroupID> getAdministratedGroups(UserName user) throws GroupsStorageException;
 	
 	/** Get groups in the system, sorted by the group ID.
-	 * At most 100 groups are returned.
+	 * At most 100 groups are returned unless a limit is specified in the parameters.
 	 * If the user is null and the user's role is not None no groups are returned.
 	 * If the user is null, a resource is present in the parameters, and that resource is private,
 	 * no groups are returned.
@@ -128,6 +134,75 @@ public interface GroupsStorage {
 	List<Group> getGroups(GetGroupsParams params, boolean resourceIsPublic, UserName user)
 			throws GroupsStorageException;
 	
+	/** Get summaries of groups in the system, selected and sorted identically to
+	 * {@link #getGroups(GetGroupsParams, boolean, UserName)}. The summaries contain only the
+	 * information required for a minimal view of the groups and are therefore much cheaper
+	 * to retrieve than full groups.
+	 * @param params the parameters for getting the groups.
+	 * @param resourceIsPublic true if the resource in the params is public, false otherwise.
+	 * Ignored if no resource is present.
+	 * @param user an optional user. If no user is provided, only public groups are returned.
+	 * The summaries contain the user's role in and last visit to each group.
+	 * @param customFields the roots of the group custom fields to include in the summaries.
+	 * Other custom fields are omitted.
+	 * @return the group summaries.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	List<GroupSummary> getGroupSummaries(
+			GetGroupsParams params,
+			boolean resourceIsPublic,
+			UserName user,
+			Set<CustomField> customFields)
+			throws GroupsStorageException;
+	
+	/** Get summaries of specific groups, sorted by the group ID. The summaries contain only the
+	 * information required for a minimal view of the groups and are therefore much cheaper
+	 * to retrieve than full groups. No custom fields are included in the summaries.
+	 * @param user an optional user. If provided, the summaries contain the user's role in and
+	 * last visit to each group.
+	 * @param groupIDs the IDs of the groups.
+	 * @return the group summaries.
+	 * @throws NoSuchGroupException if there is no group with one of the given IDs.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	List<GroupSummary> getGroupSummaries(UserName user, Collection<GroupID> groupIDs)
+			throws NoSuchGroupException, GroupsStorageException;
+	
+	/** Search for groups via a text search against the group names and custom fields, ordered
+	 * by relevance. Only the public custom fields of groups are searched unless the user is a
+	 * member of the group. Private groups are only searched if the user is a member.
+	 * The search relies on a text index maintained by the storage system as groups are
+	 * created and modified; see {@link #reindexGroup(GroupID)}.
+	 * @param params the search parameters.
+	 * @param user an optional user. If no user is provided, only public groups are searched.
+	 * The summaries contain the user's role in and last visit to each group.
+	 * @param customFields the roots of the group custom fields to include in the summaries.
+	 * Other custom fields are omitted.
+	 * @return the group summaries.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	List<GroupSummary> searchGroups(
+			SearchGroupsParams params,
+			UserName user,
+			Set<CustomField> customFields)
+			throws GroupsStorageException;
+	
+	/** Rebuild the search index entries for a group from the group record. Group modifications
+	 * and index updates are not atomic, so the index may become out of sync with the group
+	 * if the storage system fails between the two updates.
+	 * @param groupID the ID of the group to reindex.
+	 * @throws NoSuchGroupException if there is no group with the given ID.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	void reindexGroup(GroupID groupID) throws NoSuchGroupException, GroupsStorageException;
+	
+	/** Rebuild the search index entries for all groups. This is required when the
+	 * searchable custom fields change.
+	 * @return the number of groups reindexed.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	long reindexGroups() throws GroupsStorageException;
+	
 	/** Add a member to a group.
 	 * @param groupID the ID of the group.
 	 * @param member the new member.
@@ -206,6 +281,16 @@ public interface GroupsStorage {
 	void updateUser(GroupID groupID, UserName member, Instant lastVisited)
 			throws NoSuchGroupException, GroupsStorageException, NoSuchUserException;
 	
+	/** Update the last visited dates of multiple group members at once. As
+	 * {@link #updateUser(GroupID, UserName, Instant)}, except that a date is only stored if it
+	 * is later than the member's current last visited date, and dates for groups that do not
+	 * exist or users that are not members of the group are ignored.
+	 * @param lastVisits a mapping of group ID to the dates the members of the group visited.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	void updateLastVisits(Map<GroupID, Map<UserName, Instant>> lastVisits)
+			throws GroupsStorageException;
+	
 	/** Add a resource to a group.
 	 * @param groupID the group ID.
 	 * @param type the resource type.
@@ -249,6 +334,38 @@ public interface GroupsStorage {
 	void storeRequest(GroupRequest request)
 			throws RequestExistsException, GroupsStorageException;
 	
+	/** Store a new invitation to a resource along with the users it targets, e.g. the
+	 * administrators of the resource, in a single write. Otherwise identical to
+	 * {@link #storeRequest(GroupRequest)}. The targets of invitations to users are always
+	 * recorded when the request is stored.
+	 * See {@link #getRequestsByTargetUser(UserName, GetRequestsParams)}.
+	 * @param request the new request.
+	 * @param targets the targeted users.
+	 * @throws IllegalArgumentException if the request ID already exists or the request is
+	 * not an invitation to a resource other than a user.
+	 * @throws RequestExistsException if an effectively identical request (the same requester,
+	 * group, target, and type) already exists in an {@link GroupRequestStatusType#OPEN} state
+	 * in the system.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	void storeRequest(GroupRequest request, Set<UserName> targets)
+			throws RequestExistsException, GroupsStorageException;
+	
+	/** Store a set of new requests in a single operation. The request IDs must not already be
+	 * present in the system.
+	 * Unlike {@link #storeRequest(GroupRequest)}, a request for which an effectively identical
+	 * request already exists in an {@link GroupRequestStatusType#OPEN} state does not cause an
+	 * exception - the request is not stored and its ID is included in the returned set.
+	 * All other requests are stored.
+	 * @param requests the new requests.
+	 * @return the IDs of the requests that were not stored because an effectively identical
+	 * request already exists.
+	 * @throws IllegalArgumentException if a request ID already exists.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	Set<RequestID> storeRequests(Collection<GroupRequest> requests)
+			throws GroupsStorageException;
+	
 	/** Get a request.
 	 * @param requestID the ID of the request.
 	 * @return the request.
@@ -259,7 +376,7 @@ public interface GroupsStorage {
 			throws NoSuchRequestException, GroupsStorageException;
 	
 	/** Get the open requests created by a user, sorted by the modification time of the request.
-	 * At most 100 requests are returned.
+	 * At most 100 requests are returned unless a limit is specified in the parameters.
 	 * @param requester the user that created the requests.
 	 * @param params the parameters for getting the requests.
 	 * @return the requests.
@@ -270,7 +387,7 @@ public interface GroupsStorage {
 	
 	/** Get the open requests that target a user or the resources a user administrates,
 	 * sorted by the modification time of the request.
-	 * At most 100 requests are returned.
+	 * At most 100 requests are returned unless a limit is specified in the parameters.
 	 * @param target the targeted user.
 	 * @param resources the resources that user administrates.
 	 * @param params the parameters for getting the requests. A particular resource may not
@@ -286,7 +403,7 @@ public interface GroupsStorage {
 	
 	/** Get the open requests that target a specific resource (e.g. the request type is always
 	 * {@link RequestType#INVITE}) sorted by the modification time of the request.
-	 * At most 100 requests are returned.
+	 * At most 100 requests are returned unless a limit is specified in the parameters.
 	 * @param params the parameters for getting the requests. A particular resource must
 	 * be specified in the parameters.
 	 * @return the requests.
@@ -294,9 +411,48 @@ public interface GroupsStorage {
 	 */
 	List<GroupRequest> getRequestsByTarget(GetRequestsParams params)
 			throws GroupsStorageException;
+	
+	/** Record the users targeted by an open invitation to a resource, e.g. the administrators
+	 * of the resource, replacing any previously recorded targets. The request is only written
+	 * if the targets differ from the recorded targets. The targets of invitations
+	 * to users are recorded when the request is stored.
+	 * See {@link #getRequestsByTargetUser(UserName, GetRequestsParams)}.
+	 * @param requestID the ID of the request.
+	 * @param targets the targeted users.
+	 * @return true if the recorded targets changed, false if they were already the same as
+	 * the given targets.
+	 * @throws NoSuchRequestException if there is no open request with the given ID.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	boolean setRequestTargets(RequestID requestID, Set<UserName> targets)
+			throws NoSuchRequestException, GroupsStorageException;
+	
+	/** Get the open requests whose recorded targets include a user, sorted by the modification
+	 * time of the request. Unlike
+	 * {@link #getRequestsByTarget(UserName, Map, GetRequestsParams)}, the resources the user
+	 * administrates are not required, but invitations to resources are only returned if their
+	 * targets have been recorded with {@link #setRequestTargets(RequestID, Set)}.
+	 * At most 100 requests are returned unless a limit is specified in the parameters.
+	 * @param target the targeted user.
+	 * @param params the parameters for getting the requests. A particular resource may not
+	 * be specified in the parameters.
+	 * @return the requests.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	List<GroupRequest> getRequestsByTargetUser(UserName target, GetRequestsParams params)
+			throws GroupsStorageException;
+	
+	/** Get open invitations, of any resource type, sorted by the request ID.
+	 * @param excludeUpTo if present, only requests with an ID after this ID are returned.
+	 * @param limit the maximum number of requests to return.
+	 * @return the requests.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	List<GroupRequest> getOpenInvitations(Optional<RequestID> excludeUpTo, int limit)
+			throws GroupsStorageException;
 
 	/** Get the open requests that target a group, sorted by the modification time of the request.
-	 * At most 100 requests are returned.
+	 * At most 100 requests are returned unless a limit is specified in the parameters.
 	 * Requests that target a group are of type {@link RequestType#REQUEST}.
 	 * @param groupID the targeted group.
 	 * @param params the parameters for getting the requests.
@@ -308,7 +464,7 @@ public interface GroupsStorage {
 	
 	/** Get the open requests that target a set of groups, sorted by the modification time of the
 	 * request.
-	 * At most 100 requests are returned.
+	 * At most 100 requests are returned unless a limit is specified in the parameters.
 	 * Requests that target a group are of type {@link RequestType#REQUEST}.
 	 * @param groupIDs the targeted groups.
 	 * @param params the parameters for getting the requests.
@@ -318,15 +474,16 @@ public interface GroupsStorage {
 	List<GroupRequest> getRequestsByGroups(Set<GroupID> groupIDs, GetRequestsParams params)
 			throws GroupsStorageException;
 	
-	/** Check if a group has at least one open incoming
-	 * (e.g. are {@link RequestType#REQUEST}s) request later than a specified date.
-	 * @param groupID the ID of the group to check.
-	 * @param laterThan if all open requests were created on a date earlier or equal to  this,
-	 * false is returned. If null, returns true if any open requests exist.
-	 * @return true if at least one open request exists, false otherwise.
+	/** Get the modification date of the most recently modified open incoming
+	 * (e.g. are {@link RequestType#REQUEST}s) request for each of a set of groups.
+	 * Groups with no open incoming requests are not included in the returned map.
+	 * @param groupIDs the IDs of the groups to check.
+	 * @return a mapping of group ID to the latest modification date of the group's open
+	 * incoming requests.
 	 * @throws GroupsStorageException if an error occurs contacting the storage system.
 	 */
-	boolean groupHasRequest(GroupID groupID, Instant laterThan) throws GroupsStorageException;
+	Map<GroupID, Instant> getLatestOpenRequestDates(Collection<GroupID> groupIDs)
+			throws GroupsStorageException;
 	
 	/** Close a request. WARNING: this function will allow setting the modification time to
 	 * an earlier date than the creation time of the request, which will cause indeterminate
@@ -343,4 +500,77 @@ public interface GroupsStorage {
 			GroupRequestStatus status,
 			Instant modificationTime)
 			throws NoSuchRequestException, GroupsStorageException;
+	
+	/** Store a notification in the notification outbox for later delivery. The notification
+	 * will be available for delivery immediately.
+	 * 
+	 * Notifications about requests, other than cancellations, are deduplicated by the request
+	 * ID and notification type - if a notification with the same request ID and type is
+	 * already in the outbox, the new notification is silently discarded. Cancellations may
+	 * cover many requests and are harmless to repeat, and so are not deduplicated.
+	 * @param notification the notification.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	void storeNotification(OutboxNotification notification) throws GroupsStorageException;
+	
+	/** Claim notifications from the notification outbox for delivery, oldest first.
+	 * A claimed notification will not be returned from this method again until the claim
+	 * expires, which allows multiple processes to deliver notifications from the same outbox.
+	 * Once delivered, a notification should be removed with
+	 * {@link #removeNotification(UUID)}. If delivery fails, the notification should be
+	 * rescheduled with {@link #retryNotification(UUID, Instant)}.
+	 * @param now the current time. Only notifications that are available for delivery at
+	 * this time are claimed.
+	 * @param claimExpiration the time at which the claim expires and the notifications become
+	 * available for delivery again.
+	 * @param limit the maximum number of notifications to claim.
+	 * @return the claimed notifications.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	List<OutboxNotification> claimNotifications(Instant now, Instant claimExpiration, int limit)
+			throws GroupsStorageException;
+	
+	/** Remove a notification from the notification outbox. Removing a notification that does
+	 * not exist has no effect.
+	 * @param id the ID of the notification.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	void removeNotification(UUID id) throws GroupsStorageException;
+	
+	/** Record a failed attempt to deliver a notification and reschedule it for delivery.
+	 * Rescheduling a notification that does not exist has no effect.
+	 * @param id the ID of the notification.
+	 * @param nextAttempt the time at which the notification becomes available for delivery
+	 * again.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	void retryNotification(UUID id, Instant nextAttempt) throws GroupsStorageException;
+	
+	/** Acquire or renew a lease. Leases ensure that only one of the processes using the storage
+	 * system runs a background task, such as expiring requests, at any one time.
+	 * 
+	 * The lease is acquired if no holder has the lease, the lease has expired, or the holder
+	 * already has the lease. Each time the lease passes to a new holder the lease's fencing
+	 * token is incremented, so a holder can tell whether another holder had the lease in the
+	 * meantime.
+	 * @param leaseName the name of the lease.
+	 * @param holder the ID of the process acquiring the lease. The ID must be unique across
+	 * all the processes using the storage system.
+	 * @param now the current time. The lease is expired if its expiration is at or before
+	 * this time.
+	 * @param expiration the time at which the lease expires if it is not renewed.
+	 * @return the fencing token if the lease was acquired or renewed, or {@link Optional#empty()}
+	 * if another holder has the lease.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	Optional<Long> acquireLease(String leaseName, String holder, Instant now, Instant expiration)
+			throws GroupsStorageException;
+	
+	/** Release a lease so that another process may acquire it immediately. Releasing a lease
+	 * that the holder does not have has no effect.
+	 * @param leaseName the name of the lease.
+	 * @param holder the ID of the process releasing the lease.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	void releaseLease(String leaseName, String holder) throws GroupsStorageException;
 }
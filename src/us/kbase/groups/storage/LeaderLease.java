@@ -0,0 +1,130 @@
+package us.kbase.groups.storage;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static us.kbase.groups.util.Util.exceptOnEmpty;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.slf4j.LoggerFactory;
+
+import us.kbase.groups.storage.exceptions.GroupsStorageException;
+
+/** A lease in a {@link GroupsStorage} that elects a single leader among the processes using
+ * the storage system. Background tasks that only need to run in one process, such as
+ * expiring requests, check that this process is the leader before each run.
+ *
+ * The lease is acquired or renewed when {@link #checkLeadership()} is called and less than
+ * half of the lease's time to live remains, and so the task must check leadership at least
+ * that often to keep the lease. If the leader dies, another process acquires the lease
+ * once it expires.
+ *
+ * Safe for concurrent use.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class LeaderLease {
+
+	private final GroupsStorage storage;
+	private final String name;
+	private final Duration ttl;
+	private final Clock clock;
+	private final String holder;
+
+	private Optional<Long> token = Optional.empty();
+	private Instant renewAt = Instant.MIN;
+	private boolean released = false;
+
+	/** Create the lease. The lease is not acquired until {@link #checkLeadership()} is called.
+	 * @param storage the storage system in which the lease is stored.
+	 * @param name the name of the lease. All the processes competing for the lease must use
+	 * the same name.
+	 * @param ttl the time the lease is held without being renewed.
+	 */
+	public LeaderLease(final GroupsStorage storage, final String name, final Duration ttl) {
+		this(storage, name, ttl, Clock.systemDefaultZone(), UUID.randomUUID().toString());
+	}
+
+	// for testing
+	private LeaderLease(
+			final GroupsStorage storage,
+			final String name,
+			final Duration ttl,
+			final Clock clock,
+			final String holder) {
+		checkNotNull(storage, "storage");
+		exceptOnEmpty(name, "name");
+		checkNotNull(ttl, "ttl");
+		if (ttl.isNegative() || ttl.isZero()) {
+			throw new IllegalArgumentException("ttl must be positive");
+		}
+		this.storage = storage;
+		this.name = name;
+		this.ttl = ttl;
+		this.clock = clock;
+		this.holder = holder;
+	}
+
+	/** Get the name of the lease.
+	 * @return the name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/** Get the ID of this process as the lease holder. The ID is unique per instance of this
+	 * class.
+	 * @return the holder ID.
+	 */
+	public String getHolder() {
+		return holder;
+	}
+
+	/** Check whether this process is the leader, acquiring or renewing the lease if necessary.
+	 * @return the fencing token of the lease if this process is the leader, or
+	 * {@link Optional#empty()} otherwise. If the token differs from the token returned from a
+	 * previous call, another process held the lease in the meantime. Always empty once the
+	 * lease has been released.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system. This
+	 * process is no longer considered to be the leader.
+	 */
+	public synchronized Optional<Long> checkLeadership() throws GroupsStorageException {
+		if (released) {
+			return Optional.empty();
+		}
+		final Instant now = clock.instant();
+		if (token.isPresent() && now.isBefore(renewAt)) {
+			return token;
+		}
+		final Optional<Long> prev = token;
+		token = Optional.empty();
+		final Optional<Long> newToken = storage.acquireLease(name, holder, now, now.plus(ttl));
+		if (newToken.isPresent()) {
+			renewAt = now.plus(ttl.dividedBy(2));
+			if (!newToken.equals(prev)) {
+				LoggerFactory.getLogger(getClass()).info(String.format(
+						"Acquired lease %s with fencing token %s", name, newToken.get()));
+			}
+		} else if (prev.isPresent()) {
+			LoggerFactory.getLogger(getClass()).info("Lost lease " + name);
+		}
+		token = newToken;
+		return token;
+	}
+
+	/** Release the lease if this process holds it, allowing another process to acquire it
+	 * immediately. Once released, this instance never acquires the lease again, which
+	 * prevents a task that is still running from taking the lease back.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	public synchronized void release() throws GroupsStorageException {
+		released = true;
+		if (token.isPresent()) {
+			token = Optional.empty();
+			storage.releaseLease(name, holder);
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package us.kbase.groups.storage;
+
+import java.util.List;
+
+import us.kbase.groups.core.request.RequestID;
+
+/** A listener for requests that have been expired by a storage system's request expiration
+ * agent. Used to cancel the notifications for the requests.
+ *
+ * Implementations must be thread safe, as they are called from the expiration agent's thread.
+ * @author gaprice@lbl.gov
+ *
+ */
+public interface RequestExpirationListener {
+
+	/** Called after a batch of requests has been expired. If any listener throws an exception,
+	 * all the listeners are called again with the same requests later, so implementations
+	 * must tolerate being called more than once for a request.
+	 * @param requestIDs the IDs of the expired requests.
+	 */
+	void requestsExpired(List<RequestID> requestIDs);
+}
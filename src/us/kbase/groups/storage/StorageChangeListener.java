@@ -0,0 +1,30 @@
+package us.kbase.groups.storage;
+
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.request.RequestID;
+
+/** A listener for changes to data in a storage system, typically made by other processes.
+ * Used to invalidate in-process caches.
+ *
+ * Implementations must be thread safe and should return quickly, as they are usually called
+ * from the storage system's notification thread.
+ * @author gaprice@lbl.gov
+ *
+ */
+public interface StorageChangeListener {
+
+	/** Called when a group has been created or modified.
+	 * @param groupID the ID of the group.
+	 */
+	void groupChanged(GroupID groupID);
+
+	/** Called when a request has been created or modified.
+	 * @param requestID the ID of the request.
+	 */
+	void requestChanged(RequestID requestID);
+
+	/** Called when an unknown set of data may have changed, for example when changes may
+	 * have been missed. All cached data should be discarded.
+	 */
+	void allChanged();
+}
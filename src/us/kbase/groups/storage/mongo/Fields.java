@@ -58,6 +58,28 @@ public class Fields {
 	/** The date the resource was added to the group. */
 	public static final String GROUP_RESOURCE_ADDED = "add";
 	
+	// group summary fields, computed in aggregations rather than stored
+	/** The number of members in a group. */
+	public static final String GROUP_SUMMARY_MEMBER_COUNT = "membcount";
+	/** The number of resources of each type in a group. */
+	public static final String GROUP_SUMMARY_RESOURCE_COUNTS = "rescount";
+	/** Whether the user for whom the summary was computed is a group administrator. */
+	public static final String GROUP_SUMMARY_IS_ADMIN = "isadmin";
+	/** The key field of a document produced by the $objectToArray operator. */
+	public static final String AGG_OBJECT_KEY = "k";
+	/** The value field of a document produced by the $objectToArray operator. */
+	public static final String AGG_OBJECT_VALUE = "v";
+	
+	/* ***********************
+	 * group member fields
+	 * ***********************
+	 */
+	
+	/** The ID of the group of which the user is a member. The user's name, custom fields,
+	 * and last visit date are stored in the same fields as in the group's members list.
+	 */
+	public static final String MEMBER_GROUP_ID = "gid";
+	
 	/* ***********************
 	 * request fields
 	 * ***********************
@@ -91,6 +113,14 @@ public class Fields {
 	public static final String REQUEST_EXPIRATION = "expire";
 	/** The characteristic string for a request. */
 	public static final String REQUEST_CHARACTERISTIC_STRING = "charstr";
+	/** The users targeted by an invitation. */
+	public static final String REQUEST_TARGETS = "targets";
+	/** Whether the request has been expired but not yet reported to the expiration listeners. */
+	public static final String REQUEST_EXPIRED_UNREPORTED = "expunrep";
+	
+	// request summary fields, computed in aggregations rather than stored
+	/** The latest modification date of a set of requests. */
+	public static final String REQUEST_SUMMARY_LATEST_MODIFICATION = "latestmod";
 	
 	/* ***********************
 	 * database schema fields
@@ -109,5 +139,71 @@ public class Fields {
 	public static final String DB_SCHEMA_UPDATE = "inupdate";
 	/** The version of the database schema. */
 	public static final String DB_SCHEMA_VERSION = "schemaver";
+	/** Whether member details have been moved out of the group member lists. */
+	public static final String DB_SCHEMA_MEMBER_DETAILS_MOVED = "membdetailsmoved";
+	
+	/* ***********************
+	 * notification outbox fields
+	 * ***********************
+	 */
+	
+	/** The notification ID. */
+	public static final String NOTIFICATION_ID = "id";
+	/** The type of the notification. */
+	public static final String NOTIFICATION_TYPE = "type";
+	/** The creation date of the notification. */
+	public static final String NOTIFICATION_CREATION = "create";
+	/** The users to be notified. */
+	public static final String NOTIFICATION_TARGETS = "targets";
+	/** The ID of the request that is the subject of the notification. */
+	public static final String NOTIFICATION_REQUEST_ID = "reqid";
+	/** The IDs of the requests for which notifications are cancelled. */
+	public static final String NOTIFICATION_CANCEL_REQUEST_IDS = "cancelids";
+	/** The user that added a resource to a group. */
+	public static final String NOTIFICATION_USER = "user";
+	/** The ID of the group to which a resource was added. */
+	public static final String NOTIFICATION_GROUP_ID = "gid";
+	/** The type of the resource that was added to a group. */
+	public static final String NOTIFICATION_RESOURCE_TYPE = "restype";
+	/** The ID of the resource that was added to a group. */
+	public static final String NOTIFICATION_RESOURCE_ID = "resid";
+	/** The number of failed delivery attempts for the notification. */
+	public static final String NOTIFICATION_ATTEMPTS = "attempts";
+	/** The date after which the notification is available for delivery. */
+	public static final String NOTIFICATION_NEXT_ATTEMPT = "next";
+	/** The key used to deduplicate request notifications. */
+	public static final String NOTIFICATION_DEDUPLICATION_KEY = "dedupe";
+	
+	/* ***********************
+	 * group search fields
+	 * ***********************
+	 */
+	
+	/** The ID of the group in a search index record. */
+	public static final String SEARCH_GROUP_ID = "id";
+	/** The searchable group name. */
+	public static final String SEARCH_NAME = "name";
+	/** The searchable custom field values. */
+	public static final String SEARCH_FIELDS = "fields";
+	/** The group members, including the owner and administrators, in a private search index
+	 * record.
+	 */
+	public static final String SEARCH_MEMBERS = "mem";
+	/** The text search relevance score field used in queries. Not stored. */
+	public static final String SEARCH_SCORE = "score";
+	
+	/* ***********************
+	 * lease fields
+	 * ***********************
+	 */
+	
+	/** The name of the lease. */
+	public static final String LEASE_NAME = "name";
+	/** The ID of the process holding the lease. */
+	public static final String LEASE_HOLDER = "holder";
+	/** The date the lease expires. */
+	public static final String LEASE_EXPIRATION = "expire";
+	/** The fencing token of the lease, incremented each time the lease changes holders. */
+	public static final String LEASE_FENCING_TOKEN = "token";
 
 }
@@ -3,15 +3,19 @@ package us.kbase.groups.storage.mongo;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Objects.requireNonNull;
 import static us.kbase.groups.util.Util.checkNoNullsInCollection;
+import static us.kbase.groups.util.Util.exceptOnEmpty;
 
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -21,8 +25,13 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
@@ -30,18 +39,43 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+import org.bson.BsonDocument;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.mongodb.BulkWriteError;
 import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoCommandException;
 import com.mongodb.MongoException;
 import com.mongodb.MongoWriteException;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.ChangeStreamIterable;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
 import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
 import com.mongodb.client.result.UpdateResult;
 
 import us.kbase.groups.core.Group;
@@ -49,10 +83,12 @@ import us.kbase.groups.core.GroupID;
 import us.kbase.groups.core.GroupIDAndName;
 import us.kbase.groups.core.GroupIDNameMembership;
 import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupSummary;
 import us.kbase.groups.core.GroupUpdateParams;
 import us.kbase.groups.core.GroupUser;
 import us.kbase.groups.core.OptionalGroupFields;
 import us.kbase.groups.core.OptionalString;
+import us.kbase.groups.core.SearchGroupsParams;
 import us.kbase.groups.core.CreateAndModTimes;
 import us.kbase.groups.core.CreateModAndExpireTimes;
 import us.kbase.groups.core.GetGroupsParams;
@@ -69,7 +105,9 @@ import us.kbase.groups.core.exceptions.NoSuchUserException;
 import us.kbase.groups.core.exceptions.RequestExistsException;
 import us.kbase.groups.core.exceptions.ResourceExistsException;
 import us.kbase.groups.core.exceptions.UserIsMemberException;
+import us.kbase.groups.core.fieldvalidation.CustomField;
 import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
+import us.kbase.groups.core.notifications.OutboxNotification;
 import us.kbase.groups.core.request.GroupRequest;
 import us.kbase.groups.core.request.GroupRequestStatus;
 import us.kbase.groups.core.request.GroupRequestStatusType;
@@ -80,6 +118,9 @@ import us.kbase.groups.core.resource.ResourceDescriptor;
 import us.kbase.groups.core.resource.ResourceID;
 import us.kbase.groups.core.resource.ResourceType;
 import us.kbase.groups.storage.GroupsStorage;
+import us.kbase.groups.storage.LeaderLease;
+import us.kbase.groups.storage.RequestExpirationListener;
+import us.kbase.groups.storage.StorageChangeListener;
 import us.kbase.groups.storage.exceptions.GroupsStorageException;
 import us.kbase.groups.storage.exceptions.StorageInitException;
 
@@ -110,13 +151,37 @@ public class MongoGroupsStorage implements GroupsStorage {
 	private static final String COL_CONFIG = "config";
 	
 	private static final String COL_GROUPS = "groups";
+	private static final String COL_GROUP_MEMBERS = "group_members";
 	private static final String COL_REQUESTS = "requests";
+	private static final String COL_REQUESTS_ARCHIVE = "requests_archive";
+	private static final String COL_NOTIFICATION_OUTBOX = "notificationoutbox";
+	private static final String COL_SEARCH_PUBLIC = "groups_search_public";
+	private static final String COL_SEARCH_PRIVATE = "groups_search_private";
+	private static final String COL_LEASES = "leases";
 	
 	private static final Map<String, Map<List<String>, IndexOptions>> INDEXES;
+	// indexes from previous versions that have been replaced and are dropped on startup
+	private static final Map<String, List<List<String>>> OBSOLETE_INDEXES;
 	private static final IndexOptions IDX_UNIQ = new IndexOptions().unique(true);
-//	private static final IndexOptions IDX_SPARSE = new IndexOptions().sparse(true);
+	private static final IndexOptions IDX_SPARSE = new IndexOptions().sparse(true);
 	private static final IndexOptions IDX_UNIQ_SPARSE = new IndexOptions()
 			.unique(true).sparse(true);
+	/* Only indexes open requests. Closed requests accumulate forever, and so indexes used only
+	 * for open requests stay small. Built in the background as the index may replace a full
+	 * index on a large collection - see ensureIndexes().
+	 */
+	private static final IndexOptions IDX_OPEN_REQUESTS = new IndexOptions()
+			.partialFilterExpression(new Document(
+					Fields.REQUEST_STATUS, GroupRequestStatusType.OPEN.name()))
+			.background(true);
+	/* Only indexes closed requests, for archival. Partial filters can't contain $in or $ne
+	 * prior to MongoDB 6.0, but the closed states all sort before OPEN - see
+	 * CLOSED_REQUEST_FILTER.
+	 */
+	private static final IndexOptions IDX_CLOSED_REQUESTS = new IndexOptions()
+			.partialFilterExpression(new Document(Fields.REQUEST_STATUS, new Document(
+					"$lt", GroupRequestStatusType.OPEN.name())))
+			.background(true);
 	static {
 		//hardcoded indexes
 		INDEXES = new HashMap<String, Map<List<String>, IndexOptions>>();
@@ -138,75 +203,247 @@ public class MongoGroupsStorage implements GroupsStorage {
 		INDEXES.put(COL_GROUPS, groups);
 		
 		// requests indexes
-		// TODO CODE mongo 3.2 has partial indexes that might help here
+		/* The indexes that include the status are only used for listing open requests - lists
+		 * that include closed requests use the indexes without the status - and so are
+		 * partial indexes.
+		 * MongoDB prior to 5.0 doesn't allow two indexes with the same keys, so the status
+		 * remains in the keys to distinguish the open request indexes from the full indexes,
+		 * even though it's redundant.
+		 */
 		final Map<List<String>, IndexOptions> requests = new HashMap<>();
-		// may need compound indexes to speed things up.
 		requests.put(Arrays.asList(Fields.REQUEST_ID), IDX_UNIQ);
-		// find by group & type & sort/filter by modification time.
+		// The listing indexes end with the request ID, which breaks ties between requests
+		// modified at the same time, so that a page of requests can start exactly after the
+		// last request of the previous page without reading the previous pages.
+		// find by group & type & sort/filter by modification time and ID.
 		requests.put(Arrays.asList(Fields.REQUEST_GROUP_ID, Fields.REQUEST_TYPE,
-				Fields.REQUEST_MODIFICATION), null);
-		// find by group, status, and type and sort/filter by modification time.
+				Fields.REQUEST_MODIFICATION, Fields.REQUEST_ID), null);
+		// find by group, status, and type and sort/filter by modification time and ID.
 		requests.put(Arrays.asList(Fields.REQUEST_GROUP_ID, Fields.REQUEST_STATUS,
-				Fields.REQUEST_TYPE, Fields.REQUEST_MODIFICATION), null);
-		// find by requester and sort/filter by modification time.
-		requests.put(Arrays.asList(Fields.REQUEST_REQUESTER, Fields.REQUEST_MODIFICATION), null);
-		// find by requester and state and sort/filter by modification time.
+				Fields.REQUEST_TYPE, Fields.REQUEST_MODIFICATION, Fields.REQUEST_ID),
+				IDX_OPEN_REQUESTS);
+		// find by requester and sort/filter by modification time and ID.
+		requests.put(Arrays.asList(Fields.REQUEST_REQUESTER, Fields.REQUEST_MODIFICATION,
+				Fields.REQUEST_ID), null);
+		// find by requester and state and sort/filter by modification time and ID.
 		requests.put(Arrays.asList(Fields.REQUEST_REQUESTER, Fields.REQUEST_STATUS,
-				Fields.REQUEST_MODIFICATION), null);
-		// find by resource admin ID and sort/filter by modification time.
+				Fields.REQUEST_MODIFICATION, Fields.REQUEST_ID), IDX_OPEN_REQUESTS);
+		// find by resource admin ID and sort/filter by modification time and ID.
 		requests.put(Arrays.asList(Fields.REQUEST_RESOURCE_ADMINISTRATIVE_ID,
-				Fields.REQUEST_RESOURCE_TYPE, Fields.REQUEST_TYPE, Fields.REQUEST_MODIFICATION),
-				null);
-		// find by resource admin ID and state and sort/filter by modification time.
+				Fields.REQUEST_RESOURCE_TYPE, Fields.REQUEST_TYPE, Fields.REQUEST_MODIFICATION,
+				Fields.REQUEST_ID), null);
+		// find by resource admin ID and state and sort/filter by modification time and ID.
 		requests.put(Arrays.asList(Fields.REQUEST_RESOURCE_ADMINISTRATIVE_ID,
 				Fields.REQUEST_RESOURCE_TYPE, Fields.REQUEST_STATUS, Fields.REQUEST_TYPE,
-				Fields.REQUEST_MODIFICATION), null);
-		// find by resource ID and sort/filter by modification time.
+				Fields.REQUEST_MODIFICATION, Fields.REQUEST_ID), IDX_OPEN_REQUESTS);
+		// find by resource ID and sort/filter by modification time and ID.
 		requests.put(Arrays.asList(Fields.REQUEST_RESOURCE_ID,
-				Fields.REQUEST_RESOURCE_TYPE, Fields.REQUEST_TYPE, Fields.REQUEST_MODIFICATION),
-				null);
-		// find by resource ID and state and sort/filter by modification time.
+				Fields.REQUEST_RESOURCE_TYPE, Fields.REQUEST_TYPE, Fields.REQUEST_MODIFICATION,
+				Fields.REQUEST_ID), null);
+		// find by resource ID and state and sort/filter by modification time and ID.
 		requests.put(Arrays.asList(Fields.REQUEST_RESOURCE_ID,
 				Fields.REQUEST_RESOURCE_TYPE, Fields.REQUEST_STATUS, Fields.REQUEST_TYPE,
-				Fields.REQUEST_MODIFICATION), null);
-		// find by resource ID and requester and sort/filter by modification time.
+				Fields.REQUEST_MODIFICATION, Fields.REQUEST_ID), IDX_OPEN_REQUESTS);
+		// find by resource ID and requester and sort/filter by modification time and ID.
 		requests.put(Arrays.asList(Fields.REQUEST_RESOURCE_ID, Fields.REQUEST_REQUESTER,
-				Fields.REQUEST_RESOURCE_TYPE, Fields.REQUEST_TYPE, Fields.REQUEST_MODIFICATION),
-				null);
-		// find by resource ID and requester and state and sort/filter by modification time.
+				Fields.REQUEST_RESOURCE_TYPE, Fields.REQUEST_TYPE, Fields.REQUEST_MODIFICATION,
+				Fields.REQUEST_ID), null);
+		// find by resource ID, requester, and state and sort/filter by modification time and ID.
 		requests.put(Arrays.asList(Fields.REQUEST_RESOURCE_ID, Fields.REQUEST_REQUESTER,
 				Fields.REQUEST_RESOURCE_TYPE, Fields.REQUEST_STATUS, Fields.REQUEST_TYPE,
-				Fields.REQUEST_MODIFICATION), null);
-		// find by resource ID and group and sort/filter by modification time.
+				Fields.REQUEST_MODIFICATION, Fields.REQUEST_ID), IDX_OPEN_REQUESTS);
+		// find by resource ID and group and sort/filter by modification time and ID.
 		requests.put(Arrays.asList(Fields.REQUEST_RESOURCE_ID, Fields.REQUEST_GROUP_ID,
-				Fields.REQUEST_RESOURCE_TYPE, Fields.REQUEST_TYPE, Fields.REQUEST_MODIFICATION),
-				null);
-		// find by resource ID and group and state and sort/filter by modification time.
+				Fields.REQUEST_RESOURCE_TYPE, Fields.REQUEST_TYPE, Fields.REQUEST_MODIFICATION,
+				Fields.REQUEST_ID), null);
+		// find by resource ID and group and state and sort/filter by modification time and ID.
 		requests.put(Arrays.asList(Fields.REQUEST_RESOURCE_ID, Fields.REQUEST_GROUP_ID,
 				Fields.REQUEST_RESOURCE_TYPE, Fields.REQUEST_STATUS, Fields.REQUEST_TYPE,
-				Fields.REQUEST_MODIFICATION), null);
-		// find expired requests.
-		requests.put(Arrays.asList(Fields.REQUEST_EXPIRATION), null);
+				Fields.REQUEST_MODIFICATION, Fields.REQUEST_ID), IDX_OPEN_REQUESTS);
+		// find invitations by recorded target and sort/filter by modification time and ID.
+		requests.put(Arrays.asList(Fields.REQUEST_TARGETS, Fields.REQUEST_TYPE,
+				Fields.REQUEST_MODIFICATION, Fields.REQUEST_ID), null);
+		// find invitations by recorded target and state and sort/filter by modification time
+		// and ID.
+		requests.put(Arrays.asList(Fields.REQUEST_TARGETS, Fields.REQUEST_STATUS,
+				Fields.REQUEST_TYPE, Fields.REQUEST_MODIFICATION, Fields.REQUEST_ID),
+				IDX_OPEN_REQUESTS);
+		// find open requests in order of expiration.
+		requests.put(Arrays.asList(Fields.REQUEST_STATUS, Fields.REQUEST_EXPIRATION),
+				IDX_OPEN_REQUESTS);
 		// ensure equivalent requests are rejected. See getCharacteristicString()
 		requests.put(Arrays.asList(Fields.REQUEST_CHARACTERISTIC_STRING), IDX_UNIQ_SPARSE);
+		// find closed requests by closing time for archival
+		requests.put(Arrays.asList(Fields.REQUEST_STATUS, Fields.REQUEST_MODIFICATION),
+				IDX_CLOSED_REQUESTS);
+		// find expired requests that haven't been reported to the expiration listeners
+		requests.put(Arrays.asList(Fields.REQUEST_EXPIRED_UNREPORTED), IDX_SPARSE);
 		INDEXES.put(COL_REQUESTS, requests);
 		
+		// request archive indexes. Archived requests are only ever fetched by ID.
+		final Map<List<String>, IndexOptions> archive = new HashMap<>();
+		archive.put(Arrays.asList(Fields.REQUEST_ID), IDX_UNIQ);
+		INDEXES.put(COL_REQUESTS_ARCHIVE, archive);
+		
+		// notification outbox indexes
+		final Map<List<String>, IndexOptions> outbox = new HashMap<>();
+		outbox.put(Arrays.asList(Fields.NOTIFICATION_ID), IDX_UNIQ);
+		// find notifications available for delivery, oldest first
+		outbox.put(Arrays.asList(Fields.NOTIFICATION_NEXT_ATTEMPT, Fields.NOTIFICATION_CREATION),
+				null);
+		// ensure duplicate request notifications are rejected
+		outbox.put(Arrays.asList(Fields.NOTIFICATION_DEDUPLICATION_KEY), IDX_UNIQ_SPARSE);
+		INDEXES.put(COL_NOTIFICATION_OUTBOX, outbox);
+		
+		// group search indexes. The text indexes are created separately.
+		final Map<List<String>, IndexOptions> searchPublic = new HashMap<>();
+		searchPublic.put(Arrays.asList(Fields.SEARCH_GROUP_ID), IDX_UNIQ);
+		INDEXES.put(COL_SEARCH_PUBLIC, searchPublic);
+		final Map<List<String>, IndexOptions> searchPrivate = new HashMap<>();
+		searchPrivate.put(Arrays.asList(Fields.SEARCH_GROUP_ID), IDX_UNIQ);
+		INDEXES.put(COL_SEARCH_PRIVATE, searchPrivate);
+		
+		// group member indexes
+		final Map<List<String>, IndexOptions> members = new HashMap<>();
+		// find the custom fields and visit dates of a member or all the members of a group
+		members.put(Arrays.asList(Fields.MEMBER_GROUP_ID, Fields.GROUP_MEMBER_NAME), IDX_UNIQ);
+		INDEXES.put(COL_GROUP_MEMBERS, members);
+		
+		// lease indexes
+		final Map<List<String>, IndexOptions> leases = new HashMap<>();
+		leases.put(Arrays.asList(Fields.LEASE_NAME), IDX_UNIQ);
+		INDEXES.put(COL_LEASES, leases);
+		
 		//config indexes
 		final Map<List<String>, IndexOptions> cfg = new HashMap<>();
 		//ensure only one config object
 		cfg.put(Arrays.asList(Fields.DB_SCHEMA_KEY), IDX_UNIQ);
 		INDEXES.put(COL_CONFIG, cfg);
+		
+		OBSOLETE_INDEXES = new HashMap<>();
+		// replaced by the owner and admin indexes that also sort by ID
+		OBSOLETE_INDEXES.put(COL_GROUPS, Arrays.asList(
+				Arrays.asList(Fields.GROUP_OWNER), Arrays.asList(Fields.GROUP_ADMINS)));
+		final List<List<String>> obsoleteRequests = new LinkedList<>();
+		// replaced by the open request expiration index
+		obsoleteRequests.add(Arrays.asList(Fields.REQUEST_EXPIRATION));
+		for (final List<String> idx: requests.keySet()) {
+			if (idx.size() > 2 && idx.get(idx.size() - 1).equals(Fields.REQUEST_ID)) {
+				// the listing indexes previously ended with the modification time
+				obsoleteRequests.add(idx.subList(0, idx.size() - 1));
+			}
+		}
+		OBSOLETE_INDEXES.put(COL_REQUESTS, obsoleteRequests);
 	}
 	
+	// the group name is weighted more heavily than custom fields in text search relevance
+	private static final int SEARCH_NAME_WEIGHT = 10;
+	
+	// the group fields required to build the search index records for a group
+	private static final Document SEARCH_INDEX_PROJECTION = new Document(Fields.GROUP_ID, 1)
+			.append(Fields.GROUP_NAME, 1)
+			.append(Fields.GROUP_IS_PRIVATE, 1)
+			.append(Fields.GROUP_MEMBERS + Fields.FIELD_SEP + Fields.GROUP_MEMBER_NAME, 1)
+			.append(Fields.GROUP_CUSTOM_FIELDS, 1)
+			.append(Fields.MONGO_ID, 0);
+	
 	private static final long EXPIRATION_AGENT_FREQUENCY_SEC = 60;
+	// the maximum number of requests expired in one database update
+	private static final int EXPIRATION_BATCH_SIZE = 500;
+	// the minimum time between expiration agent runs unless a full batch was expired. Prevents
+	// spinning if a request that is due to expire is not expired for some reason.
+	private static final long EXPIRATION_AGENT_MIN_SLEEP_MS = 100;
+	// the lease that ensures only one process expires requests
+	private static final String EXPIRATION_LEASE = "requestexpiration";
+	// the expiration lease time to live as a multiple of the maximum agent sleep time. Must
+	// be > 2 so the leader renews the lease before it expires.
+	private static final int EXPIRATION_LEASE_TTL_MULTIPLE = 3;
+	// how long to wait for a running batch when stopping an agent before giving up and
+	// leaving the agent's lease to expire
+	private static final long AGENT_STOP_WAIT_SEC = 60;
+	
+	private static final long ARCHIVAL_AGENT_FREQUENCY_SEC = 3600;
+	// the maximum number of requests archived in one batch
+	private static final int ARCHIVAL_BATCH_SIZE = 500;
+	// the lease that ensures only one process archives requests
+	private static final String ARCHIVAL_LEASE = "requestarchival";
+	// the archival lease time to live as a multiple of the agent sleep time. Must be > 2 so
+	// the leader renews the lease before it expires.
+	private static final int ARCHIVAL_LEASE_TTL_MULTIPLE = 3;
+	
+	// the states of requests that are closed and can therefore be archived
+	private static final List<String> CLOSED_REQUEST_STATES = Collections.unmodifiableList(
+			Arrays.stream(GroupRequestStatusType.values())
+					.filter(t -> !GroupRequestStatusType.OPEN.equals(t))
+					.map(t -> t.name())
+					.collect(Collectors.toList()));
+	/* matches closed requests and, unlike $in, can be used as a partial index filter. The
+	 * status names are stored in the DB and so never change.
+	 */
+	private static final Document CLOSED_REQUEST_FILTER = new Document(Fields.REQUEST_STATUS,
+			new Document("$lt", GroupRequestStatusType.OPEN.name()));
+	static {
+		for (final String s: CLOSED_REQUEST_STATES) {
+			if (s.compareTo(GroupRequestStatusType.OPEN.name()) >= 0) {
+				throw new IllegalStateException("Closed request state sorts after open: " + s);
+			}
+		}
+	}
+	
+	// the number of groups or requests returned from a listing if no limit is specified
+	private static final int DEFAULT_LIST_LIMIT = 100;
+	
+	/* the maximum number of resource IDs in the $in clauses of a single request target query.
+	 * Larger sets of IDs are split over multiple queries, each of which can walk the index
+	 * in sort order, and the results merged.
+	 */
+	private static final int MAX_TARGET_IDS_PER_QUERY = 1000;
+	
+	// the number of times to try deleting a removed member's details
+	private static final int MEMBER_DETAILS_DELETE_ATTEMPTS = 3;
+	
+	// the separator between a custom field root and its number. Must match NumberedCustomField.
+	private static final String NUMBERED_FIELD_SEP = "-";
+	
+	// how long the change stream waits for new events before checking if it should stop
+	private static final long CHANGE_STREAM_AWAIT_MS = 1000;
+	// the wait time before reopening the change stream after an error
+	private static final long CHANGE_STREAM_RETRY_MS = 5000;
+	// server error codes for a resume token that is no longer in the oplog
+	private static final Set<Integer> CHANGE_STREAM_HISTORY_LOST = new HashSet<>(
+			Arrays.asList(280, 286));
+	// server error codes for a deployment that can't run a database level change stream:
+	// CommandNotSupported, unrecognized pipeline stage, and not a replica set
+	private static final Set<Integer> CHANGE_STREAM_NOT_SUPPORTED = new HashSet<>(
+			Arrays.asList(115, 40324, 40573));
+	// the minimum MongoDB version that supports database level change streams
+	private static final List<Integer> CHANGE_STREAM_MIN_VERSION = Arrays.asList(4, 0);
+	// server error code for dropping an index that doesn't exist
+	private static final int INDEX_NOT_FOUND = 27;
 	
 	private ScheduledExecutorService executor;
+	private LeaderLease expirationLease;
 	private boolean expirationAgentRunning = false;
+	private ScheduledExecutorService archivalExecutor;
+	private LeaderLease archivalLease;
+	private boolean archivalAgentRunning = false;
 	
+	private final List<StorageChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+	private final List<RequestExpirationListener> expirationListeners =
+			new CopyOnWriteArrayList<>();
+	private ExecutorService changeStreamExecutor;
+	private volatile boolean changeStreamRunning = false;
+	
+	// used for all writes and for reads that must reflect the latest writes
 	private final MongoDatabase db;
+	// used for listings and searches, which may tolerate slightly stale data
+	private final MongoDatabase listDB;
+	private final Set<String> publicSearchFields;
 	private final Clock clock;
 	
-	/** Create MongoDB based storage for the Groups application.
+	/** Create MongoDB based storage for the Groups application. No custom fields are
+	 * searchable by users that are not members of a group.
+	 * The request expiration agent is not started - see {@link #startExpirationAgent()}.
 	 * @param db the MongoDB database the storage system will use.
 	 * @param types the resource types for which indexes will be created. Querying against
 	 * resource types not declared here will result in a table scan. Note that 3 indexes
@@ -216,30 +453,119 @@ public class MongoGroupsStorage implements GroupsStorage {
 	 */
 	public MongoGroupsStorage(final MongoDatabase db, final Collection<ResourceType> types)
 			throws StorageInitException {
-		this(db, types, Clock.systemDefaultZone());
+		this(db, types, Collections.emptySet());
+	}
+	
+	/** Create MongoDB based storage for the Groups application.
+	 * The request expiration agent is not started - see {@link #startExpirationAgent()}.
+	 * @param db the MongoDB database the storage system will use.
+	 * @param types the resource types for which indexes will be created. Querying against
+	 * resource types not declared here will result in a table scan. Note that 3 indexes
+	 * are created per type and 5 indexes are created automatically, which means that at most
+	 * 19 types can be registered given MongoDBs 64 index / collection limit.
+	 * @param publicSearchFields the roots of the public group custom fields. These fields are
+	 * searchable by users that are not members of a group. All custom fields are searchable by
+	 * group members. If the public fields change, {@link #reindexGroups()} must be run to
+	 * update the search index.
+	 * @throws StorageInitException if the storage system could not be initialized.
+	 */
+	public MongoGroupsStorage(
+			final MongoDatabase db,
+			final Collection<ResourceType> types,
+			final Collection<CustomField> publicSearchFields)
+			throws StorageInitException {
+		this(db, types, publicSearchFields, ReadPreference.primary());
+	}
+	
+	/** Create MongoDB based storage for the Groups application.
+	 * The request expiration agent is not started - see {@link #startExpirationAgent()}.
+	 * 
+	 * All writes, and reads that must see the most recent writes - for example, fetching a
+	 * single group or request before updating it - use the primary MongoDB server. Group and
+	 * request listings and group searches use listReadPreference, which allows spreading
+	 * read load across a replica set at the cost of possibly stale results.
+	 * @param db the MongoDB database the storage system will use.
+	 * @param types the resource types for which indexes will be created. Querying against
+	 * resource types not declared here will result in a table scan. Note that 3 indexes
+	 * are created per type and 5 indexes are created automatically, which means that at most
+	 * 19 types can be registered given MongoDBs 64 index / collection limit.
+	 * @param publicSearchFields the roots of the public group custom fields. These fields are
+	 * searchable by users that are not members of a group. All custom fields are searchable by
+	 * group members. If the public fields change, {@link #reindexGroups()} must be run to
+	 * update the search index.
+	 * @param listReadPreference the read preference for group and request listings and
+	 * group searches.
+	 * @throws StorageInitException if the storage system could not be initialized.
+	 */
+	public MongoGroupsStorage(
+			final MongoDatabase db,
+			final Collection<ResourceType> types,
+			final Collection<CustomField> publicSearchFields,
+			final ReadPreference listReadPreference)
+			throws StorageInitException {
+		this(db, types, publicSearchFields, listReadPreference, Clock.systemDefaultZone());
 	}
 	
 	// for tests
 	private MongoGroupsStorage(
 			final MongoDatabase db,
 			final Collection<ResourceType> types,
+			final Collection<CustomField> publicSearchFields,
+			final ReadPreference listReadPreference,
 			final Clock clock)
 			throws StorageInitException {
 		checkNotNull(db, "db");
 		checkNoNullsInCollection(types, "types");
-		this.db = db;
+		checkNoNullsInCollection(publicSearchFields, "publicSearchFields");
+		checkNotNull(listReadPreference, "listReadPreference");
+		// don't let a client default read preference send reads to secondaries
+		this.db = db.withReadPreference(ReadPreference.primary());
+		this.listDB = db.withReadPreference(listReadPreference);
+		this.publicSearchFields = Collections.unmodifiableSet(publicSearchFields.stream()
+				.map(f -> f.getName()).collect(Collectors.toSet()));
 		this.clock = clock;
 		ensureIndexes(INDEXES); // MUST come before check config
 		ensureIndexes(types);
+		dropObsoleteIndexes();
+		ensureSearchIndexes();
 		checkConfig();
+		migrateMemberDetails();
+	}
+	
+	/** Add a listener that is notified of requests expired by the expiration agent. Add
+	 * listeners before starting the agent, as requests expired before a listener is added
+	 * are not reported to that listener.
+	 * @param listener the listener.
+	 */
+	public void addExpirationListener(final RequestExpirationListener listener) {
+		checkNotNull(listener, "listener");
+		expirationListeners.add(listener);
+	}
+	
+	/** Start the request expiration agent with a maximum period of 60 seconds between runs.
+	 * See {@link #startExpirationAgent(long)}.
+	 * @throws IllegalArgumentException if the agent is already running.
+	 */
+	public void startExpirationAgent() {
 		startExpirationAgent(EXPIRATION_AGENT_FREQUENCY_SEC);
 	}
 	
-	/** Schedule the request expiration agent with the given period between expirations.
-	 * The agent calls {@link #expireRequests(Instant)}
-	 * every periodInSeconds with the current {@link Instant} from a {@link Clock#instant()}.
-	 * @param periodInSeconds how often the reaper runs.
-	 * @throws IllegalArgumentException if the reaper is already running or the period is less
+	/** Start the request expiration agent, which runs immediately.
+	 * 
+	 * On each run the agent calls {@link #expireRequests(Instant, int)} with the current
+	 * {@link Instant} from a {@link Clock#instant()} in batches of 500 requests until no
+	 * requests are left to expire, notifying the expiration listeners after each batch.
+	 * If a listener throws an exception, all the listeners are called again with the same
+	 * requests on the next run, so listeners may be called more than once for a request.
+	 * The agent then sleeps until the next open request is due to expire, but no longer than
+	 * periodInSeconds, so that new requests are picked up.
+	 * 
+	 * If multiple processes share the database, only the agent holding the expiration
+	 * {@link LeaderLease} expires requests. The lease time to live is three times
+	 * periodInSeconds. Other agents check the lease every periodInSeconds and take over once
+	 * the lease expires.
+	 * @param periodInSeconds the maximum time between agent runs.
+	 * @throws IllegalArgumentException if the agent is already running or the period is less
 	 * than or equal to zero.
 	 */
 	public synchronized void startExpirationAgent(long periodInSeconds) {
@@ -250,9 +576,13 @@ public class MongoGroupsStorage implements GroupsStorage {
 			throw new IllegalArgumentException("periodInSeconds must be > 0");
 		}
 		expirationAgentRunning = true;
-		executor = Executors.newSingleThreadScheduledExecutor();
-		executor.scheduleAtFixedRate(
-				new ExpirationAgent(), 0, periodInSeconds, TimeUnit.SECONDS);
+		final ScheduledThreadPoolExecutor exe = new ScheduledThreadPoolExecutor(1);
+		// don't wake up a sleeping agent after it's stopped
+		exe.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+		executor = exe;
+		expirationLease = new LeaderLease(this, EXPIRATION_LEASE,
+				Duration.ofSeconds(periodInSeconds * EXPIRATION_LEASE_TTL_MULTIPLE));
+		executor.execute(new ExpirationAgent(exe, expirationLease, periodInSeconds * 1000));
 	}
 	
 	/** Returns true if the expiration agent is running, false otherwise.
@@ -262,22 +592,79 @@ public class MongoGroupsStorage implements GroupsStorage {
 		return expirationAgentRunning;
 	}
 	
-	/** Stops the expiration agent from running again. Call {@link #startExpirationAgent(long)}
-	 * to restart the agent.
+	/** Stops the expiration agent from running again, waits up to 60 seconds for any running
+	 * batch of expirations to finish, and then releases the expiration lease, if held, so that
+	 * an agent in another process can take over immediately. If the batch doesn't finish in
+	 * time the lease is left to expire so that no other agent runs concurrently.
+	 * Call {@link #startExpirationAgent(long)} to restart the agent.
 	 * Calling this method multiple times in succession has no effect.
 	 */
-	public synchronized void stopExpirationAgent() {
-		executor.shutdown();
-		expirationAgentRunning = false;
+	public void stopExpirationAgent() {
+		final ScheduledExecutorService exe;
+		final LeaderLease lease;
+		// don't hold the lock while waiting for the agent
+		synchronized (this) {
+			expirationAgentRunning = false;
+			exe = executor;
+			lease = expirationLease;
+		}
+		stopAgent(exe, lease, "expiration");
+	}
+	
+	private void stopAgent(
+			final ScheduledExecutorService exe,
+			final LeaderLease lease,
+			final String agentName) {
+		if (exe != null) {
+			exe.shutdown();
+			try {
+				if (!exe.awaitTermination(AGENT_STOP_WAIT_SEC, TimeUnit.SECONDS)) {
+					LoggerFactory.getLogger(getClass()).warn(String.format(
+							"The %s agent did not stop within %s seconds. The %s lease " +
+							"will not be released", agentName, AGENT_STOP_WAIT_SEC, agentName));
+					return;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return; // the lease will expire on its own
+			}
+		}
+		if (lease != null) {
+			try {
+				lease.release();
+			} catch (GroupsStorageException e) {
+				// the lease will expire on its own
+				LoggerFactory.getLogger(getClass()).error(String.format(
+						"Error releasing %s lease: %s", agentName, e.getMessage()), e);
+			}
+		}
 	}
 	
 	private class ExpirationAgent implements Runnable {
+		
+		private final ScheduledExecutorService exe;
+		private final LeaderLease lease;
+		private final long maxSleepMS;
 
+		private ExpirationAgent(
+				final ScheduledExecutorService exe,
+				final LeaderLease lease,
+				final long maxSleepMS) {
+			this.exe = exe;
+			this.lease = lease;
+			this.maxSleepMS = maxSleepMS;
+		}
+		
 		@Override
 		public void run() {
+			long sleepMS = maxSleepMS;
 			try {
-				LoggerFactory.getLogger(getClass()).info("Running expiration agent");
-				expireRequests(clock.instant());
+				// another process is expiring requests unless we hold the lease
+				final Optional<Long> token = lease.checkLeadership();
+				if (token.isPresent()) {
+					LoggerFactory.getLogger(getClass()).info("Running expiration agent");
+					sleepMS = expireAllRequests(exe, maxSleepMS, lease, token.get());
+				}
 			} catch (Throwable e) {
 				// the only error that can really occur here is losing the connection to mongo,
 				// so we just punt, log, and retry next time.
@@ -286,10 +673,498 @@ public class MongoGroupsStorage implements GroupsStorage {
 				LoggerFactory.getLogger(getClass())
 						.error("Error expiring requests: " + e.getMessage(), e);
 			}
+			try {
+				exe.schedule(this, sleepMS, TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException e) {
+				// the agent was stopped, so we're done
+			}
+		}
+	}
+	
+	// returns the time to sleep until the next request expires
+	private long expireAllRequests(
+			final ScheduledExecutorService exe,
+			final long maxSleepMS,
+			final LeaderLease lease,
+			final long token)
+			throws GroupsStorageException {
+		final Instant now = clock.instant();
+		List<RequestID> expired;
+		boolean report = true;
+		do {
+			// stop if the agent is stopping or if another process held the lease since we
+			// started. The token is only checked between batches, but expiring a request is
+			// idempotent, so a batch that overlaps with another process's work is harmless.
+			if (exe.isShutdown() || !Optional.of(token).equals(lease.checkLeadership())) {
+				return maxSleepMS;
+			}
+			expired = expireRequests(now, EXPIRATION_BATCH_SIZE);
+			// once a listener fails, keep expiring requests but leave them unreported
+			// until the next run
+			if (report) {
+				report = reportExpiredRequests();
+			}
+		} while (expired.size() == EXPIRATION_BATCH_SIZE);
+		final Optional<Instant> next = getNextRequestExpiration();
+		if (!next.isPresent()) {
+			return maxSleepMS;
+		}
+		final long untilNext = next.get().toEpochMilli() - clock.instant().toEpochMilli();
+		return Math.max(EXPIRATION_AGENT_MIN_SLEEP_MS, Math.min(untilNext, maxSleepMS));
+	}
+	
+	/* Passes all the expired requests that have not yet been reported, including requests
+	 * left over from earlier runs, to the expiration listeners and removes the unreported
+	 * mark. If any listener fails, the mark is left in place so all the listeners are called
+	 * again on the next run, and false is returned.
+	 */
+	private boolean reportExpiredRequests() throws GroupsStorageException {
+		final Document query = new Document(Fields.REQUEST_EXPIRED_UNREPORTED, true);
+		final Document idProjection = new Document(Fields.REQUEST_ID, 1)
+				.append(Fields.MONGO_ID, 0);
+		final List<String> ids = new LinkedList<>();
+		do {
+			ids.clear();
+			try {
+				for (final Document r: db.getCollection(COL_REQUESTS).find(query)
+						.projection(idProjection).limit(EXPIRATION_BATCH_SIZE)) {
+					ids.add(r.getString(Fields.REQUEST_ID));
+				}
+			} catch (MongoException e) {
+				throw wrapMongoException(e);
+			}
+			if (ids.isEmpty()) {
+				return true;
+			}
+			final List<RequestID> reqIDs = new LinkedList<>();
+			for (final String id: ids) {
+				try {
+					reqIDs.add(new RequestID(id));
+				} catch (IllegalParameterException | MissingParameterException e) {
+					throw new GroupsStorageException(
+							"Unexpected value in database: " + e.getMessage(), e);
+				}
+			}
+			boolean failed = false;
+			for (final RequestExpirationListener l: expirationListeners) {
+				try {
+					l.requestsExpired(Collections.unmodifiableList(reqIDs));
+				} catch (RuntimeException e) {
+					// don't let one listener prevent the others from being notified
+					LoggerFactory.getLogger(getClass()).error(
+							"Expiration listener failed: " + e.getMessage(), e);
+					failed = true;
+				}
+			}
+			if (failed) {
+				return false;
+			}
+			try {
+				db.getCollection(COL_REQUESTS).updateMany(
+						new Document(Fields.REQUEST_ID, new Document("$in", ids)),
+						new Document("$unset",
+								new Document(Fields.REQUEST_EXPIRED_UNREPORTED, "")));
+			} catch (MongoException e) {
+				throw wrapMongoException(e);
+			}
+		} while (ids.size() == EXPIRATION_BATCH_SIZE);
+		return true;
+	}
+	
+	/** Start the request archival agent with a period of one hour between runs.
+	 * See {@link #startArchivalAgent(Duration, long)}.
+	 * @param archiveAfter the time after a request is closed that it will be archived.
+	 * @throws IllegalArgumentException if the agent is already running.
+	 */
+	public void startArchivalAgent(final Duration archiveAfter) {
+		startArchivalAgent(archiveAfter, ARCHIVAL_AGENT_FREQUENCY_SEC);
+	}
+	
+	/** Start the request archival agent, which runs immediately.
+	 *
+	 * On each run the agent calls {@link #archiveRequests(Instant, int)} with the current
+	 * {@link Instant} from a {@link Clock#instant()} minus archiveAfter in batches of 500
+	 * requests until no requests are left to archive. The agent then sleeps for
+	 * periodInSeconds.
+	 *
+	 * If multiple processes share the database, only the agent holding the archival
+	 * {@link LeaderLease} archives requests. The lease time to live is three times
+	 * periodInSeconds.
+	 * @param archiveAfter the time after a request is closed that it will be archived.
+	 * @param periodInSeconds the time between agent runs.
+	 * @throws IllegalArgumentException if the agent is already running, archiveAfter is
+	 * negative, or the period is less than or equal to zero.
+	 */
+	public synchronized void startArchivalAgent(
+			final Duration archiveAfter,
+			final long periodInSeconds) {
+		checkNotNull(archiveAfter, "archiveAfter");
+		if (archivalAgentRunning) {
+			throw new IllegalArgumentException("The archival agent is already running");
+		}
+		if (archiveAfter.isNegative()) {
+			throw new IllegalArgumentException("archiveAfter must be >= 0");
+		}
+		if (periodInSeconds <= 0) {
+			throw new IllegalArgumentException("periodInSeconds must be > 0");
+		}
+		archivalAgentRunning = true;
+		final ScheduledThreadPoolExecutor exe = new ScheduledThreadPoolExecutor(1);
+		// don't wake up a sleeping agent after it's stopped
+		exe.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+		archivalExecutor = exe;
+		archivalLease = new LeaderLease(this, ARCHIVAL_LEASE,
+				Duration.ofSeconds(periodInSeconds * ARCHIVAL_LEASE_TTL_MULTIPLE));
+		archivalExecutor.execute(new ArchivalAgent(
+				exe, archivalLease, archiveAfter, periodInSeconds * 1000));
+	}
+	
+	/** Returns true if the archival agent is running, false otherwise.
+	 * @return true if the agent is running.
+	 */
+	public synchronized boolean isArchivalAgentRunning() {
+		return archivalAgentRunning;
+	}
+	
+	/** Stops the archival agent from running again, waits up to 60 seconds for any running
+	 * batch of archivals to finish, and then releases the archival lease, if held, so that an
+	 * agent in another process can take over immediately. If the batch doesn't finish in time
+	 * the lease is left to expire so that no other agent runs concurrently.
+	 * Calling this method multiple times in succession has no effect.
+	 */
+	public void stopArchivalAgent() {
+		final ScheduledExecutorService exe;
+		final LeaderLease lease;
+		// don't hold the lock while waiting for the agent
+		synchronized (this) {
+			archivalAgentRunning = false;
+			exe = archivalExecutor;
+			lease = archivalLease;
+		}
+		stopAgent(exe, lease, "archival");
+	}
+	
+	private class ArchivalAgent implements Runnable {
+		
+		private final ScheduledExecutorService exe;
+		private final LeaderLease lease;
+		private final Duration archiveAfter;
+		private final long sleepMS;
+		
+		private ArchivalAgent(
+				final ScheduledExecutorService exe,
+				final LeaderLease lease,
+				final Duration archiveAfter,
+				final long sleepMS) {
+			this.exe = exe;
+			this.lease = lease;
+			this.archiveAfter = archiveAfter;
+			this.sleepMS = sleepMS;
+		}
+		
+		@Override
+		public void run() {
+			try {
+				// another process is archiving requests unless we hold the lease
+				final Optional<Long> token = lease.checkLeadership();
+				if (token.isPresent()) {
+					LoggerFactory.getLogger(getClass()).info("Running archival agent");
+					archiveAllRequests(exe, archiveAfter, lease, token.get());
+				}
+			} catch (Throwable e) {
+				// as for the expiration agent, this is almost certainly a lost connection to
+				// mongo, so log and retry next time.
+				LoggerFactory.getLogger(getClass())
+						.error("Error archiving requests: " + e.getMessage(), e);
+			}
+			try {
+				exe.schedule(this, sleepMS, TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException e) {
+				// the agent was stopped, so we're done
+			}
+		}
+	}
+	
+	private void archiveAllRequests(
+			final ScheduledExecutorService exe,
+			final Duration archiveAfter,
+			final LeaderLease lease,
+			final long token)
+			throws GroupsStorageException {
+		final Instant cutoff = clock.instant().minus(archiveAfter);
+		int archived;
+		do {
+			// stop if the agent is stopping or if another process held the lease since we
+			// started. As for expiration, archiving a request is idempotent.
+			if (exe.isShutdown() || !Optional.of(token).equals(lease.checkLeadership())) {
+				return;
+			}
+			archived = archiveRequests(cutoff, ARCHIVAL_BATCH_SIZE);
+			if (archived > 0) {
+				LoggerFactory.getLogger(getClass()).info(
+						String.format("Archived %s requests", archived));
+			}
+		} while (archived == ARCHIVAL_BATCH_SIZE);
+	}
+	
+	private Optional<Instant> getNextRequestExpiration() throws GroupsStorageException {
+		try {
+			final Document d = db.getCollection(COL_REQUESTS).find(new Document(
+					Fields.REQUEST_STATUS, GroupRequestStatusType.OPEN.name()))
+					.projection(new Document(Fields.REQUEST_EXPIRATION, 1))
+					.sort(new Document(Fields.REQUEST_EXPIRATION, 1))
+					.first();
+			return d == null ? Optional.empty() :
+				Optional.of(d.getDate(Fields.REQUEST_EXPIRATION).toInstant());
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
 		}
 	}
 	
 	
+	/** Add a listener that is notified of changes to groups and requests made by any
+	 * process using the database, including this one. Listeners are only notified while the
+	 * change stream is running - see {@link #startChangeStream()}.
+	 * @param listener the listener.
+	 */
+	public void addChangeListener(final StorageChangeListener listener) {
+		checkNotNull(listener, "listener");
+		changeListeners.add(listener);
+	}
+	
+	/** Start watching the groups and requests collections for changes via a MongoDB change
+	 * stream, and notify any registered listeners of changes.
+	 * 
+	 * Change streams are only available on replica sets and sharded clusters running MongoDB
+	 * 4.0 or later, as the stream watches the entire database. On a standalone server or an
+	 * earlier version the stream is not started and this method returns false, in which case
+	 * listeners are never notified and caches must rely on expiring entries. If the server
+	 * rejects the stream after it starts, the stream is stopped rather than retried.
+	 * 
+	 * The stream resumes where it left off after an error. The resume token is only kept in
+	 * memory, as each process must see every change itself. When the stream starts, and if
+	 * any changes may have been missed, listeners are notified via
+	 * {@link StorageChangeListener#allChanged()}.
+	 * @return true if the change stream was started, false if change streams are not
+	 * supported by the MongoDB deployment.
+	 * @throws IllegalArgumentException if the change stream is already running.
+	 */
+	public synchronized boolean startChangeStream() {
+		if (changeStreamRunning) {
+			throw new IllegalArgumentException("The change stream is already running");
+		}
+		final Optional<String> unsupported = getChangeStreamUnsupportedReason();
+		if (unsupported.isPresent()) {
+			LoggerFactory.getLogger(getClass()).warn(unsupported.get() +
+					", so change streams are not available. Caches will rely on " +
+					"expiration only.");
+			return false;
+		}
+		changeStreamRunning = true;
+		changeStreamExecutor = Executors.newSingleThreadExecutor(r -> {
+			final Thread t = new Thread(r, "mongo-change-stream");
+			t.setDaemon(true);
+			return t;
+		});
+		changeStreamExecutor.execute(new ChangeStreamAgent());
+		return true;
+	}
+	
+	private Optional<String> getChangeStreamUnsupportedReason() {
+		final Document isMaster;
+		final Document buildInfo;
+		try {
+			isMaster = db.runCommand(new Document("isMaster", 1));
+			buildInfo = db.runCommand(new Document("buildInfo", 1));
+		} catch (MongoException e) {
+			LoggerFactory.getLogger(getClass()).error(
+					"Could not determine MongoDB deployment type: " + e.getMessage(), e);
+			return Optional.of("The MongoDB deployment type is unknown");
+		}
+		// replica set members report a set name, mongos reports isdbgrid
+		if (isMaster.get("setName") == null && !"isdbgrid".equals(isMaster.get("msg"))) {
+			return Optional.of("MongoDB is not a replica set or sharded cluster");
+		}
+		if (!isVersionAtLeast(buildInfo, CHANGE_STREAM_MIN_VERSION)) {
+			return Optional.of(String.format("MongoDB version %s is earlier than %s",
+					buildInfo.get("version"), CHANGE_STREAM_MIN_VERSION.stream()
+							.map(i -> i.toString()).collect(Collectors.joining("."))));
+		}
+		return Optional.empty();
+	}
+	
+	private static boolean isVersionAtLeast(
+			final Document buildInfo,
+			final List<Integer> minVersion) {
+		final List<?> version = buildInfo.get("versionArray", List.class);
+		if (version == null) {
+			return false;
+		}
+		for (int i = 0; i < minVersion.size(); i++) {
+			final int v = i < version.size() ? ((Number) version.get(i)).intValue() : 0;
+			if (v != minVersion.get(i)) {
+				return v > minVersion.get(i);
+			}
+		}
+		return true;
+	}
+	
+	/** Returns true if the change stream is running, false otherwise.
+	 * @return true if the change stream is running.
+	 */
+	public synchronized boolean isChangeStreamRunning() {
+		return changeStreamRunning;
+	}
+	
+	/** Stops the change stream. The stream stops after processing any in flight events.
+	 * Calling this method multiple times in succession has no effect.
+	 */
+	public synchronized void stopChangeStream() {
+		changeStreamRunning = false;
+		if (changeStreamExecutor != null) {
+			changeStreamExecutor.shutdown();
+		}
+	}
+	
+	private class ChangeStreamAgent implements Runnable {
+		
+		private BsonDocument token = null;
+
+		@Override
+		public void run() {
+			// no way of knowing what happened before now
+			notifyAllChanged();
+			while (changeStreamRunning) {
+				try {
+					watch();
+				} catch (IllegalStateException e) {
+					// the client has been closed, we're shutting down
+					LoggerFactory.getLogger(getClass()).info(
+							"Stopping change stream: " + e.getMessage());
+					changeStreamRunning = false;
+				} catch (MongoCommandException e) {
+					if (CHANGE_STREAM_NOT_SUPPORTED.contains(e.getErrorCode())) {
+						// retrying won't help, and every failure would empty the caches
+						LoggerFactory.getLogger(getClass()).error(
+								"MongoDB does not support change streams, stopping the " +
+								"change stream. Caches will rely on expiration only: " +
+								e.getMessage(), e);
+						changeStreamRunning = false;
+					} else {
+						handleError(e);
+					}
+				} catch (MongoException e) {
+					handleError(e);
+				} catch (Throwable e) {
+					// this should never happen, but if it does keep the stream alive
+					LoggerFactory.getLogger(getClass()).error(
+							"Unexpected error processing change stream: " + e.getMessage(), e);
+					notifyAllChanged();
+					sleep(CHANGE_STREAM_RETRY_MS);
+				}
+			}
+		}
+		
+		private void handleError(final MongoException e) {
+			LoggerFactory.getLogger(getClass()).error(
+					"Error watching change stream: " + e.getMessage(), e);
+			if (e instanceof MongoCommandException && CHANGE_STREAM_HISTORY_LOST
+					.contains(((MongoCommandException) e).getErrorCode())) {
+				// the token has fallen off the oplog, so start from now
+				token = null;
+			}
+			// events may have been missed while the stream was down
+			notifyAllChanged();
+			sleep(CHANGE_STREAM_RETRY_MS);
+		}
+		
+		private void watch() {
+			final ChangeStreamIterable<Document> stream = db.watch(Arrays.asList(
+					Aggregates.match(Filters.in(
+							"ns.coll", COL_GROUPS, COL_GROUP_MEMBERS, COL_REQUESTS)),
+					// the ID fields are all that's needed - don't pull whole groups over
+					// the network
+					Aggregates.project(Projections.include(
+							"operationType", "ns", "fullDocument." + Fields.GROUP_ID,
+							"fullDocument." + Fields.MEMBER_GROUP_ID,
+							"fullDocument." + Fields.REQUEST_ID))))
+					.fullDocument(FullDocument.UPDATE_LOOKUP)
+					.maxAwaitTime(CHANGE_STREAM_AWAIT_MS, TimeUnit.MILLISECONDS);
+			if (token != null) {
+				stream.resumeAfter(token);
+			}
+			try (final MongoCursor<ChangeStreamDocument<Document>> cur = stream.iterator()) {
+				while (changeStreamRunning) {
+					final ChangeStreamDocument<Document> change = cur.tryNext();
+					if (change != null) {
+						processChange(change);
+						token = change.getResumeToken();
+					}
+				}
+			}
+		}
+		
+		private void processChange(final ChangeStreamDocument<Document> change) {
+			final String col = change.getNamespace() == null ?
+					null : change.getNamespace().getCollectionName();
+			final Document doc = change.getFullDocument();
+			// deleted documents, or documents deleted before an update could be looked up,
+			// have no full document
+			final String id = doc == null ? null : doc.getString(getIDField(col));
+			try {
+				if (id != null && (COL_GROUPS.equals(col) || COL_GROUP_MEMBERS.equals(col))) {
+					for (final StorageChangeListener l: changeListeners) {
+						l.groupChanged(new GroupID(id));
+					}
+				} else if (id != null && COL_REQUESTS.equals(col)) {
+					final RequestID rid = new RequestID(id);
+					for (final StorageChangeListener l: changeListeners) {
+						l.requestChanged(rid);
+					}
+				} else if (COL_REQUESTS.equals(col) &&
+						OperationType.DELETE.equals(change.getOperationType())) {
+					// requests are only deleted when they're archived, and archival doesn't
+					// change the request, so there's nothing to invalidate
+				} else if (COL_GROUP_MEMBERS.equals(col) &&
+						OperationType.DELETE.equals(change.getOperationType())) {
+					// member details are only deleted when the member is removed from the
+					// group, which changes the group
+				} else {
+					notifyAllChanged();
+				}
+			} catch (MissingParameterException | IllegalParameterException e) {
+				LoggerFactory.getLogger(getClass()).error(String.format(
+						"Illegal ID %s in change stream for collection %s: %s",
+						id, col, e.getMessage()), e);
+				notifyAllChanged();
+			}
+		}
+		
+		private String getIDField(final String col) {
+			if (COL_GROUP_MEMBERS.equals(col)) {
+				return Fields.MEMBER_GROUP_ID;
+			} else if (COL_REQUESTS.equals(col)) {
+				return Fields.REQUEST_ID;
+			} else {
+				return Fields.GROUP_ID;
+			}
+		}
+		
+		private void notifyAllChanged() {
+			for (final StorageChangeListener l: changeListeners) {
+				l.allChanged();
+			}
+		}
+		
+		private void sleep(final long millis) {
+			try {
+				Thread.sleep(millis);
+			} catch (InterruptedException e) {
+				changeStreamRunning = false;
+			}
+		}
+	}
+	
 	private void checkConfig() throws StorageInitException  {
 		final MongoCollection<Document> col = db.getCollection(COL_CONFIG);
 		final Document cfg = new Document(Fields.DB_SCHEMA_KEY, Fields.DB_SCHEMA_VALUE);
@@ -334,14 +1209,26 @@ public class MongoGroupsStorage implements GroupsStorage {
 	private void ensureIndexes(Map<String, Map<List<String>, IndexOptions>> indexes)
 			throws StorageInitException {
 		for (final String col: indexes.keySet()) {
+			final MongoCollection<Document> dbcol = db.getCollection(col);
+			final Map<List<String>, Document> existing = getIndexes(dbcol);
 			for (final List<String> idx: indexes.get(col).keySet()) {
 				final Document index = new Document();
 				final IndexOptions opts = indexes.get(col).get(idx);
 				for (final String field: idx) {
 					index.put(field, 1);
 				}
-				final MongoCollection<Document> dbcol = db.getCollection(col);
 				try {
+					if (opts != null && opts.getPartialFilterExpression() != null &&
+							existing.containsKey(idx) &&
+							!opts.getPartialFilterExpression().equals(
+									existing.get(idx).get("partialFilterExpression"))) {
+						/* An index with the same keys but a different filter exists, likely
+						 * the full index from a previous version. MongoDB won't create the
+						 * new index alongside it, so drop it first. Queries fall back to
+						 * other indexes until the new index is built.
+						 */
+						dropIndex(dbcol, existing.get(idx));
+					}
 					if (opts == null) {
 						dbcol.createIndex(index);
 					} else {
@@ -377,6 +1264,139 @@ public class MongoGroupsStorage implements GroupsStorage {
 		ensureIndexes(ImmutableMap.of(COL_GROUPS, groups));
 	}
 	
+	private void dropObsoleteIndexes() throws StorageInitException {
+		for (final String col: OBSOLETE_INDEXES.keySet()) {
+			final MongoCollection<Document> dbcol = db.getCollection(col);
+			final Map<List<String>, Document> existing = getIndexes(dbcol);
+			for (final List<String> idx: OBSOLETE_INDEXES.get(col)) {
+				if (existing.containsKey(idx)) {
+					dropIndex(dbcol, existing.get(idx));
+				}
+			}
+		}
+	}
+	
+	// returns the index field names in order -> the index document
+	private Map<List<String>, Document> getIndexes(final MongoCollection<Document> col)
+			throws StorageInitException {
+		final Map<List<String>, Document> ret = new HashMap<>();
+		try {
+			for (final Document idx: col.listIndexes()) {
+				ret.put(new LinkedList<>(((Document) idx.get("key")).keySet()), idx);
+			}
+		} catch (MongoException me) {
+			throw new StorageInitException("Failed to list indexes: " + me.getMessage(), me);
+		}
+		return ret;
+	}
+	
+	private void dropIndex(final MongoCollection<Document> col, final Document index)
+			throws StorageInitException {
+		final String name = index.getString("name");
+		try {
+			col.dropIndex(name);
+			LoggerFactory.getLogger(getClass()).info(String.format(
+					"Dropped index %s from collection %s", name,
+					col.getNamespace().getCollectionName()));
+		} catch (MongoCommandException e) {
+			// another server process dropped the index first
+			if (e.getErrorCode() != INDEX_NOT_FOUND) {
+				throw new StorageInitException("Failed to drop index: " + e.getMessage(), e);
+			}
+		} catch (MongoException me) {
+			throw new StorageInitException("Failed to drop index: " + me.getMessage(), me);
+		}
+	}
+	
+	private void ensureSearchIndexes() throws StorageInitException {
+		final Document index = new Document(Fields.SEARCH_NAME, "text")
+				.append(Fields.SEARCH_FIELDS, "text");
+		final IndexOptions opts = new IndexOptions()
+				.weights(new Document(Fields.SEARCH_NAME, SEARCH_NAME_WEIGHT));
+		for (final String col: Arrays.asList(COL_SEARCH_PUBLIC, COL_SEARCH_PRIVATE)) {
+			try {
+				db.getCollection(col).createIndex(index, opts);
+			} catch (MongoException me) {
+				throw new StorageInitException(
+						"Failed to create index: " + me.getMessage(), me);
+			}
+		}
+	}
+	
+	/* Moves member custom fields and last visit dates from group member lists, where they were
+	 * stored prior to version 0.1.6, to the group members collection. A group whose members
+	 * change during the migration keeps its old member list and is migrated on the next
+	 * startup. Until then its members' details are read from the member list.
+	 * Once every group has been migrated the config document records that fact and the
+	 * migration, which scans the groups collection, is skipped on later startups.
+	 */
+	private void migrateMemberDetails() throws StorageInitException {
+		final Document cfgQuery = new Document(Fields.DB_SCHEMA_KEY, Fields.DB_SCHEMA_VALUE);
+		final String prefix = Fields.GROUP_MEMBERS + Fields.FIELD_SEP;
+		final Document query = new Document("$or", Arrays.asList(
+				new Document(prefix + Fields.GROUP_MEMBER_VISIT_DATE,
+						new Document("$exists", true)),
+				new Document(prefix + Fields.GROUP_MEMBER_CUSTOM_FIELDS,
+						new Document("$exists", true))));
+		final Document projection = new Document(Fields.GROUP_ID, 1)
+				.append(Fields.GROUP_MEMBERS, 1);
+		int count = 0;
+		int skipped = 0;
+		try {
+			final MongoCollection<Document> config = db.getCollection(COL_CONFIG);
+			final Document cfg = config.find(cfgQuery).first();
+			if (Boolean.TRUE.equals(cfg.get(Fields.DB_SCHEMA_MEMBER_DETAILS_MOVED))) {
+				return;
+			}
+			final MongoCollection<Document> groups = db.getCollection(COL_GROUPS);
+			for (final Document g: groups.find(query).projection(projection)) {
+				final String gid = g.getString(Fields.GROUP_ID);
+				@SuppressWarnings("unchecked")
+				final List<Document> members = (List<Document>) g.get(Fields.GROUP_MEMBERS);
+				final List<UpdateOneModel<Document>> details = new LinkedList<>();
+				final List<Document> stripped = new LinkedList<>();
+				for (final Document m: members) {
+					// don't overwrite details written by an updated server
+					details.add(new UpdateOneModel<>(
+							new Document(Fields.MEMBER_GROUP_ID, gid).append(
+									Fields.GROUP_MEMBER_NAME, m.get(Fields.GROUP_MEMBER_NAME)),
+							new Document("$setOnInsert", toMemberDetailsDoc(m)),
+							new UpdateOptions().upsert(true)));
+					stripped.add(new Document(
+							Fields.GROUP_MEMBER_NAME, m.get(Fields.GROUP_MEMBER_NAME))
+							.append(Fields.GROUP_MEMBER_JOIN_DATE,
+									m.get(Fields.GROUP_MEMBER_JOIN_DATE)));
+				}
+				if (!details.isEmpty()) {
+					db.getCollection(COL_GROUP_MEMBERS).bulkWrite(
+							details, new BulkWriteOptions().ordered(false));
+				}
+				final UpdateResult res = groups.updateOne(
+						new Document(Fields.GROUP_ID, gid).append(Fields.GROUP_MEMBERS, members),
+						new Document("$set", new Document(Fields.GROUP_MEMBERS, stripped)));
+				count += res.getModifiedCount();
+				skipped += res.getMatchedCount() == 1 ? 0 : 1;
+			}
+			if (skipped == 0) {
+				config.updateOne(cfgQuery, new Document("$set",
+						new Document(Fields.DB_SCHEMA_MEMBER_DETAILS_MOVED, true)));
+			}
+		} catch (MongoException e) {
+			throw new StorageInitException(
+					"Failed to migrate group members: " + e.getMessage(), e);
+		}
+		if (count > 0) {
+			LoggerFactory.getLogger(getClass()).info(String.format(
+					"Moved member details for %s groups to the %s collection",
+					count, COL_GROUP_MEMBERS));
+		}
+		if (skipped > 0) {
+			LoggerFactory.getLogger(getClass()).info(String.format(
+					"Member lists for %s groups changed during migration and will be " +
+					"migrated on the next startup", skipped));
+		}
+	}
+	
 	private static class DuplicateKeyExceptionChecker {
 		
 		// might need this stuff later, so keeping for now.
@@ -394,10 +1414,15 @@ public class MongoGroupsStorage implements GroupsStorage {
 		
 		public DuplicateKeyExceptionChecker(final MongoWriteException mwe)
 				throws GroupsStorageException {
+			this(mwe.getError(), mwe);
+		}
+		
+		public DuplicateKeyExceptionChecker(final WriteError error, final MongoException cause)
+				throws GroupsStorageException {
 			// split up indexes better at some point - e.g. in a Document
-			isDuplicate = isDuplicate(mwe);
+			isDuplicate = isDuplicate(error);
 			if (isDuplicate) {
-				final Matcher indexMatcher = indexPattern.matcher(mwe.getMessage());
+				final Matcher indexMatcher = indexPattern.matcher(error.getMessage());
 				if (indexMatcher.find()) {
 					collection = Optional.of(indexMatcher.group(2));
 					index = Optional.of(indexMatcher.group(4));
@@ -405,9 +1430,9 @@ public class MongoGroupsStorage implements GroupsStorage {
 					throw new GroupsStorageException(
 							"Unable to parse duplicate key error: " +
 							// could include a token hash as the key, so split it out if it's there
-							mwe.getMessage().split("dup key")[0], mwe);
+							error.getMessage().split("dup key")[0], cause);
 				}
-				final Matcher keyMatcher = keyPattern.matcher(mwe.getMessage());
+				final Matcher keyMatcher = keyPattern.matcher(error.getMessage());
 				if (keyMatcher.find()) {
 					key = Optional.of(keyMatcher.group(1));
 				} else { // some errors include the dup key, some don't
@@ -421,7 +1446,11 @@ public class MongoGroupsStorage implements GroupsStorage {
 		}
 		
 		public static boolean isDuplicate(final MongoWriteException mwe) {
-			return mwe.getError().getCategory().equals(ErrorCategory.DUPLICATE_KEY);
+			return isDuplicate(mwe.getError());
+		}
+		
+		private static boolean isDuplicate(final WriteError error) {
+			return error.getCategory().equals(ErrorCategory.DUPLICATE_KEY);
 		}
 		
 		public boolean isDuplicate() {
@@ -482,6 +1511,107 @@ public class MongoGroupsStorage implements GroupsStorage {
 		} catch (MongoException e) {
 			throw wrapMongoException(e);
 		}
+		for (final UserName m: group.getAllMembers()) {
+			setMemberDetails(group.getGroupID(), group.getMember(m));
+		}
+		indexGroup(
+				group.getGroupID().getName(),
+				group.getGroupName().getName(),
+				group.isPrivate(),
+				toStringList(group.getAllMembers()),
+				getCustomFields(group.getCustomFields()));
+	}
+	
+	/* Updates the search index records for a group. The private record contains all the
+	 * searchable fields and the members of the group, and the public record contains only
+	 * the public fields and only exists for public groups.
+	 * Updating the group and the index is not atomic, so a failure or a race between
+	 * updates can leave the index out of sync. reindexGroup() fixes the index in that case.
+	 */
+	private void indexGroup(
+			final String groupID,
+			final String groupName,
+			final boolean isPrivate,
+			final List<String> members,
+			final Map<String, String> customFields)
+			throws GroupsStorageException {
+		final List<String> publicFields = customFields.entrySet().stream()
+				.filter(e -> publicSearchFields.contains(
+						e.getKey().split(NUMBERED_FIELD_SEP)[0]))
+				.map(e -> e.getValue())
+				.collect(Collectors.toList());
+		final Document query = new Document(Fields.SEARCH_GROUP_ID, groupID);
+		final ReplaceOptions upsert = new ReplaceOptions().upsert(true);
+		try {
+			db.getCollection(COL_SEARCH_PRIVATE).replaceOne(query, new Document(
+					Fields.SEARCH_GROUP_ID, groupID)
+					.append(Fields.SEARCH_NAME, groupName)
+					.append(Fields.SEARCH_FIELDS, new ArrayList<>(customFields.values()))
+					.append(Fields.SEARCH_MEMBERS, members),
+					upsert);
+			if (isPrivate) {
+				db.getCollection(COL_SEARCH_PUBLIC).deleteOne(query);
+			} else {
+				db.getCollection(COL_SEARCH_PUBLIC).replaceOne(query, new Document(
+						Fields.SEARCH_GROUP_ID, groupID)
+						.append(Fields.SEARCH_NAME, groupName)
+						.append(Fields.SEARCH_FIELDS, publicFields),
+						upsert);
+			}
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+	}
+	
+	private void indexGroup(final Document group) throws GroupsStorageException {
+		@SuppressWarnings("unchecked")
+		final List<Document> members = (List<Document>) group.get(Fields.GROUP_MEMBERS);
+		@SuppressWarnings("unchecked")
+		final Map<String, String> custom =
+				(Map<String, String>) group.get(Fields.GROUP_CUSTOM_FIELDS);
+		indexGroup(
+				group.getString(Fields.GROUP_ID),
+				group.getString(Fields.GROUP_NAME),
+				group.getBoolean(Fields.GROUP_IS_PRIVATE),
+				members.stream().map(m -> m.getString(Fields.GROUP_MEMBER_NAME))
+						.collect(Collectors.toList()),
+				custom);
+	}
+	
+	@Override
+	public void reindexGroup(final GroupID groupID)
+			throws NoSuchGroupException, GroupsStorageException {
+		indexGroup(getGroupDoc(groupID, SEARCH_INDEX_PROJECTION));
+	}
+	
+	@Override
+	public long reindexGroups() throws GroupsStorageException {
+		long count = 0;
+		try {
+			for (final Document g: db.getCollection(COL_GROUPS).find()
+					.projection(SEARCH_INDEX_PROJECTION)) {
+				indexGroup(g);
+				count++;
+			}
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+		return count;
+	}
+	
+	private void updateSearchMembers(
+			final GroupID groupID,
+			final String operator,
+			final UserName member)
+			throws GroupsStorageException {
+		try {
+			db.getCollection(COL_SEARCH_PRIVATE).updateOne(
+					new Document(Fields.SEARCH_GROUP_ID, groupID.getName()),
+					new Document(operator,
+							new Document(Fields.SEARCH_MEMBERS, member.getName())));
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
 	}
 
 	private List<Document> toMembersDocList(final Group group) {
@@ -489,14 +1619,50 @@ public class MongoGroupsStorage implements GroupsStorage {
 				.collect(Collectors.toList());
 	}
 
+	/* The members list only contains the member names and join dates, which are needed
+	 * for queries and never change. The custom fields and last visit dates can be large and
+	 * change frequently, so they're stored in the group members collection to keep the group
+	 * document small and avoid rewriting it on every visit.
+	 */
 	private Document toDoc(final GroupUser gu) {
 		return new Document(Fields.GROUP_MEMBER_NAME, gu.getName().getName())
-				.append(Fields.GROUP_MEMBER_JOIN_DATE, Date.from(gu.getJoinDate()))
-				.append(Fields.GROUP_MEMBER_VISIT_DATE, gu.getLastVisit()
+				.append(Fields.GROUP_MEMBER_JOIN_DATE, Date.from(gu.getJoinDate()));
+	}
+	
+	private Document toMemberDetailsDoc(final GroupUser gu) {
+		return new Document(Fields.GROUP_MEMBER_VISIT_DATE, gu.getLastVisit()
 						.map(i -> Date.from(i)).orElse(null))
 				.append(Fields.GROUP_MEMBER_CUSTOM_FIELDS,
 						getCustomFields(gu.getCustomFields()));
 	}
+	
+	// gets the details from a members list entry stored prior to version 0.1.6
+	private Document toMemberDetailsDoc(final Document memberEntry) {
+		final Object custom = memberEntry.get(Fields.GROUP_MEMBER_CUSTOM_FIELDS);
+		return new Document(Fields.GROUP_MEMBER_VISIT_DATE,
+						memberEntry.get(Fields.GROUP_MEMBER_VISIT_DATE))
+				.append(Fields.GROUP_MEMBER_CUSTOM_FIELDS,
+						custom == null ? new Document() : custom);
+	}
+	
+	private Document toMemberQuery(final GroupID groupID, final UserName member) {
+		return new Document(Fields.MEMBER_GROUP_ID, groupID.getName())
+				.append(Fields.GROUP_MEMBER_NAME, member.getName());
+	}
+	
+	private void setMemberDetails(final GroupID groupID, final GroupUser member)
+			throws GroupsStorageException {
+		final Document query = toMemberQuery(groupID, member.getName());
+		final Document details = new Document(query);
+		details.putAll(toMemberDetailsDoc(member));
+		try {
+			// replaces any details left over from a failed member removal
+			db.getCollection(COL_GROUP_MEMBERS).replaceOne(
+					query, details, new ReplaceOptions().upsert(true));
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+	}
 
 	private GroupsStorageException wrapMongoException(MongoException e) {
 		return new GroupsStorageException("Connection to database failed: " +
@@ -544,11 +1710,13 @@ public class MongoGroupsStorage implements GroupsStorage {
 			if (res.getMatchedCount() != 1) {
 				getGroup(update.getGroupID()); //throws no such group
 				// otherwise we don't care - the update made no changes.
+				return;
 			}
 			// if it matches, it gets modified, so we don't check
 		} catch (MongoException e) {
 			throw wrapMongoException(e);
 		}
+		reindexGroup(update.getGroupID());
 	}
 	
 	/** This method is for updating custom fields in groups and users. It modifies the
@@ -615,7 +1783,49 @@ public class MongoGroupsStorage implements GroupsStorage {
 	@Override
 	public Group getGroup(final GroupID groupID)
 			throws GroupsStorageException, NoSuchGroupException {
-		return toGroup(getGroupDoc(groupID, null));
+		return toGroups(db, Arrays.asList(getGroupDoc(groupID, null))).get(0);
+	}
+	
+	private List<Group> toGroups(final MongoDatabase database, final List<Document> groups)
+			throws GroupsStorageException {
+		final Map<String, Map<String, Document>> details = getMemberDetails(database,
+				groups.stream().map(g -> g.getString(Fields.GROUP_ID))
+						.collect(Collectors.toList()),
+				null);
+		final List<Group> ret = new LinkedList<>();
+		for (final Document g: groups) {
+			ret.add(toGroup(g, details.getOrDefault(
+					g.getString(Fields.GROUP_ID), Collections.emptyMap())));
+		}
+		return ret;
+	}
+	
+	/* Returns group ID -> member name -> member details document for the given groups,
+	 * optionally for a single member. Members without details documents are omitted.
+	 */
+	private Map<String, Map<String, Document>> getMemberDetails(
+			final MongoDatabase database,
+			final List<String> groupIDs,
+			final UserName member)
+			throws GroupsStorageException {
+		final Map<String, Map<String, Document>> ret = new HashMap<>();
+		if (groupIDs.isEmpty()) {
+			return ret;
+		}
+		final Document query = new Document(
+				Fields.MEMBER_GROUP_ID, new Document("$in", groupIDs));
+		if (member != null) {
+			query.append(Fields.GROUP_MEMBER_NAME, member.getName());
+		}
+		try {
+			for (final Document d: database.getCollection(COL_GROUP_MEMBERS).find(query)) {
+				ret.computeIfAbsent(d.getString(Fields.MEMBER_GROUP_ID), k -> new HashMap<>())
+						.put(d.getString(Fields.GROUP_MEMBER_NAME), d);
+			}
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+		return ret;
 	}
 
 	private Document getGroupDoc(final GroupID groupID, final Document projection)
@@ -635,7 +1845,10 @@ public class MongoGroupsStorage implements GroupsStorage {
 		checkNoNullsInCollection(groupIDs, "groupIDs");
 		final Document query = new Document(Fields.GROUP_ID, new Document("$in", groupIDs.stream()
 				.map(g -> g.getName()).collect(Collectors.toList())));
-		final List<Group> retgrp = getList(COL_GROUPS, query, null, null, 0, d ->toGroup(d));
+		// fetched by ID, often for membership checks or to fill the cache, so read from the
+		// primary
+		final List<Group> retgrp = toGroups(db, getList(
+				db, COL_GROUPS, query, null, null, 0, d -> d));
 		final Set<GroupID> got = retgrp.stream().map(g -> g.getGroupID())
 				.collect(Collectors.toSet());
 		final Set<GroupID> missing = new HashSet<>(groupIDs); // in case groups is immutable
@@ -664,8 +1877,9 @@ public class MongoGroupsStorage implements GroupsStorage {
 				groupIDs.stream().map(i -> i.getName()).collect(Collectors.toList())));
 		final Document sort = new Document(Fields.GROUP_ID, 1);
 		
+		// used for membership and visibility checks, so read from the primary
 		final List<GroupIDNameMembership> ret = getList(
-				COL_GROUPS, query, projection, sort, 0, d -> toGroupIDNameMembership(d));
+				db, COL_GROUPS, query, projection, sort, 0, d -> toGroupIDNameMembership(d));
 		if (ret.size() != groupIDs.size()) {
 			final Set<GroupID> got = ret.stream().map(g -> g.getID())
 					.collect(Collectors.toSet());
@@ -731,14 +1945,17 @@ public class MongoGroupsStorage implements GroupsStorage {
 				.append(Fields.MONGO_ID, 0);
 		final Document sort = new Document(Fields.GROUP_ID, 1);
 		
-		return getList(COL_GROUPS, query, projection, sort, 0, d -> toGroupIDAndName(d));
+		return getList(listDB, COL_GROUPS, query, projection, sort, 0,
+				d -> toGroupIDAndName(d));
 	}
 
 	@Override
 	public Set<GroupID> getAdministratedGroups(final UserName user)
 			throws GroupsStorageException {
 		requireNonNull(user, "user");
+		// used for authorization, so read from the primary
 		return new HashSet<>(getList( // could make a get set method but meh
+				db,
 				COL_GROUPS,
 				new Document("$or", Arrays.asList(
 						new Document(Fields.GROUP_OWNER, user.getName()),
@@ -755,6 +1972,7 @@ public class MongoGroupsStorage implements GroupsStorage {
 	}
 
 	private <T> List<T> getList(
+			final MongoDatabase database,
 			final String collection,
 			final Document query,
 			final Document projection,
@@ -764,7 +1982,7 @@ public class MongoGroupsStorage implements GroupsStorage {
 			throws GroupsStorageException {
 		final List<T> ret = new LinkedList<>();
 		try {
-			final FindIterable<Document> gdocs = db.getCollection(collection)
+			final FindIterable<Document> gdocs = database.getCollection(collection)
 					.find(query)
 					.projection(projection)
 					.sort(sort)
@@ -784,11 +2002,277 @@ public class MongoGroupsStorage implements GroupsStorage {
 			final boolean resourceIsPublic,
 			final UserName user)
 			throws GroupsStorageException {
+		final Optional<Document> query = getGroupsQuery(params, resourceIsPublic, user);
+		if (!query.isPresent()) {
+			return Collections.emptyList();
+		}
+		// may want to allow alternate sorts later, will need indexes
+		final Document sort = new Document(Fields.GROUP_ID, params.isSortAscending() ? 1 : -1);
+		return toGroups(listDB, getList(listDB, COL_GROUPS, query.get(), new Document(), sort,
+				params.getLimit().orElse(DEFAULT_LIST_LIMIT), d -> d));
+	}
+	
+	@Override
+	public List<GroupSummary> getGroupSummaries(
+			final GetGroupsParams params,
+			final boolean resourceIsPublic,
+			final UserName user,
+			final Set<CustomField> customFields)
+			throws GroupsStorageException {
+		checkNoNullsInCollection(customFields, "customFields");
+		final Optional<Document> query = getGroupsQuery(params, resourceIsPublic, user);
+		if (!query.isPresent()) {
+			return Collections.emptyList();
+		}
+		final Document sort = new Document(Fields.GROUP_ID, params.isSortAscending() ? 1 : -1);
+		return getGroupSummaries(listDB, Arrays.asList(
+				Aggregates.match(query.get()),
+				Aggregates.sort(sort),
+				Aggregates.limit(params.getLimit().orElse(DEFAULT_LIST_LIMIT)),
+				Aggregates.project(getGroupSummaryProjection(user, customFields))),
+				user);
+	}
+	
+	@Override
+	public List<GroupSummary> getGroupSummaries(
+			final UserName user,
+			final Collection<GroupID> groupIDs)
+			throws NoSuchGroupException, GroupsStorageException {
+		checkNoNullsInCollection(groupIDs, "groupIDs");
+		final Document query = new Document(Fields.GROUP_ID, new Document("$in",
+				groupIDs.stream().map(i -> i.getName()).collect(Collectors.toList())));
+		// used for permission checks, so read from the primary like the other by ID reads
+		final List<GroupSummary> ret = getGroupSummaries(db, Arrays.asList(
+				Aggregates.match(query),
+				Aggregates.sort(new Document(Fields.GROUP_ID, 1)),
+				Aggregates.project(getGroupSummaryProjection(user, Collections.emptySet()))),
+				user);
+		if (ret.size() != groupIDs.size()) {
+			final Set<GroupID> got = ret.stream().map(g -> g.getGroupID())
+					.collect(Collectors.toSet());
+			for (final GroupID g: groupIDs) { // can't cover this, guaranteed thrown exception
+				if (!got.contains(g)) {
+					throw new NoSuchGroupException(g.getName());
+				}
+			}
+		}
+		return ret;
+	}
+	
+	@Override
+	public List<GroupSummary> searchGroups(
+			final SearchGroupsParams params,
+			final UserName user,
+			final Set<CustomField> customFields)
+			throws GroupsStorageException {
+		checkNotNull(params, "params");
+		checkNoNullsInCollection(customFields, "customFields");
+		final int limit = params.getLimit().orElse(DEFAULT_LIST_LIMIT);
+		// group ID -> best relevance score across the public and private indexes
+		final Map<String, Double> scores = new HashMap<>();
+		searchText(COL_SEARCH_PUBLIC, new Document(), params.getQuery(), limit, scores);
+		if (user != null) {
+			searchText(COL_SEARCH_PRIVATE, new Document(Fields.SEARCH_MEMBERS, user.getName()),
+					params.getQuery(), limit, scores);
+		}
+		final List<String> ids = scores.entrySet().stream()
+				.sorted((e1, e2) -> {
+					final int c = Double.compare(e2.getValue(), e1.getValue());
+					return c != 0 ? c : e1.getKey().compareTo(e2.getKey());
+				})
+				.limit(limit)
+				.map(e -> e.getKey())
+				.collect(Collectors.toList());
+		if (ids.isEmpty()) {
+			return Collections.emptyList();
+		}
+		final Map<String, GroupSummary> summaries = new HashMap<>();
+		for (final GroupSummary g: getGroupSummaries(listDB, Arrays.asList(
+				Aggregates.match(new Document(Fields.GROUP_ID, new Document("$in", ids))),
+				Aggregates.project(getGroupSummaryProjection(user, customFields))),
+				user)) {
+			summaries.put(g.getGroupID().getName(), g);
+		}
+		// the index could be out of sync with the groups, so don't assume all the groups exist
+		return ids.stream().filter(id -> summaries.containsKey(id))
+				.map(id -> summaries.get(id))
+				.collect(Collectors.toList());
+	}
+	
+	private void searchText(
+			final String collection,
+			final Document query,
+			final String text,
+			final int limit,
+			final Map<String, Double> scores)
+			throws GroupsStorageException {
+		query.append("$text", new Document("$search", text));
+		final Document score = new Document("$meta", "textScore");
+		try {
+			for (final Document d: listDB.getCollection(collection).find(query)
+					.projection(new Document(Fields.SEARCH_GROUP_ID, 1)
+							.append(Fields.SEARCH_SCORE, score)
+							.append(Fields.MONGO_ID, 0))
+					.sort(new Document(Fields.SEARCH_SCORE, score))
+					.limit(limit)) {
+				scores.merge(d.getString(Fields.SEARCH_GROUP_ID),
+						d.getDouble(Fields.SEARCH_SCORE), Math::max);
+			}
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+	}
+	
+	private List<GroupSummary> getGroupSummaries(
+			final MongoDatabase readDB,
+			final List<Bson> pipeline,
+			final UserName user)
+			throws GroupsStorageException {
+		final List<Document> gdocs = new LinkedList<>();
+		try {
+			final AggregateIterable<Document> agg = readDB.getCollection(COL_GROUPS)
+					.aggregate(pipeline);
+			for (final Document gdoc: agg) {
+				gdocs.add(gdoc);
+			}
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+		final Map<String, Map<String, Document>> details = user == null ?
+				Collections.emptyMap() :
+				getMemberDetails(readDB, gdocs.stream().map(g -> g.getString(Fields.GROUP_ID))
+						.collect(Collectors.toList()), user);
+		final List<GroupSummary> ret = new LinkedList<>();
+		for (final Document gdoc: gdocs) {
+			ret.add(toGroupSummary(gdoc, user, details.getOrDefault(
+					gdoc.getString(Fields.GROUP_ID), Collections.emptyMap()).get(
+							user == null ? null : user.getName())));
+		}
+		return ret;
+	}
+	
+	private Document getGroupSummaryProjection(
+			final UserName user,
+			final Set<CustomField> customFields) {
+		// the member and resource lists can be very large, so only send counts over the wire
+		final Document projection = new Document(Fields.GROUP_ID, 1)
+				.append(Fields.GROUP_NAME, 1)
+				.append(Fields.GROUP_OWNER, 1)
+				.append(Fields.GROUP_IS_PRIVATE, 1)
+				.append(Fields.GROUP_CREATION, 1)
+				.append(Fields.GROUP_MODIFICATION, 1)
+				.append(Fields.GROUP_SUMMARY_MEMBER_COUNT,
+						new Document("$size", "$" + Fields.GROUP_MEMBERS))
+				.append(Fields.GROUP_SUMMARY_RESOURCE_COUNTS, new Document("$map",
+						new Document("input", objectToArray(Fields.GROUP_RESOURCES))
+								.append("as", "r")
+								.append("in", new Document(Fields.AGG_OBJECT_KEY, "$$r." +
+										Fields.AGG_OBJECT_KEY)
+										.append(Fields.AGG_OBJECT_VALUE, new Document("$size",
+												"$$r." + Fields.AGG_OBJECT_VALUE)))))
+				.append(Fields.MONGO_ID, 0);
+		if (!customFields.isEmpty()) {
+			// custom field keys are the field root, optionally followed by -<integer>
+			final Document fieldRoot = new Document("$arrayElemAt", Arrays.asList(
+					new Document("$split", Arrays.asList(
+							"$$f." + Fields.AGG_OBJECT_KEY, NUMBERED_FIELD_SEP)),
+					0));
+			projection.append(Fields.GROUP_CUSTOM_FIELDS, new Document("$filter",
+					new Document("input", objectToArray(Fields.GROUP_CUSTOM_FIELDS))
+							.append("as", "f")
+							.append("cond", new Document("$in", Arrays.asList(fieldRoot,
+									customFields.stream().map(f -> f.getName())
+											.collect(Collectors.toList()))))));
+		}
+		if (user != null) {
+			projection.append(Fields.GROUP_MEMBERS, new Document("$map",
+					new Document("input", new Document("$filter",
+							new Document("input", "$" + Fields.GROUP_MEMBERS)
+									.append("as", "m")
+									.append("cond", new Document("$eq", Arrays.asList(
+											"$$m." + Fields.GROUP_MEMBER_NAME,
+											user.getName())))))
+							.append("as", "m")
+							.append("in", new Document(Fields.GROUP_MEMBER_VISIT_DATE,
+									"$$m." + Fields.GROUP_MEMBER_VISIT_DATE))))
+					.append(Fields.GROUP_SUMMARY_IS_ADMIN, new Document("$in", Arrays.asList(
+							user.getName(), "$" + Fields.GROUP_ADMINS)));
+		}
+		return projection;
+	}
+	
+	private Document objectToArray(final String field) {
+		return new Document("$objectToArray", "$" + field);
+	}
+	
+	// memberDetails is null if the user isn't a member or the details aren't migrated yet
+	private GroupSummary toGroupSummary(
+			final Document grp,
+			final UserName user,
+			final Document memberDetails)
+			throws GroupsStorageException {
+		try {
+			final UserName owner = new UserName(grp.getString(Fields.GROUP_OWNER));
+			final GroupSummary.Builder b = GroupSummary.getBuilder(
+					new GroupID(grp.getString(Fields.GROUP_ID)),
+					new GroupName(grp.getString(Fields.GROUP_NAME)),
+					owner,
+					new CreateAndModTimes(
+							grp.getDate(Fields.GROUP_CREATION).toInstant(),
+							grp.getDate(Fields.GROUP_MODIFICATION).toInstant()))
+					.withIsPrivate(grp.getBoolean(Fields.GROUP_IS_PRIVATE))
+					.withMemberCount(grp.getInteger(Fields.GROUP_SUMMARY_MEMBER_COUNT));
+			@SuppressWarnings("unchecked")
+			final List<Document> rescounts =
+					(List<Document>) grp.get(Fields.GROUP_SUMMARY_RESOURCE_COUNTS);
+			for (final Document rc: rescounts) {
+				b.withResourceCount(new ResourceType(rc.getString(Fields.AGG_OBJECT_KEY)),
+						rc.getInteger(Fields.AGG_OBJECT_VALUE));
+			}
+			@SuppressWarnings("unchecked")
+			final List<Document> custom = (List<Document>) grp.get(Fields.GROUP_CUSTOM_FIELDS);
+			if (custom != null) { // no fields were requested
+				for (final Document f: custom) {
+					b.withCustomField(new NumberedCustomField(f.getString(Fields.AGG_OBJECT_KEY)),
+							f.getString(Fields.AGG_OBJECT_VALUE));
+				}
+			}
+			@SuppressWarnings("unchecked")
+			final List<Document> member = (List<Document>) grp.get(Fields.GROUP_MEMBERS);
+			if (member != null && !member.isEmpty()) { // null if no user was provided
+				final Role role;
+				if (owner.equals(user)) {
+					role = Role.OWNER;
+				} else if (grp.getBoolean(Fields.GROUP_SUMMARY_IS_ADMIN)) {
+					role = Role.ADMIN;
+				} else {
+					role = Role.MEMBER;
+				}
+				final Document details = memberDetails == null ? member.get(0) : memberDetails;
+				b.withRole(role).withNullableLastVisit(Optional.ofNullable(
+						details.getDate(Fields.GROUP_MEMBER_VISIT_DATE))
+						.map(d -> d.toInstant()).orElse(null));
+			}
+			return b.build();
+		} catch (MissingParameterException | IllegalParameterException | NullPointerException |
+				IllegalArgumentException e) {
+			throw new GroupsStorageException(
+					"Unexpected value in database: " + e.getMessage(), e);
+		}
+	}
+	
+	/* Returns the query for the groups matching the parameters, or empty if the parameters
+	 * can't match any groups.
+	 */
+	private Optional<Document> getGroupsQuery(
+			final GetGroupsParams params,
+			final boolean resourceIsPublic,
+			final UserName user) {
 		// ugh. This method is not pretty.
 		requireNonNull(params, "params");
 		if (user == null && (!params.getRole().equals(Role.NONE) ||
 				(params.getResourceType().isPresent() && !resourceIsPublic))) {
-			return Collections.emptyList();
+			return Optional.empty();
 		}
 		final Document query = new Document();
 		if (params.getExcludeUpTo().isPresent()) {
@@ -820,10 +2304,7 @@ public class MongoGroupsStorage implements GroupsStorage {
 			// members array contains all members
 			query.append(memberField, user.getName());
 		}
-		// may want to allow alternate sorts later, will need indexes
-		final Document sort = new Document(Fields.GROUP_ID, params.isSortAscending() ? 1 : -1);
-		// could make limit a param (with a max), YAGNI for now
-		return getList(COL_GROUPS, query, new Document(), sort, 100, d -> toGroup(d));
+		return Optional.of(query);
 	}
 	
 	private Document appendResourceInPlace(final GetGroupsParams params, final Document query) {
@@ -836,9 +2317,10 @@ public class MongoGroupsStorage implements GroupsStorage {
 		return query;
 	}
 
-	private Group toGroup(final Document grp) throws GroupsStorageException {
+	private Group toGroup(final Document grp, final Map<String, Document> memberDetails)
+			throws GroupsStorageException {
 		try {
-			final Map<UserName, GroupUser> members = getMembers(grp);
+			final Map<UserName, GroupUser> members = getMembers(grp, memberDetails);
 			final UserName owner = new UserName(grp.getString(Fields.GROUP_OWNER));
 			final Group.Builder b = Group.getBuilder(
 					new GroupID(grp.getString(Fields.GROUP_ID)),
@@ -884,6 +2366,9 @@ public class MongoGroupsStorage implements GroupsStorage {
 			throws IllegalParameterException, MissingParameterException {
 		@SuppressWarnings("unchecked")
 		final Map<String, String> custom = (Map<String, String>) groupDoc.get(customFieldField);
+		if (custom == null) { // a member with no details document
+			return;
+		}
 		for (final String field: custom.keySet()) {
 			fieldConsumer.accept(new NumberedCustomField(field), custom.get(field));
 		}
@@ -900,20 +2385,24 @@ public class MongoGroupsStorage implements GroupsStorage {
 		return ret;
 	}
 
-	private Map<UserName, GroupUser> getMembers(final Document grp)
+	private Map<UserName, GroupUser> getMembers(
+			final Document grp,
+			final Map<String, Document> memberDetails)
 			throws MissingParameterException, IllegalParameterException {
 		@SuppressWarnings("unchecked")
 		final List<Document> members = (List<Document>) grp.get(Fields.GROUP_MEMBERS);
 		final Map<UserName, GroupUser> ret = new HashMap<>();
 		for (final Document m: members) {
 			final UserName u = new UserName(m.getString(Fields.GROUP_MEMBER_NAME));
+			// members of groups that aren't migrated yet have their details in the members list
+			final Document details = memberDetails.getOrDefault(u.getName(), m);
 			final GroupUser.Builder b = GroupUser.getBuilder(
 					u, m.getDate(Fields.GROUP_MEMBER_JOIN_DATE).toInstant())
 					.withNullableLastVisit(Optional.ofNullable(
-							m.getDate(Fields.GROUP_MEMBER_VISIT_DATE))
+							details.getDate(Fields.GROUP_MEMBER_VISIT_DATE))
 							.map(d -> d.toInstant()).orElse(null));
-			addCustomFields(
-					(f, v) -> b.withCustomField(f, v), Fields.GROUP_MEMBER_CUSTOM_FIELDS, m);
+			addCustomFields((f, v) -> b.withCustomField(f, v),
+					Fields.GROUP_MEMBER_CUSTOM_FIELDS, details);
 			ret.put(u, b.build());
 		}
 		return ret;
@@ -928,6 +2417,8 @@ public class MongoGroupsStorage implements GroupsStorage {
 		} catch (NoSuchUserException e) {
 			throw new RuntimeException("This should be impossible", e);
 		}
+		setMemberDetails(groupID, member);
+		updateSearchMembers(groupID, "$addToSet", member.getName());
 	}
 	
 	@Override
@@ -1018,6 +2509,25 @@ public class MongoGroupsStorage implements GroupsStorage {
 			throws NoSuchGroupException, NoSuchUserException, GroupsStorageException {
 		checkNotNull(member, "member");
 		demoteMember(groupID, member, modDate, false);
+		deleteMemberDetails(groupID, member);
+		updateSearchMembers(groupID, "$pull", member);
+	}
+	
+	private void deleteMemberDetails(final GroupID groupID, final UserName member)
+			throws GroupsStorageException {
+		// the member is already gone from the members list, so try hard not to leave the
+		// details behind. Left over details are ignored and are replaced if the member is
+		// added again.
+		for (int i = 1; ; i++) {
+			try {
+				db.getCollection(COL_GROUP_MEMBERS).deleteOne(toMemberQuery(groupID, member));
+				return;
+			} catch (MongoException e) {
+				if (i >= MEMBER_DETAILS_DELETE_ATTEMPTS) {
+					throw wrapMongoException(e);
+				}
+			}
+		}
 	}
 	
 	@Override
@@ -1079,57 +2589,72 @@ public class MongoGroupsStorage implements GroupsStorage {
 		if (fields.isEmpty()) {
 			return;
 		}
-		final List<Document> memberQueryOr = new LinkedList<>();
-		final Document query = new Document(Fields.GROUP_ID, groupID.getName())
-				// This 1) finds the position of the member to alter, and
-				// 2) ensures that we actually alter the member (see memberQueryOr updates in
-				// fn below) before setting the mod date
-				// 3) keeps the update atomic
-				.append(Fields.GROUP_MEMBERS, new Document("$elemMatch",
-						new Document(Fields.GROUP_MEMBER_NAME, member.getName())
-								.append("$or", memberQueryOr)));
-		final Document set = new Document(Fields.GROUP_MODIFICATION, Date.from(modDate));
-		
-		// see further explanation re memberQueryOr updates in this fn
+		// the modified count shows whether any fields changed, so the query conditions
+		// aren't needed. The group ID never changes, so setting it ensures $set isn't empty.
 		final Document update = buildQueryAndUpdateForCustomFields(
 				fields.keySet(),
 				f -> fields.get(f),
 				Fields.GROUP_MEMBER_CUSTOM_FIELDS + Fields.FIELD_SEP,
-				// now use the member position to set the fields
-				Fields.GROUP_MEMBERS + ".$." + Fields.GROUP_MEMBER_CUSTOM_FIELDS +
-						Fields.FIELD_SEP,
-				memberQueryOr,
-				set);
-		// if it matches, it gets modified
-		updateUser(groupID, member, query, update);
+				Fields.GROUP_MEMBER_CUSTOM_FIELDS + Fields.FIELD_SEP,
+				new LinkedList<>(),
+				new Document(Fields.MEMBER_GROUP_ID, groupID.getName()));
+		if (updateMemberDetails(groupID, member, update)) {
+			try {
+				// if the member was removed in the meantime there's nothing to update
+				db.getCollection(COL_GROUPS).updateOne(
+						new Document(Fields.GROUP_ID, groupID.getName())
+								.append(Fields.GROUP_MEMBERS + Fields.FIELD_SEP +
+										Fields.GROUP_MEMBER_NAME, member.getName()),
+						new Document("$set", new Document(
+								Fields.GROUP_MODIFICATION, Date.from(modDate))));
+			} catch (MongoException e) {
+				throw wrapMongoException(e);
+			}
+		}
 	}
-
-	// only checks for a match, not modification, and will generally throw an error if no match
-	// assumes match is on gid and username and throws errors for those conditions
-	private void updateUser(
+	
+	// returns true if the details were modified. Throws errors if the group doesn't exist or
+	// the user isn't a member.
+	private boolean updateMemberDetails(
 			final GroupID groupID,
 			final UserName member,
-			final Document query,
 			final Document update)
 			throws GroupsStorageException, NoSuchGroupException, NoSuchUserException {
+		// the members list is the source of truth for membership. A details document may be
+		// left behind if a write fails when the member is removed, so always check the list.
+		final Document entry = getMemberEntry(groupID, member);
+		final Document query = toMemberQuery(groupID, member);
 		try {
-			final UpdateResult res = db.getCollection(COL_GROUPS).updateOne(query, update);
-			if (res.getMatchedCount() != 1) {
-				final Group g = getGroup(groupID); //throws no such group
-				// there's a *tiny* possibility that the user could've been added between
-				// the match failing and now, which would mean the function doesn't error
-				// when it should.
-				// So improbable not worth worrying about.
-				if (!g.isMember(member)) {
-					throw new NoSuchUserException(String.format(
-							"User %s is not a member of group %s",
-							member.getName(), groupID.getName()));
-				}
+			final MongoCollection<Document> col = db.getCollection(COL_GROUP_MEMBERS);
+			final UpdateResult res = col.updateOne(query, update);
+			if (res.getMatchedCount() == 1) {
+				return res.getModifiedCount() > 0;
 			}
+			// The member has no details document, either because the group isn't migrated
+			// yet or a write failed when the member was added. Start with the details from
+			// the members list, if any.
+			col.updateOne(query, new Document("$setOnInsert", toMemberDetailsDoc(entry)),
+					new UpdateOptions().upsert(true));
+			return col.updateOne(query, update).getModifiedCount() > 0;
 		} catch (MongoException e) {
 			throw wrapMongoException(e);
 		}
 	}
+	
+	private Document getMemberEntry(final GroupID groupID, final UserName member)
+			throws GroupsStorageException, NoSuchGroupException, NoSuchUserException {
+		final Document g = getGroupDoc(groupID, new Document(Fields.GROUP_MEMBERS,
+				new Document("$elemMatch",
+						new Document(Fields.GROUP_MEMBER_NAME, member.getName()))));
+		@SuppressWarnings("unchecked")
+		final List<Document> entry = (List<Document>) g.get(Fields.GROUP_MEMBERS);
+		if (entry == null || entry.isEmpty()) {
+			throw new NoSuchUserException(String.format(
+					"User %s is not a member of group %s",
+					member.getName(), groupID.getName()));
+		}
+		return entry.get(0);
+	}
 
 	private void updateUserCheckForNulls(
 			final GroupID groupID,
@@ -1156,13 +2681,84 @@ public class MongoGroupsStorage implements GroupsStorage {
 		requireNonNull(groupID, "groupID");
 		requireNonNull(member, "member");
 		requireNonNull(lastVisited, "lastVisited");
-		final Document query = new Document(Fields.GROUP_ID, groupID.getName())
-				.append(Fields.GROUP_MEMBERS, new Document("$elemMatch",
-						new Document(Fields.GROUP_MEMBER_NAME, member.getName())));
-		
-		final Document update = new Document("$set", new Document(
-				Fields.GROUP_MEMBERS + ".$." + Fields.GROUP_MEMBER_VISIT_DATE, lastVisited));
-		updateUser(groupID, member, query, update);
+		// visits don't change the group, so the modification date isn't updated
+		updateMemberDetails(groupID, member, new Document("$set", new Document(
+				Fields.GROUP_MEMBER_VISIT_DATE, Date.from(lastVisited))));
+	}
+	
+	@Override
+	public void updateLastVisits(final Map<GroupID, Map<UserName, Instant>> lastVisits)
+			throws GroupsStorageException {
+		requireNonNull(lastVisits, "lastVisits");
+		final List<UpdateOneModel<Document>> updates = new LinkedList<>();
+		for (final Entry<GroupID, Map<UserName, Instant>> g: lastVisits.entrySet()) {
+			requireNonNull(g.getKey(), "Null key in lastVisits");
+			requireNonNull(g.getValue(), String.format(
+					"Null value for key %s in lastVisits", g.getKey().getName()));
+			for (final Entry<UserName, Instant> m: g.getValue().entrySet()) {
+				requireNonNull(m.getKey(), String.format(
+						"Null member for group %s in lastVisits", g.getKey().getName()));
+				requireNonNull(m.getValue(), String.format(
+						"Null date for member %s in group %s in lastVisits",
+						m.getKey().getName(), g.getKey().getName()));
+				// no upsert, so non-members don't get details documents. Members without a
+				// details document are handled below.
+				updates.add(new UpdateOneModel<>(
+						toMemberQuery(g.getKey(), m.getKey()), toLastVisitUpdate(m.getValue())));
+			}
+		}
+		if (updates.isEmpty()) {
+			return;
+		}
+		final BulkWriteResult res;
+		try {
+			res = db.getCollection(COL_GROUP_MEMBERS).bulkWrite(
+					updates, new BulkWriteOptions().ordered(false));
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+		if (res.getMatchedCount() < updates.size()) {
+			seedLastVisits(lastVisits);
+		}
+	}
+	
+	// $max means concurrent writers can't move the date backwards
+	private Document toLastVisitUpdate(final Instant lastVisited) {
+		return new Document("$max", new Document(
+				Fields.GROUP_MEMBER_VISIT_DATE, Date.from(lastVisited)));
+	}
+	
+	/* Members of groups that aren't migrated yet, or whose details failed to write when they
+	 * were added, have no details document. Find them and create their details from the group's
+	 * members list, as for unbuffered visits. Missing groups and non-members are ignored.
+	 */
+	private void seedLastVisits(final Map<GroupID, Map<UserName, Instant>> lastVisits)
+			throws GroupsStorageException {
+		for (final Entry<GroupID, Map<UserName, Instant>> g: lastVisits.entrySet()) {
+			final Set<String> hasDetails = new HashSet<>();
+			try {
+				for (final Document d: db.getCollection(COL_GROUP_MEMBERS).find(
+						new Document(Fields.MEMBER_GROUP_ID, g.getKey().getName())
+								.append(Fields.GROUP_MEMBER_NAME, new Document("$in",
+										g.getValue().keySet().stream().map(u -> u.getName())
+												.collect(Collectors.toList()))))
+						.projection(new Document(Fields.GROUP_MEMBER_NAME, 1))) {
+					hasDetails.add(d.getString(Fields.GROUP_MEMBER_NAME));
+				}
+			} catch (MongoException e) {
+				throw wrapMongoException(e);
+			}
+			for (final Entry<UserName, Instant> m: g.getValue().entrySet()) {
+				if (!hasDetails.contains(m.getKey().getName())) {
+					try {
+						updateMemberDetails(
+								g.getKey(), m.getKey(), toLastVisitUpdate(m.getValue()));
+					} catch (NoSuchGroupException | NoSuchUserException e) {
+						// the group was deleted or the user isn't a member, nothing to record
+					}
+				}
+			}
+		}
 	}
 
 	@Override
@@ -1246,7 +2842,99 @@ public class MongoGroupsStorage implements GroupsStorage {
 	public void storeRequest(final GroupRequest request)
 			throws RequestExistsException, GroupsStorageException {
 		checkNotNull(request, "request");
+		storeRequest(request, Optional.empty());
+	}
+	
+	@Override
+	public void storeRequest(final GroupRequest request, final Set<UserName> targets)
+			throws RequestExistsException, GroupsStorageException {
+		checkNotNull(request, "request");
+		checkNoNullsInCollection(targets, "targets");
+		if (!RequestType.INVITE.equals(request.getType()) ||
+				GroupRequest.USER_TYPE.equals(request.getResourceType())) {
+			throw new IllegalArgumentException(
+					"Targets may only be stored for invitations to resources other than users");
+		}
+		storeRequest(request, Optional.of(targets));
+	}
+	
+	private void storeRequest(final GroupRequest request, final Optional<Set<UserName>> targets)
+			throws RequestExistsException, GroupsStorageException {
 		final String charString = getCharacteristicString(request);
+		try {
+			db.getCollection(COL_REQUESTS).insertOne(toDocument(request, charString, targets));
+		} catch (MongoWriteException mwe) {
+			// not happy about this, but getDetails() returns an empty map
+			final DuplicateKeyExceptionChecker dk = new DuplicateKeyExceptionChecker(mwe);
+			if (dk.isDuplicate() && COL_REQUESTS.equals(dk.getCollection().get())) {
+				if ((Fields.REQUEST_ID + "_1").equals(dk.getIndex().get())) {
+					throw requestIDExists(request);
+				} else if ((Fields.REQUEST_CHARACTERISTIC_STRING + "_1")
+						.equals(dk.getIndex().get())) {
+					// there's a tiny possibility of race condition here but not worth
+					// worrying about
+					final String requestID = getRequestIDFromCharacteristicString(charString);
+					throw new RequestExistsException("Request exists with ID: " +
+						requestID);
+				} // otherwise throw next exception
+			}
+			throw new GroupsStorageException("Database write failed", mwe);
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+	}
+	
+	@Override
+	public Set<RequestID> storeRequests(final Collection<GroupRequest> requests)
+			throws GroupsStorageException {
+		checkNoNullsInCollection(requests, "requests");
+		final Set<RequestID> exists = new HashSet<>();
+		if (requests.isEmpty()) {
+			return exists;
+		}
+		final List<GroupRequest> reqs = new ArrayList<>(requests);
+		final List<Document> docs = new LinkedList<>();
+		for (final GroupRequest r: reqs) {
+			docs.add(toDocument(r, getCharacteristicString(r), Optional.empty()));
+		}
+		try {
+			// unordered so one existing request doesn't prevent the rest from being stored
+			db.getCollection(COL_REQUESTS).insertMany(
+					docs, new InsertManyOptions().ordered(false));
+		} catch (MongoBulkWriteException mbwe) {
+			if (mbwe.getWriteConcernError() != null) {
+				throw new GroupsStorageException("Database write failed", mbwe);
+			}
+			for (final BulkWriteError err: mbwe.getWriteErrors()) {
+				final DuplicateKeyExceptionChecker dk = new DuplicateKeyExceptionChecker(
+						err, mbwe);
+				if (dk.isDuplicate() && COL_REQUESTS.equals(dk.getCollection().get())) {
+					if ((Fields.REQUEST_ID + "_1").equals(dk.getIndex().get())) {
+						throw requestIDExists(reqs.get(err.getIndex()));
+					} else if ((Fields.REQUEST_CHARACTERISTIC_STRING + "_1")
+							.equals(dk.getIndex().get())) {
+						exists.add(reqs.get(err.getIndex()).getID());
+						continue;
+					}
+				}
+				throw new GroupsStorageException("Database write failed", mbwe);
+			}
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+		return exists;
+	}
+
+	private IllegalArgumentException requestIDExists(final GroupRequest request) {
+		return new IllegalArgumentException(String.format("ID %s already exists " +
+				"in the database. The programmer is responsible for maintaining " +
+				"unique IDs.", request.getID().getID()));
+	}
+
+	private Document toDocument(
+			final GroupRequest request,
+			final String charString,
+			final Optional<Set<UserName>> targets) {
 		final Document req = new Document(
 				Fields.REQUEST_ID, request.getID().getID())
 				.append(Fields.REQUEST_GROUP_ID, request.getGroupID().getName())
@@ -1267,29 +2955,16 @@ public class MongoGroupsStorage implements GroupsStorage {
 		if (charString != null) {
 				req.append(Fields.REQUEST_CHARACTERISTIC_STRING, charString);
 		}
-		try {
-			db.getCollection(COL_REQUESTS).insertOne(req);
-		} catch (MongoWriteException mwe) {
-			// not happy about this, but getDetails() returns an empty map
-			final DuplicateKeyExceptionChecker dk = new DuplicateKeyExceptionChecker(mwe);
-			if (dk.isDuplicate() && COL_REQUESTS.equals(dk.getCollection().get())) {
-				if ((Fields.REQUEST_ID + "_1").equals(dk.getIndex().get())) {
-					throw new IllegalArgumentException(String.format("ID %s already exists " +
-							"in the database. The programmer is responsible for maintaining " +
-							"unique IDs.", request.getID().getID()));
-				} else if ((Fields.REQUEST_CHARACTERISTIC_STRING + "_1")
-						.equals(dk.getIndex().get())) {
-					// there's a tiny possibility of race condition here but not worth
-					// worrying about
-					final String requestID = getRequestIDFromCharacteristicString(charString);
-					throw new RequestExistsException("Request exists with ID: " +
-						requestID);
-				} // otherwise throw next exception
-			}
-			throw new GroupsStorageException("Database write failed", mwe);
-		} catch (MongoException e) {
-			throw wrapMongoException(e);
+		if (RequestType.INVITE.equals(request.getType()) &&
+				GroupRequest.USER_TYPE.equals(request.getResourceType())) {
+			// the invited user is the only target. Targets for invitations to other resources
+			// are provided by the caller or set by setRequestTargets()
+			req.append(Fields.REQUEST_TARGETS, Arrays.asList(
+					request.getResource().getAdministrativeID().getName()));
+		} else if (targets.isPresent()) {
+			req.append(Fields.REQUEST_TARGETS, toSortedNames(targets.get()));
 		}
+		return req;
 	}
 	
 	// this should only be called when it's known the characteristic string is in the DB.
@@ -1349,8 +3024,13 @@ public class MongoGroupsStorage implements GroupsStorage {
 	public GroupRequest getRequest(final RequestID requestID)
 			throws NoSuchRequestException, GroupsStorageException {
 		checkNotNull(requestID, "requestID");
-		final Document req = findOne(
-				COL_REQUESTS, new Document(Fields.REQUEST_ID, requestID.getID()));
+		final Document query = new Document(Fields.REQUEST_ID, requestID.getID());
+		Document req = findOne(COL_REQUESTS, query);
+		if (req == null) {
+			// requests are copied to the archive before they're deleted, so checking the
+			// archive second can't miss a request that's being archived
+			req = findOne(COL_REQUESTS_ARCHIVE, query);
+		}
 		if (req == null) {
 			throw new NoSuchRequestException(requestID.getID());
 		} else {
@@ -1380,23 +3060,56 @@ public class MongoGroupsStorage implements GroupsStorage {
 			throw new IllegalArgumentException(
 					"This method may not be parameterized with a specific resource ID");
 		}
-		final List<Document> or = new LinkedList<>();
-		final Document query = new Document(Fields.REQUEST_TYPE, RequestType.INVITE.name())
-				.append("$or", or);
+		// each entry is the $or clause for one query
+		final List<List<Document>> ors = new LinkedList<>();
+		List<Document> or = new LinkedList<>();
+		ors.add(or);
 		or.add(new Document(Fields.REQUEST_RESOURCE_TYPE, GroupRequest.USER_TYPE.getName())
 				.append(Fields.REQUEST_RESOURCE_ADMINISTRATIVE_ID, target.getName()));
+		int idsInQuery = 1;
 		for (final ResourceType t: resources.keySet()) {
 			checkNotNull(t, "null key in resources");
 			checkNoNullsInCollection(resources.get(t), "resources key " + t.getName() + " value");
 			if (resources.get(t).isEmpty()) {
 				throw new IllegalArgumentException("No resource IDs for key " + t.getName());
 			}
-			or.add(new Document(Fields.REQUEST_RESOURCE_TYPE, t.getName())
-					.append(Fields.REQUEST_RESOURCE_ADMINISTRATIVE_ID, new Document(
-							"$in", resources.get(t).stream().map(r -> r.getName())
-									.collect(Collectors.toList()))));
+			final List<String> ids = resources.get(t).stream().map(r -> r.getName())
+					.sorted().collect(Collectors.toList());
+			for (final List<String> chunk: Lists.partition(ids, MAX_TARGET_IDS_PER_QUERY)) {
+				if (idsInQuery + chunk.size() > MAX_TARGET_IDS_PER_QUERY) {
+					or = new LinkedList<>();
+					ors.add(or);
+					idsInQuery = 0;
+				}
+				or.add(new Document(Fields.REQUEST_RESOURCE_TYPE, t.getName())
+						.append(Fields.REQUEST_RESOURCE_ADMINISTRATIVE_ID,
+								new Document("$in", chunk)));
+				idsInQuery += chunk.size();
+			}
 		}
-		return findRequests(query, params);
+		if (ors.size() == 1) {
+			return findRequests(new Document(Fields.REQUEST_TYPE, RequestType.INVITE.name())
+					.append("$or", or), params);
+		}
+		// each query returns at most the limit, so the merged results contain the first
+		// limit requests over all the queries.
+		final Map<String, GroupRequest> merged = new HashMap<>();
+		for (final List<Document> o: ors) {
+			for (final GroupRequest r: findRequests(
+					new Document(Fields.REQUEST_TYPE, RequestType.INVITE.name())
+							.append("$or", o), params)) {
+				merged.put(r.getID().getID(), r);
+			}
+		}
+		Comparator<GroupRequest> cmp = Comparator
+				.comparing((GroupRequest r) -> r.getModificationDate())
+				.thenComparing(r -> r.getID().getID());
+		if (!params.isSortAscending()) {
+			cmp = cmp.reversed();
+		}
+		return merged.values().stream().sorted(cmp)
+				.limit(params.getLimit().orElse(DEFAULT_LIST_LIMIT))
+				.collect(Collectors.toList());
 	}
 	
 	@Override
@@ -1410,6 +3123,72 @@ public class MongoGroupsStorage implements GroupsStorage {
 		final Document query = new Document(Fields.REQUEST_TYPE, RequestType.INVITE.name());
 		return findRequests(query, params);
 	}
+	
+	@Override
+	public boolean setRequestTargets(final RequestID requestID, final Set<UserName> targets)
+			throws NoSuchRequestException, GroupsStorageException {
+		checkNotNull(requestID, "requestID");
+		checkNoNullsInCollection(targets, "targets");
+		final List<String> names = toSortedNames(targets);
+		final Document query = new Document(Fields.REQUEST_ID, requestID.getID())
+				.append(Fields.REQUEST_STATUS, GroupRequestStatusType.OPEN.name());
+		// only write the request if the targets changed. Targets are always stored sorted,
+		// so an exact array match means they're the same
+		final Document changedQuery = new Document(query)
+				.append(Fields.REQUEST_TARGETS, new Document("$ne", names));
+		final Document set = new Document(Fields.REQUEST_TARGETS, names);
+		try {
+			final UpdateResult res = db.getCollection(COL_REQUESTS).updateOne(
+					changedQuery, new Document("$set", set));
+			if (res.getMatchedCount() == 1) {
+				return true;
+			}
+			// either the targets are unchanged or the request doesn't exist or is closed
+			if (findOne(COL_REQUESTS, query, new Document(Fields.REQUEST_ID, 1)) == null) {
+				throw new NoSuchRequestException("No open request with ID " +
+						requestID.getID());
+			}
+			return false;
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+	}
+	
+	private List<String> toSortedNames(final Set<UserName> users) {
+		return users.stream().map(u -> u.getName()).sorted().collect(Collectors.toList());
+	}
+	
+	@Override
+	public List<GroupRequest> getRequestsByTargetUser(
+			final UserName target,
+			final GetRequestsParams params)
+			throws GroupsStorageException {
+		requireNonNull(target, "target");
+		if (requireNonNull(params, "params").getResourceType().isPresent()) {
+			throw new IllegalArgumentException(
+					"This method may not be parameterized with a specific resource ID");
+		}
+		return findRequests(new Document(Fields.REQUEST_TARGETS, target.getName())
+				.append(Fields.REQUEST_TYPE, RequestType.INVITE.name()), params);
+	}
+	
+	@Override
+	public List<GroupRequest> getOpenInvitations(
+			final Optional<RequestID> excludeUpTo,
+			final int limit)
+			throws GroupsStorageException {
+		requireNonNull(excludeUpTo, "excludeUpTo");
+		if (limit < 1) {
+			throw new IllegalArgumentException("limit must be > 0");
+		}
+		final Document query = new Document(Fields.REQUEST_TYPE, RequestType.INVITE.name())
+				.append(Fields.REQUEST_STATUS, GroupRequestStatusType.OPEN.name());
+		if (excludeUpTo.isPresent()) {
+			query.append(Fields.REQUEST_ID, new Document("$gt", excludeUpTo.get().getID()));
+		}
+		return getList(db, COL_REQUESTS, query, new Document(),
+				new Document(Fields.REQUEST_ID, 1), limit, d -> toRequest(d));
+	}
 
 	@Override
 	public List<GroupRequest> getRequestsByGroup(
@@ -1434,20 +3213,33 @@ public class MongoGroupsStorage implements GroupsStorage {
 	}
 	
 	@Override
-	public boolean groupHasRequest(final GroupID groupID, final Instant laterThan)
+	public Map<GroupID, Instant> getLatestOpenRequestDates(final Collection<GroupID> groupIDs)
 			throws GroupsStorageException {
-		requireNonNull(groupID, "groupID");
-		final Document query = new Document(Fields.REQUEST_GROUP_ID, groupID.getName())
+		checkNoNullsInCollection(groupIDs, "groupIDs");
+		final Document query = new Document(Fields.REQUEST_GROUP_ID, new Document("$in",
+				groupIDs.stream().map(i -> i.getName()).collect(Collectors.toList())))
 				.append(Fields.REQUEST_TYPE, RequestType.REQUEST.name())
 				.append(Fields.REQUEST_STATUS, GroupRequestStatusType.OPEN.name());
-		if (laterThan != null) {
-			// we used mod date vs create to avoid making another index, and since
-			// the mod date isn't changed while the request is open
-			query.append(Fields.REQUEST_MODIFICATION, new Document("$gt", laterThan));
+		// we use the mod date vs create to avoid making another index, and since
+		// the mod date isn't changed while the request is open
+		final Map<GroupID, Instant> ret = new HashMap<>();
+		try {
+			final AggregateIterable<Document> latest = listDB.getCollection(COL_REQUESTS)
+					.aggregate(Arrays.asList(
+							Aggregates.match(query),
+							Aggregates.group("$" + Fields.REQUEST_GROUP_ID, Accumulators.max(
+									Fields.REQUEST_SUMMARY_LATEST_MODIFICATION,
+									"$" + Fields.REQUEST_MODIFICATION))));
+			for (final Document l: latest) {
+				ret.put(new GroupID(l.getString(Fields.MONGO_ID)),
+						l.getDate(Fields.REQUEST_SUMMARY_LATEST_MODIFICATION).toInstant());
+			}
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		} catch (MissingParameterException | IllegalParameterException e) {
+			throw new GroupsStorageException("Unexpected value in database: " + e.getMessage(), e);
 		}
-		final Document projection = new Document(Fields.MONGO_ID, 1);
-		// mongo 2.6 doesn't support count with a limit
-		return findOne(COL_REQUESTS, query, projection) != null;
+		return ret;
 	}
 
 	private List<GroupRequest> findRequests(final Document query, final GetRequestsParams params)
@@ -1458,18 +3250,37 @@ public class MongoGroupsStorage implements GroupsStorage {
 		}
 		if (params.getExcludeUpTo().isPresent()) {
 			final String inequality = params.isSortAscending() ? "$gt" : "$lt";
-			query.append(Fields.REQUEST_MODIFICATION,
-					new Document(inequality, Date.from(params.getExcludeUpTo().get())));
+			final Date excludeUpTo = Date.from(params.getExcludeUpTo().get());
+			if (params.getExcludeUpToID().isPresent()) {
+				// each branch of the $or is a contiguous range of the listing index
+				final List<Document> after = Arrays.asList(
+						new Document(Fields.REQUEST_MODIFICATION,
+								new Document(inequality, excludeUpTo)),
+						new Document(Fields.REQUEST_MODIFICATION, excludeUpTo)
+								.append(Fields.REQUEST_ID, new Document(inequality,
+										params.getExcludeUpToID().get().getID())));
+				if (query.containsKey("$or")) {
+					query.append("$and", Arrays.asList(
+							new Document("$or", query.remove("$or")),
+							new Document("$or", after)));
+				} else {
+					query.append("$or", after);
+				}
+			} else {
+				query.append(Fields.REQUEST_MODIFICATION, new Document(inequality, excludeUpTo));
+			}
 		}
 		if (params.getResourceType().isPresent()) {
 			query.append(Fields.REQUEST_RESOURCE_TYPE, params.getResourceType().get().getName())
 				.append(Fields.REQUEST_RESOURCE_ID, params.getResourceID().get().getName());
 		}
 		// allow other sorts? can't think of any particularly useful ones
-		final Document sort = new Document(Fields.REQUEST_MODIFICATION,
-				params.isSortAscending() ? 1 : -1);
-		// could make limit a param, YAGNI for now
-		return getList(COL_REQUESTS, query, new Document(), sort, 100, d -> toRequest(d));
+		// the ID makes the sort order total, which is required for paging by sort key
+		final int sortDir = params.isSortAscending() ? 1 : -1;
+		final Document sort = new Document(Fields.REQUEST_MODIFICATION, sortDir)
+				.append(Fields.REQUEST_ID, sortDir);
+		return getList(listDB, COL_REQUESTS, query, new Document(), sort,
+				params.getLimit().orElse(DEFAULT_LIST_LIMIT), d -> toRequest(d));
 	}
 	
 	private GroupRequest toRequest(final Document req) throws GroupsStorageException {
@@ -1514,17 +3325,19 @@ public class MongoGroupsStorage implements GroupsStorage {
 			throws NoSuchRequestException, GroupsStorageException {
 		checkNotNull(requestID, "requestID");
 		final Document query = new Document(Fields.REQUEST_ID, requestID.getID());
-		closeRequests(query, newStatus, modificationTime, requestID);
+		closeRequests(query, newStatus, modificationTime, requestID, false);
 	}
 
 	// pass non-null request ID if modifying a single request. That'll cause an exception
 	// if the query doesn't match.
 	// the query is appended with a doc enforcing that the status is OPEN.
+	// set unreported to mark the requests as not yet reported to the expiration listeners.
 	private void closeRequests(
 			final Document query, 
 			final GroupRequestStatus newStatus,
 			final Instant modificationTime,
-			final RequestID requestID)
+			final RequestID requestID,
+			final boolean unreported)
 			throws NoSuchRequestException, GroupsStorageException {
 		query.append(Fields.REQUEST_STATUS, GroupRequestStatusType.OPEN.name());
 		checkNotNull(newStatus, "newStatus");
@@ -1542,6 +3355,9 @@ public class MongoGroupsStorage implements GroupsStorage {
 		if (newStatus.getClosedReason().isPresent()) {
 			set.append(Fields.REQUEST_REASON_CLOSED, newStatus.getClosedReason().get());
 		}
+		if (unreported) {
+			set.append(Fields.REQUEST_EXPIRED_UNREPORTED, true);
+		}
 		final Document unset = new Document(Fields.REQUEST_CHARACTERISTIC_STRING, "");
 		try {
 			final UpdateResult res = db.getCollection(COL_REQUESTS).updateMany(
@@ -1556,33 +3372,372 @@ public class MongoGroupsStorage implements GroupsStorage {
 		}
 	}
 
-	/** Set any requests in the {@link GroupRequestStatusType#OPEN} state where the 
-	 * {@link GroupRequest#getExpirationDate()} is earlier than the expire time to
-	 * {@link GroupRequestStatusType#EXPIRED}. The expire time is also used as the modification
-	 * time for the altered requests.
-	 * @param expireTime the cutoff time for requests - any requests with an expire time prior
-	 * to this value will be expired.
+	/** Set up to limit requests in the {@link GroupRequestStatusType#OPEN} state where the 
+	 * {@link GroupRequest#getExpirationDate()} is at or before the expire time to
+	 * {@link GroupRequestStatusType#EXPIRED}, earliest expiration date first.
+	 * The expire time is also used as the modification time for the altered requests.
+	 * 
+	 * The expired requests are marked as unreported in the same update, and the mark is only
+	 * removed once the expiration agent has passed the requests to the expiration listeners.
+	 * As such, if the listeners fail or the process dies after expiring the requests, the
+	 * listeners are called on the next run of the agent.
+	 * @param expireTime the cutoff time for requests - any requests with an expire time at or
+	 * prior to this value will be expired.
+	 * @param limit the maximum number of requests to expire.
+	 * @return the IDs of the expired requests. Requests closed by another thread or process
+	 * between being selected for expiration and being expired are not included.
 	 * @throws GroupsStorageException if an error occurred contacting the server.
 	 */
-	public void expireRequests(final Instant expireTime) throws GroupsStorageException {
+	public List<RequestID> expireRequests(final Instant expireTime, final int limit)
+			throws GroupsStorageException {
 		/* there's no way to run a multi document update and see which documents were actually
-		 * updated AFAICT which sucks.
-		 * So to return the request ids that were updated we'd have to
-		 * 1) Find the docs where status = OPEN and expire < expireTime
-		 * 2) For each doc do an update where status = OPEN expire it
-		 * 3) If the update modified the doc, add it to the returned list. Otherwise,
-		 *   it was accepted/canceled/denied/expired by another thread.
-		 *
-		 * So YAGNI for now.
+		 * updated AFAICT, so find the batch, expire it, and then check which requests in the
+		 * batch were expired by this update via the modification time.
 		 */
 		checkNotNull(expireTime, "expireTime");
-		final Document query = new Document(Fields.REQUEST_EXPIRATION,
-				new Document("$lte", Date.from(expireTime)));
+		if (limit < 1) {
+			throw new IllegalArgumentException("limit must be > 0");
+		}
+		final Date expire = Date.from(expireTime);
+		final Document idProjection = new Document(Fields.REQUEST_ID, 1)
+				.append(Fields.MONGO_ID, 0);
+		final List<String> ids = new LinkedList<>();
+		try {
+			for (final Document r: db.getCollection(COL_REQUESTS).find(
+					new Document(Fields.REQUEST_STATUS, GroupRequestStatusType.OPEN.name())
+							.append(Fields.REQUEST_EXPIRATION, new Document("$lte", expire)))
+					.projection(idProjection)
+					.sort(new Document(Fields.REQUEST_EXPIRATION, 1))
+					.limit(limit)) {
+				ids.add(r.getString(Fields.REQUEST_ID));
+			}
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+		if (ids.isEmpty()) {
+			return Collections.emptyList();
+		}
 		try {
-			closeRequests(query, GroupRequestStatus.expired(), expireTime, null);
+			closeRequests(new Document(Fields.REQUEST_ID, new Document("$in", ids)),
+					GroupRequestStatus.expired(), expireTime, null, true);
 		} catch (NoSuchRequestException e) {
 			throw new RuntimeException("This should be impossible", e);
 		}
+		final Set<String> expired = new HashSet<>();
+		try {
+			for (final Document r: db.getCollection(COL_REQUESTS).find(
+					new Document(Fields.REQUEST_ID, new Document("$in", ids))
+							.append(Fields.REQUEST_STATUS,
+									GroupRequestStatusType.EXPIRED.name())
+							.append(Fields.REQUEST_MODIFICATION, expire))
+					.projection(idProjection)) {
+				expired.add(r.getString(Fields.REQUEST_ID));
+			}
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+		final List<RequestID> ret = new LinkedList<>();
+		for (final String id: ids) {
+			if (expired.contains(id)) {
+				try {
+					ret.add(new RequestID(id));
+				} catch (IllegalParameterException | MissingParameterException e) {
+					throw new GroupsStorageException(
+							"Unexpected value in database: " + e.getMessage(), e);
+				}
+			}
+		}
+		return ret;
+	}
+	
+	/** Move up to limit closed requests - requests in any state other than
+	 * {@link GroupRequestStatusType#OPEN} - that were closed before the cutoff time to the
+	 * request archive. Archived requests are returned by {@link #getRequest(RequestID)} but
+	 * are no longer included in request listings.
+	 *
+	 * Requests are copied to the archive and then deleted, so if archival is interrupted
+	 * running it again completes the archival.
+	 * @param closedBefore the cutoff time for requests - any closed requests with a
+	 * modification time prior to this value will be archived.
+	 * @param limit the maximum number of requests to archive.
+	 * @return the number of requests archived.
+	 * @throws GroupsStorageException if an error occurred contacting the server.
+	 */
+	public int archiveRequests(final Instant closedBefore, final int limit)
+			throws GroupsStorageException {
+		checkNotNull(closedBefore, "closedBefore");
+		if (limit < 1) {
+			throw new IllegalArgumentException("limit must be > 0");
+		}
+		// closed requests can't be modified, so the copies in the archive can't go stale
+		final Document closed = new Document(Fields.REQUEST_STATUS,
+				new Document("$in", CLOSED_REQUEST_STATES));
+		final List<Document> reqs = new LinkedList<>();
+		try {
+			// use the same filter as the archival index so the index is always usable
+			db.getCollection(COL_REQUESTS).find(new Document(CLOSED_REQUEST_FILTER).append(
+					Fields.REQUEST_MODIFICATION, new Document("$lt", Date.from(closedBefore))))
+					.limit(limit)
+					.into(reqs);
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+		if (reqs.isEmpty()) {
+			return 0;
+		}
+		final List<String> ids = reqs.stream().map(r -> r.getString(Fields.REQUEST_ID))
+				.collect(Collectors.toList());
+		try {
+			// unordered so requests archived by an interrupted run don't prevent the rest
+			// from being archived
+			db.getCollection(COL_REQUESTS_ARCHIVE).insertMany(
+					reqs, new InsertManyOptions().ordered(false));
+		} catch (MongoBulkWriteException mbwe) {
+			if (mbwe.getWriteConcernError() != null) {
+				throw new GroupsStorageException("Database write failed", mbwe);
+			}
+			for (final BulkWriteError err: mbwe.getWriteErrors()) {
+				// the request is already archived
+				if (!DuplicateKeyExceptionChecker.isDuplicate(err)) {
+					throw new GroupsStorageException("Database write failed", mbwe);
+				}
+			}
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+		try {
+			return (int) db.getCollection(COL_REQUESTS).deleteMany(new Document(closed)
+					.append(Fields.REQUEST_ID, new Document("$in", ids)))
+					.getDeletedCount();
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+	}
+	
+	@Override
+	public void storeNotification(final OutboxNotification notification)
+			throws GroupsStorageException {
+		checkNotNull(notification, "notification");
+		final Document n = new Document(
+				Fields.NOTIFICATION_ID, notification.getID().toString())
+				.append(Fields.NOTIFICATION_TYPE, notification.getType().name())
+				.append(Fields.NOTIFICATION_CREATION, Date.from(notification.getCreationDate()))
+				.append(Fields.NOTIFICATION_TARGETS, notification.getTargets().stream()
+						.map(u -> u.getName()).collect(Collectors.toList()))
+				.append(Fields.NOTIFICATION_ATTEMPTS, notification.getAttempts())
+				.append(Fields.NOTIFICATION_NEXT_ATTEMPT,
+						Date.from(notification.getCreationDate()));
+		if (OutboxNotification.Type.CANCEL.equals(notification.getType())) {
+			n.append(Fields.NOTIFICATION_CANCEL_REQUEST_IDS, notification
+					.getCancelledRequestIDs().stream().map(r -> r.getID())
+					.collect(Collectors.toList()));
+		} else if (notification.getRequestID().isPresent()) {
+			final String id = notification.getRequestID().get().getID();
+			n.append(Fields.NOTIFICATION_REQUEST_ID, id)
+					.append(Fields.NOTIFICATION_DEDUPLICATION_KEY,
+							id + " " + notification.getType().name());
+		} else {
+			n.append(Fields.NOTIFICATION_USER, notification.getUser().get().getName())
+					.append(Fields.NOTIFICATION_GROUP_ID,
+							notification.getGroupID().get().getName())
+					.append(Fields.NOTIFICATION_RESOURCE_TYPE,
+							notification.getResourceType().get().getName())
+					.append(Fields.NOTIFICATION_RESOURCE_ID,
+							notification.getResourceID().get().getName());
+		}
+		try {
+			db.getCollection(COL_NOTIFICATION_OUTBOX).insertOne(n);
+		} catch (MongoWriteException mwe) {
+			final DuplicateKeyExceptionChecker dk = new DuplicateKeyExceptionChecker(mwe);
+			if (dk.isDuplicate() && COL_NOTIFICATION_OUTBOX.equals(dk.getCollection().get()) &&
+					(Fields.NOTIFICATION_DEDUPLICATION_KEY + "_1").equals(dk.getIndex().get())) {
+				return; // the notification is already in the outbox
+			}
+			throw new GroupsStorageException("Database write failed", mwe);
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+	}
+	
+	@Override
+	public List<OutboxNotification> claimNotifications(
+			final Instant now,
+			final Instant claimExpiration,
+			final int limit)
+			throws GroupsStorageException {
+		checkNotNull(now, "now");
+		checkNotNull(claimExpiration, "claimExpiration");
+		if (!claimExpiration.isAfter(now)) {
+			throw new IllegalArgumentException("claimExpiration must be after now");
+		}
+		if (limit < 1) {
+			throw new IllegalArgumentException("limit must be > 0");
+		}
+		final Document query = new Document(Fields.NOTIFICATION_NEXT_ATTEMPT,
+				new Document("$lte", Date.from(now)));
+		final Document claim = new Document("$set", new Document(
+				Fields.NOTIFICATION_NEXT_ATTEMPT, Date.from(claimExpiration)));
+		final FindOneAndUpdateOptions opts = new FindOneAndUpdateOptions().sort(
+				new Document(Fields.NOTIFICATION_NEXT_ATTEMPT, 1)
+						.append(Fields.NOTIFICATION_CREATION, 1));
+		// claim one at a time so that no other process can claim the same notification
+		final List<OutboxNotification> ret = new LinkedList<>();
+		try {
+			for (int i = 0; i < limit; i++) {
+				final Document n = db.getCollection(COL_NOTIFICATION_OUTBOX)
+						.findOneAndUpdate(query, claim, opts);
+				if (n == null) {
+					break;
+				}
+				ret.add(toOutboxNotification(n));
+			}
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+		return ret;
+	}
+	
+	private OutboxNotification toOutboxNotification(final Document n)
+			throws GroupsStorageException {
+		try {
+			final UUID id = UUID.fromString(n.getString(Fields.NOTIFICATION_ID));
+			final Instant created = n.getDate(Fields.NOTIFICATION_CREATION).toInstant();
+			final OutboxNotification.Type type = OutboxNotification.Type.valueOf(
+					n.getString(Fields.NOTIFICATION_TYPE));
+			final OutboxNotification.Builder b;
+			if (OutboxNotification.Type.ADD_RESOURCE.equals(type)) {
+				b = OutboxNotification.getAddResourceBuilder(
+						id,
+						new UserName(n.getString(Fields.NOTIFICATION_USER)),
+						new GroupID(n.getString(Fields.NOTIFICATION_GROUP_ID)),
+						new ResourceType(n.getString(Fields.NOTIFICATION_RESOURCE_TYPE)),
+						new ResourceID(n.getString(Fields.NOTIFICATION_RESOURCE_ID)),
+						created);
+			} else if (OutboxNotification.Type.CANCEL.equals(type)) {
+				@SuppressWarnings("unchecked")
+				final List<String> ids = (List<String>) n.get(
+						Fields.NOTIFICATION_CANCEL_REQUEST_IDS);
+				final List<RequestID> reqIDs = new LinkedList<>();
+				for (final String r: ids) {
+					reqIDs.add(new RequestID(r));
+				}
+				b = OutboxNotification.getCancelBuilder(id, reqIDs, created);
+			} else {
+				b = OutboxNotification.getRequestBuilder(id, type,
+						new RequestID(n.getString(Fields.NOTIFICATION_REQUEST_ID)), created);
+			}
+			@SuppressWarnings("unchecked")
+			final List<String> targets = (List<String>) n.get(Fields.NOTIFICATION_TARGETS);
+			for (final String t: targets) {
+				b.withTargets(Arrays.asList(new UserName(t)));
+			}
+			return b.withAttempts(n.getInteger(Fields.NOTIFICATION_ATTEMPTS)).build();
+		} catch (IllegalParameterException | MissingParameterException |
+				IllegalArgumentException | NullPointerException e) {
+			throw new GroupsStorageException(
+					"Unexpected value in database: " + e.getMessage(), e);
+		}
+	}
+	
+	@Override
+	public void removeNotification(final UUID id) throws GroupsStorageException {
+		checkNotNull(id, "id");
+		try {
+			db.getCollection(COL_NOTIFICATION_OUTBOX).deleteOne(
+					new Document(Fields.NOTIFICATION_ID, id.toString()));
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+	}
+	
+	@Override
+	public void retryNotification(final UUID id, final Instant nextAttempt)
+			throws GroupsStorageException {
+		checkNotNull(id, "id");
+		checkNotNull(nextAttempt, "nextAttempt");
+		try {
+			db.getCollection(COL_NOTIFICATION_OUTBOX).updateOne(
+					new Document(Fields.NOTIFICATION_ID, id.toString()),
+					new Document("$set", new Document(
+							Fields.NOTIFICATION_NEXT_ATTEMPT, Date.from(nextAttempt)))
+							.append("$inc", new Document(Fields.NOTIFICATION_ATTEMPTS, 1)));
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+	}
+	
+	@Override
+	public Optional<Long> acquireLease(
+			final String leaseName,
+			final String holder,
+			final Instant now,
+			final Instant expiration)
+			throws GroupsStorageException {
+		exceptOnEmpty(leaseName, "leaseName");
+		exceptOnEmpty(holder, "holder");
+		checkNotNull(now, "now");
+		checkNotNull(expiration, "expiration");
+		if (!expiration.isAfter(now)) {
+			throw new IllegalArgumentException("expiration must be after now");
+		}
+		final MongoCollection<Document> col = db.getCollection(COL_LEASES);
+		final FindOneAndUpdateOptions opts = new FindOneAndUpdateOptions()
+				.returnDocument(ReturnDocument.AFTER);
+		try {
+			// renew the lease if we hold it. If it's expired no one else has held it since
+			// or the holder would be different, so the token is unchanged.
+			Document lease = col.findOneAndUpdate(
+					new Document(Fields.LEASE_NAME, leaseName)
+							.append(Fields.LEASE_HOLDER, holder),
+					new Document("$set", new Document(
+							Fields.LEASE_EXPIRATION, Date.from(expiration))),
+					opts);
+			if (lease == null) {
+				// take over an expired lease
+				lease = col.findOneAndUpdate(
+						new Document(Fields.LEASE_NAME, leaseName)
+								.append(Fields.LEASE_EXPIRATION,
+										new Document("$lte", Date.from(now))),
+						new Document("$set", new Document(Fields.LEASE_HOLDER, holder)
+								.append(Fields.LEASE_EXPIRATION, Date.from(expiration)))
+								.append("$inc", new Document(Fields.LEASE_FENCING_TOKEN, 1L)),
+						opts);
+			}
+			if (lease != null) {
+				return Optional.of(lease.getLong(Fields.LEASE_FENCING_TOKEN));
+			}
+			// no lease record yet
+			col.insertOne(new Document(Fields.LEASE_NAME, leaseName)
+					.append(Fields.LEASE_HOLDER, holder)
+					.append(Fields.LEASE_EXPIRATION, Date.from(expiration))
+					.append(Fields.LEASE_FENCING_TOKEN, 1L));
+			return Optional.of(1L);
+		} catch (MongoWriteException mwe) {
+			if (DuplicateKeyExceptionChecker.isDuplicate(mwe)) {
+				// another holder created the lease record concurrently
+				return Optional.empty();
+			}
+			throw new GroupsStorageException("Database write failed", mwe);
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+	}
+	
+	@Override
+	public void releaseLease(final String leaseName, final String holder)
+			throws GroupsStorageException {
+		exceptOnEmpty(leaseName, "leaseName");
+		exceptOnEmpty(holder, "holder");
+		try {
+			// expire the lease rather than deleting it so the fencing token is preserved
+			db.getCollection(COL_LEASES).updateOne(
+					new Document(Fields.LEASE_NAME, leaseName)
+							.append(Fields.LEASE_HOLDER, holder),
+					new Document("$set", new Document(
+							Fields.LEASE_EXPIRATION, new Date(0))));
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
 	}
 	
 	/* Use this for finding documents where indexes should force only a single
@@ -0,0 +1,195 @@
+package us.kbase.groups.userhandler;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static us.kbase.groups.util.Util.checkNoNullsInCollection;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+
+import us.kbase.groups.core.Token;
+import us.kbase.groups.core.UserHandler;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.AuthenticationException;
+import us.kbase.groups.core.exceptions.InvalidTokenException;
+
+/** A user handler that caches the results of token lookups and user name validation from
+ * another user handler.
+ *
+ * Tokens are never stored - the cache is keyed by a hash of the token.
+ * Invalid token results are also cached, typically for a much shorter time than valid tokens,
+ * so that clients repeatedly sending a bad token don't cause repeated calls to the
+ * authentication service.
+ * Failures contacting the authentication service are not cached.
+ *
+ * Only valid user names are cached, since a name that doesn't exist yet may be registered
+ * at any time.
+ *
+ * Note that a revoked token will continue to be accepted until its cache entry expires.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class CachingUserHandler implements UserHandler {
+
+	// the message of an invalid token exception without a detail message
+	private static final String INVALID_TOKEN_PREFIX = new InvalidTokenException().getMessage();
+
+	private final UserHandler wrapped;
+	private final Cache<String, UserName> validTokens;
+	// maps to the detail message of the exception, or the empty string if there is none
+	private final Cache<String, String> invalidTokens;
+	private final Cache<UserName, Boolean> validUsers;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/** Create the handler.
+	 * @param wrapped the user handler that provides user information on a cache miss.
+	 * @param maxSize the maximum number of tokens to store in each of the valid and invalid
+	 * token caches and the valid user name cache. When full, the least recently used entries
+	 * are evicted.
+	 * @param validTokenTTL the time a valid token lookup or a valid user name is stored in the
+	 * cache.
+	 * @param invalidTokenTTL the time an invalid token lookup is stored in the cache.
+	 */
+	public CachingUserHandler(
+			final UserHandler wrapped,
+			final int maxSize,
+			final Duration validTokenTTL,
+			final Duration invalidTokenTTL) {
+		this(wrapped, maxSize, validTokenTTL, invalidTokenTTL, Ticker.systemTicker());
+	}
+
+	// for testing
+	private CachingUserHandler(
+			final UserHandler wrapped,
+			final int maxSize,
+			final Duration validTokenTTL,
+			final Duration invalidTokenTTL,
+			final Ticker ticker) {
+		checkNotNull(wrapped, "wrapped");
+		checkNotNull(validTokenTTL, "validTokenTTL");
+		checkNotNull(invalidTokenTTL, "invalidTokenTTL");
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be > 0");
+		}
+		this.wrapped = wrapped;
+		this.validTokens = buildCache(maxSize, validTokenTTL, ticker);
+		this.invalidTokens = buildCache(maxSize, invalidTokenTTL, ticker);
+		this.validUsers = buildCache(maxSize, validTokenTTL, ticker);
+	}
+
+	private static <K, V> Cache<K, V> buildCache(
+			final int maxSize,
+			final Duration ttl,
+			final Ticker ticker) {
+		return CacheBuilder.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(ttl.toNanos(), TimeUnit.NANOSECONDS)
+				.ticker(ticker)
+				.build();
+	}
+
+	private String hash(final Token token) {
+		return Hashing.sha256().hashString(token.getToken(), StandardCharsets.UTF_8).toString();
+	}
+
+	@Override
+	public UserName getUser(final Token token)
+			throws InvalidTokenException, AuthenticationException {
+		checkNotNull(token, "token");
+		final String key = hash(token);
+		final UserName user = validTokens.getIfPresent(key);
+		if (user != null) {
+			hits.incrementAndGet();
+			return user;
+		}
+		final String invalid = invalidTokens.getIfPresent(key);
+		if (invalid != null) {
+			hits.incrementAndGet();
+			// throw a new exception per call, since exceptions are mutable and carry a stack trace
+			throw new InvalidTokenException(invalid);
+		}
+		misses.incrementAndGet();
+		try {
+			final UserName u = wrapped.getUser(token);
+			validTokens.put(key, u);
+			return u;
+		} catch (InvalidTokenException e) {
+			invalidTokens.put(key, getDetailMessage(e));
+			throw e;
+		}
+	}
+
+	private static String getDetailMessage(final InvalidTokenException e) {
+		final String msg = e.getMessage();
+		// the prefix is followed by ": " if there is a detail message
+		return msg.length() > INVALID_TOKEN_PREFIX.length() + 2 ?
+				msg.substring(INVALID_TOKEN_PREFIX.length() + 2) : "";
+	}
+
+	@Override
+	public boolean isValidUser(final UserName userName) throws AuthenticationException {
+		checkNotNull(userName, "userName");
+		if (validUsers.getIfPresent(userName) != null) {
+			return true;
+		}
+		final boolean valid = wrapped.isValidUser(userName);
+		if (valid) {
+			validUsers.put(userName, true);
+		}
+		return valid;
+	}
+	
+	@Override
+	public Map<UserName, Boolean> areValidUsers(final Collection<UserName> userNames)
+			throws AuthenticationException {
+		checkNoNullsInCollection(userNames, "userNames");
+		final Map<UserName, Boolean> ret = new HashMap<>();
+		final List<UserName> uncached = new LinkedList<>();
+		for (final UserName u: userNames) {
+			if (validUsers.getIfPresent(u) != null) {
+				ret.put(u, true);
+			} else if (!ret.containsKey(u)) {
+				uncached.add(u);
+				ret.put(u, false); // placeholder in case of duplicate names
+			}
+		}
+		if (!uncached.isEmpty()) {
+			final Map<UserName, Boolean> valid = wrapped.areValidUsers(uncached);
+			for (final UserName u: uncached) {
+				final boolean v = Boolean.TRUE.equals(valid.get(u));
+				if (v) {
+					validUsers.put(u, true);
+				}
+				ret.put(u, v);
+			}
+		}
+		return ret;
+	}
+
+	/** Get the number of token lookups that were served from the cache, including lookups
+	 * of invalid tokens.
+	 * @return the number of cache hits.
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/** Get the number of token lookups that required a call to the wrapped user handler.
+	 * @return the number of cache misses.
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+}
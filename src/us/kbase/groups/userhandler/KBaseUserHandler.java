@@ -1,12 +1,18 @@
 package us.kbase.groups.userhandler;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static us.kbase.groups.util.Util.checkNoNullsInCollection;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.slf4j.LoggerFactory;
 
@@ -92,16 +98,33 @@ public class KBaseUserHandler implements UserHandler {
 	@Override
 	public boolean isValidUser(final UserName userName) throws AuthenticationException {
 		checkNotNull(userName, "userName");
+		return areValidUsers(Arrays.asList(userName)).get(userName);
+	}
+	
+	@Override
+	public Map<UserName, Boolean> areValidUsers(final Collection<UserName> userNames)
+			throws AuthenticationException {
+		checkNoNullsInCollection(userNames, "userNames");
+		final Map<UserName, Boolean> ret = new HashMap<>();
+		if (userNames.isEmpty()) {
+			return ret;
+		}
+		final List<String> names = userNames.stream().map(u -> u.getName()).distinct()
+				.collect(Collectors.toList());
+		final Map<String, Boolean> valid;
 		try {
-			return auth.isValidUserName(
-					Arrays.asList(userName.getName()),
-					new AuthToken(serviceToken.getToken(), "fakeuser"))
-					.get(userName.getName());
+			// the auth service accepts a list of names, so check them all in one call
+			valid = auth.isValidUserName(
+					names, new AuthToken(serviceToken.getToken(), "fakeuser"));
 		} catch (IOException | AuthException e) {
 			LoggerFactory.getLogger(getClass()).error("Unexpected auth service response", e);
 			throw new AuthenticationException(ErrorType.AUTHENTICATION_FAILED,
 					"Recieved unexpected response from authentication server.", e);
 		}
+		for (final UserName u: userNames) {
+			ret.put(u, Boolean.TRUE.equals(valid.get(u.getName())));
+		}
+		return ret;
 	}
 
 	public static void main(final String[] args) throws Exception {
@@ -112,6 +135,8 @@ public class KBaseUserHandler implements UserHandler {
 		
 		System.out.println(uh.isValidUser(new UserName("kkeller")));
 		System.out.println(uh.isValidUser(new UserName("veryfakeindeed")));
+		System.out.println(uh.areValidUsers(Arrays.asList(
+				new UserName("kkeller"), new UserName("veryfakeindeed"))));
 	}
 	
 }
@@ -8,12 +8,16 @@ import java.io.IOException;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -21,6 +25,7 @@ import java.util.stream.Collectors;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.github.zafarkhaja.semver.Version;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
 
 import us.kbase.common.service.JsonClientException;
 import us.kbase.common.service.ServerException;
@@ -56,6 +61,9 @@ import us.kbase.workspace.WorkspaceIdentity;
 public class SDKClientWorkspaceHandler implements ResourceHandler {
 	
 	// TODO CACHE may help to cache all or some of the results. YAGNI for now.
+	
+	// the maximum number of workspaces to include in a single bulk call to the workspace
+	private static final int BATCH_SIZE = 100;
 
 	private static final String PERM_ADMIN = "a";
 	private static final String PERM_WRITE = "w";
@@ -140,7 +148,6 @@ public class SDKClientWorkspaceHandler implements ResourceHandler {
 	}
 
 	private static class Perms {
-		@SuppressWarnings("unused")
 		private final Integer errorWSID;
 		private final List<Map<String, String>> perms;
 		
@@ -208,20 +215,22 @@ public class SDKClientWorkspaceHandler implements ResourceHandler {
 		checkNoNullsInCollection(resources, "resources");
 		requireNonNull(access, "access");
 		//TODO WS make a bulk ws method for getwsinfo that returns error code (DELETED, MISSING, INACCESSIBLE, etc.) for inaccessible workspaces
-		//TODO WS for get perms mass make ignore error option that returns error state (DELETED, MISSING, INACCESSIBLE etc.) and use here instead of going one at a time
+		//TODO WS for get perms mass make ignore error option that returns error state (DELETED, MISSING, INACCESSIBLE etc.) and use here instead of retrying the batch
+		final Map<ResourceID, Long> wsids = new HashMap<>();
+		for (final ResourceID rid: resources) {
+			wsids.put(rid, getWSID(rid));
+		}
+		// sort so the calls to the workspace are deterministic
+		final Map<Long, Map<String, String>> perms = getPermissions(new TreeSet<>(wsids.values()));
 		final ResourceInformationSet.Builder b = ResourceInformationSet.getBuilder(user);
+		final Map<ResourceID, WSInfoOwner> infos = new HashMap<>();
+		final Map<Long, Long> narratives = new TreeMap<>();
 		for (final ResourceID rid: resources) {
-			final long wsid = getWSID(rid);
-			final Perms perms;
-			try {
-				perms = getPermissions(Arrays.asList(wsid), false);
-			} catch (NoSuchResourceException e) {
-				throw new RuntimeException("This should be impossible", e);
-			}
-			if (perms.perms == null) {
+			final long wsid = wsids.get(rid);
+			if (!perms.containsKey(wsid)) {
 				b.withNonexistentResource(rid);
 			} else {
-				final Perm perm = new Perm(user, perms.perms.get(0));
+				final Perm perm = new Perm(user, perms.get(wsid));
 				if (hasAccess(perm, access)) {
 					final WSInfoOwner wi;
 					try {
@@ -238,15 +247,69 @@ public class SDKClientWorkspaceHandler implements ResourceHandler {
 						} else {
 							wi.wi.put("perm", perm.perm.getRepresentation());
 						}
-						wi.wi.keySet().stream()
-								.forEach(s -> b.withResourceField(rid, s, wi.wi.get(s)));
+						if (wi.narrativeID != null) {
+							narratives.put(wsid, wi.narrativeID);
+						}
+						infos.put(rid, wi);
 					}
 				}
 			}
 		}
+		final Map<Long, Long> narrCreated = getNarrativeCreationDates(narratives);
+		for (final ResourceID rid: infos.keySet()) {
+			final long wsid = wsids.get(rid);
+			final WSInfoOwner wi = infos.get(rid);
+			if (wi.narrativeID != null) {
+				if (!narrCreated.containsKey(wsid)) {
+					// workspace was deleted after the info was pulled
+					b.withNonexistentResource(rid);
+					continue;
+				}
+				wi.wi.put("narrcreate", narrCreated.get(wsid));
+			}
+			wi.wi.keySet().stream().forEach(s -> b.withResourceField(rid, s, wi.wi.get(s)));
+		}
 		return b.build();
 	}
 
+	// returns the permissions for each workspace that exists and is not deleted.
+	// The workspace fails the entire call if any workspace is missing or deleted, so
+	// remove that workspace from the batch and try again.
+	private Map<Long, Map<String, String>> getPermissions(final Collection<Long> ids)
+			throws ResourceHandlerException {
+		final Map<Long, Map<String, String>> ret = new HashMap<>();
+		for (final List<Long> batch: Iterables.partition(ids, BATCH_SIZE)) {
+			final List<Long> remaining = new LinkedList<>(batch);
+			while (!remaining.isEmpty()) {
+				final Perms perms;
+				try {
+					perms = getPermissions(remaining, false);
+				} catch (NoSuchResourceException e) {
+					throw new RuntimeException("This should be impossible", e);
+				}
+				if (perms.perms == null) {
+					removeErrorWorkspace(remaining, perms.errorWSID);
+				} else {
+					for (int i = 0; i < remaining.size(); i++) {
+						ret.put(remaining.get(i), perms.perms.get(i));
+					}
+					remaining.clear();
+				}
+			}
+		}
+		return ret;
+	}
+	
+	private void removeErrorWorkspace(final List<Long> remaining, final long errorWSID)
+			throws ResourceHandlerException {
+		if (!remaining.remove(errorWSID)) {
+			// prevents an infinite loop if the workspace does something weird
+			throw new ResourceHandlerException(String.format(
+					"Workspace at %s reported an error for workspace %s, which was not " +
+					"included in the request", client.getURL(), errorWSID));
+		}
+	}
+
 	// hm. This seems nasty, but the ResourceAccess class makes sense to me...
 	// For now I'll keep the nasty implementation and more readable, IMO, API.
 	private boolean hasAccess(final Perm perm, final ResourceAccess access) {
@@ -269,14 +332,17 @@ public class SDKClientWorkspaceHandler implements ResourceHandler {
 	private static class WSInfoOwner {
 		private final Map<String, Object> wi;
 		private final String owner;
+		private final Long narrativeID; // null if not a narrative or narrative info not requested
 		
-		private WSInfoOwner(Map<String, Object> wi, String owner) {
+		private WSInfoOwner(Map<String, Object> wi, String owner, Long narrativeID) {
 			this.wi = wi;
 			this.owner = owner;
+			this.narrativeID = narrativeID;
 		}
 	}
 						
-	// returns null if missing or deleted
+	// returns null if missing or deleted. The narrative creation date is not fetched here so
+	// that it can be fetched in bulk.
 	private WSInfoOwner getWSInfo(
 			final long wsid,
 			boolean withDescriptionAndNarrativeInfo,
@@ -295,7 +361,7 @@ public class SDKClientWorkspaceHandler implements ResourceHandler {
 				final UObject d = client.administer(new UObject(ImmutableMap.of(
 						"command", "getWorkspaceDescription", "params", wsi)));
 				desc = d == null ? null : d.asScalar();
-				narrInfo = Optional.of(getNarrativeInfo(wsinfo.getE1(), wsinfo.getE9()));
+				narrInfo = Optional.of(getNarrativeInfo(wsinfo.getE9()));
 			} else {
 				desc = null;
 				narrInfo = Optional.empty();
@@ -317,11 +383,11 @@ public class SDKClientWorkspaceHandler implements ResourceHandler {
 		final Map<String, Object> ret = new HashMap<>();
 		ret.put("name", wsinfo.getE2());
 		ret.put("narrname", narrInfo.map(n -> n.name).orElse(null));
-		ret.put("narrcreate", narrInfo.map(n -> n.created).orElse(null));
+		ret.put("narrcreate", null);
 		ret.put(PUBLIC, PERM_READ.equals(wsinfo.getE7()));
 		ret.put("moddate", timestampToEpochMS(wsinfo.getE4()));
 		ret.put("description", desc);
-		return new WSInfoOwner(ret, wsinfo.getE3());
+		return new WSInfoOwner(ret, wsinfo.getE3(), narrInfo.map(n -> n.id).orElse(null));
 	}
 
 	private long timestampToEpochMS(final String timestamp) {
@@ -330,32 +396,64 @@ public class SDKClientWorkspaceHandler implements ResourceHandler {
 
 	private static class NarrInfo {
 		private String name;
-		private Long created; // the date of the 1st version of the narrative object
+		private Long id;
 		
-		private NarrInfo(final String name, final Long created) {
+		private NarrInfo(final String name, final Long id) {
 			this.name = name;
-			this.created = created;
+			this.id = id;
 		}
 	}
 	
-	private NarrInfo getNarrativeInfo(final long wsid, final Map<String, String> meta)
-			throws IOException, JsonClientException {
+	private NarrInfo getNarrativeInfo(final Map<String, String> meta) {
 		if ("false".equals(meta.get("is_temporary")) && meta.containsKey("narrative")) {
-			final String name = meta.get("narrative_nice_name");
-			final long narrativeID = Integer.parseInt(meta.get("narrative"));
-			final GetObjectInfo3Results objinfo = client.administer(new UObject(ImmutableMap.of(
-					"command", "getObjectInfo",
-					"params", new GetObjectInfo3Params()
-							.withObjects(Arrays.asList(new ObjectSpecification()
-									.withWsid(wsid).withObjid(narrativeID).withVer((long) 1))))))
-					.asClassInstance(GetObjectInfo3Results.class);
-			final Long saved = timestampToEpochMS(objinfo.getInfos().get(0).getE4());
-			return new NarrInfo(name, saved);
+			return new NarrInfo(meta.get("narrative_nice_name"),
+					(long) Integer.parseInt(meta.get("narrative")));
 		} else {
 			return new NarrInfo(null, null);
 		}
 	}
 	
+	// takes a map of workspace ID -> narrative object ID and returns a map of workspace ID
+	// -> the date of the 1st version of the narrative object. Deleted or missing workspaces are
+	// omitted.
+	private Map<Long, Long> getNarrativeCreationDates(final Map<Long, Long> narratives)
+			throws ResourceHandlerException {
+		final Map<Long, Long> ret = new HashMap<>();
+		for (final List<Long> batch: Iterables.partition(narratives.keySet(), BATCH_SIZE)) {
+			final List<Long> remaining = new LinkedList<>(batch);
+			while (!remaining.isEmpty()) {
+				final GetObjectInfo3Results objinfo;
+				try {
+					objinfo = client.administer(new UObject(ImmutableMap.of(
+							"command", "getObjectInfo",
+							"params", new GetObjectInfo3Params().withObjects(remaining.stream()
+									.map(wsid -> new ObjectSpecification()
+											.withWsid(wsid)
+											.withObjid(narratives.get(wsid))
+											.withVer((long) 1))
+									.collect(Collectors.toList())))))
+							.asClassInstance(GetObjectInfo3Results.class);
+				} catch (ServerException e) {
+					final Integer errorid = getWorkspaceID(e);
+					if (errorid != null) { // deleted or missing
+						removeErrorWorkspace(remaining, errorid);
+						continue;
+					} else {
+						throw getGeneralWSException(e);
+					}
+				} catch (IOException | JsonClientException | IllegalStateException e) {
+					throw getGeneralWSException(e);
+				}
+				for (int i = 0; i < remaining.size(); i++) {
+					ret.put(remaining.get(i),
+							timestampToEpochMS(objinfo.getInfos().get(i).getE4()));
+				}
+				remaining.clear();
+			}
+		}
+		return ret;
+	}
+	
 	@Override
 	public Set<ResourceAdministrativeID> getAdministratedResources(final UserName user)
 			throws ResourceHandlerException {
@@ -13,9 +13,11 @@ import org.bson.Document;
 
 import com.github.zafarkhaja.semver.Version;
 import com.mongodb.MongoClient;
+import com.mongodb.ReadPreference;
 import com.mongodb.client.MongoDatabase;
 
 import us.kbase.common.test.controllers.mongo.MongoController;
+import us.kbase.groups.core.fieldvalidation.CustomField;
 import us.kbase.groups.core.resource.ResourceType;
 import us.kbase.groups.storage.mongo.MongoGroupsStorage;
 
@@ -70,11 +72,17 @@ public class MongoStorageTestManager {
 	}
 	
 	public void reset(Collection<ResourceType> types) throws Exception {
+		reset(types, Collections.emptySet());
+	}
+	
+	public void reset(Collection<ResourceType> types, Collection<CustomField> publicSearchFields)
+			throws Exception {
 		if (storage != null) {
 			// not sure this will fix the occasional test errors due to too many expires
 			// running during the test, but worth a try. Maybe some of the previously
 			// scheduled ones still run.
 			storage.stopExpirationAgent();
+			storage.stopArchivalAgent();
 		}
 		// only drop the data, not the indexes, since creating indexes is slow and will be done
 		// anyway when the new storage instance is created
@@ -82,8 +90,10 @@ public class MongoStorageTestManager {
 		TestCommon.destroyDB(db);
 		clockMock = mock(Clock.class);
 		final Constructor<MongoGroupsStorage> con = MongoGroupsStorage.class.
-				getDeclaredConstructor(MongoDatabase.class, Collection.class, Clock.class);
+				getDeclaredConstructor(MongoDatabase.class, Collection.class, Collection.class,
+						ReadPreference.class, Clock.class);
 		con.setAccessible(true);
-		storage = con.newInstance(db, types, clockMock);
+		storage = con.newInstance(
+				db, types, publicSearchFields, ReadPreference.primary(), clockMock);
 	}
 }
@@ -21,6 +21,7 @@ public class StandaloneGroupsServer {
 
 		final ServletHolder jerseyServlet = context.addServlet(ServletContainer.class, "/*");
 		jerseyServlet.setInitOrder(1);
+		jerseyServlet.setAsyncSupported(true);
 		jerseyServlet.setInitParameter("javax.ws.rs.Application",
 				"us.kbase.groups.service.GroupsService");
 		server.start();
@@ -6,6 +6,7 @@ import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -14,10 +15,12 @@ import java.lang.reflect.Field;
 import java.net.HttpURLConnection;
 import java.net.ServerSocket;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -25,6 +28,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.bson.Document;
@@ -159,6 +165,46 @@ public class TestCommon {
 		return Instant.ofEpochMilli(epochMilli);
 	}
 	
+	/** Check that the newline delimited JSON written by a {@link StreamingOutput} matches
+	 * a list of JSONable structures. Both sides are round tripped through JSON so that
+	 * numeric types compare equal.
+	 */
+	public static void assertJSONLinesCorrect(
+			final StreamingOutput output,
+			final List<?> expected)
+			throws Exception {
+		final ObjectMapper mapper = new ObjectMapper();
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		output.write(out);
+		final String json = new String(out.toByteArray(), StandardCharsets.UTF_8);
+		final List<Object> got = new LinkedList<>();
+		for (final String line: json.split("\n")) {
+			if (!line.isEmpty()) {
+				got.add(mapper.readValue(line, Object.class));
+			}
+		}
+		final List<Object> exp = new LinkedList<>();
+		for (final Object o: expected) {
+			exp.add(mapper.readValue(mapper.writeValueAsString(o), Object.class));
+		}
+		assertThat("incorrect JSON lines", got, is(exp));
+		assertThat("incorrect line ending", json.isEmpty() || json.endsWith("\n"), is(true));
+	}
+	
+	/** Get the list of JSONable maps from the entity of a list response. */
+	@SuppressWarnings("unchecked")
+	public static List<Map<String, Object>> getListEntity(final Response response) {
+		return (List<Map<String, Object>>) response.getEntity();
+	}
+	
+	/** Create a next page token for a list as returned by the service API from the
+	 * token parts.
+	 */
+	public static String toNextToken(final String... parts) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(
+				String.join("\t", parts).getBytes(StandardCharsets.UTF_8));
+	}
+	
 	public static void assertClear(final byte[] bytes) {
 		for (int i = 0; i < bytes.length; i++) {
 			if (bytes[i] != 0) {
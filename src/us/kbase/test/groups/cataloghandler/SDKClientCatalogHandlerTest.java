@@ -5,11 +5,16 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static us.kbase.test.groups.TestCommon.set;
 
 import java.io.IOException;
 import java.net.URL;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -29,6 +34,7 @@ import us.kbase.catalog.ListModuleParams;
 import us.kbase.catalog.ModuleInfo;
 import us.kbase.catalog.ModuleVersionInfo;
 import us.kbase.catalog.SelectOneModuleParams;
+import us.kbase.catalog.VersionCommitInfo;
 import us.kbase.common.service.JsonClientException;
 import us.kbase.common.test.TestException;
 import us.kbase.groups.cataloghandler.SDKClientCatalogHandler;
@@ -45,9 +51,9 @@ import us.kbase.test.groups.MapBuilder;
 import us.kbase.test.groups.TestCommon;
 
 public class SDKClientCatalogHandlerTest {
-
+	
 	private static boolean DEBUG = true;
-
+	
 	private static final ObjectMapper MAPPER = new ObjectMapper();
 	
 	private static final Map<String, String> BAD_NAMES = MapBuilder.<String, String>newHashMap()
@@ -64,9 +70,9 @@ public class SDKClientCatalogHandlerTest {
 	
 	private static class SelectOneModuleParamsMatcher implements
 			ArgumentMatcher<SelectOneModuleParams> {
-
+		
 		private final String moduleName;
-
+		
 		public SelectOneModuleParamsMatcher(final String moduleName) {
 			this.moduleName = moduleName;
 		}
@@ -113,9 +119,11 @@ public class SDKClientCatalogHandlerTest {
 			} catch (IOException e) {
 				throw new TestException(e.getMessage(), e);
 			}
-			final Map<String, Object> expected = ImmutableMap.of(
-					"owners", Arrays.asList(owner),
-					"include_disabled", includeDisabled);
+			final Map<String, Object> expected = owner == null ?
+					ImmutableMap.of("include_disabled", includeDisabled) :
+					ImmutableMap.of(
+							"owners", Arrays.asList(owner),
+							"include_disabled", includeDisabled);
 			if (params.equals(expected)) {
 				return true;
 			} else {
@@ -142,7 +150,7 @@ public class SDKClientCatalogHandlerTest {
 	public void constructFailJsonClientException() throws Exception {
 		failConstruct(new JsonClientException("foo"));
 	}
-
+	
 	private void failConstruct(final Exception e) throws Exception {
 		final CatalogClient c = mock(CatalogClient.class);
 		
@@ -171,7 +179,7 @@ public class SDKClientCatalogHandlerTest {
 	public void isAdministratorFalse() throws Exception {
 		isAdministrator("u3", false, Arrays.asList("x", "mod"), Collections.emptyList());
 	}
-
+	
 	private void isAdministrator(
 			final String name,
 			final boolean expected,
@@ -250,7 +258,7 @@ public class SDKClientCatalogHandlerTest {
 		failIsAdministrator(c, new ResourceID("modname.methname"), new UserName("u1"),
 				new NoSuchResourceException("modname.methname"));
 	}
-
+	
 	private void failIsAdministrator(final Exception e, final Exception expected)
 			throws Exception {
 		final CatalogClient c = mock(CatalogClient.class);
@@ -259,7 +267,7 @@ public class SDKClientCatalogHandlerTest {
 		
 		when(c.getModuleInfo(argThat(new SelectOneModuleParamsMatcher("modname"))))
 				.thenThrow(e);
-
+		
 		failIsAdministrator(c, new ResourceID("modname.mod"), new UserName("foo"), expected);
 	}
 	
@@ -311,7 +319,7 @@ public class SDKClientCatalogHandlerTest {
 		getAdministrators(Arrays.asList("u1", "u2"), set(new UserName("u1"), new UserName("u2")),
 				Arrays.asList("n", "x"), Arrays.asList("m"));
 	}
-
+	
 	private void getAdministrators(
 			final List<String> returned,
 			final Set<UserName> expected,
@@ -396,7 +404,7 @@ public class SDKClientCatalogHandlerTest {
 		getAdministratorsFailBadUser("foo\tbar", new ResourceHandlerException(
 				"Illegal user name returned from catalog: foo\tbar"));
 	}
-
+	
 	private void getAdministratorsFailBadUser(
 			final String badUser,
 			final Exception expected)
@@ -418,7 +426,7 @@ public class SDKClientCatalogHandlerTest {
 		
 		when(c.getModuleInfo(argThat(new SelectOneModuleParamsMatcher("modname2"))))
 				.thenThrow(e);
-
+		
 		failGetAdministrators(c, new ResourceID("modname2.m"), expected);
 	}
 	
@@ -491,7 +499,7 @@ public class SDKClientCatalogHandlerTest {
 		failGetAdministratedResources(new JsonClientException("foo"), new ResourceHandlerException(
 				"Error contacting catalog service at http://whoo.com"));
 	}
-
+	
 	private void failGetAdministratedResources(final Exception thrown, final Exception expected)
 			throws Exception {
 		final CatalogClient c = mock(CatalogClient.class);
@@ -559,7 +567,7 @@ public class SDKClientCatalogHandlerTest {
 							BAD_NAMES.get(n)));
 		}
 	}
-
+	
 	private void failGetDescriptor(final ResourceID r, final Exception expected) {
 		final CatalogClient c = mock(CatalogClient.class);
 		try {
@@ -589,7 +597,7 @@ public class SDKClientCatalogHandlerTest {
 	public void getResourceInformationAdminAndPublicAccess() throws Exception {
 		getResourceInformation(ResourceAccess.ADMINISTRATED_AND_PUBLIC);
 	}
-
+	
 	private void getResourceInformation(final ResourceAccess access) throws Exception {
 		final CatalogClient c = mock(CatalogClient.class);
 		
@@ -666,4 +674,189 @@ public class SDKClientCatalogHandlerTest {
 			TestCommon.assertExceptionCorrect(got, expected);
 		}
 	}
+	
+	private CatalogClient getSnapshotMock() throws Exception {
+		final CatalogClient c = mock(CatalogClient.class);
+		
+		when(c.listBasicModuleInfo(argThat(new ListModuleParamsMatcher(null, 1))))
+				.thenReturn(Arrays.asList(
+						new BasicModuleInfo().withModuleName("m1")
+								.withOwners(Arrays.asList("u1", "u2"))
+								.withRelease(new VersionCommitInfo().withGitCommitHash("h1")),
+						new BasicModuleInfo().withModuleName("m2")
+								.withOwners(Arrays.asList("u2"))
+								.withRelease(new VersionCommitInfo().withGitCommitHash("h2")),
+						// unreleased between the list and module info calls
+						new BasicModuleInfo().withModuleName("m3")
+								.withOwners(Arrays.asList("u2"))
+								.withRelease(new VersionCommitInfo().withGitCommitHash("h3"))));
+		when(c.getModuleInfo(argThat(new SelectOneModuleParamsMatcher("m1"))))
+				.thenReturn(new ModuleInfo().withOwners(Arrays.asList("u1", "u2"))
+						.withRelease(getMVI(Arrays.asList("n1"), Arrays.asList("l1"))));
+		when(c.getModuleInfo(argThat(new SelectOneModuleParamsMatcher("m2"))))
+				.thenReturn(new ModuleInfo().withOwners(Arrays.asList("u2"))
+						.withRelease(getMVI(Arrays.asList("n2"), Collections.emptyList())));
+		when(c.getModuleInfo(argThat(new SelectOneModuleParamsMatcher("m3"))))
+				.thenReturn(new ModuleInfo().withOwners(Arrays.asList("u2")));
+		return c;
+	}
+	
+	@Test
+	public void snapshotLookups() throws Exception {
+		final CatalogClient c = getSnapshotMock();
+		final SDKClientCatalogHandler h = new SDKClientCatalogHandler(c);
+		h.refreshSnapshot();
+		
+		assertThat("incorrect is owner", h.isAdministrator(
+				new ResourceID("m1.n1"), new UserName("u1")), is(true));
+		assertThat("incorrect is owner", h.isAdministrator(
+				new ResourceID("m1.l1"), new UserName("u2")), is(true));
+		assertThat("incorrect is owner", h.isAdministrator(
+				new ResourceID("m2.n2"), new UserName("u1")), is(false));
+		assertThat("incorrect owners", h.getAdministrators(new ResourceID("m2.n2")),
+				is(set(new UserName("u2"))));
+		assertThat("incorrect admin resources", h.getAdministratedResources(new UserName("u2")),
+				is(set(new ResourceAdministrativeID("m1"), new ResourceAdministrativeID("m2"))));
+		assertThat("incorrect admin resources", h.getAdministratedResources(new UserName("u3")),
+				is(set()));
+		assertThat("incorrect infos", h.getResourceInformation(new UserName("u1"),
+				set(new ResourceID("m1.n1"), new ResourceID("m2.n2")),
+				ResourceAccess.ADMINISTRATED),
+				is(ResourceInformationSet.getBuilder(new UserName("u1"))
+						.withResource(new ResourceID("m1.n1"))
+						.build()));
+		
+		// the module info is fetched once per module when taking the snapshot only
+		verify(c).getModuleInfo(argThat(new SelectOneModuleParamsMatcher("m1")));
+		verify(c).getModuleInfo(argThat(new SelectOneModuleParamsMatcher("m2")));
+		verify(c, never()).listBasicModuleInfo(argThat(new ListModuleParamsMatcher("u2", 1)));
+	}
+	
+	@Test
+	public void snapshotMiss() throws Exception {
+		final CatalogClient c = getSnapshotMock();
+		final SDKClientCatalogHandler h = new SDKClientCatalogHandler(c);
+		h.refreshSnapshot();
+		
+		// a method released since the snapshot was taken
+		when(c.getModuleInfo(argThat(new SelectOneModuleParamsMatcher("m2"))))
+				.thenReturn(new ModuleInfo().withOwners(Arrays.asList("u2"))
+						.withRelease(getMVI(Arrays.asList("n2", "n3"),
+								Collections.emptyList())));
+		
+		assertThat("incorrect is owner", h.isAdministrator(
+				new ResourceID("m2.n3"), new UserName("u2")), is(true));
+		verify(c, times(2)).getModuleInfo(argThat(new SelectOneModuleParamsMatcher("m2")));
+		
+		try {
+			h.isAdministrator(new ResourceID("m3.n1"), new UserName("u2"));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NoSuchResourceException("m3.n1"));
+		}
+	}
+	
+	@Test
+	public void snapshotRefresh() throws Exception {
+		final CatalogClient c = getSnapshotMock();
+		final SDKClientCatalogHandler h = new SDKClientCatalogHandler(c);
+		h.refreshSnapshot();
+		
+		// m1 has a new owner, m2 has a new release
+		when(c.listBasicModuleInfo(argThat(new ListModuleParamsMatcher(null, 1))))
+				.thenReturn(Arrays.asList(
+						new BasicModuleInfo().withModuleName("m1")
+								.withOwners(Arrays.asList("u1", "u3"))
+								.withRelease(new VersionCommitInfo().withGitCommitHash("h1")),
+						new BasicModuleInfo().withModuleName("m2")
+								.withOwners(Arrays.asList("u2"))
+								.withRelease(new VersionCommitInfo().withGitCommitHash("h4"))));
+		when(c.getModuleInfo(argThat(new SelectOneModuleParamsMatcher("m2"))))
+				.thenReturn(new ModuleInfo().withOwners(Arrays.asList("u2"))
+						.withRelease(getMVI(Arrays.asList("n4"), Collections.emptyList())));
+		h.refreshSnapshot();
+		
+		assertThat("incorrect owners", h.getAdministrators(new ResourceID("m1.l1")),
+				is(set(new UserName("u1"), new UserName("u3"))));
+		assertThat("incorrect admin resources", h.getAdministratedResources(new UserName("u2")),
+				is(set(new ResourceAdministrativeID("m2"))));
+		assertThat("incorrect is owner", h.isAdministrator(
+				new ResourceID("m2.n4"), new UserName("u2")), is(true));
+		
+		verify(c).getModuleInfo(argThat(new SelectOneModuleParamsMatcher("m1")));
+		verify(c, times(2)).getModuleInfo(argThat(new SelectOneModuleParamsMatcher("m2")));
+	}
+	
+	@Test
+	public void refreshSnapshotFailIOException() throws Exception {
+		failRefreshSnapshot(new IOException("foo"));
+	}
+	
+	@Test
+	public void refreshSnapshotFailJsonClientException() throws Exception {
+		failRefreshSnapshot(new JsonClientException("foo"));
+	}
+	
+	private void failRefreshSnapshot(final Exception e) throws Exception {
+		final CatalogClient c = mock(CatalogClient.class);
+		
+		when(c.getURL()).thenReturn(new URL("http://foo.com"));
+		when(c.listBasicModuleInfo(argThat(new ListModuleParamsMatcher(null, 1))))
+				.thenThrow(e);
+		
+		try {
+			new SDKClientCatalogHandler(c).refreshSnapshot();
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new ResourceHandlerException(
+					"Error contacting catalog service at http://foo.com"));
+		}
+	}
+	
+	@Test
+	public void startSnapshotRefresh() throws Exception {
+		final CatalogClient c = getSnapshotMock();
+		final SDKClientCatalogHandler h = new SDKClientCatalogHandler(c);
+		assertThat("incorrect running", h.isSnapshotRefreshRunning(), is(false));
+		
+		h.startSnapshotRefresh(Duration.ofSeconds(1));
+		assertThat("incorrect running", h.isSnapshotRefreshRunning(), is(true));
+		
+		verify(c, timeout(5000).atLeast(2))
+				.listBasicModuleInfo(argThat(new ListModuleParamsMatcher(null, 1)));
+		h.stopSnapshotRefresh();
+		assertThat("incorrect running", h.isSnapshotRefreshRunning(), is(false));
+		h.stopSnapshotRefresh(); // no effect
+		
+		// the owners are served from the snapshot
+		assertThat("incorrect admin resources", h.getAdministratedResources(new UserName("u1")),
+				is(set(new ResourceAdministrativeID("m1"))));
+		verify(c, never()).listBasicModuleInfo(argThat(new ListModuleParamsMatcher("u1", 1)));
+	}
+	
+	@Test
+	public void startSnapshotRefreshFail() throws Exception {
+		final SDKClientCatalogHandler h = new SDKClientCatalogHandler(getSnapshotMock());
+		
+		failStartSnapshotRefresh(h, null, new NullPointerException("interval"));
+		failStartSnapshotRefresh(h, Duration.ofMillis(999), new IllegalArgumentException(
+				"interval must be at least 1 second"));
+		
+		h.startSnapshotRefresh(Duration.ofHours(1));
+		failStartSnapshotRefresh(h, Duration.ofHours(1), new IllegalArgumentException(
+				"The snapshot is already being refreshed"));
+		h.stopSnapshotRefresh();
+	}
+	
+	private void failStartSnapshotRefresh(
+			final SDKClientCatalogHandler h,
+			final Duration interval,
+			final Exception expected) {
+		try {
+			h.startSnapshotRefresh(interval);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
 }
@@ -24,8 +24,11 @@ import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
 
 import us.kbase.groups.config.GroupsConfig;
+import us.kbase.groups.config.GroupsConfig.GroupCacheMode;
+import us.kbase.groups.config.GroupsConfig.MongoReadPreference;
 import us.kbase.groups.config.GroupsConfigurationException;
 import us.kbase.groups.core.Token;
+import us.kbase.groups.core.UserName;
 import us.kbase.groups.core.fieldvalidation.CustomField;
 import us.kbase.groups.core.fieldvalidation.FieldConfiguration;
 import us.kbase.groups.core.fieldvalidation.FieldValidatorConfiguration;
@@ -89,6 +92,17 @@ public class GroupsConfigTest {
 		assertThat("incorrect mongo db", cfg.getMongoDatabase(), is("database"));
 		assertThat("incorrect mongo user", cfg.getMongoUser(), is(Optional.absent()));
 		assertThat("incorrect mongo pwd", cfg.getMongoPwd(), is(Optional.absent()));
+		assertThat("incorrect mongo replica set", cfg.getMongoReplicaSet(),
+				is(Optional.absent()));
+		assertThat("incorrect mongo read pref", cfg.getMongoListReadPreference(),
+				is(MongoReadPreference.PRIMARY));
+		assertThat("incorrect mongo pool min", cfg.getMongoPoolMinSize(), is(0));
+		assertThat("incorrect mongo pool max", cfg.getMongoPoolMaxSize(), is(100));
+		assertThat("incorrect mongo wait timeout", cfg.getMongoWaitQueueTimeoutMS(),
+				is(120000));
+		assertThat("incorrect mongo connect timeout", cfg.getMongoConnectTimeoutMS(),
+				is(10000));
+		assertThat("incorrect mongo socket timeout", cfg.getMongoSocketTimeoutMS(), is(0));
 		assertThat("incorrect auth url", cfg.getAuthURL(), is(new URL("http://auth.com")));
 		assertThat("incorrect catalog url", cfg.getCatalogURL(), is(new URL("http://cat.com")));
 		assertThat("incorrect ws url", cfg.getWorkspaceURL(), is(new URL("http://ws.com")));
@@ -99,6 +113,26 @@ public class GroupsConfigTest {
 		assertThat("incorrect allow insecure", cfg.isAllowInsecureURLs(), is(false));
 		assertThat("incorrect ignore ip headers", cfg.isIgnoreIPHeaders(), is(false));
 		assertThat("incorrect fields", cfg.getFieldConfigurations(), is(set()));
+		assertThat("incorrect catalog refresh", cfg.getCatalogSnapshotRefreshSec(), is(300));
+		assertThat("incorrect api threads", cfg.getAPIThreads(), is(200));
+		assertThat("incorrect handler threads", cfg.getResourceHandlerThreads(), is(20));
+		assertThat("incorrect handler timeout", cfg.getResourceHandlerTimeoutSec(), is(60));
+		assertThat("incorrect admin cache size", cfg.getResourceAdminCacheSize(), is(1000));
+		assertThat("incorrect admin cache ttl", cfg.getResourceAdminCacheTTLSec(), is(30));
+		assertThat("incorrect token cache size", cfg.getTokenCacheSize(), is(10000));
+		assertThat("incorrect token cache ttl", cfg.getTokenCacheTTLSec(), is(300));
+		assertThat("incorrect token cache invalid ttl", cfg.getTokenCacheInvalidTTLSec(),
+				is(10));
+		assertThat("incorrect group cache mode", cfg.getGroupCacheMode(),
+				is(GroupCacheMode.NONE));
+		assertThat("incorrect group cache size", cfg.getGroupCacheSize(), is(10000));
+		assertThat("incorrect group cache ttl", cfg.getGroupCacheTTLSec(), is(10));
+		assertThat("incorrect max list limit", cfg.getMaxListLimit(), is(1000));
+		assertThat("incorrect archive days", cfg.getRequestArchiveDays(), is(0));
+		assertThat("incorrect target refresh", cfg.getRequestTargetRefreshSec(), is(0));
+		assertThat("incorrect visit flush", cfg.getVisitBufferFlushSec(), is(0));
+		assertThat("incorrect visit buffer size", cfg.getVisitBufferSize(), is(10000));
+		assertThat("incorrect admins", cfg.getAdminUsers(), is(set()));
 		assertThat("incorrect user fields", cfg.getUserFieldConfigurations(), is(set()));
 		testLogger(cfg.getLogger(), false);
 	}
@@ -241,11 +275,36 @@ public class GroupsConfigTest {
 					 "mongo-db=database\n" +
 					 "mongo-user=userfoo\n" +
 					 "mongo-pwd=somepwd\n" +
+					 "mongo-replica-set=  rs0  \n" +
+					 "mongo-list-read-preference=  secondaryPreferred  \n" +
+					 "mongo-pool-min-size=5\n" +
+					 "mongo-pool-max-size=5\n" +
+					 "mongo-wait-queue-timeout-ms=0\n" +
+					 "mongo-connect-timeout-ms=3000\n" +
+					 "mongo-socket-timeout-ms=60000\n" +
 					 "notifier-factory=     factoryclass   \n" + 
 					 "auth-url=https://auth.com\n" +
 					 "catalog-url=     http://cat.com       \n" +
 					 "workspace-url=https://ws.com\n" +
 					 "workspace-admin-token=wstoken      \n" +
+					 "catalog-snapshot-refresh-sec=   0   \n" +
+					 "api-threads=   50   \n" +
+					 "resource-handler-threads=   5   \n" +
+					 "resource-handler-timeout-sec=   30   \n" +
+					 "resource-admin-cache-size=100\n" +
+					 "resource-admin-cache-ttl-sec=0\n" +
+					 "token-cache-size=50\n" +
+					 "token-cache-ttl-sec=60\n" +
+					 "token-cache-invalid-ttl-sec=2\n" +
+					 "group-cache-mode=  single-node  \n" +
+					 "group-cache-size=200\n" +
+					 "group-cache-ttl-sec=20\n" +
+					 "max-list-limit=5000\n" +
+					 "request-archive-days=  90  \n" +
+					 "request-target-refresh-sec=  600  \n" +
+					 "visit-buffer-flush-sec=  60  \n" +
+					 "visit-buffer-size=500\n" +
+					 "admin-users=   admin1  , , admin2,\n" +
 					 "allow-insecure-urls=true\n" +
 					 "dont-trust-x-ip-headers=true\n")
 					.getBytes()));
@@ -259,6 +318,17 @@ public class GroupsConfigTest {
 		assertThat("incorrect mongo user", cfg.getMongoUser(), is(Optional.of("userfoo")));
 		assertThat("incorrect mongo pwd", cfg.getMongoPwd().get(),
 				equalTo("somepwd".toCharArray()));
+		assertThat("incorrect mongo replica set", cfg.getMongoReplicaSet(),
+				is(Optional.of("rs0")));
+		assertThat("incorrect mongo read pref", cfg.getMongoListReadPreference(),
+				is(MongoReadPreference.SECONDARY_PREFERRED));
+		assertThat("incorrect mongo pool min", cfg.getMongoPoolMinSize(), is(5));
+		assertThat("incorrect mongo pool max", cfg.getMongoPoolMaxSize(), is(5));
+		assertThat("incorrect mongo wait timeout", cfg.getMongoWaitQueueTimeoutMS(), is(0));
+		assertThat("incorrect mongo connect timeout", cfg.getMongoConnectTimeoutMS(),
+				is(3000));
+		assertThat("incorrect mongo socket timeout", cfg.getMongoSocketTimeoutMS(),
+				is(60000));
 		assertThat("incorrect auth url", cfg.getAuthURL(), is(new URL("https://auth.com")));
 		assertThat("incorrect catalog url", cfg.getCatalogURL(), is(new URL("http://cat.com")));
 		assertThat("incorrect ws url", cfg.getWorkspaceURL(), is(new URL("https://ws.com")));
@@ -269,6 +339,27 @@ public class GroupsConfigTest {
 		assertThat("incorrect allow insecure", cfg.isAllowInsecureURLs(), is(true));
 		assertThat("incorrect ignore ip headers", cfg.isIgnoreIPHeaders(), is(true));
 		assertThat("incorrect fields", cfg.getFieldConfigurations(), is(set()));
+		assertThat("incorrect catalog refresh", cfg.getCatalogSnapshotRefreshSec(), is(0));
+		assertThat("incorrect api threads", cfg.getAPIThreads(), is(50));
+		assertThat("incorrect handler threads", cfg.getResourceHandlerThreads(), is(5));
+		assertThat("incorrect handler timeout", cfg.getResourceHandlerTimeoutSec(), is(30));
+		assertThat("incorrect admin cache size", cfg.getResourceAdminCacheSize(), is(100));
+		assertThat("incorrect admin cache ttl", cfg.getResourceAdminCacheTTLSec(), is(0));
+		assertThat("incorrect token cache size", cfg.getTokenCacheSize(), is(50));
+		assertThat("incorrect token cache ttl", cfg.getTokenCacheTTLSec(), is(60));
+		assertThat("incorrect token cache invalid ttl", cfg.getTokenCacheInvalidTTLSec(),
+				is(2));
+		assertThat("incorrect group cache mode", cfg.getGroupCacheMode(),
+				is(GroupCacheMode.SINGLE_NODE));
+		assertThat("incorrect group cache size", cfg.getGroupCacheSize(), is(200));
+		assertThat("incorrect group cache ttl", cfg.getGroupCacheTTLSec(), is(20));
+		assertThat("incorrect max list limit", cfg.getMaxListLimit(), is(5000));
+		assertThat("incorrect archive days", cfg.getRequestArchiveDays(), is(90));
+		assertThat("incorrect target refresh", cfg.getRequestTargetRefreshSec(), is(600));
+		assertThat("incorrect visit flush", cfg.getVisitBufferFlushSec(), is(60));
+		assertThat("incorrect visit buffer size", cfg.getVisitBufferSize(), is(500));
+		assertThat("incorrect admins", cfg.getAdminUsers(), is(set(
+				new UserName("admin1"), new UserName("admin2"))));
 		assertThat("incorrect user fields", cfg.getUserFieldConfigurations(), is(set()));
 		testLogger(cfg.getLogger(), false);
 	}
@@ -349,6 +440,10 @@ public class GroupsConfigTest {
 		logger.setCallInfo("GET", "foo", "0.0.0.0");
 		
 		assertThat("incorrect ID", logger.getCallID(), is(nullLogger ? (String) null : "foo"));
+		assertThat("incorrect method", logger.getCallMethod(),
+				is(nullLogger ? (String) null : "GET"));
+		assertThat("incorrect IP", logger.getCallIPAddress(),
+				is(nullLogger ? (String) null : "0.0.0.0"));
 	}
 	
 	@Test
@@ -563,6 +658,163 @@ public class GroupsConfigTest {
 						"in section groups of config file some file is not a valid URL"));
 	}
 	
+	@Test
+	public void configFailBadMongoSettings() throws Throwable {
+		failConfigBadPositiveInt("mongo-pool-max-size", "0");
+		failConfigBadNonNegativeInt("mongo-pool-min-size", "-1");
+		failConfigBadNonNegativeInt("mongo-wait-queue-timeout-ms", "foo");
+		failConfigBadNonNegativeInt("mongo-connect-timeout-ms", "-1");
+		failConfigBadNonNegativeInt("mongo-socket-timeout-ms", "1.5");
+		
+		failConfigBoth(
+				"[groups]\n" +
+				"mongo-host=foo\n" +
+				"mongo-db=bar\n" +
+				"notifier-factory=     factoryclass   \n" + 
+				"auth-url=https://auth.com\n" +
+				"catalog-url=     http://cat.com       \n" +
+				"workspace-admin-token=wstoken      \n" +
+				"workspace-url=https://ws.com\n" +
+				"mongo-list-read-preference=secondarypreferred\n",
+				new GroupsConfigurationException(
+						"Value secondarypreferred of parameter mongo-list-read-preference in " +
+						"section groups of config file some file is not one of primary, " +
+						"primaryPreferred, secondary, secondaryPreferred, nearest"));
+		
+		failConfigBoth(
+				"[groups]\n" +
+				"mongo-host=foo\n" +
+				"mongo-db=bar\n" +
+				"notifier-factory=     factoryclass   \n" + 
+				"auth-url=https://auth.com\n" +
+				"catalog-url=     http://cat.com       \n" +
+				"workspace-admin-token=wstoken      \n" +
+				"workspace-url=https://ws.com\n" +
+				"mongo-pool-min-size=11\n" +
+				"mongo-pool-max-size=10\n",
+				new GroupsConfigurationException(
+						"Parameter mongo-pool-min-size must be less than or equal to parameter " +
+						"mongo-pool-max-size in section groups of config file some file"));
+	}
+	
+	@Test
+	public void configFailBadCatalogSnapshotRefresh() throws Throwable {
+		failConfigBadNonNegativeInt("catalog-snapshot-refresh-sec", "-1");
+		failConfigBadNonNegativeInt("catalog-snapshot-refresh-sec", "often");
+	}
+	
+	@Test
+	public void configFailBadAPIThreads() throws Throwable {
+		failConfigBadPositiveInt("api-threads", "0");
+		failConfigBadPositiveInt("api-threads", "many");
+	}
+	
+	@Test
+	public void configFailBadResourceHandlerThreads() throws Throwable {
+		failConfigBadPositiveInt("resource-handler-threads", "foo");
+		failConfigBadPositiveInt("resource-handler-threads", "0");
+		failConfigBadPositiveInt("resource-handler-threads", "-1");
+	}
+	
+	@Test
+	public void configFailBadResourceHandlerTimeout() throws Throwable {
+		failConfigBadPositiveInt("resource-handler-timeout-sec", "1.5");
+		failConfigBadPositiveInt("resource-handler-timeout-sec", "0");
+	}
+	
+	@Test
+	public void configFailBadResourceAdminCache() throws Throwable {
+		failConfigBadPositiveInt("resource-admin-cache-size", "0");
+		failConfigBadNonNegativeInt("resource-admin-cache-ttl-sec", "-1");
+		failConfigBadNonNegativeInt("resource-admin-cache-ttl-sec", "ten");
+	}
+	
+	@Test
+	public void configFailBadTokenCache() throws Throwable {
+		failConfigBadPositiveInt("token-cache-size", "0");
+		failConfigBadPositiveInt("token-cache-ttl-sec", "-10");
+		failConfigBadPositiveInt("token-cache-invalid-ttl-sec", "ten");
+	}
+	
+	@Test
+	public void configFailBadGroupCache() throws Throwable {
+		failConfigBadPositiveInt("group-cache-size", "-1");
+		failConfigBadPositiveInt("group-cache-ttl-sec", "0");
+		failConfigBadPositiveInt("max-list-limit", "0");
+		failConfigBadNonNegativeInt("request-archive-days", "-1");
+		failConfigBadNonNegativeInt("request-archive-days", "thirty");
+		failConfigBadNonNegativeInt("request-target-refresh-sec", "-1");
+		failConfigBadNonNegativeInt("request-target-refresh-sec", "often");
+		failConfigBadNonNegativeInt("visit-buffer-flush-sec", "-1");
+		failConfigBadPositiveInt("visit-buffer-size", "0");
+		
+		failConfigBoth(
+				"[groups]\n" +
+				"mongo-host=foo\n" +
+				"mongo-db=bar\n" +
+				"notifier-factory=     factoryclass   \n" + 
+				"auth-url=https://auth.com\n" +
+				"catalog-url=     http://cat.com       \n" +
+				"workspace-admin-token=wstoken      \n" +
+				"workspace-url=https://ws.com\n" +
+				"group-cache-mode=forever\n",
+				new GroupsConfigurationException(
+						"Value forever of parameter group-cache-mode in section groups of " +
+						"config file some file is not one of none, ttl, single-node"));
+	}
+	
+	@Test
+	public void configFailBadAdminUsers() throws Throwable {
+		failConfigBoth(
+				"[groups]\n" +
+				"mongo-host=foo\n" +
+				"mongo-db=bar\n" +
+				"notifier-factory=     factoryclass   \n" + 
+				"auth-url=https://auth.com\n" +
+				"catalog-url=     http://cat.com       \n" +
+				"workspace-admin-token=wstoken      \n" +
+				"workspace-url=https://ws.com\n" +
+				"admin-users=admin1, ad*min2\n",
+				new GroupsConfigurationException(
+						"Illegal user name ad*min2 in parameter admin-users in section groups " +
+						"of config file some file: 30010 Illegal user name: " +
+						"Illegal character in user name ad*min2: *"));
+	}
+	
+	private void failConfigBadPositiveInt(final String key, final String value)
+			throws Throwable {
+		failConfigBoth(
+				"[groups]\n" +
+				"mongo-host=foo\n" +
+				"mongo-db=bar\n" +
+				"notifier-factory=     factoryclass   \n" + 
+				"auth-url=https://auth.com\n" +
+				"catalog-url=     http://cat.com       \n" +
+				"workspace-admin-token=wstoken      \n" +
+				"workspace-url=https://ws.com\n" +
+				key + "=" + value + "\n",
+				new GroupsConfigurationException(String.format(
+						"Value %s of parameter %s in section groups of config file some file " +
+						"is not an integer greater than 0", value, key)));
+	}
+	
+	private void failConfigBadNonNegativeInt(final String key, final String value)
+			throws Throwable {
+		failConfigBoth(
+				"[groups]\n" +
+				"mongo-host=foo\n" +
+				"mongo-db=bar\n" +
+				"notifier-factory=     factoryclass   \n" + 
+				"auth-url=https://auth.com\n" +
+				"catalog-url=     http://cat.com       \n" +
+				"workspace-admin-token=wstoken      \n" +
+				"workspace-url=https://ws.com\n" +
+				key + "=" + value + "\n",
+				new GroupsConfigurationException(String.format(
+						"Value %s of parameter %s in section groups of config file some file " +
+						"is not an integer greater than or equal to 0", value, key)));
+	}
+	
 	@Test
 	public void configFailNoCatalog() throws Throwable {
 		failConfigBoth(
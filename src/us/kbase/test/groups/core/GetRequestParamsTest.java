@@ -5,12 +5,14 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static us.kbase.test.groups.TestCommon.inst;
 
+import java.time.Instant;
 import java.util.Optional;
 
 import org.junit.Test;
 
 import nl.jqno.equalsverifier.EqualsVerifier;
 import us.kbase.groups.core.GetRequestsParams;
+import us.kbase.groups.core.request.RequestID;
 import us.kbase.groups.core.resource.ResourceID;
 import us.kbase.groups.core.resource.ResourceType;
 import us.kbase.test.groups.TestCommon;
@@ -27,10 +29,12 @@ public class GetRequestParamsTest {
 		final GetRequestsParams p = GetRequestsParams.getBuilder().build();
 		
 		assertThat("incorrect exclude", p.getExcludeUpTo(), is(Optional.empty()));
+		assertThat("incorrect exclude id", p.getExcludeUpToID(), is(Optional.empty()));
 		assertThat("incorrect closed", p.isIncludeClosed(), is(false));
 		assertThat("incorrect sort", p.isSortAscending(), is(true));
 		assertThat("incorrect type", p.getResourceType(), is(Optional.empty()));
 		assertThat("incorrect type", p.getResourceID(), is(Optional.empty()));
+		assertThat("incorrect limit", p.getLimit(), is(Optional.empty()));
 	}
 	
 	@Test
@@ -39,13 +43,16 @@ public class GetRequestParamsTest {
 				.withNullableExcludeUpTo(null)
 				.withNullableIncludeClosed(null)
 				.withNullableSortAscending(null)
+				.withNullableLimit(null)
 				.build();
 		
 		assertThat("incorrect exclude", p.getExcludeUpTo(), is(Optional.empty()));
+		assertThat("incorrect exclude id", p.getExcludeUpToID(), is(Optional.empty()));
 		assertThat("incorrect closed", p.isIncludeClosed(), is(false));
 		assertThat("incorrect sort", p.isSortAscending(), is(true));
 		assertThat("incorrect type", p.getResourceType(), is(Optional.empty()));
 		assertThat("incorrect type", p.getResourceID(), is(Optional.empty()));
+		assertThat("incorrect limit", p.getLimit(), is(Optional.empty()));
 	}
 	
 	@Test
@@ -57,10 +64,12 @@ public class GetRequestParamsTest {
 				.build();
 		
 		assertThat("incorrect exclude", p.getExcludeUpTo(), is(Optional.empty()));
+		assertThat("incorrect exclude id", p.getExcludeUpToID(), is(Optional.empty()));
 		assertThat("incorrect closed", p.isIncludeClosed(), is(false));
 		assertThat("incorrect sort", p.isSortAscending(), is(true));
 		assertThat("incorrect type", p.getResourceType(), is(Optional.empty()));
 		assertThat("incorrect type", p.getResourceID(), is(Optional.empty()));
+		assertThat("incorrect limit", p.getLimit(), is(Optional.empty()));
 	}
 	
 	@Test
@@ -70,13 +79,65 @@ public class GetRequestParamsTest {
 				.withNullableIncludeClosed(true)
 				.withNullableSortAscending(false)
 				.withResource(new ResourceType("t"), new ResourceID("id"))
+				.withNullableLimit(50)
 				.build();
 		
 		assertThat("incorrect exclude", p.getExcludeUpTo(), is(Optional.of(inst(10000))));
+		assertThat("incorrect exclude id", p.getExcludeUpToID(), is(Optional.empty()));
 		assertThat("incorrect closed", p.isIncludeClosed(), is(true));
 		assertThat("incorrect sort", p.isSortAscending(), is(false));
 		assertThat("incorrect type", p.getResourceType(), is(Optional.of(new ResourceType("t"))));
 		assertThat("incorrect type", p.getResourceID(), is(Optional.of(new ResourceID("id"))));
+		assertThat("incorrect limit", p.getLimit(), is(Optional.of(50)));
+	}
+	
+	@Test
+	public void buildWithExcludeUpToID() throws Exception {
+		final GetRequestsParams p = GetRequestsParams.getBuilder()
+				.withExcludeUpTo(inst(10000), new RequestID("1a2b3c4d-5e6f-7a8b-9c0d-1e2f3a4b5c6d"))
+				.build();
+		
+		assertThat("incorrect exclude", p.getExcludeUpTo(), is(Optional.of(inst(10000))));
+		assertThat("incorrect exclude id", p.getExcludeUpToID(),
+				is(Optional.of(new RequestID("1a2b3c4d-5e6f-7a8b-9c0d-1e2f3a4b5c6d"))));
+	}
+	
+	@Test
+	public void buildRemoveExcludeUpToID() throws Exception {
+		final GetRequestsParams p = GetRequestsParams.getBuilder()
+				.withExcludeUpTo(inst(10000), new RequestID("1a2b3c4d-5e6f-7a8b-9c0d-1e2f3a4b5c6d"))
+				.withNullableExcludeUpTo(inst(20000))
+				.build();
+		
+		assertThat("incorrect exclude", p.getExcludeUpTo(), is(Optional.of(inst(20000))));
+		assertThat("incorrect exclude id", p.getExcludeUpToID(), is(Optional.empty()));
+		
+		final GetRequestsParams p2 = GetRequestsParams.getBuilder()
+				.withExcludeUpTo(inst(10000), new RequestID("1a2b3c4d-5e6f-7a8b-9c0d-1e2f3a4b5c6d"))
+				.withNullableExcludeUpTo(null)
+				.build();
+		
+		assertThat("incorrect exclude", p2.getExcludeUpTo(), is(Optional.empty()));
+		assertThat("incorrect exclude id", p2.getExcludeUpToID(), is(Optional.empty()));
+	}
+	
+	@Test
+	public void withExcludeUpToFailNulls() throws Exception {
+		withExcludeUpToFail(null, new RequestID("1a2b3c4d-5e6f-7a8b-9c0d-1e2f3a4b5c6d"),
+				new NullPointerException("excludeUpTo"));
+		withExcludeUpToFail(inst(1), null, new NullPointerException("excludeUpToID"));
+	}
+	
+	private void withExcludeUpToFail(
+			final Instant excludeUpTo,
+			final RequestID id,
+			final Exception expected) {
+		try {
+			GetRequestsParams.getBuilder().withExcludeUpTo(excludeUpTo, id);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
 	}
 	
 	@Test
@@ -97,4 +158,29 @@ public class GetRequestParamsTest {
 		}
 	}
 	
+	@Test
+	public void buildRemoveLimit() throws Exception {
+		final GetRequestsParams p = GetRequestsParams.getBuilder()
+				.withNullableLimit(1)
+				.withNullableLimit(null)
+				.build();
+		
+		assertThat("incorrect limit", p.getLimit(), is(Optional.empty()));
+	}
+	
+	@Test
+	public void withNullableLimitFail() throws Exception {
+		withNullableLimitFail(0);
+		withNullableLimitFail(-1);
+	}
+	
+	private void withNullableLimitFail(final int limit) {
+		try {
+			GetRequestsParams.getBuilder().withNullableLimit(limit);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got,
+					new IllegalArgumentException("limit must be > 0"));
+		}
+	}
 }
@@ -0,0 +1,225 @@
+package us.kbase.test.groups.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static us.kbase.test.groups.TestCommon.inst;
+
+import java.util.Collections;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import nl.jqno.equalsverifier.EqualsVerifier;
+import us.kbase.groups.core.CreateAndModTimes;
+import us.kbase.groups.core.Group.Role;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupSummary;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
+import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.test.groups.TestCommon;
+
+public class GroupSummaryTest {
+
+	@Test
+	public void equals() {
+		EqualsVerifier.forClass(GroupSummary.class).usingGetClass().verify();
+	}
+
+	@Test
+	public void buildMinimal() throws Exception {
+		final GroupSummary s = GroupSummary.getBuilder(
+				new GroupID("id"), new GroupName("name"), new UserName("own"),
+				new CreateAndModTimes(inst(10000), inst(20000)))
+				.build();
+
+		assertThat("incorrect id", s.getGroupID(), is(new GroupID("id")));
+		assertThat("incorrect name", s.getGroupName(), is(new GroupName("name")));
+		assertThat("incorrect owner", s.getOwner(), is(new UserName("own")));
+		assertThat("incorrect private", s.isPrivate(), is(false));
+		assertThat("incorrect create", s.getCreationDate(), is(inst(10000)));
+		assertThat("incorrect mod", s.getModificationDate(), is(inst(20000)));
+		assertThat("incorrect fields", s.getCustomFields(), is(Collections.emptyMap()));
+		assertThat("incorrect members", s.getMemberCount(), is(1));
+		assertThat("incorrect resources", s.getResourceCounts(), is(Collections.emptyMap()));
+		assertThat("incorrect role", s.getRole(), is(Role.NONE));
+		assertThat("incorrect visit", s.getLastVisit(), is(Optional.empty()));
+	}
+
+	@Test
+	public void buildMaximal() throws Exception {
+		final GroupSummary s = GroupSummary.getBuilder(
+				new GroupID("id"), new GroupName("name"), new UserName("own"),
+				new CreateAndModTimes(inst(10000), inst(20000)))
+				.withIsPrivate(true)
+				.withCustomField(new NumberedCustomField("f-1"), "v1")
+				.withCustomField(new NumberedCustomField("g"), "v2")
+				.withMemberCount(42)
+				.withResourceCount(new ResourceType("ws"), 3)
+				.withResourceCount(new ResourceType("cat"), 1)
+				.withResourceCount(new ResourceType("empty"), 0)
+				.withRole(Role.ADMIN)
+				.withNullableLastVisit(inst(30000))
+				.build();
+
+		assertThat("incorrect id", s.getGroupID(), is(new GroupID("id")));
+		assertThat("incorrect name", s.getGroupName(), is(new GroupName("name")));
+		assertThat("incorrect owner", s.getOwner(), is(new UserName("own")));
+		assertThat("incorrect private", s.isPrivate(), is(true));
+		assertThat("incorrect create", s.getCreationDate(), is(inst(10000)));
+		assertThat("incorrect mod", s.getModificationDate(), is(inst(20000)));
+		assertThat("incorrect fields", s.getCustomFields(), is(ImmutableMap.of(
+				new NumberedCustomField("f-1"), "v1", new NumberedCustomField("g"), "v2")));
+		assertThat("incorrect members", s.getMemberCount(), is(42));
+		assertThat("incorrect resources", s.getResourceCounts(), is(ImmutableMap.of(
+				new ResourceType("ws"), 3, new ResourceType("cat"), 1)));
+		assertThat("incorrect role", s.getRole(), is(Role.ADMIN));
+		assertThat("incorrect visit", s.getLastVisit(), is(Optional.of(inst(30000))));
+	}
+
+	@Test
+	public void buildRemoveLastVisit() throws Exception {
+		final GroupSummary s = GroupSummary.getBuilder(
+				new GroupID("id"), new GroupName("name"), new UserName("own"),
+				new CreateAndModTimes(inst(10000)))
+				.withRole(Role.MEMBER)
+				.withNullableLastVisit(inst(30000))
+				.withNullableLastVisit(null)
+				.build();
+
+		assertThat("incorrect visit", s.getLastVisit(), is(Optional.empty()));
+	}
+
+	@Test
+	public void buildNonMemberDiscardsLastVisit() throws Exception {
+		final GroupSummary s = GroupSummary.getBuilder(
+				new GroupID("id"), new GroupName("name"), new UserName("own"),
+				new CreateAndModTimes(inst(10000)))
+				.withNullableLastVisit(inst(30000))
+				.build();
+
+		assertThat("incorrect role", s.getRole(), is(Role.NONE));
+		assertThat("incorrect visit", s.getLastVisit(), is(Optional.empty()));
+	}
+
+	@Test
+	public void immutable() throws Exception {
+		final GroupSummary s = GroupSummary.getBuilder(
+				new GroupID("id"), new GroupName("name"), new UserName("own"),
+				new CreateAndModTimes(inst(10000)))
+				.withCustomField(new NumberedCustomField("f"), "v")
+				.withResourceCount(new ResourceType("ws"), 1)
+				.build();
+
+		try {
+			s.getCustomFields().put(new NumberedCustomField("g"), "v");
+			fail("expected exception");
+		} catch (UnsupportedOperationException e) {
+			// test passed
+		}
+		try {
+			s.getResourceCounts().put(new ResourceType("cat"), 1);
+			fail("expected exception");
+		} catch (UnsupportedOperationException e) {
+			// test passed
+		}
+	}
+
+	@Test
+	public void getBuilderFail() throws Exception {
+		final GroupID i = new GroupID("i");
+		final GroupName n = new GroupName("n");
+		final UserName o = new UserName("o");
+		final CreateAndModTimes t = new CreateAndModTimes(inst(10000));
+
+		failGetBuilder(null, n, o, t, new NullPointerException("groupID"));
+		failGetBuilder(i, null, o, t, new NullPointerException("groupName"));
+		failGetBuilder(i, n, null, t, new NullPointerException("owner"));
+		failGetBuilder(i, n, o, null, new NullPointerException("times"));
+	}
+
+	private void failGetBuilder(
+			final GroupID id,
+			final GroupName name,
+			final UserName owner,
+			final CreateAndModTimes times,
+			final Exception expected) {
+		try {
+			GroupSummary.getBuilder(id, name, owner, times);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	@Test
+	public void withCustomFieldFail() throws Exception {
+		final NumberedCustomField f = new NumberedCustomField("f");
+
+		failWithCustomField(null, "v", new NullPointerException("field"));
+		failWithCustomField(f, null, new NullPointerException("value"));
+	}
+
+	private void failWithCustomField(
+			final NumberedCustomField field,
+			final String value,
+			final Exception expected)
+			throws Exception {
+		try {
+			getBuilder().withCustomField(field, value);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	@Test
+	public void withMemberCountFail() throws Exception {
+		try {
+			getBuilder().withMemberCount(0);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got,
+					new IllegalArgumentException("memberCount must be > 0"));
+		}
+	}
+
+	@Test
+	public void withResourceCountFail() throws Exception {
+		failWithResourceCount(null, 1, new NullPointerException("type"));
+		failWithResourceCount(new ResourceType("t"), -1,
+				new IllegalArgumentException("count must be >= 0"));
+	}
+
+	private void failWithResourceCount(
+			final ResourceType type,
+			final int count,
+			final Exception expected)
+			throws Exception {
+		try {
+			getBuilder().withResourceCount(type, count);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	@Test
+	public void withRoleFail() throws Exception {
+		try {
+			getBuilder().withRole(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("role"));
+		}
+	}
+
+	private GroupSummary.Builder getBuilder() throws Exception {
+		return GroupSummary.getBuilder(new GroupID("i"), new GroupName("n"), new UserName("o"),
+				new CreateAndModTimes(inst(10000)));
+	}
+}
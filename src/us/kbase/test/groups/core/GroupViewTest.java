@@ -24,6 +24,7 @@ import us.kbase.groups.core.Group;
 import us.kbase.groups.core.Group.Builder;
 import us.kbase.groups.core.GroupID;
 import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupSummary;
 import us.kbase.groups.core.GroupUser;
 import us.kbase.groups.core.GroupView;
 import us.kbase.groups.core.GroupView.GroupUserView;
@@ -280,6 +281,122 @@ public class GroupViewTest {
 		assertImmutable(gv.getResourceCounts(), new ResourceType("t"), 7);
 	}
 
+	private GroupSummary.Builder getSummaryBuilder() throws Exception {
+		// matches GROUP
+		return GroupSummary.getBuilder(new GroupID("id"), new GroupName("name"),
+				new UserName("user"), new CreateAndModTimes(inst(10000), inst(20000)))
+				.withMemberCount(5)
+				.withResourceCount(new ResourceType("workspace"), 3)
+				.withResourceCount(new ResourceType("catalogmethod"), 2)
+				.withCustomField(new NumberedCustomField("field"), "val")
+				.withCustomField(new NumberedCustomField("field2"), "val2");
+	}
+	
+	@Test
+	public void summaryMinimalView() throws Exception {
+		final GroupView gv = GroupView.getMinimalBuilder(getSummaryBuilder().build()).build();
+		
+		assertThat("incorrect view", gv, is(GroupView.getBuilder(GROUP, null).build()));
+		assertThat("incorrect member count", gv.getMemberCount(), is(Optional.of(5)));
+		assertThat("incorrect rescount", gv.getResourceCounts(), is(ImmutableMap.of(
+				new ResourceType("workspace"), 3, new ResourceType("catalogmethod"), 2)));
+		
+		getMemberFail(gv, new UserName("user"));
+		
+		assertImmutable(gv.getAdministrators(), new UserName("u"));
+		assertImmutable(gv.getMembers(), new UserName("u"));
+		assertImmutable(gv.getCustomFields(), new NumberedCustomField("foo"), "bar");
+		assertImmutable(gv.getResourceTypes(), new ResourceType("t"));
+		assertImmutable(gv.getResourceCounts(), new ResourceType("t"), 7);
+	}
+	
+	@Test
+	public void summaryMinimalMemberView() throws Exception {
+		final GroupView gv = GroupView.getMinimalBuilder(getSummaryBuilder()
+				.withRole(Group.Role.MEMBER)
+				.withNullableLastVisit(inst(62000))
+				.build())
+				.build();
+		
+		assertThat("incorrect view", gv, is(GroupView.getBuilder(GROUP, new UserName("m1"))
+				.build()));
+		assertThat("incorrect visit", gv.getLastVisit(), is(op(inst(62000))));
+		assertThat("incorrect role", gv.getRole(), is(Group.Role.MEMBER));
+	}
+	
+	@Test
+	public void summaryPrivateMinimalView() throws Exception {
+		final GroupView gv = GroupView.getMinimalBuilder(getSummaryBuilder()
+				.withIsPrivate(true)
+				.build())
+				.build();
+		
+		assertThat("incorrect view", gv, is(GroupView.getBuilder(PRIVGROUP, null).build()));
+		assertThat("incorrect privview", gv.isPrivateView(), is(true));
+		assertThat("incorrect name", gv.getGroupName(), is(mt()));
+		assertThat("incorrect member count", gv.getMemberCount(), is(Optional.empty()));
+		assertThat("incorrect rescount", gv.getResourceCounts(), is(Collections.emptyMap()));
+	}
+	
+	@Test
+	public void summaryPrivateMinimalMemberView() throws Exception {
+		final GroupView gv = GroupView.getMinimalBuilder(getSummaryBuilder()
+				.withIsPrivate(true)
+				.withRole(Group.Role.ADMIN)
+				.withNullableLastVisit(inst(35000))
+				.build())
+				.build();
+		
+		assertThat("incorrect view", gv, is(GroupView.getBuilder(PRIVGROUP, new UserName("a1"))
+				.build()));
+	}
+	
+	@Test
+	public void summaryCustomFieldVisibility() throws Exception {
+		GroupView gv = GroupView.getMinimalBuilder(getSummaryBuilder().build())
+				.withMinimalViewFieldDeterminer(f -> f.getField().equals("field"))
+				.build();
+		assertThat("incorrect field", gv.getCustomFields(), is(Collections.emptyMap()));
+		
+		gv = GroupView.getMinimalBuilder(getSummaryBuilder().build())
+				.withMinimalViewFieldDeterminer(f -> f.getField().equals("field"))
+				.withPublicFieldDeterminer(f -> f.getField().equals("field"))
+				.build();
+		assertThat("incorrect field", gv.getCustomFields(), is(ImmutableMap.of(
+				new NumberedCustomField("field"), "val")));
+		
+		gv = GroupView.getMinimalBuilder(getSummaryBuilder().withRole(Group.Role.OWNER).build())
+				.withMinimalViewFieldDeterminer(f -> true)
+				.build();
+		assertThat("incorrect field", gv.getCustomFields(), is(ImmutableMap.of(
+				new NumberedCustomField("field"), "val",
+				new NumberedCustomField("field2"), "val2")));
+	}
+	
+	@Test
+	public void getMinimalBuilderFail() throws Exception {
+		try {
+			GroupView.getMinimalBuilder(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("summary"));
+		}
+		final GroupView.MinimalBuilder b = GroupView.getMinimalBuilder(
+				getSummaryBuilder().build());
+		try {
+			b.withPublicFieldDeterminer(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("isPublic"));
+		}
+		try {
+			b.withMinimalViewFieldDeterminer(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("isMinimalView"));
+		}
+	}
+	
 	@Test
 	public void nonMemberView() throws Exception {
 		final GroupView gv = GroupView.getBuilder(GROUP, null)
@@ -17,8 +17,10 @@ import static us.kbase.test.groups.TestCommon.inst;
 
 import java.lang.reflect.Constructor;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -27,12 +29,17 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import org.junit.Test;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import us.kbase.groups.core.CreateAndModTimes;
 import us.kbase.groups.core.CreateModAndExpireTimes;
@@ -45,12 +52,15 @@ import us.kbase.groups.core.GroupID;
 import us.kbase.groups.core.GroupIDAndName;
 import us.kbase.groups.core.GroupIDNameMembership;
 import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupSummary;
 import us.kbase.groups.core.GroupUpdateParams;
 import us.kbase.groups.core.GroupUser;
 import us.kbase.groups.core.GroupView;
 import us.kbase.groups.core.Groups;
+import us.kbase.groups.core.LastVisitBuffer;
 import us.kbase.groups.core.OptionalGroupFields;
 import us.kbase.groups.core.OptionalString;
+import us.kbase.groups.core.SearchGroupsParams;
 import us.kbase.groups.core.Token;
 import us.kbase.groups.core.UUIDGenerator;
 import us.kbase.groups.core.UserHandler;
@@ -144,6 +154,60 @@ public class GroupsTest {
 		return new TestMocks(instance, storage, uh, wh, ch, val, notis, uuidGen, clock);
 	}
 	
+	private static TestMocks initTestMocks(
+			final ExecutorService resourceExecutor,
+			final Duration resourceTimeout)
+			throws Exception {
+		return initTestMocks(resourceExecutor, resourceTimeout, false);
+	}
+	
+	private static TestMocks initTestMocks(
+			final ExecutorService resourceExecutor,
+			final Duration resourceTimeout,
+			final boolean useStoredRequestTargets)
+			throws Exception {
+		return initTestMocks(
+				resourceExecutor, resourceTimeout, useStoredRequestTargets, Optional.empty());
+	}
+	
+	private static TestMocks initTestMocks(
+			final ExecutorService resourceExecutor,
+			final Duration resourceTimeout,
+			final boolean useStoredRequestTargets,
+			final Optional<LastVisitBuffer> visitBuffer)
+			throws Exception {
+		final GroupsStorage storage = mock(GroupsStorage.class);
+		final UserHandler uh = mock(UserHandler.class);
+		final ResourceHandler wh = mock(ResourceHandler.class);
+		final ResourceHandler ch = mock(ResourceHandler.class);
+		final FieldValidators val = mock(FieldValidators.class);
+		final Notifications notis = mock(Notifications.class);
+		final UUIDGenerator uuidGen = mock(UUIDGenerator.class);
+		final Clock clock = mock(Clock.class);
+		
+		final Constructor<Groups> c = Groups.class.getDeclaredConstructor(
+				GroupsStorage.class, UserHandler.class, Map.class, FieldValidators.class,
+				Notifications.class, ExecutorService.class, Duration.class, int.class,
+				boolean.class, Optional.class, UUIDGenerator.class, Clock.class);
+		c.setAccessible(true);
+		final Groups instance = c.newInstance(
+				storage,
+				uh,
+				ImmutableMap.of(
+						new ResourceType("workspace"), wh,
+						new ResourceType("catalogmethod"), ch),
+				val,
+				notis,
+				resourceExecutor,
+				resourceTimeout,
+				1000,
+				useStoredRequestTargets,
+				visitBuffer,
+				uuidGen,
+				clock);
+		return new TestMocks(instance, storage, uh, wh, ch, val, notis, uuidGen, clock);
+	}
+	
 	public static class TestMocks {
 		
 		public final Groups groups;
@@ -201,6 +265,60 @@ public class GroupsTest {
 						"resourceHandlers cannot contain built in type user"));
 	}
 	
+	@Test
+	public void constructFailExecutor() throws Exception {
+		final GroupsStorage s = mock(GroupsStorage.class);
+		final UserHandler u = mock(UserHandler.class);
+		final Map<ResourceType, ResourceHandler> h = Collections.emptyMap();
+		final FieldValidators v = mock(FieldValidators.class);
+		final Notifications n = mock(Notifications.class);
+		final ExecutorService e = mock(ExecutorService.class);
+		final Duration d = Duration.ofSeconds(1);
+		
+		failConstruct(s, u, h, v, n, null, d, 1, new NullPointerException("resourceExecutor"));
+		failConstruct(s, u, h, v, n, e, null, 1, new NullPointerException("resourceTimeout"));
+		failConstruct(s, u, h, v, n, e, Duration.ZERO, 1, new IllegalArgumentException(
+				"resourceTimeout must be positive"));
+		failConstruct(s, u, h, v, n, e, Duration.ofMillis(-1), 1, new IllegalArgumentException(
+				"resourceTimeout must be positive"));
+		failConstruct(s, u, h, v, n, e, d, 0, new IllegalArgumentException(
+				"maxListLimit must be > 0"));
+		failConstruct(s, u, h, v, n, e, d, -1, new IllegalArgumentException(
+				"maxListLimit must be > 0"));
+	}
+	
+	@Test
+	public void constructFailVisitBuffer() throws Exception {
+		try {
+			new Groups(mock(GroupsStorage.class), mock(UserHandler.class),
+					Collections.emptyMap(), mock(FieldValidators.class),
+					mock(Notifications.class), mock(ExecutorService.class),
+					Duration.ofSeconds(1), 1, false, null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("visitBuffer"));
+		}
+	}
+	
+	private void failConstruct(
+			final GroupsStorage storage,
+			final UserHandler userHandler,
+			final Map<ResourceType, ResourceHandler> handlers,
+			final FieldValidators validators,
+			final Notifications notifications,
+			final ExecutorService resourceExecutor,
+			final Duration resourceTimeout,
+			final int maxListLimit,
+			final Exception expected) {
+		try {
+			new Groups(storage, userHandler, handlers, validators, notifications,
+					resourceExecutor, resourceTimeout, maxListLimit);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
 	private void failConstruct(
 			final GroupsStorage storage,
 			final UserHandler userHandler,
@@ -794,6 +912,48 @@ public class GroupsTest {
 		verify(mocks.storage).updateUser(new GroupID("foo"), new UserName("u1"), inst(15000));
 	}
 	
+	@Test
+	public void userVisitedBuffered() throws Exception {
+		final LastVisitBuffer buffer = mock(LastVisitBuffer.class);
+		final TestMocks mocks = initTestMocks(MoreExecutors.newDirectExecutorService(),
+				Duration.ofDays(1), false, Optional.of(buffer));
+		
+		when(mocks.userHandler.getUser(new Token("tk"))).thenReturn(new UserName("u1"));
+		when(mocks.clock.instant()).thenReturn(inst(15000));
+		when(mocks.storage.getGroup(new GroupID("foo"))).thenReturn(Group.getBuilder(
+				new GroupID("foo"), new GroupName("name"), toGUser("u2"),
+				new CreateAndModTimes(Instant.ofEpochMilli(10000)))
+				.withMember(toGUser("u1"))
+				.build());
+		
+		mocks.groups.userVisited(new Token("tk"), new GroupID("foo"));
+		
+		verify(buffer).add(new GroupID("foo"), new UserName("u1"), inst(15000));
+		verify(mocks.storage, never()).updateUser(any(), any(), any(Instant.class));
+	}
+	
+	@Test
+	public void userVisitedBufferedFailNotMember() throws Exception {
+		final LastVisitBuffer buffer = mock(LastVisitBuffer.class);
+		final TestMocks mocks = initTestMocks(MoreExecutors.newDirectExecutorService(),
+				Duration.ofDays(1), false, Optional.of(buffer));
+		
+		when(mocks.userHandler.getUser(new Token("tk"))).thenReturn(new UserName("u1"));
+		when(mocks.storage.getGroup(new GroupID("foo"))).thenReturn(Group.getBuilder(
+				new GroupID("foo"), new GroupName("name"), toGUser("u2"),
+				new CreateAndModTimes(Instant.ofEpochMilli(10000)))
+				.withMember(toGUser("u3"))
+				.build());
+		when(mocks.storage.getGroup(new GroupID("bar"))).thenThrow(new NoSuchGroupException("bar"));
+		
+		userVisitedFail(mocks.groups, new Token("tk"), new GroupID("foo"),
+				new NoSuchUserException("User u1 is not a member of group foo"));
+		userVisitedFail(mocks.groups, new Token("tk"), new GroupID("bar"),
+				new NoSuchGroupException("bar"));
+		
+		verify(buffer, never()).add(any(), any(), any());
+	}
+	
 	@Test
 	public void userVisitedFailNulls() throws Exception {
 		final Groups g = initTestMocks().groups;
@@ -1069,6 +1229,95 @@ public class GroupsTest {
 				.build()));
 	}
 	
+	@Test
+	public void getGroupConcurrentResourceHandlers() throws Exception {
+		// the handlers can only complete if they run concurrently
+		final ExecutorService ex = Executors.newFixedThreadPool(2);
+		try {
+			final TestMocks mocks = initTestMocks(ex, Duration.ofSeconds(10));
+			final CyclicBarrier barrier = new CyclicBarrier(2);
+			
+			when(mocks.storage.getGroup(new GroupID("bar"))).thenReturn(Group.getBuilder(
+					new GroupID("bar"), new GroupName("name"), toGUser("foo"),
+					new CreateAndModTimes(Instant.ofEpochMilli(10000)))
+					.withResource(new ResourceType("workspace"),
+							new ResourceDescriptor(new ResourceID("92")))
+					.withResource(new ResourceType("catalogmethod"),
+							new ResourceDescriptor(new ResourceID("mod.meth")))
+					.build());
+			
+			when(mocks.wsHandler.getResourceInformation(
+					null, set(new ResourceID("92")), ResourceAccess.ADMINISTRATED_AND_PUBLIC))
+					.thenAnswer(inv -> {
+						barrier.await(5, TimeUnit.SECONDS);
+						return ResourceInformationSet.getBuilder(null)
+								.withResourceField(new ResourceID("92"), "name", "my ws")
+								.build();
+					});
+			when(mocks.catHandler.getResourceInformation(
+					null, set(new ResourceID("mod.meth")),
+					ResourceAccess.ADMINISTRATED_AND_PUBLIC))
+					.thenAnswer(inv -> {
+						barrier.await(5, TimeUnit.SECONDS);
+						return ResourceInformationSet.getBuilder(null)
+								.withResourceField(new ResourceID("mod.meth"), "f", "x")
+								.build();
+					});
+			
+			final GroupView g = mocks.groups.getGroup(null, new GroupID("bar"));
+			
+			assertThat("incorrect group", g, is(GroupView.getBuilder(Group.getBuilder(
+					new GroupID("bar"), new GroupName("name"), toGUser("foo"),
+					new CreateAndModTimes(Instant.ofEpochMilli(10000)))
+					.withResource(new ResourceType("workspace"),
+							new ResourceDescriptor(new ResourceID("92")))
+					.withResource(new ResourceType("catalogmethod"),
+							new ResourceDescriptor(new ResourceID("mod.meth")))
+					.build(), null)
+					.withStandardView(true)
+					.withPublicFieldDeterminer(f -> true)
+					.withPublicUserFieldDeterminer(f -> true)
+					.withResource(new ResourceType("workspace"), ResourceInformationSet
+							.getBuilder(null)
+							.withResourceField(new ResourceID("92"), "name", "my ws")
+							.build())
+					.withResource(new ResourceType("catalogmethod"), ResourceInformationSet
+							.getBuilder(null)
+							.withResourceField(new ResourceID("mod.meth"), "f", "x")
+							.build())
+					.build()));
+		} finally {
+			ex.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void getGroupFailResourceHandlerTimeout() throws Exception {
+		final ExecutorService ex = Executors.newFixedThreadPool(2);
+		try {
+			final TestMocks mocks = initTestMocks(ex, Duration.ofMillis(100));
+			
+			when(mocks.storage.getGroup(new GroupID("bar"))).thenReturn(Group.getBuilder(
+					new GroupID("bar"), new GroupName("name"), toGUser("foo"),
+					new CreateAndModTimes(Instant.ofEpochMilli(10000)))
+					.withResource(new ResourceType("workspace"),
+							new ResourceDescriptor(new ResourceID("92")))
+					.build());
+			
+			when(mocks.wsHandler.getResourceInformation(
+					null, set(new ResourceID("92")), ResourceAccess.ADMINISTRATED_AND_PUBLIC))
+					.thenAnswer(inv -> {
+						Thread.sleep(5000);
+						return ResourceInformationSet.getBuilder(null).build();
+					});
+			
+			failGetGroup(mocks.groups, null, new GroupID("bar"), new ResourceHandlerException(
+					"Timed out retrieving workspace information for group bar"));
+		} finally {
+			ex.shutdownNow();
+		}
+	}
+	
 	@Test
 	public void getGroupMemberTokenWithNonexistentResources() throws Exception {
 		// tests non existent resource code
@@ -1422,10 +1671,13 @@ public class GroupsTest {
 		final TestMocks mocks = initTestMocks();
 		
 		when(mocks.userHandler.getUser(new Token("tok"))).thenReturn(new UserName("u"));
-		when(mocks.storage.getGroup(new GroupID("id1"))).thenReturn(groupWithAdmin("id1", "u"));
-		when(mocks.storage.getGroup(new GroupID("id2"))).thenReturn(groupWithAdmin("id2", "u"));
-		when(mocks.storage.groupHasRequest(new GroupID("id1"), null)).thenReturn(false);
-		when(mocks.storage.groupHasRequest(new GroupID("id2"), null)).thenReturn(true);
+		when(mocks.storage.getGroupSummaries(
+				new UserName("u"), set(new GroupID("id1"), new GroupID("id2"))))
+				.thenReturn(Arrays.asList(
+						summaryWithRole("id1", Role.ADMIN), summaryWithRole("id2", Role.OWNER)));
+		when(mocks.storage.getLatestOpenRequestDates(
+				set(new GroupID("id1"), new GroupID("id2"))))
+				.thenReturn(ImmutableMap.of(new GroupID("id2"), inst(40000)));
 		
 		assertThat("incorrect request state", mocks.groups.groupsHaveRequests(
 				new Token("tok"), set(new GroupID("id1"), new GroupID("id2"))),
@@ -1438,40 +1690,41 @@ public class GroupsTest {
 	public void groupsHaveRequestsVisted() throws Exception {
 		final TestMocks mocks = initTestMocks();
 		
+		final Set<GroupID> ids = set(new GroupID("id1"), new GroupID("id2"), new GroupID("id3"),
+				new GroupID("id4"));
 		when(mocks.userHandler.getUser(new Token("tok"))).thenReturn(new UserName("u"));
-		when(mocks.storage.getGroup(new GroupID("id1"))).thenReturn(
-				groupWithAdmin("id1", "u", inst(25000)));
-		when(mocks.storage.getGroup(new GroupID("id2"))).thenReturn(
-				groupWithAdmin("id2", "u", inst(56000)));
-		when(mocks.storage.getGroup(new GroupID("id3"))).thenReturn(
-				groupWithAdmin("id3", "u", inst(35000)));
-		when(mocks.storage.groupHasRequest(new GroupID("id1"), inst(25000))).thenReturn(false);
-		when(mocks.storage.groupHasRequest(new GroupID("id1"), null)).thenReturn(true);
-		when(mocks.storage.groupHasRequest(new GroupID("id2"), inst(56000))).thenReturn(true);
-		when(mocks.storage.groupHasRequest(new GroupID("id3"), inst(35000))).thenReturn(false);
-		when(mocks.storage.groupHasRequest(new GroupID("id3"), null)).thenReturn(false);
+		when(mocks.storage.getGroupSummaries(new UserName("u"), ids)).thenReturn(Arrays.asList(
+				summaryWithRole("id1", Role.ADMIN, inst(25000)),
+				summaryWithRole("id2", Role.ADMIN, inst(56000)),
+				summaryWithRole("id3", Role.OWNER, inst(35000)),
+				summaryWithRole("id4", Role.ADMIN, inst(45000))));
+		when(mocks.storage.getLatestOpenRequestDates(ids)).thenReturn(ImmutableMap.of(
+				new GroupID("id1"), inst(20000),
+				new GroupID("id2"), inst(56001),
+				new GroupID("id4"), inst(45000)));
 		
 		assertThat("incorrect request state", mocks.groups.groupsHaveRequests(
-				new Token("tok"), set(new GroupID("id1"), new GroupID("id2"), new GroupID("id3"))),
+				new Token("tok"), ids),
 				is(ImmutableMap.of(
 						new GroupID("id1"), GroupHasRequests.OLD,
 						new GroupID("id2"), GroupHasRequests.NEW,
-						new GroupID("id3"), GroupHasRequests.NONE)));
+						new GroupID("id3"), GroupHasRequests.NONE,
+						new GroupID("id4"), GroupHasRequests.OLD)));
 	}
 	
-	private Group groupWithAdmin(final String id, final String adminName) throws Exception {
-		return groupWithAdmin(id, adminName, null);
+	private GroupSummary summaryWithRole(final String id, final Role role) throws Exception {
+		return summaryWithRole(id, role, null);
 	}
 	
-	private Group groupWithAdmin(
+	private GroupSummary summaryWithRole(
 			final String id,
-			final String adminName,
-			final Instant lastVisit) throws Exception {
-		return Group.getBuilder(new GroupID(id), new GroupName("n"), toGUser("o"),
+			final Role role,
+			final Instant lastVisit)
+			throws Exception {
+		return GroupSummary.getBuilder(new GroupID(id), new GroupName("n"), new UserName("o"),
 				new CreateAndModTimes(inst(1000)))
-				.withAdministrator(GroupUser.getBuilder(new UserName(adminName), inst(10000))
-						.withNullableLastVisit(lastVisit)
-						.build())
+				.withRole(role)
+				.withNullableLastVisit(lastVisit)
 				.build();
 	}
 	
@@ -1494,9 +1747,11 @@ public class GroupsTest {
 				.collect(Collectors.toSet());
 
 		when(mocks.userHandler.getUser(new Token("tok"))).thenReturn(new UserName("u"));
+		final List<GroupSummary> summaries = new LinkedList<>();
 		for (final GroupID g: ids) {
-			when(mocks.storage.getGroup(g)).thenReturn(groupWithAdmin(g.getName(), "u"));
+			summaries.add(summaryWithRole(g.getName(), Role.ADMIN));
 		}
+		when(mocks.storage.getGroupSummaries(new UserName("u"), ids)).thenReturn(summaries);
 		
 		mocks.groups.groupsHaveRequests(new Token("tok"), ids);
 		
@@ -1509,16 +1764,44 @@ public class GroupsTest {
 	public void failGroupsHaveRequestsNotAdmin() throws Exception {
 		final TestMocks mocks = initTestMocks();
 		
+		final Set<GroupID> ids = set(new GroupID("id1"), new GroupID("id2"), new GroupID("id3"));
 		when(mocks.userHandler.getUser(new Token("tok"))).thenReturn(new UserName("u"));
-		when(mocks.storage.getGroup(new GroupID("id1"))).thenReturn(groupWithAdmin("id1", "u"));
-		when(mocks.storage.getGroup(new GroupID("id2"))).thenReturn(groupWithAdmin("id2", "u2"));
-		when(mocks.storage.getGroup(new GroupID("id3"))).thenReturn(groupWithAdmin("id3", "u"));
+		when(mocks.storage.getGroupSummaries(new UserName("u"), ids)).thenReturn(Arrays.asList(
+				summaryWithRole("id1", Role.ADMIN),
+				summaryWithRole("id2", Role.MEMBER),
+				summaryWithRole("id3", Role.OWNER)));
 		
-		failGroupsHaveRequests(mocks.groups, new Token("tok"),
-				set(new GroupID("id1"), new GroupID("id2"), new GroupID("id3")),
+		failGroupsHaveRequests(mocks.groups, new Token("tok"), ids,
 				new UnauthorizedException("User u may not administrate group id2"));
 	}
 	
+	@Test
+	public void failGroupsHaveRequestsNotMember() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		final Set<GroupID> ids = set(new GroupID("id1"), new GroupID("id2"));
+		when(mocks.userHandler.getUser(new Token("tok"))).thenReturn(new UserName("u"));
+		when(mocks.storage.getGroupSummaries(new UserName("u"), ids)).thenReturn(Arrays.asList(
+				summaryWithRole("id1", Role.NONE),
+				summaryWithRole("id2", Role.ADMIN)));
+		
+		failGroupsHaveRequests(mocks.groups, new Token("tok"), ids,
+				new UnauthorizedException("User u may not administrate group id1"));
+	}
+	
+	@Test
+	public void failGroupsHaveRequestsNoSuchGroup() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		final Set<GroupID> ids = set(new GroupID("id1"), new GroupID("id2"));
+		when(mocks.userHandler.getUser(new Token("tok"))).thenReturn(new UserName("u"));
+		when(mocks.storage.getGroupSummaries(new UserName("u"), ids))
+				.thenThrow(new NoSuchGroupException("id2"));
+		
+		failGroupsHaveRequests(mocks.groups, new Token("tok"), ids,
+				new NoSuchGroupException("id2"));
+	}
+	
 	private void failGroupsHaveRequests(
 			final Groups g,
 			final Token t,
@@ -1536,12 +1819,13 @@ public class GroupsTest {
 	public void getGroupsEmpty() throws Exception {
 		final TestMocks mocks = initTestMocks();
 		
-		when(mocks.storage.getGroups(GetGroupsParams.getBuilder()
+		when(mocks.storage.getGroupSummaries(GetGroupsParams.getBuilder()
 				.withNullableExcludeUpTo("ex")
 				.withNullableSortAscending(false)
 				.build(),
 				false,
-				null))
+				null,
+				set()))
 				.thenReturn(Collections.emptyList());
 		
 		assertThat("incorrect groups", mocks.groups.getGroups(null, GetGroupsParams.getBuilder()
@@ -1555,24 +1839,23 @@ public class GroupsTest {
 	public void getGroups() throws Exception {
 		final TestMocks mocks = initTestMocks();
 		
-		when(mocks.storage.getGroups(GetGroupsParams.getBuilder()
+		when(mocks.storage.getGroupSummaries(GetGroupsParams.getBuilder()
 				.withNullableExcludeUpTo("someex")
 				.build(),
 				false,
-				null))
+				null,
+				set()))
 				.thenReturn(Arrays.asList(
-						Group.getBuilder(
-								new GroupID("id1"), new GroupName("name1"), toGUser("u1"),
+						GroupSummary.getBuilder(
+								new GroupID("id1"), new GroupName("name1"), new UserName("u1"),
 								new CreateAndModTimes(
 										Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000)))
-								.withMember(toGUser("m1"))
-								.withAdministrator(toGUser("a1"))
-										.build(),
-						Group.getBuilder(
-								new GroupID("id2"), new GroupName("name2"), toGUser("u2"),
+								.withMemberCount(3)
+								.build(),
+						GroupSummary.getBuilder(
+								new GroupID("id2"), new GroupName("name2"), new UserName("u2"),
 								new CreateAndModTimes(Instant.ofEpochMilli(10000)))
-								.withMember(toGUser("whee"))
-								.withAdministrator(toGUser("whoo"))
+								.withMemberCount(3)
 								.build()
 						));
 		
@@ -1639,10 +1922,43 @@ public class GroupsTest {
 				.withCustomField(new NumberedCustomField("missingmin"), "missingonmin")
 				.withCustomField(new NumberedCustomField("missingpub"), "missingonpub")
 				.build();
-		when(mocks.storage.getGroups(eq(mtparams), eq(false), any()))
-				.thenReturn(Arrays.asList(grp));
 		when(mocks.storage.getGroups(Arrays.asList(new GroupID("id1")))).thenReturn(set(grp));
 		
+		// only fields that are visible in the minimal view are requested from storage
+		final Set<CustomField> minFields = set(new CustomField("minpub"),
+				new CustomField("minpriv"), new CustomField("missingpub"));
+		final GroupSummary.Builder sb = GroupSummary.getBuilder(
+				new GroupID("id1"), new GroupName("name1"), new UserName("o1"),
+				new CreateAndModTimes(
+						Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000)))
+				.withMemberCount(3)
+				.withCustomField(new NumberedCustomField("minpub-6"), "minpub")
+				.withCustomField(new NumberedCustomField("minpriv-7"), "minpriv")
+				.withCustomField(new NumberedCustomField("missingpub"), "missingonpub");
+		when(mocks.storage.getGroupSummaries(mtparams, false, null, minFields))
+				.thenReturn(Arrays.asList(sb.build()));
+		when(mocks.storage.getGroupSummaries(mtparams, false, new UserName("m2"), minFields))
+				.thenReturn(Arrays.asList(sb.build()));
+		when(mocks.storage.getGroupSummaries(mtparams, false, new UserName("m1"), minFields))
+				.thenReturn(Arrays.asList(sb.withRole(Role.MEMBER).build()));
+		
+		when(mocks.validators.getValidationTargetFields()).thenReturn(set(
+				new CustomField("minpub"), new CustomField("minpriv"), new CustomField("pub"),
+				new CustomField("priv"), new CustomField("missingpub")));
+		when(mocks.validators.getConfig(new CustomField("minpub"))).thenReturn(
+				FieldConfiguration.getBuilder()
+						.withNullableIsPublicField(true)
+						.withNullableIsMinimalViewField(true)
+						.build());
+		when(mocks.validators.getConfig(new CustomField("minpriv"))).thenReturn(
+				FieldConfiguration.getBuilder().withNullableIsMinimalViewField(true).build());
+		when(mocks.validators.getConfig(new CustomField("pub"))).thenReturn(
+				FieldConfiguration.getBuilder().withNullableIsPublicField(true).build());
+		when(mocks.validators.getConfig(new CustomField("priv"))).thenReturn(
+				FieldConfiguration.getBuilder().build());
+		when(mocks.validators.getConfig(new CustomField("missingpub"))).thenReturn(
+				FieldConfiguration.getBuilder().withNullableIsMinimalViewField(true).build());
+		
 		when(mocks.validators.getConfigOrEmpty(new CustomField("minpub"))).thenReturn(
 				Optional.of(FieldConfiguration.getBuilder()
 						.withNullableIsPublicField(true)
@@ -1775,9 +2091,22 @@ public class GroupsTest {
 				.build();
 		
 		when(mocks.userHandler.getUser(new Token("t1"))).thenReturn(new UserName("m1"));
-		when(mocks.storage.getGroups(ggp, false, null)).thenReturn(Arrays.asList(g1, g3));
-		when(mocks.storage.getGroups(ggp, false, new UserName("m1")))
-				.thenReturn(Arrays.asList(g1, g2, g3));
+		final GroupSummary s1 = GroupSummary.getBuilder(new GroupID("g1"), new GroupName("n1"),
+				new UserName("o1"), new CreateAndModTimes(inst(1000)))
+				.build();
+		final GroupSummary s2 = GroupSummary.getBuilder(new GroupID("g2"), new GroupName("n2"),
+				new UserName("o2"), new CreateAndModTimes(inst(1000)))
+				.withIsPrivate(true)
+				.withMemberCount(2)
+				.withRole(Role.MEMBER)
+				.build();
+		final GroupSummary s3 = GroupSummary.getBuilder(new GroupID("g3"), new GroupName("n3"),
+				new UserName("o3"), new CreateAndModTimes(inst(1000)))
+				.build();
+		when(mocks.storage.getGroupSummaries(ggp, false, null, set()))
+				.thenReturn(Arrays.asList(s1, s3));
+		when(mocks.storage.getGroupSummaries(ggp, false, new UserName("m1"), set()))
+				.thenReturn(Arrays.asList(s1, s2, s3));
 		
 		assertThat("incorrect groups", mocks.groups.getGroups(null, ggp),
 				is(Arrays.asList(GroupView.getBuilder(g1, null).build(),
@@ -1800,8 +2129,11 @@ public class GroupsTest {
 				.build();
 		
 		when(mocks.userHandler.getUser(new Token("t1"))).thenReturn(new UserName("m1"));
-		when(mocks.storage.getGroups(any(), eq(false), eq(new UserName("m1"))))
-				.thenReturn(Arrays.asList(g1));
+		when(mocks.storage.getGroupSummaries(any(), eq(false), eq(new UserName("m1")), eq(set())))
+				.thenReturn(Arrays.asList(GroupSummary.getBuilder(
+						new GroupID("g1"), new GroupName("n1"), new UserName("o1"),
+						new CreateAndModTimes(inst(1000)))
+						.build()));
 		
 		for (final Role r: Role.values()) {
 			assertThat("incorrect groups", mocks.groups.getGroups(
@@ -1833,8 +2165,12 @@ public class GroupsTest {
 		when(mocks.userHandler.getUser(new Token("t1"))).thenReturn(new UserName("m1"));
 		when(mocks.wsHandler.isPublic(new ResourceID("86"))).thenReturn(resourceIsPublic);
 		
-		when(mocks.storage.getGroups(any(), eq(resourceIsPublic), eq(new UserName("m1"))))
-				.thenReturn(Arrays.asList(g1));
+		when(mocks.storage.getGroupSummaries(
+				any(), eq(resourceIsPublic), eq(new UserName("m1")), eq(set())))
+				.thenReturn(Arrays.asList(GroupSummary.getBuilder(
+						new GroupID("g1"), new GroupName("n1"), new UserName("o1"),
+						new CreateAndModTimes(inst(1000)))
+						.build()));
 		
 		assertThat("incorrect groups", mocks.groups.getGroups(
 				new Token("t1"), GetGroupsParams.getBuilder()
@@ -1860,6 +2196,12 @@ public class GroupsTest {
 				new NoSuchResourceTypeException("t"));
 	}
 	
+	@Test
+	public void getGroupsFailLimit() throws Exception {
+		getGroupsFail(null, GetGroupsParams.getBuilder().withNullableLimit(1001).build(),
+				new IllegalParameterException("Limit 1001 is greater than the maximum of 1000"));
+	}
+	
 	private void getGroupsFail(final Token t, final GetGroupsParams p, final Exception expected) {
 		try {
 			initTestMocks().groups.getGroups(t, p);
@@ -1869,6 +2211,117 @@ public class GroupsTest {
 		}
 	}
 	
+	@Test
+	public void searchGroups() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		when(mocks.userHandler.getUser(new Token("t"))).thenReturn(new UserName("u"));
+		when(mocks.storage.searchGroups(SearchGroupsParams.getBuilder("foo").build(),
+				new UserName("u"), set()))
+				.thenReturn(Arrays.asList(
+						GroupSummary.getBuilder(
+								new GroupID("id2"), new GroupName("name2"), new UserName("u2"),
+								new CreateAndModTimes(Instant.ofEpochMilli(10000)))
+								.withMemberCount(3)
+								.build(),
+						GroupSummary.getBuilder(
+								new GroupID("id1"), new GroupName("name1"), new UserName("u1"),
+								new CreateAndModTimes(
+										Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000)))
+								.withMemberCount(3)
+								.build()
+						));
+		
+		assertThat("incorrect groups", mocks.groups.searchGroups(
+				new Token("t"), SearchGroupsParams.getBuilder("foo").build()),
+				is(Arrays.asList(
+						GroupView.getBuilder(Group.getBuilder(
+								new GroupID("id2"), new GroupName("name2"), toGUser("u2"),
+								new CreateAndModTimes(Instant.ofEpochMilli(10000)))
+								.withMember(toGUser("fakename"))
+								.withAdministrator(toGUser("fakename2"))
+								.build(), null)
+								.build(),
+						GroupView.getBuilder(Group.getBuilder(
+								new GroupID("id1"), new GroupName("name1"), toGUser("u1"),
+								new CreateAndModTimes(
+										Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000)))
+								.withMember(toGUser("fakename"))
+								.withAdministrator(toGUser("fakename2"))
+								.build(),
+								null)
+						.build()
+						)));
+	}
+	
+	@Test
+	public void searchGroupsAnonymous() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		when(mocks.storage.searchGroups(SearchGroupsParams.getBuilder("foo")
+				.withNullableLimit(10).build(), null, set()))
+				.thenReturn(Collections.emptyList());
+		
+		assertThat("incorrect groups", mocks.groups.searchGroups(
+				null, SearchGroupsParams.getBuilder("foo").withNullableLimit(10).build()),
+				is(Collections.emptyList()));
+	}
+	
+	@Test
+	public void searchGroupsFail() throws Exception {
+		searchGroupsFail(null, new NullPointerException("params"));
+		searchGroupsFail(SearchGroupsParams.getBuilder("f").withNullableLimit(1001).build(),
+				new IllegalParameterException("Limit 1001 is greater than the maximum of 1000"));
+	}
+	
+	private void searchGroupsFail(final SearchGroupsParams p, final Exception expected) {
+		try {
+			initTestMocks().groups.searchGroups(null, p);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void reindexGroup() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		mocks.groups.reindexGroup(new GroupID("gid"));
+		
+		verify(mocks.storage).reindexGroup(new GroupID("gid"));
+	}
+	
+	@Test
+	public void reindexGroupFail() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		try {
+			mocks.groups.reindexGroup(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("groupID"));
+		}
+		
+		doThrow(new NoSuchGroupException("gid")).when(mocks.storage)
+				.reindexGroup(new GroupID("gid"));
+		try {
+			mocks.groups.reindexGroup(new GroupID("gid"));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NoSuchGroupException("gid"));
+		}
+	}
+	
+	@Test
+	public void reindexGroups() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		when(mocks.storage.reindexGroups()).thenReturn(42L);
+		
+		assertThat("incorrect count", mocks.groups.reindexGroups(), is(42L));
+	}
+	
 	@Test
 	public void getGroupsByIDsEmpty() throws Exception {
 		assertThat("incorrect groups",
@@ -2322,6 +2775,157 @@ public class GroupsTest {
 		}
 	}
 	
+	private GroupRequest inviteRequest(final UUID id, final String invitee) throws Exception {
+		return GroupRequest.getBuilder(
+				new RequestID(id), new GroupID("bar"), new UserName("admin"),
+				CreateModAndExpireTimes.getBuilder(
+						Instant.ofEpochMilli(10000), Instant.ofEpochMilli(1209610000))
+						.build())
+				.withType(RequestType.INVITE)
+				.withResource(GroupRequest.USER_TYPE,
+						ResourceDescriptor.from(new UserName(invitee)))
+				.build();
+	}
+	
+	@Test
+	public void inviteUsersToGroup() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		final UUID id1 = UUID.randomUUID();
+		final UUID id2 = UUID.randomUUID();
+		final UUID id3 = UUID.randomUUID();
+		
+		when(mocks.userHandler.getUser(new Token("token"))).thenReturn(new UserName("admin"));
+		when(mocks.userHandler.areValidUsers(set(
+				new UserName("foo"), new UserName("baz"), new UserName("whee"))))
+				.thenReturn(ImmutableMap.of(
+						new UserName("foo"), true,
+						new UserName("baz"), true,
+						new UserName("whee"), true));
+		when(mocks.storage.getGroup(new GroupID("bar"))).thenReturn(Group.getBuilder(
+				new GroupID("bar"), new GroupName("name"), toGUser("own"),
+				new CreateAndModTimes(Instant.ofEpochMilli(10000)))
+				.withMember(toGUser("u1"))
+				.withAdministrator(toGUser("admin"))
+				.build());
+		when(mocks.clock.instant()).thenReturn(Instant.ofEpochMilli(10000));
+		when(mocks.uuidGen.randomUUID()).thenReturn(id1, id2, id3);
+		when(mocks.storage.storeRequests(Arrays.asList(
+				inviteRequest(id1, "baz"), inviteRequest(id2, "foo"), inviteRequest(id3, "whee"))))
+				.thenReturn(set(new RequestID(id2)));
+		
+		final List<GroupRequest> reqs = mocks.groups.inviteUsersToGroup(
+				new Token("token"), new GroupID("bar"), Arrays.asList(
+						new UserName("whee"), new UserName("foo"), new UserName("baz"),
+						new UserName("foo")));
+		
+		assertThat("incorrect requests", reqs, is(Arrays.asList(
+				inviteRequest(id1, "baz"), inviteRequest(id3, "whee"))));
+		
+		verify(mocks.userHandler, never()).isValidUser(any());
+		verify(mocks.storage, never()).storeRequest(any());
+		verify(mocks.notifs).notify(Arrays.asList(new UserName("baz")), inviteRequest(id1, "baz"));
+		verify(mocks.notifs).notify(
+				Arrays.asList(new UserName("whee")), inviteRequest(id3, "whee"));
+		verify(mocks.notifs, never()).notify(
+				Arrays.asList(new UserName("foo")), inviteRequest(id2, "foo"));
+	}
+	
+	@Test
+	public void inviteUsersToGroupFailBadArgs() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		final Groups g = mocks.groups;
+		final GroupID i = new GroupID("i");
+		final Token t = new Token("t");
+		final List<UserName> u = Arrays.asList(new UserName("u"));
+		
+		failInviteUsersToGroup(g, null, i, u, new NullPointerException("userToken"));
+		failInviteUsersToGroup(g, t, null, u, new NullPointerException("groupID"));
+		failInviteUsersToGroup(g, t, i, null, new NullPointerException("newMembers"));
+		failInviteUsersToGroup(g, t, i, Arrays.asList(new UserName("u"), null),
+				new NullPointerException("Null item in collection newMembers"));
+		failInviteUsersToGroup(g, t, i, Collections.emptyList(),
+				new IllegalParameterException("No users provided"));
+		
+		final List<UserName> tooMany = new LinkedList<>();
+		for (int j = 0; j < 1001; j++) {
+			tooMany.add(new UserName("u" + j));
+		}
+		failInviteUsersToGroup(g, t, i, tooMany, new IllegalParameterException(
+				"No more than 1000 users may be invited at once"));
+	}
+	
+	@Test
+	public void inviteUsersToGroupFailInvalidUsers() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		when(mocks.userHandler.getUser(new Token("token"))).thenReturn(new UserName("admin"));
+		when(mocks.userHandler.areValidUsers(set(
+				new UserName("foo"), new UserName("baz"), new UserName("whee"))))
+				.thenReturn(ImmutableMap.of(
+						new UserName("foo"), false,
+						new UserName("baz"), true,
+						new UserName("whee"), false));
+		
+		failInviteUsersToGroup(mocks.groups, new Token("token"), new GroupID("bar"),
+				Arrays.asList(new UserName("whee"), new UserName("foo"), new UserName("baz")),
+				new NoSuchUserException("foo, whee"));
+	}
+	
+	@Test
+	public void inviteUsersToGroupFailNotAdmin() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		when(mocks.userHandler.getUser(new Token("token"))).thenReturn(new UserName("u1"));
+		when(mocks.userHandler.areValidUsers(set(new UserName("foo"))))
+				.thenReturn(ImmutableMap.of(new UserName("foo"), true));
+		when(mocks.storage.getGroup(new GroupID("bar"))).thenReturn(Group.getBuilder(
+				new GroupID("bar"), new GroupName("name"), toGUser("own"),
+				new CreateAndModTimes(Instant.ofEpochMilli(10000)))
+				.withMember(toGUser("u1"))
+				.build());
+		
+		failInviteUsersToGroup(mocks.groups, new Token("token"), new GroupID("bar"),
+				Arrays.asList(new UserName("foo")),
+				new UnauthorizedException("User u1 may not administrate group bar"));
+	}
+	
+	@Test
+	public void inviteUsersToGroupFailIsMember() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		when(mocks.userHandler.getUser(new Token("token"))).thenReturn(new UserName("own"));
+		when(mocks.userHandler.areValidUsers(set(
+				new UserName("foo"), new UserName("u1"), new UserName("admin"))))
+				.thenReturn(ImmutableMap.of(
+						new UserName("foo"), true,
+						new UserName("u1"), true,
+						new UserName("admin"), true));
+		when(mocks.storage.getGroup(new GroupID("bar"))).thenReturn(Group.getBuilder(
+				new GroupID("bar"), new GroupName("name"), toGUser("own"),
+				new CreateAndModTimes(Instant.ofEpochMilli(10000)))
+				.withMember(toGUser("u1"))
+				.withAdministrator(toGUser("admin"))
+				.build());
+		
+		failInviteUsersToGroup(mocks.groups, new Token("token"), new GroupID("bar"),
+				Arrays.asList(new UserName("foo"), new UserName("u1"), new UserName("admin")),
+				new UserIsMemberException("User(s) admin, u1 already member(s) of group bar"));
+	}
+	
+	private void failInviteUsersToGroup(
+			final Groups g,
+			final Token t,
+			final GroupID i,
+			final Collection<UserName> invite,
+			final Exception expected) {
+		try {
+			g.inviteUsersToGroup(t, i, invite);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
 	@Test
 	public void getRequestMembershipCreatorOpen() throws Exception {
 		getRequest(
@@ -3321,6 +3925,13 @@ public class GroupsTest {
 				new NoSuchResourceTypeException("bad"));
 	}
 	
+	@Test
+	public void getRequestsForRequesterFailLimit() throws Exception {
+		failGetRequestsForRequester(new Token("t"),
+				GetRequestsParams.getBuilder().withNullableLimit(1001).build(),
+				new IllegalParameterException("Limit 1001 is greater than the maximum of 1000"));
+	}
+	
 	private void failGetRequestsForRequester(
 			final Token token,
 			final GetRequestsParams params,
@@ -3361,6 +3972,46 @@ public class GroupsTest {
 				is(Collections.emptyList()));
 	}
 	
+	@Test
+	public void getRequestsForTargetStoredTargets() throws Exception {
+		final TestMocks mocks = initTestMocks(
+				MoreExecutors.newDirectExecutorService(), Duration.ofDays(1), true);
+		final UUID id = UUID.randomUUID();
+		
+		when(mocks.userHandler.getUser(new Token("token"))).thenReturn(new UserName("user"));
+		when(mocks.storage.getRequestsByTargetUser(
+				new UserName("user"), GetRequestsParams.getBuilder()
+						.withNullableExcludeUpTo(inst(10000))
+						.build()))
+				.thenReturn(Arrays.asList(GroupRequest.getBuilder(
+						new RequestID(id), new GroupID("gid"), new UserName("admin"),
+						CreateModAndExpireTimes.getBuilder(
+								Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000))
+								.build())
+						.withType(RequestType.INVITE)
+						.withResource(new ResourceType("workspace"),
+								new ResourceDescriptor(new ResourceID("24")))
+						.build()));
+		
+		assertThat("incorrect requests", mocks.groups.getRequestsForTarget(
+				new Token("token"), GetRequestsParams.getBuilder()
+						.withNullableExcludeUpTo(inst(10000))
+						.build()),
+				is(Arrays.asList(GroupRequest.getBuilder(
+						new RequestID(id), new GroupID("gid"), new UserName("admin"),
+						CreateModAndExpireTimes.getBuilder(
+								Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000))
+								.build())
+						.withType(RequestType.INVITE)
+						.withResource(new ResourceType("workspace"),
+								new ResourceDescriptor(new ResourceID("24")))
+						.build())));
+		
+		// no remote calls to find the user's resources
+		verify(mocks.wsHandler, never()).getAdministratedResources(new UserName("user"));
+		verify(mocks.catHandler, never()).getAdministratedResources(new UserName("user"));
+	}
+	
 	@Test
 	public void getRequestsForTargetWithResourceEmpty() throws Exception {
 		final TestMocks mocks = initTestMocks();
@@ -3611,6 +4262,13 @@ public class GroupsTest {
 				new UnauthorizedException("User u is not an admin for workspace 56"));
 	}
 	
+	@Test
+	public void getRequestsForTargetFailLimit() throws Exception {
+		failGetRequestsForTarget(initTestMocks().groups, new Token("t"),
+				GetRequestsParams.getBuilder().withNullableLimit(1001).build(),
+				new IllegalParameterException("Limit 1001 is greater than the maximum of 1000"));
+	}
+	
 	private void failGetRequestsForTarget(
 			final Groups g,
 			final Token token,
@@ -3747,6 +4405,13 @@ public class GroupsTest {
 				new NoSuchResourceTypeException("bad"));
 	}
 	
+	@Test
+	public void getRequestsForGroupFailLimit() throws Exception {
+		failGetRequestsForGroup(initTestMocks().groups, new Token("t"), new GroupID("i"),
+				GetRequestsParams.getBuilder().withNullableLimit(1001).build(),
+				new IllegalParameterException("Limit 1001 is greater than the maximum of 1000"));
+	}
+	
 	@Test
 	public void getRequestsForGroupFailInvalidToken() throws Exception {
 		final TestMocks mocks = initTestMocks();
@@ -3900,6 +4565,13 @@ public class GroupsTest {
 				new NoSuchResourceTypeException("bad"));
 	}
 	
+	@Test
+	public void getRequestsForGroupsFailLimit() throws Exception {
+		failGetRequestsForGroups(initTestMocks().groups, new Token("t"),
+				GetRequestsParams.getBuilder().withNullableLimit(1001).build(),
+				new IllegalParameterException("Limit 1001 is greater than the maximum of 1000"));
+	}
+	
 	@Test
 	public void getRequestsForGroupsFailInvalidToken() throws Exception {
 		final TestMocks mocks = initTestMocks();
@@ -3956,7 +4628,7 @@ public class GroupsTest {
 		
 		verify(mocks.storage).closeRequest(new RequestID(id), GroupRequestStatus.canceled(),
 				Instant.ofEpochMilli(15000));
-		verify(mocks.notifs).cancel(new RequestID(id));
+		verify(mocks.notifs).cancel(Arrays.asList(new RequestID(id)));
 		
 		assertThat("incorrect request", req, is(GroupRequest.getBuilder(
 				new RequestID(id), new GroupID("gid"), new UserName("user"),
@@ -5525,7 +6197,9 @@ public class GroupsTest {
 				.withType(RequestType.INVITE)
 				.withResource(new ResourceType("workspace"),
 						new ResourceDescriptor(new ResourceID("34")))
-				.build());
+				.build(),
+				set(new UserName("ws1"), new UserName("ws2")));
+		verify(mocks.storage, never()).setRequestTargets(any(), any());
 		
 		verify(mocks.notifs).notify(
 				set(new UserName("ws1"), new UserName("ws2")),
@@ -0,0 +1,270 @@
+package us.kbase.test.groups.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static us.kbase.test.groups.TestCommon.inst;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.LastVisitBuffer;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.storage.GroupsStorage;
+import us.kbase.groups.storage.exceptions.GroupsStorageException;
+import us.kbase.test.groups.TestCommon;
+
+public class LastVisitBufferTest {
+	
+	@Test
+	public void constructFail() throws Exception {
+		failConstruct(null, 1, new NullPointerException("storage"));
+		failConstruct(mock(GroupsStorage.class), 0,
+				new IllegalArgumentException("maxSize must be > 0"));
+	}
+	
+	private void failConstruct(
+			final GroupsStorage storage,
+			final int maxSize,
+			final Exception expected) {
+		try {
+			new LastVisitBuffer(storage, maxSize);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void addAndFlush() throws Exception {
+		final GroupsStorage storage = mock(GroupsStorage.class);
+		final LastVisitBuffer b = new LastVisitBuffer(storage, 10);
+		
+		b.add(new GroupID("g1"), new UserName("u1"), inst(20000));
+		b.add(new GroupID("g1"), new UserName("u1"), inst(10000)); // earlier, ignored
+		b.add(new GroupID("g1"), new UserName("u2"), inst(10000));
+		b.add(new GroupID("g2"), new UserName("u1"), inst(10000));
+		b.add(new GroupID("g2"), new UserName("u1"), inst(30000));
+		assertThat("incorrect size", b.size(), is(3));
+		
+		b.flush();
+		
+		assertThat("incorrect size", b.size(), is(0));
+		verify(storage).updateLastVisits(ImmutableMap.of(
+				new GroupID("g1"), ImmutableMap.of(
+						new UserName("u1"), inst(20000),
+						new UserName("u2"), inst(10000)),
+				new GroupID("g2"), ImmutableMap.of(new UserName("u1"), inst(30000))));
+		
+		// empty buffers aren't written
+		b.flush();
+		verify(storage).updateLastVisits(any());
+	}
+	
+	@Test
+	public void addFlushesWhenFull() throws Exception {
+		final GroupsStorage storage = mock(GroupsStorage.class);
+		final LastVisitBuffer b = new LastVisitBuffer(storage, 2);
+		
+		b.add(new GroupID("g"), new UserName("u1"), inst(10000));
+		b.add(new GroupID("g"), new UserName("u2"), inst(10000));
+		// already buffered, so no flush
+		b.add(new GroupID("g"), new UserName("u2"), inst(20000));
+		verify(storage, never()).updateLastVisits(any());
+		
+		b.add(new GroupID("g"), new UserName("u3"), inst(30000));
+		
+		verify(storage).updateLastVisits(ImmutableMap.of(new GroupID("g"), ImmutableMap.of(
+				new UserName("u1"), inst(10000),
+				new UserName("u2"), inst(20000))));
+		assertThat("incorrect size", b.size(), is(1));
+	}
+	
+	@Test
+	public void addSignalsFlushThreadWhenFull() throws Exception {
+		final GroupsStorage storage = mock(GroupsStorage.class);
+		final LastVisitBuffer b = new LastVisitBuffer(storage, 2);
+		final CountDownLatch flushed = new CountDownLatch(1);
+		final AtomicReference<String> flushThread = new AtomicReference<>();
+		doAnswer(inv -> {
+			flushThread.set(Thread.currentThread().getName());
+			flushed.countDown();
+			return null;
+		}).when(storage).updateLastVisits(any());
+		b.start(Duration.ofHours(1));
+		
+		b.add(new GroupID("g"), new UserName("u1"), inst(10000));
+		b.add(new GroupID("g"), new UserName("u2"), inst(10000));
+		b.add(new GroupID("g"), new UserName("u3"), inst(10000));
+		
+		assertThat("buffer not flushed", flushed.await(2, TimeUnit.SECONDS), is(true));
+		assertThat("incorrect flush thread", flushThread.get(), is("last-visit-buffer"));
+		b.stop();
+	}
+	
+	@Test
+	public void addFlushesWhenOverfull() throws Exception {
+		final GroupsStorage storage = mock(GroupsStorage.class);
+		final LastVisitBuffer b = new LastVisitBuffer(storage, 1);
+		final CountDownLatch release = new CountDownLatch(1);
+		// block the flush thread so the buffer fills up
+		doAnswer(inv -> {
+			if (Thread.currentThread().getName().equals("last-visit-buffer")) {
+				release.await(10, TimeUnit.SECONDS);
+			}
+			return null;
+		}).when(storage).updateLastVisits(any());
+		b.start(Duration.ofHours(1));
+		
+		b.add(new GroupID("g"), new UserName("u1"), inst(10000));
+		b.add(new GroupID("g"), new UserName("u2"), inst(10000)); // signals the flush thread
+		verify(storage, timeout(2000)).updateLastVisits(ImmutableMap.of(
+				new GroupID("g"), ImmutableMap.of(new UserName("u1"), inst(10000))));
+		b.add(new GroupID("g"), new UserName("u3"), inst(10000)); // flush pending
+		assertThat("incorrect size", b.size(), is(2));
+		
+		// twice the max size, so this thread writes the buffer
+		b.add(new GroupID("g"), new UserName("u4"), inst(10000));
+		
+		verify(storage).updateLastVisits(ImmutableMap.of(new GroupID("g"), ImmutableMap.of(
+				new UserName("u2"), inst(10000),
+				new UserName("u3"), inst(10000))));
+		assertThat("incorrect size", b.size(), is(1));
+		release.countDown();
+		b.stop();
+	}
+	
+	@Test
+	public void flushFailRestoresBuffer() throws Exception {
+		final GroupsStorage storage = mock(GroupsStorage.class);
+		final LastVisitBuffer b = new LastVisitBuffer(storage, 2);
+		
+		b.add(new GroupID("g"), new UserName("u1"), inst(10000));
+		b.add(new GroupID("g"), new UserName("u2"), inst(10000));
+		doThrow(new GroupsStorageException("oops")).when(storage).updateLastVisits(
+				ImmutableMap.of(new GroupID("g"), ImmutableMap.of(
+						new UserName("u1"), inst(10000),
+						new UserName("u2"), inst(10000))));
+		
+		// the buffer is full, so the visit isn't recorded
+		try {
+			b.add(new GroupID("g"), new UserName("u3"), inst(10000));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new GroupsStorageException("oops"));
+		}
+		assertThat("incorrect size", b.size(), is(2));
+		
+		b.add(new GroupID("g"), new UserName("u1"), inst(20000));
+		b.flush();
+		
+		verify(storage).updateLastVisits(ImmutableMap.of(new GroupID("g"), ImmutableMap.of(
+				new UserName("u1"), inst(20000),
+				new UserName("u2"), inst(10000))));
+	}
+	
+	@Test
+	public void addFailNulls() throws Exception {
+		final LastVisitBuffer b = new LastVisitBuffer(mock(GroupsStorage.class), 1);
+		final GroupID g = new GroupID("g");
+		final UserName u = new UserName("u");
+		final Instant i = inst(10000);
+		
+		failAdd(b, null, u, i, new NullPointerException("groupID"));
+		failAdd(b, g, null, i, new NullPointerException("member"));
+		failAdd(b, g, u, null, new NullPointerException("lastVisited"));
+	}
+	
+	private void failAdd(
+			final LastVisitBuffer b,
+			final GroupID g,
+			final UserName u,
+			final Instant i,
+			final Exception expected) {
+		try {
+			b.add(g, u, i);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void startAndStop() throws Exception {
+		final GroupsStorage storage = mock(GroupsStorage.class);
+		final LastVisitBuffer b = new LastVisitBuffer(storage, 10);
+		
+		assertThat("incorrect running", b.isRunning(), is(false));
+		b.start(Duration.ofSeconds(1));
+		assertThat("incorrect running", b.isRunning(), is(true));
+		try {
+			b.start(Duration.ofSeconds(1));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got,
+					new IllegalArgumentException("The buffer is already running"));
+		}
+		
+		b.add(new GroupID("g"), new UserName("u1"), inst(10000));
+		verify(storage, timeout(2000)).updateLastVisits(ImmutableMap.of(
+				new GroupID("g"), ImmutableMap.of(new UserName("u1"), inst(10000))));
+		
+		// stopping flushes the remaining visits
+		b.add(new GroupID("g"), new UserName("u2"), inst(20000));
+		b.stop();
+		assertThat("incorrect running", b.isRunning(), is(false));
+		assertThat("incorrect size", b.size(), is(0));
+		verify(storage).updateLastVisits(ImmutableMap.of(
+				new GroupID("g"), ImmutableMap.of(new UserName("u2"), inst(20000))));
+		b.stop();
+		assertThat("incorrect running", b.isRunning(), is(false));
+	}
+	
+	@Test
+	public void stopFlushFail() throws Exception {
+		final GroupsStorage storage = mock(GroupsStorage.class);
+		final LastVisitBuffer b = new LastVisitBuffer(storage, 10);
+		doThrow(new GroupsStorageException("oops")).when(storage).updateLastVisits(any());
+		
+		b.add(new GroupID("g"), new UserName("u1"), inst(10000));
+		b.stop(); // logs the error
+		
+		assertThat("incorrect size", b.size(), is(1));
+	}
+	
+	@Test
+	public void startFail() throws Exception {
+		final LastVisitBuffer b = new LastVisitBuffer(mock(GroupsStorage.class), 1);
+		failStart(b, null, new NullPointerException("interval"));
+		failStart(b, Duration.ofMillis(999),
+				new IllegalArgumentException("interval must be at least 1 second"));
+		assertThat("incorrect running", b.isRunning(), is(false));
+	}
+	
+	private void failStart(
+			final LastVisitBuffer b,
+			final Duration interval,
+			final Exception expected) {
+		try {
+			b.start(interval);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
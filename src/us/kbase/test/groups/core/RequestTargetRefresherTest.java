@@ -0,0 +1,274 @@
+package us.kbase.test.groups.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static us.kbase.test.groups.TestCommon.inst;
+import static us.kbase.test.groups.TestCommon.set;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import us.kbase.groups.core.CreateModAndExpireTimes;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.RequestTargetRefresher;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.NoSuchRequestException;
+import us.kbase.groups.core.exceptions.NoSuchResourceException;
+import us.kbase.groups.core.exceptions.ResourceHandlerException;
+import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.core.request.RequestType;
+import us.kbase.groups.core.resource.ResourceDescriptor;
+import us.kbase.groups.core.resource.ResourceHandler;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.storage.GroupsStorage;
+import us.kbase.test.groups.TestCommon;
+
+public class RequestTargetRefresherTest {
+	
+	private static final ResourceType WS = new ResourceType("workspace");
+	
+	private static GroupRequest invite(final ResourceType type, final ResourceDescriptor d)
+			throws Exception {
+		return GroupRequest.getBuilder(
+				new RequestID(UUID.randomUUID()), new GroupID("g"), new UserName("admin"),
+				CreateModAndExpireTimes.getBuilder(inst(10000), inst(20000)).build())
+				.withType(RequestType.INVITE)
+				.withResource(type, d)
+				.build();
+	}
+	
+	private static GroupRequest wsInvite(final String ws) throws Exception {
+		return invite(WS, new ResourceDescriptor(new ResourceID(ws)));
+	}
+	
+	@Test
+	public void batchSize() throws Exception {
+		assertThat("incorrect batch size", RequestTargetRefresher.BATCH_SIZE, is(500));
+	}
+	
+	@Test
+	public void constructFail() throws Exception {
+		failConstruct(null, Collections.emptyMap(), new NullPointerException("storage"));
+		failConstruct(mock(GroupsStorage.class), null,
+				new NullPointerException("resourceHandlers"));
+	}
+	
+	private void failConstruct(
+			final GroupsStorage storage,
+			final Map<ResourceType, ResourceHandler> handlers,
+			final Exception expected) {
+		try {
+			new RequestTargetRefresher(storage, handlers);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void refreshEmpty() throws Exception {
+		final GroupsStorage storage = mock(GroupsStorage.class);
+		when(storage.getOpenInvitations(Optional.empty(), 500))
+				.thenReturn(Collections.emptyList());
+		
+		assertThat("incorrect count", new RequestTargetRefresher(storage, Collections.emptyMap())
+				.refresh(), is(0));
+		
+		verify(storage, never()).setRequestTargets(any(), any());
+	}
+	
+	@Test
+	public void refresh() throws Exception {
+		final GroupsStorage storage = mock(GroupsStorage.class);
+		final ResourceHandler wh = mock(ResourceHandler.class);
+		final RequestTargetRefresher r = new RequestTargetRefresher(
+				storage, ImmutableMap.of(WS, wh));
+		
+		final GroupRequest user = invite(GroupRequest.USER_TYPE,
+				ResourceDescriptor.from(new UserName("u")));
+		final GroupRequest ws1 = wsInvite("1");
+		final GroupRequest deleted = wsInvite("2");
+		final GroupRequest error = wsInvite("3");
+		final GroupRequest closed = wsInvite("4");
+		final GroupRequest noHandler = invite(new ResourceType("catalogmethod"),
+				new ResourceDescriptor(new ResourceID("mod.meth")));
+		
+		when(storage.getOpenInvitations(Optional.empty(), 500)).thenReturn(Arrays.asList(
+				user, ws1, deleted, error, closed, noHandler));
+		when(wh.getAdministrators(new ResourceID("1")))
+				.thenReturn(set(new UserName("a1"), new UserName("a2")));
+		when(wh.getAdministrators(new ResourceID("2")))
+				.thenThrow(new NoSuchResourceException("2"));
+		when(wh.getAdministrators(new ResourceID("3")))
+				.thenThrow(new ResourceHandlerException("oops"));
+		when(wh.getAdministrators(new ResourceID("4"))).thenReturn(set(new UserName("a3")));
+		when(storage.setRequestTargets(user.getID(), set(new UserName("u")))).thenReturn(true);
+		when(storage.setRequestTargets(ws1.getID(), set(new UserName("a1"), new UserName("a2"))))
+				.thenReturn(false);
+		when(storage.setRequestTargets(deleted.getID(), set())).thenReturn(true);
+		when(storage.setRequestTargets(closed.getID(), set(new UserName("a3"))))
+				.thenThrow(new NoSuchRequestException("closed"));
+		
+		// ws1's targets are unchanged
+		assertThat("incorrect count", r.refresh(), is(2));
+		
+		verify(storage).setRequestTargets(user.getID(), set(new UserName("u")));
+		verify(storage).setRequestTargets(
+				ws1.getID(), set(new UserName("a1"), new UserName("a2")));
+		verify(storage).setRequestTargets(deleted.getID(), set());
+		verify(storage, never()).setRequestTargets(eq(error.getID()), any());
+		verify(storage, never()).setRequestTargets(eq(noHandler.getID()), any());
+	}
+	
+	@Test
+	public void refreshFetchesAdministratorsOncePerResource() throws Exception {
+		final GroupsStorage storage = mock(GroupsStorage.class);
+		final ResourceHandler wh = mock(ResourceHandler.class);
+		final RequestTargetRefresher r = new RequestTargetRefresher(
+				storage, ImmutableMap.of(WS, wh));
+		
+		final GroupRequest ws1a = wsInvite("1");
+		final GroupRequest ws1b = wsInvite("1");
+		final GroupRequest ws2 = wsInvite("2");
+		final GroupRequest ws1c = wsInvite("1");
+		final GroupRequest ws3a = wsInvite("3");
+		final GroupRequest ws3b = wsInvite("3");
+		
+		when(storage.getOpenInvitations(Optional.empty(), 500)).thenReturn(Arrays.asList(
+				ws1a, ws1b, ws2, ws1c, ws3a, ws3b));
+		when(wh.getAdministrators(new ResourceID("1"))).thenReturn(set(new UserName("a1")));
+		when(wh.getAdministrators(new ResourceID("2"))).thenReturn(set(new UserName("a2")));
+		when(wh.getAdministrators(new ResourceID("3")))
+				.thenThrow(new ResourceHandlerException("oops"));
+		when(storage.setRequestTargets(any(), any())).thenReturn(true);
+		
+		assertThat("incorrect count", r.refresh(), is(4));
+		
+		verify(wh).getAdministrators(new ResourceID("1"));
+		verify(wh).getAdministrators(new ResourceID("2"));
+		// failures are not retried within the batch
+		verify(wh).getAdministrators(new ResourceID("3"));
+		verify(storage).setRequestTargets(ws1a.getID(), set(new UserName("a1")));
+		verify(storage).setRequestTargets(ws1b.getID(), set(new UserName("a1")));
+		verify(storage).setRequestTargets(ws1c.getID(), set(new UserName("a1")));
+		verify(storage).setRequestTargets(ws2.getID(), set(new UserName("a2")));
+		verify(storage, times(4)).setRequestTargets(any(), any());
+	}
+	
+	@Test
+	public void refreshBatches() throws Exception {
+		final GroupsStorage storage = mock(GroupsStorage.class);
+		final List<GroupRequest> batch = new LinkedList<>();
+		for (int i = 0; i < 500; i++) {
+			batch.add(invite(GroupRequest.USER_TYPE,
+					ResourceDescriptor.from(new UserName("u" + i))));
+		}
+		final GroupRequest last = invite(GroupRequest.USER_TYPE,
+				ResourceDescriptor.from(new UserName("last")));
+		
+		when(storage.getOpenInvitations(Optional.empty(), 500)).thenReturn(batch);
+		when(storage.getOpenInvitations(Optional.of(batch.get(499).getID()), 500))
+				.thenReturn(Arrays.asList(last));
+		when(storage.setRequestTargets(any(), any())).thenReturn(true);
+		
+		assertThat("incorrect count", new RequestTargetRefresher(storage, Collections.emptyMap())
+				.refresh(), is(501));
+		
+		verify(storage).setRequestTargets(batch.get(0).getID(), set(new UserName("u0")));
+		verify(storage).setRequestTargets(batch.get(499).getID(), set(new UserName("u499")));
+		verify(storage).setRequestTargets(last.getID(), set(new UserName("last")));
+	}
+	
+	@Test
+	public void startAndStop() throws Exception {
+		final GroupsStorage storage = mock(GroupsStorage.class);
+		final RequestTargetRefresher r = new RequestTargetRefresher(
+				storage, Collections.emptyMap());
+		
+		when(storage.acquireLease(eq("requesttargetrefresh"), anyString(),
+				any(Instant.class), any(Instant.class))).thenReturn(Optional.of(1L));
+		when(storage.getOpenInvitations(Optional.empty(), 500))
+				.thenReturn(Collections.emptyList());
+		
+		assertThat("incorrect running", r.isRunning(), is(false));
+		r.start(Duration.ofSeconds(1));
+		assertThat("incorrect running", r.isRunning(), is(true));
+		try {
+			r.start(Duration.ofSeconds(1));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got,
+					new IllegalArgumentException("The refresher is already running"));
+		}
+		Thread.sleep(200);
+		r.stop();
+		assertThat("incorrect running", r.isRunning(), is(false));
+		r.stop();
+		assertThat("incorrect running", r.isRunning(), is(false));
+		
+		verify(storage).getOpenInvitations(Optional.empty(), 500);
+		// the lease is only released once
+		verify(storage).releaseLease(eq("requesttargetrefresh"), anyString());
+	}
+	
+	@Test
+	public void startNotLeader() throws Exception {
+		final GroupsStorage storage = mock(GroupsStorage.class);
+		final RequestTargetRefresher r = new RequestTargetRefresher(
+				storage, Collections.emptyMap());
+		
+		when(storage.acquireLease(eq("requesttargetrefresh"), anyString(),
+				any(Instant.class), any(Instant.class))).thenReturn(Optional.empty());
+		
+		r.start(Duration.ofSeconds(1));
+		Thread.sleep(200);
+		r.stop();
+		
+		verify(storage, never()).getOpenInvitations(any(), eq(500));
+		verify(storage, never()).releaseLease(anyString(), anyString());
+	}
+	
+	@Test
+	public void startFail() throws Exception {
+		final RequestTargetRefresher r = new RequestTargetRefresher(
+				mock(GroupsStorage.class), Collections.emptyMap());
+		failStart(r, null, new NullPointerException("interval"));
+		failStart(r, Duration.ofMillis(999),
+				new IllegalArgumentException("interval must be at least 1 second"));
+		assertThat("incorrect running", r.isRunning(), is(false));
+	}
+	
+	private void failStart(
+			final RequestTargetRefresher r,
+			final Duration interval,
+			final Exception expected) {
+		try {
+			r.start(interval);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
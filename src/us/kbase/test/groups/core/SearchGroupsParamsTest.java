@@ -0,0 +1,95 @@
+package us.kbase.test.groups.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Optional;
+
+import org.junit.Test;
+
+import nl.jqno.equalsverifier.EqualsVerifier;
+import us.kbase.groups.core.SearchGroupsParams;
+import us.kbase.groups.core.exceptions.IllegalParameterException;
+import us.kbase.groups.core.exceptions.MissingParameterException;
+import us.kbase.test.groups.TestCommon;
+
+public class SearchGroupsParamsTest {
+
+	@Test
+	public void equals() throws Exception {
+		EqualsVerifier.forClass(SearchGroupsParams.class).usingGetClass().verify();
+	}
+	
+	@Test
+	public void buildMinimal() throws Exception {
+		final SearchGroupsParams p = SearchGroupsParams.getBuilder("   foo bar  ").build();
+		
+		assertThat("incorrect query", p.getQuery(), is("foo bar"));
+		assertThat("incorrect limit", p.getLimit(), is(Optional.empty()));
+	}
+	
+	@Test
+	public void buildWithNullLimit() throws Exception {
+		final SearchGroupsParams p = SearchGroupsParams.getBuilder("foo")
+				.withNullableLimit(null)
+				.build();
+		
+		assertThat("incorrect query", p.getQuery(), is("foo"));
+		assertThat("incorrect limit", p.getLimit(), is(Optional.empty()));
+	}
+	
+	@Test
+	public void buildMaximal() throws Exception {
+		final String query = TestCommon.LONG1001.substring(0, 500);
+		final SearchGroupsParams p = SearchGroupsParams.getBuilder(query)
+				.withNullableLimit(1)
+				.build();
+		
+		assertThat("incorrect query", p.getQuery(), is(query));
+		assertThat("incorrect limit", p.getLimit(), is(Optional.of(1)));
+	}
+	
+	@Test
+	public void buildRemoveLimit() throws Exception {
+		final SearchGroupsParams p = SearchGroupsParams.getBuilder("foo")
+				.withNullableLimit(1)
+				.withNullableLimit(null)
+				.build();
+		
+		assertThat("incorrect limit", p.getLimit(), is(Optional.empty()));
+	}
+	
+	@Test
+	public void getBuilderFail() throws Exception {
+		getBuilderFail(null, new MissingParameterException("query"));
+		getBuilderFail("   \t   ", new MissingParameterException("query"));
+		getBuilderFail(TestCommon.LONG1001.substring(0, 501), new IllegalParameterException(
+				"query size greater than limit 500"));
+	}
+	
+	private void getBuilderFail(final String query, final Exception expected) {
+		try {
+			SearchGroupsParams.getBuilder(query);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void withNullableLimitFail() throws Exception {
+		withNullableLimitFail(0);
+		withNullableLimitFail(-1);
+	}
+	
+	private void withNullableLimitFail(final int limit) {
+		try {
+			SearchGroupsParams.getBuilder("foo").withNullableLimit(limit);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got,
+					new IllegalArgumentException("limit must be > 0"));
+		}
+	}
+}
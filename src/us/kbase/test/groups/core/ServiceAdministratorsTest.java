@@ -0,0 +1,128 @@
+package us.kbase.test.groups.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import static us.kbase.test.groups.TestCommon.set;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import us.kbase.groups.core.ServiceAdministrators;
+import us.kbase.groups.core.Token;
+import us.kbase.groups.core.UserHandler;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.InvalidTokenException;
+import us.kbase.groups.core.exceptions.UnauthorizedException;
+import us.kbase.test.groups.TestCommon;
+
+public class ServiceAdministratorsTest {
+
+	@Test
+	public void construct() throws Exception {
+		final Set<UserName> admins = new HashSet<>(set(new UserName("a1"), new UserName("a2")));
+		final ServiceAdministrators sa = new ServiceAdministrators(mock(UserHandler.class), admins);
+		admins.add(new UserName("a3"));
+		
+		assertThat("incorrect admins", sa.getAdministrators(),
+				is(set(new UserName("a1"), new UserName("a2"))));
+	}
+	
+	@Test
+	public void constructEmpty() throws Exception {
+		final ServiceAdministrators sa = new ServiceAdministrators(
+				mock(UserHandler.class), Collections.emptySet());
+		
+		assertThat("incorrect admins", sa.getAdministrators(), is(set()));
+	}
+	
+	@Test
+	public void immutable() throws Exception {
+		final ServiceAdministrators sa = new ServiceAdministrators(
+				mock(UserHandler.class), set(new UserName("a1")));
+		try {
+			sa.getAdministrators().add(new UserName("a2"));
+			fail("expected exception");
+		} catch (UnsupportedOperationException e) {
+			// test passed
+		}
+	}
+	
+	@Test
+	public void constructFail() throws Exception {
+		final UserHandler uh = mock(UserHandler.class);
+		failConstruct(null, set(), new NullPointerException("userHandler"));
+		failConstruct(uh, null, new NullPointerException("admins"));
+		failConstruct(uh, set(new UserName("a1"), null),
+				new NullPointerException("Null item in collection admins"));
+	}
+	
+	private void failConstruct(
+			final UserHandler uh,
+			final Set<UserName> admins,
+			final Exception expected) {
+		try {
+			new ServiceAdministrators(uh, admins);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void checkAdministrator() throws Exception {
+		final UserHandler uh = mock(UserHandler.class);
+		final ServiceAdministrators sa = new ServiceAdministrators(
+				uh, set(new UserName("a1"), new UserName("a2")));
+		
+		when(uh.getUser(new Token("t"))).thenReturn(new UserName("a2"));
+		
+		assertThat("incorrect admin", sa.checkAdministrator(new Token("t")),
+				is(new UserName("a2")));
+	}
+	
+	@Test
+	public void checkAdministratorFailNull() throws Exception {
+		failCheckAdministrator(new ServiceAdministrators(mock(UserHandler.class), set()),
+				null, new NullPointerException("userToken"));
+	}
+	
+	@Test
+	public void checkAdministratorFailInvalidToken() throws Exception {
+		final UserHandler uh = mock(UserHandler.class);
+		final ServiceAdministrators sa = new ServiceAdministrators(uh, set(new UserName("a1")));
+		
+		when(uh.getUser(new Token("t"))).thenThrow(new InvalidTokenException());
+		
+		failCheckAdministrator(sa, new Token("t"), new InvalidTokenException());
+	}
+	
+	@Test
+	public void checkAdministratorFailNotAdmin() throws Exception {
+		final UserHandler uh = mock(UserHandler.class);
+		final ServiceAdministrators sa = new ServiceAdministrators(uh, set(new UserName("a1")));
+		
+		when(uh.getUser(new Token("t"))).thenReturn(new UserName("u1"));
+		
+		failCheckAdministrator(sa, new Token("t"),
+				new UnauthorizedException("User u1 is not a service administrator"));
+	}
+	
+	private void failCheckAdministrator(
+			final ServiceAdministrators sa,
+			final Token token,
+			final Exception expected) {
+		try {
+			sa.checkAdministrator(token);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
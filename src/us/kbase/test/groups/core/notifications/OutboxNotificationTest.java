@@ -0,0 +1,290 @@
+package us.kbase.test.groups.core.notifications;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static us.kbase.test.groups.TestCommon.inst;
+import static us.kbase.test.groups.TestCommon.set;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import nl.jqno.equalsverifier.EqualsVerifier;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.notifications.OutboxNotification;
+import us.kbase.groups.core.notifications.OutboxNotification.Type;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.test.groups.TestCommon;
+
+public class OutboxNotificationTest {
+
+	private static final UUID ID = UUID.fromString("f5bd5fd0-cc8c-435b-a5ea-ca3f2b3a4d2f");
+	private static final UUID RID = UUID.fromString("a2b1d5b0-fc8c-435b-a5ea-ca3f2b3a4d2f");
+
+	@Test
+	public void equals() throws Exception {
+		EqualsVerifier.forClass(OutboxNotification.class).usingGetClass().verify();
+	}
+
+	@Test
+	public void types() throws Exception {
+		assertThat("incorrect types", new HashSet<>(Arrays.asList(Type.values())), is(set(
+				Type.NOTIFY, Type.CANCEL, Type.DENY, Type.ACCEPT, Type.ADD_RESOURCE)));
+	}
+
+	@Test
+	public void buildRequestMinimal() throws Exception {
+		final OutboxNotification n = OutboxNotification.getRequestBuilder(
+				ID, Type.NOTIFY, new RequestID(RID), inst(10000))
+				.build();
+		
+		assertThat("incorrect id", n.getID(), is(ID));
+		assertThat("incorrect type", n.getType(), is(Type.NOTIFY));
+		assertThat("incorrect create", n.getCreationDate(), is(inst(10000)));
+		assertThat("incorrect targets", n.getTargets(), is(Collections.emptySet()));
+		assertThat("incorrect request", n.getRequestID(), is(Optional.of(new RequestID(RID))));
+		assertThat("incorrect cancel", n.getCancelledRequestIDs(), is(Collections.emptySet()));
+		assertThat("incorrect user", n.getUser(), is(Optional.empty()));
+		assertThat("incorrect group", n.getGroupID(), is(Optional.empty()));
+		assertThat("incorrect restype", n.getResourceType(), is(Optional.empty()));
+		assertThat("incorrect resid", n.getResourceID(), is(Optional.empty()));
+		assertThat("incorrect attempts", n.getAttempts(), is(0));
+	}
+
+	@Test
+	public void buildRequestMaximal() throws Exception {
+		for (final Type t: Arrays.asList(Type.NOTIFY, Type.DENY, Type.ACCEPT)) {
+			final OutboxNotification n = OutboxNotification.getRequestBuilder(
+					ID, t, new RequestID(RID), inst(10000))
+					.withTargets(Arrays.asList(new UserName("u1"), new UserName("u2")))
+					.withTargets(set(new UserName("u3"), new UserName("u1")))
+					.withAttempts(3)
+					.withAttempts(4)
+					.build();
+
+			assertThat("incorrect id", n.getID(), is(ID));
+			assertThat("incorrect type", n.getType(), is(t));
+			assertThat("incorrect create", n.getCreationDate(), is(inst(10000)));
+			assertThat("incorrect targets", n.getTargets(), is(set(
+					new UserName("u1"), new UserName("u2"), new UserName("u3"))));
+			assertThat("incorrect request", n.getRequestID(),
+					is(Optional.of(new RequestID(RID))));
+			assertThat("incorrect cancel", n.getCancelledRequestIDs(),
+					is(Collections.emptySet()));
+			assertThat("incorrect user", n.getUser(), is(Optional.empty()));
+			assertThat("incorrect group", n.getGroupID(), is(Optional.empty()));
+			assertThat("incorrect restype", n.getResourceType(), is(Optional.empty()));
+			assertThat("incorrect resid", n.getResourceID(), is(Optional.empty()));
+			assertThat("incorrect attempts", n.getAttempts(), is(4));
+		}
+	}
+
+	@Test
+	public void buildAddResource() throws Exception {
+		final OutboxNotification n = OutboxNotification.getAddResourceBuilder(
+				ID, new UserName("u"), new GroupID("g"), new ResourceType("t"),
+				new ResourceID("r"), inst(20000))
+				.withTargets(set(new UserName("u1")))
+				.withAttempts(1)
+				.build();
+
+		assertThat("incorrect id", n.getID(), is(ID));
+		assertThat("incorrect type", n.getType(), is(Type.ADD_RESOURCE));
+		assertThat("incorrect create", n.getCreationDate(), is(inst(20000)));
+		assertThat("incorrect targets", n.getTargets(), is(set(new UserName("u1"))));
+		assertThat("incorrect request", n.getRequestID(), is(Optional.empty()));
+		assertThat("incorrect cancel", n.getCancelledRequestIDs(), is(Collections.emptySet()));
+		assertThat("incorrect user", n.getUser(), is(Optional.of(new UserName("u"))));
+		assertThat("incorrect group", n.getGroupID(), is(Optional.of(new GroupID("g"))));
+		assertThat("incorrect restype", n.getResourceType(),
+				is(Optional.of(new ResourceType("t"))));
+		assertThat("incorrect resid", n.getResourceID(), is(Optional.of(new ResourceID("r"))));
+		assertThat("incorrect attempts", n.getAttempts(), is(1));
+	}
+
+	@Test
+	public void buildCancel() throws Exception {
+		final UUID rid2 = UUID.fromString("b2b1d5b0-fc8c-435b-a5ea-ca3f2b3a4d2f");
+		final OutboxNotification n = OutboxNotification.getCancelBuilder(
+				ID, Arrays.asList(new RequestID(RID), new RequestID(rid2), new RequestID(RID)),
+				inst(10000))
+				.withAttempts(2)
+				.build();
+		
+		assertThat("incorrect id", n.getID(), is(ID));
+		assertThat("incorrect type", n.getType(), is(Type.CANCEL));
+		assertThat("incorrect create", n.getCreationDate(), is(inst(10000)));
+		assertThat("incorrect targets", n.getTargets(), is(Collections.emptySet()));
+		assertThat("incorrect request", n.getRequestID(), is(Optional.empty()));
+		assertThat("incorrect cancel", n.getCancelledRequestIDs(),
+				is(set(new RequestID(RID), new RequestID(rid2))));
+		assertThat("incorrect user", n.getUser(), is(Optional.empty()));
+		assertThat("incorrect group", n.getGroupID(), is(Optional.empty()));
+		assertThat("incorrect restype", n.getResourceType(), is(Optional.empty()));
+		assertThat("incorrect resid", n.getResourceID(), is(Optional.empty()));
+		assertThat("incorrect attempts", n.getAttempts(), is(2));
+	}
+	
+	@Test
+	public void immutableCancel() throws Exception {
+		final OutboxNotification n = OutboxNotification.getCancelBuilder(
+				ID, Arrays.asList(new RequestID(RID)), inst(10000))
+				.build();
+		try {
+			n.getCancelledRequestIDs().add(
+					new RequestID(UUID.fromString("b2b1d5b0-fc8c-435b-a5ea-ca3f2b3a4d2f")));
+			fail("expected exception");
+		} catch (UnsupportedOperationException e) {
+			// test passed
+		}
+	}
+	
+	@Test
+	public void immutable() throws Exception {
+		final OutboxNotification n = OutboxNotification.getRequestBuilder(
+				ID, Type.NOTIFY, new RequestID(RID), inst(10000))
+				.withTargets(set(new UserName("u1")))
+				.build();
+		try {
+			n.getTargets().add(new UserName("u2"));
+			fail("expected exception");
+		} catch (UnsupportedOperationException e) {
+			// test passed
+		}
+	}
+
+	@Test
+	public void getRequestBuilderFail() throws Exception {
+		final RequestID r = new RequestID(RID);
+		final Instant i = inst(10000);
+
+		failGetRequestBuilder(null, Type.NOTIFY, r, i, new NullPointerException("id"));
+		failGetRequestBuilder(ID, null, r, i, new NullPointerException("type"));
+		failGetRequestBuilder(ID, Type.ADD_RESOURCE, r, i, new IllegalArgumentException(
+				"Request notifications may not be of type ADD_RESOURCE"));
+		failGetRequestBuilder(ID, Type.CANCEL, r, i, new IllegalArgumentException(
+				"Request notifications may not be of type CANCEL"));
+		failGetRequestBuilder(ID, Type.NOTIFY, null, i, new NullPointerException("requestID"));
+		failGetRequestBuilder(ID, Type.NOTIFY, r, null,
+				new NullPointerException("creationDate"));
+	}
+
+	private void failGetRequestBuilder(
+			final UUID id,
+			final Type type,
+			final RequestID requestID,
+			final Instant created,
+			final Exception expected) {
+		try {
+			OutboxNotification.getRequestBuilder(id, type, requestID, created);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	@Test
+	public void getCancelBuilderFail() throws Exception {
+		final List<RequestID> r = Arrays.asList(new RequestID(RID));
+		final Instant i = inst(10000);
+		
+		failGetCancelBuilder(null, r, i, new NullPointerException("id"));
+		failGetCancelBuilder(ID, null, i, new NullPointerException("requestIDs"));
+		failGetCancelBuilder(ID, Arrays.asList(new RequestID(RID), null), i,
+				new NullPointerException("Null item in collection requestIDs"));
+		failGetCancelBuilder(ID, Collections.emptyList(), i,
+				new IllegalArgumentException("requestIDs may not be empty"));
+		failGetCancelBuilder(ID, r, null, new NullPointerException("creationDate"));
+	}
+	
+	private void failGetCancelBuilder(
+			final UUID id,
+			final Collection<RequestID> requestIDs,
+			final Instant created,
+			final Exception expected) {
+		try {
+			OutboxNotification.getCancelBuilder(id, requestIDs, created);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void getAddResourceBuilderFail() throws Exception {
+		final UserName u = new UserName("u");
+		final GroupID g = new GroupID("g");
+		final ResourceType t = new ResourceType("t");
+		final ResourceID r = new ResourceID("r");
+		final Instant i = inst(10000);
+
+		failGetAddResourceBuilder(null, u, g, t, r, i, new NullPointerException("id"));
+		failGetAddResourceBuilder(ID, null, g, t, r, i, new NullPointerException("user"));
+		failGetAddResourceBuilder(ID, u, null, t, r, i, new NullPointerException("groupID"));
+		failGetAddResourceBuilder(ID, u, g, null, r, i,
+				new NullPointerException("resourceType"));
+		failGetAddResourceBuilder(ID, u, g, t, null, i, new NullPointerException("resourceID"));
+		failGetAddResourceBuilder(ID, u, g, t, r, null,
+				new NullPointerException("creationDate"));
+	}
+
+	private void failGetAddResourceBuilder(
+			final UUID id,
+			final UserName user,
+			final GroupID groupID,
+			final ResourceType type,
+			final ResourceID resource,
+			final Instant created,
+			final Exception expected) {
+		try {
+			OutboxNotification.getAddResourceBuilder(id, user, groupID, type, resource, created);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	@Test
+	public void withTargetsFail() throws Exception {
+		failWithTargets(null, new NullPointerException("targets"));
+		failWithTargets(Arrays.asList(new UserName("u"), null),
+				new NullPointerException("Null item in collection targets"));
+	}
+
+	private void failWithTargets(final Collection<UserName> targets, final Exception expected)
+			throws Exception {
+		try {
+			getBuilder().withTargets(targets);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	@Test
+	public void withAttemptsFail() throws Exception {
+		try {
+			getBuilder().withAttempts(-1);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got,
+					new IllegalArgumentException("attempts must be >= 0"));
+		}
+	}
+
+	private OutboxNotification.Builder getBuilder() throws Exception {
+		return OutboxNotification.getRequestBuilder(
+				ID, Type.NOTIFY, new RequestID(RID), inst(10000));
+	}
+}
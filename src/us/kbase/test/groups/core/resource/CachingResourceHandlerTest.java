@@ -0,0 +1,290 @@
+package us.kbase.test.groups.core.resource;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static us.kbase.test.groups.TestCommon.set;
+
+import java.lang.reflect.Constructor;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.NoSuchResourceException;
+import us.kbase.groups.core.exceptions.ResourceHandlerException;
+import us.kbase.groups.core.resource.CachingResourceHandler;
+import us.kbase.groups.core.resource.ResourceAccess;
+import us.kbase.groups.core.resource.ResourceAdministrativeID;
+import us.kbase.groups.core.resource.ResourceDescriptor;
+import us.kbase.groups.core.resource.ResourceHandler;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceInformationSet;
+import us.kbase.test.groups.TestCommon;
+
+public class CachingResourceHandlerTest {
+	
+	private static class FakeTicker extends Ticker {
+		
+		private final AtomicLong nanos = new AtomicLong();
+		
+		@Override
+		public long read() {
+			return nanos.get();
+		}
+		
+		private void advance(final Duration d) {
+			nanos.addAndGet(d.toNanos());
+		}
+	}
+	
+	private CachingResourceHandler getHandler(
+			final ResourceHandler wrapped,
+			final int maxSize,
+			final Duration ttl,
+			final Ticker ticker)
+			throws Exception {
+		final Constructor<CachingResourceHandler> c = CachingResourceHandler.class
+				.getDeclaredConstructor(
+						ResourceHandler.class, int.class, Duration.class, Ticker.class);
+		c.setAccessible(true);
+		return c.newInstance(wrapped, maxSize, ttl, ticker);
+	}
+	
+	private static ResourceAdministrativeID aid(final String id) throws Exception {
+		return new ResourceAdministrativeID(id);
+	}
+	
+	@Test
+	public void constructFail() throws Exception {
+		final ResourceHandler h = mock(ResourceHandler.class);
+		final Duration d = Duration.ofSeconds(1);
+		
+		failConstruct(null, 1, d, new NullPointerException("wrapped"));
+		failConstruct(h, 0, d, new IllegalArgumentException("maxSize must be > 0"));
+		failConstruct(h, 1, null, new NullPointerException("ttl"));
+		failConstruct(h, 1, Duration.ZERO, new IllegalArgumentException("ttl must be positive"));
+		failConstruct(h, 1, Duration.ofSeconds(-1),
+				new IllegalArgumentException("ttl must be positive"));
+	}
+	
+	private void failConstruct(
+			final ResourceHandler wrapped,
+			final int maxSize,
+			final Duration ttl,
+			final Exception expected) {
+		try {
+			new CachingResourceHandler(wrapped, maxSize, ttl);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void getAdministratedResourcesCaches() throws Exception {
+		final ResourceHandler w = mock(ResourceHandler.class);
+		final FakeTicker ticker = new FakeTicker();
+		final CachingResourceHandler h = getHandler(w, 10, Duration.ofSeconds(30), ticker);
+		
+		when(w.getAdministratedResources(new UserName("u"))).thenReturn(set(aid("1"), aid("2")));
+		
+		assertThat("incorrect resources", h.getAdministratedResources(new UserName("u")),
+				is(set(aid("1"), aid("2"))));
+		ticker.advance(Duration.ofSeconds(29));
+		assertThat("incorrect resources", h.getAdministratedResources(new UserName("u")),
+				is(set(aid("1"), aid("2"))));
+		verify(w, times(1)).getAdministratedResources(new UserName("u"));
+		
+		ticker.advance(Duration.ofSeconds(1));
+		assertThat("incorrect resources", h.getAdministratedResources(new UserName("u")),
+				is(set(aid("1"), aid("2"))));
+		verify(w, times(2)).getAdministratedResources(new UserName("u"));
+	}
+	
+	@Test
+	public void getAdministratedResourcesEvictsLRU() throws Exception {
+		final ResourceHandler w = mock(ResourceHandler.class);
+		final CachingResourceHandler h = getHandler(
+				w, 1, Duration.ofSeconds(30), new FakeTicker());
+		
+		when(w.getAdministratedResources(new UserName("u1"))).thenReturn(set(aid("1")));
+		when(w.getAdministratedResources(new UserName("u2"))).thenReturn(set(aid("2")));
+		
+		h.getAdministratedResources(new UserName("u1"));
+		h.getAdministratedResources(new UserName("u2"));
+		h.getAdministratedResources(new UserName("u1"));
+		
+		verify(w, times(2)).getAdministratedResources(new UserName("u1"));
+		verify(w, times(1)).getAdministratedResources(new UserName("u2"));
+	}
+	
+	@Test
+	public void getAdministratedResourcesFail() throws Exception {
+		final ResourceHandler w = mock(ResourceHandler.class);
+		final CachingResourceHandler h = new CachingResourceHandler(w, 10, Duration.ofSeconds(1));
+		
+		when(w.getAdministratedResources(new UserName("u")))
+				.thenThrow(new ResourceHandlerException("oops"))
+				.thenReturn(set(aid("1")));
+		
+		try {
+			h.getAdministratedResources(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("user"));
+		}
+		try {
+			h.getAdministratedResources(new UserName("u"));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new ResourceHandlerException("oops"));
+		}
+		// errors are not cached
+		assertThat("incorrect resources", h.getAdministratedResources(new UserName("u")),
+				is(set(aid("1"))));
+	}
+	
+	@Test
+	public void setReadPermissionInvalidates() throws Exception {
+		final ResourceHandler w = mock(ResourceHandler.class);
+		final CachingResourceHandler h = getHandler(
+				w, 10, Duration.ofSeconds(30), new FakeTicker());
+		
+		when(w.getAdministratedResources(new UserName("u"))).thenReturn(set(aid("1")));
+		
+		h.getAdministratedResources(new UserName("u"));
+		h.setReadPermission(new ResourceID("2"), new UserName("u"));
+		h.getAdministratedResources(new UserName("u"));
+		
+		verify(w).setReadPermission(new ResourceID("2"), new UserName("u"));
+		verify(w, times(2)).getAdministratedResources(new UserName("u"));
+	}
+	
+	@Test
+	public void setReadPermissionFailInvalidates() throws Exception {
+		final ResourceHandler w = mock(ResourceHandler.class);
+		final CachingResourceHandler h = getHandler(
+				w, 10, Duration.ofSeconds(30), new FakeTicker());
+		
+		when(w.getAdministratedResources(new UserName("u"))).thenReturn(set(aid("1")));
+		doThrow(new NoSuchResourceException("2"))
+				.when(w).setReadPermission(new ResourceID("2"), new UserName("u"));
+		
+		h.getAdministratedResources(new UserName("u"));
+		try {
+			h.setReadPermission(new ResourceID("2"), new UserName("u"));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NoSuchResourceException("2"));
+		}
+		h.getAdministratedResources(new UserName("u"));
+		
+		verify(w, times(2)).getAdministratedResources(new UserName("u"));
+	}
+	
+	@Test
+	public void isAdministratorReconciles() throws Exception {
+		final ResourceHandler w = mock(ResourceHandler.class);
+		final CachingResourceHandler h = getHandler(
+				w, 10, Duration.ofSeconds(30), new FakeTicker());
+		
+		when(w.getAdministratedResources(new UserName("u"))).thenReturn(set(aid("1")));
+		when(w.getDescriptor(new ResourceID("1"))).thenReturn(
+				new ResourceDescriptor(new ResourceID("1")));
+		when(w.getDescriptor(new ResourceID("2"))).thenReturn(
+				new ResourceDescriptor(new ResourceID("2")));
+		when(w.isAdministrator(new ResourceID("1"), new UserName("u"))).thenReturn(true);
+		when(w.isAdministrator(new ResourceID("2"), new UserName("u"))).thenReturn(false, true);
+		
+		// not cached, so no descriptor needed
+		assertThat("incorrect admin", h.isAdministrator(
+				new ResourceID("1"), new UserName("u")), is(true));
+		verify(w, never()).getDescriptor(new ResourceID("1"));
+		
+		h.getAdministratedResources(new UserName("u"));
+		// results agree with the cache
+		assertThat("incorrect admin", h.isAdministrator(
+				new ResourceID("1"), new UserName("u")), is(true));
+		assertThat("incorrect admin", h.isAdministrator(
+				new ResourceID("2"), new UserName("u")), is(false));
+		h.getAdministratedResources(new UserName("u"));
+		verify(w, times(1)).getAdministratedResources(new UserName("u"));
+		
+		// the user became an admin of 2
+		assertThat("incorrect admin", h.isAdministrator(
+				new ResourceID("2"), new UserName("u")), is(true));
+		h.getAdministratedResources(new UserName("u"));
+		verify(w, times(2)).getAdministratedResources(new UserName("u"));
+	}
+	
+	@Test
+	public void getAdministratorsReconciles() throws Exception {
+		final ResourceHandler w = mock(ResourceHandler.class);
+		final CachingResourceHandler h = getHandler(
+				w, 10, Duration.ofSeconds(30), new FakeTicker());
+		
+		when(w.getAdministratedResources(new UserName("u1"))).thenReturn(set(aid("1")));
+		when(w.getAdministratedResources(new UserName("u2"))).thenReturn(set(aid("2")));
+		when(w.getDescriptor(new ResourceID("1"))).thenReturn(
+				new ResourceDescriptor(new ResourceID("1")));
+		when(w.getAdministrators(new ResourceID("1")))
+				.thenReturn(set(new UserName("u1"), new UserName("u2")));
+		
+		// not cached, so no descriptor needed
+		assertThat("incorrect admins", h.getAdministrators(new ResourceID("1")),
+				is(set(new UserName("u1"), new UserName("u2"))));
+		verify(w, never()).getDescriptor(new ResourceID("1"));
+		
+		h.getAdministratedResources(new UserName("u1"));
+		h.getAdministratedResources(new UserName("u2"));
+		assertThat("incorrect admins", h.getAdministrators(new ResourceID("1")),
+				is(set(new UserName("u1"), new UserName("u2"))));
+		h.getAdministratedResources(new UserName("u1"));
+		h.getAdministratedResources(new UserName("u2"));
+		
+		// u1's entry is correct, u2's is missing resource 1
+		verify(w, times(1)).getAdministratedResources(new UserName("u1"));
+		verify(w, times(2)).getAdministratedResources(new UserName("u2"));
+	}
+	
+	@Test
+	public void passThrough() throws Exception {
+		final ResourceHandler w = mock(ResourceHandler.class);
+		final CachingResourceHandler h = new CachingResourceHandler(w, 10, Duration.ofSeconds(1));
+		
+		final ResourceDescriptor d = new ResourceDescriptor(new ResourceID("1"));
+		final ResourceInformationSet ris = ResourceInformationSet
+				.getBuilder(new UserName("u")).build();
+		when(w.getDescriptor(new ResourceID("1"))).thenReturn(d);
+		when(w.isPublic(new ResourceID("1"))).thenReturn(true);
+		when(w.getResourceInformation(
+				new UserName("u"), set(new ResourceID("1")), ResourceAccess.ALL))
+				.thenReturn(ris);
+		
+		assertThat("incorrect descriptor", h.getDescriptor(new ResourceID("1")), is(d));
+		assertThat("incorrect public", h.isPublic(new ResourceID("1")), is(true));
+		assertThat("incorrect info", h.getResourceInformation(
+				new UserName("u"), set(new ResourceID("1")), ResourceAccess.ALL), is(ris));
+	}
+	
+	@Test
+	public void invalidateFail() throws Exception {
+		try {
+			new CachingResourceHandler(mock(ResourceHandler.class), 1, Duration.ofSeconds(1))
+					.invalidate(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("user"));
+		}
+	}
+}
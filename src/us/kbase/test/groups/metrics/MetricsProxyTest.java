@@ -0,0 +1,114 @@
+package us.kbase.test.groups.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+
+import us.kbase.groups.core.Token;
+import us.kbase.groups.core.UserHandler;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.InvalidTokenException;
+import us.kbase.groups.metrics.MetricsProxy;
+import us.kbase.groups.metrics.MetricsRegistry;
+import us.kbase.test.groups.TestCommon;
+
+public class MetricsProxyTest {
+	
+	private static final String DEP = "groups_dependency_call_duration_seconds";
+	private static final String ERR = "groups_dependency_call_errors_total";
+	
+	private static boolean contains(final MetricsRegistry r, final String line) {
+		return r.toPrometheusText().contains(line + "\n");
+	}
+	
+	@Test
+	public void call() throws Exception {
+		final UserHandler uh = mock(UserHandler.class);
+		final MetricsRegistry r = new MetricsRegistry();
+		final UserHandler proxy = MetricsProxy.instrument(UserHandler.class, uh, "auth", r);
+		
+		when(uh.getUser(new Token("t"))).thenReturn(new UserName("u"));
+		when(uh.isValidUser(new UserName("u"))).thenReturn(true);
+		
+		assertThat("incorrect user", proxy.getUser(new Token("t")), is(new UserName("u")));
+		assertThat("incorrect user", proxy.getUser(new Token("t")), is(new UserName("u")));
+		assertThat("incorrect valid", proxy.isValidUser(new UserName("u")), is(true));
+		
+		assertThat("incorrect count", contains(r,
+				DEP + "_count{dependency=\"auth\",operation=\"getUser\"} 2"), is(true));
+		assertThat("incorrect count", contains(r,
+				DEP + "_count{dependency=\"auth\",operation=\"isValidUser\"} 1"), is(true));
+		assertThat("incorrect errors", r.toPrometheusText().contains(ERR + "{"), is(false));
+	}
+	
+	@Test
+	public void objectMethodsNotRecorded() throws Exception {
+		final UserHandler uh = mock(UserHandler.class);
+		final MetricsRegistry r = new MetricsRegistry();
+		final UserHandler proxy = MetricsProxy.instrument(UserHandler.class, uh, "auth", r);
+		
+		proxy.toString();
+		proxy.hashCode();
+		
+		assertThat("incorrect metrics", r.toPrometheusText(),
+				is(new MetricsRegistry().toPrometheusText()));
+	}
+	
+	@Test
+	public void exception() throws Exception {
+		final UserHandler uh = mock(UserHandler.class);
+		final MetricsRegistry r = new MetricsRegistry();
+		final UserHandler proxy = MetricsProxy.instrument(UserHandler.class, uh, "auth", r);
+		
+		when(uh.getUser(new Token("t"))).thenThrow(new InvalidTokenException());
+		
+		try {
+			proxy.getUser(new Token("t"));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new InvalidTokenException());
+		}
+		
+		verify(uh).getUser(new Token("t"));
+		verifyNoMoreInteractions(uh);
+		assertThat("incorrect count", contains(r,
+				DEP + "_count{dependency=\"auth\",operation=\"getUser\"} 1"), is(true));
+		assertThat("incorrect errors", contains(r, ERR + "{dependency=\"auth\"," +
+				"operation=\"getUser\",exception=\"InvalidTokenException\"} 1"), is(true));
+	}
+	
+	@Test
+	public void instrumentFail() throws Exception {
+		final UserHandler uh = mock(UserHandler.class);
+		final MetricsRegistry r = new MetricsRegistry();
+		failInstrument(null, uh, "d", r, new NullPointerException("iface"));
+		failInstrument(UserHandler.class, null, "d", r, new NullPointerException("delegate"));
+		failInstrument(UserHandler.class, uh, null, r, new IllegalArgumentException(
+				"dependency cannot be null or whitespace only"));
+		failInstrument(UserHandler.class, uh, "   \t ", r, new IllegalArgumentException(
+				"dependency cannot be null or whitespace only"));
+		failInstrument(UserHandler.class, uh, "d", null, new NullPointerException("registry"));
+		failInstrument(Object.class, new Object(), "d", r, new IllegalArgumentException(
+				"java.lang.Object is not an interface"));
+	}
+	
+	private <T> void failInstrument(
+			final Class<T> iface,
+			final T delegate,
+			final String dependency,
+			final MetricsRegistry registry,
+			final Exception expected) {
+		try {
+			MetricsProxy.instrument(iface, delegate, dependency, registry);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
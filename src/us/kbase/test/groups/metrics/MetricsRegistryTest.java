@@ -0,0 +1,248 @@
+package us.kbase.test.groups.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.junit.Test;
+
+import us.kbase.groups.core.exceptions.NoSuchGroupException;
+import us.kbase.groups.metrics.LatencyHistogram;
+import us.kbase.groups.metrics.MetricsRegistry;
+import us.kbase.test.groups.TestCommon;
+
+public class MetricsRegistryTest {
+	
+	private static final String REQ = "groups_http_request_duration_seconds";
+	private static final String DEP = "groups_dependency_call_duration_seconds";
+	private static final String ERR = "groups_dependency_call_errors_total";
+	private static final String HIT = "groups_cache_hits_total";
+	private static final String MISS = "groups_cache_misses_total";
+	
+	private static final String REQ_HEADER =
+			"# HELP " + REQ + " Latency of API requests by route.\n" +
+			"# TYPE " + REQ + " histogram\n";
+	private static final String DEP_HEADER =
+			"# HELP " + DEP + " Latency of calls to the service's dependencies.\n" +
+			"# TYPE " + DEP + " histogram\n";
+	private static final String ERR_HEADER =
+			"# HELP " + ERR + " Calls to the service's dependencies that threw an exception.\n" +
+			"# TYPE " + ERR + " counter\n";
+	private static final String HIT_HEADER =
+			"# HELP " + HIT + " Cache lookups that found the entry.\n" +
+			"# TYPE " + HIT + " counter\n";
+	private static final String MISS_HEADER =
+			"# HELP " + MISS + " Cache lookups that did not find the entry.\n" +
+			"# TYPE " + MISS + " counter\n";
+	
+	private static final List<String> LE = Arrays.asList("0.001", "0.0025", "0.005", "0.01",
+			"0.025", "0.05", "0.1", "0.25", "0.5", "1.0", "2.5", "5.0", "10.0", "+Inf");
+	
+	private static String histogram(
+			final String name,
+			final String labels,
+			final List<Long> cumulativeCounts,
+			final String sum) {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < LE.size(); i++) {
+			sb.append(name + "_bucket{" + labels + ",le=\"" + LE.get(i) + "\"} " +
+					cumulativeCounts.get(i) + "\n");
+		}
+		sb.append(name + "_sum{" + labels + "} " + sum + "\n");
+		sb.append(name + "_count{" + labels + "} " +
+				cumulativeCounts.get(cumulativeCounts.size() - 1) + "\n");
+		return sb.toString();
+	}
+	
+	@Test
+	public void histogramBuckets() throws Exception {
+		final LatencyHistogram h = new LatencyHistogram();
+		assertThat("incorrect counts", h.getCumulativeCounts(),
+				is(Arrays.asList(0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L)));
+		assertThat("incorrect sum", h.getSumSeconds(), is(0.0));
+		
+		h.observe(-1); // treated as 0
+		h.observe(1_000_000); // on the boundary
+		h.observe(1_000_001);
+		h.observe(300_000_000);
+		h.observe(10_000_000_001L);
+		
+		assertThat("incorrect counts", h.getCumulativeCounts(),
+				is(Arrays.asList(2L, 3L, 3L, 3L, 3L, 3L, 3L, 3L, 4L, 4L, 4L, 4L, 4L, 5L)));
+		assertThat("incorrect sum", h.getSumSeconds(), is(10.302000002));
+	}
+	
+	@Test
+	public void empty() throws Exception {
+		assertThat("incorrect text", new MetricsRegistry().toPrometheusText(),
+				is(REQ_HEADER + DEP_HEADER + ERR_HEADER + HIT_HEADER + MISS_HEADER));
+	}
+	
+	@Test
+	public void observeAndRender() throws Exception {
+		final MetricsRegistry r = new MetricsRegistry();
+		
+		r.observeRequest("GET", "/group/{groupid}", 200, 2_000_000);
+		r.observeRequest("GET", "/group/{groupid}", 200, 40_000_000);
+		r.observeRequest("GET", "/group/{groupid}", 404, 500_000);
+		r.observeRequest("DELETE", "/a\\b\"c\nd", 500, 20_000_000_000L);
+		
+		r.observeDependencyCall("workspace", "getResourceInformation", 100_000_000);
+		r.observeDependencyCall("mongo", "getGroup", 3_000_000);
+		
+		r.countDependencyError("mongo", "getGroup", new NoSuchGroupException("foo"));
+		r.countDependencyError("mongo", "getGroup", new NoSuchGroupException("bar"));
+		r.countDependencyError("auth", "getUser", new IOException("oops"));
+		
+		final String expected = REQ_HEADER +
+				histogram(REQ, "method=\"DELETE\",route=\"/a\\\\b\\\"c\\nd\",status=\"500\"",
+						Arrays.asList(0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 1L),
+						"20.0") +
+				histogram(REQ, "method=\"GET\",route=\"/group/{groupid}\",status=\"200\"",
+						Arrays.asList(0L, 1L, 1L, 1L, 1L, 2L, 2L, 2L, 2L, 2L, 2L, 2L, 2L, 2L),
+						"0.042") +
+				histogram(REQ, "method=\"GET\",route=\"/group/{groupid}\",status=\"404\"",
+						Arrays.asList(1L, 1L, 1L, 1L, 1L, 1L, 1L, 1L, 1L, 1L, 1L, 1L, 1L, 1L),
+						"5.0E-4") +
+				DEP_HEADER +
+				histogram(DEP, "dependency=\"mongo\",operation=\"getGroup\"",
+						Arrays.asList(0L, 0L, 1L, 1L, 1L, 1L, 1L, 1L, 1L, 1L, 1L, 1L, 1L, 1L),
+						"0.003") +
+				histogram(DEP, "dependency=\"workspace\",operation=\"getResourceInformation\"",
+						Arrays.asList(0L, 0L, 0L, 0L, 0L, 0L, 1L, 1L, 1L, 1L, 1L, 1L, 1L, 1L),
+						"0.1") +
+				ERR_HEADER +
+				ERR + "{dependency=\"auth\",operation=\"getUser\",exception=\"IOException\"} 1\n" +
+				ERR + "{dependency=\"mongo\",operation=\"getGroup\"," +
+						"exception=\"NoSuchGroupException\"} 2\n" +
+				HIT_HEADER + MISS_HEADER;
+		
+		assertThat("incorrect text", r.toPrometheusText(), is(expected));
+	}
+	
+	@Test
+	public void registerCache() throws Exception {
+		final MetricsRegistry r = new MetricsRegistry();
+		final AtomicLong tokenHits = new AtomicLong();
+		
+		r.registerCache("token", () -> tokenHits.get(), () -> 7);
+		r.registerCache("group", () -> 1, () -> 2);
+		r.registerCache("group", () -> 3, () -> 4); // replaces the first group cache
+		tokenHits.set(42); // counts are read when the metrics are rendered
+		
+		final String expected = REQ_HEADER + DEP_HEADER + ERR_HEADER +
+				HIT_HEADER +
+				HIT + "{cache=\"group\"} 3\n" +
+				HIT + "{cache=\"token\"} 42\n" +
+				MISS_HEADER +
+				MISS + "{cache=\"group\"} 4\n" +
+				MISS + "{cache=\"token\"} 7\n";
+		
+		assertThat("incorrect text", r.toPrometheusText(), is(expected));
+	}
+	
+	@Test
+	public void registerCacheFail() throws Exception {
+		final LongSupplier s = () -> 1;
+		failRegisterCache(null, s, s, new IllegalArgumentException(
+				"cache cannot be null or whitespace only"));
+		failRegisterCache("  \t  ", s, s, new IllegalArgumentException(
+				"cache cannot be null or whitespace only"));
+		failRegisterCache("c", null, s, new NullPointerException("hits"));
+		failRegisterCache("c", s, null, new NullPointerException("misses"));
+	}
+	
+	private void failRegisterCache(
+			final String cache,
+			final LongSupplier hits,
+			final LongSupplier misses,
+			final Exception expected) {
+		try {
+			new MetricsRegistry().registerCache(cache, hits, misses);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void observeRequestFail() throws Exception {
+		failObserveRequest(null, "r", new IllegalArgumentException(
+				"method cannot be null or whitespace only"));
+		failObserveRequest("  \t  ", "r", new IllegalArgumentException(
+				"method cannot be null or whitespace only"));
+		failObserveRequest("m", null, new IllegalArgumentException(
+				"route cannot be null or whitespace only"));
+		failObserveRequest("m", "  \t  ", new IllegalArgumentException(
+				"route cannot be null or whitespace only"));
+	}
+	
+	private void failObserveRequest(
+			final String method,
+			final String route,
+			final Exception expected) {
+		try {
+			new MetricsRegistry().observeRequest(method, route, 200, 1);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void observeDependencyCallFail() throws Exception {
+		failObserveDependencyCall(null, "o", new IllegalArgumentException(
+				"dependency cannot be null or whitespace only"));
+		failObserveDependencyCall("  \t  ", "o", new IllegalArgumentException(
+				"dependency cannot be null or whitespace only"));
+		failObserveDependencyCall("d", null, new IllegalArgumentException(
+				"operation cannot be null or whitespace only"));
+		failObserveDependencyCall("d", "  \t  ", new IllegalArgumentException(
+				"operation cannot be null or whitespace only"));
+	}
+	
+	private void failObserveDependencyCall(
+			final String dependency,
+			final String operation,
+			final Exception expected) {
+		try {
+			new MetricsRegistry().observeDependencyCall(dependency, operation, 1);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void countDependencyErrorFail() throws Exception {
+		final Exception e = new IOException();
+		failCountDependencyError(null, "o", e, new IllegalArgumentException(
+				"dependency cannot be null or whitespace only"));
+		failCountDependencyError("  \t  ", "o", e, new IllegalArgumentException(
+				"dependency cannot be null or whitespace only"));
+		failCountDependencyError("d", null, e, new IllegalArgumentException(
+				"operation cannot be null or whitespace only"));
+		failCountDependencyError("d", "  \t  ", e, new IllegalArgumentException(
+				"operation cannot be null or whitespace only"));
+		failCountDependencyError("d", "o", null, new NullPointerException("error"));
+	}
+	
+	private void failCountDependencyError(
+			final String dependency,
+			final String operation,
+			final Throwable error,
+			final Exception expected) {
+		try {
+			new MetricsRegistry().countDependencyError(dependency, operation, error);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
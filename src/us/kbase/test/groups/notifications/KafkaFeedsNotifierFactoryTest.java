@@ -14,6 +14,8 @@ import java.io.ByteArrayOutputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -190,30 +192,47 @@ public class KafkaFeedsNotifierFactoryTest {
 		final TestMocks mocks = initTestMocks("mytopic2", "localhost:9081");
 		
 		final UUID id = UUID.randomUUID();
+		final UUID id2 = UUID.randomUUID();
 		@SuppressWarnings("unchecked")
 		final Future<RecordMetadata> fut = mock(Future.class);
 		
 		when(mocks.client.send(new ProducerRecord<String, Map<String,Object>>("mytopic2",
 				MapBuilder.<String, Object>newHashMap()
 				.with("operation", "expire")
-				.with("external_ids", Arrays.asList(id.toString()))
+				.with("external_ids", Arrays.asList(id.toString(), id2.toString()))
 				.with("source", "groupsservice")
 				.build())))
 				.thenReturn(fut);
 		
-		mocks.notis.cancel(new RequestID(id));
+		mocks.notis.cancel(Arrays.asList(new RequestID(id), new RequestID(id2)));
 		
 		verify(mocks.client).partitionsFor("mytopic2");
 		verify(fut).get(35000, TimeUnit.MILLISECONDS);
 	}
 	
+	@Test
+	public void cancelEmpty() throws Exception {
+		final TestMocks mocks = initTestMocks("mytopic", "localhost:9081");
+		
+		mocks.notis.cancel(Collections.emptyList());
+		
+		verify(mocks.client).partitionsFor("mytopic");
+		verifyNoMoreInteractions(mocks.client);
+	}
+	
 	@Test
 	public void cancelFailNull() throws Exception {
+		failCancel(null, new NullPointerException("requestIDs"));
+		failCancel(Arrays.asList(new RequestID(UUID.randomUUID()), null),
+				new NullPointerException("Null item in collection requestIDs"));
+	}
+	
+	private void failCancel(final Collection<RequestID> ids, final Exception expected) {
 		try {
-			initTestMocks("t", "b").notis.cancel(null);
+			initTestMocks("t", "b").notis.cancel(ids);
 			fail("expected exception");
 		} catch (Exception got) {
-			TestCommon.assertExceptionCorrect(got, new NullPointerException("requestID"));
+			TestCommon.assertExceptionCorrect(got, expected);
 		}
 	}
 	
@@ -608,7 +627,7 @@ public class KafkaFeedsNotifierFactoryTest {
 				new ExecutionException("not this one", new IllegalStateException("this one")));
 		
 		try {
-			mocks.notis.cancel(new RequestID(id));
+			mocks.notis.cancel(Arrays.asList(new RequestID(id)));
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, new RuntimeException(
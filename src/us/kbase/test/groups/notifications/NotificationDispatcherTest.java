@@ -0,0 +1,343 @@
+package us.kbase.test.groups.notifications;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static us.kbase.test.groups.TestCommon.inst;
+import static us.kbase.test.groups.TestCommon.set;
+
+import java.lang.reflect.Constructor;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import us.kbase.groups.core.CreateModAndExpireTimes;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.NoSuchRequestException;
+import us.kbase.groups.core.notifications.Notifications;
+import us.kbase.groups.core.notifications.OutboxNotification;
+import us.kbase.groups.core.notifications.OutboxNotification.Type;
+import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.core.request.GroupRequestStatus;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.notifications.NotificationDispatcher;
+import us.kbase.groups.storage.GroupsStorage;
+import us.kbase.test.groups.TestCommon;
+
+public class NotificationDispatcherTest {
+
+	private static final UUID ID1 = UUID.fromString("f5bd5fd0-cc8c-435b-a5ea-ca3f2b3a4d2f");
+	private static final UUID ID2 = UUID.fromString("e5bd5fd0-cc8c-435b-a5ea-ca3f2b3a4d2f");
+	private static final UUID ID3 = UUID.fromString("d5bd5fd0-cc8c-435b-a5ea-ca3f2b3a4d2f");
+	private static final UUID RID = UUID.fromString("a2b1d5b0-fc8c-435b-a5ea-ca3f2b3a4d2f");
+
+	private static TestMocks initTestMocks() throws Exception {
+		final GroupsStorage storage = mock(GroupsStorage.class);
+		final Notifications notis = mock(Notifications.class);
+		final Clock clock = mock(Clock.class);
+
+		final Constructor<NotificationDispatcher> c = NotificationDispatcher.class
+				.getDeclaredConstructor(GroupsStorage.class, Notifications.class, Clock.class);
+		c.setAccessible(true);
+		final NotificationDispatcher dispatcher = c.newInstance(storage, notis, clock);
+		return new TestMocks(dispatcher, storage, notis, clock);
+	}
+
+	private static final class TestMocks {
+		private final NotificationDispatcher dispatcher;
+		private final GroupsStorage storage;
+		private final Notifications notis;
+		private final Clock clock;
+
+		private TestMocks(
+				final NotificationDispatcher dispatcher,
+				final GroupsStorage storage,
+				final Notifications notis,
+				final Clock clock) {
+			this.dispatcher = dispatcher;
+			this.storage = storage;
+			this.notis = notis;
+			this.clock = clock;
+		}
+	}
+
+	private static GroupRequest getRequest() throws Exception {
+		return GroupRequest.getBuilder(
+				new RequestID(RID), new GroupID("i"), new UserName("n"),
+				CreateModAndExpireTimes.getBuilder(inst(1), inst(2)).build())
+				.build();
+	}
+
+	private static OutboxNotification requestNotification(
+			final UUID id,
+			final Type type,
+			final int attempts)
+			throws Exception {
+		return OutboxNotification.getRequestBuilder(id, type, new RequestID(RID), inst(5000))
+				.withTargets(set(new UserName("t1"), new UserName("t2")))
+				.withAttempts(attempts)
+				.build();
+	}
+	
+	private static OutboxNotification cancelNotification(final UUID id, final int attempts)
+			throws Exception {
+		return OutboxNotification.getCancelBuilder(id, set(new RequestID(RID)), inst(5000))
+				.withAttempts(attempts)
+				.build();
+	}
+
+	@Test
+	public void batchSize() throws Exception {
+		assertThat("incorrect batch size", NotificationDispatcher.BATCH_SIZE, is(10));
+	}
+
+	@Test
+	public void constructFail() throws Exception {
+		failConstruct(null, mock(Notifications.class), new NullPointerException("storage"));
+		failConstruct(mock(GroupsStorage.class), null, new NullPointerException("notifier"));
+	}
+
+	private void failConstruct(
+			final GroupsStorage storage,
+			final Notifications notifier,
+			final Exception expected) {
+		try {
+			new NotificationDispatcher(storage, notifier);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	@Test
+	public void dispatchEmpty() throws Exception {
+		final TestMocks mocks = initTestMocks();
+
+		when(mocks.clock.instant()).thenReturn(inst(10000));
+		when(mocks.storage.claimNotifications(inst(10000), inst(610000), 10))
+				.thenReturn(Collections.emptyList());
+
+		assertThat("incorrect count", mocks.dispatcher.dispatch(), is(0));
+
+		verify(mocks.storage).claimNotifications(inst(10000), inst(610000), 10);
+		verifyNoMoreInteractions(mocks.storage);
+		verifyZeroInteractions(mocks.notis);
+	}
+
+	@Test
+	public void dispatchRequests() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		final GroupRequest r = getRequest();
+
+		when(mocks.clock.instant()).thenReturn(inst(10000));
+		when(mocks.storage.claimNotifications(inst(10000), inst(610000), 10))
+				.thenReturn(Arrays.asList(
+						requestNotification(ID1, Type.NOTIFY, 0),
+						requestNotification(ID2, Type.ACCEPT, 1),
+						requestNotification(ID3, Type.DENY, 0)));
+		when(mocks.storage.getRequest(new RequestID(RID))).thenReturn(r);
+
+		assertThat("incorrect count", mocks.dispatcher.dispatch(), is(3));
+
+		verify(mocks.notis).notify(set(new UserName("t1"), new UserName("t2")), r);
+		verify(mocks.notis).accept(set(new UserName("t1"), new UserName("t2")), r);
+		verify(mocks.notis).deny(set(new UserName("t1"), new UserName("t2")), r);
+		verify(mocks.storage).removeNotification(ID1);
+		verify(mocks.storage).removeNotification(ID2);
+		verify(mocks.storage).removeNotification(ID3);
+		verifyNoMoreInteractions(mocks.notis);
+	}
+
+	@Test
+	public void dispatchCancelAndAddResource() throws Exception {
+		final TestMocks mocks = initTestMocks();
+
+		when(mocks.clock.instant()).thenReturn(inst(10000));
+		when(mocks.storage.claimNotifications(inst(10000), inst(610000), 10))
+				.thenReturn(Arrays.asList(
+						OutboxNotification.getCancelBuilder(
+								ID1, set(new RequestID(RID), new RequestID(ID3)), inst(5000))
+								.build(),
+						OutboxNotification.getAddResourceBuilder(
+								ID2, new UserName("u"), new GroupID("g"),
+								new ResourceType("ws"), new ResourceID("6"), inst(5000))
+								.withTargets(set(new UserName("t1")))
+								.build()));
+
+		assertThat("incorrect count", mocks.dispatcher.dispatch(), is(2));
+
+		// all the requests are cancelled in one call
+		verify(mocks.notis).cancel(set(new RequestID(RID), new RequestID(ID3)));
+		verify(mocks.notis).addResource(new UserName("u"), set(new UserName("t1")),
+				new GroupID("g"), new ResourceType("ws"), new ResourceID("6"));
+		verify(mocks.storage).claimNotifications(inst(10000), inst(610000), 10);
+		verify(mocks.storage).removeNotification(ID1);
+		verify(mocks.storage).removeNotification(ID2);
+		verifyNoMoreInteractions(mocks.storage, mocks.notis);
+	}
+
+	@Test
+	public void dispatchDiscardMissingRequest() throws Exception {
+		final TestMocks mocks = initTestMocks();
+
+		when(mocks.clock.instant()).thenReturn(inst(10000));
+		when(mocks.storage.claimNotifications(inst(10000), inst(610000), 10))
+				.thenReturn(Arrays.asList(requestNotification(ID1, Type.NOTIFY, 0)));
+		when(mocks.storage.getRequest(new RequestID(RID)))
+				.thenThrow(new NoSuchRequestException(RID.toString()));
+
+		assertThat("incorrect count", mocks.dispatcher.dispatch(), is(1));
+
+		verify(mocks.storage).removeNotification(ID1);
+		verifyZeroInteractions(mocks.notis);
+	}
+
+	@Test
+	public void dispatchDiscardNotifyForClosedRequest() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		final GroupRequest r = GroupRequest.getBuilder(
+				new RequestID(RID), new GroupID("i"), new UserName("n"),
+				CreateModAndExpireTimes.getBuilder(inst(1), inst(2)).build())
+				.withStatus(GroupRequestStatus.canceled())
+				.build();
+		
+		when(mocks.clock.instant()).thenReturn(inst(10000));
+		when(mocks.storage.claimNotifications(inst(10000), inst(610000), 10))
+				.thenReturn(Arrays.asList(
+						requestNotification(ID1, Type.NOTIFY, 3),
+						requestNotification(ID2, Type.DENY, 0)));
+		when(mocks.storage.getRequest(new RequestID(RID))).thenReturn(r);
+		
+		assertThat("incorrect count", mocks.dispatcher.dispatch(), is(2));
+		
+		// a late notification of the request must not follow the notification closing it
+		verify(mocks.notis).deny(set(new UserName("t1"), new UserName("t2")), r);
+		verify(mocks.storage).removeNotification(ID1);
+		verify(mocks.storage).removeNotification(ID2);
+		verifyNoMoreInteractions(mocks.notis);
+	}
+
+	@Test
+	public void dispatchRetry() throws Exception {
+		dispatchRetry(0, 10);
+		dispatchRetry(1, 20);
+		dispatchRetry(2, 40);
+		dispatchRetry(8, 2560);
+		dispatchRetry(9, 3600);
+		dispatchRetry(100, 3600);
+	}
+
+	private void dispatchRetry(final int attempts, final int backoffSec) throws Exception {
+		final TestMocks mocks = initTestMocks();
+
+		when(mocks.clock.instant()).thenReturn(inst(10000), inst(20000));
+		when(mocks.storage.claimNotifications(inst(10000), inst(610000), 10))
+				.thenReturn(Arrays.asList(
+						cancelNotification(ID1, attempts),
+						cancelNotification(ID2, 0)));
+		doThrow(new RuntimeException("feeds down")).doNothing()
+				.when(mocks.notis).cancel(set(new RequestID(RID)));
+
+		assertThat("incorrect count", mocks.dispatcher.dispatch(), is(2));
+
+		verify(mocks.storage).claimNotifications(inst(10000), inst(610000), 10);
+		verify(mocks.storage).retryNotification(ID1, inst(20000 + backoffSec * 1000));
+		verify(mocks.storage).removeNotification(ID2);
+		verifyNoMoreInteractions(mocks.storage);
+	}
+
+	@Test
+	public void startAndStop() throws Exception {
+		final TestMocks mocks = initTestMocks();
+
+		when(mocks.clock.instant()).thenReturn(inst(10000));
+		when(mocks.storage.acquireLease(eq("notificationdispatch"), anyString(),
+				any(Instant.class), any(Instant.class))).thenReturn(Optional.of(1L));
+		when(mocks.storage.claimNotifications(inst(10000), inst(610000), 10))
+				.thenReturn(Collections.emptyList());
+
+		assertThat("incorrect running", mocks.dispatcher.isRunning(), is(false));
+		mocks.dispatcher.start();
+		assertThat("incorrect running", mocks.dispatcher.isRunning(), is(true));
+		try {
+			mocks.dispatcher.start();
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got,
+					new IllegalArgumentException("The dispatcher is already running"));
+		}
+		Thread.sleep(200);
+		mocks.dispatcher.stop();
+		assertThat("incorrect running", mocks.dispatcher.isRunning(), is(false));
+		mocks.dispatcher.stop();
+		assertThat("incorrect running", mocks.dispatcher.isRunning(), is(false));
+
+		verify(mocks.storage).claimNotifications(inst(10000), inst(610000), 10);
+		// the lease is only released once
+		verify(mocks.storage).releaseLease(eq("notificationdispatch"), anyString());
+	}
+
+	@Test
+	public void stopWaitsForDelivery() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		when(mocks.clock.instant()).thenReturn(inst(10000));
+		when(mocks.storage.acquireLease(eq("notificationdispatch"), anyString(),
+				any(Instant.class), any(Instant.class))).thenReturn(Optional.of(1L));
+		when(mocks.storage.claimNotifications(inst(10000), inst(610000), 10))
+				.thenReturn(Arrays.asList(cancelNotification(ID1, 0)));
+		doAnswer(inv -> {
+			Thread.sleep(500); // a slow notification service
+			return null;
+		}).when(mocks.notis).cancel(set(new RequestID(RID)));
+		
+		mocks.dispatcher.start();
+		Thread.sleep(200);
+		mocks.dispatcher.stop();
+		
+		// the delivery was recorded before stop() returned
+		verify(mocks.storage).removeNotification(ID1);
+		verify(mocks.storage).releaseLease(eq("notificationdispatch"), anyString());
+	}
+	
+	@Test
+	public void startNotLeader() throws Exception {
+		// another process holds the lease
+		final TestMocks mocks = initTestMocks();
+
+		when(mocks.clock.instant()).thenReturn(inst(10000));
+		when(mocks.storage.acquireLease(eq("notificationdispatch"), anyString(),
+				any(Instant.class), any(Instant.class))).thenReturn(Optional.empty());
+
+		mocks.dispatcher.start();
+		Thread.sleep(200);
+		mocks.dispatcher.stop();
+
+		verify(mocks.storage, times(1)).acquireLease(eq("notificationdispatch"), anyString(),
+				any(Instant.class), any(Instant.class));
+		verify(mocks.storage, never()).claimNotifications(
+				any(Instant.class), any(Instant.class), anyInt());
+		verify(mocks.storage, never()).releaseLease(anyString(), anyString());
+	}
+}
@@ -0,0 +1,271 @@
+package us.kbase.test.groups.notifications;
+
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static us.kbase.test.groups.TestCommon.inst;
+import static us.kbase.test.groups.TestCommon.set;
+
+import java.lang.reflect.Constructor;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import us.kbase.groups.core.CreateModAndExpireTimes;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.UUIDGenerator;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.IllegalParameterException;
+import us.kbase.groups.core.exceptions.MissingParameterException;
+import us.kbase.groups.core.notifications.Notifications;
+import us.kbase.groups.core.notifications.OutboxNotification;
+import us.kbase.groups.core.notifications.OutboxNotification.Type;
+import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.notifications.OutboxNotifier;
+import us.kbase.groups.storage.GroupsStorage;
+import us.kbase.groups.storage.exceptions.GroupsStorageException;
+import us.kbase.test.groups.TestCommon;
+
+public class OutboxNotifierTest {
+
+	private static final UUID ID = UUID.fromString("f5bd5fd0-cc8c-435b-a5ea-ca3f2b3a4d2f");
+	private static final UUID RID = UUID.fromString("a2b1d5b0-fc8c-435b-a5ea-ca3f2b3a4d2f");
+
+	private static final GroupRequest REQUEST;
+	static {
+		try {
+			REQUEST = GroupRequest.getBuilder(
+					new RequestID(RID), new GroupID("i"), new UserName("n"),
+					CreateModAndExpireTimes.getBuilder(inst(1), inst(2)).build())
+					.build();
+		} catch (MissingParameterException | IllegalParameterException e) {
+			throw new RuntimeException("Fix yer tests newb");
+		}
+	}
+
+	private static TestMocks initTestMocks() throws Exception {
+		final GroupsStorage storage = mock(GroupsStorage.class);
+		final UUIDGenerator uuidGen = mock(UUIDGenerator.class);
+		final Clock clock = mock(Clock.class);
+
+		final Constructor<OutboxNotifier> c = OutboxNotifier.class.getDeclaredConstructor(
+				GroupsStorage.class, UUIDGenerator.class, Clock.class);
+		c.setAccessible(true);
+		final OutboxNotifier notis = c.newInstance(storage, uuidGen, clock);
+
+		when(uuidGen.randomUUID()).thenReturn(ID);
+		when(clock.instant()).thenReturn(inst(10000));
+		return new TestMocks(storage, notis);
+	}
+
+	private static final class TestMocks {
+		private final GroupsStorage storage;
+		private final Notifications notis;
+
+		private TestMocks(final GroupsStorage storage, final Notifications notis) {
+			this.storage = storage;
+			this.notis = notis;
+		}
+	}
+
+	@Test
+	public void constructFail() throws Exception {
+		try {
+			new OutboxNotifier(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("storage"));
+		}
+	}
+
+	@Test
+	public void notifyRequest() throws Exception {
+		final TestMocks mocks = initTestMocks();
+
+		mocks.notis.notify(Arrays.asList(new UserName("u1"), new UserName("u2")), REQUEST);
+
+		verify(mocks.storage).storeNotification(OutboxNotification.getRequestBuilder(
+				ID, Type.NOTIFY, new RequestID(RID), inst(10000))
+				.withTargets(set(new UserName("u1"), new UserName("u2")))
+				.build());
+	}
+
+	@Test
+	public void cancel() throws Exception {
+		final TestMocks mocks = initTestMocks();
+
+		final UUID rid2 = UUID.fromString("b2b1d5b0-fc8c-435b-a5ea-ca3f2b3a4d2f");
+		mocks.notis.cancel(Arrays.asList(new RequestID(RID), new RequestID(rid2)));
+
+		verify(mocks.storage).storeNotification(OutboxNotification.getCancelBuilder(
+				ID, set(new RequestID(RID), new RequestID(rid2)), inst(10000))
+				.build());
+	}
+	
+	@Test
+	public void cancelEmpty() throws Exception {
+		final TestMocks mocks = initTestMocks();
+
+		mocks.notis.cancel(Collections.emptyList());
+
+		verifyZeroInteractions(mocks.storage);
+	}
+
+	@Test
+	public void deny() throws Exception {
+		final TestMocks mocks = initTestMocks();
+
+		mocks.notis.deny(set(new UserName("u1")), REQUEST);
+
+		verify(mocks.storage).storeNotification(OutboxNotification.getRequestBuilder(
+				ID, Type.DENY, new RequestID(RID), inst(10000))
+				.withTargets(set(new UserName("u1")))
+				.build());
+	}
+
+	@Test
+	public void accept() throws Exception {
+		final TestMocks mocks = initTestMocks();
+
+		mocks.notis.accept(set(new UserName("u1"), new UserName("u3")), REQUEST);
+
+		verify(mocks.storage).storeNotification(OutboxNotification.getRequestBuilder(
+				ID, Type.ACCEPT, new RequestID(RID), inst(10000))
+				.withTargets(set(new UserName("u1"), new UserName("u3")))
+				.build());
+	}
+
+	@Test
+	public void addResource() throws Exception {
+		final TestMocks mocks = initTestMocks();
+
+		mocks.notis.addResource(new UserName("u"), set(new UserName("t1"), new UserName("t2")),
+				new GroupID("g"), new ResourceType("ws"), new ResourceID("6"));
+
+		verify(mocks.storage).storeNotification(OutboxNotification.getAddResourceBuilder(
+				ID, new UserName("u"), new GroupID("g"), new ResourceType("ws"),
+				new ResourceID("6"), inst(10000))
+				.withTargets(set(new UserName("t1"), new UserName("t2")))
+				.build());
+	}
+
+	@Test
+	public void storeFail() throws Exception {
+		final TestMocks mocks = initTestMocks();
+
+		doThrow(new GroupsStorageException("oops")).when(mocks.storage)
+				.storeNotification(OutboxNotification.getCancelBuilder(
+						ID, set(new RequestID(RID)), inst(10000))
+						.build());
+
+		try {
+			mocks.notis.cancel(Arrays.asList(new RequestID(RID)));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got,
+					new RuntimeException("Failed storing notification: oops"));
+		}
+	}
+
+	@Test
+	public void notifyFail() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		final Collection<UserName> t = set(new UserName("u"));
+
+		failNotify(mocks, null, REQUEST, new NullPointerException("targets"));
+		failNotify(mocks, Arrays.asList(new UserName("u"), null), REQUEST,
+				new NullPointerException("Null item in collection targets"));
+		failNotify(mocks, t, null, new NullPointerException("request"));
+		verifyZeroInteractions(mocks.storage);
+	}
+
+	private void failNotify(
+			final TestMocks mocks,
+			final Collection<UserName> targets,
+			final GroupRequest request,
+			final Exception expected) {
+		try {
+			mocks.notis.notify(targets, request);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+		try {
+			mocks.notis.deny(targets, request);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+		try {
+			mocks.notis.accept(targets, request);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	@Test
+	public void cancelFail() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		try {
+			mocks.notis.cancel(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("requestIDs"));
+		}
+		try {
+			mocks.notis.cancel(Arrays.asList(new RequestID(RID), null));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException(
+					"Null item in collection requestIDs"));
+		}
+		verifyZeroInteractions(mocks.storage);
+	}
+
+	@Test
+	public void addResourceFail() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		final UserName u = new UserName("u");
+		final Set<UserName> t = set(new UserName("t"));
+		final GroupID g = new GroupID("g");
+		final ResourceType rt = new ResourceType("ws");
+		final ResourceID r = new ResourceID("6");
+
+		failAddResource(mocks, null, t, g, rt, r, new NullPointerException("user"));
+		failAddResource(mocks, u, null, g, rt, r, new NullPointerException("targets"));
+		failAddResource(mocks, u, set(new UserName("t"), null), g, rt, r,
+				new NullPointerException("Null item in collection targets"));
+		failAddResource(mocks, u, t, null, rt, r, new NullPointerException("groupID"));
+		failAddResource(mocks, u, t, g, null, r, new NullPointerException("resourceType"));
+		failAddResource(mocks, u, t, g, rt, null, new NullPointerException("resourceID"));
+		verifyZeroInteractions(mocks.storage);
+	}
+
+	private void failAddResource(
+			final TestMocks mocks,
+			final UserName user,
+			final Set<UserName> targets,
+			final GroupID groupID,
+			final ResourceType type,
+			final ResourceID resource,
+			final Exception expected) {
+		try {
+			mocks.notis.addResource(user, targets, groupID, type, resource);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package us.kbase.test.groups.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import us.kbase.groups.service.APIExecutorProvider;
+import us.kbase.groups.service.SLF4JAutoLogger;
+import us.kbase.test.groups.TestCommon;
+
+public class APIExecutorProviderTest {
+	
+	@Test
+	public void callInfo() throws Exception {
+		final ExecutorService exe = Executors.newSingleThreadExecutor();
+		final SLF4JAutoLogger logger = mock(SLF4JAutoLogger.class);
+		when(logger.getCallMethod()).thenReturn("GET");
+		when(logger.getCallID()).thenReturn("12345");
+		when(logger.getCallIPAddress()).thenReturn("123.456.789.101");
+		
+		final ExecutorService provided = new APIExecutorProvider(exe, logger)
+				.getExecutorService();
+		final String thread = provided.submit(() -> Thread.currentThread().getName())
+				.get(1, TimeUnit.SECONDS);
+		
+		assertThat("incorrect thread", thread.equals(Thread.currentThread().getName()),
+				is(false));
+		verify(logger).setCallInfo("GET", "12345", "123.456.789.101");
+		exe.shutdown();
+	}
+	
+	@Test
+	public void dispose() throws Exception {
+		final ExecutorService exe = Executors.newSingleThreadExecutor();
+		final APIExecutorProvider p = new APIExecutorProvider(exe, mock(SLF4JAutoLogger.class));
+		
+		final ExecutorService provided = p.getExecutorService();
+		assertThat("incorrect shutdown", provided.isShutdown(), is(false));
+		p.dispose(provided);
+		
+		assertThat("incorrect shutdown", provided.isShutdown(), is(true));
+		assertThat("incorrect shutdown", exe.isShutdown(), is(true));
+		assertThat("incorrect terminated", provided.awaitTermination(1, TimeUnit.SECONDS),
+				is(true));
+	}
+	
+	@Test
+	public void constructFail() throws Exception {
+		final ExecutorService exe = Executors.newSingleThreadExecutor();
+		final SLF4JAutoLogger logger = mock(SLF4JAutoLogger.class);
+		failConstruct(null, logger, new NullPointerException("executor"));
+		failConstruct(exe, null, new NullPointerException("logger"));
+		exe.shutdown();
+	}
+	
+	private void failConstruct(
+			final ExecutorService exe,
+			final SLF4JAutoLogger logger,
+			final Exception expected) {
+		try {
+			new APIExecutorProvider(exe, logger);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
@@ -10,8 +10,11 @@ import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
+import javax.ws.rs.core.Response;
+
 import org.junit.Test;
 
 import com.google.common.collect.ImmutableMap;
@@ -580,12 +583,12 @@ public class APICommonTest {
 	@Test
 	public void getRequestParamsNulls() throws Exception {
 		final GetRequestsParams p = APICommon.getRequestsParams(
-				null, null, null, null, null, true);
+				null, null, null, null, null, null, null, true);
 		
 		assertThat("incorrect params", p, is(GetRequestsParams.getBuilder().build()));
 		
 		final GetRequestsParams p2 = APICommon.getRequestsParams(
-				null, null, null, null, null, false);
+				null, null, null, null, null, null, null, false);
 		
 		assertThat("incorrect params", p2, is(GetRequestsParams.getBuilder()
 				.withNullableSortAscending(false)
@@ -595,13 +598,14 @@ public class APICommonTest {
 	@Test
 	public void getRequestParamsWhitespace() throws Exception {
 		final String ws = "    \t    ";
-		final GetRequestsParams p = APICommon.getRequestsParams(ws, ws, ws, ws, ws, true);
+		final GetRequestsParams p = APICommon.getRequestsParams(ws, null, ws, ws, ws, ws, ws, true);
 		
 		assertThat("incorrect params", p, is(GetRequestsParams.getBuilder()
 				.withNullableIncludeClosed(true)
 				.build()));
 		
-		final GetRequestsParams p2 = APICommon.getRequestsParams(ws, ws, ws, ws, ws, false);
+		final GetRequestsParams p2 = APICommon.getRequestsParams(
+				ws, null, ws, ws, ws, ws, ws, false);
 		
 		assertThat("incorrect params", p2, is(GetRequestsParams.getBuilder()
 				.withNullableSortAscending(false)
@@ -612,16 +616,18 @@ public class APICommonTest {
 	@Test
 	public void getRequestParamsValues() throws Exception {
 		final GetRequestsParams p = APICommon.getRequestsParams(
-				"   \t   12000   ", " yes ", "  asc  ", "type", "res", false);
+				"   \t   12000   ", null, " yes ", "  asc  ", "type", "res", "  \t 50  ", false);
 		
 		assertThat("incorrect params", p, is(GetRequestsParams.getBuilder()
 				.withNullableExcludeUpTo(inst(12000))
 				.withNullableIncludeClosed(true)
 				.withResource(new ResourceType("type"), new ResourceID("res"))
+				.withNullableLimit(50)
 				.build()));
 		
 		final GetRequestsParams p2 = APICommon.getRequestsParams(
-				"   \t   " + Long.MAX_VALUE + "   ", " no ", "  desc  ", null, "  \t ", true);
+				"   \t   " + Long.MAX_VALUE + "   ", null, " no ", "  desc  ", null, "  \t ", null,
+				true);
 		
 		assertThat("incorrect params", p2, is(GetRequestsParams.getBuilder()
 				.withNullableExcludeUpTo(inst(Long.MAX_VALUE))
@@ -630,24 +636,31 @@ public class APICommonTest {
 				.build()));
 		
 		final GetRequestsParams p3 = APICommon.getRequestsParams(
-				"   \t   " + Long.MIN_VALUE + "   ", null, null, "t", "r", true);
+				"   \t   " + Long.MIN_VALUE + "   ", null, null, null, "t", "r", "1", true);
 		
 		assertThat("incorrect params", p3, is(GetRequestsParams.getBuilder()
 				.withNullableExcludeUpTo(inst(Long.MIN_VALUE))
 				.withResource(new ResourceType("t"), new ResourceID("r"))
+				.withNullableLimit(1)
 				.build()));
 	}
 	
 	@Test
 	public void getRequestParamsFail() throws Exception {
-		failGetRequestParams("   foo   ", null, null, null,
+		failGetRequestParams("   foo   ", null, null, null, null,
 				new IllegalParameterException("Invalid epoch ms: foo"));
-		failGetRequestParams(null, "asd", null, null, new IllegalParameterException(
+		failGetRequestParams(null, "asd", null, null, null, new IllegalParameterException(
 				"Invalid sort direction: asd"));
-		failGetRequestParams(null, null, "t", null, new IllegalParameterException(
+		failGetRequestParams(null, null, "t", null, null, new IllegalParameterException(
 				"Either both or neither of the resource type and resource ID must be provided"));
-		failGetRequestParams(null, null, "  \t  ", "r", new IllegalParameterException(
+		failGetRequestParams(null, null, "  \t  ", "r", null, new IllegalParameterException(
 				"Either both or neither of the resource type and resource ID must be provided"));
+		failGetRequestParams(null, null, null, null, "  foo  ",
+				new IllegalParameterException("Invalid limit: foo"));
+		failGetRequestParams(null, null, null, null, "1.5",
+				new IllegalParameterException("Invalid limit: 1.5"));
+		failGetRequestParams(null, null, null, null, "0",
+				new IllegalParameterException("limit must be > 0"));
 		
 	}
 	
@@ -656,9 +669,131 @@ public class APICommonTest {
 			final String sortDirection,
 			final String resType,
 			final String res,
+			final String limit,
+			final Exception expected) {
+		try {
+			APICommon.getRequestsParams(
+					excludeUpTo, null, null, sortDirection, resType, res, limit, true);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	private GroupRequest getRequestForNextToken(final long modification) throws Exception {
+		return GroupRequest.getBuilder(
+				new RequestID("1a2b3c4d-5e6f-7a8b-9c0d-1e2f3a4b5c6d"), new GroupID("gid"),
+				new UserName("n"),
+				CreateModAndExpireTimes.getBuilder(
+						Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000))
+						.withModificationTime(Instant.ofEpochMilli(modification))
+						.build())
+				.build();
+	}
+	
+	@Test
+	public void getRequestsNextToken() throws Exception {
+		final GroupRequest r1 = GroupRequest.getBuilder(
+				new RequestID(UUID.randomUUID()), new GroupID("gid"), new UserName("n"),
+				CreateModAndExpireTimes.getBuilder(
+						Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000))
+						.build())
+				.build();
+		final GroupRequest r2 = getRequestForNextToken(25000);
+		
+		assertThat("incorrect token", APICommon.getRequestsNextToken(
+				Arrays.asList(r1, r2), GetRequestsParams.getBuilder().build()),
+				is(Optional.of(
+						"cglhc2MJMjUwMDAJMWEyYjNjNGQtNWU2Zi03YThiLTljMGQtMWUyZjNhNGI1YzZk")));
+		assertThat("incorrect token", APICommon.getRequestsNextToken(
+				Arrays.asList(r2), GetRequestsParams.getBuilder()
+						.withNullableSortAscending(false).build()),
+				is(Optional.of(
+						"cglkZXNjCTI1MDAwCTFhMmIzYzRkLTVlNmYtN2E4Yi05YzBkLTFlMmYzYTRiNWM2ZA")));
+		assertThat("incorrect token", APICommon.getRequestsNextToken(
+				Collections.emptyList(), GetRequestsParams.getBuilder().build()),
+				is(Optional.empty()));
+	}
+	
+	@Test
+	public void getRequestsNextTokenFail() throws Exception {
+		final GetRequestsParams p = GetRequestsParams.getBuilder().build();
+		failGetRequestsNextToken(null, p, new NullPointerException("requests"));
+		failGetRequestsNextToken(Collections.emptyList(), null,
+				new NullPointerException("params"));
+	}
+	
+	private void failGetRequestsNextToken(
+			final List<GroupRequest> requests,
+			final GetRequestsParams params,
+			final Exception expected) {
+		try {
+			APICommon.getRequestsNextToken(requests, params);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void getRequestParamsWithNextToken() throws Exception {
+		final GetRequestsParams p = APICommon.getRequestsParams(
+				null, "  cglhc2MJMjUwMDAJMWEyYjNjNGQtNWU2Zi03YThiLTljMGQtMWUyZjNhNGI1YzZk  ",
+				"", null, "t", "r", "10", true);
+		
+		assertThat("incorrect params", p, is(GetRequestsParams.getBuilder()
+				.withExcludeUpTo(Instant.ofEpochMilli(25000),
+						new RequestID("1a2b3c4d-5e6f-7a8b-9c0d-1e2f3a4b5c6d"))
+				.withNullableIncludeClosed(true)
+				.withResource(new ResourceType("t"), new ResourceID("r"))
+				.withNullableLimit(10)
+				.build()));
+		
+		// round trip
+		final GetRequestsParams p2 = APICommon.getRequestsParams(
+				"  \t  ", APICommon.getRequestsNextToken(Arrays.asList(
+						getRequestForNextToken(42000)), p).get(),
+				null, "desc", null, null, null, true);
+		
+		assertThat("incorrect params", p2, is(GetRequestsParams.getBuilder()
+				.withExcludeUpTo(Instant.ofEpochMilli(42000),
+						new RequestID("1a2b3c4d-5e6f-7a8b-9c0d-1e2f3a4b5c6d"))
+				.withNullableSortAscending(false)
+				.build()));
+	}
+	
+	@Test
+	public void getRequestParamsWithNextTokenFail() throws Exception {
+		final String token = "cglhc2MJMjUwMDAJMWEyYjNjNGQtNWU2Zi03YThiLTljMGQtMWUyZjNhNGI1YzZk";
+		failGetRequestParamsNext("1", token, null, new IllegalParameterException(
+				"Only one of the excludeupto and next parameters may be provided"));
+		failGetRequestParamsNext(null, token, "desc", new IllegalParameterException(
+				"The next token does not match the sort direction"));
+		failGetRequestParamsNext(null, "not*base64", null, new IllegalParameterException(
+				"Invalid next token"));
+		// group token
+		failGetRequestParamsNext(null, "Zwlhc2MJaWQy", null, new IllegalParameterException(
+				"Invalid next token"));
+		// missing request ID
+		failGetRequestParamsNext(null, "cglhc2MJMjUwMDA", null, new IllegalParameterException(
+				"Invalid next token"));
+		// bad date
+		failGetRequestParamsNext(null,
+				"cglhc2MJZm9vCTFhMmIzYzRkLTVlNmYtN2E4Yi05YzBkLTFlMmYzYTRiNWM2ZA", null,
+				new IllegalParameterException("Invalid next token"));
+		// bad request ID
+		failGetRequestParamsNext(null, "cglhc2MJMjUwMDAJZm9v", null,
+				new IllegalParameterException("Invalid next token"));
+	}
+	
+	private void failGetRequestParamsNext(
+			final String excludeUpTo,
+			final String next,
+			final String sortDirection,
 			final Exception expected) {
 		try {
-			APICommon.getRequestsParams(excludeUpTo, null, sortDirection, resType, res, true);
+			APICommon.getRequestsParams(
+					excludeUpTo, next, null, sortDirection, null, null, null, true);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -691,11 +826,13 @@ public class APICommonTest {
 	
 	@Test
 	public void getGroupParamsNulls() throws Exception {
-		final GetGroupsParams p = APICommon.getGroupsParams(null, null, null, null, null, true);
+		final GetGroupsParams p = APICommon.getGroupsParams(
+				null, null, null, null, null, null, null, true);
 		
 		assertThat("incorrect params", p, is(GetGroupsParams.getBuilder().build()));
 		
-		final GetGroupsParams p2 = APICommon.getGroupsParams(null, null, null, null, null, false);
+		final GetGroupsParams p2 = APICommon.getGroupsParams(
+				null, null, null, null, null, null, null, false);
 		
 		assertThat("incorrect params", p2, is(GetGroupsParams.getBuilder()
 				.withNullableSortAscending(false).build()));
@@ -704,11 +841,11 @@ public class APICommonTest {
 	@Test
 	public void getGroupParamsWhitespace() throws Exception {
 		final String ws = "    \t  ";
-		final GetGroupsParams p = APICommon.getGroupsParams(ws, ws, ws, ws, ws, true);
+		final GetGroupsParams p = APICommon.getGroupsParams(ws, null, ws, ws, ws, ws, ws, true);
 		
 		assertThat("incorrect params", p, is(GetGroupsParams.getBuilder().build()));
 		
-		final GetGroupsParams p2 = APICommon.getGroupsParams(ws, ws, ws, ws, ws, false);
+		final GetGroupsParams p2 = APICommon.getGroupsParams(ws, null, ws, ws, ws, ws, ws, false);
 		
 		assertThat("incorrect params", p2, is(GetGroupsParams.getBuilder()
 				.withNullableSortAscending(false).build()));
@@ -717,16 +854,17 @@ public class APICommonTest {
 	@Test
 	public void getGroupParamsValues() throws Exception {
 		final GetGroupsParams p = APICommon.getGroupsParams(
-				"   foo   ", "asc", "Member", "type", "id", false);
+				"   foo   ", null, "asc", "Member", "type", "id", "  \t  20  ", false);
 		
 		assertThat("incorrect params", p, is(GetGroupsParams.getBuilder()
 				.withRole(Role.MEMBER)
 				.withNullableExcludeUpTo("foo")
 				.withResource(new ResourceType("type"), new ResourceID("id"))
+				.withNullableLimit(20)
 				.build()));
 		
 		final GetGroupsParams p2 = APICommon.getGroupsParams(
-				"  \t  bar  ", "desc", "Admin", null, null, true);
+				"  \t  bar  ", null, "desc", "Admin", null, null, null, true);
 		
 		assertThat("incorrect params", p2, is(GetGroupsParams.getBuilder()
 				.withRole(Role.ADMIN)
@@ -735,7 +873,7 @@ public class APICommonTest {
 				.build()));
 		
 		final GetGroupsParams p3 = APICommon.getGroupsParams(
-				"   foo   ", "asc", "Owner", null, null, false);
+				"   foo   ", null, "asc", "Owner", null, null, null, false);
 		
 		assertThat("incorrect params", p3, is(GetGroupsParams.getBuilder()
 				.withRole(Role.OWNER)
@@ -743,7 +881,7 @@ public class APICommonTest {
 				.build()));
 		
 		final GetGroupsParams p4 = APICommon.getGroupsParams(
-				"   foo   ", "asc", "None", null, null, false);
+				"   foo   ", null, "asc", "None", null, null, null, false);
 		
 		assertThat("incorrect params", p4, is(GetGroupsParams.getBuilder()
 				.withRole(Role.NONE)
@@ -753,14 +891,18 @@ public class APICommonTest {
 	
 	@Test
 	public void getGroupParamsFailBadArgs() throws Exception {
-		getGroupParamsFail("asd", null, null, null, new IllegalParameterException(
+		getGroupParamsFail("asd", null, null, null, null, new IllegalParameterException(
 				"Invalid sort direction: asd"));
-		getGroupParamsFail(null, "member", null, null,
+		getGroupParamsFail(null, "member", null, null, null,
 				new IllegalParameterException("Invalid role: member"));
-		getGroupParamsFail(null, null, "t", null, new IllegalParameterException(
+		getGroupParamsFail(null, null, "t", null, null, new IllegalParameterException(
 				"Either both or neither of the resource type and resource ID must be provided"));
-		getGroupParamsFail(null, null, "  \t  ", "r", new IllegalParameterException(
+		getGroupParamsFail(null, null, "  \t  ", "r", null, new IllegalParameterException(
 				"Either both or neither of the resource type and resource ID must be provided"));
+		getGroupParamsFail(null, null, null, null, "  foo  ",
+				new IllegalParameterException("Invalid limit: foo"));
+		getGroupParamsFail(null, null, null, null, "-1",
+				new IllegalParameterException("limit must be > 0"));
 	}
 	
 	private void getGroupParamsFail(
@@ -768,9 +910,145 @@ public class APICommonTest {
 			final String role,
 			final String resType,
 			final String resource,
+			final String limit,
+			final Exception expected) {
+		try {
+			APICommon.getGroupsParams(null, null, sort, role, resType, resource, limit, false);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	private GroupView getGroupViewForNextToken(final String id) throws Exception {
+		return GroupView.getBuilder(
+				Group.getBuilder(new GroupID(id), new GroupName("name"),
+						GroupUser.getBuilder(new UserName("u"), inst(20000)).build(),
+						new CreateAndModTimes(inst(20000)))
+						.build(),
+				new UserName("u"))
+				.build();
+	}
+	
+	@Test
+	public void getGroupsNextToken() throws Exception {
+		assertThat("incorrect token", APICommon.getGroupsNextToken(
+				Arrays.asList(getGroupViewForNextToken("id1"), getGroupViewForNextToken("id2")),
+				GetGroupsParams.getBuilder().build()),
+				is(Optional.of("Zwlhc2MJaWQy")));
+		assertThat("incorrect token", APICommon.getGroupsNextToken(
+				Arrays.asList(getGroupViewForNextToken("id2")),
+				GetGroupsParams.getBuilder().withNullableSortAscending(false).build()),
+				is(Optional.of("ZwlkZXNjCWlkMg")));
+		assertThat("incorrect token", APICommon.getGroupsNextToken(
+				Collections.emptyList(), GetGroupsParams.getBuilder().build()),
+				is(Optional.empty()));
+	}
+	
+	@Test
+	public void getGroupsNextTokenFail() throws Exception {
+		final GetGroupsParams p = GetGroupsParams.getBuilder().build();
+		failGetGroupsNextToken(null, p, new NullPointerException("groups"));
+		failGetGroupsNextToken(Collections.emptyList(), null,
+				new NullPointerException("params"));
+	}
+	
+	private void failGetGroupsNextToken(
+			final List<GroupView> groups,
+			final GetGroupsParams params,
+			final Exception expected) {
+		try {
+			APICommon.getGroupsNextToken(groups, params);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void getGroupParamsWithNextToken() throws Exception {
+		final GetGroupsParams p = APICommon.getGroupsParams(
+				"  \t  ", "   Zwlhc2MJaWQy  ", null, "Member", null, null, "20", true);
+		
+		assertThat("incorrect params", p, is(GetGroupsParams.getBuilder()
+				.withNullableExcludeUpTo("id2")
+				.withRole(Role.MEMBER)
+				.withNullableLimit(20)
+				.build()));
+		
+		// round trip
+		final GetGroupsParams p2 = APICommon.getGroupsParams(
+				null, APICommon.getGroupsNextToken(Arrays.asList(
+						getGroupViewForNextToken("foo")), p).get(),
+				"asc", null, null, null, null, false);
+		
+		assertThat("incorrect params", p2, is(GetGroupsParams.getBuilder()
+				.withNullableExcludeUpTo("foo")
+				.build()));
+	}
+	
+	@Test
+	public void getGroupParamsWithNextTokenFail() throws Exception {
+		failGetGroupParamsNext("foo", "Zwlhc2MJaWQy", null, new IllegalParameterException(
+				"Only one of the excludeupto and next parameters may be provided"));
+		failGetGroupParamsNext(null, "Zwlhc2MJaWQy", "desc", new IllegalParameterException(
+				"The next token does not match the sort direction"));
+		failGetGroupParamsNext(null, "Zwlhc2MJaWQy!", null, new IllegalParameterException(
+				"Invalid next token"));
+		// request token
+		failGetGroupParamsNext(null,
+				"cglhc2MJMjUwMDAJMWEyYjNjNGQtNWU2Zi03YThiLTljMGQtMWUyZjNhNGI1YzZk", null,
+				new IllegalParameterException("Invalid next token"));
+		// missing group ID
+		failGetGroupParamsNext(null, "Zwlhc2M", null, new IllegalParameterException(
+				"Invalid next token"));
+		// bad group ID
+		failGetGroupParamsNext(null, "Zwlhc2MJYmFkKmlk", null, new IllegalParameterException(
+				"Invalid next token"));
+	}
+	
+	private void failGetGroupParamsNext(
+			final String excludeUpTo,
+			final String next,
+			final String sort,
+			final Exception expected) {
+		try {
+			APICommon.getGroupsParams(excludeUpTo, next, sort, null, null, null, null, true);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void toListResponse() throws Exception {
+		final Response r = APICommon.toListResponse(
+				Arrays.asList("foo", "bar"), Optional.of("tok"));
+		
+		assertThat("incorrect status", r.getStatus(), is(200));
+		assertThat("incorrect entity", r.getEntity(), is(Arrays.asList("foo", "bar")));
+		assertThat("incorrect header", r.getHeaderString("X-Next-Token"), is("tok"));
+		
+		final Response r2 = APICommon.toListResponse(Collections.emptyList(), Optional.empty());
+		
+		assertThat("incorrect status", r2.getStatus(), is(200));
+		assertThat("incorrect entity", r2.getEntity(), is(Collections.emptyList()));
+		assertThat("incorrect header", r2.getHeaderString("X-Next-Token"), nullValue());
+	}
+	
+	@Test
+	public void toListResponseFail() throws Exception {
+		failToListResponse(null, Optional.empty(), new NullPointerException("entity"));
+		failToListResponse(Collections.emptyList(), null,
+				new NullPointerException("nextToken"));
+	}
+	
+	private void failToListResponse(
+			final Object entity,
+			final Optional<String> nextToken,
 			final Exception expected) {
 		try {
-			APICommon.getGroupsParams(null, sort, role, resType, resource, false);
+			APICommon.toListResponse(entity, nextToken);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -0,0 +1,127 @@
+package us.kbase.test.groups.service.api;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.Groups;
+import us.kbase.groups.core.ServiceAdministrators;
+import us.kbase.groups.core.Token;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.ErrorType;
+import us.kbase.groups.core.exceptions.IllegalParameterException;
+import us.kbase.groups.core.exceptions.InvalidTokenException;
+import us.kbase.groups.core.exceptions.MissingParameterException;
+import us.kbase.groups.core.exceptions.NoSuchGroupException;
+import us.kbase.groups.core.exceptions.NoTokenProvidedException;
+import us.kbase.groups.core.exceptions.UnauthorizedException;
+import us.kbase.groups.service.api.AdminAPI;
+import us.kbase.test.groups.TestCommon;
+
+public class AdminAPITest {
+	
+	@Test
+	public void reindexGroups() throws Exception {
+		final Groups g = mock(Groups.class);
+		final ServiceAdministrators sa = mock(ServiceAdministrators.class);
+		
+		when(sa.checkAdministrator(new Token("t"))).thenReturn(new UserName("a"));
+		when(g.reindexGroups()).thenReturn(24L);
+		
+		assertThat("incorrect count", new AdminAPI(g, sa).reindexGroups("t"),
+				is(ImmutableMap.of("reindexed", 24L)));
+	}
+	
+	@Test
+	public void reindexGroupsFailNoToken() throws Exception {
+		final Groups g = mock(Groups.class);
+		final AdminAPI api = new AdminAPI(g, mock(ServiceAdministrators.class));
+		failReindexGroups(api, null, new NoTokenProvidedException("No token provided"));
+		failReindexGroups(api, "  \t  ", new NoTokenProvidedException("No token provided"));
+		
+		verifyZeroInteractions(g);
+	}
+	
+	@Test
+	public void reindexGroupsFailNotAdmin() throws Exception {
+		final Groups g = mock(Groups.class);
+		final ServiceAdministrators sa = mock(ServiceAdministrators.class);
+		
+		when(sa.checkAdministrator(new Token("t"))).thenThrow(
+				new UnauthorizedException("User u is not a service administrator"));
+		when(sa.checkAdministrator(new Token("bad"))).thenThrow(new InvalidTokenException());
+		
+		failReindexGroups(new AdminAPI(g, sa), "t",
+				new UnauthorizedException("User u is not a service administrator"));
+		failReindexGroups(new AdminAPI(g, sa), "bad", new InvalidTokenException());
+		
+		verifyZeroInteractions(g);
+	}
+	
+	private void failReindexGroups(
+			final AdminAPI api,
+			final String token,
+			final Exception expected) {
+		try {
+			api.reindexGroups(token);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void reindexGroup() throws Exception {
+		final Groups g = mock(Groups.class);
+		final ServiceAdministrators sa = mock(ServiceAdministrators.class);
+		
+		when(sa.checkAdministrator(new Token("t"))).thenReturn(new UserName("a"));
+		
+		new AdminAPI(g, sa).reindexGroup("t", "gid");
+		
+		verify(g).reindexGroup(new GroupID("gid"));
+	}
+	
+	@Test
+	public void reindexGroupFailBadArgs() throws Exception {
+		final Groups g = mock(Groups.class);
+		final ServiceAdministrators sa = mock(ServiceAdministrators.class);
+		
+		when(sa.checkAdministrator(new Token("t"))).thenReturn(new UserName("a"));
+		when(sa.checkAdministrator(new Token("u"))).thenThrow(
+				new UnauthorizedException("User u is not a service administrator"));
+		doThrow(new NoSuchGroupException("gid")).when(g).reindexGroup(new GroupID("gid"));
+		
+		final AdminAPI api = new AdminAPI(g, sa);
+		failReindexGroup(api, null, "gid", new NoTokenProvidedException("No token provided"));
+		failReindexGroup(api, "u", "gid",
+				new UnauthorizedException("User u is not a service administrator"));
+		failReindexGroup(api, "t", null, new MissingParameterException("group id"));
+		failReindexGroup(api, "t", "g*d", new IllegalParameterException(
+				ErrorType.ILLEGAL_GROUP_ID, "Illegal character in group id g*d: *"));
+		failReindexGroup(api, "t", "gid", new NoSuchGroupException("gid"));
+	}
+	
+	private void failReindexGroup(
+			final AdminAPI api,
+			final String token,
+			final String groupID,
+			final Exception expected) {
+		try {
+			api.reindexGroup(token, groupID);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
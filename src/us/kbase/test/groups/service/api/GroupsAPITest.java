@@ -3,6 +3,7 @@ package us.kbase.test.groups.service.api;
 import static us.kbase.test.groups.TestCommon.inst;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.doThrow;
@@ -19,6 +20,9 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
 import org.junit.Test;
 
 import com.google.common.collect.ImmutableMap;
@@ -65,6 +69,7 @@ import us.kbase.groups.core.resource.ResourceInformationSet;
 import us.kbase.groups.core.resource.ResourceType;
 import us.kbase.groups.service.api.GroupsAPI;
 import us.kbase.groups.service.api.GroupsAPI.CreateOrUpdateGroupJSON;
+import us.kbase.groups.service.api.GroupsAPI.InviteUsersJSON;
 import us.kbase.groups.service.api.GroupsAPI.UpdateUserJSON;
 import us.kbase.test.groups.MapBuilder;
 import us.kbase.test.groups.TestCommon;
@@ -268,30 +273,32 @@ public class GroupsAPITest {
 
 	@Test
 	public void getGroupsNulls() throws Exception {
-		getGroups(null, null, null, null, null, null, null, null,
+		getGroups(null, null, null, null, null, null, null, null, null,
 				GetGroupsParams.getBuilder().build());
 	}
 	
 	@Test
 	public void getGroupsWhitespace() throws Exception {
 		final String ws = "   \t   ";
-		getGroups(ws, ws, ws, ws, ws, ws, ws, null, GetGroupsParams.getBuilder().build());
+		getGroups(ws, ws, ws, ws, ws, ws, ws, ws, null, GetGroupsParams.getBuilder().build());
 	}
 	
 	@Test
 	public void getGroupsWhitespaceValuesAsc() throws Exception {
 		getGroups("    tok \t   ", "   foo  \t  ", "  asc  \t ", "Member",
-				"t", "r", "    ,    \t   ,    ", new Token("    tok \t   "),
+				"t", "r", "  \t 30  ", "    ,    \t   ,    ", new Token("    tok \t   "),
 				GetGroupsParams.getBuilder()
 						.withRole(Role.MEMBER)
 						.withNullableExcludeUpTo("foo")
 						.withResource(new ResourceType("t"), new ResourceID("r"))
+						.withNullableLimit(30)
 						.build());
 	}
 	
 	@Test
 	public void getGroupsWhitespaceValuesDesc() throws Exception {
-		getGroups("t", "   foo  \t  ", "  desc  \t ", "Admin", null, "  \t  ", ",", new Token("t"),
+		getGroups("t", "   foo  \t  ", "  desc  \t ", "Admin", null, "  \t  ", null, ",",
+				new Token("t"),
 				GetGroupsParams.getBuilder()
 						.withRole(Role.ADMIN)
 						.withNullableExcludeUpTo("foo")
@@ -305,6 +312,7 @@ public class GroupsAPITest {
 			final String role,
 			final String resType,
 			final String resource,
+			final String limit,
 			final String ids, // this must be null or contain ws (with commas)
 			final Token expectedToken,
 			final GetGroupsParams expected)
@@ -317,11 +325,58 @@ public class GroupsAPITest {
 				GroupView.getBuilder(GROUP_MIN, new UserName("u2"))
 						.withPublicUserFieldDeterminer(f -> f.getField().equals("something"))
 						.build()));
-		final List<Map<String, Object>> ret = new GroupsAPI(g)
-				.getGroups(token, excludeUpTo, order, role, resType, resource, ids);
+		final Response ret = new GroupsAPI(g)
+				.getGroups(token, excludeUpTo, null, order, role, resType, resource, limit, ids);
+		final String nextToken = TestCommon.toNextToken(
+				"g", expected.isSortAscending() ? "asc" : "desc", "id");
 		
-		assertThat("incorrect groups", ret,
+		assertThat("incorrect groups", TestCommon.getListEntity(ret),
 				is(Arrays.asList(GROUP_MAX_JSON_MIN, GROUP_MIN_JSON_MIN)));
+		assertThat("incorrect next token", ret.getHeaderString("X-Next-Token"), is(nextToken));
+		
+		final Response retlines = new GroupsAPI(g).getGroupsAsJSONLines(
+				token, excludeUpTo, null, order, role, resType, resource, limit, ids);
+		
+		TestCommon.assertJSONLinesCorrect((StreamingOutput) retlines.getEntity(),
+				Arrays.asList(GROUP_MAX_JSON_MIN, GROUP_MIN_JSON_MIN));
+		assertThat("incorrect next token", retlines.getHeaderString("X-Next-Token"),
+				is(nextToken));
+	}
+	
+	@Test
+	public void getGroupsWithNextToken() throws Exception {
+		final Groups g = mock(Groups.class);
+		when(g.getGroups(new Token("t"), GetGroupsParams.getBuilder()
+				.withNullableExcludeUpTo("id")
+				.withNullableSortAscending(false)
+				.withNullableLimit(1)
+				.build()))
+				.thenReturn(Arrays.asList(GroupView.getBuilder(GROUP_MAX, new UserName("u2"))
+						.withMinimalViewFieldDeterminer(f -> f.getField().equals("field-1"))
+						.build()));
+		
+		final Response ret = new GroupsAPI(g).getGroups(
+				"t", null, TestCommon.toNextToken("g", "desc", "id"), "desc", null, null, null,
+				"1", null);
+		
+		assertThat("incorrect groups", TestCommon.getListEntity(ret),
+				is(Arrays.asList(GROUP_MAX_JSON_MIN)));
+		assertThat("incorrect next token", ret.getHeaderString("X-Next-Token"),
+				is(TestCommon.toNextToken("g", "desc", "id2")));
+	}
+	
+	@Test
+	public void getGroupsEmptyPage() throws Exception {
+		final Groups g = mock(Groups.class);
+		when(g.getGroups(null, GetGroupsParams.getBuilder().build()))
+				.thenReturn(Collections.emptyList());
+		
+		final Response ret = new GroupsAPI(g).getGroups(
+				null, null, null, null, null, null, null, null, null);
+		
+		assertThat("incorrect groups", TestCommon.getListEntity(ret),
+				is(Collections.emptyList()));
+		assertThat("incorrect next token", ret.getHeaderString("X-Next-Token"), is(nullValue()));
 	}
 	
 	@Test
@@ -356,31 +411,65 @@ public class GroupsAPITest {
 										f -> f.getField().equals("something"))
 								.build()));
 		
-		final List<Map<String, Object>> ret = new GroupsAPI(g)
-				.getGroups(token, "id", "asc", "Owner", null, null, "id2   , priv,  id   ");
+		final Response ret = new GroupsAPI(g).getGroups(
+				token, "id", null, "asc", "Owner", null, null, "10", "id2   , priv,  id   ");
 		
-		assertThat("incorrect groups", ret,
+		assertThat("incorrect groups", TestCommon.getListEntity(ret),
 				is(Arrays.asList(
 						GROUP_MAX_JSON_MIN,
 						ImmutableMap.of("private", true, "role", "None", "id", "priv"),
 						GROUP_MIN_JSON_MIN)));
+		// groups listed by ID are a single page
+		assertThat("incorrect next token", ret.getHeaderString("X-Next-Token"), is(nullValue()));
 	}
 	
 	@Test
 	public void getGroupsFailBadArgs() throws Exception {
 		final Groups g = mock(Groups.class);
 		
-		failGetGroups(g, "t", null, "  asd   ", null, null, null, null,
+		failGetGroups(g, "t", null, "  asd   ", null, null, null, null, null,
 				new IllegalParameterException("Invalid sort direction: asd"));
-		failGetGroups(g, "t", null, null, "owner", null, null, null, new IllegalParameterException(
-				"Invalid role: owner"));
-		failGetGroups(g, "t", null, null, null, null, null, " id1 , id*bad",
+		failGetGroups(g, "t", null, null, "owner", null, null, null, null,
+				new IllegalParameterException("Invalid role: owner"));
+		failGetGroups(g, "t", null, null, null, null, null, null, " id1 , id*bad",
 				new IllegalParameterException(ErrorType.ILLEGAL_GROUP_ID,
 						"Illegal character in group id id*bad: *"));
-		failGetGroups(g, "t", null, null, null, "t", null, null, new IllegalParameterException(
-				"Either both or neither of the resource type and resource ID must be provided"));
-		failGetGroups(g, "t", null, null, null, " ", "r", null, new IllegalParameterException(
-				"Either both or neither of the resource type and resource ID must be provided"));
+		failGetGroups(g, "t", null, null, null, "t", null, null, null,
+				new IllegalParameterException("Either both or neither of the resource type " +
+						"and resource ID must be provided"));
+		failGetGroups(g, "t", null, null, null, " ", "r", null, null,
+				new IllegalParameterException("Either both or neither of the resource type " +
+						"and resource ID must be provided"));
+		failGetGroups(g, "t", null, null, null, null, null, "lots", null,
+				new IllegalParameterException("Invalid limit: lots"));
+		failGetGroups(g, "t", null, null, null, null, null, "0", null,
+				new IllegalParameterException("limit must be > 0"));
+	}
+	
+	@Test
+	public void getGroupsFailNextToken() throws Exception {
+		failGetGroups("foo", TestCommon.toNextToken("g", "asc", "id"), null,
+				new IllegalParameterException(
+						"Only one of the excludeupto and next parameters may be provided"));
+		failGetGroups(null, TestCommon.toNextToken("g", "asc", "id"), "desc",
+				new IllegalParameterException(
+						"The next token does not match the sort direction"));
+		failGetGroups(null, "bad*token", null,
+				new IllegalParameterException("Invalid next token"));
+	}
+	
+	private void failGetGroups(
+			final String excludeUpTo,
+			final String next,
+			final String order,
+			final Exception expected) {
+		try {
+			new GroupsAPI(mock(Groups.class)).getGroups(
+					"t", excludeUpTo, next, order, null, null, null, null, null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
 	}
 	
 	private void failGetGroups(
@@ -391,10 +480,12 @@ public class GroupsAPITest {
 			final String role,
 			final String resType,
 			final String resource,
+			final String limit,
 			final String ids,
 			final Exception expected) {
 		try {
-			new GroupsAPI(g).getGroups(token, excludeUpTo, order, role, resType, resource, ids);
+			new GroupsAPI(g).getGroups(
+					token, excludeUpTo, null, order, role, resType, resource, limit, ids);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -941,8 +1032,8 @@ public class GroupsAPITest {
 		when(g.getGroups(new Token("toke2"), GetGroupsParams.getBuilder().build()))
 				.thenReturn(Arrays.asList(gv.withStandardView(false).build()));
 		
-		final Map<String, Object> retmin = new GroupsAPI(g)
-				.getGroups("toke2", null, null, null, null, null, null).get(0);
+		final Map<String, Object> retmin = TestCommon.getListEntity(new GroupsAPI(g)
+				.getGroups("toke2", null, null, null, null, null, null, null, null)).get(0);
 		final Map<String, Object> expectedmin = new HashMap<>();
 		expectedmin.putAll(GROUP_MAX_JSON_MIN);
 		expectedmin.put("role", "Admin");
@@ -1273,6 +1364,105 @@ public class GroupsAPITest {
 		}
 	}
 	
+	@Test
+	public void inviteMembers() throws Exception {
+		final Groups g = mock(Groups.class);
+		
+		final UUID id1 = UUID.randomUUID();
+		final UUID id2 = UUID.randomUUID();
+		
+		when(g.inviteUsersToGroup(new Token("t"), new GroupID("gid"), Arrays.asList(
+				new UserName("bar"), new UserName("baz"))))
+				.thenReturn(Arrays.asList(
+						GroupRequest.getBuilder(
+								new RequestID(id1), new GroupID("gid"), new UserName("foo"),
+								CreateModAndExpireTimes.getBuilder(
+										Instant.ofEpochMilli(10000), Instant.ofEpochMilli(30000))
+										.build())
+								.withType(RequestType.INVITE)
+								.withResource(GroupRequest.USER_TYPE,
+										ResourceDescriptor.from(new UserName("bar")))
+								.build(),
+						GroupRequest.getBuilder(
+								new RequestID(id2), new GroupID("gid"), new UserName("foo"),
+								CreateModAndExpireTimes.getBuilder(
+										Instant.ofEpochMilli(10000), Instant.ofEpochMilli(30000))
+										.build())
+								.withType(RequestType.INVITE)
+								.withResource(GroupRequest.USER_TYPE,
+										ResourceDescriptor.from(new UserName("baz")))
+								.build()));
+		
+		final List<Map<String, Object>> ret = new GroupsAPI(g).inviteMembers("t", "gid",
+				new InviteUsersJSON(Arrays.asList("bar", "baz")));
+		
+		assertThat("incorrect requests", ret, is(Arrays.asList(
+				MapBuilder.newHashMap()
+						.with("id", id1.toString())
+						.with("groupid", "gid")
+						.with("requester", "foo")
+						.with("type", "Invite")
+						.with("resourcetype", "user")
+						.with("resource", "bar")
+						.with("status", "Open")
+						.with("createdate", 10000L)
+						.with("moddate", 10000L)
+						.with("expiredate", 30000L)
+						.build(),
+				MapBuilder.newHashMap()
+						.with("id", id2.toString())
+						.with("groupid", "gid")
+						.with("requester", "foo")
+						.with("type", "Invite")
+						.with("resourcetype", "user")
+						.with("resource", "baz")
+						.with("status", "Open")
+						.with("createdate", 10000L)
+						.with("moddate", 10000L)
+						.with("expiredate", 30000L)
+						.build())));
+	}
+	
+	@Test
+	public void inviteMembersFailBadInput() throws Exception {
+		final Groups g = mock(Groups.class);
+		final InviteUsersJSON good = new InviteUsersJSON(Arrays.asList("u"));
+		
+		failInviteMembers(g, null, "i", good,
+				new NoTokenProvidedException("No token provided"));
+		failInviteMembers(g, "t", "   \t   ", good,
+				new MissingParameterException("group id"));
+		failInviteMembers(g, "t", "i", null,
+				new MissingParameterException("Missing JSON body"));
+		failInviteMembers(g, "t", "i", new InviteUsersJSON(null),
+				new MissingParameterException("users"));
+		failInviteMembers(g, "t", "i", new InviteUsersJSON("u"),
+				new IllegalParameterException("'users' field must be a list"));
+		failInviteMembers(g, "t", "i", new InviteUsersJSON(Arrays.asList("u", 1)),
+				new IllegalParameterException("Entry in 'users' field is not a string: 1"));
+		failInviteMembers(g, "t", "i", new InviteUsersJSON(Arrays.asList("u", "  \t  ")),
+				new MissingParameterException("user name"));
+		
+		final InviteUsersJSON extra = new InviteUsersJSON(Arrays.asList("u"));
+		extra.setAdditionalProperties("foo", "bar");
+		failInviteMembers(g, "t", "i", extra,
+				new IllegalParameterException("Unexpected parameters in request: foo"));
+	}
+	
+	private void failInviteMembers(
+			final Groups g,
+			final String token,
+			final String groupid,
+			final InviteUsersJSON users,
+			final Exception expected) {
+		try {
+			new GroupsAPI(g).inviteMembers(token, groupid, users);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
 	// not really sure how to name these other than copy the params.
 	@Test
 	public void getRequestsForGroup1() throws Exception {
@@ -1317,8 +1507,9 @@ public class GroupsAPITest {
 				.withNullableIncludeClosed(true)
 				.withNullableSortAscending(false)
 				.withResource(new ResourceType("t"), new ResourceID("r"))
+				.withNullableLimit(5)
 				.build();
-		getRequestsForGroup(null, "", "desc", "t", "r", params);
+		getRequestsForGroup(null, "", "desc", "t", "r", "  5 \t ", params);
 	}
 
 	private void getRequestsForGroup(
@@ -1327,7 +1518,7 @@ public class GroupsAPITest {
 			final String sortOrder,
 			final GetRequestsParams params)
 			throws Exception {
-		getRequestsForGroup(excludeUpTo, closed, sortOrder, null, null, params);
+		getRequestsForGroup(excludeUpTo, closed, sortOrder, null, null, null, params);
 	}
 	
 	private void getRequestsForGroup(
@@ -1336,6 +1527,7 @@ public class GroupsAPITest {
 			final String sortOrder,
 			final String resType,
 			final String resource,
+			final String limit,
 			final GetRequestsParams params)
 			throws Exception {
 		final Groups g = mock(Groups.class);
@@ -1366,11 +1558,13 @@ public class GroupsAPITest {
 								.build()
 						));
 		
-		final List<Map<String, Object>> ret = new GroupsAPI(g).getRequestsForGroup(
-				"t", "id", excludeUpTo, closed, sortOrder, resType, resource);
+		final Response ret = new GroupsAPI(g).getRequestsForGroup(
+				"t", "id", excludeUpTo, null, closed, sortOrder, resType, resource, limit);
+		final String nextToken = TestCommon.toNextToken(
+				"r", params.isSortAscending() ? "asc" : "desc", "25000", id2.toString());
 		
-		assertThat("incorrect requests", ret, is(Arrays.asList(
-				MapBuilder.newHashMap()
+		final List<Map<String, Object>> expected = Arrays.asList(
+				MapBuilder.<String, Object>newHashMap()
 						.with("id", id1.toString())
 						.with("groupid", "id")
 						.with("requester", "foo")
@@ -1382,7 +1576,7 @@ public class GroupsAPITest {
 						.with("moddate", 10000L)
 						.with("expiredate", 40000L)
 						.build(),
-				MapBuilder.newHashMap()
+				MapBuilder.<String, Object>newHashMap()
 						.with("id", id2.toString())
 						.with("groupid", "id")
 						.with("requester", "bar")
@@ -1393,21 +1587,50 @@ public class GroupsAPITest {
 						.with("createdate", 20000L)
 						.with("moddate", 25000L)
 						.with("expiredate", 30000L)
-						.build()
-				)));
+						.build());
+		
+		assertThat("incorrect requests", TestCommon.getListEntity(ret), is(expected));
+		assertThat("incorrect next token", ret.getHeaderString("X-Next-Token"), is(nextToken));
+		
+		final Response retlines = new GroupsAPI(g).getRequestsForGroupAsJSONLines(
+				"t", "id", excludeUpTo, null, closed, sortOrder, resType, resource, limit);
+		
+		TestCommon.assertJSONLinesCorrect((StreamingOutput) retlines.getEntity(), expected);
+		assertThat("incorrect next token", retlines.getHeaderString("X-Next-Token"),
+				is(nextToken));
+	}
+	
+	@Test
+	public void getRequestsForGroupWithNextToken() throws Exception {
+		final Groups g = mock(Groups.class);
+		final UUID id = UUID.randomUUID();
+		
+		when(g.getRequestsForGroup(new Token("t"), new GroupID("id"),
+				GetRequestsParams.getBuilder()
+						.withExcludeUpTo(inst(25000), new RequestID(id))
+						.build()))
+				.thenReturn(Collections.emptyList());
+		
+		final Response ret = new GroupsAPI(g).getRequestsForGroup("t", "id", null,
+				TestCommon.toNextToken("r", "asc", "25000", id.toString()),
+				null, null, null, null, null);
+		
+		assertThat("incorrect requests", TestCommon.getListEntity(ret),
+				is(Collections.emptyList()));
+		assertThat("incorrect next token", ret.getHeaderString("X-Next-Token"), is(nullValue()));
 	}
 	
 	@Test
 	public void getRequestsForGroupFailMissingInput() throws Exception {
 		final Groups g = mock(Groups.class);
 		
-		failGetRequestsForGroup(g, null, "i", null, null, null, null,
+		failGetRequestsForGroup(g, null, "i", null, null, null, null, null,
 				new NoTokenProvidedException("No token provided"));
-		failGetRequestsForGroup(g, "    \t    ", "i", null, null, null, null,
+		failGetRequestsForGroup(g, "    \t    ", "i", null, null, null, null, null,
 				new NoTokenProvidedException("No token provided"));
-		failGetRequestsForGroup(g, "t", null, null, null, null, null,
+		failGetRequestsForGroup(g, "t", null, null, null, null, null, null,
 				new MissingParameterException("group id"));
-		failGetRequestsForGroup(g, "t", "   \t   ", null, null, null, null,
+		failGetRequestsForGroup(g, "t", "   \t   ", null, null, null, null, null,
 				new MissingParameterException("group id"));
 	}
 	
@@ -1415,16 +1638,28 @@ public class GroupsAPITest {
 	public void getRequestsForGroupFailIllegalInput() throws Exception {
 		final Groups g = mock(Groups.class);
 		
-		failGetRequestsForGroup(g, "t", "g", " bar ", null, null, null,
+		failGetRequestsForGroup(g, "t", "g", " bar ", null, null, null, null,
 				new IllegalParameterException("Invalid epoch ms: bar"));
-		failGetRequestsForGroup(g, "t", "g", "", "   bat   ", null, null,
+		failGetRequestsForGroup(g, "t", "g", "", "   bat   ", null, null, null,
 				new IllegalParameterException("Invalid sort direction: bat"));
-		failGetRequestsForGroup(g, "t", "g", null, null, "t", null,
+		failGetRequestsForGroup(g, "t", "g", null, null, "t", null, null,
 				new IllegalParameterException("Either both or neither of the resource type " +
 						"and resource ID must be provided"));
-		failGetRequestsForGroup(g, "t", "g", null, null, null, "r",
+		failGetRequestsForGroup(g, "t", "g", null, null, null, "r", null,
 				new IllegalParameterException("Either both or neither of the resource type " +
 						"and resource ID must be provided"));
+		failGetRequestsForGroup(g, "t", "g", null, null, null, null, "  1x  ",
+				new IllegalParameterException("Invalid limit: 1x"));
+		failGetRequestsForGroup(g, "t", "g", null, null, null, null, "-3",
+				new IllegalParameterException("limit must be > 0"));
+		try {
+			new GroupsAPI(g).getRequestsForGroup(
+					"t", "g", "1", "sometoken", null, null, null, null, null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new IllegalParameterException(
+					"Only one of the excludeupto and next parameters may be provided"));
+		}
 	}
 
 	@Test
@@ -1435,7 +1670,7 @@ public class GroupsAPITest {
 				GetRequestsParams.getBuilder().build()))
 				.thenThrow(new UnauthorizedException("yay"));
 		
-		failGetRequestsForGroup(g, "t", "i",  null, null, null, null,
+		failGetRequestsForGroup(g, "t", "i",  null, null, null, null, null,
 				new UnauthorizedException("yay"));
 	}
 	
@@ -1447,10 +1682,11 @@ public class GroupsAPITest {
 			final String sortOrder,
 			final String resType,
 			final String resource,
+			final String limit,
 			final Exception expected) {
 		try {
 			new GroupsAPI(g).getRequestsForGroup(
-					token, groupid, excludeUpTo, null, sortOrder, resType, resource);
+					token, groupid, excludeUpTo, null, null, sortOrder, resType, resource, limit);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
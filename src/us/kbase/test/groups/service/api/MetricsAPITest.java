@@ -0,0 +1,74 @@
+package us.kbase.test.groups.service.api;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+
+import us.kbase.groups.core.ServiceAdministrators;
+import us.kbase.groups.core.Token;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.InvalidTokenException;
+import us.kbase.groups.core.exceptions.NoTokenProvidedException;
+import us.kbase.groups.core.exceptions.UnauthorizedException;
+import us.kbase.groups.metrics.MetricsRegistry;
+import us.kbase.groups.service.api.MetricsAPI;
+import us.kbase.test.groups.TestCommon;
+
+public class MetricsAPITest {
+	
+	@Test
+	public void getMetrics() throws Exception {
+		final MetricsRegistry r = mock(MetricsRegistry.class);
+		final ServiceAdministrators sa = mock(ServiceAdministrators.class);
+		
+		when(sa.checkAdministrator(new Token("t"))).thenReturn(new UserName("a"));
+		when(r.toPrometheusText()).thenReturn("metrics\n");
+		
+		assertThat("incorrect metrics", new MetricsAPI(r, sa).getMetrics("t"), is("metrics\n"));
+	}
+	
+	@Test
+	public void getMetricsFailNoToken() throws Exception {
+		final MetricsAPI api = new MetricsAPI(
+				mock(MetricsRegistry.class), mock(ServiceAdministrators.class));
+		failGetMetrics(api, null, new NoTokenProvidedException("No token provided"));
+		failGetMetrics(api, "  \t  ", new NoTokenProvidedException("No token provided"));
+	}
+	
+	@Test
+	public void getMetricsFailInvalidToken() throws Exception {
+		final ServiceAdministrators sa = mock(ServiceAdministrators.class);
+		
+		when(sa.checkAdministrator(new Token("t"))).thenThrow(new InvalidTokenException());
+		
+		failGetMetrics(new MetricsAPI(mock(MetricsRegistry.class), sa), "t",
+				new InvalidTokenException());
+	}
+	
+	@Test
+	public void getMetricsFailNotAdmin() throws Exception {
+		final ServiceAdministrators sa = mock(ServiceAdministrators.class);
+		
+		when(sa.checkAdministrator(new Token("t"))).thenThrow(
+				new UnauthorizedException("User u is not a service administrator"));
+		
+		failGetMetrics(new MetricsAPI(mock(MetricsRegistry.class), sa), "t",
+				new UnauthorizedException("User u is not a service administrator"));
+	}
+	
+	private void failGetMetrics(
+			final MetricsAPI api,
+			final String token,
+			final Exception expected) {
+		try {
+			api.getMetrics(token);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
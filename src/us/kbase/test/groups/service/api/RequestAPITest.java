@@ -17,6 +17,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
 import org.junit.Test;
 
 import com.google.common.collect.ImmutableMap;
@@ -445,8 +448,9 @@ public class RequestAPITest {
 				.withNullableIncludeClosed(true)
 				.withNullableSortAscending(false)
 				.withResource(new ResourceType("t"), new ResourceID("r"))
+				.withNullableLimit(20)
 				.build();
-		getCreatedRequests(null, "", "desc", "t", "r", params);
+		getCreatedRequests(null, "", "desc", "t", "r", "   20  ", params);
 	}
 	
 	private void getCreatedRequests(
@@ -455,7 +459,7 @@ public class RequestAPITest {
 			final String order,
 			final GetRequestsParams params)
 			throws Exception {
-		getCreatedRequests(excludeUpTo, closed, order, null, null, params);
+		getCreatedRequests(excludeUpTo, closed, order, null, null, null, params);
 	}
 	
 	private void getCreatedRequests(
@@ -464,6 +468,7 @@ public class RequestAPITest {
 			final String order,
 			final String resType,
 			final String res,
+			final String limit,
 			final GetRequestsParams params)
 			throws Exception {	
 		final Groups g = mock(Groups.class);
@@ -471,20 +476,31 @@ public class RequestAPITest {
 		when(g.getRequestsForRequester(new Token("t"), params))
 				.thenReturn(Arrays.asList(REQ_DENIED, REQ_MIN, REQ_TARG));
 		
-		final List<Map<String, Object>> ret = new RequestAPI(g).getCreatedRequests(
-				"t", excludeUpTo, closed, order, resType, res);
+		final Response ret = new RequestAPI(g).getCreatedRequests(
+				"t", excludeUpTo, null, closed, order, resType, res, limit);
+		final String nextToken = TestCommon.toNextToken(
+				"r", params.isSortAscending() ? "asc" : "desc", "26000", ID2.toString());
 		
-		assertThat("incorrect reqs", ret, is(Arrays.asList(
+		assertThat("incorrect reqs", TestCommon.getListEntity(ret), is(Arrays.asList(
 				REQ_DENIED_JSON, REQ_MIN_JSON, REQ_TARG_JSON)));
+		assertThat("incorrect next token", ret.getHeaderString("X-Next-Token"), is(nextToken));
+		
+		final Response retlines = new RequestAPI(g).getCreatedRequestsAsJSONLines(
+				"t", excludeUpTo, null, closed, order, resType, res, limit);
+		
+		TestCommon.assertJSONLinesCorrect((StreamingOutput) retlines.getEntity(),
+				Arrays.asList(REQ_DENIED_JSON, REQ_MIN_JSON, REQ_TARG_JSON));
+		assertThat("incorrect next token", retlines.getHeaderString("X-Next-Token"),
+				is(nextToken));
 	}
 	
 	@Test
 	public void getCreatedRequestsMissingInput() throws Exception {
 		final Groups g = mock(Groups.class);
 		
-		failGetCreatedRequests(g, null, null, null, null, null,
+		failGetCreatedRequests(g, null, null, null, null, null, null,
 				new NoTokenProvidedException("No token provided"));
-		failGetCreatedRequests(g, "    \t    ", null, null, null, null,
+		failGetCreatedRequests(g, "    \t    ", null, null, null, null, null,
 				new NoTokenProvidedException("No token provided"));
 	}
 	
@@ -492,16 +508,20 @@ public class RequestAPITest {
 	public void getCreatedRequestsIllegalInput() throws Exception {
 		final Groups g = mock(Groups.class);
 		
-		failGetCreatedRequests(g, "t", " yay ", null, null, null,
+		failGetCreatedRequests(g, "t", " yay ", null, null, null, null,
 				new IllegalParameterException("Invalid epoch ms: yay"));
-		failGetCreatedRequests(g, "t", null, "boo", null, null,
+		failGetCreatedRequests(g, "t", null, "boo", null, null, null,
 				new IllegalParameterException("Invalid sort direction: boo"));
-		failGetCreatedRequests(g, "t", null, null, "t", null,
+		failGetCreatedRequests(g, "t", null, null, "t", null, null,
 				new IllegalParameterException("Either both or neither of the resource type " +
 						"and resource ID must be provided"));
-		failGetCreatedRequests(g, "t", null, null, null, "r",
+		failGetCreatedRequests(g, "t", null, null, null, "r", null,
 				new IllegalParameterException("Either both or neither of the resource type " +
 						"and resource ID must be provided"));
+		failGetCreatedRequests(g, "t", null, null, null, null, "  ten ",
+				new IllegalParameterException("Invalid limit: ten"));
+		failGetCreatedRequests(g, "t", null, null, null, null, "0",
+				new IllegalParameterException("limit must be > 0"));
 	}
 
 	@Test
@@ -511,7 +531,8 @@ public class RequestAPITest {
 		when(g.getRequestsForRequester(new Token("t"), GetRequestsParams.getBuilder().build()))
 				.thenThrow(new InvalidTokenException());
 		
-		failGetCreatedRequests(g, "t", null, null, null, null, new InvalidTokenException());
+		failGetCreatedRequests(g, "t", null, null, null, null, null,
+				new InvalidTokenException());
 	}
 	
 	private void failGetCreatedRequests(
@@ -521,10 +542,11 @@ public class RequestAPITest {
 			final String sortOrder,
 			final String resType,
 			final String res,
+			final String limit,
 			final Exception expected) {
 		try {
 			new RequestAPI(g).getCreatedRequests(
-					token, excludeUpTo, null, sortOrder, resType, res);
+					token, excludeUpTo, null, null, sortOrder, resType, res, limit);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -575,8 +597,9 @@ public class RequestAPITest {
 				.withNullableIncludeClosed(true)
 				.withNullableSortAscending(false)
 				.withResource(new ResourceType("t"), new ResourceID("r"))
+				.withNullableLimit(20)
 				.build();
-		getTargetedRequests(null, "", "desc", "t", "r", params);
+		getTargetedRequests(null, "", "desc", "t", "r", "   20  ", params);
 	}
 
 	private void getTargetedRequests(
@@ -585,7 +608,7 @@ public class RequestAPITest {
 			final String order,
 			final GetRequestsParams params)
 			throws Exception {
-		getTargetedRequests(excludeUpTo, closed, order, null, null, params);
+		getTargetedRequests(excludeUpTo, closed, order, null, null, null, params);
 	}
 	
 	private void getTargetedRequests(
@@ -594,6 +617,7 @@ public class RequestAPITest {
 			final String order,
 			final String resType,
 			final String res,
+			final String limit,
 			final GetRequestsParams params)
 			throws Exception {
 		final Groups g = mock(Groups.class);
@@ -601,20 +625,31 @@ public class RequestAPITest {
 		when(g.getRequestsForTarget(new Token("t"), params))
 				.thenReturn(Arrays.asList(REQ_MIN, REQ_DENIED, REQ_TARG));
 		
-		final List<Map<String, Object>> ret = new RequestAPI(g).getTargetedRequests(
-				"t", excludeUpTo, closed, order, resType, res);
+		final Response ret = new RequestAPI(g).getTargetedRequests(
+				"t", excludeUpTo, null, closed, order, resType, res, limit);
+		final String nextToken = TestCommon.toNextToken(
+				"r", params.isSortAscending() ? "asc" : "desc", "26000", ID2.toString());
 		
-		assertThat("incorrect reqs", ret, is(Arrays.asList(
+		assertThat("incorrect reqs", TestCommon.getListEntity(ret), is(Arrays.asList(
 				REQ_MIN_JSON, REQ_DENIED_JSON, REQ_TARG_JSON)));
+		assertThat("incorrect next token", ret.getHeaderString("X-Next-Token"), is(nextToken));
+		
+		final Response retlines = new RequestAPI(g).getTargetedRequestsAsJSONLines(
+				"t", excludeUpTo, null, closed, order, resType, res, limit);
+		
+		TestCommon.assertJSONLinesCorrect((StreamingOutput) retlines.getEntity(),
+				Arrays.asList(REQ_MIN_JSON, REQ_DENIED_JSON, REQ_TARG_JSON));
+		assertThat("incorrect next token", retlines.getHeaderString("X-Next-Token"),
+				is(nextToken));
 	}
 	
 	@Test
 	public void getTargetedRequestsMissingInput() throws Exception {
 		final Groups g = mock(Groups.class);
 		
-		failGetTargetedRequests(g, null, null, null, null, null,
+		failGetTargetedRequests(g, null, null, null, null, null, null,
 				new NoTokenProvidedException("No token provided"));
-		failGetTargetedRequests(g, "    \t    ", null, null, null, null,
+		failGetTargetedRequests(g, "    \t    ", null, null, null, null, null,
 				new NoTokenProvidedException("No token provided"));
 	}
 
@@ -622,16 +657,20 @@ public class RequestAPITest {
 	public void getTargetedRequestsIllegalInput() throws Exception {
 		final Groups g = mock(Groups.class);
 		
-		failGetTargetedRequests(g, "t", " whoo" , null, null, null,
+		failGetTargetedRequests(g, "t", " whoo" , null, null, null, null,
 				new IllegalParameterException("Invalid epoch ms: whoo"));
-		failGetTargetedRequests(g, "t", null, "but mommy   ", null, null,
+		failGetTargetedRequests(g, "t", null, "but mommy   ", null, null, null,
 				new IllegalParameterException("Invalid sort direction: but mommy"));
-		failGetTargetedRequests(g, "t", null, null, "t", null,
+		failGetTargetedRequests(g, "t", null, null, "t", null, null,
 				new IllegalParameterException("Either both or neither of the resource type " +
 						"and resource ID must be provided"));
-		failGetTargetedRequests(g, "t", null, null, null, "r",
+		failGetTargetedRequests(g, "t", null, null, null, "r", null,
 				new IllegalParameterException("Either both or neither of the resource type " +
 						"and resource ID must be provided"));
+		failGetTargetedRequests(g, "t", null, null, null, null, "  ten ",
+				new IllegalParameterException("Invalid limit: ten"));
+		failGetTargetedRequests(g, "t", null, null, null, null, "0",
+				new IllegalParameterException("limit must be > 0"));
 	}
 	
 	@Test
@@ -641,8 +680,8 @@ public class RequestAPITest {
 		when(g.getRequestsForTarget(new Token("t"), GetRequestsParams.getBuilder().build()))
 				.thenThrow(new AuthenticationException(ErrorType.AUTHENTICATION_FAILED, "yikes"));
 		
-		failGetTargetedRequests(g, "t", null, null, null, null, new AuthenticationException(
-				ErrorType.AUTHENTICATION_FAILED, "yikes"));
+		failGetTargetedRequests(g, "t", null, null, null, null, null,
+				new AuthenticationException(ErrorType.AUTHENTICATION_FAILED, "yikes"));
 	}
 	
 	private void failGetTargetedRequests(
@@ -652,9 +691,11 @@ public class RequestAPITest {
 			final String order,
 			final String resType,
 			final String res,
+			final String limit,
 			final Exception expected) {
 		try {
-			new RequestAPI(g).getTargetedRequests(token, excludeUpTo, null, order, resType, res);
+			new RequestAPI(g).getTargetedRequests(
+					token, excludeUpTo, null, null, order, resType, res, limit);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -705,8 +746,9 @@ public class RequestAPITest {
 				.withNullableIncludeClosed(true)
 				.withNullableSortAscending(false)
 				.withResource(new ResourceType("t"), new ResourceID("r"))
+				.withNullableLimit(20)
 				.build();
-		getRequestsForAdministratedGroups(null, "", "desc", "t", "r", params);
+		getRequestsForAdministratedGroups(null, "", "desc", "t", "r", "   20  ", params);
 	}
 
 	private void getRequestsForAdministratedGroups(
@@ -715,7 +757,7 @@ public class RequestAPITest {
 			final String order,
 			final GetRequestsParams params)
 			throws Exception {
-		getRequestsForAdministratedGroups(excludeUpTo, closed, order, null, null, params);
+		getRequestsForAdministratedGroups(excludeUpTo, closed, order, null, null, null, params);
 	}
 	
 	private void getRequestsForAdministratedGroups(
@@ -724,6 +766,7 @@ public class RequestAPITest {
 			final String order,
 			final String resType,
 			final String res,
+			final String limit,
 			final GetRequestsParams params)
 			throws Exception {
 		final Groups g = mock(Groups.class);
@@ -731,20 +774,31 @@ public class RequestAPITest {
 		when(g.getRequestsForGroups(new Token("t"), params))
 				.thenReturn(Arrays.asList(REQ_MIN, REQ_DENIED, REQ_TARG));
 		
-		final List<Map<String, Object>> ret = new RequestAPI(g).getRequestsForAdministratedGroups(
-				"t", excludeUpTo, closed, order, resType, res);
+		final Response ret = new RequestAPI(g).getRequestsForAdministratedGroups(
+				"t", excludeUpTo, null, closed, order, resType, res, limit);
+		final String nextToken = TestCommon.toNextToken(
+				"r", params.isSortAscending() ? "asc" : "desc", "26000", ID2.toString());
 		
-		assertThat("incorrect reqs", ret, is(Arrays.asList(
+		assertThat("incorrect reqs", TestCommon.getListEntity(ret), is(Arrays.asList(
 				REQ_MIN_JSON, REQ_DENIED_JSON, REQ_TARG_JSON)));
+		assertThat("incorrect next token", ret.getHeaderString("X-Next-Token"), is(nextToken));
+		
+		final Response retlines = new RequestAPI(g).getRequestsForAdministratedGroupsAsJSONLines(
+				"t", excludeUpTo, null, closed, order, resType, res, limit);
+		
+		TestCommon.assertJSONLinesCorrect((StreamingOutput) retlines.getEntity(),
+				Arrays.asList(REQ_MIN_JSON, REQ_DENIED_JSON, REQ_TARG_JSON));
+		assertThat("incorrect next token", retlines.getHeaderString("X-Next-Token"),
+				is(nextToken));
 	}
 	
 	@Test
 	public void getRequestsForAdministratedGroupsMissingInput() throws Exception {
 		final Groups g = mock(Groups.class);
 		
-		failGetRequestsForAdministratedGroups(g, null, null, null, null, null,
+		failGetRequestsForAdministratedGroups(g, null, null, null, null, null, null,
 				new NoTokenProvidedException("No token provided"));
-		failGetRequestsForAdministratedGroups(g, "    \t    ", null, null, null, null,
+		failGetRequestsForAdministratedGroups(g, "    \t    ", null, null, null, null, null,
 				new NoTokenProvidedException("No token provided"));
 	}
 
@@ -752,16 +806,20 @@ public class RequestAPITest {
 	public void getRequestsForAdministratedGroupsIllegalInput() throws Exception {
 		final Groups g = mock(Groups.class);
 		
-		failGetRequestsForAdministratedGroups(g, "t", " whoo" , null, null, null,
+		failGetRequestsForAdministratedGroups(g, "t", " whoo" , null, null, null, null,
 				new IllegalParameterException("Invalid epoch ms: whoo"));
-		failGetRequestsForAdministratedGroups(g, "t", null, "but mommy   ", null, null,
+		failGetRequestsForAdministratedGroups(g, "t", null, "but mommy   ", null, null, null,
 				new IllegalParameterException("Invalid sort direction: but mommy"));
-		failGetRequestsForAdministratedGroups(g, "t", null, null, "t", null,
+		failGetRequestsForAdministratedGroups(g, "t", null, null, "t", null, null,
 				new IllegalParameterException("Either both or neither of the resource type " +
 						"and resource ID must be provided"));
-		failGetRequestsForAdministratedGroups(g, "t", null, null, null, "r",
+		failGetRequestsForAdministratedGroups(g, "t", null, null, null, "r", null,
 				new IllegalParameterException("Either both or neither of the resource type " +
 						"and resource ID must be provided"));
+		failGetRequestsForAdministratedGroups(g, "t", null, null, null, null, "  ten ",
+				new IllegalParameterException("Invalid limit: ten"));
+		failGetRequestsForAdministratedGroups(g, "t", null, null, null, null, "0",
+				new IllegalParameterException("limit must be > 0"));
 	}
 	
 	@Test
@@ -771,7 +829,7 @@ public class RequestAPITest {
 		when(g.getRequestsForGroups(new Token("t"), GetRequestsParams.getBuilder().build()))
 				.thenThrow(new AuthenticationException(ErrorType.AUTHENTICATION_FAILED, "yikes"));
 		
-		failGetRequestsForAdministratedGroups(g, "t", null, null, null, null,
+		failGetRequestsForAdministratedGroups(g, "t", null, null, null, null, null,
 				new AuthenticationException(ErrorType.AUTHENTICATION_FAILED, "yikes"));
 	}
 	
@@ -782,10 +840,11 @@ public class RequestAPITest {
 			final String order,
 			final String resType,
 			final String res,
+			final String limit,
 			final Exception expected) {
 		try {
 			new RequestAPI(g).getRequestsForAdministratedGroups(
-					token, excludeUpTo, null, order, resType, res);
+					token, excludeUpTo, null, null, order, resType, res, limit);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
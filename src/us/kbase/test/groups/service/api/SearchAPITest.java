@@ -0,0 +1,113 @@
+package us.kbase.test.groups.service.api;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static us.kbase.test.groups.TestCommon.inst;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import us.kbase.groups.core.CreateAndModTimes;
+import us.kbase.groups.core.Group;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupUser;
+import us.kbase.groups.core.GroupView;
+import us.kbase.groups.core.Groups;
+import us.kbase.groups.core.SearchGroupsParams;
+import us.kbase.groups.core.Token;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.IllegalParameterException;
+import us.kbase.groups.core.exceptions.MissingParameterException;
+import us.kbase.groups.service.api.SearchAPI;
+import us.kbase.test.groups.MapBuilder;
+import us.kbase.test.groups.TestCommon;
+
+public class SearchAPITest {
+	
+	private static Group getGroup(final String id, final String owner) throws Exception {
+		return Group.getBuilder(
+				new GroupID(id), new GroupName("name " + id),
+				GroupUser.getBuilder(new UserName(owner), inst(10000)).build(),
+				new CreateAndModTimes(inst(10000), inst(20000)))
+				.build();
+	}
+	
+	private static Map<String, Object> getGroupJSON(final String id, final String owner) {
+		return MapBuilder.<String, Object>newHashMap()
+				.with("id", id)
+				.with("private", false)
+				.with("role", "None")
+				.with("lastvisit", null)
+				.with("name", "name " + id)
+				.with("memcount", 1)
+				.with("rescount", Collections.emptyMap())
+				.with("owner", owner)
+				.with("createdate", 10000L)
+				.with("moddate", 20000L)
+				.with("custom", Collections.emptyMap())
+				.build();
+	}
+	
+	@Test
+	public void searchGroups() throws Exception {
+		searchGroups(null, "  foo  ", null, null, SearchGroupsParams.getBuilder("foo").build());
+		searchGroups("   \t   ", "foo", "  \t  ", null,
+				SearchGroupsParams.getBuilder("foo").build());
+		searchGroups("t", "foo bar", "  10  ", new Token("t"),
+				SearchGroupsParams.getBuilder("foo bar").withNullableLimit(10).build());
+	}
+	
+	private void searchGroups(
+			final String token,
+			final String query,
+			final String limit,
+			final Token expectedToken,
+			final SearchGroupsParams expected)
+			throws Exception {
+		final Groups g = mock(Groups.class);
+		when(g.searchGroups(expectedToken, expected)).thenReturn(Arrays.asList(
+				GroupView.getBuilder(getGroup("id2", "u1"), new UserName("u2")).build(),
+				GroupView.getBuilder(getGroup("id", "u3"), new UserName("u2")).build()));
+		final List<Map<String, Object>> expectedJSON = Arrays.asList(
+				getGroupJSON("id2", "u1"), getGroupJSON("id", "u3"));
+		
+		assertThat("incorrect groups", new SearchAPI(g).searchGroups(token, query, limit),
+				is(expectedJSON));
+		
+		TestCommon.assertJSONLinesCorrect(new SearchAPI(g).searchGroupsAsJSONLines(
+				token, query, limit), expectedJSON);
+	}
+	
+	@Test
+	public void searchGroupsFailBadArgs() throws Exception {
+		final Groups g = mock(Groups.class);
+		
+		failSearchGroups(g, null, null, new MissingParameterException("query"));
+		failSearchGroups(g, "   \t  ", null, new MissingParameterException("query"));
+		failSearchGroups(g, TestCommon.LONG1001, null, new IllegalParameterException(
+				"query size greater than limit 500"));
+		failSearchGroups(g, "foo", "lots", new IllegalParameterException("Invalid limit: lots"));
+		failSearchGroups(g, "foo", "0", new IllegalParameterException("limit must be > 0"));
+	}
+	
+	private void failSearchGroups(
+			final Groups g,
+			final String query,
+			final String limit,
+			final Exception expected) {
+		try {
+			new SearchAPI(g).searchGroups("t", query, limit);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
@@ -0,0 +1,403 @@
+package us.kbase.test.groups.storage;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static us.kbase.test.groups.TestCommon.inst;
+import static us.kbase.test.groups.TestCommon.set;
+
+import java.lang.reflect.Constructor;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+
+import us.kbase.groups.core.CreateAndModTimes;
+import us.kbase.groups.core.Group;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupUser;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.NoSuchGroupException;
+import us.kbase.groups.core.exceptions.UserIsMemberException;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.storage.CachingGroupsStorage;
+import us.kbase.groups.storage.GroupsStorage;
+import us.kbase.test.groups.TestCommon;
+
+public class CachingGroupsStorageTest {
+
+	private static class FakeTicker extends Ticker {
+
+		private final AtomicLong nanos = new AtomicLong();
+
+		@Override
+		public long read() {
+			return nanos.get();
+		}
+
+		private void advance(final Duration d) {
+			nanos.addAndGet(d.toNanos());
+		}
+	}
+
+	private CachingGroupsStorage getStorage(
+			final GroupsStorage wrapped,
+			final int maxSize,
+			final Optional<Duration> ttl,
+			final Ticker ticker)
+			throws Exception {
+		final Constructor<CachingGroupsStorage> c = CachingGroupsStorage.class
+				.getDeclaredConstructor(
+						GroupsStorage.class, int.class, Optional.class, Ticker.class);
+		c.setAccessible(true);
+		return c.newInstance(wrapped, maxSize, ttl, ticker);
+	}
+
+	private static Group group(final String id) throws Exception {
+		return Group.getBuilder(
+				new GroupID(id), new GroupName("name"),
+				GroupUser.getBuilder(new UserName("own"), inst(10000)).build(),
+				new CreateAndModTimes(inst(10000)))
+				.build();
+	}
+
+	@Test
+	public void constructFail() throws Exception {
+		final GroupsStorage s = mock(GroupsStorage.class);
+		final Duration d = Duration.ofSeconds(1);
+
+		failConstruct(null, 1, d, new NullPointerException("storage"));
+		failConstruct(s, 0, d, new IllegalArgumentException("maxSize must be > 0"));
+		failConstruct(s, 1, null, new NullPointerException("ttl"));
+		failConstruct(s, 1, Duration.ZERO, new IllegalArgumentException("ttl must be positive"));
+		failConstruct(s, 1, Duration.ofSeconds(-1),
+				new IllegalArgumentException("ttl must be positive"));
+
+		try {
+			new CachingGroupsStorage(s, 0);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got,
+					new IllegalArgumentException("maxSize must be > 0"));
+		}
+	}
+
+	private void failConstruct(
+			final GroupsStorage storage,
+			final int maxSize,
+			final Duration ttl,
+			final Exception expected) {
+		try {
+			new CachingGroupsStorage(storage, maxSize, ttl);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	@Test
+	public void getGroupTTL() throws Exception {
+		final GroupsStorage wrapped = mock(GroupsStorage.class);
+		final FakeTicker ticker = new FakeTicker();
+		final CachingGroupsStorage s = getStorage(
+				wrapped, 10, Optional.of(Duration.ofSeconds(10)), ticker);
+
+		when(wrapped.getGroup(new GroupID("g"))).thenReturn(group("g"));
+
+		assertThat("incorrect group", s.getGroup(new GroupID("g")), is(group("g")));
+		ticker.advance(Duration.ofSeconds(9));
+		assertThat("incorrect group", s.getGroup(new GroupID("g")), is(group("g")));
+
+		verify(wrapped, times(1)).getGroup(new GroupID("g"));
+		assertThat("incorrect hits", s.getHitCount(), is(1L));
+		assertThat("incorrect misses", s.getMissCount(), is(1L));
+
+		ticker.advance(Duration.ofSeconds(1));
+		assertThat("incorrect group", s.getGroup(new GroupID("g")), is(group("g")));
+
+		verify(wrapped, times(2)).getGroup(new GroupID("g"));
+		assertThat("incorrect hits", s.getHitCount(), is(1L));
+		assertThat("incorrect misses", s.getMissCount(), is(2L));
+	}
+
+	@Test
+	public void getGroupSingleNode() throws Exception {
+		final GroupsStorage wrapped = mock(GroupsStorage.class);
+		final FakeTicker ticker = new FakeTicker();
+		final CachingGroupsStorage s = getStorage(wrapped, 10, Optional.empty(), ticker);
+
+		when(wrapped.getGroup(new GroupID("g"))).thenReturn(group("g"));
+
+		assertThat("incorrect group", s.getGroup(new GroupID("g")), is(group("g")));
+		ticker.advance(Duration.ofDays(365));
+		assertThat("incorrect group", s.getGroup(new GroupID("g")), is(group("g")));
+
+		verify(wrapped, times(1)).getGroup(new GroupID("g"));
+	}
+
+	@Test
+	public void getGroupEvictsWhenFull() throws Exception {
+		final GroupsStorage wrapped = mock(GroupsStorage.class);
+		final CachingGroupsStorage s = new CachingGroupsStorage(wrapped, 1);
+
+		when(wrapped.getGroup(new GroupID("g1"))).thenReturn(group("g1"));
+		when(wrapped.getGroup(new GroupID("g2"))).thenReturn(group("g2"));
+
+		s.getGroup(new GroupID("g1"));
+		s.getGroup(new GroupID("g2"));
+		s.getGroup(new GroupID("g1"));
+
+		verify(wrapped, times(2)).getGroup(new GroupID("g1"));
+		verify(wrapped, times(1)).getGroup(new GroupID("g2"));
+	}
+
+	@Test
+	public void getGroupDoesNotCacheMissingGroup() throws Exception {
+		final GroupsStorage wrapped = mock(GroupsStorage.class);
+		final CachingGroupsStorage s = new CachingGroupsStorage(wrapped, 10);
+
+		when(wrapped.getGroup(new GroupID("g"))).thenThrow(new NoSuchGroupException("g"))
+				.thenReturn(group("g"));
+
+		try {
+			s.getGroup(new GroupID("g"));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NoSuchGroupException("g"));
+		}
+		assertThat("incorrect group", s.getGroup(new GroupID("g")), is(group("g")));
+		assertThat("incorrect group", s.getGroup(new GroupID("g")), is(group("g")));
+
+		verify(wrapped, times(2)).getGroup(new GroupID("g"));
+	}
+
+	@Test
+	public void getGroupCachesFetchConcurrentWithOtherWrite() throws Exception {
+		final GroupsStorage wrapped = mock(GroupsStorage.class);
+		final CachingGroupsStorage s = new CachingGroupsStorage(wrapped, 10);
+		
+		// simulate a write to another group completing while the group is being fetched
+		when(wrapped.getGroup(new GroupID("g"))).thenAnswer(inv -> {
+			s.removeMember(new GroupID("g2"), new UserName("u"), inst(20000));
+			return group("g");
+		});
+		
+		assertThat("incorrect group", s.getGroup(new GroupID("g")), is(group("g")));
+		assertThat("incorrect group", s.getGroup(new GroupID("g")), is(group("g")));
+		
+		verify(wrapped, times(1)).getGroup(new GroupID("g"));
+	}
+	
+	@Test
+	public void getGroupDiscardsFetchConcurrentWithWrite() throws Exception {
+		final GroupsStorage wrapped = mock(GroupsStorage.class);
+		final CachingGroupsStorage s = new CachingGroupsStorage(wrapped, 10);
+		
+		// simulate a write to the group completing while the group is being fetched
+		when(wrapped.getGroup(new GroupID("g"))).thenAnswer(inv -> {
+			s.removeMember(new GroupID("g"), new UserName("u"), inst(20000));
+			return group("g");
+		}).thenReturn(group("g"));
+
+		assertThat("incorrect group", s.getGroup(new GroupID("g")), is(group("g")));
+		assertThat("incorrect group", s.getGroup(new GroupID("g")), is(group("g")));
+		assertThat("incorrect group", s.getGroup(new GroupID("g")), is(group("g")));
+
+		verify(wrapped, times(2)).getGroup(new GroupID("g"));
+	}
+
+	@Test
+	public void getGroupDiscardsFetchConcurrentWithInvalidateAll() throws Exception {
+		final GroupsStorage wrapped = mock(GroupsStorage.class);
+		final CachingGroupsStorage s = new CachingGroupsStorage(wrapped, 10);
+		
+		when(wrapped.getGroup(new GroupID("g"))).thenAnswer(inv -> {
+			s.allChanged();
+			return group("g");
+		}).thenReturn(group("g"));
+		
+		assertThat("incorrect group", s.getGroup(new GroupID("g")), is(group("g")));
+		assertThat("incorrect group", s.getGroup(new GroupID("g")), is(group("g")));
+		assertThat("incorrect group", s.getGroup(new GroupID("g")), is(group("g")));
+		
+		verify(wrapped, times(2)).getGroup(new GroupID("g"));
+	}
+	
+	@Test
+	public void getGroupsDiscardsOnlyGroupsWrittenDuringFetch() throws Exception {
+		final GroupsStorage wrapped = mock(GroupsStorage.class);
+		final CachingGroupsStorage s = new CachingGroupsStorage(wrapped, 10);
+		
+		// g2 is written while g1 and g2 are being fetched
+		when(wrapped.getGroups(any())).thenAnswer(inv -> {
+			final Collection<GroupID> ids = inv.getArgument(0);
+			final Set<Group> ret = new HashSet<>();
+			for (final GroupID id: ids) {
+				ret.add(group(id.getName()));
+			}
+			if (ids.size() == 2) {
+				s.groupChanged(new GroupID("g2"));
+			}
+			return ret;
+		});
+		
+		assertThat("incorrect groups", s.getGroups(Arrays.asList(
+				new GroupID("g1"), new GroupID("g2"))),
+				is(set(group("g1"), group("g2"))));
+		assertThat("incorrect groups", s.getGroups(Arrays.asList(
+				new GroupID("g1"), new GroupID("g2"))),
+				is(set(group("g1"), group("g2"))));
+		assertThat("incorrect groups", s.getGroups(Arrays.asList(
+				new GroupID("g1"), new GroupID("g2"))),
+				is(set(group("g1"), group("g2"))));
+		
+		verify(wrapped, times(2)).getGroups(any());
+		verify(wrapped, times(1)).getGroups(Arrays.asList(new GroupID("g2")));
+	}
+	
+	@Test
+	public void getGroups() throws Exception {
+		final GroupsStorage wrapped = mock(GroupsStorage.class);
+		final CachingGroupsStorage s = new CachingGroupsStorage(wrapped, 10);
+
+		when(wrapped.getGroup(new GroupID("g1"))).thenReturn(group("g1"));
+		when(wrapped.getGroups(Arrays.asList(new GroupID("g2"))))
+				.thenReturn(set(group("g2")));
+
+		s.getGroup(new GroupID("g1"));
+
+		assertThat("incorrect groups", s.getGroups(Arrays.asList(
+				new GroupID("g1"), new GroupID("g2"), new GroupID("g1"))),
+				is(set(group("g1"), group("g2"))));
+		assertThat("incorrect group", s.getGroup(new GroupID("g2")), is(group("g2")));
+		assertThat("incorrect groups", s.getGroups(Arrays.asList(
+				new GroupID("g1"), new GroupID("g2"))),
+				is(set(group("g1"), group("g2"))));
+
+		verify(wrapped, times(1)).getGroups(Arrays.asList(new GroupID("g2")));
+		verify(wrapped, times(0)).getGroup(new GroupID("g2"));
+		assertThat("incorrect hits", s.getHitCount(), is(4L));
+		assertThat("incorrect misses", s.getMissCount(), is(2L));
+	}
+
+	@Test
+	public void getGroupsFail() throws Exception {
+		final CachingGroupsStorage s = new CachingGroupsStorage(mock(GroupsStorage.class), 10);
+
+		failGetGroups(s, null, new NullPointerException("groupIDs"));
+		failGetGroups(s, Arrays.asList(new GroupID("g"), null),
+				new NullPointerException("Null item in collection groupIDs"));
+	}
+
+	private void failGetGroups(
+			final CachingGroupsStorage s,
+			final Collection<GroupID> ids,
+			final Exception expected) {
+		try {
+			s.getGroups(ids);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	@Test
+	public void writesInvalidate() throws Exception {
+		final GroupsStorage wrapped = mock(GroupsStorage.class);
+		final CachingGroupsStorage s = new CachingGroupsStorage(wrapped, 10);
+		final GroupID g = new GroupID("g");
+		final UserName u = new UserName("u");
+		final Instant i = inst(20000);
+
+		when(wrapped.getGroup(g)).thenReturn(group("g"));
+
+		s.getGroup(g);
+		s.addMember(g, GroupUser.getBuilder(u, i).build(), i);
+		s.getGroup(g);
+		s.removeMember(g, u, i);
+		s.getGroup(g);
+		s.addAdmin(g, u, i);
+		s.getGroup(g);
+		s.demoteAdmin(g, u, i);
+		s.getGroup(g);
+		s.updateUser(g, u, i);
+		s.getGroup(g);
+		s.updateLastVisits(ImmutableMap.of(g, ImmutableMap.of(u, i)));
+		s.getGroup(g);
+		s.invalidate(g);
+		s.getGroup(g);
+		s.invalidateAll();
+		s.getGroup(g);
+		s.getGroup(g);
+
+		verify(wrapped, times(9)).getGroup(g);
+		verify(wrapped).updateLastVisits(ImmutableMap.of(g, ImmutableMap.of(u, i)));
+	}
+	
+	@Test
+	public void failedWriteInvalidates() throws Exception {
+		final GroupsStorage wrapped = mock(GroupsStorage.class);
+		final CachingGroupsStorage s = new CachingGroupsStorage(wrapped, 10);
+		final GroupID g = new GroupID("g");
+		final GroupUser u = GroupUser.getBuilder(new UserName("u"), inst(20000)).build();
+
+		when(wrapped.getGroup(g)).thenReturn(group("g"));
+		doThrow(new UserIsMemberException("u")).when(wrapped).addMember(g, u, inst(20000));
+
+		s.getGroup(g);
+		try {
+			s.addMember(g, u, inst(20000));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new UserIsMemberException("u"));
+		}
+		s.getGroup(g);
+
+		verify(wrapped, times(2)).getGroup(g);
+	}
+
+	@Test
+	public void changeListener() throws Exception {
+		final GroupsStorage wrapped = mock(GroupsStorage.class);
+		final CachingGroupsStorage s = new CachingGroupsStorage(wrapped, 10);
+		final GroupID g1 = new GroupID("g1");
+		final GroupID g2 = new GroupID("g2");
+
+		when(wrapped.getGroup(g1)).thenReturn(group("g1"));
+		when(wrapped.getGroup(g2)).thenReturn(group("g2"));
+
+		s.getGroup(g1);
+		s.getGroup(g2);
+		s.groupChanged(g1);
+		s.requestChanged(new RequestID(UUID.randomUUID()));
+		s.getGroup(g1);
+		s.getGroup(g2);
+
+		verify(wrapped, times(2)).getGroup(g1);
+		verify(wrapped, times(1)).getGroup(g2);
+
+		s.allChanged();
+		s.getGroup(g1);
+		s.getGroup(g2);
+
+		verify(wrapped, times(3)).getGroup(g1);
+		verify(wrapped, times(2)).getGroup(g2);
+	}
+}
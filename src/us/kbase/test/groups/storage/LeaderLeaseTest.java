@@ -0,0 +1,233 @@
+package us.kbase.test.groups.storage;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static us.kbase.test.groups.TestCommon.assertLogEventsCorrect;
+import static us.kbase.test.groups.TestCommon.inst;
+
+import java.lang.reflect.Constructor;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import us.kbase.groups.storage.GroupsStorage;
+import us.kbase.groups.storage.LeaderLease;
+import us.kbase.groups.storage.exceptions.GroupsStorageException;
+import us.kbase.test.groups.TestCommon;
+import us.kbase.test.groups.TestCommon.LogEvent;
+
+public class LeaderLeaseTest {
+
+	private static List<ILoggingEvent> logEvents;
+
+	@BeforeClass
+	public static void beforeClass() {
+		logEvents = TestCommon.setUpSLF4JTestLoggerAppender("us.kbase.groups");
+	}
+
+	@Before
+	public void before() {
+		logEvents.clear();
+	}
+
+	private static class TestMocks {
+		private final LeaderLease lease;
+		private final GroupsStorage storage;
+		private final Clock clock;
+
+		private TestMocks(
+				final LeaderLease lease,
+				final GroupsStorage storage,
+				final Clock clock) {
+			this.lease = lease;
+			this.storage = storage;
+			this.clock = clock;
+		}
+	}
+
+	private static TestMocks initTestMocks() throws Exception {
+		final GroupsStorage storage = mock(GroupsStorage.class);
+		final Clock clock = mock(Clock.class);
+		final Constructor<LeaderLease> c = LeaderLease.class.getDeclaredConstructor(
+				GroupsStorage.class, String.class, Duration.class, Clock.class, String.class);
+		c.setAccessible(true);
+		final LeaderLease lease = c.newInstance(
+				storage, "lease", Duration.ofSeconds(10), clock, "me");
+		return new TestMocks(lease, storage, clock);
+	}
+
+	@Test
+	public void construct() throws Exception {
+		final LeaderLease lease = new LeaderLease(
+				mock(GroupsStorage.class), "foo", Duration.ofMillis(1));
+
+		assertThat("incorrect name", lease.getName(), is("foo"));
+		assertThat("incorrect holder length", lease.getHolder().length(), is(36));
+		assertThat("incorrect holder", new LeaderLease(
+				mock(GroupsStorage.class), "foo", Duration.ofMillis(1)).getHolder()
+				.equals(lease.getHolder()), is(false));
+	}
+
+	@Test
+	public void constructFail() throws Exception {
+		final GroupsStorage s = mock(GroupsStorage.class);
+		final Duration d = Duration.ofSeconds(1);
+
+		failConstruct(null, "n", d, new NullPointerException("storage"));
+		failConstruct(s, null, d, new IllegalArgumentException(
+				"name cannot be null or whitespace only"));
+		failConstruct(s, "  \t  ", d, new IllegalArgumentException(
+				"name cannot be null or whitespace only"));
+		failConstruct(s, "n", null, new NullPointerException("ttl"));
+		failConstruct(s, "n", Duration.ZERO, new IllegalArgumentException(
+				"ttl must be positive"));
+		failConstruct(s, "n", Duration.ofSeconds(-1), new IllegalArgumentException(
+				"ttl must be positive"));
+	}
+
+	private void failConstruct(
+			final GroupsStorage storage,
+			final String name,
+			final Duration ttl,
+			final Exception expected) {
+		try {
+			new LeaderLease(storage, name, ttl);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	@Test
+	public void acquireAndRenew() throws Exception {
+		final TestMocks mocks = initTestMocks();
+
+		when(mocks.clock.instant()).thenReturn(
+				inst(10000), inst(14999), inst(15000), inst(19999));
+		when(mocks.storage.acquireLease("lease", "me", inst(10000), inst(20000)))
+				.thenReturn(Optional.of(3L));
+		when(mocks.storage.acquireLease("lease", "me", inst(15000), inst(25000)))
+				.thenReturn(Optional.of(3L));
+
+		assertThat("incorrect token", mocks.lease.checkLeadership(), is(Optional.of(3L)));
+		// more than half the ttl left, so no renewal
+		assertThat("incorrect token", mocks.lease.checkLeadership(), is(Optional.of(3L)));
+		assertThat("incorrect token", mocks.lease.checkLeadership(), is(Optional.of(3L)));
+		assertThat("incorrect token", mocks.lease.checkLeadership(), is(Optional.of(3L)));
+
+		verify(mocks.storage).acquireLease("lease", "me", inst(10000), inst(20000));
+		verify(mocks.storage).acquireLease("lease", "me", inst(15000), inst(25000));
+		verifyNoMoreInteractions(mocks.storage);
+
+		assertLogEventsCorrect(logEvents, new LogEvent(Level.INFO,
+				"Acquired lease lease with fencing token 3", LeaderLease.class));
+	}
+
+	@Test
+	public void notLeader() throws Exception {
+		final TestMocks mocks = initTestMocks();
+
+		when(mocks.clock.instant()).thenReturn(inst(10000), inst(11000));
+		when(mocks.storage.acquireLease("lease", "me", inst(10000), inst(20000)))
+				.thenReturn(Optional.empty());
+		when(mocks.storage.acquireLease("lease", "me", inst(11000), inst(21000)))
+				.thenReturn(Optional.empty());
+
+		// not being the leader is not cached
+		assertThat("incorrect token", mocks.lease.checkLeadership(), is(Optional.empty()));
+		assertThat("incorrect token", mocks.lease.checkLeadership(), is(Optional.empty()));
+
+		verify(mocks.storage).acquireLease("lease", "me", inst(10000), inst(20000));
+		verify(mocks.storage).acquireLease("lease", "me", inst(11000), inst(21000));
+
+		assertLogEventsCorrect(logEvents);
+	}
+
+	@Test
+	public void loseAndRegain() throws Exception {
+		final TestMocks mocks = initTestMocks();
+
+		when(mocks.clock.instant()).thenReturn(inst(10000), inst(16000), inst(30000));
+		when(mocks.storage.acquireLease("lease", "me", inst(10000), inst(20000)))
+				.thenReturn(Optional.of(1L));
+		when(mocks.storage.acquireLease("lease", "me", inst(16000), inst(26000)))
+				.thenReturn(Optional.empty());
+		when(mocks.storage.acquireLease("lease", "me", inst(30000), inst(40000)))
+				.thenReturn(Optional.of(3L));
+
+		assertThat("incorrect token", mocks.lease.checkLeadership(), is(Optional.of(1L)));
+		assertThat("incorrect token", mocks.lease.checkLeadership(), is(Optional.empty()));
+		assertThat("incorrect token", mocks.lease.checkLeadership(), is(Optional.of(3L)));
+
+		assertLogEventsCorrect(logEvents,
+				new LogEvent(Level.INFO, "Acquired lease lease with fencing token 1",
+						LeaderLease.class),
+				new LogEvent(Level.INFO, "Lost lease lease", LeaderLease.class),
+				new LogEvent(Level.INFO, "Acquired lease lease with fencing token 3",
+						LeaderLease.class));
+	}
+
+	@Test
+	public void storageFailRelinquishesLeadership() throws Exception {
+		final TestMocks mocks = initTestMocks();
+
+		when(mocks.clock.instant()).thenReturn(inst(10000), inst(16000), inst(17000));
+		when(mocks.storage.acquireLease("lease", "me", inst(10000), inst(20000)))
+				.thenReturn(Optional.of(1L));
+		when(mocks.storage.acquireLease("lease", "me", inst(16000), inst(26000)))
+				.thenThrow(new GroupsStorageException("oops"));
+		when(mocks.storage.acquireLease("lease", "me", inst(17000), inst(27000)))
+				.thenReturn(Optional.empty());
+
+		assertThat("incorrect token", mocks.lease.checkLeadership(), is(Optional.of(1L)));
+		try {
+			mocks.lease.checkLeadership();
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new GroupsStorageException("oops"));
+		}
+		assertThat("incorrect token", mocks.lease.checkLeadership(), is(Optional.empty()));
+	}
+
+	@Test
+	public void release() throws Exception {
+		final TestMocks mocks = initTestMocks();
+
+		when(mocks.clock.instant()).thenReturn(inst(10000));
+		when(mocks.storage.acquireLease("lease", "me", inst(10000), inst(20000)))
+				.thenReturn(Optional.of(1L));
+
+		assertThat("incorrect token", mocks.lease.checkLeadership(), is(Optional.of(1L)));
+		mocks.lease.release();
+		mocks.lease.release(); // no effect
+		// the lease is never acquired again
+		assertThat("incorrect token", mocks.lease.checkLeadership(), is(Optional.empty()));
+
+		verify(mocks.storage).acquireLease("lease", "me", inst(10000), inst(20000));
+		verify(mocks.storage).releaseLease("lease", "me");
+		verifyNoMoreInteractions(mocks.storage);
+	}
+
+	@Test
+	public void releaseNotLeader() throws Exception {
+		final TestMocks mocks = initTestMocks();
+
+		mocks.lease.release();
+
+		assertThat("incorrect token", mocks.lease.checkLeadership(), is(Optional.empty()));
+		verifyZeroInteractions(mocks.storage);
+	}
+}
@@ -3,16 +3,23 @@ package us.kbase.test.groups.storage.mongo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static us.kbase.test.groups.TestCommon.set;
 import static us.kbase.test.groups.TestCommon.assertLogEventsCorrect;
 import static us.kbase.test.groups.TestCommon.inst;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -20,11 +27,17 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.apache.commons.io.FileUtils;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
 import org.bson.Document;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -32,6 +45,9 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.google.common.collect.ImmutableMap;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
@@ -41,6 +57,7 @@ import us.kbase.groups.core.GroupID;
 import us.kbase.groups.core.GroupIDAndName;
 import us.kbase.groups.core.GroupIDNameMembership;
 import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupSummary;
 import us.kbase.groups.core.GroupUpdateParams;
 import us.kbase.groups.core.GroupUser;
 import us.kbase.groups.core.OptionalGroupFields;
@@ -49,6 +66,7 @@ import us.kbase.groups.core.CreateAndModTimes;
 import us.kbase.groups.core.CreateModAndExpireTimes;
 import us.kbase.groups.core.GetRequestsParams;
 import us.kbase.groups.core.GetGroupsParams;
+import us.kbase.groups.core.SearchGroupsParams;
 import us.kbase.groups.core.UserName;
 import us.kbase.groups.core.exceptions.GroupExistsException;
 import us.kbase.groups.core.exceptions.NoSuchGroupException;
@@ -58,7 +76,9 @@ import us.kbase.groups.core.exceptions.NoSuchUserException;
 import us.kbase.groups.core.exceptions.RequestExistsException;
 import us.kbase.groups.core.exceptions.ResourceExistsException;
 import us.kbase.groups.core.exceptions.UserIsMemberException;
+import us.kbase.groups.core.fieldvalidation.CustomField;
 import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
+import us.kbase.groups.core.notifications.OutboxNotification;
 import us.kbase.groups.core.request.GroupRequest;
 import us.kbase.groups.core.request.GroupRequest.Builder;
 import us.kbase.groups.core.request.GroupRequestStatus;
@@ -70,6 +90,8 @@ import us.kbase.groups.core.resource.ResourceAdministrativeID;
 import us.kbase.groups.core.resource.ResourceDescriptor;
 import us.kbase.groups.core.resource.ResourceType;
 import us.kbase.groups.storage.GroupsStorage;
+import us.kbase.groups.storage.LeaderLease;
+import us.kbase.groups.storage.StorageChangeListener;
 import us.kbase.groups.storage.exceptions.GroupsStorageException;
 import us.kbase.groups.storage.mongo.MongoGroupsStorage;
 import us.kbase.test.groups.TestCommon.LogEvent;
@@ -1668,6 +1690,11 @@ public class MongoGroupsStorageOpsTest {
 		assertGroupListCorrect("g200", 201, 1);
 		assertGroupListCorrect("g201", 201, 0);
 		assertGroupListCorrect("g300", 201, 0);
+		
+		assertGroupListCorrect(null, 150, 1, 150);
+		assertGroupListCorrect(null, 300, 1, 201);
+		assertGroupListCorrect("g100", 10, 101, 10);
+		assertGroupListCorrect("g199", 10, 200, 2);
 	}
 	
 	@Test
@@ -1726,8 +1753,18 @@ public class MongoGroupsStorageOpsTest {
 			final int start,
 			final int size)
 			throws Exception {
+		assertGroupListCorrect(excludeUpTo, null, start, size);
+	}
+	
+	private <T> void assertGroupListCorrect(
+			final String excludeUpTo,
+			final Integer limit,
+			final int start,
+			final int size)
+			throws Exception {
 		final List<Group> res = manager.storage.getGroups(GetGroupsParams.getBuilder()
-				.withNullableExcludeUpTo(excludeUpTo).build(), false, null);
+				.withNullableExcludeUpTo(excludeUpTo).withNullableLimit(limit).build(),
+				false, null);
 		assertThat("incorrect size", res.size(), is(size));
 		int i = start;
 		for (final Group g: res) {
@@ -1754,6 +1791,231 @@ public class MongoGroupsStorageOpsTest {
 		
 	}
 	
+	@Test
+	public void getGroupSummaries() throws Exception {
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("aid"), new GroupName("name1"), toGUser("own"),
+				new CreateAndModTimes(Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000)))
+				.withMember(GroupUser.getBuilder(new UserName("m1"), inst(60000))
+						.withCustomField(new NumberedCustomField("thing"), "er")
+						.withNullableLastVisit(inst(92000))
+						.build())
+				.withMember(toGUser("m2"))
+				.withAdministrator(GroupUser.getBuilder(new UserName("a1"), inst(70000))
+						.withNullableLastVisit(inst(93000))
+						.build())
+				.withResource(new ResourceType("workspace"),
+						new ResourceDescriptor(new ResourceID("42")))
+				.withResource(new ResourceType("workspace"),
+						new ResourceDescriptor(new ResourceID("43")))
+				.withResource(new ResourceType("catalogmethod"),
+						new ResourceDescriptor(new ResourceID("m.n")))
+				.withResource(new ResourceType("empty"),
+						new ResourceDescriptor(new ResourceID("x")))
+				.withCustomField(new NumberedCustomField("field"), "val")
+				.withCustomField(new NumberedCustomField("field-2"), "val2")
+				.withCustomField(new NumberedCustomField("fieldish"), "val3")
+				.withCustomField(new NumberedCustomField("other-1"), "val4")
+				.build());
+		manager.storage.removeResource(new GroupID("aid"), new ResourceType("empty"),
+				new ResourceID("x"), inst(20000));
+		
+		final GetGroupsParams p = GetGroupsParams.getBuilder().build();
+		final Set<CustomField> fields = set(new CustomField("field"), new CustomField("nope"));
+		final GroupSummary.Builder b = GroupSummary.getBuilder(
+				new GroupID("aid"), new GroupName("name1"), new UserName("own"),
+				new CreateAndModTimes(Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000)))
+				.withMemberCount(4)
+				.withResourceCount(new ResourceType("workspace"), 2)
+				.withResourceCount(new ResourceType("catalogmethod"), 1)
+				.withCustomField(new NumberedCustomField("field"), "val")
+				.withCustomField(new NumberedCustomField("field-2"), "val2");
+		
+		assertThat("incorrect summaries", manager.storage.getGroupSummaries(p, false, null, fields),
+				is(Arrays.asList(b.build())));
+		assertThat("incorrect summaries", manager.storage.getGroupSummaries(
+				p, false, new UserName("nonmember"), fields),
+				is(Arrays.asList(b.build())));
+		assertThat("incorrect summaries", manager.storage.getGroupSummaries(
+				p, false, new UserName("m2"), fields),
+				is(Arrays.asList(b.withRole(Role.MEMBER).build())));
+		assertThat("incorrect summaries", manager.storage.getGroupSummaries(
+				p, false, new UserName("m1"), fields),
+				is(Arrays.asList(b.withRole(Role.MEMBER).withNullableLastVisit(inst(92000))
+						.build())));
+		assertThat("incorrect summaries", manager.storage.getGroupSummaries(
+				p, false, new UserName("a1"), fields),
+				is(Arrays.asList(b.withRole(Role.ADMIN).withNullableLastVisit(inst(93000))
+						.build())));
+		assertThat("incorrect summaries", manager.storage.getGroupSummaries(
+				p, false, new UserName("own"), fields),
+				is(Arrays.asList(b.withRole(Role.OWNER).withNullableLastVisit(null).build())));
+		
+		assertThat("incorrect summaries", manager.storage.getGroupSummaries(
+				p, false, null, set()),
+				is(Arrays.asList(GroupSummary.getBuilder(
+						new GroupID("aid"), new GroupName("name1"), new UserName("own"),
+						new CreateAndModTimes(
+								Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000)))
+						.withMemberCount(4)
+						.withResourceCount(new ResourceType("workspace"), 2)
+						.withResourceCount(new ResourceType("catalogmethod"), 1)
+						.build())));
+	}
+	
+	@Test
+	public void getGroupSummariesMatchesGetGroups() throws Exception {
+		// the query is shared with getGroups, so just check the summaries select and sort
+		// the same groups
+		final Group g1 = Group.getBuilder(
+				new GroupID("g1"), new GroupName("na"), toGUser("o"),
+				new CreateAndModTimes(Instant.ofEpochMilli(40000), Instant.ofEpochMilli(50000)))
+				.withAdministrator(toGUser("a1"))
+				.withIsPrivate(true)
+				.build();
+		final Group g2 = Group.getBuilder(
+				new GroupID("g2"), new GroupName("na"), toGUser("a1"),
+				new CreateAndModTimes(Instant.ofEpochMilli(40000), Instant.ofEpochMilli(50000)))
+				.withResource(new ResourceType("workspace"),
+						new ResourceDescriptor(new ResourceID("42")))
+				.build();
+		final Group g3 = Group.getBuilder(
+				new GroupID("g3"), new GroupName("na"), toGUser("o1"),
+				new CreateAndModTimes(Instant.ofEpochMilli(40000), Instant.ofEpochMilli(50000)))
+				.withMember(toGUser("a1"))
+				.build();
+		manager.storage.createGroup(g1);
+		manager.storage.createGroup(g2);
+		manager.storage.createGroup(g3);
+		
+		final UserName a1 = new UserName("a1");
+		for (final GetGroupsParams p: Arrays.asList(
+				GetGroupsParams.getBuilder().build(),
+				GetGroupsParams.getBuilder().withNullableSortAscending(false).build(),
+				GetGroupsParams.getBuilder().withNullableExcludeUpTo("g1").build(),
+				GetGroupsParams.getBuilder().withRole(Role.ADMIN).build(),
+				GetGroupsParams.getBuilder().withRole(Role.OWNER).build(),
+				GetGroupsParams.getBuilder().withNullableLimit(2).build(),
+				GetGroupsParams.getBuilder().withResource(
+						new ResourceType("workspace"), new ResourceID("42")).build())) {
+			for (final UserName u: Arrays.asList(null, a1, new UserName("o"))) {
+				assertThat("incorrect ids for " + u, manager.storage.getGroupSummaries(
+						p, false, u, set()).stream()
+								.map(g -> g.getGroupID()).collect(Collectors.toList()),
+						is(manager.storage.getGroups(p, false, u).stream()
+								.map(g -> g.getGroupID()).collect(Collectors.toList())));
+			}
+		}
+		assertThat("incorrect ids", manager.storage.getGroupSummaries(
+				GetGroupsParams.getBuilder().build(), false, a1, set()).stream()
+						.map(g -> g.getRole()).collect(Collectors.toList()),
+				is(Arrays.asList(Role.ADMIN, Role.OWNER, Role.MEMBER)));
+	}
+	
+	@Test
+	public void getGroupSummariesNoUserWithRole() throws Exception {
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("gid"), new GroupName("name3"), toGUser("uname3"),
+				new CreateAndModTimes(Instant.ofEpochMilli(40000), Instant.ofEpochMilli(50000)))
+				.build());
+		assertThat("incorrect get groups", manager.storage.getGroupSummaries(
+				GetGroupsParams.getBuilder().withRole(Role.MEMBER).build(), false, null, set()),
+				is(Collections.emptyList()));
+	}
+	
+	@Test
+	public void getGroupSummariesFail() throws Exception {
+		final GetGroupsParams p = GetGroupsParams.getBuilder().build();
+		failGetGroupSummaries(null, set(), new NullPointerException("params"));
+		failGetGroupSummaries(p, null, new NullPointerException("customFields"));
+		failGetGroupSummaries(p, set(new CustomField("f"), null),
+				new NullPointerException("Null item in collection customFields"));
+	}
+	
+	private void failGetGroupSummaries(
+			final GetGroupsParams p,
+			final Set<CustomField> fields,
+			final Exception expected) {
+		try {
+			manager.storage.getGroupSummaries(p, false, new UserName("foo"), fields);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void getGroupSummariesByIDs() throws Exception {
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("g2"), new GroupName("name2"), toGUser("own"),
+				new CreateAndModTimes(Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000)))
+				.withAdministrator(GroupUser.getBuilder(new UserName("a1"), inst(70000))
+						.withNullableLastVisit(inst(93000))
+						.build())
+				.withMember(toGUser("m1"))
+				.withResource(new ResourceType("workspace"),
+						new ResourceDescriptor(new ResourceID("42")))
+				.withCustomField(new NumberedCustomField("field"), "val")
+				.build());
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("g1"), new GroupName("name1"), toGUser("a1"),
+				new CreateAndModTimes(Instant.ofEpochMilli(30000), Instant.ofEpochMilli(40000)))
+				.withIsPrivate(true)
+				.build());
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("g3"), new GroupName("name3"), toGUser("own"),
+				new CreateAndModTimes(Instant.ofEpochMilli(30000), Instant.ofEpochMilli(40000)))
+				.build());
+		
+		final GroupSummary.Builder g1 = GroupSummary.getBuilder(
+				new GroupID("g1"), new GroupName("name1"), new UserName("a1"),
+				new CreateAndModTimes(Instant.ofEpochMilli(30000), Instant.ofEpochMilli(40000)))
+				.withIsPrivate(true);
+		final GroupSummary.Builder g2 = GroupSummary.getBuilder(
+				new GroupID("g2"), new GroupName("name2"), new UserName("own"),
+				new CreateAndModTimes(Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000)))
+				.withMemberCount(3)
+				.withResourceCount(new ResourceType("workspace"), 1);
+		final Set<GroupID> ids = set(new GroupID("g2"), new GroupID("g1"));
+		
+		assertThat("incorrect summaries", manager.storage.getGroupSummaries(null, ids),
+				is(Arrays.asList(g1.build(), g2.build())));
+		assertThat("incorrect summaries", manager.storage.getGroupSummaries(
+				new UserName("m1"), ids),
+				is(Arrays.asList(g1.build(), g2.withRole(Role.MEMBER).build())));
+		assertThat("incorrect summaries", manager.storage.getGroupSummaries(
+				new UserName("a1"), ids),
+				is(Arrays.asList(
+						g1.withRole(Role.OWNER).build(),
+						g2.withRole(Role.ADMIN).withNullableLastVisit(inst(93000)).build())));
+		assertThat("incorrect summaries", manager.storage.getGroupSummaries(
+				new UserName("a1"), set()),
+				is(Collections.emptyList()));
+	}
+	
+	@Test
+	public void getGroupSummariesByIDsFail() throws Exception {
+		failGetGroupSummaries(null, new NullPointerException("groupIDs"));
+		failGetGroupSummaries(set(new GroupID("i"), null), new NullPointerException(
+				"Null item in collection groupIDs"));
+		
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("gid1"), new GroupName("name"), toGUser("uname"),
+				new CreateAndModTimes(Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000)))
+				.build());
+		failGetGroupSummaries(set(new GroupID("gid1"), new GroupID("gid2")),
+				new NoSuchGroupException("gid2"));
+	}
+	
+	private void failGetGroupSummaries(final Set<GroupID> ids, final Exception expected) {
+		try {
+			manager.storage.getGroupSummaries(new UserName("foo"), ids);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
 	@Test
 	public void addMember() throws Exception {
 		manager.storage.createGroup(Group.getBuilder(
@@ -2497,6 +2759,31 @@ public class MongoGroupsStorageOpsTest {
 				new NoSuchUserException("User m1 is not a member of group gid"));
 	}
 	
+	@Test
+	public void updateUserFailLeftOverDetails() throws Exception {
+		// simulates a member removal where deleting the member details failed
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("gid"), new GroupName("name"), toGUser("uname"),
+				new CreateAndModTimes(Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000)))
+				.withMember(GroupUser.getBuilder(new UserName("m"), inst(1))
+						.withCustomField(new NumberedCustomField("f"), "val")
+						.build())
+				.build());
+		manager.db.getCollection("groups").updateOne(new Document("id", "gid"),
+				new Document("$pull", new Document("memb", new Document("user", "m"))));
+		
+		updateUserFail(
+				new GroupID("gid"),
+				new UserName("m"),
+				ImmutableMap.of(new NumberedCustomField("f"), OptionalString.of("val2")),
+				inst(40000),
+				new NoSuchUserException("User m is not a member of group gid"));
+		
+		assertThat("incorrect details", manager.db.getCollection("group_members")
+				.find(new Document("user", "m")).first().get("cust"),
+				is(new Document("f", "val")));
+	}
+	
 	private void updateUserFail(
 			final GroupID gid,
 			final UserName name,
@@ -2563,6 +2850,215 @@ public class MongoGroupsStorageOpsTest {
 						.build()));
 	}
 	
+	@Test
+	public void updateUserNoMemberDetails() throws Exception {
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("gid"), new GroupName("name3"), toGUser("own"),
+				new CreateAndModTimes(inst(40000), inst(50000)))
+				.withMember(toGUser("member"))
+				.build());
+		// simulate a group stored prior to 0.1.6 that hasn't been migrated
+		manager.db.getCollection("group_members").deleteMany(new Document());
+		manager.db.getCollection("groups").updateOne(
+				new Document("id", "gid").append("memb.user", "member"),
+				new Document("$set", new Document("memb.$.visit", Date.from(inst(60000)))
+						.append("memb.$.cust", new Document("f-1", "val"))));
+		
+		final GroupUser.Builder member = GroupUser.getBuilder(new UserName("member"), inst(20000))
+				.withCustomField(new NumberedCustomField("f-1"), "val");
+		assertThat("incorrect group", manager.storage.getGroup(new GroupID("gid")),
+				is(Group.getBuilder(new GroupID("gid"), new GroupName("name3"), toGUser("own"),
+						new CreateAndModTimes(inst(40000), inst(50000)))
+						.withMember(member.withNullableLastVisit(inst(60000)).build())
+						.build()));
+		
+		manager.storage.updateUser(new GroupID("gid"), new UserName("member"), inst(90000));
+		manager.storage.updateUser(new GroupID("gid"), new UserName("own"), inst(70000));
+		
+		assertThat("incorrect details count",
+				manager.db.getCollection("group_members").countDocuments(), is(2L));
+		assertThat("incorrect group", manager.storage.getGroup(new GroupID("gid")),
+				is(Group.getBuilder(new GroupID("gid"), new GroupName("name3"),
+						GroupUser.getBuilder(new UserName("own"), inst(20000))
+								.withNullableLastVisit(inst(70000))
+								.build(),
+						new CreateAndModTimes(inst(40000), inst(50000)))
+						.withMember(member.withNullableLastVisit(inst(90000)).build())
+						.build()));
+	}
+	
+	@Test
+	public void removeMemberRemovesDetails() throws Exception {
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("gid"), new GroupName("name3"), toGUser("own"),
+				new CreateAndModTimes(inst(40000), inst(50000)))
+				.withMember(GroupUser.getBuilder(new UserName("member"), inst(20000))
+						.withNullableLastVisit(inst(60000))
+						.withCustomField(new NumberedCustomField("f-1"), "val")
+						.build())
+				.build());
+		
+		manager.storage.removeMember(new GroupID("gid"), new UserName("member"), inst(70000));
+		
+		assertThat("incorrect details count", manager.db.getCollection("group_members")
+				.countDocuments(new Document("user", "member")), is(0L));
+		
+		manager.storage.addMember(new GroupID("gid"), toGUser("member"), inst(80000));
+		
+		assertThat("incorrect group", manager.storage.getGroup(new GroupID("gid")),
+				is(Group.getBuilder(new GroupID("gid"), new GroupName("name3"), toGUser("own"),
+						new CreateAndModTimes(inst(40000), inst(80000)))
+						.withMember(toGUser("member"))
+						.build()));
+	}
+	
+	@Test
+	public void updateLastVisits() throws Exception {
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("gid"), new GroupName("name3"), toGUser("own"),
+				new CreateAndModTimes(inst(40000), inst(50000)))
+				.withMember(GroupUser.getBuilder(new UserName("member"), inst(20000))
+						.withNullableLastVisit(inst(90000))
+						.build())
+				.withMember(toGUser("member2"))
+				.build());
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("gid2"), new GroupName("name4"), toGUser("own"),
+				new CreateAndModTimes(inst(40000), inst(50000)))
+				.build());
+		
+		manager.storage.updateLastVisits(ImmutableMap.of(
+				new GroupID("gid"), ImmutableMap.of(
+						new UserName("own"), inst(70000),
+						new UserName("member"), inst(80000), // earlier, ignored
+						new UserName("member2"), inst(100000),
+						new UserName("notmember"), inst(100000)),
+				new GroupID("gid2"), ImmutableMap.of(new UserName("own"), inst(60000)),
+				new GroupID("nogroup"), ImmutableMap.of(new UserName("own"), inst(60000))));
+		
+		assertThat("incorrect details count",
+				manager.db.getCollection("group_members").countDocuments(), is(4L));
+		assertThat("incorrect group", manager.storage.getGroup(new GroupID("gid")),
+				is(Group.getBuilder(new GroupID("gid"), new GroupName("name3"),
+						GroupUser.getBuilder(new UserName("own"), inst(20000))
+								.withNullableLastVisit(inst(70000))
+								.build(),
+						new CreateAndModTimes(inst(40000), inst(50000)))
+						.withMember(GroupUser.getBuilder(new UserName("member"), inst(20000))
+								.withNullableLastVisit(inst(90000))
+								.build())
+						.withMember(GroupUser.getBuilder(new UserName("member2"), inst(20000))
+								.withNullableLastVisit(inst(100000))
+								.build())
+						.build()));
+		assertThat("incorrect group", manager.storage.getGroup(new GroupID("gid2")),
+				is(Group.getBuilder(new GroupID("gid2"), new GroupName("name4"),
+						GroupUser.getBuilder(new UserName("own"), inst(20000))
+								.withNullableLastVisit(inst(60000))
+								.build(),
+						new CreateAndModTimes(inst(40000), inst(50000)))
+						.build()));
+	}
+	
+	@Test
+	public void updateLastVisitsNoMemberDetails() throws Exception {
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("gid"), new GroupName("name3"), toGUser("own"),
+				new CreateAndModTimes(inst(40000), inst(50000)))
+				.withMember(toGUser("member"))
+				.withMember(toGUser("member2"))
+				.build());
+		// simulate a group stored prior to 0.1.6 that hasn't been migrated
+		manager.db.getCollection("group_members").deleteMany(new Document());
+		manager.db.getCollection("groups").updateOne(
+				new Document("id", "gid").append("memb.user", "member"),
+				new Document("$set", new Document("memb.$.visit", Date.from(inst(60000)))
+						.append("memb.$.cust", new Document("f-1", "val"))));
+		manager.db.getCollection("groups").updateOne(
+				new Document("id", "gid").append("memb.user", "member2"),
+				new Document("$set", new Document("memb.$.visit", Date.from(inst(90000)))));
+		
+		manager.storage.updateLastVisits(ImmutableMap.of(
+				new GroupID("gid"), ImmutableMap.of(
+						new UserName("own"), inst(70000),
+						new UserName("member"), inst(80000),
+						new UserName("member2"), inst(80000), // earlier, ignored
+						new UserName("notmember"), inst(100000)),
+				new GroupID("nogroup"), ImmutableMap.of(new UserName("own"), inst(60000))));
+		
+		assertThat("incorrect details count",
+				manager.db.getCollection("group_members").countDocuments(), is(3L));
+		assertThat("incorrect group", manager.storage.getGroup(new GroupID("gid")),
+				is(Group.getBuilder(new GroupID("gid"), new GroupName("name3"),
+						GroupUser.getBuilder(new UserName("own"), inst(20000))
+								.withNullableLastVisit(inst(70000))
+								.build(),
+						new CreateAndModTimes(inst(40000), inst(50000)))
+						.withMember(GroupUser.getBuilder(new UserName("member"), inst(20000))
+								.withCustomField(new NumberedCustomField("f-1"), "val")
+								.withNullableLastVisit(inst(80000))
+								.build())
+						.withMember(GroupUser.getBuilder(new UserName("member2"), inst(20000))
+								.withNullableLastVisit(inst(90000))
+								.build())
+						.build()));
+	}
+	
+	@Test
+	public void updateLastVisitsEmpty() throws Exception {
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("gid"), new GroupName("name3"), toGUser("own"),
+				new CreateAndModTimes(inst(40000), inst(50000)))
+				.build());
+		
+		manager.storage.updateLastVisits(Collections.emptyMap());
+		manager.storage.updateLastVisits(ImmutableMap.of(
+				new GroupID("gid"), Collections.emptyMap()));
+		
+		assertThat("incorrect group", manager.storage.getGroup(new GroupID("gid")),
+				is(Group.getBuilder(new GroupID("gid"), new GroupName("name3"), toGUser("own"),
+						new CreateAndModTimes(inst(40000), inst(50000)))
+						.build()));
+	}
+	
+	@Test
+	public void updateLastVisitsFailNulls() throws Exception {
+		final GroupID g = new GroupID("g");
+		final UserName u = new UserName("u");
+		
+		failUpdateLastVisits(null, new NullPointerException("lastVisits"));
+		
+		final Map<GroupID, Map<UserName, Instant>> lv = new HashMap<>();
+		lv.put(null, ImmutableMap.of(u, inst(10000)));
+		failUpdateLastVisits(lv, new NullPointerException("Null key in lastVisits"));
+		
+		lv.clear();
+		lv.put(g, null);
+		failUpdateLastVisits(lv, new NullPointerException("Null value for key g in lastVisits"));
+		
+		final Map<UserName, Instant> members = new HashMap<>();
+		members.put(null, inst(10000));
+		lv.put(g, members);
+		failUpdateLastVisits(lv, new NullPointerException(
+				"Null member for group g in lastVisits"));
+		
+		members.clear();
+		members.put(u, null);
+		failUpdateLastVisits(lv, new NullPointerException(
+				"Null date for member u in group g in lastVisits"));
+	}
+	
+	private void failUpdateLastVisits(
+			final Map<GroupID, Map<UserName, Instant>> lastVisits,
+			final Exception expected) {
+		try {
+			manager.storage.updateLastVisits(lastVisits);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
 	@Test
 	public void failUpdateUserLastVisitedNulls() throws Exception {
 		final GroupID i = new GroupID("foo");
@@ -3073,15 +3569,85 @@ public class MongoGroupsStorageOpsTest {
 			TestCommon.assertExceptionCorrect(got, expected);
 		}
 	}
-
-	@Test
-	public void getRequestFail() throws Exception {
-		failGetRequest(null, new NullPointerException("requestID"));
-		
-		manager.storage.storeRequest(GroupRequest.getBuilder(
-				new RequestID(UUID.randomUUID()), new GroupID("foo1"), new UserName("bar1"),
-					CreateModAndExpireTimes.getBuilder(
-							Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000))
+	
+	private GroupRequest inviteRequest(final UUID id, final String user) throws Exception {
+		return GroupRequest.getBuilder(
+				new RequestID(id), new GroupID("foo"), new UserName("bar"),
+				CreateModAndExpireTimes.getBuilder(
+						Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000))
+						.build())
+				.withType(RequestType.INVITE)
+				.withResource(GroupRequest.USER_TYPE, ResourceDescriptor.from(new UserName(user)))
+				.build();
+	}
+	
+	@Test
+	public void storeRequests() throws Exception {
+		final UUID id1 = UUID.randomUUID();
+		final UUID id2 = UUID.randomUUID();
+		final UUID id3 = UUID.randomUUID();
+		final UUID id4 = UUID.randomUUID();
+		final UUID id5 = UUID.randomUUID();
+		manager.storage.storeRequest(inviteRequest(id1, "u2"));
+		
+		final Set<RequestID> exists = manager.storage.storeRequests(Arrays.asList(
+				inviteRequest(id2, "u1"),
+				inviteRequest(id3, "u2"),
+				inviteRequest(id4, "u3"),
+				inviteRequest(id5, "u3")));
+		
+		assertThat("incorrect existing", exists, is(set(new RequestID(id3), new RequestID(id5))));
+		
+		assertThat("incorrect request", manager.storage.getRequest(new RequestID(id1)),
+				is(inviteRequest(id1, "u2")));
+		assertThat("incorrect request", manager.storage.getRequest(new RequestID(id2)),
+				is(inviteRequest(id2, "u1")));
+		assertThat("incorrect request", manager.storage.getRequest(new RequestID(id4)),
+				is(inviteRequest(id4, "u3")));
+		failGetRequest(new RequestID(id3), new NoSuchRequestException(id3.toString()));
+		failGetRequest(new RequestID(id5), new NoSuchRequestException(id5.toString()));
+	}
+	
+	@Test
+	public void storeRequestsEmpty() throws Exception {
+		assertThat("incorrect existing", manager.storage.storeRequests(Collections.emptyList()),
+				is(Collections.emptySet()));
+	}
+	
+	@Test
+	public void storeRequestsFail() throws Exception {
+		final UUID id = UUID.randomUUID();
+		manager.storage.storeRequest(inviteRequest(id, "u1"));
+		
+		failStoreRequests(null, new NullPointerException("requests"));
+		failStoreRequests(Arrays.asList(inviteRequest(UUID.randomUUID(), "u2"), null),
+				new NullPointerException("Null item in collection requests"));
+		failStoreRequests(Arrays.asList(inviteRequest(id, "u2")),
+				new IllegalArgumentException(String.format(
+						"ID %s already exists in the database. The programmer is responsible " +
+						"for maintaining unique IDs.",
+						id.toString())));
+	}
+	
+	private void failStoreRequests(
+			final Collection<GroupRequest> requests,
+			final Exception expected) {
+		try {
+			manager.storage.storeRequests(requests);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	@Test
+	public void getRequestFail() throws Exception {
+		failGetRequest(null, new NullPointerException("requestID"));
+		
+		manager.storage.storeRequest(GroupRequest.getBuilder(
+				new RequestID(UUID.randomUUID()), new GroupID("foo1"), new UserName("bar1"),
+					CreateModAndExpireTimes.getBuilder(
+							Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000))
 					.build())
 				.build());
 		
@@ -3292,6 +3858,394 @@ public class MongoGroupsStorageOpsTest {
 				is(Collections.emptyList()));
 	}
 	
+	private GroupRequest makeRequestForKeysetTests(
+			final String id,
+			final long modTime,
+			final GroupID groupID,
+			final UserName requester,
+			final UserName target)
+			throws Exception {
+		return GroupRequest.getBuilder(
+				new RequestID(id), groupID, requester,
+				CreateModAndExpireTimes.getBuilder(inst(10000), inst(1000000000000000L))
+						.withModificationTime(inst(modTime))
+						.build())
+				.withType(RequestType.INVITE)
+				.withResource(GroupRequest.USER_TYPE, ResourceDescriptor.from(target))
+				.build();
+	}
+	
+	@Test
+	public void getRequestsByRequesterExcludeUpToID() throws Exception {
+		// requests 2 - 4 have the same modification time and so are sorted by ID
+		final GroupRequest r1 = makeRequestForKeysetTests(
+				"00000000-0000-0000-0000-000000000009", 20000, new GroupID("g1"),
+				new UserName("bar"), new UserName("t1"));
+		final GroupRequest r2 = makeRequestForKeysetTests(
+				"00000000-0000-0000-0000-000000000001", 30000, new GroupID("g2"),
+				new UserName("bar"), new UserName("t2"));
+		final GroupRequest r3 = makeRequestForKeysetTests(
+				"00000000-0000-0000-0000-000000000002", 30000, new GroupID("g3"),
+				new UserName("bar"), new UserName("t3"));
+		final GroupRequest r4 = makeRequestForKeysetTests(
+				"00000000-0000-0000-0000-000000000003", 30000, new GroupID("g4"),
+				new UserName("bar"), new UserName("t4"));
+		final GroupRequest r5 = makeRequestForKeysetTests(
+				"00000000-0000-0000-0000-000000000000", 40000, new GroupID("g5"),
+				new UserName("bar"), new UserName("t5"));
+		
+		for (final GroupRequest r: Arrays.asList(r4, r1, r5, r3, r2)) {
+			manager.storage.storeRequest(r);
+		}
+		final UserName u = new UserName("bar");
+		
+		assertThat("incorrect requests", manager.storage.getRequestsByRequester(u,
+				GetRequestsParams.getBuilder().build()),
+				is(Arrays.asList(r1, r2, r3, r4, r5)));
+		assertThat("incorrect requests", manager.storage.getRequestsByRequester(u,
+				GetRequestsParams.getBuilder().withNullableSortAscending(false).build()),
+				is(Arrays.asList(r5, r4, r3, r2, r1)));
+		
+		// page through with a limit of 2
+		assertThat("incorrect requests", manager.storage.getRequestsByRequester(u,
+				GetRequestsParams.getBuilder()
+						.withExcludeUpTo(inst(20000), r1.getID())
+						.withNullableLimit(2)
+						.build()),
+				is(Arrays.asList(r2, r3)));
+		assertThat("incorrect requests", manager.storage.getRequestsByRequester(u,
+				GetRequestsParams.getBuilder()
+						.withExcludeUpTo(inst(30000), r3.getID())
+						.withNullableLimit(2)
+						.build()),
+				is(Arrays.asList(r4, r5)));
+		assertThat("incorrect requests", manager.storage.getRequestsByRequester(u,
+				GetRequestsParams.getBuilder()
+						.withExcludeUpTo(inst(40000), r5.getID())
+						.withNullableLimit(2)
+						.build()),
+				is(Collections.emptyList()));
+		
+		assertThat("incorrect requests", manager.storage.getRequestsByRequester(u,
+				GetRequestsParams.getBuilder()
+						.withExcludeUpTo(inst(30000), r3.getID())
+						.withNullableSortAscending(false)
+						.build()),
+				is(Arrays.asList(r2, r1)));
+		
+		// the date only version skips requests with the same modification time
+		assertThat("incorrect requests", manager.storage.getRequestsByRequester(u,
+				GetRequestsParams.getBuilder()
+						.withNullableExcludeUpTo(inst(30000))
+						.build()),
+				is(Arrays.asList(r5)));
+	}
+	
+	@Test
+	public void getRequestsByTargetExcludeUpToID() throws Exception {
+		// the target query contains an $or, which must be combined with the paging $or
+		final GroupRequest r1 = makeRequestForKeysetTests(
+				"00000000-0000-0000-0000-000000000002", 30000, new GroupID("g1"),
+				new UserName("bar"), new UserName("targ"));
+		final GroupRequest r2 = makeRequestForKeysetTests(
+				"00000000-0000-0000-0000-000000000003", 30000, new GroupID("g2"),
+				new UserName("baz"), new UserName("targ"));
+		final GroupRequest r3 = makeRequestForKeysetTests(
+				"00000000-0000-0000-0000-000000000001", 40000, new GroupID("g3"),
+				new UserName("bat"), new UserName("targ"));
+		final GroupRequest other = makeRequestForKeysetTests(
+				"00000000-0000-0000-0000-000000000004", 30000, new GroupID("g4"),
+				new UserName("bar"), new UserName("nottarg"));
+		
+		for (final GroupRequest r: Arrays.asList(r3, other, r2, r1)) {
+			manager.storage.storeRequest(r);
+		}
+		
+		assertThat("incorrect requests", manager.storage.getRequestsByTarget(
+				new UserName("targ"), Collections.emptyMap(), GetRequestsParams.getBuilder()
+						.withExcludeUpTo(inst(30000), r1.getID())
+						.build()),
+				is(Arrays.asList(r2, r3)));
+		assertThat("incorrect requests", manager.storage.getRequestsByTarget(
+				new UserName("targ"), Collections.emptyMap(), GetRequestsParams.getBuilder()
+						.withExcludeUpTo(inst(40000), r3.getID())
+						.withNullableSortAscending(false)
+						.build()),
+				is(Arrays.asList(r2, r1)));
+	}
+	
+	private GroupRequest makeWorkspaceInvite(final String id, final long modTime, final int ws)
+			throws Exception {
+		return GroupRequest.getBuilder(
+				new RequestID(id), new GroupID("g" + ws), new UserName("bar"),
+				CreateModAndExpireTimes.getBuilder(inst(10000), inst(1000000000000000L))
+						.withModificationTime(inst(modTime))
+						.build())
+				.withType(RequestType.INVITE)
+				.withResource(new ResourceType("workspace"),
+						new ResourceDescriptor(new ResourceID("" + ws)))
+				.build();
+	}
+	
+	@Test
+	public void getRequestsByTargetManyResources() throws Exception {
+		// the resource IDs are split over several queries and the results merged
+		final GroupRequest r1 = makeWorkspaceInvite(
+				"00000000-0000-0000-0000-000000000001", 20000, 1);
+		final GroupRequest r2 = makeWorkspaceInvite(
+				"00000000-0000-0000-0000-000000000002", 30000, 1500);
+		final GroupRequest r3 = makeWorkspaceInvite(
+				"00000000-0000-0000-0000-000000000003", 30000, 2999);
+		final GroupRequest r4 = makeRequestForKeysetTests(
+				"00000000-0000-0000-0000-000000000004", 25000, new GroupID("g4"),
+				new UserName("bar"), new UserName("targ"));
+		final GroupRequest other = makeWorkspaceInvite(
+				"00000000-0000-0000-0000-000000000005", 25000, 3001);
+		for (final GroupRequest r: Arrays.asList(r3, other, r4, r2, r1)) {
+			manager.storage.storeRequest(r);
+		}
+		
+		final Set<ResourceAdministrativeID> ids = new HashSet<>();
+		for (int i = 1; i <= 3000; i++) {
+			ids.add(new ResourceAdministrativeID("" + i));
+		}
+		final Map<ResourceType, Set<ResourceAdministrativeID>> res = ImmutableMap.of(
+				new ResourceType("workspace"), ids);
+		
+		assertThat("incorrect requests", manager.storage.getRequestsByTarget(
+				new UserName("targ"), res, GetRequestsParams.getBuilder().build()),
+				is(Arrays.asList(r1, r4, r2, r3)));
+		assertThat("incorrect requests", manager.storage.getRequestsByTarget(
+				new UserName("targ"), res, GetRequestsParams.getBuilder()
+						.withNullableLimit(3)
+						.build()),
+				is(Arrays.asList(r1, r4, r2)));
+		assertThat("incorrect requests", manager.storage.getRequestsByTarget(
+				new UserName("targ"), res, GetRequestsParams.getBuilder()
+						.withNullableSortAscending(false)
+						.withNullableLimit(2)
+						.build()),
+				is(Arrays.asList(r3, r2)));
+		assertThat("incorrect requests", manager.storage.getRequestsByTarget(
+				new UserName("targ"), res, GetRequestsParams.getBuilder()
+						.withExcludeUpTo(inst(30000), r2.getID())
+						.withNullableSortAscending(false)
+						.build()),
+				is(Arrays.asList(r4, r1)));
+	}
+	
+	@Test
+	public void getRequestsByTargetUser() throws Exception {
+		final GroupRequest r1 = makeRequestForKeysetTests(
+				"00000000-0000-0000-0000-000000000001", 20000, new GroupID("g1"),
+				new UserName("bar"), new UserName("targ"));
+		final GroupRequest r2 = makeWorkspaceInvite(
+				"00000000-0000-0000-0000-000000000002", 30000, 5);
+		final GroupRequest noTargets = makeWorkspaceInvite(
+				"00000000-0000-0000-0000-000000000003", 25000, 6);
+		final GroupRequest otherUser = makeRequestForKeysetTests(
+				"00000000-0000-0000-0000-000000000004", 25000, new GroupID("g4"),
+				new UserName("bar"), new UserName("other"));
+		final GroupRequest closed = makeWorkspaceInvite(
+				"00000000-0000-0000-0000-000000000005", 10000, 7);
+		for (final GroupRequest r: Arrays.asList(r1, noTargets, otherUser, closed)) {
+			manager.storage.storeRequest(r);
+		}
+		manager.storage.storeRequest(r2, set(new UserName("targ"), new UserName("other")));
+		assertThat("incorrect changed", manager.storage.setRequestTargets(
+				closed.getID(), set(new UserName("targ"))), is(true));
+		manager.storage.closeRequest(closed.getID(), GroupRequestStatus.canceled(),
+				inst(40000));
+		final GroupRequest closedReq = manager.storage.getRequest(closed.getID());
+		
+		assertThat("incorrect requests", manager.storage.getRequestsByTargetUser(
+				new UserName("targ"), GetRequestsParams.getBuilder().build()),
+				is(Arrays.asList(r1, r2)));
+		assertThat("incorrect requests", manager.storage.getRequestsByTargetUser(
+				new UserName("targ"), GetRequestsParams.getBuilder()
+						.withNullableSortAscending(false)
+						.withNullableIncludeClosed(true)
+						.build()),
+				is(Arrays.asList(closedReq, r2, r1)));
+		assertThat("incorrect requests", manager.storage.getRequestsByTargetUser(
+				new UserName("other"), GetRequestsParams.getBuilder()
+						.withNullableLimit(1)
+						.build()),
+				is(Arrays.asList(otherUser)));
+		
+		// unchanged targets are not rewritten
+		assertThat("incorrect changed", manager.storage.setRequestTargets(
+				r2.getID(), set(new UserName("other"), new UserName("targ"))), is(false));
+		
+		// targets are replaced
+		assertThat("incorrect changed", manager.storage.setRequestTargets(
+				r2.getID(), set(new UserName("other"))), is(true));
+		assertThat("incorrect changed", manager.storage.setRequestTargets(
+				r2.getID(), set(new UserName("other"))), is(false));
+		assertThat("incorrect requests", manager.storage.getRequestsByTargetUser(
+				new UserName("targ"), GetRequestsParams.getBuilder().build()),
+				is(Arrays.asList(r1)));
+		assertThat("incorrect requests", manager.storage.getRequestsByTargetUser(
+				new UserName("other"), GetRequestsParams.getBuilder().build()),
+				is(Arrays.asList(otherUser, r2)));
+		
+		// the targets are not part of the request
+		assertThat("incorrect request", manager.storage.getRequest(r2.getID()), is(r2));
+	}
+	
+	@Test
+	public void getRequestsByTargetUserFail() throws Exception {
+		final GetRequestsParams p = GetRequestsParams.getBuilder().build();
+		failGetRequestsByTargetUser(null, p, new NullPointerException("target"));
+		failGetRequestsByTargetUser(new UserName("u"), null, new NullPointerException("params"));
+		failGetRequestsByTargetUser(new UserName("u"), GetRequestsParams.getBuilder()
+						.withResource(new ResourceType("t"), new ResourceID("i")).build(),
+				new IllegalArgumentException(
+						"This method may not be parameterized with a specific resource ID"));
+	}
+	
+	private void failGetRequestsByTargetUser(
+			final UserName target,
+			final GetRequestsParams params,
+			final Exception expected) {
+		try {
+			manager.storage.getRequestsByTargetUser(target, params);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void storeRequestWithTargetsFail() throws Exception {
+		final GroupRequest r = makeWorkspaceInvite(
+				"00000000-0000-0000-0000-000000000001", 20000, 1);
+		final Set<UserName> t = set(new UserName("u"));
+		final String notInvite =
+				"Targets may only be stored for invitations to resources other than users";
+		
+		failStoreRequestWithTargets(null, t, new NullPointerException("request"));
+		failStoreRequestWithTargets(r, null, new NullPointerException("targets"));
+		failStoreRequestWithTargets(r, set(new UserName("u"), null),
+				new NullPointerException("Null item in collection targets"));
+		failStoreRequestWithTargets(makeRequestForKeysetTests(
+				"00000000-0000-0000-0000-000000000002", 20000, new GroupID("g1"),
+				new UserName("bar"), new UserName("targ")), t,
+				new IllegalArgumentException(notInvite));
+		failStoreRequestWithTargets(GroupRequest.getBuilder(
+				new RequestID("00000000-0000-0000-0000-000000000003"), new GroupID("g1"),
+				new UserName("bar"), CreateModAndExpireTimes.getBuilder(
+						inst(20000), inst(30000)).build())
+				.withResource(new ResourceType("workspace"),
+						new ResourceDescriptor(new ResourceID("1")))
+				.build(), t, new IllegalArgumentException(notInvite));
+		
+		manager.storage.storeRequest(r, t);
+		failStoreRequestWithTargets(r, t, new IllegalArgumentException(
+				"ID 00000000-0000-0000-0000-000000000001 already exists in the database. " +
+				"The programmer is responsible for maintaining unique IDs."));
+		failStoreRequestWithTargets(makeWorkspaceInvite(
+				"00000000-0000-0000-0000-000000000004", 20000, 1), t,
+				new RequestExistsException(
+						"Request exists with ID: 00000000-0000-0000-0000-000000000001"));
+	}
+	
+	private void failStoreRequestWithTargets(
+			final GroupRequest request,
+			final Set<UserName> targets,
+			final Exception expected) {
+		try {
+			manager.storage.storeRequest(request, targets);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void setRequestTargetsFail() throws Exception {
+		final GroupRequest r = makeWorkspaceInvite(
+				"00000000-0000-0000-0000-000000000001", 20000, 1);
+		manager.storage.storeRequest(r);
+		manager.storage.closeRequest(r.getID(), GroupRequestStatus.canceled(), inst(30000));
+		
+		failSetRequestTargets(null, set(), new NullPointerException("requestID"));
+		failSetRequestTargets(r.getID(), null, new NullPointerException("targets"));
+		failSetRequestTargets(r.getID(), set(new UserName("u"), null),
+				new NullPointerException("Null item in collection targets"));
+		failSetRequestTargets(new RequestID("00000000-0000-0000-0000-000000000002"), set(),
+				new NoSuchRequestException(
+						"No open request with ID 00000000-0000-0000-0000-000000000002"));
+		failSetRequestTargets(r.getID(), set(), new NoSuchRequestException(
+				"No open request with ID 00000000-0000-0000-0000-000000000001"));
+	}
+	
+	private void failSetRequestTargets(
+			final RequestID id,
+			final Set<UserName> targets,
+			final Exception expected) {
+		try {
+			manager.storage.setRequestTargets(id, targets);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void getOpenInvitations() throws Exception {
+		final GroupRequest r1 = makeWorkspaceInvite(
+				"00000000-0000-0000-0000-000000000001", 30000, 1);
+		final GroupRequest r2 = makeRequestForKeysetTests(
+				"00000000-0000-0000-0000-000000000002", 20000, new GroupID("g2"),
+				new UserName("bar"), new UserName("targ"));
+		final GroupRequest closed = makeWorkspaceInvite(
+				"00000000-0000-0000-0000-000000000003", 30000, 3);
+		final GroupRequest request = GroupRequest.getBuilder(
+				new RequestID("00000000-0000-0000-0000-000000000004"), new GroupID("g4"),
+				new UserName("bar"),
+				CreateModAndExpireTimes.getBuilder(inst(10000), inst(1000000000000000L))
+						.build())
+				.withResource(new ResourceType("workspace"),
+						new ResourceDescriptor(new ResourceID("4")))
+				.build();
+		final GroupRequest r5 = makeWorkspaceInvite(
+				"00000000-0000-0000-0000-000000000005", 10000, 5);
+		for (final GroupRequest r: Arrays.asList(r5, closed, request, r2, r1)) {
+			manager.storage.storeRequest(r);
+		}
+		manager.storage.closeRequest(closed.getID(), GroupRequestStatus.canceled(),
+				inst(40000));
+		
+		assertThat("incorrect invites", manager.storage.getOpenInvitations(
+				Optional.empty(), 10), is(Arrays.asList(r1, r2, r5)));
+		assertThat("incorrect invites", manager.storage.getOpenInvitations(
+				Optional.empty(), 2), is(Arrays.asList(r1, r2)));
+		assertThat("incorrect invites", manager.storage.getOpenInvitations(
+				Optional.of(r2.getID()), 2), is(Arrays.asList(r5)));
+		assertThat("incorrect invites", manager.storage.getOpenInvitations(
+				Optional.of(r5.getID()), 2), is(Collections.emptyList()));
+	}
+	
+	@Test
+	public void getOpenInvitationsFail() throws Exception {
+		failGetOpenInvitations(null, 1, new NullPointerException("excludeUpTo"));
+		failGetOpenInvitations(Optional.empty(), 0,
+				new IllegalArgumentException("limit must be > 0"));
+	}
+	
+	private void failGetOpenInvitations(
+			final Optional<RequestID> excludeUpTo,
+			final int limit,
+			final Exception expected) {
+		try {
+			manager.storage.getOpenInvitations(excludeUpTo, limit);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
 	@Test
 	public void getRequestsByRequesterHitLimit() throws Exception {
 		final Instant forever = Instant.ofEpochMilli(1000000000000000L);
@@ -4529,6 +5483,11 @@ public class MongoGroupsStorageOpsTest {
 		assertRequestListCorrect(inst(3000001), 201, 1, getCheckString, getRequests, t, i);
 		assertRequestListCorrect(inst(3010000), 201, 0, getCheckString, getRequests, t, i);
 		assertRequestListCorrect(inst(4000000), 201, 0, getCheckString, getRequests, t, i);
+		
+		assertRequestListCorrect(null, 150, 1, 150, getCheckString, getRequests, t, i);
+		assertRequestListCorrect(null, 300, 1, 201, getCheckString, getRequests, t, i);
+		assertRequestListCorrect(inst(1010000), 10, 2, 10, getCheckString, getRequests, t, i);
+		assertRequestListCorrect(inst(2999999), 10, 200, 2, getCheckString, getRequests, t, i);
 	}
 	
 	private interface BiFnExcept<T, U, R> {
@@ -4545,9 +5504,24 @@ public class MongoGroupsStorageOpsTest {
 			final ResourceType type,
 			final ResourceID id)
 			throws Exception {
+		assertRequestListCorrect(
+				excludeUpTo, null, start, size, getCheckString, getRequests, type, id);
+	}
+	
+	private <T> void assertRequestListCorrect(
+			final Instant excludeUpTo,
+			final Integer limit,
+			final int start,
+			final int size,
+			final Function<GroupRequest, String> getCheckString,
+			final BiFnExcept<GroupsStorage, GetRequestsParams, List<GroupRequest>> getRequests,
+			final ResourceType type,
+			final ResourceID id)
+			throws Exception {
 		final GetRequestsParams.Builder b = GetRequestsParams.getBuilder()
 						.withNullableIncludeClosed(true)
-						.withNullableExcludeUpTo(excludeUpTo);
+						.withNullableExcludeUpTo(excludeUpTo)
+						.withNullableLimit(limit);
 		if (type != null) {
 			b.withResource(type, id);
 		}
@@ -4584,7 +5558,7 @@ public class MongoGroupsStorageOpsTest {
 	}
 	
 	@Test
-	public void groupHasRequestsNoRequests() throws Exception {
+	public void getLatestOpenRequestDatesNoRequests() throws Exception {
 		// wrong group
 		manager.storage.storeRequest(GroupRequest.getBuilder(
 				new RequestID(UUID.randomUUID()), new GroupID("foo"), new UserName("bar"),
@@ -4611,14 +5585,15 @@ public class MongoGroupsStorageOpsTest {
 				.withStatus(GroupRequestStatus.expired())
 				.build());
 		
-		assertThat("incorrect has request",
-				manager.storage.groupHasRequest(new GroupID("bar"), null), is(false));
-		assertThat("incorrect has request",
-				manager.storage.groupHasRequest(new GroupID("bar"), inst(10000)), is(false));
+		assertThat("incorrect latest dates", manager.storage.getLatestOpenRequestDates(
+				set(new GroupID("bar"), new GroupID("baz"))),
+				is(Collections.emptyMap()));
+		assertThat("incorrect latest dates", manager.storage.getLatestOpenRequestDates(set()),
+				is(Collections.emptyMap()));
 	}
 	
 	@Test
-	public void groupHasRequests() throws Exception {
+	public void getLatestOpenRequestDates() throws Exception {
 		manager.storage.storeRequest(GroupRequest.getBuilder(
 				new RequestID(UUID.randomUUID()), new GroupID("foo"), new UserName("bar"),
 					CreateModAndExpireTimes.getBuilder(
@@ -4637,24 +5612,47 @@ public class MongoGroupsStorageOpsTest {
 							Instant.ofEpochMilli(50000), Instant.ofEpochMilli(60000))
 							.build())
 				.build());
+		// closed, later than the open requests
+		manager.storage.storeRequest(GroupRequest.getBuilder(
+				new RequestID(UUID.randomUUID()), new GroupID("bar"), new UserName("bag"),
+					CreateModAndExpireTimes.getBuilder(
+							Instant.ofEpochMilli(50000), Instant.ofEpochMilli(60000))
+							.withModificationTime(inst(90000))
+							.build())
+				.withStatus(GroupRequestStatus.expired())
+				.build());
+		manager.storage.storeRequest(GroupRequest.getBuilder(
+				new RequestID(UUID.randomUUID()), new GroupID("other"), new UserName("baz"),
+					CreateModAndExpireTimes.getBuilder(
+							Instant.ofEpochMilli(30000), Instant.ofEpochMilli(40000))
+							.build())
+				.build());
 		
-		assertThat("incorrect has request",
-				manager.storage.groupHasRequest(new GroupID("bar"), null), is(true));
-		assertThat("incorrect has request",
-				manager.storage.groupHasRequest(new GroupID("bar"), inst(40000)), is(true));
-		assertThat("incorrect has request",
-				manager.storage.groupHasRequest(new GroupID("bar"), inst(49999)), is(true));
-		assertThat("incorrect has request",
-				manager.storage.groupHasRequest(new GroupID("bar"), inst(50000)), is(false));
+		assertThat("incorrect latest dates", manager.storage.getLatestOpenRequestDates(
+				set(new GroupID("bar"), new GroupID("foo"), new GroupID("baz"))),
+				is(ImmutableMap.of(
+						new GroupID("bar"), inst(50000),
+						new GroupID("foo"), inst(70000))));
+		assertThat("incorrect latest dates", manager.storage.getLatestOpenRequestDates(
+				set(new GroupID("other"))),
+				is(ImmutableMap.of(new GroupID("other"), inst(30000))));
 	}
 	
 	@Test
-	public void failGroupHasRequests() throws Exception {
+	public void failGetLatestOpenRequestDates() throws Exception {
+		failGetLatestOpenRequestDates(null, new NullPointerException("groupIDs"));
+		failGetLatestOpenRequestDates(set(new GroupID("i"), null), new NullPointerException(
+				"Null item in collection groupIDs"));
+	}
+	
+	private void failGetLatestOpenRequestDates(
+			final Set<GroupID> ids,
+			final Exception expected) {
 		try {
-			manager.storage.groupHasRequest(null, inst(1));
+			manager.storage.getLatestOpenRequestDates(ids);
 			fail("expected exception");
 		} catch (Exception got) {
-			TestCommon.assertExceptionCorrect(got, new NullPointerException("groupID"));
+			TestCommon.assertExceptionCorrect(got, expected);
 		}
 	}
 	
@@ -4887,7 +5885,8 @@ public class MongoGroupsStorageOpsTest {
 					CreateModAndExpireTimes.getBuilder(inst(20000), inst(30000)).build())
 				.build());
 		
-		manager.storage.expireRequests(inst(40000));
+		assertThat("incorrect expired", manager.storage.expireRequests(inst(40000), 10),
+				is(list(new RequestID(id4), new RequestID(id3))));
 		
 		assertThat("incorrect request", manager.storage.getRequest(new RequestID(id1)), is(gr1));
 		assertThat("incorrect request", manager.storage.getRequest(new RequestID(id2)), is(gr2));
@@ -4915,13 +5914,49 @@ public class MongoGroupsStorageOpsTest {
 				.build());
 	}
 	
+	@Test
+	public void expireRequestsBatches() throws Exception {
+		// requests are expired earliest expiration first
+		final List<RequestID> ids = new LinkedList<>();
+		for (int i = 0; i < 5; i++) {
+			final RequestID id = new RequestID(UUID.randomUUID());
+			ids.add(id);
+			manager.storage.storeRequest(GroupRequest.getBuilder(
+					id, new GroupID("foo"), new UserName("u" + i),
+					CreateModAndExpireTimes.getBuilder(inst(20000), inst(39000 - i * 1000))
+							.build())
+					.build());
+		}
+		
+		assertThat("incorrect expired", manager.storage.expireRequests(inst(40000), 2),
+				is(list(ids.get(4), ids.get(3))));
+		assertThat("incorrect expired", manager.storage.expireRequests(inst(40000), 2),
+				is(list(ids.get(2), ids.get(1))));
+		assertThat("incorrect expired", manager.storage.expireRequests(inst(40000), 2),
+				is(list(ids.get(0))));
+		assertThat("incorrect expired", manager.storage.expireRequests(inst(40000), 2),
+				is(list()));
+		for (final RequestID id: ids) {
+			assertThat("incorrect status", manager.storage.getRequest(id).getStatusType(),
+					is(GroupRequestStatusType.EXPIRED));
+		}
+	}
+	
 	@Test
 	public void expireRequestsFail() throws Exception {
+		failExpireRequests(null, 1, new NullPointerException("expireTime"));
+		failExpireRequests(inst(1), 0, new IllegalArgumentException("limit must be > 0"));
+	}
+	
+	private void failExpireRequests(
+			final Instant expireTime,
+			final int limit,
+			final Exception expected) {
 		try {
-			manager.storage.expireRequests(null);
+			manager.storage.expireRequests(expireTime, limit);
 			fail("expected exception");
 		} catch (Exception got) {
-			TestCommon.assertExceptionCorrect(got, new NullPointerException("expireTime"));
+			TestCommon.assertExceptionCorrect(got, expected);
 		}
 	}
 	
@@ -4932,11 +5967,12 @@ public class MongoGroupsStorageOpsTest {
 		final Clock clock = manager.clockMock;
 		final Instant now = Instant.ofEpochMilli(50000);
 		when(clock.instant()).thenReturn(now);
-		assertThat("incorrect agent running", s.isExpirationAgentRunning(), is(true));
-		s.stopExpirationAgent(); // stop the default agent
+		// the agent is not started by default
 		assertThat("incorrect agent running", s.isExpirationAgentRunning(), is(false));
 		s.stopExpirationAgent();
 		assertThat("incorrect agent running", s.isExpirationAgentRunning(), is(false));
+		final List<List<RequestID>> expired = new CopyOnWriteArrayList<>();
+		s.addExpirationListener(ids -> expired.add(ids));
 		// to be expired immediately
 		final UUID id1 = UUID.randomUUID();
 		final GroupRequest gr1 = GroupRequest.getBuilder(
@@ -4976,6 +6012,7 @@ public class MongoGroupsStorageOpsTest {
 		s.startExpirationAgent(1); // runs the agent immediately, so hold off a sec
 		Thread.sleep(100); // let the agent finish
 		assertThat("incorrect agent running", s.isExpirationAgentRunning(), is(true));
+		assertThat("incorrect expired", expired, is(list(list(new RequestID(id1)))));
 		assertThat("incorrect request", manager.storage.getRequest(new RequestID(id1)), is(gr1ex));
 		assertThat("incorrect request", manager.storage.getRequest(new RequestID(id2)), is(gr2));
 		
@@ -4994,38 +6031,921 @@ public class MongoGroupsStorageOpsTest {
 		assertThat("incorrect request", manager.storage.getRequest(new RequestID(id1)), is(gr1ex));
 		assertThat("incorrect request", manager.storage.getRequest(new RequestID(id2)), is(gr2));
 		assertThat("incorrect request", manager.storage.getRequest(new RequestID(id3)), is(gr3ex));
+		assertThat("incorrect expired", expired, is(list(
+				list(new RequestID(id1)), list(new RequestID(id3)))));
+		s.stopExpirationAgent();
 
 		assertLogEventsCorrect(logEvents,
+				new LogEvent(Level.INFO, "Acquired lease requestexpiration with fencing token 1",
+						LeaderLease.class),
 				new LogEvent(Level.INFO, "Running expiration agent",
 						MongoGroupsStorage.class.getName() + "$ExpirationAgent"),
 				new LogEvent(Level.INFO, "Running expiration agent",
 						MongoGroupsStorage.class.getName() + "$ExpirationAgent"));
+		
+		// the lease is released when the agent stops
+		assertThat("incorrect lease", manager.db.getCollection("leases")
+				.find(new Document("name", "requestexpiration")).first().getDate("expire"),
+				is(new Date(0)));
 	}
 	
 	@Test
-	public void startReaperFail() {
+	public void expireAgentListenerFail() throws Exception {
 		final MongoGroupsStorage s = manager.storage;
-		failStartExpirationAgent(s, 1, new IllegalArgumentException(
-				"The expiration agent is already running"));
+		when(manager.clockMock.instant()).thenReturn(Instant.ofEpochMilli(50000));
+		final List<List<RequestID>> expired = new CopyOnWriteArrayList<>();
+		final AtomicInteger calls = new AtomicInteger();
+		s.addExpirationListener(ids -> {
+			if (calls.getAndIncrement() == 0) {
+				throw new RuntimeException("feeds down");
+			}
+		});
+		s.addExpirationListener(ids -> expired.add(ids));
+		final UUID id1 = UUID.randomUUID();
+		s.storeRequest(GroupRequest.getBuilder(
+				new RequestID(id1), new GroupID("foo"), new UserName("bat"),
+						CreateModAndExpireTimes.getBuilder(inst(20000), inst(40000)).build())
+				.build());
+		
+		logEvents.clear();
+		s.startExpirationAgent(1);
+		Thread.sleep(100);
+		// the request is expired but the failed listener leaves it unreported
+		assertThat("incorrect status", s.getRequest(new RequestID(id1)).getStatusType(),
+				is(GroupRequestStatusType.EXPIRED));
+		assertThat("incorrect expired", expired, is(list(list(new RequestID(id1)))));
+		assertThat("incorrect unreported", manager.db.getCollection("requests")
+				.countDocuments(new Document("expunrep", true)), is(1L));
+		
+		Thread.sleep(1200);
+		s.stopExpirationAgent();
+		
+		// all the listeners are called again on the next run
+		assertThat("incorrect expired", expired, is(list(
+				list(new RequestID(id1)), list(new RequestID(id1)))));
+		assertThat("incorrect calls", calls.get(), is(2));
+		assertThat("incorrect unreported", manager.db.getCollection("requests")
+				.countDocuments(new Document("expunrep", true)), is(0L));
+		assertThat("incorrect log event", logEvents.stream()
+				.anyMatch(e -> e.getFormattedMessage().equals(
+						"Expiration listener failed: feeds down")), is(true));
+	}
+	
+	@Test
+	public void expireAgentNotLeader() throws Exception {
+		final MongoGroupsStorage s = manager.storage;
+		final Clock clock = manager.clockMock;
+		when(clock.instant()).thenReturn(Instant.ofEpochMilli(50000));
+		final List<List<RequestID>> expired = new CopyOnWriteArrayList<>();
+		s.addExpirationListener(ids -> expired.add(ids));
+		// another process holds the lease
+		s.acquireLease("requestexpiration", "other",
+				Instant.now(), Instant.now().plusSeconds(3600));
+		final UUID id1 = UUID.randomUUID();
+		final GroupRequest gr1 = GroupRequest.getBuilder(
+				new RequestID(id1), new GroupID("foo"), new UserName("bat"),
+						CreateModAndExpireTimes.getBuilder(inst(20000), inst(40000)).build())
+				.build();
+		s.storeRequest(gr1);
 		
+		logEvents.clear();
+		s.startExpirationAgent(1);
+		Thread.sleep(100);
 		s.stopExpirationAgent();
+		
+		assertThat("incorrect expired", expired, is(list()));
+		assertThat("incorrect request", s.getRequest(new RequestID(id1)), is(gr1));
+		assertLogEventsCorrect(logEvents);
+		// the other process' lease is untouched
+		assertThat("incorrect lease", manager.db.getCollection("leases")
+				.find(new Document("name", "requestexpiration")).first().getString("holder"),
+				is("other"));
+	}
+	
+	@Test
+	public void startReaperFail() {
+		final MongoGroupsStorage s = manager.storage;
 		failStartExpirationAgent(s, 0, new IllegalArgumentException(
 				"periodInSeconds must be > 0"));
 		
 		s.startExpirationAgent(1000);
 		failStartExpirationAgent(s, 1, new IllegalArgumentException(
 				"The expiration agent is already running"));
+		s.stopExpirationAgent();
 	}
 	
-	private void failStartExpirationAgent(
-			final MongoGroupsStorage storage,
-			final long period, 
-			final Exception expected) {
+	@Test
+	public void addExpirationListenerFail() {
 		try {
-			storage.startExpirationAgent(period);
+			manager.storage.addExpirationListener(null);
 			fail("expected exception");
 		} catch (Exception got) {
-			TestCommon.assertExceptionCorrect(got, expected);
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("listener"));
+		}
+	}
+	
+	private GroupRequest archivalRequest(
+			final UUID id,
+			final String requester,
+			final Instant mod,
+			final GroupRequestStatus status)
+			throws Exception {
+		return GroupRequest.getBuilder(
+				new RequestID(id), new GroupID("foo"), new UserName(requester),
+						CreateModAndExpireTimes.getBuilder(inst(10000), inst(90000))
+								.withModificationTime(mod)
+								.build())
+				.withStatus(status)
+				.build();
+	}
+	
+	@Test
+	public void archiveRequests() throws Exception {
+		final UUID id1 = UUID.randomUUID();
+		final UUID id2 = UUID.randomUUID();
+		final UUID id3 = UUID.randomUUID();
+		final UUID id4 = UUID.randomUUID();
+		// won't be archived - open
+		final GroupRequest gr1 = archivalRequest(
+				id1, "u1", inst(20000), GroupRequestStatus.open());
+		// won't be archived - closed too recently
+		final GroupRequest gr2 = archivalRequest(
+				id2, "u2", inst(40000), GroupRequestStatus.canceled());
+		// will be archived
+		final GroupRequest gr3 = archivalRequest(
+				id3, "u3", inst(30000), GroupRequestStatus.denied(new UserName("d"), "no"));
+		final GroupRequest gr4 = archivalRequest(
+				id4, "u4", inst(39999), GroupRequestStatus.expired());
+		for (final GroupRequest r: Arrays.asList(gr1, gr2, gr3, gr4)) {
+			manager.storage.storeRequest(r);
+		}
+		
+		assertThat("incorrect archived", manager.storage.archiveRequests(inst(40000), 10),
+				is(2));
+		assertThat("incorrect archived", manager.storage.archiveRequests(inst(40000), 10),
+				is(0));
+		
+		// archived requests are still available by ID
+		for (final GroupRequest r: Arrays.asList(gr1, gr2, gr3, gr4)) {
+			assertThat("incorrect request", manager.storage.getRequest(r.getID()), is(r));
+		}
+		assertThat("incorrect requests", manager.db.getCollection("requests")
+				.countDocuments(), is(2L));
+		assertThat("incorrect archive", manager.db.getCollection("requests_archive")
+				.countDocuments(), is(2L));
+		// but not in listings
+		assertThat("incorrect requests", manager.storage.getRequestsByGroup(
+				new GroupID("foo"), GetRequestsParams.getBuilder()
+						.withNullableIncludeClosed(true).build()),
+				is(Arrays.asList(gr1, gr2)));
+	}
+	
+	@Test
+	public void archiveRequestsBatches() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			manager.storage.storeRequest(archivalRequest(UUID.randomUUID(), "u" + i,
+					inst(20000 + i), GroupRequestStatus.accepted(new UserName("a"))));
+		}
+		
+		assertThat("incorrect archived", manager.storage.archiveRequests(inst(40000), 2),
+				is(2));
+		assertThat("incorrect archived", manager.storage.archiveRequests(inst(40000), 2),
+				is(2));
+		assertThat("incorrect archived", manager.storage.archiveRequests(inst(40000), 2),
+				is(1));
+		assertThat("incorrect archived", manager.storage.archiveRequests(inst(40000), 2),
+				is(0));
+		assertThat("incorrect archive", manager.db.getCollection("requests_archive")
+				.countDocuments(), is(5L));
+	}
+	
+	@Test
+	public void archiveRequestsInterrupted() throws Exception {
+		final UUID id1 = UUID.randomUUID();
+		final UUID id2 = UUID.randomUUID();
+		final GroupRequest gr1 = archivalRequest(
+				id1, "u1", inst(20000), GroupRequestStatus.canceled());
+		final GroupRequest gr2 = archivalRequest(
+				id2, "u2", inst(20000), GroupRequestStatus.canceled());
+		manager.storage.storeRequest(gr1);
+		manager.storage.storeRequest(gr2);
+		// simulate a run that copied a request to the archive but failed before deleting it
+		manager.db.getCollection("requests_archive").insertOne(manager.db
+				.getCollection("requests").find(new Document("id", id1.toString())).first());
+		
+		assertThat("incorrect archived", manager.storage.archiveRequests(inst(40000), 10),
+				is(2));
+		
+		assertThat("incorrect requests", manager.db.getCollection("requests")
+				.countDocuments(), is(0L));
+		assertThat("incorrect archive", manager.db.getCollection("requests_archive")
+				.countDocuments(), is(2L));
+		assertThat("incorrect request", manager.storage.getRequest(new RequestID(id1)), is(gr1));
+		assertThat("incorrect request", manager.storage.getRequest(new RequestID(id2)), is(gr2));
+	}
+	
+	@Test
+	public void archiveRequestsFail() throws Exception {
+		failArchiveRequests(null, 1, new NullPointerException("closedBefore"));
+		failArchiveRequests(inst(1), 0, new IllegalArgumentException("limit must be > 0"));
+	}
+	
+	private void failArchiveRequests(
+			final Instant closedBefore,
+			final int limit,
+			final Exception expected) {
+		try {
+			manager.storage.archiveRequests(closedBefore, limit);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void archivalAgent() throws Exception {
+		// also tests that stopping the agent multiple times in succession has no effect.
+		final MongoGroupsStorage s = manager.storage;
+		when(manager.clockMock.instant()).thenReturn(Instant.ofEpochMilli(50000));
+		// the agent is not started by default
+		assertThat("incorrect agent running", s.isArchivalAgentRunning(), is(false));
+		s.stopArchivalAgent();
+		assertThat("incorrect agent running", s.isArchivalAgentRunning(), is(false));
+		final UUID id1 = UUID.randomUUID();
+		final UUID id2 = UUID.randomUUID();
+		// closed before the cutoff
+		final GroupRequest gr1 = archivalRequest(
+				id1, "u1", inst(39999), GroupRequestStatus.canceled());
+		// closed at the cutoff
+		final GroupRequest gr2 = archivalRequest(
+				id2, "u2", inst(40000), GroupRequestStatus.canceled());
+		s.storeRequest(gr1);
+		s.storeRequest(gr2);
+		
+		logEvents.clear();
+		s.startArchivalAgent(Duration.ofSeconds(10), 1);
+		Thread.sleep(100); // let the agent finish
+		assertThat("incorrect agent running", s.isArchivalAgentRunning(), is(true));
+		s.stopArchivalAgent();
+		assertThat("incorrect agent running", s.isArchivalAgentRunning(), is(false));
+		s.stopArchivalAgent();
+		
+		assertThat("incorrect request", manager.db.getCollection("requests")
+				.find(new Document("id", id1.toString())).first(), is((Document) null));
+		assertThat("incorrect request", s.getRequest(new RequestID(id1)), is(gr1));
+		assertThat("incorrect request", s.getRequest(new RequestID(id2)), is(gr2));
+		assertThat("incorrect archive", manager.db.getCollection("requests_archive")
+				.countDocuments(), is(1L));
+		assertLogEventsCorrect(logEvents,
+				new LogEvent(Level.INFO, "Acquired lease requestarchival with fencing token 1",
+						LeaderLease.class),
+				new LogEvent(Level.INFO, "Running archival agent",
+						MongoGroupsStorage.class.getName() + "$ArchivalAgent"),
+				new LogEvent(Level.INFO, "Archived 1 requests", MongoGroupsStorage.class));
+		
+		// the lease is released when the agent stops
+		assertThat("incorrect lease", manager.db.getCollection("leases")
+				.find(new Document("name", "requestarchival")).first().getDate("expire"),
+				is(new Date(0)));
+	}
+	
+	@Test
+	public void startArchivalAgentFail() {
+		final MongoGroupsStorage s = manager.storage;
+		failStartArchivalAgent(s, null, 1, new NullPointerException("archiveAfter"));
+		failStartArchivalAgent(s, Duration.ofSeconds(-1), 1, new IllegalArgumentException(
+				"archiveAfter must be >= 0"));
+		failStartArchivalAgent(s, Duration.ofDays(1), 0, new IllegalArgumentException(
+				"periodInSeconds must be > 0"));
+		
+		s.startArchivalAgent(Duration.ofDays(1), 1000);
+		failStartArchivalAgent(s, Duration.ofDays(1), 1, new IllegalArgumentException(
+				"The archival agent is already running"));
+		s.stopArchivalAgent();
+	}
+	
+	private void failStartArchivalAgent(
+			final MongoGroupsStorage s,
+			final Duration archiveAfter,
+			final long period,
+			final Exception expected) {
+		try {
+			s.startArchivalAgent(archiveAfter, period);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void changeStreamStandalone() throws Exception {
+		// the test mongo is a standalone server, so change streams are not available
+		final MongoGroupsStorage s = manager.storage;
+		logEvents.clear();
+		
+		assertThat("incorrect started", s.startChangeStream(), is(false));
+		assertThat("incorrect running", s.isChangeStreamRunning(), is(false));
+		s.stopChangeStream(); // no effect
+		assertThat("incorrect running", s.isChangeStreamRunning(), is(false));
+		
+		assertLogEventsCorrect(logEvents,
+				new LogEvent(Level.WARN, "MongoDB is not a replica set or sharded cluster, " +
+						"so change streams are not available. Caches will rely on " +
+						"expiration only.", MongoGroupsStorage.class));
+	}
+	
+	@Test
+	public void changeStreamVersionCheck() throws Exception {
+		final Method isVersionAtLeast = MongoGroupsStorage.class.getDeclaredMethod(
+				"isVersionAtLeast", Document.class, List.class);
+		isVersionAtLeast.setAccessible(true);
+		final List<Integer> min = Arrays.asList(4, 0);
+		
+		for (final List<Integer> v: Arrays.asList(
+				Arrays.asList(3, 4, 18, 0), Arrays.asList(3, 6, 8, 0), Arrays.asList(3))) {
+			assertThat("incorrect check for " + v, isVersionAtLeast.invoke(
+					null, new Document("versionArray", v), min), is(false));
+		}
+		for (final List<Integer> v: Arrays.asList(
+				Arrays.asList(4, 0, 0, 0), Arrays.asList(4, 2, 1, 0), Arrays.asList(5),
+				Arrays.asList(10, 0, 0, 0))) {
+			assertThat("incorrect check for " + v, isVersionAtLeast.invoke(
+					null, new Document("versionArray", v), min), is(true));
+		}
+		assertThat("incorrect check for missing version",
+				isVersionAtLeast.invoke(null, new Document(), min), is(false));
+	}
+	
+	@Test
+	public void changeStreamProcessChange() throws Exception {
+		// the test mongo is a standalone server, so test the change processing directly
+		final MongoGroupsStorage s = new MongoGroupsStorage(manager.db, set());
+		final StorageChangeListener l = mock(StorageChangeListener.class);
+		s.addChangeListener(l);
+		final Class<?> agentClass = Class.forName(
+				MongoGroupsStorage.class.getName() + "$ChangeStreamAgent");
+		final Constructor<?> con = agentClass.getDeclaredConstructor(MongoGroupsStorage.class);
+		con.setAccessible(true);
+		final Object agent = con.newInstance(s);
+		final Method processChange = agentClass.getDeclaredMethod(
+				"processChange", ChangeStreamDocument.class);
+		processChange.setAccessible(true);
+		final String rid = "f5bd5fd0-cc8c-435b-a5ea-ca3f2b3a4d2f";
+		
+		processChange.invoke(agent, change("groups", OperationType.UPDATE,
+				new Document("id", "gid1")));
+		processChange.invoke(agent, change("group_members", OperationType.INSERT,
+				new Document("gid", "gid2").append("user", "u")));
+		processChange.invoke(agent, change("requests", OperationType.UPDATE,
+				new Document("id", rid).append("gid", "gid3")));
+		// deleted member details and archived requests need no invalidation
+		processChange.invoke(agent, change("group_members", OperationType.DELETE, null));
+		processChange.invoke(agent, change("requests", OperationType.DELETE, null));
+		
+		verify(l).groupChanged(new GroupID("gid1"));
+		verify(l).groupChanged(new GroupID("gid2"));
+		verify(l).requestChanged(new RequestID(rid));
+		verifyNoMoreInteractions(l);
+		
+		// a group that can't be identified invalidates everything
+		processChange.invoke(agent, change("groups", OperationType.DELETE, null));
+		
+		verify(l).allChanged();
+		verifyNoMoreInteractions(l);
+	}
+	
+	@SuppressWarnings("deprecation") // the replacement constructor isn't in all 3.x drivers
+	private ChangeStreamDocument<Document> change(
+			final String collection,
+			final OperationType type,
+			final Document fullDocument) {
+		return new ChangeStreamDocument<>(
+				new BsonDocument("_data", new BsonString("token")),
+				new MongoNamespace(manager.db.getName(), collection),
+				fullDocument,
+				new BsonDocument("_id", new BsonString("id")),
+				type,
+				null);
+	}
+	
+	private void failStartExpirationAgent(
+			final MongoGroupsStorage storage,
+			final long period, 
+			final Exception expected) {
+		try {
+			storage.startExpirationAgent(period);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	private OutboxNotification requestNotification(
+			final UUID id,
+			final OutboxNotification.Type type,
+			final UUID requestID,
+			final Instant created)
+			throws Exception {
+		return OutboxNotification.getRequestBuilder(id, type, new RequestID(requestID), created)
+				.withTargets(set(new UserName("t1"), new UserName("t2")))
+				.build();
+	}
+	
+	@Test
+	public void storeAndClaimNotifications() throws Exception {
+		final UUID id1 = UUID.randomUUID();
+		final UUID id2 = UUID.randomUUID();
+		final UUID id3 = UUID.randomUUID();
+		final UUID rid = UUID.randomUUID();
+		final OutboxNotification n1 = requestNotification(
+				id1, OutboxNotification.Type.NOTIFY, rid, inst(20000));
+		final OutboxNotification n2 = OutboxNotification.getCancelBuilder(id2, Arrays.asList(
+				new RequestID(rid), new RequestID(UUID.randomUUID())), inst(10000))
+				.build();
+		final OutboxNotification n3 = OutboxNotification.getAddResourceBuilder(
+				id3, new UserName("u"), new GroupID("g"), new ResourceType("ws"),
+				new ResourceID("6"), inst(30000))
+				.withTargets(set(new UserName("t3")))
+				.build();
+		manager.storage.storeNotification(n1);
+		manager.storage.storeNotification(n2);
+		manager.storage.storeNotification(n3);
+		
+		assertThat("incorrect notifications", manager.storage.claimNotifications(
+				inst(5000), inst(100000), 10), is(Collections.emptyList()));
+		
+		assertThat("incorrect notifications", manager.storage.claimNotifications(
+				inst(20000), inst(100000), 10), is(Arrays.asList(n2, n1)));
+		
+		// claimed notifications are not available until the claim expires
+		assertThat("incorrect notifications", manager.storage.claimNotifications(
+				inst(40000), inst(100000), 10), is(Arrays.asList(n3)));
+		assertThat("incorrect notifications", manager.storage.claimNotifications(
+				inst(99999), inst(200000), 10), is(Collections.emptyList()));
+		
+		assertThat("incorrect notifications", manager.storage.claimNotifications(
+				inst(100000), inst(200000), 2), is(Arrays.asList(n2, n1)));
+		assertThat("incorrect notifications", manager.storage.claimNotifications(
+				inst(100000), inst(200000), 2), is(Arrays.asList(n3)));
+	}
+	
+	@Test
+	public void storeNotificationDuplicate() throws Exception {
+		final UUID rid = UUID.randomUUID();
+		final OutboxNotification n1 = requestNotification(
+				UUID.randomUUID(), OutboxNotification.Type.NOTIFY, rid, inst(20000));
+		final OutboxNotification n2 = requestNotification(
+				UUID.randomUUID(), OutboxNotification.Type.DENY, rid, inst(30000));
+		manager.storage.storeNotification(n1);
+		manager.storage.storeNotification(n2);
+		// same request and type as n1, so ignored
+		manager.storage.storeNotification(requestNotification(
+				UUID.randomUUID(), OutboxNotification.Type.NOTIFY, rid, inst(10000)));
+		// cancellations are not deduplicated
+		final OutboxNotification c1 = OutboxNotification.getCancelBuilder(
+				UUID.randomUUID(), Arrays.asList(new RequestID(rid)), inst(35000)).build();
+		final OutboxNotification c2 = OutboxNotification.getCancelBuilder(
+				UUID.randomUUID(), Arrays.asList(new RequestID(rid)), inst(36000)).build();
+		manager.storage.storeNotification(c1);
+		manager.storage.storeNotification(c2);
+		
+		assertThat("incorrect notifications", manager.storage.claimNotifications(
+				inst(40000), inst(100000), 10), is(Arrays.asList(n1, n2, c1, c2)));
+	}
+	
+	@Test
+	public void storeNotificationFail() throws Exception {
+		final UUID id = UUID.randomUUID();
+		manager.storage.storeNotification(requestNotification(
+				id, OutboxNotification.Type.NOTIFY, UUID.randomUUID(), inst(20000)));
+		
+		failStoreNotification(null, new NullPointerException("notification"));
+		failStoreNotification(requestNotification(
+				id, OutboxNotification.Type.NOTIFY, UUID.randomUUID(), inst(20000)),
+				new GroupsStorageException("Database write failed"));
+	}
+	
+	private void failStoreNotification(
+			final OutboxNotification notification,
+			final Exception expected) {
+		try {
+			manager.storage.storeNotification(notification);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void removeNotification() throws Exception {
+		final UUID id1 = UUID.randomUUID();
+		final UUID id2 = UUID.randomUUID();
+		final OutboxNotification n1 = requestNotification(
+				id1, OutboxNotification.Type.NOTIFY, UUID.randomUUID(), inst(20000));
+		final OutboxNotification n2 = requestNotification(
+				id2, OutboxNotification.Type.NOTIFY, UUID.randomUUID(), inst(30000));
+		manager.storage.storeNotification(n1);
+		manager.storage.storeNotification(n2);
+		
+		manager.storage.removeNotification(id1);
+		manager.storage.removeNotification(UUID.randomUUID()); // no effect
+		
+		assertThat("incorrect notifications", manager.storage.claimNotifications(
+				inst(40000), inst(100000), 10), is(Arrays.asList(n2)));
+	}
+	
+	@Test
+	public void retryNotification() throws Exception {
+		final UUID id1 = UUID.randomUUID();
+		final UUID id2 = UUID.randomUUID();
+		final UUID rid1 = UUID.randomUUID();
+		final OutboxNotification n2 = requestNotification(
+				id2, OutboxNotification.Type.NOTIFY, UUID.randomUUID(), inst(30000));
+		manager.storage.storeNotification(requestNotification(
+				id1, OutboxNotification.Type.NOTIFY, rid1, inst(20000)));
+		manager.storage.storeNotification(n2);
+		
+		manager.storage.claimNotifications(inst(40000), inst(100000), 10);
+		manager.storage.retryNotification(id1, inst(50000));
+		manager.storage.retryNotification(UUID.randomUUID(), inst(50000)); // no effect
+		
+		assertThat("incorrect notifications", manager.storage.claimNotifications(
+				inst(60000), inst(100000), 10), is(Arrays.asList(
+						OutboxNotification.getRequestBuilder(id1, OutboxNotification.Type.NOTIFY,
+								new RequestID(rid1), inst(20000))
+								.withTargets(set(new UserName("t1"), new UserName("t2")))
+								.withAttempts(1)
+								.build())));
+		
+		manager.storage.retryNotification(id1, inst(70000));
+		manager.storage.retryNotification(id2, inst(70000));
+		
+		assertThat("incorrect notifications", manager.storage.claimNotifications(
+				inst(70000), inst(100000), 10), is(Arrays.asList(
+						OutboxNotification.getRequestBuilder(id1, OutboxNotification.Type.NOTIFY,
+								new RequestID(rid1), inst(20000))
+								.withTargets(set(new UserName("t1"), new UserName("t2")))
+								.withAttempts(2)
+								.build(),
+						OutboxNotification.getRequestBuilder(id2, OutboxNotification.Type.NOTIFY,
+								n2.getRequestID().get(), inst(30000))
+								.withTargets(set(new UserName("t1"), new UserName("t2")))
+								.withAttempts(1)
+								.build())));
+	}
+	
+	@Test
+	public void claimNotificationsFail() throws Exception {
+		failClaimNotifications(null, inst(2000), 1, new NullPointerException("now"));
+		failClaimNotifications(inst(1000), null, 1,
+				new NullPointerException("claimExpiration"));
+		failClaimNotifications(inst(1000), inst(1000), 1,
+				new IllegalArgumentException("claimExpiration must be after now"));
+		failClaimNotifications(inst(1000), inst(2000), 0,
+				new IllegalArgumentException("limit must be > 0"));
+	}
+	
+	private void failClaimNotifications(
+			final Instant now,
+			final Instant claimExpiration,
+			final int limit,
+			final Exception expected) {
+		try {
+			manager.storage.claimNotifications(now, claimExpiration, limit);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void claimNotificationsBadData() throws Exception {
+		final UUID id = UUID.randomUUID();
+		manager.storage.storeNotification(requestNotification(
+				id, OutboxNotification.Type.NOTIFY, UUID.randomUUID(), inst(20000)));
+		manager.db.getCollection("notificationoutbox").updateOne(
+				new Document("id", id.toString()),
+				new Document("$set", new Document("type", "POKE")));
+		
+		failClaimNotifications(inst(30000), inst(40000), 1, new GroupsStorageException(
+				"Unexpected value in database: No enum constant " +
+				"us.kbase.groups.core.notifications.OutboxNotification.Type.POKE"));
+	}
+	
+	@Test
+	public void removeAndRetryNotificationFail() throws Exception {
+		try {
+			manager.storage.removeNotification(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("id"));
+		}
+		failRetryNotification(null, inst(1000), new NullPointerException("id"));
+		failRetryNotification(UUID.randomUUID(), null, new NullPointerException("nextAttempt"));
+	}
+	
+	private void failRetryNotification(
+			final UUID id,
+			final Instant nextAttempt,
+			final Exception expected) {
+		try {
+			manager.storage.retryNotification(id, nextAttempt);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void acquireLease() throws Exception {
+		final MongoGroupsStorage s = manager.storage;
+		// new lease
+		assertThat("incorrect token", s.acquireLease("l", "h1", inst(10000), inst(20000)),
+				is(Optional.of(1L)));
+		// other holder can't acquire an unexpired lease
+		assertThat("incorrect token", s.acquireLease("l", "h2", inst(19999), inst(30000)),
+				is(Optional.empty()));
+		// renew
+		assertThat("incorrect token", s.acquireLease("l", "h1", inst(15000), inst(25000)),
+				is(Optional.of(1L)));
+		assertThat("incorrect token", s.acquireLease("l", "h2", inst(20000), inst(30000)),
+				is(Optional.empty()));
+		// other holder takes over an expired lease
+		assertThat("incorrect token", s.acquireLease("l", "h2", inst(25000), inst(35000)),
+				is(Optional.of(2L)));
+		assertThat("incorrect token", s.acquireLease("l", "h1", inst(26000), inst(36000)),
+				is(Optional.empty()));
+		// an expired lease can be renewed if no one else took it
+		assertThat("incorrect token", s.acquireLease("l", "h2", inst(40000), inst(50000)),
+				is(Optional.of(2L)));
+		// other leases are independent
+		assertThat("incorrect token", s.acquireLease("l2", "h1", inst(40000), inst(50000)),
+				is(Optional.of(1L)));
+		
+		assertThat("incorrect lease", manager.db.getCollection("leases")
+				.find(new Document("name", "l")).projection(new Document("_id", 0)).first(),
+				is(new Document("name", "l")
+						.append("holder", "h2")
+						.append("expire", new Date(50000))
+						.append("token", 2L)));
+	}
+	
+	@Test
+	public void releaseLease() throws Exception {
+		final MongoGroupsStorage s = manager.storage;
+		s.acquireLease("l", "h1", inst(10000), inst(20000));
+		s.releaseLease("l", "h2"); // no effect
+		s.releaseLease("l2", "h1"); // no effect
+		assertThat("incorrect token", s.acquireLease("l", "h2", inst(15000), inst(25000)),
+				is(Optional.empty()));
+		
+		s.releaseLease("l", "h1");
+		assertThat("incorrect token", s.acquireLease("l", "h2", inst(15000), inst(25000)),
+				is(Optional.of(2L)));
+	}
+	
+	@Test
+	public void acquireLeaseFail() throws Exception {
+		final Instant i1 = inst(1000);
+		final Instant i2 = inst(2000);
+		failAcquireLease(null, "h", i1, i2, new IllegalArgumentException(
+				"leaseName cannot be null or whitespace only"));
+		failAcquireLease("   \t  ", "h", i1, i2, new IllegalArgumentException(
+				"leaseName cannot be null or whitespace only"));
+		failAcquireLease("l", null, i1, i2, new IllegalArgumentException(
+				"holder cannot be null or whitespace only"));
+		failAcquireLease("l", "   \t  ", i1, i2, new IllegalArgumentException(
+				"holder cannot be null or whitespace only"));
+		failAcquireLease("l", "h", null, i2, new NullPointerException("now"));
+		failAcquireLease("l", "h", i1, null, new NullPointerException("expiration"));
+		failAcquireLease("l", "h", i1, i1, new IllegalArgumentException(
+				"expiration must be after now"));
+	}
+	
+	private void failAcquireLease(
+			final String leaseName,
+			final String holder,
+			final Instant now,
+			final Instant expiration,
+			final Exception expected) {
+		try {
+			manager.storage.acquireLease(leaseName, holder, now, expiration);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void releaseLeaseFail() throws Exception {
+		failReleaseLease(null, "h", new IllegalArgumentException(
+				"leaseName cannot be null or whitespace only"));
+		failReleaseLease("   \t  ", "h", new IllegalArgumentException(
+				"leaseName cannot be null or whitespace only"));
+		failReleaseLease("l", null, new IllegalArgumentException(
+				"holder cannot be null or whitespace only"));
+		failReleaseLease("l", "   \t  ", new IllegalArgumentException(
+				"holder cannot be null or whitespace only"));
+	}
+	
+	private void failReleaseLease(
+			final String leaseName,
+			final String holder,
+			final Exception expected) {
+		try {
+			manager.storage.releaseLease(leaseName, holder);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	private void resetWithPublicSearchFields() throws Exception {
+		manager.reset(set(new ResourceType("workspace"), new ResourceType("catalogmethod")),
+				set(new CustomField("pub")));
+	}
+	
+	private List<String> searchGroups(final String query, final String user) throws Exception {
+		return searchGroups(query, null, user);
+	}
+	
+	private List<String> searchGroups(final String query, final Integer limit, final String user)
+			throws Exception {
+		return manager.storage.searchGroups(
+				SearchGroupsParams.getBuilder(query).withNullableLimit(limit).build(),
+				user == null ? null : new UserName(user), set())
+				.stream().map(g -> g.getGroupID().getName()).collect(Collectors.toList());
+	}
+	
+	@Test
+	public void searchGroupsEmpty() throws Exception {
+		assertThat("incorrect search", searchGroups("foo", null), is(list()));
+		assertThat("incorrect search", searchGroups("foo", "u"), is(list()));
+	}
+	
+	@Test
+	public void searchGroupsSummaries() throws Exception {
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("gid"), new GroupName("Bacterial genomes"), toGUser("own"),
+				new CreateAndModTimes(inst(10000), inst(20000)))
+				.withMember(GroupUser.getBuilder(new UserName("m1"), inst(60000))
+						.withNullableLastVisit(inst(92000))
+						.build())
+				.withCustomField(new NumberedCustomField("field"), "val")
+				.withCustomField(new NumberedCustomField("other"), "val2")
+				.build());
+		
+		final GroupSummary.Builder b = GroupSummary.getBuilder(
+				new GroupID("gid"), new GroupName("Bacterial genomes"), new UserName("own"),
+				new CreateAndModTimes(inst(10000), inst(20000)))
+				.withMemberCount(2)
+				.withCustomField(new NumberedCustomField("field"), "val");
+		final SearchGroupsParams p = SearchGroupsParams.getBuilder("genome").build();
+		final Set<CustomField> fields = set(new CustomField("field"));
+		
+		assertThat("incorrect search", manager.storage.searchGroups(p, null, fields),
+				is(list(b.build())));
+		assertThat("incorrect search", manager.storage.searchGroups(
+				p, new UserName("m1"), fields),
+				is(list(b.withRole(Role.MEMBER).withNullableLastVisit(inst(92000)).build())));
+	}
+	
+	@Test
+	public void searchGroupsRelevance() throws Exception {
+		resetWithPublicSearchFields();
+		// matches in the name outrank matches in the custom fields
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("field"), new GroupName("some group"), toGUser("own"),
+				new CreateAndModTimes(inst(10000)))
+				.withCustomField(new NumberedCustomField("pub"), "about microbes")
+				.build());
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("name"), new GroupName("microbes"), toGUser("own"),
+				new CreateAndModTimes(inst(10000)))
+				.build());
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("nomatch"), new GroupName("plants"), toGUser("own"),
+				new CreateAndModTimes(inst(10000)))
+				.build());
+		
+		assertThat("incorrect search", searchGroups("microbe", null), is(list("name", "field")));
+		assertThat("incorrect search", searchGroups("microbe", 1, null), is(list("name")));
+		// ties are broken by the group ID
+		assertThat("incorrect search", searchGroups("plant microbe", "own"),
+				is(list("name", "nomatch", "field")));
+	}
+	
+	@Test
+	public void searchGroupsPublicAndPrivate() throws Exception {
+		resetWithPublicSearchFields();
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("pubgroup"), new GroupName("a group"), toGUser("own"),
+				new CreateAndModTimes(inst(10000)))
+				.withMember(toGUser("mem"))
+				.withCustomField(new NumberedCustomField("pub-1"), "visible")
+				.withCustomField(new NumberedCustomField("priv"), "hidden")
+				.build());
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("privgroup"), new GroupName("a secret"), toGUser("own2"),
+				new CreateAndModTimes(inst(10000)))
+				.withIsPrivate(true)
+				.withMember(toGUser("mem"))
+				.withCustomField(new NumberedCustomField("pub"), "visible")
+				.build());
+		
+		assertThat("incorrect search", searchGroups("visible", null), is(list("pubgroup")));
+		assertThat("incorrect search", searchGroups("visible", "nonmem"), is(list("pubgroup")));
+		assertThat("incorrect search", searchGroups("visible", "own2"),
+				is(list("privgroup", "pubgroup")));
+		assertThat("incorrect search", searchGroups("hidden", null), is(list()));
+		assertThat("incorrect search", searchGroups("hidden", "own2"), is(list()));
+		assertThat("incorrect search", searchGroups("hidden", "mem"), is(list("pubgroup")));
+		assertThat("incorrect search", searchGroups("secret", "own"), is(list()));
+		assertThat("incorrect search", searchGroups("secret", "mem"), is(list("privgroup")));
+	}
+	
+	@Test
+	public void searchGroupsAfterUpdates() throws Exception {
+		resetWithPublicSearchFields();
+		final GroupID gid = new GroupID("gid");
+		manager.storage.createGroup(Group.getBuilder(
+				gid, new GroupName("old"), toGUser("own"), new CreateAndModTimes(inst(10000)))
+				.withCustomField(new NumberedCustomField("pub"), "field")
+				.build());
+		
+		manager.storage.updateGroup(GroupUpdateParams.getBuilder(gid)
+				.withName(new GroupName("renamed"))
+				.withOptionalFields(OptionalGroupFields.getBuilder()
+						.withCustomField(new NumberedCustomField("pub"), OptionalString.empty())
+						.withNullableIsPrivate(true)
+						.build())
+				.build(),
+				inst(20000));
+		
+		assertThat("incorrect search", searchGroups("old", "own"), is(list()));
+		assertThat("incorrect search", searchGroups("field", "own"), is(list()));
+		assertThat("incorrect search", searchGroups("renamed", "own"), is(list("gid")));
+		assertThat("incorrect search", searchGroups("renamed", null), is(list()));
+		
+		manager.storage.addMember(gid, toGUser("mem"), inst(30000));
+		assertThat("incorrect search", searchGroups("renamed", "mem"), is(list("gid")));
+		
+		manager.storage.removeMember(gid, new UserName("mem"), inst(40000));
+		assertThat("incorrect search", searchGroups("renamed", "mem"), is(list()));
+	}
+	
+	@Test
+	public void searchGroupsFail() throws Exception {
+		final SearchGroupsParams p = SearchGroupsParams.getBuilder("f").build();
+		searchGroupsFail(null, set(), new NullPointerException("params"));
+		searchGroupsFail(p, null, new NullPointerException("customFields"));
+		searchGroupsFail(p, set(new CustomField("f"), null), new NullPointerException(
+				"Null item in collection customFields"));
+	}
+	
+	private void searchGroupsFail(
+			final SearchGroupsParams p,
+			final Set<CustomField> fields,
+			final Exception expected) {
+		try {
+			manager.storage.searchGroups(p, null, fields);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void reindexGroups() throws Exception {
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("g1"), new GroupName("turtles"), toGUser("own"),
+				new CreateAndModTimes(inst(10000)))
+				.build());
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("g2"), new GroupName("more turtles"), toGUser("own"),
+				new CreateAndModTimes(inst(10000)))
+				.withIsPrivate(true)
+				.build());
+		manager.db.getCollection("groups_search_public").deleteMany(new Document());
+		manager.db.getCollection("groups_search_private").deleteMany(new Document());
+		
+		assertThat("incorrect search", searchGroups("turtle", "own"), is(list()));
+		
+		manager.storage.reindexGroup(new GroupID("g2"));
+		assertThat("incorrect search", searchGroups("turtle", "own"), is(list("g2")));
+		
+		assertThat("incorrect count", manager.storage.reindexGroups(), is(2L));
+		assertThat("incorrect search", searchGroups("turtle", null), is(list("g1")));
+		assertThat("incorrect search", searchGroups("turtle", "own"), is(list("g1", "g2")));
+	}
+	
+	@Test
+	public void reindexGroupFail() throws Exception {
+		try {
+			manager.storage.reindexGroup(new GroupID("nope"));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NoSuchGroupException("nope"));
 		}
 	}
 }
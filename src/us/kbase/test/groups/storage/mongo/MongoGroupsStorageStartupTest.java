@@ -8,6 +8,7 @@ import static us.kbase.test.groups.TestCommon.set;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.function.Consumer;
@@ -20,6 +21,8 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.github.zafarkhaja.semver.Version;
+import com.mongodb.ReadPreference;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
@@ -27,9 +30,12 @@ import com.mongodb.client.MongoDatabase;
 import us.kbase.groups.core.CreateAndModTimes;
 import us.kbase.groups.core.Group;
 import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.GroupIDNameMembership;
 import us.kbase.groups.core.GroupName;
 import us.kbase.groups.core.GroupUser;
 import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.fieldvalidation.CustomField;
+import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
 import us.kbase.groups.core.resource.ResourceType;
 import us.kbase.groups.storage.exceptions.StorageInitException;
 import us.kbase.groups.storage.mongo.MongoGroupsStorage;
@@ -64,6 +70,38 @@ public class MongoGroupsStorageStartupTest {
 		failMongoStart(manager.db, null, new NullPointerException("types"));
 		failMongoStart(manager.db, set(new ResourceType("t"), null), new NullPointerException(
 				"Null item in collection types"));
+		failMongoStart(manager.db, set(), null, new NullPointerException(
+				"publicSearchFields"));
+		failMongoStart(manager.db, set(), set(new CustomField("f"), null),
+				new NullPointerException("Null item in collection publicSearchFields"));
+		try {
+			new MongoGroupsStorage(manager.db, set(), set(), null);
+			fail("started mongo with bad config");
+		} catch (Exception e) {
+			TestCommon.assertExceptionCorrect(e, new NullPointerException("listReadPreference"));
+		}
+	}
+	
+	@Test
+	public void startUpWithListReadPreference() throws Exception {
+		final MongoDatabase db = manager.mc.getDatabase("startUpWithListReadPreference");
+		final MongoGroupsStorage ms = new MongoGroupsStorage(
+				db, set(), set(), ReadPreference.secondaryPreferred());
+		
+		final GroupUser u = GroupUser.getBuilder(new UserName("u"), Instant.ofEpochMilli(10000))
+				.build();
+		ms.createGroup(Group.getBuilder(new GroupID("id"), new GroupName("name"), u,
+				new CreateAndModTimes(Instant.ofEpochMilli(10000)))
+				.build());
+		
+		// the test server is standalone, so secondaryPreferred reads from the primary
+		assertThat("incorrect group names", ms.getGroupNames(
+				new UserName("u"), set(new GroupID("id"))),
+				is(Arrays.asList(GroupIDNameMembership.getBuilder(new GroupID("id"))
+						.withGroupName(new GroupName("name"))
+						.withIsMember(true)
+						.withIsPrivate(false)
+						.build())));
 	}
 	@Test
 	public void startUpAndCheckConfigDoc() throws Exception {
@@ -77,6 +115,7 @@ public class MongoGroupsStorageStartupTest {
 		assertThat("correct config key & value", (String)d.get("schema"), is("schema"));
 		assertThat("not in update", (Boolean)d.get("inupdate"), is(false));
 		assertThat("schema v1", (Integer)d.get("schemaver"), is(1));
+		assertThat("member details moved", (Boolean)d.get("membdetailsmoved"), is(true));
 		
 		//check startup works with the config object in place
 		final MongoGroupsStorage ms = new MongoGroupsStorage(db, set());
@@ -156,8 +195,16 @@ public class MongoGroupsStorageStartupTest {
 			final MongoDatabase db,
 			final Collection<ResourceType> types,
 			final Exception exp) throws Exception {
+		failMongoStart(db, types, set(), exp);
+	}
+	
+	private void failMongoStart(
+			final MongoDatabase db,
+			final Collection<ResourceType> types,
+			final Collection<CustomField> publicSearchFields,
+			final Exception exp) throws Exception {
 		try {
-			new MongoGroupsStorage(db, types);
+			new MongoGroupsStorage(db, types, publicSearchFields);
 			fail("started mongo with bad config");
 		} catch (Exception e) {
 			TestCommon.assertExceptionCorrect(e, exp);
@@ -176,7 +223,13 @@ public class MongoGroupsStorageStartupTest {
 		final Set<String> expected = set(
 				"config",
 				"requests",
-				"groups");
+				"requests_archive",
+				"groups",
+				"group_members",
+				"notificationoutbox",
+				"groups_search_public",
+				"groups_search_private",
+				"leases");
 		if (manager.includeSystemIndexes) {
 			expected.add("system.indexes");
 		}
@@ -285,6 +338,29 @@ public class MongoGroupsStorageStartupTest {
 		
 	}
 	
+	@Test
+	public void indexesGroupMembers() {
+		final Set<Document> indexes = new HashSet<>();
+		manager.db.getCollection("group_members").listIndexes()
+				.forEach((Consumer<Document>) indexes::add);
+		final String col = "test_mongogroupsstorage.group_members";
+		assertThat("incorrect indexes", indexes, is(set(
+				new Document("v", manager.indexVer)
+						.append("unique", true)
+						.append("key", new Document("gid", 1).append("user", 1))
+						.append("name", "gid_1_user_1")
+						.append("ns", col),
+				new Document("v", manager.indexVer)
+						.append("key", new Document("_id", 1))
+						.append("name", "_id_")
+						.append("ns", col)
+				)));
+	}
+	
+	private static final Document OPEN = new Document("status", "OPEN");
+	private static final Document CLOSED = new Document(
+			"status", new Document("$lt", "OPEN"));
+	
 	@Test
 	public void indexesRequests() {
 		final Set<Document> indexes = new HashSet<>();
@@ -298,63 +374,100 @@ public class MongoGroupsStorageStartupTest {
 						.append("name", "id_1")
 						.append("ns", col),
 				new Document("v", manager.indexVer)
-						.append("key", new Document("gid", 1).append("type", 1).append("mod", 1))
-						.append("name", "gid_1_type_1_mod_1")
+						.append("key", new Document("gid", 1)
+								.append("type", 1)
+								.append("mod", 1)
+								.append("id", 1))
+						.append("name", "gid_1_type_1_mod_1_id_1")
 						.append("ns", col),
 				new Document("v", manager.indexVer)
 						.append("key", new Document("gid", 1)
 								.append("status", 1)
 								.append("type", 1)
-								.append("mod", 1))
-						.append("name", "gid_1_status_1_type_1_mod_1")
+								.append("mod", 1)
+								.append("id", 1))
+						.append("name", "gid_1_status_1_type_1_mod_1_id_1")
+						.append("partialFilterExpression", OPEN)
+						.append("background", true)
 						.append("ns", col),
 				new Document("v", manager.indexVer)
-						.append("key", new Document("requester", 1).append("mod", 1))
-						.append("name", "requester_1_mod_1")
+						.append("key", new Document("requester", 1)
+								.append("mod", 1)
+								.append("id", 1))
+						.append("name", "requester_1_mod_1_id_1")
 						.append("ns", col),
 				new Document("v", manager.indexVer)
 						.append("key", new Document("requester", 1)
 								.append("status", 1)
-								.append("mod", 1))
-						.append("name", "requester_1_status_1_mod_1")
+								.append("mod", 1)
+								.append("id", 1))
+						.append("name", "requester_1_status_1_mod_1_id_1")
+						.append("partialFilterExpression", OPEN)
+						.append("background", true)
+						.append("ns", col),
+				new Document("v", manager.indexVer)
+						.append("key", new Document("targets", 1)
+								.append("type", 1)
+								.append("mod", 1)
+								.append("id", 1))
+						.append("name", "targets_1_type_1_mod_1_id_1")
+						.append("ns", col),
+				new Document("v", manager.indexVer)
+						.append("key", new Document("targets", 1)
+								.append("status", 1)
+								.append("type", 1)
+								.append("mod", 1)
+								.append("id", 1))
+						.append("name", "targets_1_status_1_type_1_mod_1_id_1")
+						.append("partialFilterExpression", OPEN)
+						.append("background", true)
 						.append("ns", col),
 				new Document("v", manager.indexVer)
 						.append("key", new Document("resaid", 1)
 								.append("restype", 1)
 								.append("type", 1)
-								.append("mod", 1))
-						.append("name", "resaid_1_restype_1_type_1_mod_1")
+								.append("mod", 1)
+								.append("id", 1))
+						.append("name", "resaid_1_restype_1_type_1_mod_1_id_1")
 						.append("ns", col),
 				new Document("v", manager.indexVer)
 						.append("key", new Document("resaid", 1)
 								.append("restype", 1)
 								.append("status", 1)
 								.append("type", 1)
-								.append("mod", 1))
-						.append("name", "resaid_1_restype_1_status_1_type_1_mod_1")
+								.append("mod", 1)
+								.append("id", 1))
+						.append("name", "resaid_1_restype_1_status_1_type_1_mod_1_id_1")
+						.append("partialFilterExpression", OPEN)
+						.append("background", true)
 						.append("ns", col),
 				new Document("v", manager.indexVer)
 						.append("key", new Document("resrid", 1)
 								.append("restype", 1)
 								.append("type", 1)
-								.append("mod", 1))
-						.append("name", "resrid_1_restype_1_type_1_mod_1")
+								.append("mod", 1)
+								.append("id", 1))
+						.append("name", "resrid_1_restype_1_type_1_mod_1_id_1")
 						.append("ns", col),
 				new Document("v", manager.indexVer)
 						.append("key", new Document("resrid", 1)
 								.append("restype", 1)
 								.append("status", 1)
 								.append("type", 1)
-								.append("mod", 1))
-						.append("name", "resrid_1_restype_1_status_1_type_1_mod_1")
+								.append("mod", 1)
+								.append("id", 1))
+						.append("name", "resrid_1_restype_1_status_1_type_1_mod_1_id_1")
+						.append("partialFilterExpression", OPEN)
+						.append("background", true)
 						.append("ns", col),
 				new Document("v", manager.indexVer)
 						.append("key", new Document("resrid", 1)
 								.append("requester", 1)
 								.append("restype", 1)
 								.append("type", 1)
-								.append("mod", 1))
-						.append("name", "resrid_1_requester_1_restype_1_type_1_mod_1")
+								.append("mod", 1)
+								.append("id", 1))
+						.append("name", "resrid_1_requester_1_restype_1_type_1_mod_1_id_1")
 						.append("ns", col),
 				new Document("v", manager.indexVer)
 						.append("key", new Document("resrid", 1)
@@ -362,16 +475,20 @@ public class MongoGroupsStorageStartupTest {
 								.append("restype", 1)
 								.append("status", 1)
 								.append("type", 1)
-								.append("mod", 1))
-						.append("name", "resrid_1_requester_1_restype_1_status_1_type_1_mod_1")
+								.append("mod", 1)
+								.append("id", 1))
+						.append("name", "resrid_1_requester_1_restype_1_status_1_type_1_mod_1_id_1")
+						.append("partialFilterExpression", OPEN)
+						.append("background", true)
 						.append("ns", col),
 				new Document("v", manager.indexVer)
 						.append("key", new Document("resrid", 1)
 								.append("gid", 1)
 								.append("restype", 1)
 								.append("type", 1)
-								.append("mod", 1))
-						.append("name", "resrid_1_gid_1_restype_1_type_1_mod_1")
+								.append("mod", 1)
+								.append("id", 1))
+						.append("name", "resrid_1_gid_1_restype_1_type_1_mod_1_id_1")
 						.append("ns", col),
 				new Document("v", manager.indexVer)
 						.append("key", new Document("resrid", 1)
@@ -379,13 +496,18 @@ public class MongoGroupsStorageStartupTest {
 								.append("restype", 1)
 								.append("status", 1)
 								.append("type", 1)
-								.append("mod", 1))
-						.append("name", "resrid_1_gid_1_restype_1_status_1_type_1_mod_1")
+								.append("mod", 1)
+								.append("id", 1))
+						.append("name", "resrid_1_gid_1_restype_1_status_1_type_1_mod_1_id_1")
+						.append("partialFilterExpression", OPEN)
+						.append("background", true)
 						.append("ns", col),		
 						
 				new Document("v", manager.indexVer)
-						.append("key", new Document("expire", 1))
-						.append("name", "expire_1")
+						.append("key", new Document("status", 1).append("expire", 1))
+						.append("name", "status_1_expire_1")
+						.append("partialFilterExpression", OPEN)
+						.append("background", true)
 						.append("ns", col),
 				new Document("v", manager.indexVer)
 						.append("unique", true)
@@ -393,6 +515,239 @@ public class MongoGroupsStorageStartupTest {
 						.append("key", new Document("charstr", 1))
 						.append("name", "charstr_1")
 						.append("ns", col),
+				new Document("v", manager.indexVer)
+						.append("key", new Document("status", 1).append("mod", 1))
+						.append("name", "status_1_mod_1")
+						.append("partialFilterExpression", CLOSED)
+						.append("background", true)
+						.append("ns", col),
+				new Document("v", manager.indexVer)
+						.append("sparse", true)
+						.append("key", new Document("expunrep", 1))
+						.append("name", "expunrep_1")
+						.append("ns", col),
+				new Document("v", manager.indexVer)
+						.append("key", new Document("_id", 1))
+						.append("name", "_id_")
+						.append("ns", col)
+				)));
+	}
+	
+	@Test
+	public void indexesMigrate() throws Exception {
+		final MongoDatabase db = manager.mc.getDatabase("indexesMigrate");
+		final MongoCollection<Document> groups = db.getCollection("groups");
+		final MongoCollection<Document> requests = db.getCollection("requests");
+		// indexes from previous versions
+		groups.createIndex(new Document("own", 1));
+		groups.createIndex(new Document("admin", 1));
+		requests.createIndex(new Document("expire", 1));
+		requests.createIndex(new Document("status", 1).append("expire", 1));
+		requests.createIndex(new Document("gid", 1).append("type", 1).append("mod", 1));
+		requests.createIndex(new Document("requester", 1).append("status", 1)
+				.append("mod", 1));
+		requests.createIndex(new Document("requester", 1).append("status", 1)
+				.append("mod", 1).append("id", 1));
+		requests.createIndex(new Document("status", 1).append("mod", 1));
+		// not managed by the storage system
+		requests.createIndex(new Document("requester", 1).append("expire", 1));
+		
+		new MongoGroupsStorage(db, set());
+		
+		final Set<Document> gindexes = new HashSet<>();
+		groups.listIndexes().forEach((Consumer<Document>) gindexes::add);
+		final Set<String> gnames = new HashSet<>();
+		gindexes.stream().forEach(d -> gnames.add(d.getString("name")));
+		assertThat("incorrect indexes", gnames, is(set("_id_", "id_1", "own_1_id_1",
+				"admin_1_id_1", "priv_1_id_1", "memb.user_1_id_1")));
+		
+		final Set<Document> rindexes = new HashSet<>();
+		requests.listIndexes().forEach((Consumer<Document>) rindexes::add);
+		final Set<String> rnames = new HashSet<>();
+		rindexes.stream().forEach(d -> rnames.add(d.getString("name")));
+		assertThat("incorrect index count", rnames.size(), is(19));
+		assertThat("obsolete index present", rnames.contains("expire_1"), is(false));
+		assertThat("obsolete index present", rnames.contains("gid_1_type_1_mod_1"), is(false));
+		assertThat("obsolete index present", rnames.contains("requester_1_status_1_mod_1"),
+				is(false));
+		assertThat("index missing", rnames.contains("requester_1_expire_1"), is(true));
+		for (final Document d: rindexes) {
+			final String name = d.getString("name");
+			if (name.equals("status_1_expire_1") ||
+					name.equals("requester_1_status_1_mod_1_id_1")) {
+				assertThat("incorrect filter for " + name, d.get("partialFilterExpression"),
+						is(OPEN));
+			}
+			if (name.equals("status_1_mod_1")) {
+				assertThat("incorrect filter for " + name, d.get("partialFilterExpression"),
+						is(CLOSED));
+			}
+		}
+	}
+	
+	@Test
+	public void migrateMemberDetails() throws Exception {
+		final MongoDatabase db = manager.mc.getDatabase("migrateMemberDetails");
+		final MongoCollection<Document> groups = db.getCollection("groups");
+		final MongoCollection<Document> members = db.getCollection("group_members");
+		// member details were stored in the members list prior to 0.1.6
+		groups.insertOne(new Document("id", "gid")
+				.append("name", "name")
+				.append("priv", false)
+				.append("privmem", true)
+				.append("own", "own")
+				.append("admin", Arrays.asList())
+				.append("memb", Arrays.asList(
+						new Document("user", "own")
+								.append("join", new Date(10000))
+								.append("visit", new Date(40000))
+								.append("cust", new Document("f-1", "val")),
+						new Document("user", "m")
+								.append("join", new Date(20000))
+								.append("visit", null)
+								.append("cust", new Document())))
+				.append("resources", new Document())
+				.append("create", new Date(10000))
+				.append("mod", new Date(30000))
+				.append("cust", new Document()));
+		// details written by an updated server are kept
+		members.insertOne(new Document("gid", "gid").append("user", "m")
+				.append("visit", new Date(50000)).append("cust", new Document()));
+		
+		final MongoGroupsStorage ms = new MongoGroupsStorage(db, set());
+		
+		assertThat("incorrect members list", groups.find().first().get("memb"),
+				is(Arrays.asList(
+						new Document("user", "own").append("join", new Date(10000)),
+						new Document("user", "m").append("join", new Date(20000)))));
+		assertThat("incorrect member details count", members.countDocuments(), is(2L));
+		assertThat("incorrect group", ms.getGroup(new GroupID("gid")), is(Group.getBuilder(
+				new GroupID("gid"), new GroupName("name"),
+				GroupUser.getBuilder(new UserName("own"), Instant.ofEpochMilli(10000))
+						.withNullableLastVisit(Instant.ofEpochMilli(40000))
+						.withCustomField(new NumberedCustomField("f-1"), "val")
+						.build(),
+				new CreateAndModTimes(Instant.ofEpochMilli(10000), Instant.ofEpochMilli(30000)))
+				.withMember(GroupUser.getBuilder(
+						new UserName("m"), Instant.ofEpochMilli(20000))
+						.withNullableLastVisit(Instant.ofEpochMilli(50000))
+						.build())
+				.build()));
+		
+		assertThat("migration not recorded", db.getCollection("config").find().first()
+				.get("membdetailsmoved"), is(true));
+		
+		// startup after the migration has completed doesn't scan the groups
+		final Document unmigrated = new Document("id", "gid2")
+				.append("memb", Arrays.asList(new Document("user", "own")
+						.append("join", new Date(10000))
+						.append("visit", new Date(40000))
+						.append("cust", new Document())));
+		groups.insertOne(unmigrated);
+		new MongoGroupsStorage(db, set());
+		assertThat("incorrect member details count", members.countDocuments(), is(2L));
+		assertThat("incorrect members list", groups.find(new Document("id", "gid2")).first()
+				.get("memb"), is(unmigrated.get("memb")));
+	}
+	
+	@Test
+	public void indexesRequestsArchive() {
+		final Set<Document> indexes = new HashSet<>();
+		manager.db.getCollection("requests_archive").listIndexes()
+				.forEach((Consumer<Document>) indexes::add);
+		final String col = "test_mongogroupsstorage.requests_archive";
+		assertThat("incorrect indexes", indexes, is(set(
+				new Document("v", manager.indexVer)
+						.append("unique", true)
+						.append("key", new Document("id", 1))
+						.append("name", "id_1")
+						.append("ns", col),
+				new Document("v", manager.indexVer)
+						.append("key", new Document("_id", 1))
+						.append("name", "_id_")
+						.append("ns", col)
+				)));
+	}
+	
+	@Test
+	public void indexesNotificationOutbox() {
+		final Set<Document> indexes = new HashSet<>();
+		manager.db.getCollection("notificationoutbox").listIndexes()
+				.forEach((Consumer<Document>) indexes::add);
+		final String col = "test_mongogroupsstorage.notificationoutbox";
+		assertThat("incorrect indexes", indexes, is(set(
+				new Document("v", manager.indexVer)
+						.append("unique", true)
+						.append("key", new Document("id", 1))
+						.append("name", "id_1")
+						.append("ns", col),
+				new Document("v", manager.indexVer)
+						.append("key", new Document("next", 1).append("create", 1))
+						.append("name", "next_1_create_1")
+						.append("ns", col),
+				new Document("v", manager.indexVer)
+						.append("unique", true)
+						.append("sparse", true)
+						.append("key", new Document("dedupe", 1))
+						.append("name", "dedupe_1")
+						.append("ns", col),
+				new Document("v", manager.indexVer)
+						.append("key", new Document("_id", 1))
+						.append("name", "_id_")
+						.append("ns", col)
+				)));
+	}
+	
+	@Test
+	public void indexesLeases() {
+		final Set<Document> indexes = new HashSet<>();
+		manager.db.getCollection("leases").listIndexes()
+				.forEach((Consumer<Document>) indexes::add);
+		final String col = "test_mongogroupsstorage.leases";
+		assertThat("incorrect indexes", indexes, is(set(
+				new Document("v", manager.indexVer)
+						.append("unique", true)
+						.append("key", new Document("name", 1))
+						.append("name", "name_1")
+						.append("ns", col),
+				new Document("v", manager.indexVer)
+						.append("key", new Document("_id", 1))
+						.append("name", "_id_")
+						.append("ns", col)
+				)));
+	}
+	
+	@Test
+	public void indexesSearchPublic() {
+		checkSearchIndexes("groups_search_public");
+	}
+	
+	@Test
+	public void indexesSearchPrivate() {
+		checkSearchIndexes("groups_search_private");
+	}
+	
+	private void checkSearchIndexes(final String collection) {
+		final Set<Document> indexes = new HashSet<>();
+		manager.db.getCollection(collection).listIndexes()
+				.forEach((Consumer<Document>) indexes::add);
+		final String col = "test_mongogroupsstorage." + collection;
+		final int textIndexVersion = manager.mongoDBVer.greaterThanOrEqualTo(
+				Version.forIntegers(3, 2)) ? 3 : 2;
+		assertThat("incorrect indexes", indexes, is(set(
+				new Document("v", manager.indexVer)
+						.append("unique", true)
+						.append("key", new Document("id", 1))
+						.append("name", "id_1")
+						.append("ns", col),
+				new Document("v", manager.indexVer)
+						.append("key", new Document("_fts", "text").append("_ftsx", 1))
+						.append("name", "name_text_fields_text")
+						.append("ns", col)
+						.append("weights", new Document("fields", 1).append("name", 10))
+						.append("default_language", "english")
+						.append("language_override", "language")
+						.append("textIndexVersion", textIndexVersion),
 				new Document("v", manager.indexVer)
 						.append("key", new Document("_id", 1))
 						.append("name", "_id_")
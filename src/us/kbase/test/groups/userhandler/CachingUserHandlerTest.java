@@ -0,0 +1,320 @@
+package us.kbase.test.groups.userhandler;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Constructor;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+
+import us.kbase.groups.core.Token;
+import us.kbase.groups.core.UserHandler;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.AuthenticationException;
+import us.kbase.groups.core.exceptions.ErrorType;
+import us.kbase.groups.core.exceptions.InvalidTokenException;
+import us.kbase.groups.userhandler.CachingUserHandler;
+import us.kbase.test.groups.TestCommon;
+
+public class CachingUserHandlerTest {
+
+	private static class FakeTicker extends Ticker {
+
+		private final AtomicLong nanos = new AtomicLong();
+
+		@Override
+		public long read() {
+			return nanos.get();
+		}
+
+		private void advance(final Duration d) {
+			nanos.addAndGet(d.toNanos());
+		}
+	}
+
+	private CachingUserHandler getHandler(
+			final UserHandler wrapped,
+			final int maxSize,
+			final Duration validTTL,
+			final Duration invalidTTL,
+			final Ticker ticker)
+			throws Exception {
+		final Constructor<CachingUserHandler> c = CachingUserHandler.class.getDeclaredConstructor(
+				UserHandler.class, int.class, Duration.class, Duration.class, Ticker.class);
+		c.setAccessible(true);
+		return c.newInstance(wrapped, maxSize, validTTL, invalidTTL, ticker);
+	}
+
+	@Test
+	public void constructFail() throws Exception {
+		final UserHandler u = mock(UserHandler.class);
+		final Duration d = Duration.ofSeconds(1);
+
+		failConstruct(null, 1, d, d, new NullPointerException("wrapped"));
+		failConstruct(u, 0, d, d, new IllegalArgumentException("maxSize must be > 0"));
+		failConstruct(u, 1, null, d, new NullPointerException("validTokenTTL"));
+		failConstruct(u, 1, d, null, new NullPointerException("invalidTokenTTL"));
+	}
+
+	private void failConstruct(
+			final UserHandler wrapped,
+			final int maxSize,
+			final Duration validTTL,
+			final Duration invalidTTL,
+			final Exception expected) {
+		try {
+			new CachingUserHandler(wrapped, maxSize, validTTL, invalidTTL);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+
+	@Test
+	public void getUserCachesValidToken() throws Exception {
+		final UserHandler wrapped = mock(UserHandler.class);
+		final FakeTicker ticker = new FakeTicker();
+		final CachingUserHandler h = getHandler(
+				wrapped, 10, Duration.ofSeconds(60), Duration.ofSeconds(5), ticker);
+
+		when(wrapped.getUser(new Token("t"))).thenReturn(new UserName("u"));
+
+		assertThat("incorrect user", h.getUser(new Token("t")), is(new UserName("u")));
+		ticker.advance(Duration.ofSeconds(59));
+		assertThat("incorrect user", h.getUser(new Token("t")), is(new UserName("u")));
+
+		verify(wrapped, times(1)).getUser(new Token("t"));
+		assertThat("incorrect hits", h.getHitCount(), is(1L));
+		assertThat("incorrect misses", h.getMissCount(), is(1L));
+
+		ticker.advance(Duration.ofSeconds(1));
+		assertThat("incorrect user", h.getUser(new Token("t")), is(new UserName("u")));
+
+		verify(wrapped, times(2)).getUser(new Token("t"));
+		assertThat("incorrect hits", h.getHitCount(), is(1L));
+		assertThat("incorrect misses", h.getMissCount(), is(2L));
+	}
+
+	@Test
+	public void getUserCachesInvalidToken() throws Exception {
+		final UserHandler wrapped = mock(UserHandler.class);
+		final FakeTicker ticker = new FakeTicker();
+		final CachingUserHandler h = getHandler(
+				wrapped, 10, Duration.ofSeconds(60), Duration.ofSeconds(5), ticker);
+
+		when(wrapped.getUser(new Token("t"))).thenThrow(new InvalidTokenException("bad"));
+
+		final Exception first = failGetUser(
+				h, new Token("t"), new InvalidTokenException("bad"));
+		ticker.advance(Duration.ofSeconds(4));
+		final Exception second = failGetUser(
+				h, new Token("t"), new InvalidTokenException("bad"));
+		assertThat("cached exception rethrown", first == second, is(false));
+
+		verify(wrapped, times(1)).getUser(new Token("t"));
+		assertThat("incorrect hits", h.getHitCount(), is(1L));
+		assertThat("incorrect misses", h.getMissCount(), is(1L));
+
+		ticker.advance(Duration.ofSeconds(1));
+		failGetUser(h, new Token("t"), new InvalidTokenException("bad"));
+
+		verify(wrapped, times(2)).getUser(new Token("t"));
+		assertThat("incorrect hits", h.getHitCount(), is(1L));
+		assertThat("incorrect misses", h.getMissCount(), is(2L));
+	}
+
+	@Test
+	public void getUserCachesInvalidTokenWithoutMessage() throws Exception {
+		final UserHandler wrapped = mock(UserHandler.class);
+		final CachingUserHandler h = getHandler(
+				wrapped, 10, Duration.ofSeconds(60), Duration.ofSeconds(5), new FakeTicker());
+		
+		when(wrapped.getUser(new Token("t"))).thenThrow(new InvalidTokenException());
+		
+		failGetUser(h, new Token("t"), new InvalidTokenException());
+		failGetUser(h, new Token("t"), new InvalidTokenException());
+		
+		verify(wrapped, times(1)).getUser(new Token("t"));
+		assertThat("incorrect hits", h.getHitCount(), is(1L));
+	}
+	
+	@Test
+	public void getUserDoesNotCacheAuthFailure() throws Exception {
+		final UserHandler wrapped = mock(UserHandler.class);
+		final CachingUserHandler h = getHandler(
+				wrapped, 10, Duration.ofSeconds(60), Duration.ofSeconds(5), new FakeTicker());
+
+		when(wrapped.getUser(new Token("t")))
+				.thenThrow(new AuthenticationException(ErrorType.AUTHENTICATION_FAILED, "oops"))
+				.thenReturn(new UserName("u"));
+
+		failGetUser(h, new Token("t"), new AuthenticationException(
+				ErrorType.AUTHENTICATION_FAILED, "oops"));
+		assertThat("incorrect user", h.getUser(new Token("t")), is(new UserName("u")));
+
+		verify(wrapped, times(2)).getUser(new Token("t"));
+		assertThat("incorrect hits", h.getHitCount(), is(0L));
+		assertThat("incorrect misses", h.getMissCount(), is(2L));
+	}
+
+	@Test
+	public void getUserEvictsWhenFull() throws Exception {
+		final UserHandler wrapped = mock(UserHandler.class);
+		final CachingUserHandler h = getHandler(
+				wrapped, 1, Duration.ofSeconds(60), Duration.ofSeconds(5), new FakeTicker());
+
+		when(wrapped.getUser(new Token("t1"))).thenReturn(new UserName("u1"));
+		when(wrapped.getUser(new Token("t2"))).thenReturn(new UserName("u2"));
+
+		assertThat("incorrect user", h.getUser(new Token("t1")), is(new UserName("u1")));
+		assertThat("incorrect user", h.getUser(new Token("t2")), is(new UserName("u2")));
+		assertThat("incorrect user", h.getUser(new Token("t1")), is(new UserName("u1")));
+
+		verify(wrapped, times(2)).getUser(new Token("t1"));
+		verify(wrapped, times(1)).getUser(new Token("t2"));
+		assertThat("incorrect misses", h.getMissCount(), is(3L));
+	}
+
+	@Test
+	public void getUserFailNull() throws Exception {
+		final CachingUserHandler h = new CachingUserHandler(mock(UserHandler.class), 1,
+				Duration.ofSeconds(1), Duration.ofSeconds(1));
+
+		failGetUser(h, null, new NullPointerException("token"));
+	}
+
+	private Exception failGetUser(
+			final CachingUserHandler h,
+			final Token token,
+			final Exception expected) {
+		try {
+			h.getUser(token);
+			fail("expected exception");
+			return null; // can't get here
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+			return got;
+		}
+	}
+
+	@Test
+	public void isValidUser() throws Exception {
+		final UserHandler wrapped = mock(UserHandler.class);
+		final FakeTicker ticker = new FakeTicker();
+		final CachingUserHandler h = getHandler(
+				wrapped, 10, Duration.ofSeconds(60), Duration.ofSeconds(5), ticker);
+
+		when(wrapped.isValidUser(new UserName("u1"))).thenReturn(true);
+		when(wrapped.isValidUser(new UserName("u2"))).thenReturn(false);
+
+		assertThat("incorrect valid", h.isValidUser(new UserName("u1")), is(true));
+		assertThat("incorrect valid", h.isValidUser(new UserName("u2")), is(false));
+		assertThat("incorrect valid", h.isValidUser(new UserName("u1")), is(true));
+		assertThat("incorrect valid", h.isValidUser(new UserName("u2")), is(false));
+
+		// only valid names are cached
+		verify(wrapped, times(1)).isValidUser(new UserName("u1"));
+		verify(wrapped, times(2)).isValidUser(new UserName("u2"));
+
+		ticker.advance(Duration.ofSeconds(60));
+		assertThat("incorrect valid", h.isValidUser(new UserName("u1")), is(true));
+
+		verify(wrapped, times(2)).isValidUser(new UserName("u1"));
+	}
+	
+	@Test
+	public void areValidUsers() throws Exception {
+		final UserHandler wrapped = mock(UserHandler.class);
+		final CachingUserHandler h = getHandler(
+				wrapped, 10, Duration.ofSeconds(60), Duration.ofSeconds(5), new FakeTicker());
+
+		when(wrapped.areValidUsers(Arrays.asList(
+				new UserName("u1"), new UserName("u2"), new UserName("u3"))))
+				.thenReturn(ImmutableMap.of(
+						new UserName("u1"), true,
+						new UserName("u2"), false,
+						new UserName("u3"), true));
+		when(wrapped.areValidUsers(Arrays.asList(new UserName("u2"), new UserName("u4"))))
+				.thenReturn(ImmutableMap.of(new UserName("u2"), true, new UserName("u4"), false));
+
+		assertThat("incorrect valid", h.areValidUsers(Arrays.asList(
+				new UserName("u1"), new UserName("u2"), new UserName("u3"), new UserName("u1"))),
+				is(ImmutableMap.of(
+						new UserName("u1"), true,
+						new UserName("u2"), false,
+						new UserName("u3"), true)));
+		
+		assertThat("incorrect valid", h.areValidUsers(Arrays.asList(
+				new UserName("u1"), new UserName("u2"), new UserName("u3"), new UserName("u4"))),
+				is(ImmutableMap.of(
+						new UserName("u1"), true,
+						new UserName("u2"), true,
+						new UserName("u3"), true,
+						new UserName("u4"), false)));
+		
+		assertThat("incorrect valid", h.isValidUser(new UserName("u2")), is(true));
+		
+		verify(wrapped, never()).isValidUser(new UserName("u2"));
+	}
+	
+	@Test
+	public void areValidUsersAllCached() throws Exception {
+		final UserHandler wrapped = mock(UserHandler.class);
+		final CachingUserHandler h = new CachingUserHandler(
+				wrapped, 10, Duration.ofSeconds(60), Duration.ofSeconds(5));
+		
+		when(wrapped.isValidUser(new UserName("u1"))).thenReturn(true);
+		
+		h.isValidUser(new UserName("u1"));
+		
+		assertThat("incorrect valid", h.areValidUsers(Arrays.asList(new UserName("u1"))),
+				is(ImmutableMap.of(new UserName("u1"), true)));
+		assertThat("incorrect valid", h.areValidUsers(Collections.emptyList()),
+				is(Collections.emptyMap()));
+		
+		verify(wrapped, never()).areValidUsers(any());
+	}
+	
+	@Test
+	public void validUsersFail() throws Exception {
+		final CachingUserHandler h = new CachingUserHandler(mock(UserHandler.class), 1,
+				Duration.ofSeconds(1), Duration.ofSeconds(1));
+		
+		try {
+			h.isValidUser(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("userName"));
+		}
+		failAreValidUsers(h, null, new NullPointerException("userNames"));
+		failAreValidUsers(h, Arrays.asList(new UserName("u"), null),
+				new NullPointerException("Null item in collection userNames"));
+	}
+	
+	private void failAreValidUsers(
+			final CachingUserHandler h,
+			final List<UserName> names,
+			final Exception expected) {
+		try {
+			h.areValidUsers(names);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
@@ -20,6 +20,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.Test;
 import org.mockito.ArgumentMatcher;
@@ -182,11 +184,12 @@ public class SDKClientWorkspaceHandlerTest {
 				new ResourceID("24"), new UserName(user)), is(expected));
 	}
 
-	private UObjectArgumentMatcher getPermissionsCommandMatcher(final int wsid) {
+	private UObjectArgumentMatcher getPermissionsCommandMatcher(final int... wsids) {
 		return new UObjectArgumentMatcher(ImmutableMap.of(
 				"command", "getPermissionsMass",
-				"params", ImmutableMap.of("workspaces",
-						Arrays.asList(ImmutableMap.of("id", wsid)))));
+				"params", ImmutableMap.of("workspaces", IntStream.of(wsids)
+						.mapToObj(id -> ImmutableMap.of("id", id))
+						.collect(Collectors.toList()))));
 	}
 	
 	private UObjectArgumentMatcher setPermissionsCommandMatcher(
@@ -618,54 +621,29 @@ public class SDKClientWorkspaceHandlerTest {
 		
 		final SDKClientWorkspaceHandler h = new SDKClientWorkspaceHandler(c);
 		
-		doReturn(new UObject(ImmutableMap.of("perms", Arrays.asList(
-				ImmutableMap.of("user1", "a", "user2", "w")))))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(3)));
-		
-		doReturn(new UObject(ImmutableMap.of("perms", Arrays.asList(
-				ImmutableMap.of("user1", "a", "user2", "w")))))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(5)));
-		
-		doReturn(new UObject(ImmutableMap.of("perms", Arrays.asList(
-				ImmutableMap.of("user1", "w", "user2", "w")))))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(7)));
-
-		doReturn(new UObject(ImmutableMap.of("perms", Arrays.asList(
-				ImmutableMap.of("user1", "w", "user2", "w")))))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(8)));
-
-		doReturn(new UObject(ImmutableMap.of("perms", Arrays.asList(
-				ImmutableMap.of("user1", "r", "user2", "w", "*", "r")))))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(9)));
-		
-		doReturn(new UObject(ImmutableMap.of("perms", Arrays.asList(
-				ImmutableMap.of("user1", "r", "user2", "w", "*", "r")))))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(10)));
-		
-		doReturn(new UObject(ImmutableMap.of("perms", Arrays.asList(
-				ImmutableMap.of("user2", "w", "*", "r")))))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(11)));
-		
+		// the workspace fails the whole call on a deleted or missing workspace, so the handler
+		// removes the workspace and retries
 		doThrow(new ServerException("Workspace 20 is deleted", -1, "n"))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(20)));
+				.when(c).administer(argThat(getPermissionsCommandMatcher(
+						3, 5, 7, 8, 9, 10, 11, 20, 21, 30, 31, 40, 41)));
 		doThrow(new ServerException("No workspace with id 21 exists", -1, "n"))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(21)));
-		
-		doReturn(new UObject(ImmutableMap.of("perms", Arrays.asList(
-				ImmutableMap.of("user1", "r", "user2", "w", "*", "r")))))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(30)));
-		
-		doReturn(new UObject(ImmutableMap.of("perms", Arrays.asList(
-				ImmutableMap.of("user2", "w", "*", "r")))))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(31)));
-		
-		doReturn(new UObject(ImmutableMap.of("perms", Arrays.asList(
-				ImmutableMap.of("user1", "r", "user2", "w", "*", "r")))))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(40)));
+				.when(c).administer(argThat(getPermissionsCommandMatcher(
+						3, 5, 7, 8, 9, 10, 11, 21, 30, 31, 40, 41)));
 		
 		doReturn(new UObject(ImmutableMap.of("perms", Arrays.asList(
-				ImmutableMap.of("user2", "w", "*", "r")))))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(41)));
+				ImmutableMap.of("user1", "a", "user2", "w"), // 3
+				ImmutableMap.of("user1", "a", "user2", "w"), // 5
+				ImmutableMap.of("user1", "w", "user2", "w"), // 7
+				ImmutableMap.of("user1", "w", "user2", "w"), // 8
+				ImmutableMap.of("user1", "r", "user2", "w", "*", "r"), // 9
+				ImmutableMap.of("user1", "r", "user2", "w", "*", "r"), // 10
+				ImmutableMap.of("user2", "w", "*", "r"), // 11
+				ImmutableMap.of("user1", "r", "user2", "w", "*", "r"), // 30
+				ImmutableMap.of("user2", "w", "*", "r"), // 31
+				ImmutableMap.of("user1", "r", "user2", "w", "*", "r"), // 40
+				ImmutableMap.of("user2", "w", "*", "r")))))  // 41
+				.when(c).administer(argThat(getPermissionsCommandMatcher(
+						3, 5, 7, 8, 9, 10, 11, 30, 31, 40, 41)));
 
 		doReturn(getWorkspaceInfoResponse(3, "name3", "user1", "2018-10-27T02:16:53+0000", false,
 				Collections.emptyMap()))
@@ -731,11 +709,21 @@ public class SDKClientWorkspaceHandlerTest {
 		doReturn(new UObject("no desc")).when(c).administer(argThat(getWSDescCommandMatcher(40)));
 		doReturn(new UObject("no desc")).when(c).administer(argThat(getWSDescCommandMatcher(41)));
 
+		doThrow(new ServerException(
+				"Object 42 cannot be accessed: Workspace 40 is deleted", -1, "n"))
+				.when(c).administer(argThat(getObjectInfoCommandMatcher(
+						objSpec(5, 6, 1), objSpec(40, 42, 1), objSpec(41, 43, 1))));
+		doThrow(new ServerException(
+				"Object 43 cannot be accessed: No workspace with id 41 exists", -1, "n"))
+				.when(c).administer(argThat(getObjectInfoCommandMatcher(
+						objSpec(5, 6, 1), objSpec(41, 43, 1))));
 		doReturn(getObjectInfoResponse("2017-07-14T02:40:00+0000"))
 				.when(c).administer(argThat(getObjectInfoCommandMatcher(5, 6, 1)));
+		// anonymous user with administrated and public access
 		doThrow(new ServerException(
 				"Object 42 cannot be accessed: Workspace 40 is deleted", -1, "n"))
-				.when(c).administer(argThat(getObjectInfoCommandMatcher(40, 42, 1)));
+				.when(c).administer(argThat(getObjectInfoCommandMatcher(
+						objSpec(40, 42, 1), objSpec(41, 43, 1))));
 		doThrow(new ServerException(
 				"Object 43 cannot be accessed: No workspace with id 41 exists", -1, "n"))
 				.when(c).administer(argThat(getObjectInfoCommandMatcher(41, 43, 1)));
@@ -768,13 +756,19 @@ public class SDKClientWorkspaceHandlerTest {
 			final int wsid,
 			final int objid,
 			final int version) {
+		return getObjectInfoCommandMatcher(objSpec(wsid, objid, version));
+	}
+	
+	@SafeVarargs
+	private final UObjectArgumentMatcher getObjectInfoCommandMatcher(
+			final Map<String, Integer>... objects) {
 		return new UObjectArgumentMatcher(ImmutableMap.of(
 				"command", "getObjectInfo",
-				"params", ImmutableMap.of("objects", Arrays.asList(
-						ImmutableMap.of(
-								"wsid", wsid,
-								"objid", objid,
-								"ver", version)))));
+				"params", ImmutableMap.of("objects", Arrays.asList(objects))));
+	}
+	
+	private Map<String, Integer> objSpec(final int wsid, final int objid, final int version) {
+		return ImmutableMap.of("wsid", wsid, "objid", objid, "ver", version);
 	}
 	
 	private UObject getWorkspaceInfoResponse(
@@ -804,6 +798,45 @@ public class SDKClientWorkspaceHandlerTest {
 		// other fields are currently unused in the handler
 	}
 	
+	@Test
+	public void getResourceInformationBatches() throws Exception {
+		final WorkspaceClient c = mock(WorkspaceClient.class);
+		
+		when(c.ver()).thenReturn(MIN_WS_VER);
+		
+		final SDKClientWorkspaceHandler h = new SDKClientWorkspaceHandler(c);
+		
+		final int[] batch1 = IntStream.rangeClosed(1, 100).toArray();
+		final int[] batch2 = IntStream.rangeClosed(101, 150).toArray();
+		
+		doReturn(new UObject(ImmutableMap.of("perms", Collections.nCopies(
+				100, ImmutableMap.of("user2", "a")))))
+				.when(c).administer(argThat(getPermissionsCommandMatcher(batch1)));
+		doReturn(new UObject(ImmutableMap.of("perms", Collections.nCopies(
+				50, ImmutableMap.of("user2", "a")))))
+				.when(c).administer(argThat(getPermissionsCommandMatcher(batch2)));
+		
+		final ResourceInformationSet ri = h.getResourceInformation(
+				new UserName("user1"),
+				IntStream.rangeClosed(1, 150).mapToObj(i -> rid(i + ""))
+						.collect(Collectors.toSet()),
+				ResourceAccess.ADMINISTRATED);
+		
+		assertThat("incorrect resources", ri, is(ResourceInformationSet.getBuilder(
+				new UserName("user1")).build()));
+		
+		verify(c).administer(argThat(getPermissionsCommandMatcher(batch1)));
+		verify(c).administer(argThat(getPermissionsCommandMatcher(batch2)));
+	}
+	
+	private ResourceID rid(final String id) {
+		try {
+			return new ResourceID(id);
+		} catch (Exception e) {
+			throw new RuntimeException("Fix yer tests", e);
+		}
+	}
+	
 	@Test
 	public void getResourceInformationFailBadArgs() throws Exception {
 		final WorkspaceClient c = mock(WorkspaceClient.class);